@@ -22,7 +22,10 @@
 package com.kingsrook.qqq.backend.core.actions;
 
 
+import java.util.ArrayList;
+import java.util.List;
 import com.kingsrook.qqq.backend.core.exceptions.QException;
+import com.kingsrook.qqq.backend.core.logging.QLogger;
 import com.kingsrook.qqq.backend.core.model.actions.AbstractTableActionInput;
 import com.kingsrook.qqq.backend.core.modules.backend.QBackendModuleDispatcher;
 import com.kingsrook.qqq.backend.core.modules.backend.QBackendModuleInterface;
@@ -35,10 +38,20 @@ import com.kingsrook.qqq.backend.core.modules.backend.QBackendModuleInterface;
  ** Most obvious use-case would be a JDBC Connection.  See subclass in rdbms module.
  ** Ditto MongoDB.
  **
+ ** Actions can be registered to run after the transaction commits (see
+ ** addPostCommitAction) - e.g., to drop cached data that was written in the
+ ** transaction, only once other threads can see the new data.  Subclasses must
+ ** call runPostCommitActions after a successful commit, and
+ ** discardPostCommitActions on rollback.
+ **
  ** Note:  One would imagine that this class shouldn't ever implement Serializable...
  *******************************************************************************/
 public class QBackendTransaction implements AutoCloseable
 {
+   private static final QLogger LOG = QLogger.getLogger(QBackendTransaction.class);
+
+   private List<Runnable> postCommitActions;
+
 
    /*******************************************************************************
     **
@@ -58,9 +71,10 @@ public class QBackendTransaction implements AutoCloseable
     *******************************************************************************/
    public void commit() throws QException
    {
-      ////////////////////////
-      // noop in base class //
-      ////////////////////////
+      ////////////////////////////////////////////////////////////////////
+      // nothing to commit in base class - just run post-commit actions //
+      ////////////////////////////////////////////////////////////////////
+      runPostCommitActions();
    }
 
 
@@ -70,9 +84,65 @@ public class QBackendTransaction implements AutoCloseable
     *******************************************************************************/
    public void rollback() throws QException
    {
-      ////////////////////////
-      // noop in base class //
-      ////////////////////////
+      discardPostCommitActions();
+   }
+
+
+
+   /*******************************************************************************
+    ** Add an action to run after the transaction is (next) committed.  Actions
+    ** are discarded if the transaction is rolled back instead.
+    *******************************************************************************/
+   public synchronized void addPostCommitAction(Runnable action)
+   {
+      if(postCommitActions == null)
+      {
+         postCommitActions = new ArrayList<>();
+      }
+      postCommitActions.add(action);
+   }
+
+
+
+   /*******************************************************************************
+    ** Run (and clear) the post-commit actions - for subclasses to call after a
+    ** successful commit.  Errors from actions are logged, not thrown (as the
+    ** commit itself did succeed).
+    *******************************************************************************/
+   protected void runPostCommitActions()
+   {
+      List<Runnable> actions;
+      synchronized(this)
+      {
+         actions = postCommitActions;
+         postCommitActions = null;
+      }
+
+      if(actions != null)
+      {
+         for(Runnable action : actions)
+         {
+            try
+            {
+               action.run();
+            }
+            catch(Exception e)
+            {
+               LOG.warn("Error running a post-commit action", e);
+            }
+         }
+      }
+   }
+
+
+
+   /*******************************************************************************
+    ** Clear the post-commit actions, without running them - for subclasses to
+    ** call on rollback.
+    *******************************************************************************/
+   protected synchronized void discardPostCommitActions()
+   {
+      postCommitActions = null;
    }
 
 
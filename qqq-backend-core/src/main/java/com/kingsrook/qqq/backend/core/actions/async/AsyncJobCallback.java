@@ -22,9 +22,18 @@
 package com.kingsrook.qqq.backend.core.actions.async;
 
 
+import java.util.Optional;
 import java.util.UUID;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import com.kingsrook.qqq.backend.core.logging.QLogger;
+import com.kingsrook.qqq.backend.core.state.StateProviderInterface;
 import com.kingsrook.qqq.backend.core.state.StateType;
 import com.kingsrook.qqq.backend.core.state.UUIDAndTypeStateKey;
+import com.kingsrook.qqq.backend.core.utils.PrefixedDefaultThreadFactory;
+import static com.kingsrook.qqq.backend.core.logging.LogUtils.logPair;
 
 
 /*******************************************************************************
@@ -34,8 +43,27 @@ import com.kingsrook.qqq.backend.core.state.UUIDAndTypeStateKey;
  *******************************************************************************/
 public class AsyncJobCallback
 {
-   private UUID           jobUUID;
-   private AsyncJobStatus asyncJobStatus;
+   private static final QLogger LOG = QLogger.getLogger(AsyncJobCallback.class);
+
+   ////////////////////////////////////////////////////////////////////////////////
+   // status updates (e.g., incrementCurrent per-record) are stored at most this //
+   // often - as storing may mean serializing & writing to a table.  an update   //
+   // that comes in too soon is stored (by pendingStoreExecutor) once the        //
+   // interval passes; the final status is stored by AsyncJobManager.            //
+   ////////////////////////////////////////////////////////////////////////////////
+   public static final long MIN_MILLIS_BETWEEN_STORES = 1000;
+
+   private static ScheduledExecutorService pendingStoreExecutor = Executors.newSingleThreadScheduledExecutor(new PrefixedDefaultThreadFactory(AsyncJobCallback.class));
+
+   private UUID                   jobUUID;
+   private AsyncJobStatus         asyncJobStatus;
+   private StateProviderInterface stateProvider;
+
+   private long               lastStoredAtMillis           = 0;
+   private long               lastCheckedForCancelAtMillis = 0;
+   private long               minMillisBetweenStores       = MIN_MILLIS_BETWEEN_STORES;
+   private ScheduledFuture<?> pendingStore;
+   private boolean            ended                        = false;
 
 
 
@@ -46,6 +74,12 @@ public class AsyncJobCallback
    {
       this.jobUUID = jobUUID;
       this.asyncJobStatus = asyncJobStatus;
+
+      ///////////////////////////////////////////////////////////////////////////
+      // get the provider now, while we're in the job's context - as a pending //
+      // store runs on another thread, which won't have that context.          //
+      ///////////////////////////////////////////////////////////////////////////
+      this.stateProvider = AsyncJobManager.getStateProvider();
    }
 
 
@@ -160,24 +194,160 @@ public class AsyncJobCallback
 
 
    /*******************************************************************************
-    **
+    ** Store the status in the state provider - but no more often than
+    ** minMillisBetweenStores.  An update that comes in sooner than that is stored
+    ** once the interval has passed, even if no other update comes in (e.g., a step
+    ** that updates its status, then works for a long time).
     *******************************************************************************/
-   protected void storeUpdatedStatus()
+   protected synchronized void storeUpdatedStatus()
    {
-      AsyncJobManager.getStateProvider().put(new UUIDAndTypeStateKey(jobUUID, StateType.ASYNC_JOB_STATUS), asyncJobStatus);
+      if(ended)
+      {
+         return;
+      }
+
+      long millisUntilNextStore = lastStoredAtMillis + minMillisBetweenStores - System.currentTimeMillis();
+      if(millisUntilNextStore > 0)
+      {
+         if(pendingStore == null)
+         {
+            pendingStore = pendingStoreExecutor.schedule(this::storePendingStatus, millisUntilNextStore, TimeUnit.MILLISECONDS);
+         }
+         return;
+      }
+
+      doStoreUpdatedStatus();
    }
 
 
 
    /*******************************************************************************
-    ** Check if the asyncJobStatus had a cancellation requested.
-    **
-    ** TODO - concern about multiple threads writing this object to a non-in-memory
-    **  state provider, and this value getting lost...
+    ** Run by pendingStoreExecutor - store an update that came in too soon after
+    ** the previous store, unless the job has ended (and stored its final status).
+    *******************************************************************************/
+   private synchronized void storePendingStatus()
+   {
+      pendingStore = null;
+      if(ended)
+      {
+         return;
+      }
+
+      try
+      {
+         doStoreUpdatedStatus();
+      }
+      catch(Exception e)
+      {
+         LOG.warn("Error storing pending async job status", e, logPair("jobId", jobUUID));
+      }
+   }
+
+
+
+   /*******************************************************************************
+    ** Before storing, pick up a cancellation that may have been requested (and
+    ** stored) by another thread or server, so it isn't overwritten.
     *******************************************************************************/
-   public boolean wasCancelRequested()
+   private void doStoreUpdatedStatus()
    {
+      if(pendingStore != null)
+      {
+         pendingStore.cancel(false);
+         pendingStore = null;
+      }
+
+      long now = System.currentTimeMillis();
+      lastStoredAtMillis = now;
+      lastCheckedForCancelAtMillis = now;
+      readCancelRequestedFromStoredStatus();
+      stateProvider.put(new UUIDAndTypeStateKey(jobUUID, StateType.ASYNC_JOB_STATUS), asyncJobStatus);
+   }
+
+
+
+   /*******************************************************************************
+    ** Called by AsyncJobManager when the job ends, before it stores the final
+    ** status - so a pending store can't run after (and overwrite) that.
+    *******************************************************************************/
+   synchronized void end()
+   {
+      ended = true;
+      if(pendingStore != null)
+      {
+         pendingStore.cancel(false);
+         pendingStore = null;
+      }
+   }
+
+
+
+   /*******************************************************************************
+    ** Check if the asyncJobStatus had a cancellation requested.  As the request
+    ** may have been stored by another thread or server (e.g., with a table-based
+    ** state provider), re-read the stored status - but no more often than
+    ** minMillisBetweenStores.
+    *******************************************************************************/
+   public synchronized boolean wasCancelRequested()
+   {
+      if(!this.asyncJobStatus.getCancelRequested())
+      {
+         long now = System.currentTimeMillis();
+         if(now - lastCheckedForCancelAtMillis >= minMillisBetweenStores)
+         {
+            lastCheckedForCancelAtMillis = now;
+            readCancelRequestedFromStoredStatus();
+         }
+      }
+
       return (this.asyncJobStatus.getCancelRequested());
    }
 
+
+
+   /*******************************************************************************
+    ** if the stored copy of this job's status has a cancel request, copy it into
+    ** our status object.  read it uncached - a provider's cache may just be giving
+    ** back our own status object, which we put there.
+    *******************************************************************************/
+   private void readCancelRequestedFromStoredStatus()
+   {
+      Optional<AsyncJobStatus> storedStatus = stateProvider.getUncached(AsyncJobStatus.class, new UUIDAndTypeStateKey(jobUUID, StateType.ASYNC_JOB_STATUS));
+      if(storedStatus.isPresent() && storedStatus.get() != asyncJobStatus && storedStatus.get().getCancelRequested())
+      {
+         asyncJobStatus.setCancelRequested(true);
+      }
+   }
+
+
+
+   /*******************************************************************************
+    ** Getter for minMillisBetweenStores
+    *******************************************************************************/
+   public long getMinMillisBetweenStores()
+   {
+      return (this.minMillisBetweenStores);
+   }
+
+
+
+   /*******************************************************************************
+    ** Setter for minMillisBetweenStores
+    *******************************************************************************/
+   public void setMinMillisBetweenStores(long minMillisBetweenStores)
+   {
+      this.minMillisBetweenStores = minMillisBetweenStores;
+   }
+
+
+
+   /*******************************************************************************
+    ** Fluent setter for minMillisBetweenStores
+    *******************************************************************************/
+   public AsyncJobCallback withMinMillisBetweenStores(long minMillisBetweenStores)
+   {
+      this.minMillisBetweenStores = minMillisBetweenStores;
+      return (this);
+   }
+
 }
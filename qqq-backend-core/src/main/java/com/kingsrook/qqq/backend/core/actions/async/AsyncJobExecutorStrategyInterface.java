@@ -0,0 +1,69 @@
+/*
+ * QQQ - Low-code Application Framework for Engineers.
+ * Copyright (C) 2021-2024.  Kingsrook, LLC
+ * 651 N Broad St Ste 205 # 6917 | Middletown DE 19709 | United States
+ * contact@kingsrook.com
+ * https://github.com/Kingsrook/
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.kingsrook.qqq.backend.core.actions.async;
+
+
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Supplier;
+import com.kingsrook.qqq.backend.core.model.metadata.AsyncJobExecutorMetaData;
+
+
+/*******************************************************************************
+ ** Interface for the strategy that AsyncJobManager uses to run jobs.
+ **
+ ** An implementation can be selected for a QInstance via its
+ ** AsyncJobExecutorMetaData (executorStrategyCodeReference) - else,
+ ** DefaultAsyncJobExecutorStrategy is used.
+ **
+ ** Note that AsyncJobManager sets up (and clears) the QContext within the job
+ ** itself - so implementations only need to run the supplier, on some thread.
+ *******************************************************************************/
+public interface AsyncJobExecutorStrategyInterface
+{
+
+   /*******************************************************************************
+    ** called once, after the strategy is constructed, with the meta data that
+    ** selected it (which may be null, if the instance doesn't have any).
+    *******************************************************************************/
+   default void initialize(AsyncJobExecutorMetaData asyncJobExecutorMetaData)
+   {
+   }
+
+
+   /*******************************************************************************
+    ** Submit a job for execution.  The returned future should be completed with
+    ** the job's result (or exception).  If the job cannot be accepted, throw a
+    ** RejectedExecutionException.
+    *******************************************************************************/
+   <T> CompletableFuture<T> submit(String jobName, Supplier<T> job);
+
+
+   /*******************************************************************************
+    ** called when the strategy is discarded (e.g., when the meta data that selected
+    ** it is no longer in use) - to release any resources (e.g., shut down executors).
+    ** Jobs that are already running should be allowed to finish.
+    *******************************************************************************/
+   default void shutdown()
+   {
+   }
+
+}
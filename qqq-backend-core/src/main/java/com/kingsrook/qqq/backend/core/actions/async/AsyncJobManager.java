@@ -23,26 +23,34 @@ package com.kingsrook.qqq.backend.core.actions.async;
 
 
 import java.io.Serializable;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
 import java.util.UUID;
+import java.util.WeakHashMap;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.CompletionException;
 import java.util.concurrent.ExecutionException;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.SynchronousQueue;
-import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
+import com.kingsrook.qqq.backend.core.actions.customizers.QCodeLoader;
 import com.kingsrook.qqq.backend.core.context.CapturedContext;
 import com.kingsrook.qqq.backend.core.context.QContext;
 import com.kingsrook.qqq.backend.core.exceptions.QException;
 import com.kingsrook.qqq.backend.core.exceptions.QUserFacingException;
 import com.kingsrook.qqq.backend.core.logging.QLogger;
+import com.kingsrook.qqq.backend.core.model.metadata.AsyncJobExecutorMetaData;
+import com.kingsrook.qqq.backend.core.model.metadata.QInstance;
 import com.kingsrook.qqq.backend.core.state.InMemoryStateProvider;
 import com.kingsrook.qqq.backend.core.state.StateProviderInterface;
 import com.kingsrook.qqq.backend.core.state.StateType;
+import com.kingsrook.qqq.backend.core.state.TableBasedStateProvider;
 import com.kingsrook.qqq.backend.core.state.UUIDAndTypeStateKey;
-import com.kingsrook.qqq.backend.core.utils.PrefixedDefaultThreadFactory;
 import com.kingsrook.qqq.backend.core.utils.StringUtils;
 import org.apache.logging.log4j.Level;
 import static com.kingsrook.qqq.backend.core.logging.LogUtils.logPair;
@@ -55,18 +63,18 @@ public class AsyncJobManager
 {
    private static final QLogger LOG = QLogger.getLogger(AsyncJobManager.class);
 
-   /////////////////////////////////////////////////////////////////////////////
-   // we would probably use Executors.newCachedThreadPool() - but - it has no //
-   // maxPoolSize...  we think some limit is good, so that at a large number  //
-   // of attempted concurrent jobs we'll have new jobs block, rather than     //
-   // exhausting all server resources and locking up "everything"             //
-   // also, it seems like keeping a handful of core-threads around is very    //
-   // little actual waste, and better than ever wasting time starting a new   //
-   // one, which we know we'll often be doing.                                //
-   /////////////////////////////////////////////////////////////////////////////
-   private static Integer         CORE_THREADS    = 8;
-   private static Integer         MAX_THREADS     = 500;
-   private static ExecutorService executorService = new ThreadPoolExecutor(CORE_THREADS, MAX_THREADS, 60L, TimeUnit.SECONDS, new SynchronousQueue<>(), new PrefixedDefaultThreadFactory(AsyncJobManager.class));
+   ///////////////////////////////////////////////////////////////////////////////
+   // strategies for running jobs, per (identity of) the QInstance's executor   //
+   // meta data - with a single default one, for instances that don't have any. //
+   // weak keys, so meta data from discarded instances (e.g., in tests) can go. //
+   // when it does, the strategy is shut down, via the reference queue below.   //
+   ///////////////////////////////////////////////////////////////////////////////
+   private static final Map<AsyncJobExecutorMetaData, AsyncJobExecutorStrategyInterface> strategiesByMetaData = Collections.synchronizedMap(new WeakHashMap<>());
+
+   private static final ReferenceQueue<AsyncJobExecutorMetaData> discardedMetaDataQueue = new ReferenceQueue<>();
+   private static final Set<StrategyReference>                   strategyReferences     = new HashSet<>();
+
+   private static AsyncJobExecutorStrategyInterface defaultStrategy = null;
 
 
    private String forcedJobUUID = null;
@@ -99,11 +107,11 @@ public class AsyncJobManager
       try
       {
          CapturedContext capturedContext = QContext.capture();
-         CompletableFuture<T> future = CompletableFuture.supplyAsync(() ->
+         CompletableFuture<T> future = getExecutorStrategy().submit(jobName, () ->
          {
             QContext.init(capturedContext);
             return (runAsyncJob(jobName, asyncJob, uuidAndTypeStateKey, asyncJobStatus));
-         }, executorService);
+         });
 
          if(timeout == 0)
          {
@@ -122,6 +130,99 @@ public class AsyncJobManager
          LOG.debug("Job going async " + uuidAndTypeStateKey.getUuid());
          throw (new JobGoingAsyncException(uuidAndTypeStateKey.getUuid().toString()));
       }
+      catch(RejectedExecutionException e)
+      {
+         asyncJobStatus.setState(AsyncJobState.ERROR);
+         asyncJobStatus.setCaughtException(e);
+         getStateProvider().put(uuidAndTypeStateKey, asyncJobStatus);
+         throw (new QException("Job could not be started (too many concurrent jobs?)", e));
+      }
+   }
+
+
+
+   /*******************************************************************************
+    ** get the strategy to run jobs with, for the active QInstance.
+    *******************************************************************************/
+   static AsyncJobExecutorStrategyInterface getExecutorStrategy() throws QException
+   {
+      QInstance                qInstance                = QContext.getQInstance();
+      AsyncJobExecutorMetaData asyncJobExecutorMetaData = qInstance == null ? null : qInstance.getAsyncJobExecutorMetaData();
+
+      if(asyncJobExecutorMetaData == null)
+      {
+         synchronized(AsyncJobManager.class)
+         {
+            if(defaultStrategy == null)
+            {
+               defaultStrategy = buildExecutorStrategy(null);
+            }
+            return (defaultStrategy);
+         }
+      }
+
+      synchronized(strategiesByMetaData)
+      {
+         shutdownDiscardedStrategies();
+
+         AsyncJobExecutorStrategyInterface strategy = strategiesByMetaData.get(asyncJobExecutorMetaData);
+         if(strategy == null)
+         {
+            strategy = buildExecutorStrategy(asyncJobExecutorMetaData);
+            strategiesByMetaData.put(asyncJobExecutorMetaData, strategy);
+            strategyReferences.add(new StrategyReference(asyncJobExecutorMetaData, strategy, discardedMetaDataQueue));
+         }
+         return (strategy);
+      }
+   }
+
+
+
+   /*******************************************************************************
+    ** shut down the strategies whose meta data has been garbage collected (e.g.,
+    ** from a QInstance that was replaced), so their executors don't linger.
+    ** must be called while synchronized on strategiesByMetaData.
+    *******************************************************************************/
+   private static void shutdownDiscardedStrategies()
+   {
+      StrategyReference reference;
+      while((reference = (StrategyReference) discardedMetaDataQueue.poll()) != null)
+      {
+         strategyReferences.remove(reference);
+         try
+         {
+            reference.strategy.shutdown();
+         }
+         catch(Exception e)
+         {
+            LOG.warn("Error shutting down discarded async job executor strategy", e);
+         }
+      }
+   }
+
+
+
+   /*******************************************************************************
+    **
+    *******************************************************************************/
+   private static AsyncJobExecutorStrategyInterface buildExecutorStrategy(AsyncJobExecutorMetaData asyncJobExecutorMetaData) throws QException
+   {
+      AsyncJobExecutorStrategyInterface strategy;
+      if(asyncJobExecutorMetaData != null && asyncJobExecutorMetaData.getExecutorStrategyCodeReference() != null)
+      {
+         strategy = QCodeLoader.getAdHoc(AsyncJobExecutorStrategyInterface.class, asyncJobExecutorMetaData.getExecutorStrategyCodeReference());
+         if(strategy == null)
+         {
+            throw (new QException("Could not load async job executor strategy: " + asyncJobExecutorMetaData.getExecutorStrategyCodeReference().getName()));
+         }
+      }
+      else
+      {
+         strategy = new DefaultAsyncJobExecutorStrategy();
+      }
+
+      strategy.initialize(asyncJobExecutorMetaData);
+      return (strategy);
    }
 
 
@@ -159,12 +260,14 @@ public class AsyncJobManager
     *******************************************************************************/
    private <T extends Serializable> T runAsyncJob(String jobName, AsyncJob<T> asyncJob, UUIDAndTypeStateKey uuidAndTypeStateKey, AsyncJobStatus asyncJobStatus)
    {
-      String originalThreadName = Thread.currentThread().getName();
+      String           originalThreadName = Thread.currentThread().getName();
+      AsyncJobCallback asyncJobCallback   = new AsyncJobCallback(uuidAndTypeStateKey.getUuid(), asyncJobStatus);
       Thread.currentThread().setName("Job:" + jobName);
       try
       {
          LOG.debug("Starting job " + uuidAndTypeStateKey.getUuid());
-         T result = asyncJob.run(new AsyncJobCallback(uuidAndTypeStateKey.getUuid(), asyncJobStatus));
+         T result = asyncJob.run(asyncJobCallback);
+         asyncJobCallback.end();
          asyncJobStatus.setState(AsyncJobState.COMPLETE);
          getStateProvider().put(uuidAndTypeStateKey, asyncJobStatus);
          LOG.debug("Completed job " + uuidAndTypeStateKey.getUuid());
@@ -172,6 +275,7 @@ public class AsyncJobManager
       }
       catch(Throwable t)
       {
+         asyncJobCallback.end();
          asyncJobStatus.setState(AsyncJobState.ERROR);
          if(t instanceof Exception e)
          {
@@ -216,22 +320,37 @@ public class AsyncJobManager
     *******************************************************************************/
    static StateProviderInterface getStateProvider()
    {
-      // TODO - read this from somewhere in meta data eh?
+      ////////////////////////////////////////////////////////////////////////////
+      // if the instance is set up for table-based state, use that (so state is //
+      // shared across servers) - else, fall back to the in-memory provider.    //
+      ////////////////////////////////////////////////////////////////////////////
+      QInstance qInstance = QContext.getQInstance();
+      if(qInstance != null && qInstance.getTableBasedStateProviderMetaData() != null)
+      {
+         return (TableBasedStateProvider.getInstance(qInstance));
+      }
+
       return InMemoryStateProvider.getInstance();
 
-      // todo - by using JSON serialization internally, this makes stupidly large payloads and crashes things.
+      // or, to keep (single-server) state off of the heap:
       // return TempFileStateProvider.getInstance();
    }
 
 
 
    /*******************************************************************************
-    **
+    ** Request cancellation of a job - storing the request back in the state
+    ** provider, so that the job (which may be running on another server, with a
+    ** non-in-memory provider) can see it, via AsyncJobCallback.wasCancelRequested.
     *******************************************************************************/
    public void cancelJob(String jobUUID)
    {
       Optional<AsyncJobStatus> jobStatus = getJobStatus(jobUUID);
-      jobStatus.ifPresent(asyncJobStatus -> asyncJobStatus.setCancelRequested(true));
+      if(jobStatus.isPresent())
+      {
+         jobStatus.get().setCancelRequested(true);
+         getStateProvider().put(new UUIDAndTypeStateKey(UUID.fromString(jobUUID), StateType.ASYNC_JOB_STATUS), jobStatus.get());
+      }
    }
 
 
@@ -265,4 +384,27 @@ public class AsyncJobManager
       return (this);
    }
 
+
+
+   /*******************************************************************************
+    ** weak reference to a strategy's meta data - holding the strategy, so that it
+    ** can be shut down after the meta data is garbage collected.
+    *******************************************************************************/
+   private static class StrategyReference extends WeakReference<AsyncJobExecutorMetaData>
+   {
+      private final AsyncJobExecutorStrategyInterface strategy;
+
+
+
+      /*******************************************************************************
+       ** Constructor
+       **
+       *******************************************************************************/
+      StrategyReference(AsyncJobExecutorMetaData asyncJobExecutorMetaData, AsyncJobExecutorStrategyInterface strategy, ReferenceQueue<AsyncJobExecutorMetaData> queue)
+      {
+         super(asyncJobExecutorMetaData, queue);
+         this.strategy = strategy;
+      }
+   }
+
 }
@@ -40,6 +40,12 @@ import static com.kingsrook.qqq.backend.core.logging.LogUtils.logPair;
  ** RecordPipe, with another lambda (consumer) that consumes records from the pipe.
  **
  ** Takes care of the job status monitoring, blocking when the pipe is empty, etc.
+ **
+ ** Rather than sleeping & polling, the consumer side parks on the pipe (see
+ ** RecordPipe.awaitAvailableRecords), and is woken as soon as minRecordsToConsume
+ ** records are available, the producer finishes, or a flush deadline passes (at
+ ** which point any records that are in the pipe are consumed, even if fewer than
+ ** minRecordsToConsume).
  *******************************************************************************/
 public class AsyncRecordPipeLoop
 {
@@ -47,10 +53,11 @@ public class AsyncRecordPipeLoop
 
    private static final int TIMEOUT_AFTER_NO_RECORDS_MS = 10 * 60 * 1000;
 
-   private static final int MAX_SLEEP_MS  = 1000;
-   private static final int INIT_SLEEP_MS = 10;
+   private static final int DEFAULT_FLUSH_DEADLINE_MS = 1000;
+   private static final int MAX_JOB_STATUS_POLL_MS    = 100;
 
    private Integer minRecordsToConsume = 10;
+   private Integer flushDeadlineMillis = DEFAULT_FLUSH_DEADLINE_MS;
    private String  forcedJobUUID;
 
 
@@ -81,14 +88,26 @@ public class AsyncRecordPipeLoop
          asyncJobManager.setForcedJobUUID(getForcedJobUUID());
       }
 
-      String jobUUID = asyncJobManager.startJob(jobName, supplier::apply);
+      ///////////////////////////////////////////////////////////////////////////////
+      // wrap the supplier, so that as soon as it's done, the pipe can wake us up. //
+      ///////////////////////////////////////////////////////////////////////////////
+      String jobUUID = asyncJobManager.startJob(jobName, (callback) ->
+      {
+         try
+         {
+            return (supplier.apply(callback));
+         }
+         finally
+         {
+            recordPipe.signalProducerFinished();
+         }
+      });
       LOG.debug("Started supplier job [" + jobUUID + "] for record pipe.");
 
       AsyncJobState  jobState       = AsyncJobState.RUNNING;
       AsyncJobStatus asyncJobStatus = null;
 
       int     recordCount           = 0;
-      int     nextSleepMillis       = INIT_SLEEP_MS;
       long    lastReceivedRecordsAt = System.currentTimeMillis();
       long    jobStartTime          = System.currentTimeMillis();
       boolean everCalledConsumer    = false;
@@ -104,29 +123,25 @@ public class AsyncRecordPipeLoop
 
       while(jobState.equals(AsyncJobState.RUNNING))
       {
-         if(recordPipe.countAvailableRecords() < minRecordsToConsume)
+         ///////////////////////////////////////////////////////////////////////////////
+         // park until enough records are in the pipe, the producer finishes, or the  //
+         // flush deadline passes (in which case, consume whatever is there, if any). //
+         ///////////////////////////////////////////////////////////////////////////////
+         boolean enoughRecords = awaitRecords(recordPipe);
+         if(!enoughRecords && recordPipe.countAvailableRecords() == 0)
          {
-            ///////////////////////////////////////////////////////////////
-            // if the pipe is too empty, sleep to let the producer work. //
-            // todo - smarter sleep?  like get notified vs. sleep?       //
-            ///////////////////////////////////////////////////////////////
-            LOG.trace("Too few records are available in the pipe. Sleeping [" + nextSleepMillis + "] ms to give producer a chance to work");
-            SleepUtils.sleep(nextSleepMillis, TimeUnit.MILLISECONDS);
-            nextSleepMillis = Math.min(nextSleepMillis * 2, MAX_SLEEP_MS);
-
             long timeSinceLastReceivedRecord = System.currentTimeMillis() - lastReceivedRecordsAt;
             if(timeSinceLastReceivedRecord > TIMEOUT_AFTER_NO_RECORDS_MS)
             {
                throw (new QException("Job appears to have stopped producing records (last record received " + timeSinceLastReceivedRecord + " ms ago)."));
             }
          }
-         else
+         else if(recordPipe.countAvailableRecords() > 0)
          {
-            ////////////////////////////////////////////////////////////////////////////////////////////////////////
-            // if the pipe has records, consume them.  reset the sleep timer so if we sleep again it'll be short. //
-            ////////////////////////////////////////////////////////////////////////////////////////////////////////
+            ////////////////////////////////////////////
+            // if the pipe has records, consume them. //
+            ////////////////////////////////////////////
             lastReceivedRecordsAt = System.currentTimeMillis();
-            nextSleepMillis = INIT_SLEEP_MS;
 
             everCalledConsumer = true;
             recordCount += consumer.get();
@@ -147,18 +162,21 @@ public class AsyncRecordPipeLoop
             }
          }
 
+         ///////////////////////////////////////////////////////////////////////////
+         // once the producer is finished and the pipe is drained, the pipe won't //
+         // make us wait any more - so rather than spinning on the job's status,  //
+         // wait (with a backoff) for the job to leave the RUNNING state.         //
+         ///////////////////////////////////////////////////////////////////////////
+         if(recordPipe.isProducerFinished() && recordPipe.countAvailableRecords() == 0)
+         {
+            asyncJobStatus = awaitJobNotRunning(asyncJobManager, jobUUID);
+            break;
+         }
+
          //////////////////////////////
          // refresh the job's status //
          //////////////////////////////
-         Optional<AsyncJobStatus> optionalAsyncJobStatus = asyncJobManager.getJobStatus(jobUUID);
-         if(optionalAsyncJobStatus.isEmpty())
-         {
-            /////////////////////////////////////////////////
-            // todo - ... maybe some version of try-again? //
-            /////////////////////////////////////////////////
-            throw (new QException("Could not get status of job [" + jobUUID + "]"));
-         }
-         asyncJobStatus = optionalAsyncJobStatus.get();
+         asyncJobStatus = getJobStatus(asyncJobManager, jobUUID);
          jobState = asyncJobStatus.getState();
       }
 
@@ -203,6 +221,66 @@ public class AsyncRecordPipeLoop
 
 
 
+   /*******************************************************************************
+    **
+    *******************************************************************************/
+   private AsyncJobStatus getJobStatus(AsyncJobManager asyncJobManager, String jobUUID) throws QException
+   {
+      Optional<AsyncJobStatus> optionalAsyncJobStatus = asyncJobManager.getJobStatus(jobUUID);
+      if(optionalAsyncJobStatus.isEmpty())
+      {
+         /////////////////////////////////////////////////
+         // todo - ... maybe some version of try-again? //
+         /////////////////////////////////////////////////
+         throw (new QException("Could not get status of job [" + jobUUID + "]"));
+      }
+      return (optionalAsyncJobStatus.get());
+   }
+
+
+
+   /*******************************************************************************
+    ** after the producer has finished, its job only has to record its final
+    ** status - so poll for that, backing off up to MAX_JOB_STATUS_POLL_MS between
+    ** checks (which may each be a table or file read, depending on the provider).
+    *******************************************************************************/
+   private AsyncJobStatus awaitJobNotRunning(AsyncJobManager asyncJobManager, String jobUUID) throws QException
+   {
+      long sleepMillis = 1;
+      while(true)
+      {
+         AsyncJobStatus asyncJobStatus = getJobStatus(asyncJobManager, jobUUID);
+         if(!AsyncJobState.RUNNING.equals(asyncJobStatus.getState()))
+         {
+            return (asyncJobStatus);
+         }
+
+         SleepUtils.sleep(sleepMillis, TimeUnit.MILLISECONDS);
+         sleepMillis = Math.min(sleepMillis * 2, MAX_JOB_STATUS_POLL_MS);
+      }
+   }
+
+
+
+   /*******************************************************************************
+    ** wait on the pipe for minRecordsToConsume records (or the producer to finish),
+    ** up to the flush deadline.
+    *******************************************************************************/
+   private boolean awaitRecords(RecordPipe recordPipe) throws QException
+   {
+      try
+      {
+         return (recordPipe.awaitAvailableRecords(minRecordsToConsume, flushDeadlineMillis, TimeUnit.MILLISECONDS));
+      }
+      catch(InterruptedException e)
+      {
+         Thread.currentThread().interrupt();
+         throw (new QException("Interrupted while waiting for records from pipe", e));
+      }
+   }
+
+
+
    /*******************************************************************************
     ** Getter for minRecordsToConsume
     *******************************************************************************/
@@ -234,6 +312,37 @@ public class AsyncRecordPipeLoop
 
 
 
+   /*******************************************************************************
+    ** Getter for flushDeadlineMillis
+    *******************************************************************************/
+   public Integer getFlushDeadlineMillis()
+   {
+      return (this.flushDeadlineMillis);
+   }
+
+
+
+   /*******************************************************************************
+    ** Setter for flushDeadlineMillis
+    *******************************************************************************/
+   public void setFlushDeadlineMillis(Integer flushDeadlineMillis)
+   {
+      this.flushDeadlineMillis = flushDeadlineMillis;
+   }
+
+
+
+   /*******************************************************************************
+    ** Fluent setter for flushDeadlineMillis
+    *******************************************************************************/
+   public AsyncRecordPipeLoop withFlushDeadlineMillis(Integer flushDeadlineMillis)
+   {
+      this.flushDeadlineMillis = flushDeadlineMillis;
+      return (this);
+   }
+
+
+
    /*******************************************************************************
     ** Getter for forcedJobUUID
     *******************************************************************************/
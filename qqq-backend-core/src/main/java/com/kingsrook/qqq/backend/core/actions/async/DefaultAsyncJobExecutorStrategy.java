@@ -0,0 +1,427 @@
+/*
+ * QQQ - Low-code Application Framework for Engineers.
+ * Copyright (C) 2021-2024.  Kingsrook, LLC
+ * 651 N Broad St Ste 205 # 6917 | Middletown DE 19709 | United States
+ * contact@kingsrook.com
+ * https://github.com/Kingsrook/
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.kingsrook.qqq.backend.core.actions.async;
+
+
+import java.lang.reflect.Method;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+import com.kingsrook.qqq.backend.core.exceptions.QException;
+import com.kingsrook.qqq.backend.core.logging.QLogger;
+import com.kingsrook.qqq.backend.core.model.metadata.AsyncJobExecutorMetaData;
+import com.kingsrook.qqq.backend.core.utils.PrefixedDefaultThreadFactory;
+import static com.kingsrook.qqq.backend.core.logging.LogUtils.logPair;
+
+
+/*******************************************************************************
+ ** Default strategy for running async jobs.
+ **
+ ** Uses a virtual-thread-per-task executor, if the running JVM supports them
+ ** (java 21+) and the meta data doesn't opt out - else, a bounded pool of
+ ** platform threads (maxThreads, default 500), which rejects submissions past
+ ** that.  Virtual threads are only bounded if maxThreads is set explicitly - via
+ ** a semaphore, which jobs past the limit wait for on their (virtual) thread.
+ **
+ ** Optionally limits the number of concurrently running jobs per job type (see
+ ** AsyncJobExecutorMetaData.maxConcurrentJobsByType) - jobs past their type's
+ ** limit are queued, and only handed to the executor when a running job of the
+ ** type finishes - so they don't tie up (platform) threads while they wait.
+ *******************************************************************************/
+public class DefaultAsyncJobExecutorStrategy implements AsyncJobExecutorStrategyInterface
+{
+   private static final QLogger LOG = QLogger.getLogger(DefaultAsyncJobExecutorStrategy.class);
+
+   private ExecutorService        executorService;
+   private Semaphore              runningJobsSemaphore;
+   private Map<String, JobTypeLimit> jobTypeLimitsByPrefix = new HashMap<>();
+
+
+
+   /*******************************************************************************
+    **
+    *******************************************************************************/
+   @Override
+   public void initialize(AsyncJobExecutorMetaData asyncJobExecutorMetaData)
+   {
+      if(asyncJobExecutorMetaData == null)
+      {
+         asyncJobExecutorMetaData = new AsyncJobExecutorMetaData();
+      }
+
+      int maxThreads = Objects.requireNonNullElse(asyncJobExecutorMetaData.getMaxThreads(), 500);
+      if(!Boolean.FALSE.equals(asyncJobExecutorMetaData.getUseVirtualThreads()))
+      {
+         executorService = buildVirtualThreadExecutorService();
+         if(executorService != null && asyncJobExecutorMetaData.getMaxThreads() != null)
+         {
+            //////////////////////////////////////////////////////////////////////////////
+            // virtual threads are cheap - but the jobs running on them may not be      //
+            // (e.g., db connections, memory) - so if the instance asked for a bound,   //
+            // apply it - by having jobs past it wait (on their virtual thread), rather //
+            // than rejecting them, as bursts of jobs are exactly what virtual threads  //
+            // are for.                                                                 //
+            //////////////////////////////////////////////////////////////////////////////
+            runningJobsSemaphore = new Semaphore(maxThreads, true);
+         }
+      }
+
+      if(executorService == null)
+      {
+         /////////////////////////////////////////////////////////////////////////////
+         // we would probably use Executors.newCachedThreadPool() - but - it has no //
+         // maxPoolSize...  we think some limit is good, so that at a large number  //
+         // of attempted concurrent jobs we'll have new jobs block, rather than     //
+         // exhausting all server resources and locking up "everything"             //
+         // also, it seems like keeping a handful of core-threads around is very    //
+         // little actual waste, and better than ever wasting time starting a new   //
+         // one, which we know we'll often be doing.                                //
+         /////////////////////////////////////////////////////////////////////////////
+         int coreThreads = Objects.requireNonNullElse(asyncJobExecutorMetaData.getCoreThreads(), 8);
+         executorService = new ThreadPoolExecutor(coreThreads, maxThreads, 60L, TimeUnit.SECONDS, new SynchronousQueue<>(), new PrefixedDefaultThreadFactory(AsyncJobManager.class));
+      }
+
+      if(asyncJobExecutorMetaData.getMaxConcurrentJobsByType() != null)
+      {
+         for(Map.Entry<String, Integer> entry : asyncJobExecutorMetaData.getMaxConcurrentJobsByType().entrySet())
+         {
+            if(entry.getKey() != null && entry.getValue() != null && entry.getValue() > 0)
+            {
+               jobTypeLimitsByPrefix.put(entry.getKey(), new JobTypeLimit(entry.getValue()));
+            }
+         }
+      }
+   }
+
+
+
+   /*******************************************************************************
+    ** use Executors.newVirtualThreadPerTaskExecutor, if it exists in this JVM.
+    ** (looked up reflectively, as we still compile for java 17).
+    *******************************************************************************/
+   static ExecutorService buildVirtualThreadExecutorService()
+   {
+      try
+      {
+         Method method = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+         return ((ExecutorService) method.invoke(null));
+      }
+      catch(NoSuchMethodException e)
+      {
+         LOG.debug("Virtual threads are not available in this JVM - using a platform thread pool for async jobs");
+      }
+      catch(Exception e)
+      {
+         LOG.info("Error building virtual thread executor - using a platform thread pool for async jobs", e);
+      }
+      return (null);
+   }
+
+
+
+   /*******************************************************************************
+    **
+    *******************************************************************************/
+   @Override
+   public <T> CompletableFuture<T> submit(String jobName, Supplier<T> job)
+   {
+      if(runningJobsSemaphore == null)
+      {
+         return (submitToExecutor(jobName, job));
+      }
+
+      return (submitToExecutor(jobName, () ->
+      {
+         try
+         {
+            if(!runningJobsSemaphore.tryAcquire())
+            {
+               LOG.debug("Waiting for maximum number of running async jobs", logPair("jobName", jobName), logPair("queueLength", runningJobsSemaphore.getQueueLength()));
+               runningJobsSemaphore.acquire();
+            }
+         }
+         catch(InterruptedException e)
+         {
+            Thread.currentThread().interrupt();
+            throw (new CompletionException(new QException("Interrupted while waiting to run job: " + jobName, e)));
+         }
+
+         try
+         {
+            return (job.get());
+         }
+         finally
+         {
+            runningJobsSemaphore.release();
+         }
+      }));
+   }
+
+
+
+   /*******************************************************************************
+    ** submit a job to the executor - or, if its job type is at its limit, queue
+    ** it, to be submitted when a running job of that type finishes.
+    *******************************************************************************/
+   private <T> CompletableFuture<T> submitToExecutor(String jobName, Supplier<T> job)
+   {
+      JobTypeLimit jobTypeLimit = getJobTypeLimit(jobName);
+      if(jobTypeLimit == null)
+      {
+         return (CompletableFuture.supplyAsync(job, executorService));
+      }
+
+      CompletableFuture<T> future = new CompletableFuture<>();
+      if(jobTypeLimit.startOrEnqueue(() -> startLimitedJob(jobTypeLimit, job, future)))
+      {
+         ////////////////////////////////////////////////////////////////////////////
+         // starting right away, on the submitting thread - so if the executor     //
+         // rejects the job, throw that to the caller, as an unlimited job would.  //
+         ////////////////////////////////////////////////////////////////////////////
+         try
+         {
+            submitLimitedJob(jobTypeLimit, job, future);
+         }
+         catch(RejectedExecutionException e)
+         {
+            finishLimitedJob(jobTypeLimit);
+            throw (e);
+         }
+      }
+      else
+      {
+         LOG.debug("Waiting for concurrent job limit", logPair("jobName", jobName), logPair("queueLength", jobTypeLimit.getQueueLength()));
+      }
+
+      return (future);
+   }
+
+
+
+   /*******************************************************************************
+    ** start a job that had been queued for its job type's limit - completing its
+    ** future exceptionally if the executor rejects it (as its submitter is gone).
+    *******************************************************************************/
+   private <T> void startLimitedJob(JobTypeLimit jobTypeLimit, Supplier<T> job, CompletableFuture<T> future)
+   {
+      try
+      {
+         submitLimitedJob(jobTypeLimit, job, future);
+      }
+      catch(RejectedExecutionException e)
+      {
+         finishLimitedJob(jobTypeLimit);
+         future.completeExceptionally(e);
+      }
+   }
+
+
+
+   /*******************************************************************************
+    ** hand a job (that holds one of its job type's slots) to the executor - and,
+    ** when it completes, free that slot, and pass its result on to the future.
+    *******************************************************************************/
+   private <T> void submitLimitedJob(JobTypeLimit jobTypeLimit, Supplier<T> job, CompletableFuture<T> future)
+   {
+      CompletableFuture.supplyAsync(job, executorService).whenComplete((result, throwable) ->
+      {
+         finishLimitedJob(jobTypeLimit);
+
+         if(throwable == null)
+         {
+            future.complete(result);
+         }
+         else
+         {
+            future.completeExceptionally(throwable instanceof CompletionException && throwable.getCause() != null ? throwable.getCause() : throwable);
+         }
+      });
+   }
+
+
+
+   /*******************************************************************************
+    ** free a job's slot in its job type's limit - starting the next queued job of
+    ** the type, if there is one (which takes over the slot).
+    *******************************************************************************/
+   private void finishLimitedJob(JobTypeLimit jobTypeLimit)
+   {
+      Runnable next = jobTypeLimit.finish();
+      if(next != null)
+      {
+         next.run();
+      }
+   }
+
+
+
+   /*******************************************************************************
+    ** find the limit for a job - that is, the one whose key is the longest
+    ** prefix of the job name.
+    *******************************************************************************/
+   JobTypeLimit getJobTypeLimit(String jobName)
+   {
+      if(jobTypeLimitsByPrefix.isEmpty() || jobName == null)
+      {
+         return (null);
+      }
+
+      String       longestPrefix = null;
+      JobTypeLimit rs            = null;
+      for(Map.Entry<String, JobTypeLimit> entry : jobTypeLimitsByPrefix.entrySet())
+      {
+         String prefix = entry.getKey();
+         if(jobName.startsWith(prefix) && (longestPrefix == null || prefix.length() > longestPrefix.length()))
+         {
+            longestPrefix = prefix;
+            rs = entry.getValue();
+         }
+      }
+
+      return (rs);
+   }
+
+
+
+   /*******************************************************************************
+    ** shut down the executor - letting already-submitted jobs finish.
+    *******************************************************************************/
+   @Override
+   public void shutdown()
+   {
+      if(executorService != null)
+      {
+         executorService.shutdown();
+      }
+   }
+
+
+
+   /*******************************************************************************
+    ** Getter for executorService
+    *******************************************************************************/
+   public ExecutorService getExecutorService()
+   {
+      return (this.executorService);
+   }
+
+
+
+   /*******************************************************************************
+    ** the number of running jobs of a type, vs. its limit - plus the jobs that
+    ** are waiting for a slot (as runnables that start them).
+    *******************************************************************************/
+   static class JobTypeLimit
+   {
+      private final int             maxConcurrentJobs;
+      private       int             runningJobs = 0;
+      private final Deque<Runnable> waitingJobs = new ArrayDeque<>();
+
+
+
+      /*******************************************************************************
+       ** Constructor
+       **
+       *******************************************************************************/
+      JobTypeLimit(int maxConcurrentJobs)
+      {
+         this.maxConcurrentJobs = maxConcurrentJobs;
+      }
+
+
+
+      /*******************************************************************************
+       ** take a slot, if one is free (returning true - and the caller should start
+       ** the job) - else queue the starter, to be returned by a later finish().
+       *******************************************************************************/
+      synchronized boolean startOrEnqueue(Runnable starter)
+      {
+         if(runningJobs < maxConcurrentJobs)
+         {
+            runningJobs++;
+            return (true);
+         }
+
+         waitingJobs.add(starter);
+         return (false);
+      }
+
+
+
+      /*******************************************************************************
+       ** free a slot - unless a job is waiting, in which case it takes the slot,
+       ** and its starter is returned, for the caller to run.
+       *******************************************************************************/
+      synchronized Runnable finish()
+      {
+         Runnable next = waitingJobs.poll();
+         if(next == null)
+         {
+            runningJobs--;
+         }
+         return (next);
+      }
+
+
+
+      /*******************************************************************************
+       ** Getter for maxConcurrentJobs
+       *******************************************************************************/
+      int getMaxConcurrentJobs()
+      {
+         return (this.maxConcurrentJobs);
+      }
+
+
+
+      /*******************************************************************************
+       **
+       *******************************************************************************/
+      synchronized int getRunningJobs()
+      {
+         return (this.runningJobs);
+      }
+
+
+
+      /*******************************************************************************
+       **
+       *******************************************************************************/
+      synchronized int getQueueLength()
+      {
+         return (waitingJobs.size());
+      }
+   }
+
+}
@@ -25,11 +25,14 @@ package com.kingsrook.qqq.backend.core.actions.audits;
 import java.io.Serializable;
 import java.time.Instant;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
 import java.util.Optional;
+import java.util.WeakHashMap;
+import java.util.concurrent.ConcurrentHashMap;
 import com.kingsrook.qqq.backend.core.actions.AbstractQActionFunction;
 import com.kingsrook.qqq.backend.core.actions.tables.GetAction;
 import com.kingsrook.qqq.backend.core.actions.tables.InsertAction;
@@ -44,6 +47,7 @@ import com.kingsrook.qqq.backend.core.model.actions.tables.get.GetOutput;
 import com.kingsrook.qqq.backend.core.model.actions.tables.insert.InsertInput;
 import com.kingsrook.qqq.backend.core.model.actions.tables.insert.InsertOutput;
 import com.kingsrook.qqq.backend.core.model.data.QRecord;
+import com.kingsrook.qqq.backend.core.model.metadata.QInstance;
 import com.kingsrook.qqq.backend.core.model.metadata.security.MultiRecordSecurityLock;
 import com.kingsrook.qqq.backend.core.model.metadata.security.RecordSecurityLock;
 import com.kingsrook.qqq.backend.core.model.metadata.security.RecordSecurityLockFilters;
@@ -66,7 +70,11 @@ public class AuditAction extends AbstractQActionFunction<AuditInput, AuditOutput
 {
    private static final QLogger LOG = QLogger.getLogger(AuditAction.class);
 
-   private Map<Pair<String, String>, Integer> cachedFetches = new HashMap<>();
+   ////////////////////////////////////////////////////////////////////////////////////
+   // ids of auditTable & auditUser records, by (tableName, name) - per QInstance,   //
+   // so that they're shared by all AuditAction objects (these names rarely change). //
+   ////////////////////////////////////////////////////////////////////////////////////
+   private static final Map<QInstance, Map<Pair<String, String>, Integer>> cachedFetchesByInstance = Collections.synchronizedMap(new WeakHashMap<>());
 
    private static boolean warnedAboutAuditMissingTables = false;
 
@@ -228,6 +236,38 @@ public class AuditAction extends AbstractQActionFunction<AuditInput, AuditOutput
     *******************************************************************************/
    @Override
    public AuditOutput execute(AuditInput input)
+   {
+      try
+      {
+         return (execute(input, false));
+      }
+      catch(QException e)
+      {
+         /////////////////////////////////////////////////////
+         // not reachable, as errors are logged, not thrown //
+         /////////////////////////////////////////////////////
+         return (new AuditOutput());
+      }
+   }
+
+
+
+   /*******************************************************************************
+    ** Version of execute that throws errors (e.g., from inserting the audits),
+    ** rather than just logging them - for the AuditJournal, which, as it isn't
+    ** running in the thread that made the audits, needs to handle them itself.
+    *******************************************************************************/
+   AuditOutput executeOrThrow(AuditInput input) throws QException
+   {
+      return (execute(input, true));
+   }
+
+
+
+   /*******************************************************************************
+    **
+    *******************************************************************************/
+   private AuditOutput execute(AuditInput input, boolean throwErrors) throws QException
    {
       AuditOutput auditOutput = new AuditOutput();
 
@@ -347,6 +387,10 @@ public class AuditAction extends AbstractQActionFunction<AuditInput, AuditOutput
          }
          catch(Exception e)
          {
+            if(throwErrors)
+            {
+               throw (e instanceof QException qe ? qe : new QException("Error performing an audit", e));
+            }
             LOG.warn("Error performing an audit", e);
          }
       }
@@ -423,7 +467,7 @@ public class AuditAction extends AbstractQActionFunction<AuditInput, AuditOutput
    /*******************************************************************************
     **
     *******************************************************************************/
-   private static String getSessionUserName()
+   static String getSessionUserName()
    {
       QUser user = QContext.getQSession().getUser();
       if(user == null)
@@ -440,6 +484,8 @@ public class AuditAction extends AbstractQActionFunction<AuditInput, AuditOutput
     *******************************************************************************/
    private Integer getIdForName(String tableName, String nameValue) throws QException
    {
+      Map<Pair<String, String>, Integer> cachedFetches = cachedFetchesByInstance.computeIfAbsent(QContext.getQInstance(), i -> new ConcurrentHashMap<>());
+
       Pair<String, String> key = new Pair<>(tableName, nameValue);
       if(!cachedFetches.containsKey(key))
       {
@@ -502,6 +548,17 @@ public class AuditAction extends AbstractQActionFunction<AuditInput, AuditOutput
 
 
 
+   /*******************************************************************************
+    ** Forget the cached ids of auditTable & auditUser records - e.g., if those
+    ** tables have been cleared out.
+    *******************************************************************************/
+   public static void clearCachedIds()
+   {
+      cachedFetchesByInstance.clear();
+   }
+
+
+
    /*******************************************************************************
     **
     *******************************************************************************/
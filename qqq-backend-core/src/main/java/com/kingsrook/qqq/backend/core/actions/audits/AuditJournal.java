@@ -0,0 +1,809 @@
+/*
+ * QQQ - Low-code Application Framework for Engineers.
+ * Copyright (C) 2021-2024.  Kingsrook, LLC
+ * 651 N Broad St Ste 205 # 6917 | Middletown DE 19709 | United States
+ * contact@kingsrook.com
+ * https://github.com/Kingsrook/
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+
+package com.kingsrook.qqq.backend.core.actions.audits;
+
+
+import java.io.IOException;
+import java.io.Serializable;
+import java.lang.ref.WeakReference;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.FileAttribute;
+import java.nio.file.attribute.PosixFilePermission;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.WeakHashMap;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+import com.kingsrook.qqq.backend.core.context.QContext;
+import com.kingsrook.qqq.backend.core.logging.QLogger;
+import com.kingsrook.qqq.backend.core.model.actions.audits.AuditInput;
+import com.kingsrook.qqq.backend.core.model.actions.audits.AuditSingleInput;
+import com.kingsrook.qqq.backend.core.model.data.QRecord;
+import com.kingsrook.qqq.backend.core.model.metadata.QInstance;
+import com.kingsrook.qqq.backend.core.model.metadata.audits.AuditJournalMetaData;
+import com.kingsrook.qqq.backend.core.model.session.QSession;
+import com.kingsrook.qqq.backend.core.model.session.QUser;
+import com.kingsrook.qqq.backend.core.utils.CollectionUtils;
+import com.kingsrook.qqq.backend.core.utils.JsonUtils;
+import com.kingsrook.qqq.backend.core.utils.SleepUtils;
+import com.kingsrook.qqq.backend.core.utils.StringUtils;
+import org.json.JSONArray;
+import org.json.JSONObject;
+import static com.kingsrook.qqq.backend.core.logging.LogUtils.logPair;
+
+
+/*******************************************************************************
+ ** Write-behind journal for audits - where audits are put on a bounded queue,
+ ** and a background thread writes them (via AuditAction), in batches.
+ **
+ ** Used (by DMLAuditAction) for QInstances that have AuditJournalMetaData -
+ ** see that class for details about how the journal is configured, and what
+ ** happens when its queue is full.
+ **
+ ** Audits are written under the session that submitted them (e.g., for
+ ** security key validation), and with their user name and timestamp set at
+ ** the time they were submitted.
+ **
+ ** One journal exists per QInstance.  Its writer thread is started on demand,
+ ** and ends after it has been idle for a while.
+ **
+ ** If writing a batch of audits fails, its audits are retried one at a time -
+ ** and any that still fail are logged (with their contents) at error level,
+ ** and counted (see getFailedCount).
+ **
+ ** Spill files (for the SPILL_TO_DISK overflow policy) are JSON, holding only
+ ** the audits' fields and the submitting user's name (not the whole session),
+ ** and are written with owner-only permissions (where the file system supports
+ ** them) - by default, in a private directory created for the journal.
+ *******************************************************************************/
+public class AuditJournal
+{
+   private static final QLogger LOG = QLogger.getLogger(AuditJournal.class);
+
+   private static final Map<QInstance, AuditJournal> journals = Collections.synchronizedMap(new WeakHashMap<>());
+
+   private static final long       WRITER_IDLE_MILLIS = 60_000;
+   private static final String     SPILL_FILE_PREFIX  = "audits-";
+   private static final String     SPILL_FILE_SUFFIX  = ".json";
+   private static final AtomicLong spillFileCounter   = new AtomicLong();
+
+   private final WeakReference<QInstance>    qInstanceReference;
+   private final AuditJournalMetaData        metaData;
+   private final BlockingQueue<JournalEntry> queue;
+
+   //////////////////////////////////////////////////////////////////////
+   // count of audits that have been queued (or spilled), but that the //
+   // writer hasn't finished writing yet - for use by flush.           //
+   //////////////////////////////////////////////////////////////////////
+   private final AtomicInteger pendingCount = new AtomicInteger(0);
+   private final AtomicLong    failedCount  = new AtomicLong(0);
+
+   private Thread writerThread;
+   private Path   defaultSpillDirectory;
+
+
+
+   /***************************************************************************
+    ** an audit on the queue, with the context to write it in.
+    ***************************************************************************/
+   private record JournalEntry(QInstance qInstance, QSession session, AuditSingleInput auditSingleInput)
+   {
+   }
+
+
+
+   /*******************************************************************************
+    ** Constructor
+    **
+    *******************************************************************************/
+   private AuditJournal(QInstance qInstance, AuditJournalMetaData metaData)
+   {
+      this.qInstanceReference = new WeakReference<>(qInstance);
+      this.metaData = metaData;
+      this.queue = new ArrayBlockingQueue<>(Math.max(1, Objects.requireNonNullElse(metaData.getQueueCapacity(), 10_000)));
+   }
+
+
+
+   /*******************************************************************************
+    ** Write an AuditInput - either by submitting it to the journal for the
+    ** QInstance in context (if it has one), or else synchronously, via AuditAction.
+    *******************************************************************************/
+   public static void submitOrExecute(AuditInput auditInput)
+   {
+      AuditJournal journal = getJournal(QContext.getQInstance());
+      if(journal == null || auditInput.getTransaction() != null)
+      {
+         new AuditAction().execute(auditInput);
+         return;
+      }
+
+      journal.submit(auditInput);
+   }
+
+
+
+   /*******************************************************************************
+    ** Get the journal for a QInstance - or null, if it doesn't have
+    ** AuditJournalMetaData.
+    *******************************************************************************/
+   public static AuditJournal getJournal(QInstance qInstance)
+   {
+      if(qInstance == null || qInstance.getAuditJournalMetaData() == null)
+      {
+         return (null);
+      }
+
+      return (journals.computeIfAbsent(qInstance, i -> new AuditJournal(i, i.getAuditJournalMetaData())));
+   }
+
+
+
+   /*******************************************************************************
+    ** Flush the journals for all QInstances - e.g., before shutting down.
+    **
+    ** @return true if all journals were flushed before the timeout.
+    *******************************************************************************/
+   public static boolean flushAll(long timeoutMillis)
+   {
+      List<AuditJournal> allJournals;
+      synchronized(journals)
+      {
+         allJournals = new ArrayList<>(journals.values());
+      }
+
+      long    deadline   = System.currentTimeMillis() + timeoutMillis;
+      boolean allFlushed = true;
+      for(AuditJournal journal : allJournals)
+      {
+         allFlushed = journal.flush(Math.max(0, deadline - System.currentTimeMillis())) && allFlushed;
+      }
+      return (allFlushed);
+   }
+
+
+
+   /*******************************************************************************
+    ** Add the audits in an input to the queue - handling any that don't fit per
+    ** the overflowPolicy.
+    *******************************************************************************/
+   public void submit(AuditInput auditInput)
+   {
+      QInstance qInstance = QContext.getQInstance();
+      QSession  session   = QContext.getQSession();
+
+      ArrayList<AuditSingleInput> overflow = new ArrayList<>();
+      for(AuditSingleInput auditSingleInput : CollectionUtils.nonNullList(auditInput.getAuditSingleInputList()))
+      {
+         /////////////////////////////////////////////////////////////////////////////
+         // resolve the values that AuditAction would default from "now", right now //
+         /////////////////////////////////////////////////////////////////////////////
+         if(auditSingleInput.getAuditUserName() == null)
+         {
+            auditSingleInput.setAuditUserName(AuditAction.getSessionUserName());
+         }
+         if(auditSingleInput.getTimestamp() == null)
+         {
+            auditSingleInput.setTimestamp(Instant.now());
+         }
+
+         pendingCount.incrementAndGet();
+         if(!queue.offer(new JournalEntry(qInstance, session, auditSingleInput)))
+         {
+            pendingCount.decrementAndGet();
+            overflow.add(auditSingleInput);
+         }
+      }
+
+      ensureWriterIsRunning();
+
+      if(!overflow.isEmpty())
+      {
+         handleOverflow(qInstance, session, overflow);
+      }
+   }
+
+
+
+   /*******************************************************************************
+    **
+    *******************************************************************************/
+   private void handleOverflow(QInstance qInstance, QSession session, ArrayList<AuditSingleInput> overflow)
+   {
+      AuditJournalMetaData.OverflowPolicy overflowPolicy = Objects.requireNonNullElse(metaData.getOverflowPolicy(), AuditJournalMetaData.OverflowPolicy.BLOCK);
+      LOG.debug("Audit journal queue is full", logPair("overflowCount", overflow.size()), logPair("overflowPolicy", overflowPolicy));
+
+      if(overflowPolicy.equals(AuditJournalMetaData.OverflowPolicy.BLOCK))
+      {
+         long deadline = System.currentTimeMillis() + Objects.requireNonNullElse(metaData.getMaxBlockMillis(), 5000);
+         while(!overflow.isEmpty())
+         {
+            try
+            {
+               pendingCount.incrementAndGet();
+               if(queue.offer(new JournalEntry(qInstance, session, overflow.get(0)), Math.max(0, deadline - System.currentTimeMillis()), TimeUnit.MILLISECONDS))
+               {
+                  overflow.remove(0);
+               }
+               else
+               {
+                  pendingCount.decrementAndGet();
+                  break;
+               }
+            }
+            catch(InterruptedException e)
+            {
+               pendingCount.decrementAndGet();
+               Thread.currentThread().interrupt();
+               break;
+            }
+         }
+      }
+      else if(overflowPolicy.equals(AuditJournalMetaData.OverflowPolicy.SPILL_TO_DISK))
+      {
+         if(spill(session, overflow))
+         {
+            return;
+         }
+      }
+
+      if(!overflow.isEmpty())
+      {
+         new AuditAction().execute(new AuditInput().withAuditSingleInputList(overflow));
+      }
+   }
+
+
+
+   /*******************************************************************************
+    ** Wait (up to a timeout) for all audits submitted to this journal (including
+    ** any spilled to disk) to be written.
+    **
+    ** @return true if everything was written before the timeout.
+    *******************************************************************************/
+   public boolean flush(long timeoutMillis)
+   {
+      long deadline = System.currentTimeMillis() + timeoutMillis;
+      while(pendingCount.get() > 0 || hasSpillFiles())
+      {
+         if(System.currentTimeMillis() >= deadline)
+         {
+            return (false);
+         }
+
+         ensureWriterIsRunning();
+         SleepUtils.sleep(10, TimeUnit.MILLISECONDS);
+      }
+
+      return (true);
+   }
+
+
+
+   /*******************************************************************************
+    **
+    *******************************************************************************/
+   private synchronized void ensureWriterIsRunning()
+   {
+      if(writerThread == null || !writerThread.isAlive())
+      {
+         writerThread = new Thread(this::runWriter, "qqq-audit-journal");
+         writerThread.setDaemon(true);
+         writerThread.start();
+      }
+   }
+
+
+
+   /*******************************************************************************
+    ** body of the writer thread - takes batches of audits from the queue (or,
+    ** once it is empty, from spill files) and writes them - until idle.
+    *******************************************************************************/
+   private void runWriter()
+   {
+      int  maxBatchSize        = Math.max(1, Objects.requireNonNullElse(metaData.getMaxBatchSize(), 500));
+      long flushIntervalMillis = Math.max(1, Objects.requireNonNullElse(metaData.getFlushIntervalMillis(), 250));
+      long idleSince           = System.currentTimeMillis();
+
+      while(true)
+      {
+         try
+         {
+            List<JournalEntry> batch = new ArrayList<>();
+            JournalEntry       first = queue.poll(flushIntervalMillis, TimeUnit.MILLISECONDS);
+            if(first != null)
+            {
+               batch.add(first);
+               queue.drainTo(batch, maxBatchSize - 1);
+            }
+            else
+            {
+               batch.addAll(readSpillFile());
+            }
+
+            if(!batch.isEmpty())
+            {
+               write(batch);
+               idleSince = System.currentTimeMillis();
+            }
+            else if(System.currentTimeMillis() - idleSince > WRITER_IDLE_MILLIS)
+            {
+               synchronized(this)
+               {
+                  ///////////////////////////////////////////////////////////////////
+                  // only end if nothing was submitted while we were deciding to - //
+                  // else, a submitter may have seen this thread as still alive.   //
+                  ///////////////////////////////////////////////////////////////////
+                  if(queue.isEmpty())
+                  {
+                     writerThread = null;
+                     return;
+                  }
+               }
+            }
+         }
+         catch(InterruptedException e)
+         {
+            LOG.info("Audit journal writer interrupted", logPair("queueSize", queue.size()));
+            synchronized(this)
+            {
+               writerThread = null;
+            }
+            return;
+         }
+         catch(Exception e)
+         {
+            LOG.warn("Error in audit journal writer", e);
+         }
+      }
+   }
+
+
+
+   /*******************************************************************************
+    ** write a batch of audits - one AuditAction per run of entries that share
+    ** the same instance & session (which, in practice, is usually all of them).
+    *******************************************************************************/
+   private void write(List<JournalEntry> batch)
+   {
+      int start = 0;
+      while(start < batch.size())
+      {
+         JournalEntry firstEntry = batch.get(start);
+         int          end        = start + 1;
+         while(end < batch.size() && batch.get(end).qInstance() == firstEntry.qInstance() && batch.get(end).session() == firstEntry.session())
+         {
+            end++;
+         }
+
+         List<AuditSingleInput> auditSingleInputs = new ArrayList<>();
+         for(JournalEntry entry : batch.subList(start, end))
+         {
+            auditSingleInputs.add(entry.auditSingleInput());
+         }
+
+         try
+         {
+            QContext.init(firstEntry.qInstance(), firstEntry.session());
+            writeBatchOrEachAudit(auditSingleInputs);
+         }
+         finally
+         {
+            QContext.clear();
+            pendingCount.addAndGet(-(end - start));
+         }
+
+         start = end;
+      }
+   }
+
+
+
+   /*******************************************************************************
+    ** write audits (in the current context) as one batch - or, if that fails,
+    ** one at a time - so that one bad audit (or a transient error) doesn't lose
+    ** the whole batch.  (The per-audit retry may duplicate audits from a batch
+    ** that failed part way through - which is preferred over losing them.)
+    *******************************************************************************/
+   private void writeBatchOrEachAudit(List<AuditSingleInput> auditSingleInputs)
+   {
+      try
+      {
+         new AuditAction().executeOrThrow(new AuditInput().withAuditSingleInputList(auditSingleInputs));
+         return;
+      }
+      catch(Exception e)
+      {
+         LOG.warn("Error writing a batch of journaled audits - will retry them one at a time", e, logPair("count", auditSingleInputs.size()));
+      }
+
+      for(AuditSingleInput auditSingleInput : auditSingleInputs)
+      {
+         try
+         {
+            new AuditAction().executeOrThrow(new AuditInput().withAuditSingleInputList(List.of(auditSingleInput)));
+         }
+         catch(Exception e)
+         {
+            failedCount.incrementAndGet();
+            LOG.error("Error writing a journaled audit - it has not been stored", e,
+               logPair("tableName", auditSingleInput.getAuditTableName()),
+               logPair("recordId", auditSingleInput.getRecordId()),
+               logPair("userName", auditSingleInput.getAuditUserName()),
+               logPair("timestamp", auditSingleInput.getTimestamp()),
+               logPair("message", auditSingleInput.getMessage()),
+               logPair("details", auditSingleInput.getDetails()));
+         }
+      }
+   }
+
+
+
+   /*******************************************************************************
+    ** Write audits to a spill file - returning false if that failed.
+    *******************************************************************************/
+   private boolean spill(QSession session, ArrayList<AuditSingleInput> auditSingleInputs)
+   {
+      try
+      {
+         Path spillDirectory = getSpillDirectory();
+
+         ////////////////////////////////////////////////////////////////////////////
+         // write to a temp file, then rename - so the writer never sees a partial //
+         // file.  names sort in the order the files were written.                 //
+         ////////////////////////////////////////////////////////////////////////////
+         String fileName = SPILL_FILE_PREFIX + String.format("%013d-%09d", System.currentTimeMillis(), spillFileCounter.incrementAndGet()) + SPILL_FILE_SUFFIX;
+         Path   tempFile = spillDirectory.resolve("." + fileName + ".tmp");
+         Files.createFile(tempFile, getOwnerOnlyPermissions(false));
+         Files.writeString(tempFile, toSpillJson(session, auditSingleInputs));
+         Files.move(tempFile, spillDirectory.resolve(fileName), StandardCopyOption.ATOMIC_MOVE);
+
+         LOG.info("Spilled audits to disk", logPair("count", auditSingleInputs.size()), logPair("fileName", fileName));
+         return (true);
+      }
+      catch(Exception e)
+      {
+         LOG.warn("Error spilling audits to disk - will write them synchronously instead", e, logPair("count", auditSingleInputs.size()));
+         return (false);
+      }
+   }
+
+
+
+   /*******************************************************************************
+    ** read (and delete) the oldest spill file, if there is one - returning its
+    ** audits as journal entries (which are then counted as pending).
+    *******************************************************************************/
+   private List<JournalEntry> readSpillFile()
+   {
+      QInstance qInstance = qInstanceReference.get();
+      if(qInstance == null)
+      {
+         return (Collections.emptyList());
+      }
+
+      Path spillFile = findOldestSpillFile();
+      if(spillFile == null)
+      {
+         return (Collections.emptyList());
+      }
+
+      List<JournalEntry> rs = new ArrayList<>();
+      try
+      {
+         JSONObject spillJson = JsonUtils.toJSONObject(Files.readString(spillFile));
+
+         ///////////////////////////////////////////////////////////////////////////
+         // only the user's name is stored - so, write these audits under a fresh //
+         // session for that user (all audits in the file sharing it, as a batch) //
+         ///////////////////////////////////////////////////////////////////////////
+         QSession session = new QSession();
+         if(spillJson.has("userName"))
+         {
+            session.setUser(new QUser().withFullName(spillJson.getString("userName")));
+         }
+
+         for(AuditSingleInput auditSingleInput : fromSpillJson(spillJson))
+         {
+            pendingCount.incrementAndGet();
+            rs.add(new JournalEntry(qInstance, session, auditSingleInput));
+         }
+      }
+      catch(Exception e)
+      {
+         LOG.warn("Error reading audit journal spill file - it will be deleted", e, logPair("spillFile", spillFile));
+      }
+
+      try
+      {
+         Files.delete(spillFile);
+      }
+      catch(IOException e)
+      {
+         /////////////////////////////////////////////////////////////////////////////////
+         // if we can't delete it, we'd read it again - so, don't write its audits now. //
+         /////////////////////////////////////////////////////////////////////////////////
+         LOG.warn("Error deleting audit journal spill file", e, logPair("spillFile", spillFile));
+         pendingCount.addAndGet(-rs.size());
+         return (Collections.emptyList());
+      }
+
+      return (rs);
+   }
+
+
+
+   /*******************************************************************************
+    ** build the JSON for a spill file - with just the audits' fields, and the
+    ** session's user name.
+    *******************************************************************************/
+   static String toSpillJson(QSession session, List<AuditSingleInput> auditSingleInputs)
+   {
+      JSONObject spillJson = new JSONObject();
+      if(session != null && session.getUser() != null)
+      {
+         spillJson.put("userName", session.getUser().getFullName());
+      }
+
+      JSONArray auditsJson = new JSONArray();
+      for(AuditSingleInput auditSingleInput : auditSingleInputs)
+      {
+         JSONObject auditJson = new JSONObject();
+         auditJson.put("auditTableName", auditSingleInput.getAuditTableName());
+         auditJson.put("auditUserName", auditSingleInput.getAuditUserName());
+         auditJson.put("timestamp", auditSingleInput.getTimestamp() == null ? null : auditSingleInput.getTimestamp().toString());
+         auditJson.put("message", auditSingleInput.getMessage());
+         auditJson.put("recordId", auditSingleInput.getRecordId());
+
+         if(auditSingleInput.getSecurityKeyValues() != null)
+         {
+            auditJson.put("securityKeyValues", toJsonValues(auditSingleInput.getSecurityKeyValues()));
+         }
+
+         if(auditSingleInput.getDetails() != null)
+         {
+            JSONArray detailsJson = new JSONArray();
+            for(QRecord detail : auditSingleInput.getDetails())
+            {
+               detailsJson.put(toJsonValues(detail.getValues()));
+            }
+            auditJson.put("details", detailsJson);
+         }
+
+         auditsJson.put(auditJson);
+      }
+      spillJson.put("audits", auditsJson);
+
+      return (spillJson.toString());
+   }
+
+
+
+   /*******************************************************************************
+    ** read the audits back out of a spill file's JSON.
+    *******************************************************************************/
+   static List<AuditSingleInput> fromSpillJson(JSONObject spillJson)
+   {
+      List<AuditSingleInput> rs         = new ArrayList<>();
+      JSONArray              auditsJson = spillJson.getJSONArray("audits");
+      for(int i = 0; i < auditsJson.length(); i++)
+      {
+         JSONObject auditJson = auditsJson.getJSONObject(i);
+
+         AuditSingleInput auditSingleInput = new AuditSingleInput()
+            .withAuditTableName(auditJson.optString("auditTableName", null))
+            .withAuditUserName(auditJson.optString("auditUserName", null))
+            .withTimestamp(auditJson.has("timestamp") ? Instant.parse(auditJson.getString("timestamp")) : null)
+            .withMessage(auditJson.optString("message", null))
+            .withRecordId(auditJson.has("recordId") ? auditJson.getInt("recordId") : null);
+
+         if(auditJson.has("securityKeyValues"))
+         {
+            auditSingleInput.setSecurityKeyValues(fromJsonValues(auditJson.getJSONObject("securityKeyValues")));
+         }
+
+         if(auditJson.has("details"))
+         {
+            List<QRecord> details     = new ArrayList<>();
+            JSONArray     detailsJson = auditJson.getJSONArray("details");
+            for(int j = 0; j < detailsJson.length(); j++)
+            {
+               QRecord detail = new QRecord();
+               detail.setValues(fromJsonValues(detailsJson.getJSONObject(j)));
+               details.add(detail);
+            }
+            auditSingleInput.setDetails(details);
+         }
+
+         rs.add(auditSingleInput);
+      }
+      return (rs);
+   }
+
+
+
+   /*******************************************************************************
+    ** values that JSON can hold natively are kept as-is - others (e.g., dates)
+    ** are written as strings (which the audit insert converts by field type).
+    *******************************************************************************/
+   private static JSONObject toJsonValues(Map<String, Serializable> values)
+   {
+      JSONObject rs = new JSONObject();
+      for(Map.Entry<String, Serializable> entry : values.entrySet())
+      {
+         Serializable value = entry.getValue();
+         if(value == null)
+         {
+            continue;
+         }
+
+         rs.put(entry.getKey(), (value instanceof Number || value instanceof Boolean || value instanceof String) ? value : value.toString());
+      }
+      return (rs);
+   }
+
+
+
+   /*******************************************************************************
+    **
+    *******************************************************************************/
+   private static Map<String, Serializable> fromJsonValues(JSONObject jsonObject)
+   {
+      Map<String, Serializable> rs = new HashMap<>();
+      for(String key : jsonObject.keySet())
+      {
+         Object value = jsonObject.get(key);
+         if(value instanceof Serializable serializable && value != JSONObject.NULL)
+         {
+            rs.put(key, serializable);
+         }
+      }
+      return (rs);
+   }
+
+
+
+   /*******************************************************************************
+    **
+    *******************************************************************************/
+   private Path findOldestSpillFile()
+   {
+      Path spillDirectory;
+      try
+      {
+         spillDirectory = getSpillDirectory();
+      }
+      catch(IOException e)
+      {
+         LOG.warn("Error getting audit journal spill directory", e);
+         return (null);
+      }
+
+      if(!Files.isDirectory(spillDirectory))
+      {
+         return (null);
+      }
+
+      try(Stream<Path> files = Files.list(spillDirectory))
+      {
+         return (files
+            .filter(f -> f.getFileName().toString().startsWith(SPILL_FILE_PREFIX) && f.getFileName().toString().endsWith(SPILL_FILE_SUFFIX))
+            .min(Path::compareTo)
+            .orElse(null));
+      }
+      catch(IOException e)
+      {
+         LOG.warn("Error listing audit journal spill directory", e, logPair("spillDirectory", spillDirectory));
+         return (null);
+      }
+   }
+
+
+
+   /*******************************************************************************
+    **
+    *******************************************************************************/
+   private boolean hasSpillFiles()
+   {
+      return (Objects.equals(metaData.getOverflowPolicy(), AuditJournalMetaData.OverflowPolicy.SPILL_TO_DISK) && findOldestSpillFile() != null);
+   }
+
+
+
+   /*******************************************************************************
+    ** get (creating, if needed, with owner-only permissions) the directory for
+    ** spill files - either the one from the meta data, or else a private temp
+    ** directory for this journal.
+    *******************************************************************************/
+   private synchronized Path getSpillDirectory() throws IOException
+   {
+      if(StringUtils.hasContent(metaData.getSpillDirectory()))
+      {
+         Path spillDirectory = Path.of(metaData.getSpillDirectory());
+         if(!Files.isDirectory(spillDirectory))
+         {
+            Files.createDirectories(spillDirectory, getOwnerOnlyPermissions(true));
+         }
+         return (spillDirectory);
+      }
+
+      if(defaultSpillDirectory == null)
+      {
+         defaultSpillDirectory = Files.createTempDirectory("qqq-audit-journal-", getOwnerOnlyPermissions(true));
+      }
+      return (defaultSpillDirectory);
+   }
+
+
+
+   /*******************************************************************************
+    ** file attributes to create files (rw-------) or directories (rwx------) as
+    ** only accessible by their owner - or none, if the file system isn't posix.
+    *******************************************************************************/
+   private static FileAttribute<?>[] getOwnerOnlyPermissions(boolean isDirectory)
+   {
+      if(!FileSystems.getDefault().supportedFileAttributeViews().contains("posix"))
+      {
+         return (new FileAttribute<?>[0]);
+      }
+
+      Set<PosixFilePermission> permissions = PosixFilePermissions.fromString(isDirectory ? "rwx------" : "rw-------");
+      return (new FileAttribute<?>[] { PosixFilePermissions.asFileAttribute(permissions) });
+   }
+
+
+
+   /*******************************************************************************
+    ** Getter for the number of journaled audits that failed to be written (and
+    ** so were only logged).
+    *******************************************************************************/
+   public long getFailedCount()
+   {
+      return (failedCount.get());
+   }
+
+
+
+   /*******************************************************************************
+    ** Getter for the number of audits waiting in the queue.
+    *******************************************************************************/
+   public int getQueueSize()
+   {
+      return (queue.size());
+   }
+
+}
@@ -181,8 +181,11 @@ public class DMLAuditAction extends AbstractQActionFunction<DMLAuditInput, DMLAu
             }
          }
 
-         // new AuditAction().executeAsync(auditInput); // todo async??? maybe get that from rules???
-         new AuditAction().execute(auditInput);
+         ///////////////////////////////////////////////////////////////////////////////////
+         // if the instance has an audit journal, this queues the audits for a background //
+         // writer - else (or if there's a transaction), they're written right now.       //
+         ///////////////////////////////////////////////////////////////////////////////////
+         AuditJournal.submitOrExecute(auditInput);
          long end = System.currentTimeMillis();
          LOG.trace("Audit performance", logPair("auditLevel", String.valueOf(auditLevel)), logPair("recordCount", recordList.size()), logPair("millis", (end - start)));
       }
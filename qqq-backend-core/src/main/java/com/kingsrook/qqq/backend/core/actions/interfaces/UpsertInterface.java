@@ -0,0 +1,46 @@
+/*
+ * QQQ - Low-code Application Framework for Engineers.
+ * Copyright (C) 2021-2024.  Kingsrook, LLC
+ * 651 N Broad St Ste 205 # 6917 | Middletown DE 19709 | United States
+ * contact@kingsrook.com
+ * https://github.com/Kingsrook/
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+
+package com.kingsrook.qqq.backend.core.actions.interfaces;
+
+
+import com.kingsrook.qqq.backend.core.exceptions.QException;
+import com.kingsrook.qqq.backend.core.model.actions.tables.upsert.UpsertInput;
+import com.kingsrook.qqq.backend.core.model.actions.tables.upsert.UpsertOutput;
+
+
+/*******************************************************************************
+ ** Interface for a backend's native Upsert (e.g., INSERT ... ON DUPLICATE KEY
+ ** UPDATE) - used by UpsertAction, for tables where it's safe to do so (see
+ ** there).  Implementations get records that have already been validated (any
+ ** with errors should be skipped), and must insert each one, or, if a record
+ ** with the same input key exists, set its fieldNamesToUpdate.  Output records
+ ** are in input order, but need not have primary keys set.
+ *******************************************************************************/
+public interface UpsertInterface
+{
+   /*******************************************************************************
+    **
+    *******************************************************************************/
+   UpsertOutput execute(UpsertInput upsertInput) throws QException;
+
+}
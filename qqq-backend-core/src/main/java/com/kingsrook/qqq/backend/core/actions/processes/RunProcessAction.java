@@ -54,6 +54,7 @@ import com.kingsrook.qqq.backend.core.model.actions.tables.query.QueryOutput;
 import com.kingsrook.qqq.backend.core.model.actions.tables.update.UpdateInput;
 import com.kingsrook.qqq.backend.core.model.data.QRecord;
 import com.kingsrook.qqq.backend.core.model.metadata.QBackendMetaData;
+import com.kingsrook.qqq.backend.core.model.metadata.QInstance;
 import com.kingsrook.qqq.backend.core.model.metadata.code.QCodeReference;
 import com.kingsrook.qqq.backend.core.model.metadata.fields.QFieldMetaData;
 import com.kingsrook.qqq.backend.core.model.metadata.processes.NoCodeWidgetFrontendComponentMetaData;
@@ -69,6 +70,7 @@ import com.kingsrook.qqq.backend.core.processes.tracing.ProcessTracerInterface;
 import com.kingsrook.qqq.backend.core.state.InMemoryStateProvider;
 import com.kingsrook.qqq.backend.core.state.StateProviderInterface;
 import com.kingsrook.qqq.backend.core.state.StateType;
+import com.kingsrook.qqq.backend.core.state.TableBasedStateProvider;
 import com.kingsrook.qqq.backend.core.state.UUIDAndTypeStateKey;
 import com.kingsrook.qqq.backend.core.utils.CollectionUtils;
 import com.kingsrook.qqq.backend.core.utils.StringUtils;
@@ -756,10 +758,19 @@ public class RunProcessAction
     *******************************************************************************/
    public static StateProviderInterface getStateProvider()
    {
-      // TODO - read this from somewhere in meta data eh?
+      ////////////////////////////////////////////////////////////////////////////
+      // if the instance is set up for table-based state, use that (so state is //
+      // shared across servers) - else, fall back to the in-memory provider.    //
+      ////////////////////////////////////////////////////////////////////////////
+      QInstance qInstance = QContext.getQInstance();
+      if(qInstance != null && qInstance.getTableBasedStateProviderMetaData() != null)
+      {
+         return (TableBasedStateProvider.getInstance(qInstance));
+      }
+
       return InMemoryStateProvider.getInstance();
 
-      // todo - by using JSON serialization internally, this makes stupidly large payloads and crashes things.
+      // or, to keep (single-server) state off of the heap:
       // return TempFileStateProvider.getInstance();
    }
 
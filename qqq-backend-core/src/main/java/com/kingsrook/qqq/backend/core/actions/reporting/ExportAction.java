@@ -82,8 +82,8 @@ public class ExportAction
    private Integer countFromPreExecute = null;
 
    private static final int TIMEOUT_AFTER_NO_RECORDS_MS = 10 * 60 * 1000;
-   private static final int MAX_SLEEP_MS                = 1000;
-   private static final int INIT_SLEEP_MS               = 10;
+   private static final int MAX_WAIT_MS                 = 1000;
+   private static final int MAX_JOB_STATUS_POLL_MS      = 100;
 
 
 
@@ -226,6 +226,7 @@ public class ExportAction
       queryInput.setShouldTranslatePossibleValues(true);
       queryInput.withQueryHint(QueryHint.POTENTIALLY_LARGE_NUMBER_OF_RESULTS);
       queryInput.withQueryHint(QueryHint.MAY_USE_READ_ONLY_BACKEND);
+      queryInput.withQueryHint(QueryHint.COLUMNAR_RECORD_BATCHES);
 
       if(CollectionUtils.nullSafeHasContents(exportInput.getFieldNames()))
       {
@@ -259,14 +260,23 @@ public class ExportAction
       // run the query action as an async job //
       //////////////////////////////////////////
       AsyncJobManager asyncJobManager = new AsyncJobManager();
-      String          queryJobUUID    = asyncJobManager.startJob("ReportAction>QueryAction", (status) -> (queryAction.execute(queryInput)));
+      String          queryJobUUID    = asyncJobManager.startJob("ReportAction>QueryAction", (status) ->
+      {
+         try
+         {
+            return (queryAction.execute(queryInput));
+         }
+         finally
+         {
+            recordPipe.signalProducerFinished();
+         }
+      });
       LOG.info("Started query job [" + queryJobUUID + "] for report");
 
       AsyncJobState  queryJobState  = AsyncJobState.RUNNING;
       AsyncJobStatus asyncJobStatus = null;
 
       long recordCount           = 0;
-      int  nextSleepMillis       = INIT_SLEEP_MS;
       long lastReceivedRecordsAt = System.currentTimeMillis();
       long reportStartTime       = System.currentTimeMillis();
 
@@ -274,13 +284,30 @@ public class ExportAction
       {
          if(recordPipe.countAvailableRecords() == 0)
          {
-            ///////////////////////////////////////////////////////////
-            // if the pipe is empty, sleep to let the producer work. //
-            // todo - smarter sleep?  like get notified vs. sleep?   //
-            ///////////////////////////////////////////////////////////
-            LOG.info("No records are available in the pipe. Sleeping [" + nextSleepMillis + "] ms to give producer a chance to work");
-            SleepUtils.sleep(nextSleepMillis, TimeUnit.MILLISECONDS);
-            nextSleepMillis = Math.min(nextSleepMillis * 2, MAX_SLEEP_MS);
+            /////////////////////////////////////////////////////////////////////////////
+            // if the pipe is empty, park until the producer adds records (or is done) //
+            /////////////////////////////////////////////////////////////////////////////
+            LOG.debug("No records are available in the pipe. Waiting up to [" + MAX_WAIT_MS + "] ms for producer to work");
+            try
+            {
+               recordPipe.awaitAvailableRecords(1, MAX_WAIT_MS, TimeUnit.MILLISECONDS);
+            }
+            catch(InterruptedException e)
+            {
+               Thread.currentThread().interrupt();
+               throw (new QReportingException("Interrupted while waiting for records from query."));
+            }
+
+            ///////////////////////////////////////////////////////////////////////////
+            // once the producer is finished and the pipe is drained, the pipe won't //
+            // make us wait any more - so rather than spinning on the job's status,  //
+            // wait (with a backoff) for the query job to leave the RUNNING state.   //
+            ///////////////////////////////////////////////////////////////////////////
+            if(recordPipe.isProducerFinished() && recordPipe.countAvailableRecords() == 0)
+            {
+               asyncJobStatus = awaitQueryJobNotRunning(asyncJobManager, queryJobUUID);
+               break;
+            }
 
             long timeSinceLastReceivedRecord = System.currentTimeMillis() - lastReceivedRecordsAt;
             if(timeSinceLastReceivedRecord > TIMEOUT_AFTER_NO_RECORDS_MS)
@@ -290,11 +317,10 @@ public class ExportAction
          }
          else
          {
-            ////////////////////////////////////////////////////////////////////////////////////////////////////////
-            // if the pipe has records, consume them.  reset the sleep timer so if we sleep again it'll be short. //
-            ////////////////////////////////////////////////////////////////////////////////////////////////////////
+            ////////////////////////////////////////////
+            // if the pipe has records, consume them. //
+            ////////////////////////////////////////////
             lastReceivedRecordsAt = System.currentTimeMillis();
-            nextSleepMillis = INIT_SLEEP_MS;
 
             List<QRecord> records = recordPipe.consumeAvailableRecords();
             processRecords(reportStreamer, fields, records);
@@ -308,15 +334,7 @@ public class ExportAction
          ////////////////////////////////////
          // refresh the query job's status //
          ////////////////////////////////////
-         Optional<AsyncJobStatus> optionalAsyncJobStatus = asyncJobManager.getJobStatus(queryJobUUID);
-         if(optionalAsyncJobStatus.isEmpty())
-         {
-            /////////////////////////////////////////////////
-            // todo - ... maybe some version of try-again? //
-            /////////////////////////////////////////////////
-            throw (new QException("Could not get status of report query job [" + queryJobUUID + "]"));
-         }
-         asyncJobStatus = optionalAsyncJobStatus.get();
+         asyncJobStatus = getQueryJobStatus(asyncJobManager, queryJobUUID);
          queryJobState = asyncJobStatus.getState();
       }
 
@@ -357,6 +375,47 @@ public class ExportAction
 
 
 
+   /*******************************************************************************
+    **
+    *******************************************************************************/
+   private AsyncJobStatus getQueryJobStatus(AsyncJobManager asyncJobManager, String queryJobUUID) throws QException
+   {
+      Optional<AsyncJobStatus> optionalAsyncJobStatus = asyncJobManager.getJobStatus(queryJobUUID);
+      if(optionalAsyncJobStatus.isEmpty())
+      {
+         /////////////////////////////////////////////////
+         // todo - ... maybe some version of try-again? //
+         /////////////////////////////////////////////////
+         throw (new QException("Could not get status of report query job [" + queryJobUUID + "]"));
+      }
+      return (optionalAsyncJobStatus.get());
+   }
+
+
+
+   /*******************************************************************************
+    ** after the query has finished producing records, its job only has to record
+    ** its final status - so poll for that, backing off up to
+    ** MAX_JOB_STATUS_POLL_MS between checks.
+    *******************************************************************************/
+   private AsyncJobStatus awaitQueryJobNotRunning(AsyncJobManager asyncJobManager, String queryJobUUID) throws QException
+   {
+      long sleepMillis = 1;
+      while(true)
+      {
+         AsyncJobStatus asyncJobStatus = getQueryJobStatus(asyncJobManager, queryJobUUID);
+         if(!AsyncJobState.RUNNING.equals(asyncJobStatus.getState()))
+         {
+            return (asyncJobStatus);
+         }
+
+         SleepUtils.sleep(sleepMillis, TimeUnit.MILLISECONDS);
+         sleepMillis = Math.min(sleepMillis * 2, MAX_JOB_STATUS_POLL_MS);
+      }
+   }
+
+
+
    /*******************************************************************************
     **
     *******************************************************************************/
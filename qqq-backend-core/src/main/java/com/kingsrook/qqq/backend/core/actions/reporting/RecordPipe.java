@@ -27,29 +27,48 @@ import java.util.List;
 import java.util.Objects;
 import java.util.concurrent.ArrayBlockingQueue;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
 import com.kingsrook.qqq.backend.core.exceptions.QException;
 import com.kingsrook.qqq.backend.core.logging.QLogger;
 import com.kingsrook.qqq.backend.core.model.data.QRecord;
-import com.kingsrook.qqq.backend.core.utils.SleepUtils;
+import com.kingsrook.qqq.backend.core.model.data.QRecordBatch;
 import com.kingsrook.qqq.backend.core.utils.lambdas.UnsafeConsumer;
 
 
 /*******************************************************************************
  ** Object to connect a producer of records with a consumer.
  ** Best for those to be on different threads, to avoid deadlock.
+ **
+ ** Producers block (park) inside addRecord(s) while the pipe is full, and are
+ ** woken as soon as a consumer frees up space (or the pipe is terminated).
+ ** Consumers that want to wait for records (rather than sleeping & polling)
+ ** can use awaitAvailableRecords, which wakes once the requested number of
+ ** records is available, the producer signals that it is finished, or the
+ ** given deadline passes - whichever comes first.
  *******************************************************************************/
 public class RecordPipe
 {
    private static final QLogger LOG = QLogger.getLogger(RecordPipe.class);
 
-   private static final long BLOCKING_SLEEP_MILLIS = 100;
-   private static final long MAX_SLEEP_LOOP_MILLIS = 300_000; // 5 minutes
-   private static final int  DEFAULT_CAPACITY      = 1_000;
+   private static final long MAX_BLOCKING_WAIT_MILLIS = 300_000; // 5 minutes
+   private static final int  DEFAULT_CAPACITY         = 1_000;
 
    private int capacity = DEFAULT_CAPACITY;
    private ArrayBlockingQueue<QRecord> queue = new ArrayBlockingQueue<>(capacity);
 
-   private boolean isTerminated = false;
+   private volatile boolean isTerminated       = false;
+   private volatile boolean isProducerFinished = false;
+
+   ////////////////////////////////////////////////////////////////////////////
+   // lock & condition used to wake consumers that are waiting (in           //
+   // awaitAvailableRecords) for records to arrive.  awaitingMinRecords is 0 //
+   // when no consumer is waiting - so producers can skip the lock entirely. //
+   ////////////////////////////////////////////////////////////////////////////
+   private final ReentrantLock consumerLock       = new ReentrantLock();
+   private final Condition     recordsAvailable   = consumerLock.newCondition();
+   private volatile int        awaitingMinRecords = 0;
+   private int                 waitingConsumers   = 0;
 
    private UnsafeConsumer<List<QRecord>, QException> postRecordActions = null;
 
@@ -93,6 +112,93 @@ public class RecordPipe
    {
       isTerminated = true;
       queue.clear();
+      signalConsumer();
+   }
+
+
+
+   /*******************************************************************************
+    ** Indicate that the producer will not be adding any more records to the pipe.
+    ** Wakes up any consumer waiting in awaitAvailableRecords, so it doesn't have
+    ** to wait out its deadline to find that out.
+    *******************************************************************************/
+   public void signalProducerFinished()
+   {
+      isProducerFinished = true;
+      signalConsumer();
+   }
+
+
+
+   /*******************************************************************************
+    ** Block the calling (consumer) thread until at least minRecords are available
+    ** in the pipe, or the producer has signaled that it is finished, or the pipe
+    ** is terminated, or the timeout passes - whichever comes first.
+    **
+    ** Returns true if the wait ended due to records being available (or the
+    ** producer finishing/pipe terminating), false if it timed out.
+    *******************************************************************************/
+   public boolean awaitAvailableRecords(int minRecords, long timeout, TimeUnit timeUnit) throws InterruptedException
+   {
+      minRecords = Math.max(1, Math.min(minRecords, capacity));
+      long remainingNanos = timeUnit.toNanos(timeout);
+
+      consumerLock.lock();
+      try
+      {
+         waitingConsumers++;
+         awaitingMinRecords = awaitingMinRecords == 0 ? minRecords : Math.min(awaitingMinRecords, minRecords);
+         while(!isTerminated && !isProducerFinished && queue.size() < minRecords)
+         {
+            if(remainingNanos <= 0)
+            {
+               return (false);
+            }
+            remainingNanos = recordsAvailable.awaitNanos(remainingNanos);
+         }
+         return (true);
+      }
+      finally
+      {
+         if(--waitingConsumers == 0)
+         {
+            awaitingMinRecords = 0;
+         }
+         consumerLock.unlock();
+      }
+   }
+
+
+
+   /*******************************************************************************
+    ** if a consumer is waiting, and enough records are now available (or the
+    ** pipe is done), wake it up.
+    *******************************************************************************/
+   private void signalConsumerIfReady()
+   {
+      int awaiting = awaitingMinRecords;
+      if(awaiting > 0 && queue.size() >= awaiting)
+      {
+         signalConsumer();
+      }
+   }
+
+
+
+   /*******************************************************************************
+    **
+    *******************************************************************************/
+   private void signalConsumer()
+   {
+      consumerLock.lock();
+      try
+      {
+         recordsAvailable.signalAll();
+      }
+      finally
+      {
+         consumerLock.unlock();
+      }
    }
 
 
@@ -135,23 +241,32 @@ public class RecordPipe
 
       if(!offerResult && !isTerminated)
       {
+         ///////////////////////////////////////////////////////////////////////////
+         // make sure a consumer waiting for more records than we can fit gets to //
+         // run - then park until the queue signals that space has freed up.      //
+         ///////////////////////////////////////////////////////////////////////////
+         signalConsumer();
+
          LOG.debug("Pipe is full.  Waiting.");
-         long sleepLoopStartTime = System.currentTimeMillis();
-         long now                = System.currentTimeMillis();
-         while(!offerResult && !isTerminated)
+         try
          {
-            if(now - sleepLoopStartTime > MAX_SLEEP_LOOP_MILLIS)
-            {
-               LOG.warn("Giving up adding record to pipe, due to pipe being full for more than " + MAX_SLEEP_LOOP_MILLIS + " millis");
-               throw (new IllegalStateException("Giving up adding record to pipe, due to pipe staying full too long."));
-            }
-            LOG.trace("Record pipe.add failed (due to full pipe).  Blocking.");
-            SleepUtils.sleep(BLOCKING_SLEEP_MILLIS, TimeUnit.MILLISECONDS);
-            offerResult = queue.offer(record);
-            now = System.currentTimeMillis();
+            offerResult = queue.offer(record, MAX_BLOCKING_WAIT_MILLIS, TimeUnit.MILLISECONDS);
+         }
+         catch(InterruptedException e)
+         {
+            Thread.currentThread().interrupt();
+            throw (new IllegalStateException("Interrupted while waiting to add record to pipe.", e));
+         }
+
+         if(!offerResult && !isTerminated)
+         {
+            LOG.warn("Giving up adding record to pipe, due to pipe being full for more than " + MAX_BLOCKING_WAIT_MILLIS + " millis");
+            throw (new IllegalStateException("Giving up adding record to pipe, due to pipe staying full too long."));
          }
          LOG.debug("Pipe has opened up.  Resuming.");
       }
+
+      signalConsumerIfReady();
    }
 
 
@@ -175,13 +290,38 @@ public class RecordPipe
 
 
    /*******************************************************************************
-    **
+    ** Add all of the records from a columnar batch to the pipe.  The records
+    ** added are the batch's row-views - so their values stay in the batch's
+    ** columns, unless/until a consumer asks for a record's values map.
+    *******************************************************************************/
+   public void addRecordBatch(QRecordBatch recordBatch) throws QException
+   {
+      addRecords(recordBatch.getRecords());
+   }
+
+
+
+   /*******************************************************************************
+    ** Consume the records in the pipe - at most its capacity, so a producer that
+    ** keeps refilling the pipe while this runs can't make the page any bigger
+    ** than a full pipe (e.g., for callers that process each page as a batch).
     *******************************************************************************/
    public List<QRecord> consumeAvailableRecords()
+   {
+      return (consumeAvailableRecords(capacity));
+   }
+
+
+
+   /*******************************************************************************
+    ** Consume up to maxRecords from the pipe - e.g., for when multiple consumers
+    ** are draining the same pipe, and each should only take a page at a time.
+    *******************************************************************************/
+   public List<QRecord> consumeAvailableRecords(int maxRecords)
    {
       List<QRecord> rs = new ArrayList<>();
 
-      while(!isTerminated)
+      while(!isTerminated && rs.size() < maxRecords)
       {
          QRecord record = queue.poll();
          if(record == null)
@@ -196,6 +336,16 @@ public class RecordPipe
 
 
 
+   /*******************************************************************************
+    ** Check if the producer has signaled that it is finished adding records.
+    *******************************************************************************/
+   public boolean isProducerFinished()
+   {
+      return (isProducerFinished);
+   }
+
+
+
    /*******************************************************************************
     **
     *******************************************************************************/
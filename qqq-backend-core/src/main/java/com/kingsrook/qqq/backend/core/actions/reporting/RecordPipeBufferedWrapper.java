@@ -23,6 +23,7 @@ package com.kingsrook.qqq.backend.core.actions.reporting;
 
 
 import java.util.List;
+import java.util.concurrent.TimeUnit;
 import com.kingsrook.qqq.backend.core.exceptions.QException;
 import com.kingsrook.qqq.backend.core.model.data.QRecord;
 
@@ -76,4 +77,27 @@ public class RecordPipeBufferedWrapper extends BufferedRecordPipe
       wrappedPipe.addRecords(records);
    }
 
+
+
+   /*******************************************************************************
+    ** records end up in the wrapped pipe - so that's the one to wait on.
+    *******************************************************************************/
+   @Override
+   public boolean awaitAvailableRecords(int minRecords, long timeout, TimeUnit timeUnit) throws InterruptedException
+   {
+      return (wrappedPipe.awaitAvailableRecords(minRecords, timeout, timeUnit));
+   }
+
+
+
+   /*******************************************************************************
+    **
+    *******************************************************************************/
+   @Override
+   public void signalProducerFinished()
+   {
+      super.signalProducerFinished();
+      wrappedPipe.signalProducerFinished();
+   }
+
 }
@@ -30,6 +30,7 @@ import com.kingsrook.qqq.backend.core.actions.ActionHelper;
 import com.kingsrook.qqq.backend.core.actions.interfaces.AggregateInterface;
 import com.kingsrook.qqq.backend.core.actions.metadata.personalization.TableMetaDataPersonalizerAction;
 import com.kingsrook.qqq.backend.core.actions.tables.helpers.FilterValidationHelper;
+import com.kingsrook.qqq.backend.core.actions.tables.helpers.QueryResultCache;
 import com.kingsrook.qqq.backend.core.actions.tables.helpers.QueryStatManager;
 import com.kingsrook.qqq.backend.core.actions.tables.helpers.SelectionValidationHelper;
 import com.kingsrook.qqq.backend.core.actions.values.ValueBehaviorApplier;
@@ -92,6 +93,20 @@ public class AggregateAction
       ////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
       aggregateInput.setFilter(ValueBehaviorApplier.applyFieldBehaviorsToFilter(QContext.getQInstance(), table, aggregateInput.getFilter(), Collections.emptySet()));
 
+      ////////////////////////////////////////////////////////////////////////////////
+      // if the table caches aggregate results, and this input can use that, then a //
+      // result cached by an earlier identical aggregate can be returned as-is.     //
+      ////////////////////////////////////////////////////////////////////////////////
+      QueryResultCache.Lookup queryResultCacheLookup = QueryResultCache.forAggregate(aggregateInput);
+      if(queryResultCacheLookup != null)
+      {
+         AggregateOutput cachedOutput = queryResultCacheLookup.getAggregateOutput();
+         if(cachedOutput != null)
+         {
+            return (cachedOutput);
+         }
+      }
+
       QueryStat queryStat = QueryStatManager.newQueryStat(backend, table, aggregateInput.getFilter());
 
       QBackendModuleDispatcher qBackendModuleDispatcher = new QBackendModuleDispatcher();
@@ -107,6 +122,11 @@ public class AggregateAction
 
       QueryStatManager.getInstance().add(queryStat);
 
+      if(queryResultCacheLookup != null)
+      {
+         queryResultCacheLookup.putAggregateOutput(aggregateOutput);
+      }
+
       return aggregateOutput;
    }
 
@@ -27,6 +27,7 @@ import com.kingsrook.qqq.backend.core.actions.ActionHelper;
 import com.kingsrook.qqq.backend.core.actions.interfaces.CountInterface;
 import com.kingsrook.qqq.backend.core.actions.metadata.personalization.TableMetaDataPersonalizerAction;
 import com.kingsrook.qqq.backend.core.actions.tables.helpers.FilterValidationHelper;
+import com.kingsrook.qqq.backend.core.actions.tables.helpers.QueryResultCache;
 import com.kingsrook.qqq.backend.core.actions.tables.helpers.QueryStatManager;
 import com.kingsrook.qqq.backend.core.actions.values.ValueBehaviorApplier;
 import com.kingsrook.qqq.backend.core.context.QContext;
@@ -84,6 +85,20 @@ public class CountAction
       ////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
       countInput.setFilter(ValueBehaviorApplier.applyFieldBehaviorsToFilter(QContext.getQInstance(), table, countInput.getFilter(), Collections.emptySet()));
 
+      ////////////////////////////////////////////////////////////////////////////
+      // if the table caches count results, and this input can use that, then a //
+      // result cached by an earlier identical count can be returned as-is.     //
+      ////////////////////////////////////////////////////////////////////////////
+      QueryResultCache.Lookup queryResultCacheLookup = QueryResultCache.forCount(countInput);
+      if(queryResultCacheLookup != null)
+      {
+         CountOutput cachedOutput = queryResultCacheLookup.getCountOutput();
+         if(cachedOutput != null)
+         {
+            return (cachedOutput);
+         }
+      }
+
       QueryStat queryStat = QueryStatManager.newQueryStat(backend, table, countInput.getFilter());
 
       QBackendModuleDispatcher qBackendModuleDispatcher = new QBackendModuleDispatcher();
@@ -95,6 +110,11 @@ public class CountAction
 
       QueryStatManager.getInstance().add(queryStat);
 
+      if(queryResultCacheLookup != null)
+      {
+         queryResultCacheLookup.putCountOutput(countOutput);
+      }
+
       return countOutput;
    }
 
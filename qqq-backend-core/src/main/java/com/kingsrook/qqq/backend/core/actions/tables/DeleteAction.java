@@ -39,7 +39,9 @@ import com.kingsrook.qqq.backend.core.actions.customizers.QCodeLoader;
 import com.kingsrook.qqq.backend.core.actions.customizers.TableCustomizerInterface;
 import com.kingsrook.qqq.backend.core.actions.customizers.TableCustomizers;
 import com.kingsrook.qqq.backend.core.actions.interfaces.DeleteInterface;
+import com.kingsrook.qqq.backend.core.actions.tables.helpers.QueryResultCache;
 import com.kingsrook.qqq.backend.core.actions.tables.helpers.ValidateRecordSecurityLockHelper;
+import com.kingsrook.qqq.backend.core.actions.values.PossibleValueTranslationCache;
 import com.kingsrook.qqq.backend.core.context.QContext;
 import com.kingsrook.qqq.backend.core.exceptions.QException;
 import com.kingsrook.qqq.backend.core.logging.LogPair;
@@ -230,6 +232,13 @@ public class DeleteAction
          }
       }
 
+      /////////////////////////////////////////////////////////////////////////////
+      // drop any shared possible-value labels and cached query results that may //
+      // be based on this table's records, now that they've changed              //
+      /////////////////////////////////////////////////////////////////////////////
+      PossibleValueTranslationCache.invalidateTable(QContext.getQInstance(), deleteInput.getTableName(), deleteInput.getTransaction());
+      QueryResultCache.invalidateTable(QContext.getQInstance(), deleteInput.getTableName(), deleteInput.getTransaction());
+
       ////////////////////////////////////////
       // delete associations, if applicable //
       ////////////////////////////////////////
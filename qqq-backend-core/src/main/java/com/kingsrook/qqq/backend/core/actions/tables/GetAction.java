@@ -24,10 +24,14 @@ package com.kingsrook.qqq.backend.core.actions.tables;
 
 import java.io.Serializable;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
 import com.kingsrook.qqq.backend.core.actions.ActionHelper;
 import com.kingsrook.qqq.backend.core.actions.customizers.QCodeLoader;
 import com.kingsrook.qqq.backend.core.actions.customizers.TableCustomizerInterface;
@@ -53,12 +57,14 @@ import com.kingsrook.qqq.backend.core.model.metadata.fields.AdornmentType;
 import com.kingsrook.qqq.backend.core.model.metadata.fields.FieldBehavior;
 import com.kingsrook.qqq.backend.core.model.metadata.fields.FieldFilterBehavior;
 import com.kingsrook.qqq.backend.core.model.metadata.fields.QFieldMetaData;
+import com.kingsrook.qqq.backend.core.model.metadata.tables.Capability;
 import com.kingsrook.qqq.backend.core.model.metadata.tables.QTableMetaData;
 import com.kingsrook.qqq.backend.core.modules.backend.QBackendModuleDispatcher;
 import com.kingsrook.qqq.backend.core.modules.backend.QBackendModuleInterface;
 import com.kingsrook.qqq.backend.core.utils.CollectionUtils;
 import com.kingsrook.qqq.backend.core.utils.ObjectUtils;
 import com.kingsrook.qqq.backend.core.utils.Pair;
+import com.kingsrook.qqq.backend.core.utils.ValueUtils;
 import com.kingsrook.qqq.backend.core.utils.memoization.Memoization;
 
 
@@ -70,6 +76,8 @@ public class GetAction
 {
    private static final QLogger LOG = QLogger.getLogger(GetAction.class);
 
+   private static int batchPageSize = 1000;
+
    private Optional<TableCustomizerInterface> postGetRecordCustomizer;
 
    private GetInput                 getInput;
@@ -84,6 +92,11 @@ public class GetAction
     *******************************************************************************/
    public GetOutput execute(GetInput getInput) throws QException
    {
+      if(getInput.getPrimaryKeys() != null || getInput.getUniqueKeys() != null)
+      {
+         return (executeBatch(getInput));
+      }
+
       ActionHelper.validateSession(getInput);
 
       QTableMetaData table = getInput.getTable();
@@ -266,6 +279,258 @@ public class GetAction
 
 
 
+   /*******************************************************************************
+    ** Get the records for many primary keys (or unique keys) at once - e.g., in
+    ** place of a loop of single gets.  Keys are de-duplicated and fetched with
+    ** paged IN (or OR'ed unique-key) queries - so, for a CacheOf table, misses are
+    ** filled from the source table one page at a time, rather than one record at a
+    ** time.  Tables whose backend can't query fall back to a get per key.
+    **
+    ** The output's records list has one element per input key, in input order -
+    ** with null for each key whose record wasn't found.
+    *******************************************************************************/
+   public GetOutput executeBatch(GetInput getInput) throws QException
+   {
+      ActionHelper.validateSession(getInput);
+
+      QTableMetaData table = getInput.getTable();
+      if(table == null)
+      {
+         throw (new QException("Requested to Get records from an unrecognized table: " + getInput.getTableName()));
+      }
+      table = TableMetaDataPersonalizerAction.execute(getInput);
+      getInput.setTableMetaData(table);
+
+      /////////////////////////////////////////////////////////////////////////////////
+      // figure out the key fields, and build the key (in the field's type, and with //
+      // any field filter behaviors applied) for each element of the input           //
+      /////////////////////////////////////////////////////////////////////////////////
+      List<String>             keyFieldNames;
+      List<List<Serializable>> keys = new ArrayList<>();
+      if(getInput.getPrimaryKeys() != null)
+      {
+         keyFieldNames = List.of(table.getPrimaryKeyField());
+         for(Serializable primaryKey : getInput.getPrimaryKeys())
+         {
+            keys.add(primaryKey == null ? null : Collections.singletonList(getBatchKeyValue(table, table.getPrimaryKeyField(), primaryKey)));
+         }
+      }
+      else
+      {
+         keyFieldNames = null;
+         for(Map<String, Serializable> uniqueKey : getInput.getUniqueKeys())
+         {
+            if(uniqueKey == null)
+            {
+               keys.add(null);
+               continue;
+            }
+
+            if(keyFieldNames == null)
+            {
+               keyFieldNames = new ArrayList<>(uniqueKey.keySet());
+            }
+            else if(!new HashSet<>(keyFieldNames).equals(uniqueKey.keySet()))
+            {
+               throw (new QException("All unique keys in a batch get must be for the same fields (found " + keyFieldNames + " and " + uniqueKey.keySet() + ")."));
+            }
+
+            List<Serializable> key = new ArrayList<>();
+            for(String fieldName : keyFieldNames)
+            {
+               key.add(getBatchKeyValue(table, fieldName, uniqueKey.get(fieldName)));
+            }
+            keys.add(key);
+         }
+      }
+
+      Set<List<Serializable>> distinctKeys = new LinkedHashSet<>(keys);
+      distinctKeys.remove(null);
+
+      Map<List<Serializable>, QRecord> recordsByKey = new HashMap<>();
+
+      if(!distinctKeys.isEmpty())
+      {
+         if(table.isCapabilityEnabled(getInput.getBackend(), Capability.TABLE_QUERY))
+         {
+            for(List<List<Serializable>> page : CollectionUtils.getPages(distinctKeys, batchPageSize))
+            {
+               QueryInput queryInput = new QueryInput();
+               queryInput.setTableName(getInput.getTableName());
+               queryInput.setFilter(buildBatchFilter(keyFieldNames, page));
+               queryInput.setCommonParamsFrom(getInput);
+               queryInput.setInputSource(getInput.getInputSource());
+
+               QueryOutput queryOutput = new QueryAction().execute(queryInput);
+               for(QRecord record : queryOutput.getRecords())
+               {
+                  List<Serializable> key = new ArrayList<>();
+                  for(String fieldName : keyFieldNames)
+                  {
+                     key.add(getBatchKeyValue(table, fieldName, record.getValue(fieldName)));
+                  }
+                  recordsByKey.putIfAbsent(key, record);
+               }
+            }
+         }
+         else
+         {
+            for(List<Serializable> key : distinctKeys)
+            {
+               GetInput singleGetInput = new GetInput(getInput.getTableName());
+               singleGetInput.setCommonParamsFrom(getInput);
+               singleGetInput.setInputSource(getInput.getInputSource());
+               if(getInput.getPrimaryKeys() != null)
+               {
+                  singleGetInput.setPrimaryKey(key.get(0));
+               }
+               else
+               {
+                  Map<String, Serializable> uniqueKey = new HashMap<>();
+                  for(int i = 0; i < keyFieldNames.size(); i++)
+                  {
+                     uniqueKey.put(keyFieldNames.get(i), key.get(i));
+                  }
+                  singleGetInput.setUniqueKey(uniqueKey);
+               }
+
+               QRecord record = new GetAction().executeForRecord(singleGetInput);
+               if(record != null)
+               {
+                  recordsByKey.put(key, record);
+               }
+            }
+         }
+      }
+
+      ////////////////////////////////////////////////////////////////////////////////
+      // put the records in input order - with a copy of the record for any repeats //
+      // of a key, so callers can change each element independently                 //
+      ////////////////////////////////////////////////////////////////////////////////
+      List<QRecord>           records  = new ArrayList<>();
+      Set<List<Serializable>> usedKeys = new HashSet<>();
+      for(List<Serializable> key : keys)
+      {
+         QRecord record = key == null ? null : recordsByKey.get(key);
+         if(record != null && !usedKeys.add(key))
+         {
+            record = new QRecord(record);
+         }
+         records.add(record);
+      }
+
+      return (new GetOutput().withRecords(records));
+   }
+
+
+
+   /*******************************************************************************
+    ** shorthand way to call for a batch get, when you just want the output records.
+    *******************************************************************************/
+   public List<QRecord> executeForRecords(GetInput getInput) throws QException
+   {
+      return (executeBatch(getInput).getRecords());
+   }
+
+
+
+   /*******************************************************************************
+    ** get a value for a key in a batch get - in the field's type (so input keys
+    ** match the values in found records), after any field filter behaviors.
+    *******************************************************************************/
+   private Serializable getBatchKeyValue(QTableMetaData table, String fieldName, Serializable value)
+   {
+      QFieldMetaData field = table.getFields().get(fieldName);
+      if(field == null || value == null)
+      {
+         return (value);
+      }
+
+      try
+      {
+         for(FieldFilterBehavior<?> fieldFilterBehavior : CollectionUtils.nonNullList(getFieldFilterBehaviors(table, fieldName)))
+         {
+            QFilterCriteria criteria        = new QFilterCriteria(fieldName, QCriteriaOperator.EQUALS, value);
+            QFilterCriteria updatedCriteria = ValueBehaviorApplier.apply(criteria, QContext.getQInstance(), table, field, fieldFilterBehavior);
+            value = updatedCriteria.getValues().get(0);
+         }
+
+         return (ValueUtils.getValueAsFieldType(field.getType(), value));
+      }
+      catch(Exception e)
+      {
+         //////////////////////////////////////////////////////////////////////////
+         // a value that can't be converted just won't match any record - that's //
+         // the same as what a single get would find for it, so use it as-is     //
+         //////////////////////////////////////////////////////////////////////////
+         return (value);
+      }
+   }
+
+
+
+   /*******************************************************************************
+    ** build the filter for one page of a batch get:  an IN for a single key field
+    ** (unless a key is null), else an OR of sub-filters, one per key (which is what
+    ** QueryActionCacheHelper expects for a multi-field unique key).
+    *******************************************************************************/
+   private static QQueryFilter buildBatchFilter(List<String> keyFieldNames, List<List<Serializable>> keys)
+   {
+      QQueryFilter filter = new QQueryFilter();
+      if(keyFieldNames.size() == 1 && keys.stream().noneMatch(key -> key.get(0) == null))
+      {
+         List<Serializable> values = new ArrayList<>();
+         for(List<Serializable> key : keys)
+         {
+            values.add(key.get(0));
+         }
+
+         filter.addCriteria(new QFilterCriteria(keyFieldNames.get(0), QCriteriaOperator.IN, values));
+         return (filter);
+      }
+
+      filter.setBooleanOperator(QQueryFilter.BooleanOperator.OR);
+      for(List<Serializable> key : keys)
+      {
+         QQueryFilter subFilter = new QQueryFilter();
+         filter.addSubFilter(subFilter);
+         for(int i = 0; i < keyFieldNames.size(); i++)
+         {
+            if(key.get(i) == null)
+            {
+               subFilter.addCriteria(new QFilterCriteria(keyFieldNames.get(i), QCriteriaOperator.IS_BLANK));
+            }
+            else
+            {
+               subFilter.addCriteria(new QFilterCriteria(keyFieldNames.get(i), QCriteriaOperator.EQUALS, key.get(i)));
+            }
+         }
+      }
+      return (filter);
+   }
+
+
+
+   /*******************************************************************************
+    ** Getter for batchPageSize
+    *******************************************************************************/
+   public static int getBatchPageSize()
+   {
+      return (batchPageSize);
+   }
+
+
+
+   /*******************************************************************************
+    ** Setter for batchPageSize - the max number of keys per query in a batch get.
+    *******************************************************************************/
+   public static void setBatchPageSize(int batchPageSize)
+   {
+      GetAction.batchPageSize = batchPageSize;
+   }
+
+
+
    /*******************************************************************************
     ** Run a GetAction by using the QueryAction instead (e.g., with a filter made
     ** from the pkey/ukey, and returning the single record if found).
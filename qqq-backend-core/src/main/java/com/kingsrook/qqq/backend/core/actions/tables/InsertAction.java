@@ -43,8 +43,10 @@ import com.kingsrook.qqq.backend.core.actions.customizers.TableCustomizerInterfa
 import com.kingsrook.qqq.backend.core.actions.customizers.TableCustomizers;
 import com.kingsrook.qqq.backend.core.actions.interfaces.InsertInterface;
 import com.kingsrook.qqq.backend.core.actions.metadata.personalization.TableMetaDataPersonalizerAction;
+import com.kingsrook.qqq.backend.core.actions.tables.helpers.QueryResultCache;
 import com.kingsrook.qqq.backend.core.actions.tables.helpers.UniqueKeyHelper;
 import com.kingsrook.qqq.backend.core.actions.tables.helpers.ValidateRecordSecurityLockHelper;
+import com.kingsrook.qqq.backend.core.actions.values.PossibleValueTranslationCache;
 import com.kingsrook.qqq.backend.core.actions.values.ValueBehaviorApplier;
 import com.kingsrook.qqq.backend.core.context.QContext;
 import com.kingsrook.qqq.backend.core.exceptions.QException;
@@ -157,6 +159,13 @@ public class InsertAction extends AbstractQActionFunction<InsertInput, InsertOut
          LOG.info("Errors in insertAction", logPair("tableName", table.getName()), logPair("errorCount", errors.size()), errors.size() < 10 ? logPair("errors", errors) : logPair("first10Errors", errors.subList(0, 10)));
       }
 
+      /////////////////////////////////////////////////////////////////////////////
+      // drop any shared possible-value labels and cached query results that may //
+      // be based on this table's records, now that they've changed              //
+      /////////////////////////////////////////////////////////////////////////////
+      PossibleValueTranslationCache.invalidateTable(QContext.getQInstance(), table.getName(), insertInput.getTransaction());
+      QueryResultCache.invalidateTable(QContext.getQInstance(), table.getName(), insertInput.getTransaction());
+
       //////////////////////////////////////////////////
       // insert any associations in the input records //
       //////////////////////////////////////////////////
@@ -504,7 +513,7 @@ public class InsertAction extends AbstractQActionFunction<InsertInput, InsertOut
                      {
                         try
                         {
-                           inputRecord.getErrors().add(error);
+                           inputRecord.addError(error);
                         }
                         catch(Exception e)
                         {
@@ -513,7 +522,7 @@ public class InsertAction extends AbstractQActionFunction<InsertInput, InsertOut
                            // replace list with mutable one (array) and re-add //
                            //////////////////////////////////////////////////////
                            inputRecord.setErrors(new ArrayList<>(inputRecord.getErrors()));
-                           inputRecord.getErrors().add(error);
+                           inputRecord.addError(error);
                         }
                      }
                   }
@@ -544,7 +553,7 @@ public class InsertAction extends AbstractQActionFunction<InsertInput, InsertOut
                      {
                         try
                         {
-                           inputRecord.getWarnings().add(warning);
+                           inputRecord.addWarning(warning);
                         }
                         catch(Exception e)
                         {
@@ -553,7 +562,7 @@ public class InsertAction extends AbstractQActionFunction<InsertInput, InsertOut
                            // replace list with mutable one (array) and re-add //
                            /////////////////////////////////////////////////////
                            inputRecord.setWarnings(new ArrayList<>(inputRecord.getWarnings()));
-                           inputRecord.getWarnings().add(warning);
+                           inputRecord.addWarning(warning);
                         }
                      }
                   }
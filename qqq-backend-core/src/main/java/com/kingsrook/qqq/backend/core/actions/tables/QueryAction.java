@@ -41,6 +41,7 @@ import com.kingsrook.qqq.backend.core.actions.reporting.BufferedRecordPipe;
 import com.kingsrook.qqq.backend.core.actions.reporting.RecordPipeBufferedWrapper;
 import com.kingsrook.qqq.backend.core.actions.tables.helpers.FilterValidationHelper;
 import com.kingsrook.qqq.backend.core.actions.tables.helpers.QueryActionCacheHelper;
+import com.kingsrook.qqq.backend.core.actions.tables.helpers.QueryResultCache;
 import com.kingsrook.qqq.backend.core.actions.tables.helpers.QueryStatManager;
 import com.kingsrook.qqq.backend.core.actions.tables.helpers.SelectionValidationHelper;
 import com.kingsrook.qqq.backend.core.actions.values.QPossibleValueTranslator;
@@ -134,6 +135,24 @@ public class QueryAction
       ////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
       queryInput.setFilter(ValueBehaviorApplier.applyFieldBehaviorsToFilter(QContext.getQInstance(), table, queryInput.getFilter(), Collections.emptySet()));
 
+      ///////////////////////////////////////////////////////////////////////////
+      // if the table caches query results, and this input can use that, then  //
+      // the backend records from an earlier identical query can be used, in   //
+      // place of running the query (though without a QueryStat, as no backend //
+      // query is run) - still running post-record actions on them, for this   //
+      // session.                                                              //
+      ///////////////////////////////////////////////////////////////////////////
+      QueryResultCache.Lookup queryResultCacheLookup = QueryResultCache.forQuery(queryInput);
+      if(queryResultCacheLookup != null)
+      {
+         QueryOutput cachedOutput = queryResultCacheLookup.getQueryOutput(queryInput);
+         if(cachedOutput != null)
+         {
+            postRecordActions(cachedOutput.getRecords());
+            return (cachedOutput);
+         }
+      }
+
       QueryStat queryStat = QueryStatManager.newQueryStat(backend, table, queryInput.getFilter());
 
       QBackendModuleDispatcher qBackendModuleDispatcher = new QBackendModuleDispatcher();
@@ -158,6 +177,15 @@ public class QueryAction
          bufferedRecordPipe.finalFlush();
       }
 
+      ////////////////////////////////////////////////////////////////////
+      // cache (a copy of) the backend's records - before post-record   //
+      // actions, which may depend on the session (e.g., translations). //
+      ////////////////////////////////////////////////////////////////////
+      if(queryResultCacheLookup != null)
+      {
+         queryResultCacheLookup.putQueryOutput(queryOutput);
+      }
+
       if(queryInput.getRecordPipe() == null)
       {
          postRecordActions(queryOutput.getRecords());
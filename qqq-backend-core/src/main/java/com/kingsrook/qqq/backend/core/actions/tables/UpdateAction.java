@@ -40,7 +40,9 @@ import com.kingsrook.qqq.backend.core.actions.customizers.TableCustomizerInterfa
 import com.kingsrook.qqq.backend.core.actions.customizers.TableCustomizers;
 import com.kingsrook.qqq.backend.core.actions.interfaces.UpdateInterface;
 import com.kingsrook.qqq.backend.core.actions.metadata.personalization.TableMetaDataPersonalizerAction;
+import com.kingsrook.qqq.backend.core.actions.tables.helpers.QueryResultCache;
 import com.kingsrook.qqq.backend.core.actions.tables.helpers.ValidateRecordSecurityLockHelper;
+import com.kingsrook.qqq.backend.core.actions.values.PossibleValueTranslationCache;
 import com.kingsrook.qqq.backend.core.actions.values.ValueBehaviorApplier;
 import com.kingsrook.qqq.backend.core.context.QContext;
 import com.kingsrook.qqq.backend.core.exceptions.QException;
@@ -182,6 +184,13 @@ public class UpdateAction
          LOG.info("Errors in updateAction", logPair("tableName", updateInput.getTableName()), logPair("errorCount", errors.size()), errors.size() < 10 ? logPair("errors", errors) : logPair("first10Errors", errors.subList(0, 10)));
       }
 
+      /////////////////////////////////////////////////////////////////////////////
+      // drop any shared possible-value labels and cached query results that may //
+      // be based on this table's records, now that they've changed              //
+      /////////////////////////////////////////////////////////////////////////////
+      PossibleValueTranslationCache.invalidateTable(QContext.getQInstance(), updateInput.getTableName(), updateInput.getTransaction());
+      QueryResultCache.invalidateTable(QContext.getQInstance(), updateInput.getTableName(), updateInput.getTransaction());
+
       /////////////////////////////////////////////////////////////////////////////////////
       // update (inserting and deleting as needed) any associations in the input records //
       /////////////////////////////////////////////////////////////////////////////////////
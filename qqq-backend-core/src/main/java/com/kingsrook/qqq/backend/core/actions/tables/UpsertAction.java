@@ -0,0 +1,478 @@
+/*
+ * QQQ - Low-code Application Framework for Engineers.
+ * Copyright (C) 2021-2024.  Kingsrook, LLC
+ * 651 N Broad St Ste 205 # 6917 | Middletown DE 19709 | United States
+ * contact@kingsrook.com
+ * https://github.com/Kingsrook/
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+
+package com.kingsrook.qqq.backend.core.actions.tables;
+
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import com.kingsrook.qqq.backend.core.actions.AbstractQActionFunction;
+import com.kingsrook.qqq.backend.core.actions.ActionHelper;
+import com.kingsrook.qqq.backend.core.actions.QBackendTransaction;
+import com.kingsrook.qqq.backend.core.actions.audits.DMLAuditAction;
+import com.kingsrook.qqq.backend.core.actions.customizers.QCodeLoader;
+import com.kingsrook.qqq.backend.core.actions.customizers.TableCustomizers;
+import com.kingsrook.qqq.backend.core.actions.interfaces.UpsertInterface;
+import com.kingsrook.qqq.backend.core.actions.metadata.personalization.TableMetaDataPersonalizerAction;
+import com.kingsrook.qqq.backend.core.actions.tables.helpers.QueryResultCache;
+import com.kingsrook.qqq.backend.core.actions.tables.helpers.UniqueKeyHelper;
+import com.kingsrook.qqq.backend.core.actions.values.PossibleValueTranslationCache;
+import com.kingsrook.qqq.backend.core.actions.values.ValueBehaviorApplier;
+import com.kingsrook.qqq.backend.core.context.QContext;
+import com.kingsrook.qqq.backend.core.exceptions.QException;
+import com.kingsrook.qqq.backend.core.logging.QLogger;
+import com.kingsrook.qqq.backend.core.model.actions.tables.insert.InsertInput;
+import com.kingsrook.qqq.backend.core.model.actions.tables.insert.InsertOutput;
+import com.kingsrook.qqq.backend.core.model.actions.tables.update.UpdateInput;
+import com.kingsrook.qqq.backend.core.model.actions.tables.update.UpdateOutput;
+import com.kingsrook.qqq.backend.core.model.actions.tables.upsert.UpsertInput;
+import com.kingsrook.qqq.backend.core.model.actions.tables.upsert.UpsertOutput;
+import com.kingsrook.qqq.backend.core.model.data.QRecord;
+import com.kingsrook.qqq.backend.core.model.metadata.audits.AuditLevel;
+import com.kingsrook.qqq.backend.core.model.metadata.tables.QTableMetaData;
+import com.kingsrook.qqq.backend.core.model.metadata.tables.UniqueKey;
+import com.kingsrook.qqq.backend.core.model.statusmessages.DuplicateKeyBadInputStatusMessage;
+import com.kingsrook.qqq.backend.core.modules.backend.QBackendModuleDispatcher;
+import com.kingsrook.qqq.backend.core.utils.CollectionUtils;
+import com.kingsrook.qqq.backend.core.utils.StringUtils;
+import static com.kingsrook.qqq.backend.core.logging.LogUtils.logPair;
+
+
+/*******************************************************************************
+ ** Action to do an "upsert" - e.g., insert records whose unique-key values
+ ** aren't in the table yet, and update the ones whose are.
+ **
+ ** If the table's backend has an UpsertInterface, and nothing about the table
+ ** needs to know, before writing, whether each record is an insert or an update
+ ** (audits, automations, record security locks, insert/update customizers,
+ ** associations, or other unique keys), then the backend does it natively - in
+ ** one statement per page, without first looking up existing keys.  Records are
+ ** validated as inserts (defaults, behaviors, required fields) - and when a key
+ ** already exists, only the fields the input gave (plus any that an update's
+ ** behaviors would set, e.g., a modify date) are updated.
+ **
+ ** Otherwise, existing keys are looked up, and the records are split into an
+ ** InsertAction and an UpdateAction - so everything those do still happens.
+ *******************************************************************************/
+public class UpsertAction extends AbstractQActionFunction<UpsertInput, UpsertOutput>
+{
+   private static final QLogger LOG = QLogger.getLogger(UpsertAction.class);
+
+   private static final List<TableCustomizers> INSERT_AND_UPDATE_CUSTOMIZERS = List.of(TableCustomizers.PRE_INSERT_RECORD, TableCustomizers.POST_INSERT_RECORD, TableCustomizers.PRE_UPDATE_RECORD, TableCustomizers.POST_UPDATE_RECORD);
+
+
+
+   /*******************************************************************************
+    **
+    *******************************************************************************/
+   @Override
+   public UpsertOutput execute(UpsertInput upsertInput) throws QException
+   {
+      ActionHelper.validateSession(upsertInput);
+
+      if(!StringUtils.hasContent(upsertInput.getTableName()))
+      {
+         throw (new QException("Table name was not specified in upsert input"));
+      }
+
+      QTableMetaData table = upsertInput.getTable();
+      if(table == null)
+      {
+         throw (new QException("Error:  Undefined table: " + upsertInput.getTableName()));
+      }
+      table = TableMetaDataPersonalizerAction.execute(upsertInput);
+      upsertInput.setTableMetaData(table);
+
+      UniqueKey uniqueKey = getUniqueKey(upsertInput, table);
+
+      if(CollectionUtils.nullSafeIsEmpty(upsertInput.getRecords()))
+      {
+         LOG.debug("Upsert request called with 0 records.  Returning with no-op", logPair("tableName", table.getName()));
+         return (new UpsertOutput().withRecords(new ArrayList<>()));
+      }
+
+      UpsertInterface upsertInterface = getBackendUpsertInterface(upsertInput, table, uniqueKey);
+      if(upsertInterface != null)
+      {
+         return (executeInBackend(upsertInput, table, uniqueKey, upsertInterface));
+      }
+
+      return (executeAsInsertAndUpdate(upsertInput, table, uniqueKey));
+   }
+
+
+
+   /*******************************************************************************
+    ** the key from the input - else the table's unique key, if it has just one.
+    *******************************************************************************/
+   private UniqueKey getUniqueKey(UpsertInput upsertInput, QTableMetaData table) throws QException
+   {
+      if(upsertInput.getKey() != null)
+      {
+         return (upsertInput.getKey());
+      }
+
+      List<UniqueKey> uniqueKeys = CollectionUtils.nonNullList(table.getUniqueKeys());
+      if(uniqueKeys.size() != 1)
+      {
+         throw (new QException("A key must be given to upsert into table " + table.getName() + " (as it has " + uniqueKeys.size() + " unique keys)."));
+      }
+
+      return (uniqueKeys.get(0));
+   }
+
+
+
+   /*******************************************************************************
+    ** whether an upsert of this input would be done natively by the backend - e.g.,
+    ** for callers that know their records are new, and would rather the backend
+    ** resolve any races than look up existing keys first (as an insert does).
+    *******************************************************************************/
+   public static boolean willUseBackendUpsert(UpsertInput upsertInput) throws QException
+   {
+      QTableMetaData table = upsertInput.getTable();
+      if(table == null || CollectionUtils.nullSafeIsEmpty(upsertInput.getRecords()))
+      {
+         return (false);
+      }
+
+      UniqueKey uniqueKey = upsertInput.getKey();
+      if(uniqueKey == null)
+      {
+         List<UniqueKey> uniqueKeys = CollectionUtils.nonNullList(table.getUniqueKeys());
+         if(uniqueKeys.size() != 1)
+         {
+            return (false);
+         }
+         uniqueKey = uniqueKeys.get(0);
+      }
+
+      return (getBackendUpsertInterface(upsertInput, table, uniqueKey) != null);
+   }
+
+
+
+   /*******************************************************************************
+    ** get the backend's upsert interface - if it has one, and if the table & input
+    ** allow it to be used.
+    *******************************************************************************/
+   private static UpsertInterface getBackendUpsertInterface(UpsertInput upsertInput, QTableMetaData table, UniqueKey uniqueKey) throws QException
+   {
+      if(!mayUseBackendUpsert(upsertInput, table, uniqueKey))
+      {
+         return (null);
+      }
+
+      try
+      {
+         return (new QBackendModuleDispatcher().getQBackendModule(upsertInput.getBackend()).getUpsertInterface());
+      }
+      catch(IllegalStateException ise)
+      {
+         ////////////////////////////////////////////////////////////////////////////
+         // modules that don't implement upsert get done via insert & update below //
+         ////////////////////////////////////////////////////////////////////////////
+         return (null);
+      }
+   }
+
+
+
+   /*******************************************************************************
+    ** a backend upsert doesn't tell us which records were inserted vs. updated,
+    ** nor give us the old values of updated records - so it can only be used if
+    ** nothing needs those.  Also, native upserts (e.g., mysql's ON DUPLICATE KEY)
+    ** react to any unique key (including the primary key) - so the input key must
+    ** be the table's only unique key, and records can't have primary keys.
+    *******************************************************************************/
+   static boolean mayUseBackendUpsert(UpsertInput upsertInput, QTableMetaData table, UniqueKey uniqueKey)
+   {
+      if(!upsertInput.getOmitDmlAudit() && !AuditLevel.NONE.equals(DMLAuditAction.getAuditLevel(upsertInput)))
+      {
+         return (false);
+      }
+
+      if(table.getAutomationDetails() != null || CollectionUtils.nullSafeHasContents(table.getRecordSecurityLocks()))
+      {
+         return (false);
+      }
+
+      if(!isTablesOnlyUniqueKey(table, uniqueKey))
+      {
+         return (false);
+      }
+
+      for(TableCustomizers customizer : INSERT_AND_UPDATE_CUSTOMIZERS)
+      {
+         if(QCodeLoader.getTableCustomizer(table, customizer.getRole()).isPresent() || !QContext.getQInstance().getTableCustomizers(customizer).isEmpty())
+         {
+            return (false);
+         }
+      }
+
+      for(QRecord record : upsertInput.getRecords())
+      {
+         if(record.getValue(table.getPrimaryKeyField()) != null || CollectionUtils.nullSafeHasContents(record.getAssociatedRecords()))
+         {
+            return (false);
+         }
+      }
+
+      return (true);
+   }
+
+
+
+   /*******************************************************************************
+    **
+    *******************************************************************************/
+   private static boolean isTablesOnlyUniqueKey(QTableMetaData table, UniqueKey uniqueKey)
+   {
+      List<UniqueKey> uniqueKeys = CollectionUtils.nonNullList(table.getUniqueKeys());
+      return (uniqueKeys.size() == 1 && new HashSet<>(uniqueKeys.get(0).getFieldNames()).equals(new HashSet<>(uniqueKey.getFieldNames())));
+   }
+
+
+
+   /*******************************************************************************
+    ** validate the records as inserts, then have the backend upsert the valid ones
+    ** (in groups that update the same set of fields).
+    *******************************************************************************/
+   private UpsertOutput executeInBackend(UpsertInput upsertInput, QTableMetaData table, UniqueKey uniqueKey, UpsertInterface upsertInterface) throws QException
+   {
+      List<QRecord> records = upsertInput.getRecords();
+
+      ///////////////////////////////////////////////////////////////////////////////
+      // figure out what each record would set if it's an update - by applying the //
+      // update behaviors to a copy of it (before insert defaults & behaviors are  //
+      // applied to the record itself, so that those aren't among the fields)      //
+      ///////////////////////////////////////////////////////////////////////////////
+      List<Set<String>> fieldNamesToUpdate = new ArrayList<>();
+      if(upsertInput.getFieldNamesToUpdate() == null)
+      {
+         List<QRecord> recordsAsUpdates = new ArrayList<>();
+         for(QRecord record : records)
+         {
+            recordsAsUpdates.add(new QRecord(record));
+         }
+         ValueBehaviorApplier.applyFieldBehaviors(ValueBehaviorApplier.Action.UPDATE, QContext.getQInstance(), table, recordsAsUpdates, null);
+
+         for(QRecord recordAsUpdate : recordsAsUpdates)
+         {
+            Set<String> fieldNames = new HashSet<>(recordAsUpdate.getValues().keySet());
+            fieldNames.remove(table.getPrimaryKeyField());
+            uniqueKey.getFieldNames().forEach(fieldNames::remove);
+            fieldNamesToUpdate.add(fieldNames);
+         }
+      }
+      else
+      {
+         records.forEach(r -> fieldNamesToUpdate.add(upsertInput.getFieldNamesToUpdate()));
+      }
+
+      InsertInput insertInput = new InsertInput(table.getName());
+      insertInput.setRecords(records);
+      insertInput.setTransaction(upsertInput.getTransaction());
+      insertInput.setInputSource(upsertInput.getInputSource());
+      insertInput.setSkipUniqueKeyCheck(true);
+      new InsertAction().performValidations(insertInput, false, false);
+
+      //////////////////////////////////////////////////////////////////////////////
+      // group the valid records by the fields they update, and upsert each group //
+      //////////////////////////////////////////////////////////////////////////////
+      Map<Set<String>, List<QRecord>> recordsByFieldNamesToUpdate = new LinkedHashMap<>();
+      for(int i = 0; i < records.size(); i++)
+      {
+         if(CollectionUtils.nullSafeIsEmpty(records.get(i).getErrors()))
+         {
+            recordsByFieldNamesToUpdate.computeIfAbsent(fieldNamesToUpdate.get(i), k -> new ArrayList<>()).add(records.get(i));
+         }
+      }
+
+      Map<QRecord, QRecord> outputRecordsByInputRecord = new IdentityHashMap<>();
+      for(Map.Entry<Set<String>, List<QRecord>> entry : recordsByFieldNamesToUpdate.entrySet())
+      {
+         UpsertInput backendInput = new UpsertInput(table.getName())
+            .withKey(uniqueKey)
+            .withRecords(entry.getValue())
+            .withFieldNamesToUpdate(entry.getKey())
+            .withTransaction(upsertInput.getTransaction())
+            .withOmitDmlAudit(upsertInput.getOmitDmlAudit());
+         backendInput.setTableMetaData(table);
+         backendInput.setInputSource(upsertInput.getInputSource());
+
+         List<QRecord> backendOutputRecords = CollectionUtils.nonNullList(upsertInterface.execute(backendInput).getRecords());
+         for(int i = 0; i < entry.getValue().size(); i++)
+         {
+            outputRecordsByInputRecord.put(entry.getValue().get(i), i < backendOutputRecords.size() ? backendOutputRecords.get(i) : entry.getValue().get(i));
+         }
+      }
+
+      List<QRecord> outputRecords = new ArrayList<>();
+      for(QRecord record : records)
+      {
+         outputRecords.add(outputRecordsByInputRecord.getOrDefault(record, record));
+      }
+
+      invalidateCaches(table, upsertInput.getTransaction());
+      return (new UpsertOutput().withRecords(outputRecords));
+   }
+
+
+
+   /*******************************************************************************
+    ** look up which keys exist, then insert the records that are new, and update
+    ** the ones that aren't - returning output records in the same order as the
+    ** input records.
+    *******************************************************************************/
+   private UpsertOutput executeAsInsertAndUpdate(UpsertInput upsertInput, QTableMetaData table, UniqueKey uniqueKey) throws QException
+   {
+      String                                primaryKeyField = table.getPrimaryKeyField();
+      List<QRecord>                         records         = upsertInput.getRecords();
+      Map<List<Serializable>, Serializable> existingKeys    = UniqueKeyHelper.getExistingKeys(upsertInput.getTransaction(), table, records, uniqueKey);
+
+      QRecord[]               outputRecords = records.toArray(new QRecord[0]);
+      List<QRecord>           insertList    = new ArrayList<>();
+      List<Integer>           insertIndexes = new ArrayList<>();
+      List<QRecord>           updateList    = new ArrayList<>();
+      List<Integer>           updateIndexes = new ArrayList<>();
+      Set<List<Serializable>> newKeys       = new HashSet<>();
+      for(int i = 0; i < records.size(); i++)
+      {
+         QRecord                      record    = records.get(i);
+         Optional<List<Serializable>> keyValues = UniqueKeyHelper.getKeyValues(table, uniqueKey, record);
+         if(keyValues.isPresent() && existingKeys.containsKey(keyValues.get()))
+         {
+            updateList.add(buildUpdateRecord(upsertInput, primaryKeyField, existingKeys.get(keyValues.get()), record));
+            updateIndexes.add(i);
+         }
+         else if(keyValues.isPresent() && !newKeys.add(keyValues.get()))
+         {
+            ///////////////////////////////////////////////////////////////////////////
+            // a key that's new to the table, but repeated in the input, can only be //
+            // inserted once (as the insert action's own unique key check would say) //
+            ///////////////////////////////////////////////////////////////////////////
+            record.addError(new DuplicateKeyBadInputStatusMessage("Another record already exists with this " + uniqueKey.getDescription(table)));
+         }
+         else
+         {
+            insertList.add(record);
+            insertIndexes.add(i);
+         }
+      }
+
+      UpsertOutput upsertOutput = new UpsertOutput();
+
+      if(!insertList.isEmpty())
+      {
+         InsertInput insertInput = new InsertInput(table.getName());
+         insertInput.setRecords(insertList);
+         insertInput.setTransaction(upsertInput.getTransaction());
+         insertInput.setInputSource(upsertInput.getInputSource());
+         insertInput.setOmitDmlAudit(upsertInput.getOmitDmlAudit());
+
+         ////////////////////////////////////////////////////////////////////////////////
+         // if the upsert key is the table's only unique key, we've already checked it //
+         ////////////////////////////////////////////////////////////////////////////////
+         insertInput.setSkipUniqueKeyCheck(isTablesOnlyUniqueKey(table, uniqueKey));
+
+         InsertOutput insertOutput = new InsertAction().execute(insertInput);
+         putOutputRecords(outputRecords, insertIndexes, insertOutput.getRecords());
+         upsertOutput.setInsertOutput(insertOutput);
+      }
+
+      if(!updateList.isEmpty())
+      {
+         UpdateInput updateInput = new UpdateInput(table.getName());
+         updateInput.setRecords(updateList);
+         updateInput.setTransaction(upsertInput.getTransaction());
+         updateInput.setInputSource(upsertInput.getInputSource());
+         updateInput.setOmitDmlAudit(upsertInput.getOmitDmlAudit());
+
+         UpdateOutput updateOutput = new UpdateAction().execute(updateInput);
+         putOutputRecords(outputRecords, updateIndexes, updateOutput.getRecords());
+         upsertOutput.setUpdateOutput(updateOutput);
+      }
+
+      return (upsertOutput.withRecords(new ArrayList<>(Arrays.asList(outputRecords))));
+   }
+
+
+
+   /*******************************************************************************
+    ** put the output records from an insert or update into the slots (input
+    ** indexes) of the records that went into it.
+    *******************************************************************************/
+   private static void putOutputRecords(QRecord[] outputRecords, List<Integer> indexes, List<QRecord> actionOutputRecords)
+   {
+      List<QRecord> actionRecords = CollectionUtils.nonNullList(actionOutputRecords);
+      for(int i = 0; i < indexes.size() && i < actionRecords.size(); i++)
+      {
+         outputRecords[indexes.get(i)] = actionRecords.get(i);
+      }
+   }
+
+
+
+   /*******************************************************************************
+    ** the record to update for an input record whose key exists - with the
+    ** existing record's primary key, and just the fields to update (if given).
+    *******************************************************************************/
+   private QRecord buildUpdateRecord(UpsertInput upsertInput, String primaryKeyField, Serializable primaryKey, QRecord record)
+   {
+      if(upsertInput.getFieldNamesToUpdate() == null)
+      {
+         record.setValue(primaryKeyField, primaryKey);
+         return (record);
+      }
+
+      QRecord updateRecord = new QRecord().withTableName(record.getTableName()).withValue(primaryKeyField, primaryKey);
+      for(String fieldName : upsertInput.getFieldNamesToUpdate())
+      {
+         if(record.getValues().containsKey(fieldName))
+         {
+            updateRecord.setValue(fieldName, record.getValue(fieldName));
+         }
+      }
+      return (updateRecord);
+   }
+
+
+
+   /*******************************************************************************
+    ** (insert & update actions do this themselves)
+    *******************************************************************************/
+   private void invalidateCaches(QTableMetaData table, QBackendTransaction transaction)
+   {
+      PossibleValueTranslationCache.invalidateTable(QContext.getQInstance(), table.getName(), transaction);
+      QueryResultCache.invalidateTable(QContext.getQInstance(), table.getName(), transaction);
+   }
+
+}
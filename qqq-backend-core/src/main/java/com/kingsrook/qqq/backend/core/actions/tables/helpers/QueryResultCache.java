@@ -0,0 +1,760 @@
+/*
+ * QQQ - Low-code Application Framework for Engineers.
+ * Copyright (C) 2021-2024.  Kingsrook, LLC
+ * 651 N Broad St Ste 205 # 6917 | Middletown DE 19709 | United States
+ * contact@kingsrook.com
+ * https://github.com/Kingsrook/
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+
+package com.kingsrook.qqq.backend.core.actions.tables.helpers;
+
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.WeakHashMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Predicate;
+import com.kingsrook.qqq.backend.core.actions.QBackendTransaction;
+import com.kingsrook.qqq.backend.core.actions.metadata.personalization.TableMetaDataPersonalizerInterface;
+import com.kingsrook.qqq.backend.core.actions.values.PossibleValueTranslationCache;
+import com.kingsrook.qqq.backend.core.context.QContext;
+import com.kingsrook.qqq.backend.core.exceptions.QException;
+import com.kingsrook.qqq.backend.core.logging.QLogger;
+import com.kingsrook.qqq.backend.core.model.actions.AbstractTableActionInput;
+import com.kingsrook.qqq.backend.core.model.actions.tables.aggregate.AggregateInput;
+import com.kingsrook.qqq.backend.core.model.actions.tables.aggregate.AggregateOutput;
+import com.kingsrook.qqq.backend.core.model.actions.tables.aggregate.AggregateResult;
+import com.kingsrook.qqq.backend.core.model.actions.tables.count.CountInput;
+import com.kingsrook.qqq.backend.core.model.actions.tables.count.CountOutput;
+import com.kingsrook.qqq.backend.core.model.actions.tables.query.QFilterCriteria;
+import com.kingsrook.qqq.backend.core.model.actions.tables.query.QFilterOrderBy;
+import com.kingsrook.qqq.backend.core.model.actions.tables.query.QQueryFilter;
+import com.kingsrook.qqq.backend.core.model.actions.tables.query.QueryInput;
+import com.kingsrook.qqq.backend.core.model.actions.tables.query.QueryJoin;
+import com.kingsrook.qqq.backend.core.model.actions.tables.query.QueryOutput;
+import com.kingsrook.qqq.backend.core.model.data.QRecord;
+import com.kingsrook.qqq.backend.core.model.metadata.QBackendMetaData;
+import com.kingsrook.qqq.backend.core.model.metadata.QInstance;
+import com.kingsrook.qqq.backend.core.model.metadata.joins.QJoinMetaData;
+import com.kingsrook.qqq.backend.core.model.metadata.security.MultiRecordSecurityLock;
+import com.kingsrook.qqq.backend.core.model.metadata.security.RecordSecurityLock;
+import com.kingsrook.qqq.backend.core.model.metadata.tables.QTableMetaData;
+import com.kingsrook.qqq.backend.core.model.metadata.tables.cache.QueryResultCacheMetaData;
+import com.kingsrook.qqq.backend.core.model.session.QSession;
+import com.kingsrook.qqq.backend.core.utils.CollectionUtils;
+import com.kingsrook.qqq.backend.core.utils.JsonUtils;
+import com.kingsrook.qqq.backend.core.utils.QQueryFilterDeduper;
+import static com.kingsrook.qqq.backend.core.logging.LogUtils.logPair;
+
+
+/*******************************************************************************
+ ** Instance-wide cache of query, count and aggregate results, for tables with
+ ** QueryResultCacheMetaData (see there for details).  Used by QueryAction,
+ ** CountAction and AggregateAction:  each builds a Lookup for its input (null if
+ ** the input isn't cacheable - e.g., it's in a transaction, or streams to a
+ ** record pipe), returns a cached result from it if there is one, else runs the
+ ** query and puts its result into it.
+ **
+ ** Keys are built from the kind of action, the deduped filter, joins, and the
+ ** other options that change results - plus the security scope (see
+ ** PossibleValueTranslationCache.getSecurityScope) of every table involved.
+ **
+ ** Query results are cached as the backend returned them - before QueryAction's
+ ** post-record actions (customizer, possible value translations, display values,
+ ** associations, masking), which run again for every hit, for the session that
+ ** made the query.  A hit doesn't record a QueryStat (there's no backend query),
+ ** and tables that are caches of other tables (cacheOf) don't have their queries
+ ** cached, as QueryActionCacheHelper needs to see each one.
+ **
+ ** A write to a table drops all entries that read from it, and bumps a
+ ** generation counter for the table - so queries that started before the write
+ ** don't put (possibly stale) results back in the cache after it.  Writes in a
+ ** transaction do that again after it commits.
+ *******************************************************************************/
+public class QueryResultCache
+{
+   private static final QLogger LOG = QLogger.getLogger(QueryResultCache.class);
+
+   private static final Map<QInstance, QueryResultCache> caches = Collections.synchronizedMap(new WeakHashMap<>());
+
+   private final Map<String, Map<String, Entry>> entriesByTable   = new ConcurrentHashMap<>();
+   private final Map<String, AtomicLong>         tableGenerations = new ConcurrentHashMap<>();
+
+   private final LongAdder hitCount          = new LongAdder();
+   private final LongAdder missCount         = new LongAdder();
+   private final LongAdder evictionCount     = new LongAdder();
+   private final LongAdder invalidationCount = new LongAdder();
+
+
+
+   /*******************************************************************************
+    ** a cached result, when it expires, and all the tables it was read from.
+    *******************************************************************************/
+   private record Entry(Object result, long expiresAtMillis, Set<String> tableNames)
+   {
+   }
+
+
+
+   /*******************************************************************************
+    ** cached form of a count output
+    *******************************************************************************/
+   private record CountResult(Integer count, Integer distinctCount)
+   {
+   }
+
+
+
+   /*******************************************************************************
+    ** Get the cache for a QInstance.
+    *******************************************************************************/
+   public static QueryResultCache getCache(QInstance qInstance)
+   {
+      return (caches.computeIfAbsent(qInstance, i -> new QueryResultCache()));
+   }
+
+
+
+   /*******************************************************************************
+    ** Drop cached results that read from a table, because records in it were
+    ** written (if the instance has a cache) - now, and, if the write was in a
+    ** transaction, again after it commits - as until then, other threads still
+    ** see the old records, and so may have cached results from them.
+    *******************************************************************************/
+   public static void invalidateTable(QInstance qInstance, String tableName, QBackendTransaction transaction)
+   {
+      invalidateTable(qInstance, tableName);
+      if(transaction != null && qInstance != null)
+      {
+         transaction.addPostCommitAction(() -> invalidateTable(qInstance, tableName));
+      }
+   }
+
+
+
+   /*******************************************************************************
+    ** Drop cached results that read from a table (e.g., because records in it
+    ** were written) - if the instance has a cache.
+    *******************************************************************************/
+   public static void invalidateTable(QInstance qInstance, String tableName)
+   {
+      if(qInstance == null)
+      {
+         return;
+      }
+
+      QueryResultCache cache = caches.get(qInstance);
+      if(cache != null)
+      {
+         cache.invalidateTable(tableName);
+      }
+   }
+
+
+
+   /*******************************************************************************
+    ** Drop cached results that read from a table.
+    *******************************************************************************/
+   public void invalidateTable(String tableName)
+   {
+      getTableGeneration(tableName).incrementAndGet();
+
+      for(Map.Entry<String, Map<String, Entry>> tableEntries : entriesByTable.entrySet())
+      {
+         Map<String, Entry> entries    = tableEntries.getValue();
+         int                sizeBefore = entries.size();
+         if(tableEntries.getKey().equals(tableName))
+         {
+            entries.clear();
+         }
+         else
+         {
+            entries.values().removeIf(entry -> entry.tableNames().contains(tableName));
+         }
+         invalidationCount.add(sizeBefore - entries.size());
+      }
+   }
+
+
+
+   /*******************************************************************************
+    ** Drop all cached results.
+    *******************************************************************************/
+   public void clear()
+   {
+      for(AtomicLong generation : tableGenerations.values())
+      {
+         generation.incrementAndGet();
+      }
+      entriesByTable.clear();
+   }
+
+
+
+   /*******************************************************************************
+    ** Build a Lookup for a query - or null if it isn't cacheable.
+    *******************************************************************************/
+   public static Lookup forQuery(QueryInput queryInput)
+   {
+      QueryResultCache cache = getCacheIfCacheable(queryInput, QueryResultCacheMetaData::getCacheQueries);
+      if(cache == null || queryInput.getRecordPipe() != null || queryInput.getTransaction() != null)
+      {
+         return (null);
+      }
+
+      ///////////////////////////////////////////////////////////////////////////////
+      // tables that are caches of other tables need QueryActionCacheHelper to run //
+      // on every query (to check for & refresh stale records) - so don't cache.   //
+      ///////////////////////////////////////////////////////////////////////////////
+      if(queryInput.getTable().getCacheOf() != null)
+      {
+         return (null);
+      }
+
+      //////////////////////////////////////////////////////////////////////////////
+      // only the options that change what the backend returns are in the key -   //
+      // as the cached records are the backend's, from before QueryAction's post- //
+      // record actions (translations, display values, associations, masking).    //
+      //////////////////////////////////////////////////////////////////////////////
+      Lookup lookup = new Lookup(cache, queryInput, "query", queryInput.getFilter(), queryInput.getQueryJoins());
+      lookup.appendKeyPart("fieldNamesToInclude", queryInput.getFieldNamesToInclude() == null ? null : new TreeSet<>(queryInput.getFieldNamesToInclude()));
+      lookup.appendKeyPart("shouldFetchHeavyFields", queryInput.getShouldFetchHeavyFields());
+      lookup.appendKeyPart("selectDistinct", queryInput.getSelectDistinct());
+      return (lookup.finish());
+   }
+
+
+
+   /*******************************************************************************
+    ** Build a Lookup for a count - or null if it isn't cacheable.
+    *******************************************************************************/
+   public static Lookup forCount(CountInput countInput)
+   {
+      QueryResultCache cache = getCacheIfCacheable(countInput, QueryResultCacheMetaData::getCacheCounts);
+      if(cache == null || countInput.getTransaction() != null)
+      {
+         return (null);
+      }
+
+      Lookup lookup = new Lookup(cache, countInput, "count", countInput.getFilter(), countInput.getQueryJoins());
+      lookup.appendKeyPart("includeDistinctCount", countInput.getIncludeDistinctCount());
+      return (lookup.finish());
+   }
+
+
+
+   /*******************************************************************************
+    ** Build a Lookup for an aggregate - or null if it isn't cacheable.
+    *******************************************************************************/
+   public static Lookup forAggregate(AggregateInput aggregateInput)
+   {
+      QueryResultCache cache = getCacheIfCacheable(aggregateInput, QueryResultCacheMetaData::getCacheAggregates);
+      if(cache == null || aggregateInput.getTransaction() != null)
+      {
+         return (null);
+      }
+
+      Lookup lookup = new Lookup(cache, aggregateInput, "aggregate", aggregateInput.getFilter(), aggregateInput.getQueryJoins());
+      lookup.appendKeyPart("aggregates", JsonUtils.toJson(aggregateInput.getAggregates()));
+      lookup.appendKeyPart("groupBys", JsonUtils.toJson(aggregateInput.getGroupBys()));
+      lookup.appendKeyPart("limit", aggregateInput.getLimit());
+      return (lookup.finish());
+   }
+
+
+
+   /*******************************************************************************
+    ** get the instance's cache - if the input's table is set up for caching the
+    ** kind of action, and it isn't on a backend with variants.
+    *******************************************************************************/
+   private static QueryResultCache getCacheIfCacheable(AbstractTableActionInput input, Predicate<QueryResultCacheMetaData> kindCheck)
+   {
+      QTableMetaData table = input.getTable();
+      if(table == null || table.getQueryResultCache() == null)
+      {
+         return (null);
+      }
+
+      QueryResultCacheMetaData metaData = table.getQueryResultCache();
+      if(!kindCheck.test(metaData) || metaData.getTimeToLiveMillis() == null || metaData.getTimeToLiveMillis() <= 0)
+      {
+         return (null);
+      }
+
+      QBackendMetaData backend = input.getBackend();
+      if(backend != null && Boolean.TRUE.equals(backend.getUsesVariants()))
+      {
+         return (null);
+      }
+
+      return (getCache(QContext.getQInstance()));
+   }
+
+
+
+   /*******************************************************************************
+    ** The key for one input, the tables it reads from, and their generations as of
+    ** when the lookup was built.
+    *******************************************************************************/
+   public static class Lookup
+   {
+      private final QueryResultCache  cache;
+      private final QTableMetaData    table;
+      private final StringBuilder     key         = new StringBuilder();
+      private final Set<String>       tableNames  = new TreeSet<>();
+      private final Map<String, Long> generations = new HashMap<>();
+
+
+
+      /*******************************************************************************
+       ** Constructor
+       *******************************************************************************/
+      private Lookup(QueryResultCache cache, AbstractTableActionInput input, String kind, QQueryFilter filter, List<QueryJoin> queryJoins)
+      {
+         this.cache = cache;
+         this.table = input.getTable();
+
+         tableNames.add(table.getName());
+         addSecurityLockTableNames(table.getRecordSecurityLocks());
+
+         key.append(kind);
+         appendKeyPart("filter", filter == null ? null : JsonUtils.toJson(QQueryFilterDeduper.dedupeFilter(filter)));
+         addFilterTableNames(filter);
+
+         for(QueryJoin queryJoin : CollectionUtils.nonNullList(queryJoins))
+         {
+            QJoinMetaData joinMetaData = queryJoin.getJoinMetaData();
+            appendKeyPart("join", queryJoin.getJoinTable() + "/" + queryJoin.getAlias() + "/" + queryJoin.getBaseTableOrAlias() + "/" + queryJoin.getType() + "/" + queryJoin.getSelect() + "/" + (joinMetaData == null ? null : joinMetaData.getName()));
+            addTableName(queryJoin.getJoinTable());
+            if(joinMetaData != null)
+            {
+               addTableName(joinMetaData.getLeftTable());
+               addTableName(joinMetaData.getRightTable());
+            }
+         }
+      }
+
+
+
+      /*******************************************************************************
+       ** add the security scope (for all tables involved) and any personalization
+       ** to the key, and capture table generations.
+       *******************************************************************************/
+      private Lookup finish()
+      {
+         for(String tableName : tableNames)
+         {
+            appendKeyPart("scope:" + tableName, PossibleValueTranslationCache.getSecurityScope(tableName));
+            generations.put(tableName, cache.getTableGeneration(tableName).get());
+         }
+
+         //////////////////////////////////////////////////////////////////////////
+         // if tables get personalized, then results may be specific to the user //
+         //////////////////////////////////////////////////////////////////////////
+         if(QContext.getQInstance().getSupplementalCustomizer(TableMetaDataPersonalizerInterface.CUSTOMIZER_TYPE) != null)
+         {
+            QSession session = QContext.getQSession();
+            appendKeyPart("user", session == null || session.getUser() == null ? null : session.getUser().getIdReference());
+         }
+
+         return (this);
+      }
+
+
+
+      /*******************************************************************************
+       **
+       *******************************************************************************/
+      private void appendKeyPart(String name, Object value)
+      {
+         key.append('|').append(name).append('=').append(value);
+      }
+
+
+
+      /*******************************************************************************
+       **
+       *******************************************************************************/
+      private void addTableName(String tableName)
+      {
+         if(tableName != null && QContext.getQInstance().getTable(tableName) != null)
+         {
+            tableNames.add(tableName);
+         }
+      }
+
+
+
+      /*******************************************************************************
+       ** tables that a security lock joins through can change what's visible
+       *******************************************************************************/
+      private void addSecurityLockTableNames(List<RecordSecurityLock> locks)
+      {
+         for(RecordSecurityLock lock : CollectionUtils.nonNullList(locks))
+         {
+            if(lock instanceof MultiRecordSecurityLock multiRecordSecurityLock)
+            {
+               addSecurityLockTableNames(multiRecordSecurityLock.getLocks());
+            }
+
+            for(String joinName : CollectionUtils.nonNullList(lock.getJoinNameChain()))
+            {
+               QJoinMetaData join = QContext.getQInstance().getJoin(joinName);
+               if(join != null)
+               {
+                  addTableName(join.getLeftTable());
+                  addTableName(join.getRightTable());
+               }
+            }
+         }
+      }
+
+
+
+      /*******************************************************************************
+       ** filters can name fields in other tables (table.field) - that the backend
+       ** will join to, even if there's no QueryJoin for them.
+       *******************************************************************************/
+      private void addFilterTableNames(QQueryFilter filter)
+      {
+         if(filter == null)
+         {
+            return;
+         }
+
+         for(QFilterCriteria criteria : CollectionUtils.nonNullList(filter.getCriteria()))
+         {
+            addFieldNameTableName(criteria.getFieldName());
+            addFieldNameTableName(criteria.getOtherFieldName());
+         }
+
+         for(QFilterOrderBy orderBy : CollectionUtils.nonNullList(filter.getOrderBys()))
+         {
+            addFieldNameTableName(orderBy.getFieldName());
+         }
+
+         for(QQueryFilter subFilter : CollectionUtils.nonNullList(filter.getSubFilters()))
+         {
+            addFilterTableNames(subFilter);
+         }
+      }
+
+
+
+      /*******************************************************************************
+       **
+       *******************************************************************************/
+      private void addFieldNameTableName(String fieldName)
+      {
+         if(fieldName != null && fieldName.contains("."))
+         {
+            addTableName(fieldName.substring(0, fieldName.indexOf('.')));
+         }
+      }
+
+
+
+      /*******************************************************************************
+       ** Get a copy of a cached query result - or null if there isn't one.
+       *******************************************************************************/
+      @SuppressWarnings("unchecked")
+      public QueryOutput getQueryOutput(QueryInput queryInput) throws QException
+      {
+         List<QRecord> records = (List<QRecord>) cache.get(table.getName(), key.toString());
+         if(records == null)
+         {
+            return (null);
+         }
+
+         QueryOutput queryOutput = new QueryOutput(queryInput);
+         queryOutput.addRecords(copyRecords(records));
+         return (queryOutput);
+      }
+
+
+
+      /*******************************************************************************
+       ** Cache (a copy of) a query result - unless it has too many records.
+       *******************************************************************************/
+      public void putQueryOutput(QueryOutput queryOutput)
+      {
+         List<QRecord> records             = queryOutput.getRecords();
+         Integer       maxRecordsPerResult = table.getQueryResultCache().getMaxRecordsPerResult();
+         if(records == null || (maxRecordsPerResult != null && records.size() > maxRecordsPerResult))
+         {
+            return;
+         }
+
+         cache.put(this, copyRecords(records));
+      }
+
+
+
+      /*******************************************************************************
+       ** Get a cached count result - or null if there isn't one.
+       *******************************************************************************/
+      public CountOutput getCountOutput()
+      {
+         CountResult countResult = (CountResult) cache.get(table.getName(), key.toString());
+         if(countResult == null)
+         {
+            return (null);
+         }
+
+         CountOutput countOutput = new CountOutput();
+         countOutput.setCount(countResult.count());
+         countOutput.setDistinctCount(countResult.distinctCount());
+         return (countOutput);
+      }
+
+
+
+      /*******************************************************************************
+       ** Cache a count result.
+       *******************************************************************************/
+      public void putCountOutput(CountOutput countOutput)
+      {
+         cache.put(this, new CountResult(countOutput.getCount(), countOutput.getDistinctCount()));
+      }
+
+
+
+      /*******************************************************************************
+       ** Get a cached aggregate result - or null if there isn't one.
+       *******************************************************************************/
+      @SuppressWarnings("unchecked")
+      public AggregateOutput getAggregateOutput()
+      {
+         List<AggregateResult> results = (List<AggregateResult>) cache.get(table.getName(), key.toString());
+         if(results == null)
+         {
+            return (null);
+         }
+
+         AggregateOutput aggregateOutput = new AggregateOutput();
+         aggregateOutput.setResults(new ArrayList<>(results));
+         return (aggregateOutput);
+      }
+
+
+
+      /*******************************************************************************
+       ** Cache an aggregate result.
+       *******************************************************************************/
+      public void putAggregateOutput(AggregateOutput aggregateOutput)
+      {
+         if(aggregateOutput.getResults() != null)
+         {
+            cache.put(this, List.copyOf(aggregateOutput.getResults()));
+         }
+      }
+
+
+
+      /*******************************************************************************
+       ** Getter for key
+       *******************************************************************************/
+      public String getKey()
+      {
+         return (key.toString());
+      }
+
+
+
+      /*******************************************************************************
+       **
+       *******************************************************************************/
+      private static List<QRecord> copyRecords(List<QRecord> records)
+      {
+         List<QRecord> copies = new ArrayList<>(records.size());
+         for(QRecord record : records)
+         {
+            copies.add(new QRecord(record));
+         }
+         return (copies);
+      }
+   }
+
+
+
+   /*******************************************************************************
+    ** look up a result - returning null if it isn't cached (or has expired).
+    *******************************************************************************/
+   private Object get(String tableName, String key)
+   {
+      Map<String, Entry> entries = entriesByTable.get(tableName);
+      if(entries != null)
+      {
+         Entry entry = entries.get(key);
+         if(entry != null)
+         {
+            if(entry.expiresAtMillis() > System.currentTimeMillis())
+            {
+               hitCount.increment();
+               return (entry.result());
+            }
+
+            entries.remove(key, entry);
+         }
+      }
+
+      missCount.increment();
+      return (null);
+   }
+
+
+
+   /*******************************************************************************
+    ** cache a result - unless any table it read has been written since the lookup
+    ** was built.
+    *******************************************************************************/
+   private void put(Lookup lookup, Object result)
+   {
+      QueryResultCacheMetaData metaData   = lookup.table.getQueryResultCache();
+      String                   tableName  = lookup.table.getName();
+      Map<String, Entry>       entries    = entriesByTable.computeIfAbsent(tableName, k -> new ConcurrentHashMap<>());
+      int                      maxEntries = Math.max(1, metaData.getMaxEntries() == null ? 1000 : metaData.getMaxEntries());
+
+      ///////////////////////////////////////////////////////////////////////////////
+      // check generations and insert atomically (under the map's lock for the     //
+      // key) - as invalidateTable bumps the generation before it removes entries, //
+      // a write either makes this check fail, or removes what this put inserted.  //
+      ///////////////////////////////////////////////////////////////////////////////
+      entries.compute(lookup.key.toString(), (key, existingEntry) ->
+      {
+         for(Map.Entry<String, Long> generation : lookup.generations.entrySet())
+         {
+            if(getTableGeneration(generation.getKey()).get() != generation.getValue())
+            {
+               return (existingEntry);
+            }
+         }
+
+         return (new Entry(result, System.currentTimeMillis() + metaData.getTimeToLiveMillis(), lookup.tableNames));
+      });
+
+      if(entries.size() > maxEntries)
+      {
+         evict(tableName, entries, maxEntries);
+      }
+   }
+
+
+
+   /*******************************************************************************
+    ** make room in a table's map that's over its max size:  drop expired entries -
+    ** then, if that wasn't enough, the oldest ones, down to 90% of the max (so
+    ** this doesn't need to happen again on the very next put).
+    *******************************************************************************/
+   private void evict(String tableName, Map<String, Entry> entries, int maxEntries)
+   {
+      synchronized(entries)
+      {
+         if(entries.size() <= maxEntries)
+         {
+            return;
+         }
+
+         int  sizeBefore = entries.size();
+         long now        = System.currentTimeMillis();
+         entries.values().removeIf(entry -> entry.expiresAtMillis() <= now);
+
+         int targetSize = maxEntries * 9 / 10;
+         if(entries.size() > targetSize)
+         {
+            List<Map.Entry<String, Entry>> sortedEntries = new ArrayList<>(entries.entrySet());
+            sortedEntries.sort(Comparator.comparingLong(e -> e.getValue().expiresAtMillis()));
+            for(int i = 0; i < sortedEntries.size() - targetSize; i++)
+            {
+               entries.remove(sortedEntries.get(i).getKey(), sortedEntries.get(i).getValue());
+            }
+         }
+
+         evictionCount.add(sizeBefore - entries.size());
+         LOG.debug("Evicted from query result cache", logPair("tableName", tableName), logPair("sizeBefore", sizeBefore), logPair("sizeAfter", entries.size()));
+      }
+   }
+
+
+
+   /*******************************************************************************
+    **
+    *******************************************************************************/
+   private AtomicLong getTableGeneration(String tableName)
+   {
+      return (tableGenerations.computeIfAbsent(tableName, k -> new AtomicLong()));
+   }
+
+
+
+   /*******************************************************************************
+    ** Get the number of results currently cached (across all tables).
+    *******************************************************************************/
+   public int getSize()
+   {
+      return (entriesByTable.values().stream().mapToInt(Map::size).sum());
+   }
+
+
+
+   /*******************************************************************************
+    ** Getter for hitCount
+    *******************************************************************************/
+   public long getHitCount()
+   {
+      return (hitCount.sum());
+   }
+
+
+
+   /*******************************************************************************
+    ** Getter for missCount
+    *******************************************************************************/
+   public long getMissCount()
+   {
+      return (missCount.sum());
+   }
+
+
+
+   /*******************************************************************************
+    ** Getter for evictionCount
+    *******************************************************************************/
+   public long getEvictionCount()
+   {
+      return (evictionCount.sum());
+   }
+
+
+
+   /*******************************************************************************
+    ** Getter for invalidationCount
+    *******************************************************************************/
+   public long getInvalidationCount()
+   {
+      return (invalidationCount.sum());
+   }
+
+}
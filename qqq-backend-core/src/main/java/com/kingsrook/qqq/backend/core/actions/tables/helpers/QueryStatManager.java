@@ -25,11 +25,18 @@ package com.kingsrook.qqq.backend.core.actions.tables.helpers;
 import java.time.Instant;
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Objects;
+import java.util.Queue;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.Executors;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.function.Supplier;
 import com.kingsrook.qqq.backend.core.actions.tables.InsertAction;
 import com.kingsrook.qqq.backend.core.context.QContext;
@@ -49,6 +56,7 @@ import com.kingsrook.qqq.backend.core.model.querystats.QueryStat;
 import com.kingsrook.qqq.backend.core.model.querystats.QueryStatCriteriaField;
 import com.kingsrook.qqq.backend.core.model.querystats.QueryStatJoinTable;
 import com.kingsrook.qqq.backend.core.model.querystats.QueryStatOrderByField;
+import com.kingsrook.qqq.backend.core.model.querystats.QueryStatSummary;
 import com.kingsrook.qqq.backend.core.model.session.QSession;
 import com.kingsrook.qqq.backend.core.model.tables.QQQTableTableManager;
 import com.kingsrook.qqq.backend.core.utils.CollectionUtils;
@@ -65,6 +73,15 @@ import static com.kingsrook.qqq.backend.core.logging.LogUtils.logPair;
  ** qqq.queryStatManager.minMillisToStore / QQQ_QUERY_STAT_MANAGER_MIN_MILLIS_TO_STORE
  ** qqq.queryStatManager.jobPeriodSeconds / QQQ_QUERY_STAT_MANAGER_JOB_PERIOD_SECONDS
  ** qqq.queryStatManager.jobInitialDelay / QQQ_QUERY_STAT_MANAGER_JOB_INITIAL_DELAY
+ ** qqq.queryStatManager.maxQueuedStats / QQQ_QUERY_STAT_MANAGER_MAX_QUEUED_STATS
+ ** qqq.queryStatManager.aggregate / QQQ_QUERY_STAT_MANAGER_AGGREGATE
+ **
+ ** Stats are added (by query threads) to a lock-free queue, which the job drains.
+ ** If more than maxQueuedStats are waiting, new ones are dropped (and counted).
+ **
+ ** When aggregate is on, instead of storing a QueryStat row (plus child rows)
+ ** per query, the job stores one QueryStatSummary row per table & filter-shape
+ ** per period, with a histogram of first-result latencies.
  *******************************************************************************/
 public class QueryStatManager
 {
@@ -76,14 +93,22 @@ public class QueryStatManager
    private QInstance          qInstance;
    private Supplier<QSession> sessionSupplier;
 
-   private boolean         active     = false;
-   private List<QueryStat> queryStats = new ArrayList<>();
+   private volatile boolean active = false;
+
+   private final Queue<QueryStat> queryStats   = new ConcurrentLinkedQueue<>();
+   private final AtomicInteger    queuedCount  = new AtomicInteger(0);
+   private final AtomicLong       droppedCount = new AtomicLong(0);
+
+   private volatile Instant periodStartTimestamp = Instant.now();
 
    private ScheduledExecutorService executorService;
 
    private int jobPeriodSeconds = 60;
    private int jobInitialDelay  = 60;
    private int minMillisToStore = 0;
+   private int maxQueuedStats   = 100_000;
+
+   private boolean aggregate = false;
 
 
 
@@ -126,6 +151,14 @@ public class QueryStatManager
             queryStatManager.setJobInitialDelay(propertyJobInitialDelay);
          }
 
+         Integer propertyMaxQueuedStats = interpreter.getIntegerFromPropertyOrEnvironment("qqq.queryStatManager.maxQueuedStats", "QQQ_QUERY_STAT_MANAGER_MAX_QUEUED_STATS", null);
+         if(propertyMaxQueuedStats != null)
+         {
+            queryStatManager.setMaxQueuedStats(propertyMaxQueuedStats);
+         }
+
+         queryStatManager.setAggregate(interpreter.getBooleanFromPropertyOrEnvironment("qqq.queryStatManager.aggregate", "QQQ_QUERY_STAT_MANAGER_AGGREGATE", false));
+
       }
       return (queryStatManager);
    }
@@ -169,7 +202,8 @@ public class QueryStatManager
       this.sessionSupplier = sessionSupplier;
 
       active = true;
-      queryStats = new ArrayList<>();
+      clearQueue();
+      periodStartTimestamp = Instant.now();
 
       executorService = Executors.newSingleThreadScheduledExecutor(new PrefixedDefaultThreadFactory(this));
       executorService.scheduleAtFixedRate(new QueryStatManagerInsertJob(), jobInitialDelay, jobPeriodSeconds, TimeUnit.SECONDS);
@@ -193,7 +227,7 @@ public class QueryStatManager
    public void stop()
    {
       active = false;
-      queryStats.clear();
+      clearQueue();
 
       if(executorService != null)
       {
@@ -272,10 +306,18 @@ public class QueryStatManager
                }
             }
 
-            synchronized(this)
+            ////////////////////////////////////////////////////////////////////////////
+            // reserve a spot in the queue (without locking) - or, if it's full, drop //
+            // this stat (the job will log how many were dropped).                    //
+            ////////////////////////////////////////////////////////////////////////////
+            if(queuedCount.incrementAndGet() > maxQueuedStats)
             {
-               queryStats.add(queryStat);
+               queuedCount.decrementAndGet();
+               droppedCount.incrementAndGet();
+               return;
             }
+
+            queryStats.add(queryStat);
          }
       }
       catch(Exception e)
@@ -296,12 +338,31 @@ public class QueryStatManager
          return Collections.emptyList();
       }
 
-      synchronized(this)
+      ///////////////////////////////////////////////////////////////////////////
+      // only drain as many as were queued when we started - so busy producers //
+      // can't keep this loop going forever.                                   //
+      ///////////////////////////////////////////////////////////////////////////
+      int             count      = queuedCount.get();
+      List<QueryStat> returnList = new ArrayList<>(count);
+      QueryStat       queryStat;
+      while(returnList.size() < count && (queryStat = queryStats.poll()) != null)
       {
-         List<QueryStat> returnList = queryStats;
-         queryStats = new ArrayList<>();
-         return (returnList);
+         returnList.add(queryStat);
       }
+
+      queuedCount.addAndGet(-returnList.size());
+      return (returnList);
+   }
+
+
+
+   /*******************************************************************************
+    **
+    *******************************************************************************/
+   private void clearQueue()
+   {
+      queryStats.clear();
+      queuedCount.set(0);
    }
 
 
@@ -345,15 +406,25 @@ public class QueryStatManager
                return;
             }
 
-            List<QueryStat> list = getInstance().getListAndReset();
+            Instant         periodStart = getInstance().periodStartTimestamp;
+            Instant         periodEnd   = Instant.now();
+            List<QueryStat> list        = getInstance().getListAndReset();
+            long            dropped     = getInstance().droppedCount.getAndSet(0);
+            getInstance().periodStartTimestamp = periodEnd;
 
-            LOG.info(logPair("queryStatListSize", list.size()));
+            LOG.info(logPair("queryStatListSize", list.size()), logPair("droppedCount", dropped));
 
             if(list.isEmpty())
             {
                return;
             }
 
+            if(getInstance().aggregate)
+            {
+               storeSummaries(list, periodStart, periodEnd);
+               return;
+            }
+
             ////////////////////////////////////
             // prime the entities for storing //
             ////////////////////////////////////
@@ -433,6 +504,124 @@ public class QueryStatManager
 
 
 
+      /*******************************************************************************
+       ** Aggregate stats into one summary per table & filter-shape, and store those.
+       *******************************************************************************/
+      private static void storeSummaries(List<QueryStat> list, Instant periodStart, Instant periodEnd)
+      {
+         Map<String, QueryStatSummary> summaries  = new LinkedHashMap<>();
+         Map<String, LatencyHistogram> histograms = new LinkedHashMap<>();
+         for(QueryStat queryStat : list)
+         {
+            try
+            {
+               if(queryStat.getFirstResultMillis() == null)
+               {
+                  continue;
+               }
+
+               Integer qqqTableId  = QQQTableTableManager.getQQQTableId(getInstance().qInstance, queryStat.getTableName());
+               String  filterShape = getFilterShape(queryStat);
+               String  key         = qqqTableId + "|" + filterShape;
+
+               summaries.computeIfAbsent(key, k -> new QueryStatSummary()
+                  .withQqqTableId(qqqTableId)
+                  .withFilterShape(filterShape)
+                  .withPeriodStartTimestamp(periodStart)
+                  .withPeriodEndTimestamp(periodEnd));
+               histograms.computeIfAbsent(key, k -> new LatencyHistogram()).add(queryStat.getFirstResultMillis());
+            }
+            catch(Exception e)
+            {
+               LOG.warn("Error aggregating a query stat", e);
+            }
+         }
+
+         List<QRecord> summaryRecordsToInsert = new ArrayList<>();
+         for(Map.Entry<String, QueryStatSummary> entry : summaries.entrySet())
+         {
+            LatencyHistogram histogram = histograms.get(entry.getKey());
+            summaryRecordsToInsert.add(entry.getValue()
+               .withQueryCount(histogram.count)
+               .withTotalMillis(histogram.totalMillis)
+               .withMaxMillis(histogram.maxMillis)
+               .withP50Millis(histogram.getPercentile(0.50))
+               .withP90Millis(histogram.getPercentile(0.90))
+               .withP99Millis(histogram.getPercentile(0.99))
+               .withHistogram(histogram.toString())
+               .toQRecord());
+         }
+
+         try
+         {
+            InsertInput insertInput = new InsertInput();
+            insertInput.setTableName(QueryStatSummary.TABLE_NAME);
+            insertInput.setRecords(summaryRecordsToInsert);
+            new InsertAction().execute(insertInput);
+         }
+         catch(Exception e)
+         {
+            LOG.error("Error inserting query stat summaries", e);
+         }
+      }
+
+
+
+      /*******************************************************************************
+       ** Describe the "shape" of a query - its criteria fields & operators, order-bys
+       ** and join tables - without any values, so similar queries group together.
+       *******************************************************************************/
+      private static String getFilterShape(QueryStat queryStat)
+      {
+         StringBuilder rs     = new StringBuilder();
+         QQueryFilter  filter = queryStat.getQueryFilter();
+
+         if(filter != null && filter.hasAnyCriteria())
+         {
+            rs.append("WHERE ").append(getCriteriaShape(filter));
+         }
+
+         if(filter != null && CollectionUtils.nullSafeHasContents(filter.getOrderBys()))
+         {
+            List<String> orderBys = new ArrayList<>();
+            for(QFilterOrderBy orderBy : filter.getOrderBys())
+            {
+               orderBys.add(orderBy.getFieldName() + (orderBy.getIsAscending() ? "" : " DESC"));
+            }
+            rs.append(rs.isEmpty() ? "" : " ").append("ORDER BY ").append(StringUtils.join(", ", orderBys));
+         }
+
+         if(CollectionUtils.nullSafeHasContents(queryStat.getJoinTableNames()))
+         {
+            rs.append(rs.isEmpty() ? "" : " ").append("JOIN ").append(StringUtils.join(", ", new TreeSet<>(queryStat.getJoinTableNames())));
+         }
+
+         return (rs.toString());
+      }
+
+
+
+      /*******************************************************************************
+       **
+       *******************************************************************************/
+      private static String getCriteriaShape(QQueryFilter filter)
+      {
+         List<String> parts = new ArrayList<>();
+         for(QFilterCriteria criteria : CollectionUtils.nonNullList(filter.getCriteria()))
+         {
+            parts.add(criteria.getFieldName() + " " + criteria.getOperator());
+         }
+
+         for(QQueryFilter subFilter : CollectionUtils.nonNullList(filter.getSubFilters()))
+         {
+            parts.add("(" + getCriteriaShape(subFilter) + ")");
+         }
+
+         return (StringUtils.join(" " + filter.getBooleanOperator() + " ", parts));
+      }
+
+
+
       /*******************************************************************************
        **
        *******************************************************************************/
@@ -510,6 +699,81 @@ public class QueryStatManager
 
 
 
+   /*******************************************************************************
+    ** Latency histogram with fixed (roughly logarithmic) millisecond buckets.
+    *******************************************************************************/
+   private static class LatencyHistogram
+   {
+      private static final int[] BUCKET_UPPER_BOUNDS = { 1, 2, 5, 10, 20, 50, 100, 200, 500, 1000, 2000, 5000, 10000, 30000, 60000 };
+
+      private final int[] bucketCounts = new int[BUCKET_UPPER_BOUNDS.length + 1];
+
+      private int  count       = 0;
+      private long totalMillis = 0;
+      private int  maxMillis   = 0;
+
+
+
+      /*******************************************************************************
+       **
+       *******************************************************************************/
+      private void add(int millis)
+      {
+         int bucket = 0;
+         while(bucket < BUCKET_UPPER_BOUNDS.length && millis > BUCKET_UPPER_BOUNDS[bucket])
+         {
+            bucket++;
+         }
+
+         bucketCounts[bucket]++;
+         count++;
+         totalMillis += millis;
+         maxMillis = Math.max(maxMillis, millis);
+      }
+
+
+
+      /*******************************************************************************
+       ** Get the upper bound of the bucket that a percentile (e.g., 0.99) falls in
+       ** (capped at the max value seen).
+       *******************************************************************************/
+      private int getPercentile(double percentile)
+      {
+         long target     = (long) Math.ceil(percentile * count);
+         long cumulative = 0;
+         for(int bucket = 0; bucket < BUCKET_UPPER_BOUNDS.length; bucket++)
+         {
+            cumulative += bucketCounts[bucket];
+            if(cumulative >= target)
+            {
+               return (Math.min(BUCKET_UPPER_BOUNDS[bucket], maxMillis));
+            }
+         }
+         return (maxMillis);
+      }
+
+
+
+      /*******************************************************************************
+       ** Non-empty buckets, as bucketUpperBoundMillis:count pairs.
+       *******************************************************************************/
+      @Override
+      public String toString()
+      {
+         List<String> parts = new ArrayList<>();
+         for(int bucket = 0; bucket < bucketCounts.length; bucket++)
+         {
+            if(bucketCounts[bucket] > 0)
+            {
+               parts.add((bucket < BUCKET_UPPER_BOUNDS.length ? String.valueOf(BUCKET_UPPER_BOUNDS[bucket]) : "+") + ":" + bucketCounts[bucket]);
+            }
+         }
+         return (StringUtils.join(",", parts));
+      }
+   }
+
+
+
    /*******************************************************************************
     ** Getter for jobPeriodSeconds
     *******************************************************************************/
@@ -601,4 +865,68 @@ public class QueryStatManager
       return (this);
    }
 
+
+
+   /*******************************************************************************
+    ** Getter for maxQueuedStats
+    *******************************************************************************/
+   public int getMaxQueuedStats()
+   {
+      return (this.maxQueuedStats);
+   }
+
+
+
+   /*******************************************************************************
+    ** Setter for maxQueuedStats - how many stats may be waiting for the job
+    ** to store them, before new ones get dropped.
+    *******************************************************************************/
+   public void setMaxQueuedStats(int maxQueuedStats)
+   {
+      this.maxQueuedStats = maxQueuedStats;
+   }
+
+
+
+   /*******************************************************************************
+    ** Fluent setter for maxQueuedStats
+    *******************************************************************************/
+   public QueryStatManager withMaxQueuedStats(int maxQueuedStats)
+   {
+      this.maxQueuedStats = maxQueuedStats;
+      return (this);
+   }
+
+
+
+   /*******************************************************************************
+    ** Getter for aggregate
+    *******************************************************************************/
+   public boolean getAggregate()
+   {
+      return (this.aggregate);
+   }
+
+
+
+   /*******************************************************************************
+    ** Setter for aggregate - if true, store QueryStatSummary rows (one per
+    ** table & filter-shape per period), rather than a QueryStat row per query.
+    *******************************************************************************/
+   public void setAggregate(boolean aggregate)
+   {
+      this.aggregate = aggregate;
+   }
+
+
+
+   /*******************************************************************************
+    ** Fluent setter for aggregate
+    *******************************************************************************/
+   public QueryStatManager withAggregate(boolean aggregate)
+   {
+      this.aggregate = aggregate;
+      return (this);
+   }
+
 }
@@ -243,17 +243,55 @@ public class ValidateRecordSecurityLockHelper
          QTableMetaData rightMostJoinTable = QContext.getQInstance().getTable(rightMostJoin.getRightTable());
          QTableMetaData leftMostJoinTable  = QContext.getQInstance().getTable(leftMostJoin.getLeftTable());
 
-         for(List<QRecord> inputRecordPage : CollectionUtils.getPages(records, 500))
+         ///////////////////////////////////////////////////////////////////////////////////////////////////
+         // foreach input record, put it in a listing hash, with key = list of join-values                //
+         // e.g., (17,47)=(QRecord1), (18,48)=(QRecord2,QRecord3)                                         //
+         // e.g., 2 order-lines referencing the same orderId only need to be looked up (and checked) once //
+         ///////////////////////////////////////////////////////////////////////////////////////////////////
+         ListingHash<List<Serializable>, QRecord> inputRecordMapByJoinFields = new ListingHash<>();
+         for(QRecord inputRecord : records)
+         {
+            List<Serializable> inputRecordJoinValues = new ArrayList<>();
+
+            boolean updatingAnyLockJoinFields = false;
+            for(JoinOn joinOn : rightMostJoin.getJoinOns())
+            {
+               QFieldType   type             = rightMostJoinTable.getField(joinOn.getRightField()).getType();
+               Serializable inputRecordValue = ValueUtils.getValueAsFieldType(type, inputRecord.getValue(joinOn.getRightField()));
+               inputRecordJoinValues.add(inputRecordValue);
+
+               // if we have a value in this field (and it's not the primary key), then it means we're updating part of the lock
+               if(inputRecordValue != null && !joinOn.getRightField().equals(table.getPrimaryKeyField()))
+               {
+                  updatingAnyLockJoinFields = true;
+               }
+            }
+
+            //////////////////////////////////
+            // todo maybe, some version of? //
+            //////////////////////////////////
+            // if(action.equals(Action.UPDATE) && !updatingAnyLockJoinFields && RecordSecurityLock.LockScope.READ_AND_WRITE.equals(recordSecurityLock.getLockScope()))
+            // {
+            //    /////////////////////////////////////////////////////////////////////////////////////////////////////////
+            //    // if this is a read-write lock, then if we have the record, it means we were able to read the record. //
+            //    // So if we're not updating the security field, then no error can come from it!                        //
+            //    /////////////////////////////////////////////////////////////////////////////////////////////////////////
+            //    continue;
+            // }
+
+            inputRecordMapByJoinFields.add(inputRecordJoinValues, inputRecord);
+         }
+
+         ////////////////////////////////////////////////////////////////////////////////////////
+         // query for the joined records a page of distinct join-values at a time (rather than //
+         // a page of input records at a time), so many records sharing a few keys is 1 query. //
+         ////////////////////////////////////////////////////////////////////////////////////////
+         for(List<List<Serializable>> joinValuesPage : CollectionUtils.getPages(inputRecordMapByJoinFields.keySet(), 500))
          {
-            ////////////////////////////////////////////////////////////////////////////////////////////////
-            // set up a query for joined records                                                          //
-            // query will be like (fkey1=? and fkey2=?) OR (fkey1=? and fkey2=?) OR (fkey1=? and fkey2=?) //
-            ////////////////////////////////////////////////////////////////////////////////////////////////
             QueryInput queryInput = new QueryInput();
             queryInput.setTransaction(transaction);
             queryInput.setTableName(leftMostJoin.getLeftTable());
-            QQueryFilter filter = new QQueryFilter().withBooleanOperator(QQueryFilter.BooleanOperator.OR);
-            queryInput.setFilter(filter);
+            queryInput.setFilter(buildJoinRecordsFilter(rightMostJoin, joinValuesPage));
 
             for(String joinName : recordSecurityLock.getJoinNameChain())
             {
@@ -266,59 +304,6 @@ public class ValidateRecordSecurityLockHelper
                }
             }
 
-            ///////////////////////////////////////////////////////////////////////////////////////////////////
-            // foreach input record (in this page), put it in a listing hash, with key = list of join-values //
-            // e.g., (17,47)=(QRecord1), (18,48)=(QRecord2,QRecord3)                                         //
-            // also build up the query's sub-filters here (only adding them if they're unique).              //
-            // e.g., 2 order-lines referencing the same orderId don't need to be added to the query twice    //
-            ///////////////////////////////////////////////////////////////////////////////////////////////////
-            ListingHash<List<Serializable>, QRecord> inputRecordMapByJoinFields = new ListingHash<>();
-            for(QRecord inputRecord : inputRecordPage)
-            {
-               List<Serializable> inputRecordJoinValues = new ArrayList<>();
-               QQueryFilter       subFilter             = new QQueryFilter();
-
-               boolean updatingAnyLockJoinFields = false;
-               for(JoinOn joinOn : rightMostJoin.getJoinOns())
-               {
-                  QFieldType   type             = rightMostJoinTable.getField(joinOn.getRightField()).getType();
-                  Serializable inputRecordValue = ValueUtils.getValueAsFieldType(type, inputRecord.getValue(joinOn.getRightField()));
-                  inputRecordJoinValues.add(inputRecordValue);
-
-                  // if we have a value in this field (and it's not the primary key), then it means we're updating part of the lock
-                  if(inputRecordValue != null && !joinOn.getRightField().equals(table.getPrimaryKeyField()))
-                  {
-                     updatingAnyLockJoinFields = true;
-                  }
-
-                  subFilter.addCriteria(inputRecordValue == null
-                     ? new QFilterCriteria(rightMostJoin.getLeftTable() + "." + joinOn.getLeftField(), QCriteriaOperator.IS_BLANK)
-                     : new QFilterCriteria(rightMostJoin.getLeftTable() + "." + joinOn.getLeftField(), QCriteriaOperator.EQUALS, inputRecordValue));
-               }
-
-               //////////////////////////////////
-               // todo maybe, some version of? //
-               //////////////////////////////////
-               // if(action.equals(Action.UPDATE) && !updatingAnyLockJoinFields && RecordSecurityLock.LockScope.READ_AND_WRITE.equals(recordSecurityLock.getLockScope()))
-               // {
-               //    /////////////////////////////////////////////////////////////////////////////////////////////////////////
-               //    // if this is a read-write lock, then if we have the record, it means we were able to read the record. //
-               //    // So if we're not updating the security field, then no error can come from it!                        //
-               //    /////////////////////////////////////////////////////////////////////////////////////////////////////////
-               //    continue;
-               // }
-
-               if(!inputRecordMapByJoinFields.containsKey(inputRecordJoinValues))
-               {
-                  ////////////////////////////////////////////////////////////////////////////////
-                  // only add this sub-filter if it's for a list of keys we haven't seen before //
-                  ////////////////////////////////////////////////////////////////////////////////
-                  filter.addSubFilter(subFilter);
-               }
-
-               inputRecordMapByJoinFields.add(inputRecordJoinValues, inputRecord);
-            }
-
             //////////////////////////////////////////////////////////////////////////////////////////////////////////////
             // execute the query for joined records - then put them in a map with keys corresponding to the join values //
             // e.g., (17,47)=(JoinRecord), (18,48)=(JoinRecord)                                                         //
@@ -341,14 +326,14 @@ public class ValidateRecordSecurityLockHelper
                joinRecordMapByJoinFields.put(joinRecordValues, joinRecord);
             }
 
-            //////////////////////////////////////////////////////////////////////////////////////////////////
-            // now for each input record, look for its joinRecord - if it isn't found, then this insert     //
-            // isn't allowed.  if it is found, then validate its value matches this session's security keys //
-            //////////////////////////////////////////////////////////////////////////////////////////////////
-            for(Map.Entry<List<Serializable>, List<QRecord>> entry : inputRecordMapByJoinFields.entrySet())
+            /////////////////////////////////////////////////////////////////////////////////////////////////
+            // now for each set of join values, look for its joinRecord - if it isn't found, then this     //
+            // insert isn't allowed.  if it is found, then validate its value matches this session's       //
+            // security keys - once per join record, applying the result to all input records that use it. //
+            /////////////////////////////////////////////////////////////////////////////////////////////////
+            for(List<Serializable> inputRecordJoinValues : joinValuesPage)
             {
-               List<Serializable> inputRecordJoinValues = entry.getKey();
-               List<QRecord>      inputRecords          = entry.getValue();
+               List<QRecord> inputRecords = inputRecordMapByJoinFields.get(inputRecordJoinValues);
                if(joinRecordMapByJoinFields.containsKey(inputRecordJoinValues))
                {
                   QRecord joinRecord = joinRecordMapByJoinFields.get(inputRecordJoinValues);
@@ -361,10 +346,10 @@ public class ValidateRecordSecurityLockHelper
                      recordSecurityValue = joinRecord.getValue(recordSecurityLock.getFieldName());
                   }
 
-                  for(QRecord inputRecord : inputRecords)
+                  List<QErrorMessage> recordErrors = validateRecordSecurityValue(table, recordSecurityLock, recordSecurityValue, field.getType(), action, madeUpPrimaryKeys, qSession);
+                  if(CollectionUtils.nullSafeHasContents(recordErrors))
                   {
-                     List<QErrorMessage> recordErrors = validateRecordSecurityValue(table, recordSecurityLock, recordSecurityValue, field.getType(), action, madeUpPrimaryKeys, qSession);
-                     if(CollectionUtils.nullSafeHasContents(recordErrors))
+                     for(QRecord inputRecord : inputRecords)
                      {
                         errorRecords.computeIfAbsent(inputRecord.getValue(primaryKeyField), (k) -> new RecordWithErrors(inputRecord)).addAll(recordErrors, treePosition);
                      }
@@ -388,6 +373,65 @@ public class ValidateRecordSecurityLockHelper
 
 
 
+   /*******************************************************************************
+    ** build the filter to look up the join records for a page of join-values.
+    ** for a single-field join, that's:  fkey IN (?,?,...) [OR fkey IS BLANK]
+    ** else:  (fkey1=? and fkey2=?) OR (fkey1=? and fkey2=?) OR ...
+    *******************************************************************************/
+   private static QQueryFilter buildJoinRecordsFilter(QJoinMetaData rightMostJoin, List<List<Serializable>> joinValuesPage)
+   {
+      QQueryFilter filter  = new QQueryFilter().withBooleanOperator(QQueryFilter.BooleanOperator.OR);
+      List<JoinOn> joinOns = rightMostJoin.getJoinOns();
+
+      if(joinOns.size() == 1)
+      {
+         String             fieldName = rightMostJoin.getLeftTable() + "." + joinOns.get(0).getLeftField();
+         List<Serializable> values    = new ArrayList<>();
+         boolean            anyNulls  = false;
+         for(List<Serializable> joinValues : joinValuesPage)
+         {
+            if(joinValues.get(0) == null)
+            {
+               anyNulls = true;
+            }
+            else
+            {
+               values.add(joinValues.get(0));
+            }
+         }
+
+         if(!values.isEmpty())
+         {
+            filter.addCriteria(new QFilterCriteria(fieldName, QCriteriaOperator.IN, values));
+         }
+
+         if(anyNulls)
+         {
+            filter.addCriteria(new QFilterCriteria(fieldName, QCriteriaOperator.IS_BLANK));
+         }
+
+         return (filter);
+      }
+
+      for(List<Serializable> joinValues : joinValuesPage)
+      {
+         QQueryFilter subFilter = new QQueryFilter();
+         for(int i = 0; i < joinOns.size(); i++)
+         {
+            String       fieldName = rightMostJoin.getLeftTable() + "." + joinOns.get(i).getLeftField();
+            Serializable value     = joinValues.get(i);
+            subFilter.addCriteria(value == null
+               ? new QFilterCriteria(fieldName, QCriteriaOperator.IS_BLANK)
+               : new QFilterCriteria(fieldName, QCriteriaOperator.EQUALS, value));
+         }
+         filter.addSubFilter(subFilter);
+      }
+
+      return (filter);
+   }
+
+
+
    /*******************************************************************************
     ** for tracking errors, we use primary keys.  add "made up" ones to records
     ** if needed (e.g., insert use-case).
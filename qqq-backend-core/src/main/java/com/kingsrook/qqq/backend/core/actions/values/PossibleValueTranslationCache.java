@@ -0,0 +1,530 @@
+/*
+ * QQQ - Low-code Application Framework for Engineers.
+ * Copyright (C) 2021-2024.  Kingsrook, LLC
+ * 651 N Broad St Ste 205 # 6917 | Middletown DE 19709 | United States
+ * contact@kingsrook.com
+ * https://github.com/Kingsrook/
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+
+package com.kingsrook.qqq.backend.core.actions.values;
+
+
+import java.io.Serializable;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.WeakHashMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import com.kingsrook.qqq.backend.core.actions.QBackendTransaction;
+import com.kingsrook.qqq.backend.core.context.QContext;
+import com.kingsrook.qqq.backend.core.logging.QLogger;
+import com.kingsrook.qqq.backend.core.model.metadata.QInstance;
+import com.kingsrook.qqq.backend.core.model.metadata.fields.QFieldMetaData;
+import com.kingsrook.qqq.backend.core.model.metadata.possiblevalues.PossibleValueTranslationCacheMetaData;
+import com.kingsrook.qqq.backend.core.model.metadata.possiblevalues.QPossibleValueSource;
+import com.kingsrook.qqq.backend.core.model.metadata.possiblevalues.QPossibleValueSourceType;
+import com.kingsrook.qqq.backend.core.model.metadata.security.MultiRecordSecurityLock;
+import com.kingsrook.qqq.backend.core.model.metadata.security.QSecurityKeyType;
+import com.kingsrook.qqq.backend.core.model.metadata.security.RecordSecurityLock;
+import com.kingsrook.qqq.backend.core.model.metadata.tables.QTableMetaData;
+import com.kingsrook.qqq.backend.core.model.session.QSession;
+import com.kingsrook.qqq.backend.core.utils.CollectionUtils;
+import com.kingsrook.qqq.backend.core.utils.StringUtils;
+import static com.kingsrook.qqq.backend.core.logging.LogUtils.logPair;
+
+
+/*******************************************************************************
+ ** Instance-wide cache of labels for table-type possible value sources, shared
+ ** by all QPossibleValueTranslators in the instance (in front of each of their
+ ** own per-translator caches).  Only exists for QInstances with
+ ** PossibleValueTranslationCacheMetaData (see there for details).
+ **
+ ** A PVS's labels are built from its table's records - and, if that table's
+ ** record label fields use table-type PVSs, from those tables' labels too (and
+ ** so on) - its "label tables".
+ **
+ ** Entries are keyed by PVS name, the "security scope" of the session that
+ ** looked them up (a digest of its values for the security keys that lock any
+ ** of the PVS's label tables), and id.  A null label is cached too - meaning
+ ** the id wasn't found (or wasn't visible to that scope).
+ **
+ ** A write to a table drops all entries for PVSs that it's a label table for,
+ ** and bumps a generation counter for the table - so lookups that started
+ ** before the write don't put (possibly stale) labels back in the cache after
+ ** it.  For writes in a transaction, this is done again once the transaction
+ ** commits.
+ *******************************************************************************/
+public class PossibleValueTranslationCache
+{
+   private static final QLogger LOG = QLogger.getLogger(PossibleValueTranslationCache.class);
+
+   private static final Map<QInstance, PossibleValueTranslationCache> caches = Collections.synchronizedMap(new WeakHashMap<>());
+
+   private final int  maxEntriesPerPossibleValueSource;
+   private final long timeToLiveMillis;
+
+   private final Map<String, Map<ScopedId, CachedLabel>> labelsByPvsName        = new ConcurrentHashMap<>();
+   private final Map<String, String>                     pvsTableNames          = new ConcurrentHashMap<>();
+   private final Map<String, Set<String>>                labelTableNamesByTable = new ConcurrentHashMap<>();
+   private final Map<String, AtomicLong>                 tableGenerations       = new ConcurrentHashMap<>();
+
+   private final LongAdder hitCount          = new LongAdder();
+   private final LongAdder missCount         = new LongAdder();
+   private final LongAdder evictionCount     = new LongAdder();
+   private final LongAdder invalidationCount = new LongAdder();
+
+
+
+   /*******************************************************************************
+    ** key for a label within a PVS's map
+    *******************************************************************************/
+   private record ScopedId(String securityScope, Serializable id)
+   {
+   }
+
+
+
+   /*******************************************************************************
+    ** a cached label (null if the id wasn't found), and when it expires.
+    *******************************************************************************/
+   record CachedLabel(String label, long expiresAtMillis)
+   {
+   }
+
+
+
+   /*******************************************************************************
+    ** Constructor
+    **
+    *******************************************************************************/
+   private PossibleValueTranslationCache(PossibleValueTranslationCacheMetaData metaData)
+   {
+      this.maxEntriesPerPossibleValueSource = Math.max(1, metaData.getMaxEntriesPerPossibleValueSource() == null ? 50_000 : metaData.getMaxEntriesPerPossibleValueSource());
+      this.timeToLiveMillis = Math.max(0, metaData.getTimeToLiveMillis() == null ? 0 : metaData.getTimeToLiveMillis());
+   }
+
+
+
+   /*******************************************************************************
+    ** Get the cache for a QInstance - or null, if it doesn't have
+    ** PossibleValueTranslationCacheMetaData.
+    *******************************************************************************/
+   public static PossibleValueTranslationCache getCache(QInstance qInstance)
+   {
+      if(qInstance == null || qInstance.getPossibleValueTranslationCacheMetaData() == null)
+      {
+         return (null);
+      }
+
+      return (caches.computeIfAbsent(qInstance, i -> new PossibleValueTranslationCache(i.getPossibleValueTranslationCacheMetaData())));
+   }
+
+
+
+   /*******************************************************************************
+    ** Drop cached labels for PVSs on a table, because records in it were written
+    ** (if the instance has a cache) - now, and, if the write was in a transaction,
+    ** again after it commits - as until then, other threads still see the old
+    ** records, and so may have cached labels from them in the meantime.
+    *******************************************************************************/
+   public static void invalidateTable(QInstance qInstance, String tableName, QBackendTransaction transaction)
+   {
+      invalidateTable(qInstance, tableName);
+      if(transaction != null && qInstance != null && qInstance.getPossibleValueTranslationCacheMetaData() != null)
+      {
+         transaction.addPostCommitAction(() -> invalidateTable(qInstance, tableName));
+      }
+   }
+
+
+
+   /*******************************************************************************
+    ** Drop cached labels for PVSs on a table (e.g., because records in it were
+    ** written) - if the instance has a cache.
+    *******************************************************************************/
+   public static void invalidateTable(QInstance qInstance, String tableName)
+   {
+      if(qInstance == null || qInstance.getPossibleValueTranslationCacheMetaData() == null)
+      {
+         return;
+      }
+
+      PossibleValueTranslationCache cache = caches.get(qInstance);
+      if(cache != null)
+      {
+         cache.invalidateTable(tableName);
+      }
+   }
+
+
+
+   /*******************************************************************************
+    ** Drop cached labels for PVSs whose labels are built from a table.
+    *******************************************************************************/
+   public void invalidateTable(String tableName)
+   {
+      getTableGeneration(tableName).incrementAndGet();
+
+      for(Map.Entry<String, String> entry : pvsTableNames.entrySet())
+      {
+         Set<String> labelTableNames = labelTableNamesByTable.getOrDefault(entry.getValue(), Set.of(entry.getValue()));
+         if(labelTableNames.contains(tableName) && labelsByPvsName.remove(entry.getKey()) != null)
+         {
+            invalidationCount.increment();
+         }
+      }
+   }
+
+
+
+   /*******************************************************************************
+    ** Drop all cached labels.
+    *******************************************************************************/
+   public void clear()
+   {
+      for(AtomicLong generation : tableGenerations.values())
+      {
+         generation.incrementAndGet();
+      }
+      labelsByPvsName.clear();
+   }
+
+
+
+   /*******************************************************************************
+    ** Get the current generation of a PVS's table - to pass to put, for labels
+    ** looked up after this call.  This is the sum of the generations of all of the
+    ** table's label tables - so a write to any of them changes it.
+    *******************************************************************************/
+   long getGeneration(String tableName)
+   {
+      Set<String> labelTableNames = labelTableNamesByTable.computeIfAbsent(tableName, t -> getLabelTableNames(QContext.getQInstance(), t));
+
+      long generation = 0;
+      for(String labelTableName : labelTableNames)
+      {
+         generation += getTableGeneration(labelTableName).get();
+      }
+      return (generation);
+   }
+
+
+
+   /*******************************************************************************
+    ** look up a label - returning null if it isn't cached (or has expired).
+    *******************************************************************************/
+   CachedLabel get(String pvsName, String securityScope, Serializable id)
+   {
+      Map<ScopedId, CachedLabel> labels = labelsByPvsName.get(pvsName);
+      if(labels != null)
+      {
+         ScopedId    scopedId    = new ScopedId(securityScope, id);
+         CachedLabel cachedLabel = labels.get(scopedId);
+         if(cachedLabel != null)
+         {
+            if(cachedLabel.expiresAtMillis() > System.currentTimeMillis())
+            {
+               hitCount.increment();
+               return (cachedLabel);
+            }
+
+            labels.remove(scopedId, cachedLabel);
+         }
+      }
+
+      missCount.increment();
+      return (null);
+   }
+
+
+
+   /*******************************************************************************
+    ** cache a label - unless the table has been written since the given generation.
+    **
+    ** The generation check and the insert are done inside a compute on the PVS's
+    ** entry - which is atomic with invalidateTable's removal of that entry (done
+    ** after it bumps the generation) - so a stale label can't be put into a map
+    ** after it was invalidated.
+    *******************************************************************************/
+   void put(String pvsName, String tableName, long generation, String securityScope, Serializable id, String label)
+   {
+      if(timeToLiveMillis == 0 || id == null)
+      {
+         return;
+      }
+
+      pvsTableNames.putIfAbsent(pvsName, tableName);
+      Map<ScopedId, CachedLabel> labels = labelsByPvsName.compute(pvsName, (k, existingLabels) ->
+      {
+         if(getGeneration(tableName) != generation)
+         {
+            return (existingLabels);
+         }
+
+         Map<ScopedId, CachedLabel> rs = existingLabels == null ? new ConcurrentHashMap<>() : existingLabels;
+         rs.put(new ScopedId(securityScope, id), new CachedLabel(label, System.currentTimeMillis() + timeToLiveMillis));
+         return (rs);
+      });
+
+      if(labels != null && labels.size() > maxEntriesPerPossibleValueSource)
+      {
+         evict(pvsName, labels);
+      }
+   }
+
+
+
+   /*******************************************************************************
+    ** make room in a PVS's map that's over its max size:  drop expired entries -
+    ** then, if that wasn't enough, the oldest ones, down to 90% of the max (so
+    ** this doesn't need to happen again on the very next put).
+    *******************************************************************************/
+   private void evict(String pvsName, Map<ScopedId, CachedLabel> labels)
+   {
+      synchronized(labels)
+      {
+         if(labels.size() <= maxEntriesPerPossibleValueSource)
+         {
+            return;
+         }
+
+         int  sizeBefore = labels.size();
+         long now        = System.currentTimeMillis();
+         labels.values().removeIf(cachedLabel -> cachedLabel.expiresAtMillis() <= now);
+
+         int targetSize = maxEntriesPerPossibleValueSource * 9 / 10;
+         if(labels.size() > targetSize)
+         {
+            List<Map.Entry<ScopedId, CachedLabel>> entries = new ArrayList<>(labels.entrySet());
+            entries.sort(Comparator.comparingLong(e -> e.getValue().expiresAtMillis()));
+            for(int i = 0; i < entries.size() - targetSize; i++)
+            {
+               labels.remove(entries.get(i).getKey(), entries.get(i).getValue());
+            }
+         }
+
+         evictionCount.add(sizeBefore - labels.size());
+         LOG.debug("Evicted from possible value translation cache", logPair("pvsName", pvsName), logPair("sizeBefore", sizeBefore), logPair("sizeAfter", labels.size()));
+      }
+   }
+
+
+
+   /*******************************************************************************
+    ** Get the security scope that the current session looks up labels for a PVS
+    ** on a table in:  "" if none of the table's label tables have security locks
+    ** - else a digest of the session's values for the locks' keys (and their
+    ** all-access keys).
+    *******************************************************************************/
+   public static String getSecurityScope(String tableName)
+   {
+      QInstance qInstance = QContext.getQInstance();
+
+      Set<String> securityKeyTypeNames = new TreeSet<>();
+      for(String labelTableName : getLabelTableNames(qInstance, tableName))
+      {
+         QTableMetaData table = qInstance.getTable(labelTableName);
+         collectSecurityKeyTypeNames(table == null ? null : table.getRecordSecurityLocks(), securityKeyTypeNames);
+      }
+
+      if(securityKeyTypeNames.isEmpty())
+      {
+         return ("");
+      }
+
+      QSession session = QContext.getQSession();
+      if(session == null)
+      {
+         return ("noSession");
+      }
+
+      StringBuilder scope = new StringBuilder();
+      for(String securityKeyTypeName : securityKeyTypeNames)
+      {
+         appendSecurityKeyValues(scope, session, securityKeyTypeName);
+
+         QSecurityKeyType securityKeyType = qInstance.getSecurityKeyType(securityKeyTypeName);
+         if(securityKeyType != null && StringUtils.hasContent(securityKeyType.getAllAccessKeyName()))
+         {
+            appendSecurityKeyValues(scope, session, securityKeyType.getAllAccessKeyName());
+         }
+      }
+
+      try
+      {
+         byte[] digest = MessageDigest.getInstance("SHA-256").digest(scope.toString().getBytes(StandardCharsets.UTF_8));
+         return (Base64.getEncoder().encodeToString(digest));
+      }
+      catch(NoSuchAlgorithmException e)
+      {
+         return (scope.toString());
+      }
+   }
+
+
+
+   /*******************************************************************************
+    ** Get the names of a table's label tables:  the table itself, plus the tables
+    ** of any table-type PVSs on its record label fields (as QPossibleValueTranslator
+    ** translates those into the label) - and theirs, and so on.
+    *******************************************************************************/
+   static Set<String> getLabelTableNames(QInstance qInstance, String tableName)
+   {
+      Set<String> labelTableNames = new TreeSet<>();
+      collectLabelTableNames(qInstance, tableName, labelTableNames);
+      return (labelTableNames);
+   }
+
+
+
+   /*******************************************************************************
+    **
+    *******************************************************************************/
+   private static void collectLabelTableNames(QInstance qInstance, String tableName, Set<String> labelTableNames)
+   {
+      if(tableName == null || !labelTableNames.add(tableName))
+      {
+         return;
+      }
+
+      QTableMetaData table = qInstance == null ? null : qInstance.getTable(tableName);
+      if(table == null || table.getFields() == null)
+      {
+         return;
+      }
+
+      for(String recordLabelField : CollectionUtils.nonNullList(table.getRecordLabelFields()))
+      {
+         QFieldMetaData field = table.getFields().get(recordLabelField);
+         if(field != null && field.getPossibleValueSourceName() != null)
+         {
+            QPossibleValueSource possibleValueSource = qInstance.getPossibleValueSource(field.getPossibleValueSourceName());
+            if(possibleValueSource != null && QPossibleValueSourceType.TABLE.equals(possibleValueSource.getType()))
+            {
+               collectLabelTableNames(qInstance, possibleValueSource.getTableName(), labelTableNames);
+            }
+         }
+      }
+   }
+
+
+
+   /*******************************************************************************
+    **
+    *******************************************************************************/
+   private static void collectSecurityKeyTypeNames(List<RecordSecurityLock> locks, Set<String> securityKeyTypeNames)
+   {
+      for(RecordSecurityLock lock : CollectionUtils.nonNullList(locks))
+      {
+         if(lock instanceof MultiRecordSecurityLock multiRecordSecurityLock)
+         {
+            collectSecurityKeyTypeNames(multiRecordSecurityLock.getLocks(), securityKeyTypeNames);
+         }
+         else if(lock.getSecurityKeyType() != null)
+         {
+            securityKeyTypeNames.add(lock.getSecurityKeyType());
+         }
+      }
+   }
+
+
+
+   /*******************************************************************************
+    ** append a key's values to a scope string, in a consistent order.
+    *******************************************************************************/
+   private static void appendSecurityKeyValues(StringBuilder scope, QSession session, String keyName)
+   {
+      Set<String> values = new TreeSet<>();
+      for(Serializable value : session.getSecurityKeyValues(keyName))
+      {
+         values.add(String.valueOf(value));
+      }
+      scope.append(keyName).append('=').append(values).append(';');
+   }
+
+
+
+   /*******************************************************************************
+    **
+    *******************************************************************************/
+   private AtomicLong getTableGeneration(String tableName)
+   {
+      return (tableGenerations.computeIfAbsent(tableName, k -> new AtomicLong()));
+   }
+
+
+
+   /*******************************************************************************
+    ** Get the number of labels currently cached (across all PVSs).
+    *******************************************************************************/
+   public int getSize()
+   {
+      return (labelsByPvsName.values().stream().mapToInt(Map::size).sum());
+   }
+
+
+
+   /*******************************************************************************
+    ** Getter for hitCount
+    *******************************************************************************/
+   public long getHitCount()
+   {
+      return (hitCount.sum());
+   }
+
+
+
+   /*******************************************************************************
+    ** Getter for missCount
+    *******************************************************************************/
+   public long getMissCount()
+   {
+      return (missCount.sum());
+   }
+
+
+
+   /*******************************************************************************
+    ** Getter for evictionCount
+    *******************************************************************************/
+   public long getEvictionCount()
+   {
+      return (evictionCount.sum());
+   }
+
+
+
+   /*******************************************************************************
+    ** Getter for invalidationCount - number of times a PVS's labels were dropped
+    ** because its table was written.
+    *******************************************************************************/
+   public long getInvalidationCount()
+   {
+      return (invalidationCount.sum());
+   }
+
+}
@@ -28,6 +28,7 @@ import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
@@ -316,7 +317,7 @@ public class QPossibleValueTranslator
       // look for cached value - if it's missing, call the primer //
       //////////////////////////////////////////////////////////////
       Map<Serializable, String> cacheForPvs = possibleValueCache.computeIfAbsent(possibleValueSource.getName(), x -> new HashMap<>());
-      if(!cacheForPvs.containsKey(value))
+      if(!cacheForPvs.containsKey(value) && !copyFromSharedCache(List.of(possibleValueSource), List.of(value)).isEmpty())
       {
          primePvsCache(possibleValueSource.getTableName(), List.of(possibleValueSource), List.of(value));
       }
@@ -477,13 +478,58 @@ public class QPossibleValueTranslator
 
          if(!values.isEmpty())
          {
-            primePvsCache(tableName, pvsesByTable.get(tableName), values);
+            Collection<Serializable> valuesToLookUp = copyFromSharedCache(pvsesByTable.get(tableName), values);
+            if(!valuesToLookUp.isEmpty())
+            {
+               primePvsCache(tableName, pvsesByTable.get(tableName), valuesToLookUp);
+            }
          }
       }
    }
 
 
 
+   /*******************************************************************************
+    ** If the instance has a shared PossibleValueTranslationCache, copy any labels
+    ** it has for the given values (for all the given PVSs) into this translator's
+    ** cache.
+    **
+    ** @return the values that weren't in the shared cache (for every PVS) - and
+    ** so still need looked up.
+    *******************************************************************************/
+   private Collection<Serializable> copyFromSharedCache(List<QPossibleValueSource> possibleValueSources, Collection<Serializable> values)
+   {
+      PossibleValueTranslationCache sharedCache = PossibleValueTranslationCache.getCache(QContext.getQInstance());
+      if(sharedCache == null)
+      {
+         return (values);
+      }
+
+      Map<String, String> securityScopesByTable = new HashMap<>();
+      Set<Serializable>   missingValues         = new LinkedHashSet<>();
+      for(QPossibleValueSource possibleValueSource : new LinkedHashSet<>(possibleValueSources))
+      {
+         String                    securityScope = securityScopesByTable.computeIfAbsent(possibleValueSource.getTableName(), PossibleValueTranslationCache::getSecurityScope);
+         Map<Serializable, String> cacheForPvs   = possibleValueCache.computeIfAbsent(possibleValueSource.getName(), x -> new HashMap<>());
+         for(Serializable value : values)
+         {
+            PossibleValueTranslationCache.CachedLabel cachedLabel = sharedCache.get(possibleValueSource.getName(), securityScope, value);
+            if(cachedLabel == null)
+            {
+               missingValues.add(value);
+            }
+            else
+            {
+               cacheForPvs.put(value, cachedLabel.label());
+            }
+         }
+      }
+
+      return (missingValues);
+   }
+
+
+
    /*******************************************************************************
     ** Helper for the primePvsCache method
     *******************************************************************************/
@@ -554,6 +600,15 @@ public class QPossibleValueTranslator
          }
       }
 
+      ////////////////////////////////////////////////////////////////////////////////////////
+      // note the table's generation before querying, so that, if the table (or any other   //
+      // table its labels are built from) gets written by the time we're done, the labels   //
+      // we found don't go into the shared cache.                                           //
+      ////////////////////////////////////////////////////////////////////////////////////////
+      PossibleValueTranslationCache sharedCache           = PossibleValueTranslationCache.getCache(QContext.getQInstance());
+      long                          sharedCacheGeneration = sharedCache == null ? 0 : sharedCache.getGeneration(tableName);
+      String                        securityScope         = sharedCache == null ? null : PossibleValueTranslationCache.getSecurityScope(tableName);
+
       try
       {
          for(List<Serializable> page : CollectionUtils.getPages(values, 1000))
@@ -626,6 +681,18 @@ public class QPossibleValueTranslator
                   }
                }
             }
+
+            if(sharedCache != null)
+            {
+               for(QPossibleValueSource possibleValueSource : possibleValueSources)
+               {
+                  Map<Serializable, String> cacheForPvs = possibleValueCache.get(possibleValueSource.getName());
+                  for(Serializable pkey : page)
+                  {
+                     sharedCache.put(possibleValueSource.getName(), tableName, sharedCacheGeneration, securityScope, pkey, cacheForPvs.get(pkey));
+                  }
+               }
+            }
          }
       }
       catch(Exception e)
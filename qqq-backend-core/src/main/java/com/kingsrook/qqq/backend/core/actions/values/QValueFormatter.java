@@ -338,7 +338,7 @@ public class QValueFormatter
 
       for(QRecord record : records)
       {
-         for(String fieldName : record.getValues().keySet())
+         for(String fieldName : record.getValueFieldNames())
          {
             if(!fieldMap.containsKey(fieldName))
             {
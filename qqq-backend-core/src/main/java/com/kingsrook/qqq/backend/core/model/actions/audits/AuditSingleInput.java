@@ -333,7 +333,7 @@ public class AuditSingleInput implements Serializable
    {
       for(String detail : details)
       {
-         addDetail(message);
+         addDetail(detail);
       }
       return (this);
    }
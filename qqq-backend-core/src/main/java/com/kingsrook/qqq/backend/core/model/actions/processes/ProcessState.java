@@ -27,6 +27,7 @@ import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
 import com.kingsrook.qqq.backend.core.model.data.QRecord;
 
@@ -39,8 +40,8 @@ public class ProcessState implements Serializable
    private List<QRecord>             records      = new ArrayList<>();
    private Map<String, Serializable> values       = new HashMap<>();
    private List<String>              stepList     = new ArrayList<>();
-   private Optional<String>          nextStepName = Optional.empty();
-   private Optional<String>          backStepName = Optional.empty();
+   private String                    nextStepName = null;
+   private String                    backStepName = null;
    private boolean                   isStepBack   = false;
 
    private ProcessMetaDataAdjustment processMetaDataAdjustment = null;
@@ -97,7 +98,7 @@ public class ProcessState implements Serializable
     *******************************************************************************/
    public Optional<String> getNextStepName()
    {
-      return nextStepName;
+      return (Optional.ofNullable(nextStepName));
    }
 
 
@@ -108,7 +109,7 @@ public class ProcessState implements Serializable
     *******************************************************************************/
    public void setNextStepName(String nextStepName)
    {
-      this.nextStepName = Optional.of(nextStepName);
+      this.nextStepName = Objects.requireNonNull(nextStepName);
    }
 
 
@@ -119,7 +120,7 @@ public class ProcessState implements Serializable
     *******************************************************************************/
    public void clearNextStepName()
    {
-      this.nextStepName = Optional.empty();
+      this.nextStepName = null;
    }
 
 
@@ -130,7 +131,7 @@ public class ProcessState implements Serializable
     *******************************************************************************/
    public Optional<String> getBackStepName()
    {
-      return backStepName;
+      return (Optional.ofNullable(backStepName));
    }
 
 
@@ -141,7 +142,7 @@ public class ProcessState implements Serializable
     *******************************************************************************/
    public void setBackStepName(String backStepName)
    {
-      this.backStepName = Optional.of(backStepName);
+      this.backStepName = Objects.requireNonNull(backStepName);
    }
 
 
@@ -152,7 +153,7 @@ public class ProcessState implements Serializable
     *******************************************************************************/
    public void clearBackStepName()
    {
-      this.backStepName = Optional.empty();
+      this.backStepName = null;
    }
 
 
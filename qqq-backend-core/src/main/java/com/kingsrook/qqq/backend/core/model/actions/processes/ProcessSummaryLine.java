@@ -25,6 +25,7 @@ package com.kingsrook.qqq.backend.core.model.actions.processes;
 import java.io.Serializable;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Objects;
 import com.kingsrook.qqq.backend.core.logging.LogPair;
 import com.kingsrook.qqq.backend.core.utils.ObjectUtils;
 import com.kingsrook.qqq.backend.core.utils.StringUtils;
@@ -242,6 +243,75 @@ public class ProcessSummaryLine implements ProcessSummaryLineInterface
 
 
 
+   /*******************************************************************************
+    ** Check if this line describes the same thing as another line (same status
+    ** and messages) - e.g., the same line, as produced by two different instances
+    ** of a step that each processed part of the records - such that the two can
+    ** be combined via mergeFrom.
+    *******************************************************************************/
+   public boolean isMergeableWith(ProcessSummaryLine other)
+   {
+      if(other == null || !Objects.equals(status, other.status))
+      {
+         return (false);
+      }
+
+      boolean hasMessageVariants = singularFutureMessage != null || pluralFutureMessage != null || singularPastMessage != null || pluralPastMessage != null;
+      if(hasMessageVariants)
+      {
+         return (Objects.equals(singularFutureMessage, other.singularFutureMessage)
+            && Objects.equals(pluralFutureMessage, other.pluralFutureMessage)
+            && Objects.equals(singularPastMessage, other.singularPastMessage)
+            && Objects.equals(pluralPastMessage, other.pluralPastMessage)
+            && Objects.equals(messageSuffix, other.messageSuffix));
+      }
+
+      return (Objects.equals(message, other.message));
+   }
+
+
+
+   /*******************************************************************************
+    ** Add the count, primary keys, and bullets from another (mergeable) line
+    ** into this one.  If this line has singular/plural message variants, its
+    ** message is re-picked, as the count it was picked for has changed.
+    *******************************************************************************/
+   public void mergeFrom(ProcessSummaryLine other, boolean isPast)
+   {
+      if(other.count != null)
+      {
+         incrementCount(other.count);
+      }
+
+      if(other.primaryKeys != null)
+      {
+         if(primaryKeys == null)
+         {
+            primaryKeys = new ArrayList<>();
+         }
+         primaryKeys.addAll(other.primaryKeys);
+      }
+
+      if(other.bulletsOfText != null)
+      {
+         if(bulletsOfText == null)
+         {
+            bulletsOfText = new ArrayList<>();
+         }
+         for(String bullet : other.bulletsOfText)
+         {
+            if(!bulletsOfText.contains(bullet))
+            {
+               bulletsOfText.add(bullet);
+            }
+         }
+      }
+
+      pickMessage(isPast);
+   }
+
+
+
    /*******************************************************************************
     **
     *******************************************************************************/
@@ -34,5 +34,12 @@ package com.kingsrook.qqq.backend.core.model.actions.tables;
 public enum QueryHint
 {
    POTENTIALLY_LARGE_NUMBER_OF_RESULTS,
-   MAY_USE_READ_ONLY_BACKEND
+   MAY_USE_READ_ONLY_BACKEND,
+
+   //////////////////////////////////////////////////////////////////////////////
+   // tell backends that support it to produce records in columnar batches     //
+   // (see QRecordBatch) - e.g., for bulk reads, where records are mostly only //
+   // read field-by-field, and per-record value maps dominate heap usage.      //
+   //////////////////////////////////////////////////////////////////////////////
+   COLUMNAR_RECORD_BATCHES
 }
@@ -47,6 +47,13 @@ public class GetInput extends AbstractTableActionInput implements QueryOrGetInpu
    private Serializable              primaryKey;
    private Map<String, Serializable> uniqueKey;
 
+   //////////////////////////////////////////////////////////////////////////////////////////////
+   // to get many records at once (see GetAction.executeBatch), set one of these lists instead //
+   // of primaryKey or uniqueKey.  the output's records will be in the same order as these.    //
+   //////////////////////////////////////////////////////////////////////////////////////////////
+   private List<Serializable>              primaryKeys;
+   private List<Map<String, Serializable>> uniqueKeys;
+
    private boolean shouldTranslatePossibleValues = false;
    private boolean shouldGenerateDisplayValues   = false;
    private boolean shouldFetchHeavyFields        = true;
@@ -167,6 +174,69 @@ public class GetInput extends AbstractTableActionInput implements QueryOrGetInpu
 
 
 
+   /*******************************************************************************
+    ** Getter for primaryKeys
+    *******************************************************************************/
+   public List<Serializable> getPrimaryKeys()
+   {
+      return (this.primaryKeys);
+   }
+
+
+
+   /*******************************************************************************
+    ** Setter for primaryKeys - to get the records for many primary keys at once.
+    *******************************************************************************/
+   public void setPrimaryKeys(List<Serializable> primaryKeys)
+   {
+      this.primaryKeys = primaryKeys;
+   }
+
+
+
+   /*******************************************************************************
+    ** Fluent setter for primaryKeys
+    *******************************************************************************/
+   public GetInput withPrimaryKeys(List<Serializable> primaryKeys)
+   {
+      this.primaryKeys = primaryKeys;
+      return (this);
+   }
+
+
+
+   /*******************************************************************************
+    ** Getter for uniqueKeys
+    *******************************************************************************/
+   public List<Map<String, Serializable>> getUniqueKeys()
+   {
+      return (this.uniqueKeys);
+   }
+
+
+
+   /*******************************************************************************
+    ** Setter for uniqueKeys - to get the records for many unique keys at once
+    ** (all of which must use the same fields).
+    *******************************************************************************/
+   public void setUniqueKeys(List<Map<String, Serializable>> uniqueKeys)
+   {
+      this.uniqueKeys = uniqueKeys;
+   }
+
+
+
+   /*******************************************************************************
+    ** Fluent setter for uniqueKeys
+    *******************************************************************************/
+   public GetInput withUniqueKeys(List<Map<String, Serializable>> uniqueKeys)
+   {
+      this.uniqueKeys = uniqueKeys;
+      return (this);
+   }
+
+
+
    /*******************************************************************************
     ** Getter for shouldTranslatePossibleValues
     **
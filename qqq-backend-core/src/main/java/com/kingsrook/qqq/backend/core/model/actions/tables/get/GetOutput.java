@@ -23,6 +23,7 @@ package com.kingsrook.qqq.backend.core.model.actions.tables.get;
 
 
 import java.io.Serializable;
+import java.util.List;
 import com.kingsrook.qqq.backend.core.model.actions.AbstractActionOutput;
 import com.kingsrook.qqq.backend.core.model.data.QRecord;
 
@@ -33,7 +34,8 @@ import com.kingsrook.qqq.backend.core.model.data.QRecord;
  *******************************************************************************/
 public class GetOutput extends AbstractActionOutput implements Serializable
 {
-   private QRecord record;
+   private QRecord       record;
+   private List<QRecord> records;
 
 
 
@@ -69,4 +71,36 @@ public class GetOutput extends AbstractActionOutput implements Serializable
       return (this);
    }
 
+
+
+   /*******************************************************************************
+    ** Getter for records - the output of a batch get:  one element per key in the
+    ** input, in the same order, with null for any key whose record wasn't found.
+    *******************************************************************************/
+   public List<QRecord> getRecords()
+   {
+      return (this.records);
+   }
+
+
+
+   /*******************************************************************************
+    ** Setter for records
+    *******************************************************************************/
+   public void setRecords(List<QRecord> records)
+   {
+      this.records = records;
+   }
+
+
+
+   /*******************************************************************************
+    ** Fluent setter for records
+    *******************************************************************************/
+   public GetOutput withRecords(List<QRecord> records)
+   {
+      this.records = records;
+      return (this);
+   }
+
 }
@@ -0,0 +1,202 @@
+/*
+ * QQQ - Low-code Application Framework for Engineers.
+ * Copyright (C) 2021-2025.  Kingsrook, LLC
+ * 651 N Broad St Ste 205 # 6917 | Middletown DE 19709 | United States
+ * contact@kingsrook.com
+ * https://github.com/Kingsrook/
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+
+package com.kingsrook.qqq.backend.core.model.data;
+
+
+import java.io.Serializable;
+import java.util.Collection;
+import java.util.Map;
+import com.kingsrook.qqq.backend.core.model.metadata.fields.QFieldMetaData;
+
+
+/*******************************************************************************
+ ** A QRecord whose values live in a row of a QRecordBatch (rather than in its
+ ** own values map).  Reads of individual values (getValue, getValueString, etc)
+ ** go straight to the batch's columns.
+ **
+ ** The first time anything asks for the values map (getValues), or changes a
+ ** value (setValue, removeValue, setValues), the row's values are copied into a
+ ** map on this record, and from then on it behaves just like a plain QRecord
+ ** (and no longer references the batch).  So, the batch itself is never written
+ ** to through a record.
+ **
+ ** Serializes as a plain QRecord (so serializing one record doesn't drag its
+ ** whole batch along with it).
+ *******************************************************************************/
+public class ColumnarQRecord extends QRecord
+{
+   private transient QRecordBatch batch;
+   private final int              rowIndex;
+
+
+
+   /*******************************************************************************
+    ** Constructor - meant to be called by QRecordBatch.getRecord.
+    *******************************************************************************/
+   ColumnarQRecord(QRecordBatch batch, int rowIndex)
+   {
+      super(batch.getTableName(), false);
+      this.batch = batch;
+      this.rowIndex = rowIndex;
+   }
+
+
+
+   /*******************************************************************************
+    ** Check if this record's values have been copied out of its batch, into a map.
+    *******************************************************************************/
+   public boolean isMaterialized()
+   {
+      return (batch == null);
+   }
+
+
+
+   /*******************************************************************************
+    ** copy values from the batch into a map on this record, and detach from the batch.
+    *******************************************************************************/
+   private void materialize()
+   {
+      if(batch != null)
+      {
+         super.setValues(batch.materializeValues(rowIndex));
+         batch = null;
+      }
+   }
+
+
+
+   /*******************************************************************************
+    **
+    *******************************************************************************/
+   @Override
+   public Serializable getValue(String fieldName)
+   {
+      if(batch != null)
+      {
+         return (batch.getValue(rowIndex, fieldName));
+      }
+      return (super.getValue(fieldName));
+   }
+
+
+
+   /*******************************************************************************
+    ** get the field names from the batch, without materializing.
+    *******************************************************************************/
+   @Override
+   public Collection<String> getValueFieldNames()
+   {
+      if(batch != null)
+      {
+         return (batch.getPresentFieldNames(rowIndex));
+      }
+      return (super.getValueFieldNames());
+   }
+
+
+
+   /*******************************************************************************
+    **
+    *******************************************************************************/
+   @Override
+   public Map<String, Serializable> getValues()
+   {
+      materialize();
+      return (super.getValues());
+   }
+
+
+
+   /*******************************************************************************
+    **
+    *******************************************************************************/
+   @Override
+   public void setValues(Map<String, Serializable> values)
+   {
+      batch = null;
+      super.setValues(values);
+   }
+
+
+
+   /*******************************************************************************
+    **
+    *******************************************************************************/
+   @Override
+   public void setValue(String fieldName, Serializable value)
+   {
+      materialize();
+      super.setValue(fieldName, value);
+   }
+
+
+
+   /*******************************************************************************
+    **
+    *******************************************************************************/
+   @Override
+   public void setValue(QFieldMetaData field, Serializable value)
+   {
+      materialize();
+      super.setValue(field, value);
+   }
+
+
+
+   /*******************************************************************************
+    **
+    *******************************************************************************/
+   @Override
+   public void removeValue(String fieldName)
+   {
+      materialize();
+      super.removeValue(fieldName);
+   }
+
+
+
+   /*******************************************************************************
+    ** for the copy constructor - copy values from the batch, without materializing.
+    *******************************************************************************/
+   @Override
+   protected Map<String, Serializable> copyValues()
+   {
+      if(batch != null)
+      {
+         return (batch.materializeValues(rowIndex));
+      }
+      return (super.copyValues());
+   }
+
+
+
+   /*******************************************************************************
+    ** serialize as a plain QRecord copy of this one.
+    *******************************************************************************/
+   private Object writeReplace()
+   {
+      return (new QRecord(this));
+   }
+
+}
@@ -29,12 +29,16 @@ import java.time.LocalDate;
 import java.time.LocalTime;
 import java.time.temporal.Temporal;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.Date;
 import java.util.HashMap;
 import java.util.LinkedHashMap;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
+import java.util.function.Supplier;
+import java.util.function.UnaryOperator;
 import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.kingsrook.qqq.backend.core.exceptions.QException;
 import com.kingsrook.qqq.backend.core.logging.QLogger;
@@ -66,6 +70,14 @@ import static com.kingsrook.qqq.backend.core.logging.LogUtils.logPair;
  ** processing a record - e.g., in a list of records that may be the output of an
  ** action, like a bulk load.  Warnings play a similar role, but are just advice
  ** - they don't mean that the action was failed, just something you may need to know.
+ **
+ ** To keep records that are only ever read (e.g., query results) light, the
+ ** structures other than values are allocated lazily - that is, on first write,
+ ** through a mutator such as addError or setDisplayValue.  Their getters never
+ ** allocate - they return the shared empty structure, or an unmodifiable view -
+ ** so writes must go through the mutators (or a setter).  The copy constructor
+ ** shares empty structures with the original record, and (deep) copies any
+ ** others - it never modifies the original record.
  *******************************************************************************/
 public class QRecord implements Serializable
 {
@@ -74,14 +86,14 @@ public class QRecord implements Serializable
    private String tableName;
    private String recordLabel;
 
-   private Map<String, Serializable> values         = new LinkedHashMap<>();
-   private Map<String, String>       displayValues  = new LinkedHashMap<>();
-   private Map<String, Serializable> backendDetails = new LinkedHashMap<>();
+   private Map<String, Serializable> values;
+   private Map<String, String>       displayValues  = Collections.emptyMap();
+   private Map<String, Serializable> backendDetails = Collections.emptyMap();
 
-   private List<QErrorMessage>   errors   = new ArrayList<>();
-   private List<QWarningMessage> warnings = new ArrayList<>();
+   private List<QErrorMessage>   errors   = Collections.emptyList();
+   private List<QWarningMessage> warnings = Collections.emptyList();
 
-   private Map<String, List<QRecord>> associatedRecords = new HashMap<>();
+   private Map<String, List<QRecord>> associatedRecords = Collections.emptyMap();
 
    ////////////////////////////////////////////////
    // well-known keys for the backendDetails map //
@@ -96,6 +108,24 @@ public class QRecord implements Serializable
     *******************************************************************************/
    public QRecord()
    {
+      values = new LinkedHashMap<>();
+   }
+
+
+
+   /*******************************************************************************
+    ** Constructor for subclasses that manage their own storage of values (e.g.,
+    ** ColumnarQRecord) - where allocateValuesMap may be false, to skip allocating
+    ** a values map (in which case, the subclass must call setValues before the
+    ** map is used).
+    *******************************************************************************/
+   protected QRecord(String tableName, boolean allocateValuesMap)
+   {
+      this.tableName = tableName;
+      if(allocateValuesMap)
+      {
+         values = new LinkedHashMap<>();
+      }
    }
 
 
@@ -105,6 +135,7 @@ public class QRecord implements Serializable
     *******************************************************************************/
    public QRecord(QTableMetaData tableMetaData, Serializable primaryKeyValue)
    {
+      this();
       setTableName(tableMetaData.getName());
       setValue(tableMetaData.getPrimaryKeyField(), primaryKeyValue);
    }
@@ -112,7 +143,8 @@ public class QRecord implements Serializable
 
 
    /*******************************************************************************
-    ** Copy constructor.  Makes a deep clone.
+    ** Copy constructor.  Makes a deep clone - though, empty structures other than
+    ** values are shared (see class-level comment).
     **
     *******************************************************************************/
    public QRecord(QRecord record)
@@ -120,14 +152,171 @@ public class QRecord implements Serializable
       this.tableName = record.tableName;
       this.recordLabel = record.recordLabel;
 
-      this.values = deepCopySimpleMap(record.values);
-      this.displayValues = deepCopySimpleMap(record.displayValues);
-      this.backendDetails = deepCopySimpleMap(record.backendDetails);
+      ///////////////////////////////////////////////////////////////////////////
+      // ask the record for a copy of its values (vs. reading the field), for  //
+      // subclasses that may not store them in the map (e.g., ColumnarQRecord) //
+      ///////////////////////////////////////////////////////////////////////////
+      this.values = record.copyValues();
+
+      this.displayValues = copyMap(record.displayValues, QRecord::deepCopySimpleMap);
+      this.backendDetails = copyMap(record.backendDetails, QRecord::deepCopySimpleMap);
+      this.errors = copyList(record.errors);
+      this.warnings = copyList(record.warnings);
+      this.associatedRecords = copyMap(record.associatedRecords, QRecord::deepCopyAssociatedRecords);
+   }
+
+
+
+   /*******************************************************************************
+    ** For the copy constructor - build a (deep) copy of this record's values,
+    ** without modifying this record.
+    *******************************************************************************/
+   protected Map<String, Serializable> copyValues()
+   {
+      return (deepCopySimpleMap(getValues()));
+   }
 
-      this.errors = record.errors == null ? null : new ArrayList<>(record.errors);
-      this.warnings = record.warnings == null ? null : new ArrayList<>(record.warnings);
 
-      this.associatedRecords = deepCopyAssociatedRecords(record.associatedRecords);
+
+   /*******************************************************************************
+    ** For the copy constructor - copy a (side) map from another record - unless
+    ** it is null, or empty (in which case, the shared, immutable, empty map is
+    ** used, rather than allocating one).
+    *******************************************************************************/
+   private static <V> Map<String, V> copyMap(Map<String, V> map, UnaryOperator<Map<String, V>> copier)
+   {
+      if(map == null)
+      {
+         return (null);
+      }
+      return (map.isEmpty() ? Collections.emptyMap() : copier.apply(map));
+   }
+
+
+
+   /*******************************************************************************
+    ** For the copy constructor - copy a (side) list from another record - unless
+    ** it is null, or empty (in which case, the shared, immutable, empty list is
+    ** used, rather than allocating one).
+    *******************************************************************************/
+   private static <T> List<T> copyList(List<T> list)
+   {
+      if(list == null)
+      {
+         return (null);
+      }
+      return (list.isEmpty() ? Collections.emptyList() : new ArrayList<>(list));
+   }
+
+
+
+   /*******************************************************************************
+    ** For getters - a read-only view of a (side) map, without allocating one if
+    ** it's null or un-allocated.
+    *******************************************************************************/
+   private static <V> Map<String, V> readOnlyMap(Map<String, V> map)
+   {
+      if(map == null || isUnallocated(map))
+      {
+         return (map);
+      }
+      return (Collections.unmodifiableMap(map));
+   }
+
+
+
+   /*******************************************************************************
+    ** For getters - a read-only view of a (side) list, without allocating one if
+    ** it's null or un-allocated.
+    *******************************************************************************/
+   private static <T> List<T> readOnlyList(List<T> list)
+   {
+      if(list == null || isUnallocated(list))
+      {
+         return (list);
+      }
+      return (Collections.unmodifiableList(list));
+   }
+
+
+
+   /*******************************************************************************
+    ** Check if a (side) structure is still the shared, immutable, empty instance,
+    ** that is used before it has been allocated.
+    *******************************************************************************/
+   private static boolean isUnallocated(Object structure)
+   {
+      return (structure == Collections.EMPTY_MAP || structure == Collections.EMPTY_LIST);
+   }
+
+
+
+   /*******************************************************************************
+    ** Make sure that a (side) structure of this record is one that can be written
+    ** to - that is - allocate it if it's un-allocated (or null).
+    *******************************************************************************/
+   private static <T> T ownStructure(T structure, Supplier<T> allocator)
+   {
+      if(structure == null || isUnallocated(structure))
+      {
+         return (allocator.get());
+      }
+      return (structure);
+   }
+
+
+
+   /*******************************************************************************
+    **
+    *******************************************************************************/
+   private Map<String, String> mutableDisplayValues()
+   {
+      displayValues = ownStructure(displayValues, LinkedHashMap::new);
+      return (displayValues);
+   }
+
+
+
+   /*******************************************************************************
+    **
+    *******************************************************************************/
+   private Map<String, Serializable> mutableBackendDetails()
+   {
+      backendDetails = ownStructure(backendDetails, LinkedHashMap::new);
+      return (backendDetails);
+   }
+
+
+
+   /*******************************************************************************
+    **
+    *******************************************************************************/
+   private List<QErrorMessage> mutableErrors()
+   {
+      errors = ownStructure(errors, ArrayList::new);
+      return (errors);
+   }
+
+
+
+   /*******************************************************************************
+    **
+    *******************************************************************************/
+   private List<QWarningMessage> mutableWarnings()
+   {
+      warnings = ownStructure(warnings, ArrayList::new);
+      return (warnings);
+   }
+
+
+
+   /*******************************************************************************
+    **
+    *******************************************************************************/
+   private Map<String, List<QRecord>> mutableAssociatedRecords()
+   {
+      associatedRecords = ownStructure(associatedRecords, HashMap::new);
+      return (associatedRecords);
    }
 
 
@@ -147,7 +336,7 @@ public class QRecord implements Serializable
     ** todo - move to a cloning utils maybe?
     *******************************************************************************/
    @SuppressWarnings({ "unchecked" })
-   private <V extends Serializable> Map<String, V> deepCopySimpleMap(Map<String, V> map)
+   private static <V extends Serializable> Map<String, V> deepCopySimpleMap(Map<String, V> map)
    {
       if(map == null)
       {
@@ -207,7 +396,7 @@ public class QRecord implements Serializable
    /*******************************************************************************
     **
     *******************************************************************************/
-   private Map<String, List<QRecord>> deepCopyAssociatedRecords(Map<String, List<QRecord>> input)
+   private static Map<String, List<QRecord>> deepCopyAssociatedRecords(Map<String, List<QRecord>> input)
    {
       if(input == null)
       {
@@ -281,7 +470,10 @@ public class QRecord implements Serializable
    public void removeValue(String fieldName)
    {
       values.remove(fieldName);
-      displayValues.remove(fieldName);
+      if(displayValues != null && displayValues.containsKey(fieldName))
+      {
+         mutableDisplayValues().remove(fieldName);
+      }
    }
 
 
@@ -312,7 +504,7 @@ public class QRecord implements Serializable
     *******************************************************************************/
    public void setDisplayValue(String fieldName, String displayValue)
    {
-      displayValues.put(fieldName, displayValue);
+      mutableDisplayValues().put(fieldName, displayValue);
    }
 
 
@@ -407,6 +599,24 @@ public class QRecord implements Serializable
 
 
 
+   /*******************************************************************************
+    ** Get the names of the fields that have values (even null ones) in this record.
+    ** Prefer this over getValues().keySet() when only the names are needed, as
+    ** subclasses may be able to answer without building a values map.
+    *******************************************************************************/
+   @JsonIgnore
+   public Collection<String> getValueFieldNames()
+   {
+      Map<String, Serializable> values = getValues();
+      if(values == null)
+      {
+         return (Collections.emptySet());
+      }
+      return (Collections.unmodifiableSet(values.keySet()));
+   }
+
+
+
    /*******************************************************************************
     ** Setter for values
     **
@@ -435,7 +645,7 @@ public class QRecord implements Serializable
     *******************************************************************************/
    public Map<String, String> getDisplayValues()
    {
-      return displayValues;
+      return (readOnlyMap(displayValues));
    }
 
 
@@ -561,7 +771,7 @@ public class QRecord implements Serializable
     *******************************************************************************/
    public Map<String, Serializable> getBackendDetails()
    {
-      return backendDetails;
+      return (readOnlyMap(backendDetails));
    }
 
 
@@ -583,7 +793,7 @@ public class QRecord implements Serializable
     *******************************************************************************/
    public void addBackendDetail(String key, Serializable value)
    {
-      this.backendDetails.put(key, value);
+      mutableBackendDetails().put(key, value);
    }
 
 
@@ -633,7 +843,17 @@ public class QRecord implements Serializable
     *******************************************************************************/
    public List<QErrorMessage> getErrors()
    {
-      return (errors);
+      return (readOnlyList(errors));
+   }
+
+
+
+   /*******************************************************************************
+    ** Check if this record has any errors (without allocating an errors list).
+    *******************************************************************************/
+   public boolean hasErrors()
+   {
+      return (errors != null && !errors.isEmpty());
    }
 
 
@@ -671,7 +891,7 @@ public class QRecord implements Serializable
     *******************************************************************************/
    public void addError(QErrorMessage error)
    {
-      this.errors.add(error);
+      mutableErrors().add(error);
    }
 
 
@@ -703,7 +923,7 @@ public class QRecord implements Serializable
     *******************************************************************************/
    public Map<String, List<QRecord>> getAssociatedRecords()
    {
-      return (this.associatedRecords);
+      return (readOnlyMap(associatedRecords));
    }
 
 
@@ -723,7 +943,7 @@ public class QRecord implements Serializable
     *******************************************************************************/
    public QRecord withAssociatedRecords(Map<String, List<QRecord>> associatedRecords)
    {
-      this.associatedRecords = associatedRecords;
+      setAssociatedRecords(associatedRecords);
       return (this);
    }
 
@@ -734,11 +954,7 @@ public class QRecord implements Serializable
     *******************************************************************************/
    public QRecord withAssociatedRecords(String name, List<QRecord> associatedRecords)
    {
-      if(this.associatedRecords == null)
-      {
-         this.associatedRecords = new HashMap<>();
-      }
-      this.associatedRecords.put(name, associatedRecords);
+      mutableAssociatedRecords().put(name, associatedRecords);
       return (this);
    }
 
@@ -749,12 +965,7 @@ public class QRecord implements Serializable
     *******************************************************************************/
    public QRecord withAssociatedRecord(String name, QRecord associatedRecord)
    {
-      if(this.associatedRecords == null)
-      {
-         this.associatedRecords = new HashMap<>();
-      }
-      this.associatedRecords.putIfAbsent(name, new ArrayList<>());
-      this.associatedRecords.get(name).add(associatedRecord);
+      mutableAssociatedRecords().computeIfAbsent(name, k -> new ArrayList<>()).add(associatedRecord);
       return (this);
    }
 
@@ -765,7 +976,17 @@ public class QRecord implements Serializable
     *******************************************************************************/
    public List<QWarningMessage> getWarnings()
    {
-      return (this.warnings);
+      return (readOnlyList(warnings));
+   }
+
+
+
+   /*******************************************************************************
+    ** Check if this record has any warnings (without allocating a warnings list).
+    *******************************************************************************/
+   public boolean hasWarnings()
+   {
+      return (warnings != null && !warnings.isEmpty());
    }
 
 
@@ -813,7 +1034,7 @@ public class QRecord implements Serializable
     *******************************************************************************/
    public QRecord withWarnings(List<QWarningMessage> warnings)
    {
-      this.warnings = warnings;
+      setWarnings(warnings);
       return (this);
    }
 
@@ -825,7 +1046,7 @@ public class QRecord implements Serializable
     *******************************************************************************/
    public void addWarning(QWarningMessage warning)
    {
-      this.warnings.add(warning);
+      mutableWarnings().add(warning);
    }
 
 }
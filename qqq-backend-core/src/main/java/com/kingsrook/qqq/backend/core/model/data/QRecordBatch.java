@@ -0,0 +1,543 @@
+/*
+ * QQQ - Low-code Application Framework for Engineers.
+ * Copyright (C) 2021-2025.  Kingsrook, LLC
+ * 651 N Broad St Ste 205 # 6917 | Middletown DE 19709 | United States
+ * contact@kingsrook.com
+ * https://github.com/Kingsrook/
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+
+package com.kingsrook.qqq.backend.core.model.data;
+
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+
+
+/*******************************************************************************
+ ** A columnar batch of records, all from the same table and with the same set
+ ** of fields (as described by a shared QRecordBatchLayout).  Values are stored
+ ** in one array per field (primitive arrays for INTEGER, LONG, and BOOLEAN
+ ** fields; an Object array for other types) - rather than in a map per record.
+ **
+ ** Individual rows are exposed as ColumnarQRecord objects (see getRecord and
+ ** getRecords), which read values straight out of the batch's columns, only
+ ** materializing a values map if legacy code asks for one (e.g., getValues or
+ ** setValue).  This makes the batch a drop-in producer of QRecords for bulk
+ ** paths (e.g., large queries & exports), where most records are only ever read
+ ** field-by-field.
+ **
+ ** A batch is meant to be written by one producer (addRow, setValue), and then
+ ** treated as read-only once its records are handed off to consumers.
+ *******************************************************************************/
+public class QRecordBatch implements Serializable
+{
+   private final QRecordBatchLayout layout;
+   private final String             tableName;
+   private final int                capacity;
+   private final Column[]           columns;
+   private final ColumnarQRecord[]  records;
+
+   private int rowCount = 0;
+
+
+
+   /*******************************************************************************
+    ** Constructor
+    *******************************************************************************/
+   public QRecordBatch(QRecordBatchLayout layout, String tableName, int capacity)
+   {
+      this.layout = layout;
+      this.tableName = tableName;
+      this.capacity = capacity;
+      this.records = new ColumnarQRecord[capacity];
+
+      this.columns = new Column[layout.size()];
+      for(int i = 0; i < layout.size(); i++)
+      {
+         columns[i] = switch(layout.getFieldType(i))
+         {
+            case INTEGER -> new IntColumn(capacity);
+            case LONG -> new LongColumn(capacity);
+            case BOOLEAN -> new BooleanColumn();
+            default -> new ObjectColumn(capacity);
+         };
+      }
+   }
+
+
+
+   /*******************************************************************************
+    ** Build a batch from a list of (map-based) records, e.g., to compact them.
+    ** Values for fields not in the layout are not copied.
+    *******************************************************************************/
+   public static QRecordBatch fromRecords(QRecordBatchLayout layout, String tableName, List<QRecord> records)
+   {
+      QRecordBatch batch = new QRecordBatch(layout, tableName, records.size());
+      for(QRecord record : records)
+      {
+         int row = batch.addRow();
+         for(int i = 0; i < layout.size(); i++)
+         {
+            String fieldName = layout.getFieldName(i);
+            if(record.getValues().containsKey(fieldName))
+            {
+               batch.setValue(row, i, record.getValue(fieldName));
+            }
+         }
+      }
+      return (batch);
+   }
+
+
+
+   /*******************************************************************************
+    ** Add a new (empty) row to the batch, returning its index.
+    *******************************************************************************/
+   public int addRow()
+   {
+      if(rowCount >= capacity)
+      {
+         throw (new IllegalStateException("QRecordBatch is full (capacity: " + capacity + ")"));
+      }
+      return (rowCount++);
+   }
+
+
+
+   /*******************************************************************************
+    ** Set the value for a field (by its layout index) in a row.  If the value's
+    ** type can't be stored in the column's primitive array (e.g., a String for an
+    ** INTEGER field), the column is converted to a generic one, so no values are
+    ** ever lost or coerced.
+    *******************************************************************************/
+   public void setValue(int row, int fieldIndex, Serializable value)
+   {
+      if(!columns[fieldIndex].trySet(row, value))
+      {
+         ObjectColumn objectColumn = new ObjectColumn(capacity);
+         for(int i = 0; i < rowCount; i++)
+         {
+            if(columns[fieldIndex].isPresent(i))
+            {
+               objectColumn.trySet(i, columns[fieldIndex].get(i));
+            }
+         }
+         columns[fieldIndex] = objectColumn;
+         objectColumn.trySet(row, value);
+      }
+   }
+
+
+
+   /*******************************************************************************
+    ** Set the value for a field (by name) in a row.  Field must be in the layout.
+    *******************************************************************************/
+   public void setValue(int row, String fieldName, Serializable value)
+   {
+      int index = layout.getIndex(fieldName);
+      if(index < 0)
+      {
+         throw (new IllegalArgumentException("Field [" + fieldName + "] is not in this batch's layout."));
+      }
+      setValue(row, index, value);
+   }
+
+
+
+   /*******************************************************************************
+    ** Get the value of a field in a row - null if the field isn't in the layout,
+    ** or wasn't set for this row.
+    *******************************************************************************/
+   public Serializable getValue(int row, String fieldName)
+   {
+      int index = layout.getIndex(fieldName);
+      if(index < 0)
+      {
+         return (null);
+      }
+      return (columns[index].get(row));
+   }
+
+
+
+   /*******************************************************************************
+    ** Check if a field has been set (even to null) in a row.
+    *******************************************************************************/
+   public boolean hasValue(int row, String fieldName)
+   {
+      int index = layout.getIndex(fieldName);
+      return (index >= 0 && columns[index].isPresent(row));
+   }
+
+
+
+   /*******************************************************************************
+    ** Get the names of the fields that have been set (even to null) in a row,
+    ** in layout order.
+    *******************************************************************************/
+   public List<String> getPresentFieldNames(int row)
+   {
+      List<String> fieldNames = new ArrayList<>();
+      for(int i = 0; i < columns.length; i++)
+      {
+         if(columns[i].isPresent(row))
+         {
+            fieldNames.add(layout.getFieldName(i));
+         }
+      }
+      return (fieldNames);
+   }
+
+
+
+   /*******************************************************************************
+    ** Build a (map-based) copy of the values in a row, in layout order.
+    *******************************************************************************/
+   public LinkedHashMap<String, Serializable> materializeValues(int row)
+   {
+      LinkedHashMap<String, Serializable> values = new LinkedHashMap<>();
+      for(int i = 0; i < columns.length; i++)
+      {
+         if(columns[i].isPresent(row))
+         {
+            values.put(layout.getFieldName(i), columns[i].get(row));
+         }
+      }
+      return (values);
+   }
+
+
+
+   /*******************************************************************************
+    ** Get the record (view) for a row.
+    *******************************************************************************/
+   public ColumnarQRecord getRecord(int row)
+   {
+      if(row >= rowCount)
+      {
+         throw (new IndexOutOfBoundsException("Row " + row + " is out of bounds for batch with " + rowCount + " rows."));
+      }
+
+      if(records[row] == null)
+      {
+         records[row] = new ColumnarQRecord(this, row);
+      }
+      return (records[row]);
+   }
+
+
+
+   /*******************************************************************************
+    ** Get the records (views) for all rows in the batch, as a new (mutable) list.
+    *******************************************************************************/
+   public List<QRecord> getRecords()
+   {
+      List<QRecord> rs = new ArrayList<>(rowCount);
+      for(int i = 0; i < rowCount; i++)
+      {
+         rs.add(getRecord(i));
+      }
+      return (rs);
+   }
+
+
+
+   /*******************************************************************************
+    ** Check if the batch has reached its capacity.
+    *******************************************************************************/
+   public boolean isFull()
+   {
+      return (rowCount >= capacity);
+   }
+
+
+
+   /*******************************************************************************
+    ** Getter for rowCount
+    *******************************************************************************/
+   public int getRowCount()
+   {
+      return (rowCount);
+   }
+
+
+
+   /*******************************************************************************
+    ** Getter for layout
+    *******************************************************************************/
+   public QRecordBatchLayout getLayout()
+   {
+      return (layout);
+   }
+
+
+
+   /*******************************************************************************
+    ** Getter for tableName
+    *******************************************************************************/
+   public String getTableName()
+   {
+      return (tableName);
+   }
+
+
+
+   /*******************************************************************************
+    ** storage for one field's values, across all rows in the batch.
+    *******************************************************************************/
+   private abstract static class Column implements Serializable
+   {
+      protected final BitSet present = new BitSet();
+
+
+
+      /*******************************************************************************
+       **
+       *******************************************************************************/
+      boolean isPresent(int row)
+      {
+         return (present.get(row));
+      }
+
+
+
+      /*******************************************************************************
+       ** get the value in a row (null if not present)
+       *******************************************************************************/
+      abstract Serializable get(int row);
+
+
+
+      /*******************************************************************************
+       ** store a value in a row - returning false if this column can't store
+       ** values of the given type.
+       *******************************************************************************/
+      abstract boolean trySet(int row, Serializable value);
+   }
+
+
+
+   /*******************************************************************************
+    ** column for INTEGER fields - unboxed ints, w/ a bitset to mark nulls.
+    *******************************************************************************/
+   private static class IntColumn extends Column
+   {
+      private final int[]  values;
+      private final BitSet nulls = new BitSet();
+
+
+
+      /*******************************************************************************
+       **
+       *******************************************************************************/
+      IntColumn(int capacity)
+      {
+         values = new int[capacity];
+      }
+
+
+
+      /*******************************************************************************
+       **
+       *******************************************************************************/
+      @Override
+      Serializable get(int row)
+      {
+         return (!present.get(row) || nulls.get(row) ? null : values[row]);
+      }
+
+
+
+      /*******************************************************************************
+       **
+       *******************************************************************************/
+      @Override
+      boolean trySet(int row, Serializable value)
+      {
+         if(value == null)
+         {
+            nulls.set(row);
+         }
+         else if(value instanceof Integer i)
+         {
+            values[row] = i;
+            nulls.clear(row);
+         }
+         else
+         {
+            return (false);
+         }
+
+         present.set(row);
+         return (true);
+      }
+   }
+
+
+
+   /*******************************************************************************
+    ** column for LONG fields - unboxed longs, w/ a bitset to mark nulls.
+    *******************************************************************************/
+   private static class LongColumn extends Column
+   {
+      private final long[] values;
+      private final BitSet nulls = new BitSet();
+
+
+
+      /*******************************************************************************
+       **
+       *******************************************************************************/
+      LongColumn(int capacity)
+      {
+         values = new long[capacity];
+      }
+
+
+
+      /*******************************************************************************
+       **
+       *******************************************************************************/
+      @Override
+      Serializable get(int row)
+      {
+         return (!present.get(row) || nulls.get(row) ? null : values[row]);
+      }
+
+
+
+      /*******************************************************************************
+       **
+       *******************************************************************************/
+      @Override
+      boolean trySet(int row, Serializable value)
+      {
+         if(value == null)
+         {
+            nulls.set(row);
+         }
+         else if(value instanceof Long l)
+         {
+            values[row] = l;
+            nulls.clear(row);
+         }
+         else
+         {
+            return (false);
+         }
+
+         present.set(row);
+         return (true);
+      }
+   }
+
+
+
+   /*******************************************************************************
+    ** column for BOOLEAN fields - bitsets for values & nulls.
+    *******************************************************************************/
+   private static class BooleanColumn extends Column
+   {
+      private final BitSet values = new BitSet();
+      private final BitSet nulls  = new BitSet();
+
+
+
+      /*******************************************************************************
+       **
+       *******************************************************************************/
+      @Override
+      Serializable get(int row)
+      {
+         return (!present.get(row) || nulls.get(row) ? null : values.get(row));
+      }
+
+
+
+      /*******************************************************************************
+       **
+       *******************************************************************************/
+      @Override
+      boolean trySet(int row, Serializable value)
+      {
+         if(value == null)
+         {
+            nulls.set(row);
+         }
+         else if(value instanceof Boolean b)
+         {
+            values.set(row, b);
+            nulls.clear(row);
+         }
+         else
+         {
+            return (false);
+         }
+
+         present.set(row);
+         return (true);
+      }
+   }
+
+
+
+   /*******************************************************************************
+    ** column for all other field types - an array of (immutable, as given) values.
+    *******************************************************************************/
+   private static class ObjectColumn extends Column
+   {
+      private final Serializable[] values;
+
+
+
+      /*******************************************************************************
+       **
+       *******************************************************************************/
+      ObjectColumn(int capacity)
+      {
+         values = new Serializable[capacity];
+      }
+
+
+
+      /*******************************************************************************
+       **
+       *******************************************************************************/
+      @Override
+      Serializable get(int row)
+      {
+         return (values[row]);
+      }
+
+
+
+      /*******************************************************************************
+       **
+       *******************************************************************************/
+      @Override
+      boolean trySet(int row, Serializable value)
+      {
+         values[row] = value;
+         present.set(row);
+         return (true);
+      }
+   }
+
+}
@@ -0,0 +1,121 @@
+/*
+ * QQQ - Low-code Application Framework for Engineers.
+ * Copyright (C) 2021-2025.  Kingsrook, LLC
+ * 651 N Broad St Ste 205 # 6917 | Middletown DE 19709 | United States
+ * contact@kingsrook.com
+ * https://github.com/Kingsrook/
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+
+package com.kingsrook.qqq.backend.core.model.data;
+
+
+import java.io.Serializable;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import com.kingsrook.qqq.backend.core.model.metadata.fields.QFieldMetaData;
+import com.kingsrook.qqq.backend.core.model.metadata.fields.QFieldType;
+import com.kingsrook.qqq.backend.core.model.metadata.tables.QTableMetaData;
+
+
+/*******************************************************************************
+ ** The field layout for a QRecordBatch - that is - the ordered list of field
+ ** names & types that the batch has a column for, along with a name-to-index
+ ** lookup.  Built once (e.g., per query) and shared by all records in the batch
+ ** (and any other batches for the same selection of fields).
+ *******************************************************************************/
+public class QRecordBatchLayout implements Serializable
+{
+   private final String[]             fieldNames;
+   private final QFieldType[]         fieldTypes;
+   private final Map<String, Integer> indexByFieldName;
+
+
+
+   /*******************************************************************************
+    ** Constructor - one column per field in the list, in list order.  Note that
+    ** field names are used as-is (e.g., for fields from joined tables, they are
+    ** expected to already be prefixed with "joinTable.").
+    *******************************************************************************/
+   public QRecordBatchLayout(List<QFieldMetaData> fields)
+   {
+      int size = fields.size();
+      this.fieldNames = new String[size];
+      this.fieldTypes = new QFieldType[size];
+      this.indexByFieldName = new HashMap<>(size * 2);
+
+      for(int i = 0; i < size; i++)
+      {
+         QFieldMetaData field = fields.get(i);
+         fieldNames[i] = field.getName();
+         fieldTypes[i] = field.getType();
+         indexByFieldName.put(field.getName(), i);
+      }
+   }
+
+
+
+   /*******************************************************************************
+    ** Build a layout with all of the fields of a table.
+    *******************************************************************************/
+   public static QRecordBatchLayout forTable(QTableMetaData table)
+   {
+      return (new QRecordBatchLayout(List.copyOf(table.getFields().values())));
+   }
+
+
+
+   /*******************************************************************************
+    ** Get the column index for a field name - or -1 if the field isn't in the layout.
+    *******************************************************************************/
+   public int getIndex(String fieldName)
+   {
+      Integer index = indexByFieldName.get(fieldName);
+      return (index == null ? -1 : index);
+   }
+
+
+
+   /*******************************************************************************
+    ** Get the number of fields (columns) in the layout.
+    *******************************************************************************/
+   public int size()
+   {
+      return (fieldNames.length);
+   }
+
+
+
+   /*******************************************************************************
+    ** Get the name of the field at an index.
+    *******************************************************************************/
+   public String getFieldName(int index)
+   {
+      return (fieldNames[index]);
+   }
+
+
+
+   /*******************************************************************************
+    ** Get the type of the field at an index.
+    *******************************************************************************/
+   public QFieldType getFieldType(int index)
+   {
+      return (fieldTypes[index]);
+   }
+
+}
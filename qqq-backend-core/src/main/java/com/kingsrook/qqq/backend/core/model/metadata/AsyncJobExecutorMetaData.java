@@ -0,0 +1,228 @@
+/*
+ * QQQ - Low-code Application Framework for Engineers.
+ * Copyright (C) 2021-2024.  Kingsrook, LLC
+ * 651 N Broad St Ste 205 # 6917 | Middletown DE 19709 | United States
+ * contact@kingsrook.com
+ * https://github.com/Kingsrook/
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.kingsrook.qqq.backend.core.model.metadata;
+
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import com.kingsrook.qqq.backend.core.model.metadata.code.QCodeReference;
+
+
+/*******************************************************************************
+ ** Meta data for how a QInstance's AsyncJobManager runs jobs.
+ **
+ ** By default, jobs run on virtual threads (when the JVM supports them), else
+ ** on a bounded pool of platform threads (coreThreads, maxThreads - which
+ ** defaults to 500).  On virtual threads, the number of running jobs is only
+ ** bounded if maxThreads is set - in which case, jobs past it wait to start,
+ ** rather than being rejected.
+ **
+ ** maxConcurrentJobsByType limits how many jobs of a given type can run at one
+ ** time - where a job's type is matched as the longest key that is a prefix of
+ ** the job's name (e.g., "GenerateReportAction" or "RunProcess>").  Jobs past
+ ** the limit are queued, and handed to the executor as running jobs of their
+ ** type finish - so they don't hold a thread while they wait.
+ **
+ ** A custom AsyncJobExecutorStrategyInterface implementation can be given via
+ ** executorStrategyCodeReference.
+ *******************************************************************************/
+public class AsyncJobExecutorMetaData implements QMetaDataObject
+{
+   private QCodeReference executorStrategyCodeReference;
+
+   private Boolean useVirtualThreads = true;
+   private Integer coreThreads       = 8;
+   private Integer maxThreads;
+
+   private Map<String, Integer> maxConcurrentJobsByType;
+
+
+
+   /*******************************************************************************
+    ** Getter for executorStrategyCodeReference
+    *******************************************************************************/
+   public QCodeReference getExecutorStrategyCodeReference()
+   {
+      return (this.executorStrategyCodeReference);
+   }
+
+
+
+   /*******************************************************************************
+    ** Setter for executorStrategyCodeReference
+    *******************************************************************************/
+   public void setExecutorStrategyCodeReference(QCodeReference executorStrategyCodeReference)
+   {
+      this.executorStrategyCodeReference = executorStrategyCodeReference;
+   }
+
+
+
+   /*******************************************************************************
+    ** Fluent setter for executorStrategyCodeReference
+    *******************************************************************************/
+   public AsyncJobExecutorMetaData withExecutorStrategyCodeReference(QCodeReference executorStrategyCodeReference)
+   {
+      this.executorStrategyCodeReference = executorStrategyCodeReference;
+      return (this);
+   }
+
+
+
+   /*******************************************************************************
+    ** Getter for useVirtualThreads
+    *******************************************************************************/
+   public Boolean getUseVirtualThreads()
+   {
+      return (this.useVirtualThreads);
+   }
+
+
+
+   /*******************************************************************************
+    ** Setter for useVirtualThreads
+    *******************************************************************************/
+   public void setUseVirtualThreads(Boolean useVirtualThreads)
+   {
+      this.useVirtualThreads = useVirtualThreads;
+   }
+
+
+
+   /*******************************************************************************
+    ** Fluent setter for useVirtualThreads
+    *******************************************************************************/
+   public AsyncJobExecutorMetaData withUseVirtualThreads(Boolean useVirtualThreads)
+   {
+      this.useVirtualThreads = useVirtualThreads;
+      return (this);
+   }
+
+
+
+   /*******************************************************************************
+    ** Getter for coreThreads
+    *******************************************************************************/
+   public Integer getCoreThreads()
+   {
+      return (this.coreThreads);
+   }
+
+
+
+   /*******************************************************************************
+    ** Setter for coreThreads
+    *******************************************************************************/
+   public void setCoreThreads(Integer coreThreads)
+   {
+      this.coreThreads = coreThreads;
+   }
+
+
+
+   /*******************************************************************************
+    ** Fluent setter for coreThreads
+    *******************************************************************************/
+   public AsyncJobExecutorMetaData withCoreThreads(Integer coreThreads)
+   {
+      this.coreThreads = coreThreads;
+      return (this);
+   }
+
+
+
+   /*******************************************************************************
+    ** Getter for maxThreads
+    *******************************************************************************/
+   public Integer getMaxThreads()
+   {
+      return (this.maxThreads);
+   }
+
+
+
+   /*******************************************************************************
+    ** Setter for maxThreads
+    *******************************************************************************/
+   public void setMaxThreads(Integer maxThreads)
+   {
+      this.maxThreads = maxThreads;
+   }
+
+
+
+   /*******************************************************************************
+    ** Fluent setter for maxThreads
+    *******************************************************************************/
+   public AsyncJobExecutorMetaData withMaxThreads(Integer maxThreads)
+   {
+      this.maxThreads = maxThreads;
+      return (this);
+   }
+
+
+
+   /*******************************************************************************
+    ** Getter for maxConcurrentJobsByType
+    *******************************************************************************/
+   public Map<String, Integer> getMaxConcurrentJobsByType()
+   {
+      return (this.maxConcurrentJobsByType);
+   }
+
+
+
+   /*******************************************************************************
+    ** Setter for maxConcurrentJobsByType
+    *******************************************************************************/
+   public void setMaxConcurrentJobsByType(Map<String, Integer> maxConcurrentJobsByType)
+   {
+      this.maxConcurrentJobsByType = maxConcurrentJobsByType;
+   }
+
+
+
+   /*******************************************************************************
+    ** Fluent setter for maxConcurrentJobsByType
+    *******************************************************************************/
+   public AsyncJobExecutorMetaData withMaxConcurrentJobsByType(Map<String, Integer> maxConcurrentJobsByType)
+   {
+      this.maxConcurrentJobsByType = maxConcurrentJobsByType;
+      return (this);
+   }
+
+
+
+   /*******************************************************************************
+    ** Fluent setter to add a single maxConcurrentJobsByType entry
+    *******************************************************************************/
+   public AsyncJobExecutorMetaData withMaxConcurrentJobsForType(String jobTypePrefix, Integer maxConcurrentJobs)
+   {
+      if(this.maxConcurrentJobsByType == null)
+      {
+         this.maxConcurrentJobsByType = new LinkedHashMap<>();
+      }
+      this.maxConcurrentJobsByType.put(jobTypePrefix, maxConcurrentJobs);
+      return (this);
+   }
+
+}
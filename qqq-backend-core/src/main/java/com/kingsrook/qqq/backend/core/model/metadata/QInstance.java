@@ -43,6 +43,7 @@ import com.kingsrook.qqq.backend.core.instances.QInstanceValidationState;
 import com.kingsrook.qqq.backend.core.logging.QLogger;
 import com.kingsrook.qqq.backend.core.model.actions.metadata.MetaDataInput;
 import com.kingsrook.qqq.backend.core.model.actions.metadata.MetaDataOutput;
+import com.kingsrook.qqq.backend.core.model.metadata.audits.AuditJournalMetaData;
 import com.kingsrook.qqq.backend.core.model.metadata.audits.QAuditRules;
 import com.kingsrook.qqq.backend.core.model.metadata.authentication.QAuthenticationMetaData;
 import com.kingsrook.qqq.backend.core.model.metadata.automation.QAutomationProviderMetaData;
@@ -57,6 +58,7 @@ import com.kingsrook.qqq.backend.core.model.metadata.joins.QJoinMetaData;
 import com.kingsrook.qqq.backend.core.model.metadata.layout.QAppMetaData;
 import com.kingsrook.qqq.backend.core.model.metadata.messaging.QMessagingProviderMetaData;
 import com.kingsrook.qqq.backend.core.model.metadata.permissions.QPermissionRules;
+import com.kingsrook.qqq.backend.core.model.metadata.possiblevalues.PossibleValueTranslationCacheMetaData;
 import com.kingsrook.qqq.backend.core.model.metadata.possiblevalues.QPossibleValueSource;
 import com.kingsrook.qqq.backend.core.model.metadata.processes.QProcessMetaData;
 import com.kingsrook.qqq.backend.core.model.metadata.processes.QStepMetaData;
@@ -66,6 +68,7 @@ import com.kingsrook.qqq.backend.core.model.metadata.queues.QQueueProviderMetaDa
 import com.kingsrook.qqq.backend.core.model.metadata.reporting.QReportMetaData;
 import com.kingsrook.qqq.backend.core.model.metadata.scheduleing.QSchedulerMetaData;
 import com.kingsrook.qqq.backend.core.model.metadata.security.QSecurityKeyType;
+import com.kingsrook.qqq.backend.core.model.metadata.state.TableBasedStateProviderMetaData;
 import com.kingsrook.qqq.backend.core.model.metadata.tables.QTableMetaData;
 import com.kingsrook.qqq.backend.core.model.session.QSystemUserSession;
 import com.kingsrook.qqq.backend.core.scheduler.schedulable.SchedulableType;
@@ -134,6 +137,12 @@ public class QInstance
 
    private QCodeReference metaDataActionCustomizer = null;
 
+   private AsyncJobExecutorMetaData asyncJobExecutorMetaData = null;
+   private AuditJournalMetaData     auditJournalMetaData     = null;
+
+   private PossibleValueTranslationCacheMetaData possibleValueTranslationCacheMetaData = null;
+   private TableBasedStateProviderMetaData       tableBasedStateProviderMetaData       = null;
+
    //////////////////////////////////////////////////////////////////////////////////////
    // todo - lock down the object (no more changes allowed) after it's been validated? //
    //  if doing so, may need to copy all of the collections into read-only versions... //
@@ -1724,6 +1733,130 @@ public class QInstance
 
 
 
+   /*******************************************************************************
+    ** Getter for asyncJobExecutorMetaData
+    *******************************************************************************/
+   public AsyncJobExecutorMetaData getAsyncJobExecutorMetaData()
+   {
+      return (this.asyncJobExecutorMetaData);
+   }
+
+
+
+   /*******************************************************************************
+    ** Setter for asyncJobExecutorMetaData
+    *******************************************************************************/
+   public void setAsyncJobExecutorMetaData(AsyncJobExecutorMetaData asyncJobExecutorMetaData)
+   {
+      this.asyncJobExecutorMetaData = asyncJobExecutorMetaData;
+   }
+
+
+
+   /*******************************************************************************
+    ** Fluent setter for asyncJobExecutorMetaData
+    *******************************************************************************/
+   public QInstance withAsyncJobExecutorMetaData(AsyncJobExecutorMetaData asyncJobExecutorMetaData)
+   {
+      this.asyncJobExecutorMetaData = asyncJobExecutorMetaData;
+      return (this);
+   }
+
+
+
+   /*******************************************************************************
+    ** Getter for auditJournalMetaData
+    *******************************************************************************/
+   public AuditJournalMetaData getAuditJournalMetaData()
+   {
+      return (this.auditJournalMetaData);
+   }
+
+
+
+   /*******************************************************************************
+    ** Setter for auditJournalMetaData
+    *******************************************************************************/
+   public void setAuditJournalMetaData(AuditJournalMetaData auditJournalMetaData)
+   {
+      this.auditJournalMetaData = auditJournalMetaData;
+   }
+
+
+
+   /*******************************************************************************
+    ** Fluent setter for auditJournalMetaData
+    *******************************************************************************/
+   public QInstance withAuditJournalMetaData(AuditJournalMetaData auditJournalMetaData)
+   {
+      this.auditJournalMetaData = auditJournalMetaData;
+      return (this);
+   }
+
+
+
+   /*******************************************************************************
+    ** Getter for possibleValueTranslationCacheMetaData
+    *******************************************************************************/
+   public PossibleValueTranslationCacheMetaData getPossibleValueTranslationCacheMetaData()
+   {
+      return (this.possibleValueTranslationCacheMetaData);
+   }
+
+
+
+   /*******************************************************************************
+    ** Setter for possibleValueTranslationCacheMetaData
+    *******************************************************************************/
+   public void setPossibleValueTranslationCacheMetaData(PossibleValueTranslationCacheMetaData possibleValueTranslationCacheMetaData)
+   {
+      this.possibleValueTranslationCacheMetaData = possibleValueTranslationCacheMetaData;
+   }
+
+
+
+   /*******************************************************************************
+    ** Fluent setter for possibleValueTranslationCacheMetaData
+    *******************************************************************************/
+   public QInstance withPossibleValueTranslationCacheMetaData(PossibleValueTranslationCacheMetaData possibleValueTranslationCacheMetaData)
+   {
+      this.possibleValueTranslationCacheMetaData = possibleValueTranslationCacheMetaData;
+      return (this);
+   }
+
+
+
+   /*******************************************************************************
+    ** Getter for tableBasedStateProviderMetaData
+    *******************************************************************************/
+   public TableBasedStateProviderMetaData getTableBasedStateProviderMetaData()
+   {
+      return (this.tableBasedStateProviderMetaData);
+   }
+
+
+
+   /*******************************************************************************
+    ** Setter for tableBasedStateProviderMetaData
+    *******************************************************************************/
+   public void setTableBasedStateProviderMetaData(TableBasedStateProviderMetaData tableBasedStateProviderMetaData)
+   {
+      this.tableBasedStateProviderMetaData = tableBasedStateProviderMetaData;
+   }
+
+
+
+   /*******************************************************************************
+    ** Fluent setter for tableBasedStateProviderMetaData
+    *******************************************************************************/
+   public QInstance withTableBasedStateProviderMetaData(TableBasedStateProviderMetaData tableBasedStateProviderMetaData)
+   {
+      this.tableBasedStateProviderMetaData = tableBasedStateProviderMetaData;
+      return (this);
+   }
+
+
+
    /*******************************************************************************
     ** Getter for tableCustomizers
     *******************************************************************************/
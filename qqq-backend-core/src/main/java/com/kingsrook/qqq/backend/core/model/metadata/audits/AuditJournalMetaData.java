@@ -0,0 +1,259 @@
+/*
+ * QQQ - Low-code Application Framework for Engineers.
+ * Copyright (C) 2021-2024.  Kingsrook, LLC
+ * 651 N Broad St Ste 205 # 6917 | Middletown DE 19709 | United States
+ * contact@kingsrook.com
+ * https://github.com/Kingsrook/
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+
+package com.kingsrook.qqq.backend.core.model.metadata.audits;
+
+
+import com.kingsrook.qqq.backend.core.model.metadata.QMetaDataObject;
+
+
+/*******************************************************************************
+ ** Meta data to turn on (and configure) the AuditJournal for a QInstance - under
+ ** which audits from DML actions (insert, update, delete) are put on a bounded,
+ ** in-process queue, and written by a background thread, in batches, instead of
+ ** inside the DML action.
+ **
+ ** Journaled audits are written outside of any transaction - so audits for DML
+ ** that is given a transaction are still written synchronously, within it.
+ **
+ ** When the queue is full (e.g., the audit backend is slow), the overflowPolicy
+ ** applies:
+ ** - BLOCK: wait up to maxBlockMillis for space in the queue - then write any
+ **   audits that still didn't fit synchronously.
+ ** - WRITE_SYNCHRONOUSLY: write audits that don't fit synchronously.
+ ** - SPILL_TO_DISK: write audits that don't fit (as JSON, with owner-only
+ **   permissions) to files in spillDirectory, which the background thread
+ **   writes once it catches up.  Any spill files found in the directory (e.g.,
+ **   from a previous run) are also written - so a directory should not be
+ **   shared by different applications.  If no spillDirectory is given, a new
+ **   private temp directory is used - so spill files are not recovered after
+ **   a restart.
+ *******************************************************************************/
+public class AuditJournalMetaData implements QMetaDataObject
+{
+   private Integer queueCapacity       = 10_000;
+   private Integer maxBatchSize        = 500;
+   private Integer flushIntervalMillis = 250;
+
+   private OverflowPolicy overflowPolicy = OverflowPolicy.BLOCK;
+   private Integer        maxBlockMillis = 5000;
+   private String         spillDirectory;
+
+
+
+   /*******************************************************************************
+    ** policy for what to do with audits that don't fit in the journal's queue.
+    *******************************************************************************/
+   public enum OverflowPolicy
+   {
+      BLOCK,
+      WRITE_SYNCHRONOUSLY,
+      SPILL_TO_DISK
+   }
+
+
+
+   /*******************************************************************************
+    ** Getter for queueCapacity
+    *******************************************************************************/
+   public Integer getQueueCapacity()
+   {
+      return (this.queueCapacity);
+   }
+
+
+
+   /*******************************************************************************
+    ** Setter for queueCapacity
+    *******************************************************************************/
+   public void setQueueCapacity(Integer queueCapacity)
+   {
+      this.queueCapacity = queueCapacity;
+   }
+
+
+
+   /*******************************************************************************
+    ** Fluent setter for queueCapacity
+    *******************************************************************************/
+   public AuditJournalMetaData withQueueCapacity(Integer queueCapacity)
+   {
+      this.queueCapacity = queueCapacity;
+      return (this);
+   }
+
+
+
+   /*******************************************************************************
+    ** Getter for maxBatchSize
+    *******************************************************************************/
+   public Integer getMaxBatchSize()
+   {
+      return (this.maxBatchSize);
+   }
+
+
+
+   /*******************************************************************************
+    ** Setter for maxBatchSize
+    *******************************************************************************/
+   public void setMaxBatchSize(Integer maxBatchSize)
+   {
+      this.maxBatchSize = maxBatchSize;
+   }
+
+
+
+   /*******************************************************************************
+    ** Fluent setter for maxBatchSize
+    *******************************************************************************/
+   public AuditJournalMetaData withMaxBatchSize(Integer maxBatchSize)
+   {
+      this.maxBatchSize = maxBatchSize;
+      return (this);
+   }
+
+
+
+   /*******************************************************************************
+    ** Getter for flushIntervalMillis
+    *******************************************************************************/
+   public Integer getFlushIntervalMillis()
+   {
+      return (this.flushIntervalMillis);
+   }
+
+
+
+   /*******************************************************************************
+    ** Setter for flushIntervalMillis
+    *******************************************************************************/
+   public void setFlushIntervalMillis(Integer flushIntervalMillis)
+   {
+      this.flushIntervalMillis = flushIntervalMillis;
+   }
+
+
+
+   /*******************************************************************************
+    ** Fluent setter for flushIntervalMillis
+    *******************************************************************************/
+   public AuditJournalMetaData withFlushIntervalMillis(Integer flushIntervalMillis)
+   {
+      this.flushIntervalMillis = flushIntervalMillis;
+      return (this);
+   }
+
+
+
+   /*******************************************************************************
+    ** Getter for overflowPolicy
+    *******************************************************************************/
+   public OverflowPolicy getOverflowPolicy()
+   {
+      return (this.overflowPolicy);
+   }
+
+
+
+   /*******************************************************************************
+    ** Setter for overflowPolicy
+    *******************************************************************************/
+   public void setOverflowPolicy(OverflowPolicy overflowPolicy)
+   {
+      this.overflowPolicy = overflowPolicy;
+   }
+
+
+
+   /*******************************************************************************
+    ** Fluent setter for overflowPolicy
+    *******************************************************************************/
+   public AuditJournalMetaData withOverflowPolicy(OverflowPolicy overflowPolicy)
+   {
+      this.overflowPolicy = overflowPolicy;
+      return (this);
+   }
+
+
+
+   /*******************************************************************************
+    ** Getter for maxBlockMillis
+    *******************************************************************************/
+   public Integer getMaxBlockMillis()
+   {
+      return (this.maxBlockMillis);
+   }
+
+
+
+   /*******************************************************************************
+    ** Setter for maxBlockMillis
+    *******************************************************************************/
+   public void setMaxBlockMillis(Integer maxBlockMillis)
+   {
+      this.maxBlockMillis = maxBlockMillis;
+   }
+
+
+
+   /*******************************************************************************
+    ** Fluent setter for maxBlockMillis
+    *******************************************************************************/
+   public AuditJournalMetaData withMaxBlockMillis(Integer maxBlockMillis)
+   {
+      this.maxBlockMillis = maxBlockMillis;
+      return (this);
+   }
+
+
+
+   /*******************************************************************************
+    ** Getter for spillDirectory
+    *******************************************************************************/
+   public String getSpillDirectory()
+   {
+      return (this.spillDirectory);
+   }
+
+
+
+   /*******************************************************************************
+    ** Setter for spillDirectory
+    *******************************************************************************/
+   public void setSpillDirectory(String spillDirectory)
+   {
+      this.spillDirectory = spillDirectory;
+   }
+
+
+
+   /*******************************************************************************
+    ** Fluent setter for spillDirectory
+    *******************************************************************************/
+   public AuditJournalMetaData withSpillDirectory(String spillDirectory)
+   {
+      this.spillDirectory = spillDirectory;
+      return (this);
+   }
+
+}
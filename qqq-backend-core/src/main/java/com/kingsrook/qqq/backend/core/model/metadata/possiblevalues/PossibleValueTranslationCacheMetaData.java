@@ -0,0 +1,109 @@
+/*
+ * QQQ - Low-code Application Framework for Engineers.
+ * Copyright (C) 2021-2024.  Kingsrook, LLC
+ * 651 N Broad St Ste 205 # 6917 | Middletown DE 19709 | United States
+ * contact@kingsrook.com
+ * https://github.com/Kingsrook/
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+
+package com.kingsrook.qqq.backend.core.model.metadata.possiblevalues;
+
+
+import com.kingsrook.qqq.backend.core.model.metadata.QMetaDataObject;
+
+
+/*******************************************************************************
+ ** Meta data to turn on (and configure) a shared cache of translated labels for
+ ** table-type possible value sources, for a QInstance.  Without it, each
+ ** QPossibleValueTranslator (e.g., one per query or report) looks up labels on
+ ** its own.  With it, labels looked up by any translator are kept, per PVS, for
+ ** up to timeToLiveMillis, and used by all translators in the instance.
+ **
+ ** Labels are cached per combination of the session's values for the security
+ ** keys that lock the PVS's table - so users only share labels they could each
+ ** look up.  Entries for a table are dropped when records in it are inserted,
+ ** updated, or deleted through the insert/update/delete actions (writes that
+ ** bypass those actions are only seen once entries expire).
+ *******************************************************************************/
+public class PossibleValueTranslationCacheMetaData implements QMetaDataObject
+{
+   private Integer maxEntriesPerPossibleValueSource = 50_000;
+   private Integer timeToLiveMillis                 = 5 * 60 * 1000;
+
+
+
+   /*******************************************************************************
+    ** Getter for maxEntriesPerPossibleValueSource
+    *******************************************************************************/
+   public Integer getMaxEntriesPerPossibleValueSource()
+   {
+      return (this.maxEntriesPerPossibleValueSource);
+   }
+
+
+
+   /*******************************************************************************
+    ** Setter for maxEntriesPerPossibleValueSource
+    *******************************************************************************/
+   public void setMaxEntriesPerPossibleValueSource(Integer maxEntriesPerPossibleValueSource)
+   {
+      this.maxEntriesPerPossibleValueSource = maxEntriesPerPossibleValueSource;
+   }
+
+
+
+   /*******************************************************************************
+    ** Fluent setter for maxEntriesPerPossibleValueSource
+    *******************************************************************************/
+   public PossibleValueTranslationCacheMetaData withMaxEntriesPerPossibleValueSource(Integer maxEntriesPerPossibleValueSource)
+   {
+      this.maxEntriesPerPossibleValueSource = maxEntriesPerPossibleValueSource;
+      return (this);
+   }
+
+
+
+   /*******************************************************************************
+    ** Getter for timeToLiveMillis
+    *******************************************************************************/
+   public Integer getTimeToLiveMillis()
+   {
+      return (this.timeToLiveMillis);
+   }
+
+
+
+   /*******************************************************************************
+    ** Setter for timeToLiveMillis
+    *******************************************************************************/
+   public void setTimeToLiveMillis(Integer timeToLiveMillis)
+   {
+      this.timeToLiveMillis = timeToLiveMillis;
+   }
+
+
+
+   /*******************************************************************************
+    ** Fluent setter for timeToLiveMillis
+    *******************************************************************************/
+   public PossibleValueTranslationCacheMetaData withTimeToLiveMillis(Integer timeToLiveMillis)
+   {
+      this.timeToLiveMillis = timeToLiveMillis;
+      return (this);
+   }
+
+}
@@ -0,0 +1,235 @@
+/*
+ * QQQ - Low-code Application Framework for Engineers.
+ * Copyright (C) 2021-2024.  Kingsrook, LLC
+ * 651 N Broad St Ste 205 # 6917 | Middletown DE 19709 | United States
+ * contact@kingsrook.com
+ * https://github.com/Kingsrook/
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.kingsrook.qqq.backend.core.model.metadata.state;
+
+
+import com.kingsrook.qqq.backend.core.model.metadata.QMetaDataObject;
+
+
+/*******************************************************************************
+ ** Meta data to make a QInstance keep process & async job state in a table
+ ** (through its backend module), via the TableBasedStateProvider, instead of
+ ** in memory - so that state can be shared by all nodes (servers) running the
+ ** instance (e.g., a process started on one node can be polled on another).
+ **
+ ** The table itself must also be defined in the instance - see
+ ** TableBasedStateProvider.defineStateTable.
+ *******************************************************************************/
+public class TableBasedStateProviderMetaData implements QMetaDataObject
+{
+   private String  tableName            = "qqqState";
+   private Integer nearCacheMillis      = 1000;
+   private Integer nearCacheMaxSize     = 1000;
+   private Integer cleanAfterHours      = 5;
+   private Integer cleanIntervalMinutes = 30;
+   private Integer cleanBatchSize       = 1000;
+
+
+
+   /*******************************************************************************
+    ** Getter for tableName
+    *******************************************************************************/
+   public String getTableName()
+   {
+      return (this.tableName);
+   }
+
+
+
+   /*******************************************************************************
+    ** Setter for tableName - name of the table to store state in (see
+    ** TableBasedStateProvider.defineStateTable).
+    *******************************************************************************/
+   public void setTableName(String tableName)
+   {
+      this.tableName = tableName;
+   }
+
+
+
+   /*******************************************************************************
+    ** Fluent setter for tableName
+    *******************************************************************************/
+   public TableBasedStateProviderMetaData withTableName(String tableName)
+   {
+      this.tableName = tableName;
+      return (this);
+   }
+
+
+
+   /*******************************************************************************
+    ** Getter for nearCacheMillis
+    *******************************************************************************/
+   public Integer getNearCacheMillis()
+   {
+      return (this.nearCacheMillis);
+   }
+
+
+
+   /*******************************************************************************
+    ** Setter for nearCacheMillis - how long a node may use state it read or wrote
+    ** itself, before re-reading it from the table.
+    *******************************************************************************/
+   public void setNearCacheMillis(Integer nearCacheMillis)
+   {
+      this.nearCacheMillis = nearCacheMillis;
+   }
+
+
+
+   /*******************************************************************************
+    ** Fluent setter for nearCacheMillis
+    *******************************************************************************/
+   public TableBasedStateProviderMetaData withNearCacheMillis(Integer nearCacheMillis)
+   {
+      this.nearCacheMillis = nearCacheMillis;
+      return (this);
+   }
+
+
+
+   /*******************************************************************************
+    ** Getter for nearCacheMaxSize
+    *******************************************************************************/
+   public Integer getNearCacheMaxSize()
+   {
+      return (this.nearCacheMaxSize);
+   }
+
+
+
+   /*******************************************************************************
+    ** Setter for nearCacheMaxSize
+    *******************************************************************************/
+   public void setNearCacheMaxSize(Integer nearCacheMaxSize)
+   {
+      this.nearCacheMaxSize = nearCacheMaxSize;
+   }
+
+
+
+   /*******************************************************************************
+    ** Fluent setter for nearCacheMaxSize
+    *******************************************************************************/
+   public TableBasedStateProviderMetaData withNearCacheMaxSize(Integer nearCacheMaxSize)
+   {
+      this.nearCacheMaxSize = nearCacheMaxSize;
+      return (this);
+   }
+
+
+
+   /*******************************************************************************
+    ** Getter for cleanAfterHours
+    *******************************************************************************/
+   public Integer getCleanAfterHours()
+   {
+      return (this.cleanAfterHours);
+   }
+
+
+
+   /*******************************************************************************
+    ** Setter for cleanAfterHours - state whose key started more than this long
+    ** ago is deleted by the periodic clean.
+    *******************************************************************************/
+   public void setCleanAfterHours(Integer cleanAfterHours)
+   {
+      this.cleanAfterHours = cleanAfterHours;
+   }
+
+
+
+   /*******************************************************************************
+    ** Fluent setter for cleanAfterHours
+    *******************************************************************************/
+   public TableBasedStateProviderMetaData withCleanAfterHours(Integer cleanAfterHours)
+   {
+      this.cleanAfterHours = cleanAfterHours;
+      return (this);
+   }
+
+
+
+   /*******************************************************************************
+    ** Getter for cleanIntervalMinutes
+    *******************************************************************************/
+   public Integer getCleanIntervalMinutes()
+   {
+      return (this.cleanIntervalMinutes);
+   }
+
+
+
+   /*******************************************************************************
+    ** Setter for cleanIntervalMinutes
+    *******************************************************************************/
+   public void setCleanIntervalMinutes(Integer cleanIntervalMinutes)
+   {
+      this.cleanIntervalMinutes = cleanIntervalMinutes;
+   }
+
+
+
+   /*******************************************************************************
+    ** Fluent setter for cleanIntervalMinutes
+    *******************************************************************************/
+   public TableBasedStateProviderMetaData withCleanIntervalMinutes(Integer cleanIntervalMinutes)
+   {
+      this.cleanIntervalMinutes = cleanIntervalMinutes;
+      return (this);
+   }
+
+
+
+   /*******************************************************************************
+    ** Getter for cleanBatchSize
+    *******************************************************************************/
+   public Integer getCleanBatchSize()
+   {
+      return (this.cleanBatchSize);
+   }
+
+
+
+   /*******************************************************************************
+    ** Setter for cleanBatchSize
+    *******************************************************************************/
+   public void setCleanBatchSize(Integer cleanBatchSize)
+   {
+      this.cleanBatchSize = cleanBatchSize;
+   }
+
+
+
+   /*******************************************************************************
+    ** Fluent setter for cleanBatchSize
+    *******************************************************************************/
+   public TableBasedStateProviderMetaData withCleanBatchSize(Integer cleanBatchSize)
+   {
+      this.cleanBatchSize = cleanBatchSize;
+      return (this);
+   }
+
+}
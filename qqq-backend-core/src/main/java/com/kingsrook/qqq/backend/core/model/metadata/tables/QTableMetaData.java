@@ -55,6 +55,7 @@ import com.kingsrook.qqq.backend.core.model.metadata.security.RecordSecurityLock
 import com.kingsrook.qqq.backend.core.model.metadata.sharing.ShareableTableMetaData;
 import com.kingsrook.qqq.backend.core.model.metadata.tables.automation.QTableAutomationDetails;
 import com.kingsrook.qqq.backend.core.model.metadata.tables.cache.CacheOf;
+import com.kingsrook.qqq.backend.core.model.metadata.tables.cache.QueryResultCacheMetaData;
 import com.kingsrook.qqq.backend.core.utils.CollectionUtils;
 import static com.kingsrook.qqq.backend.core.logging.LogUtils.logPair;
 
@@ -101,7 +102,8 @@ public class QTableMetaData implements QAppChildMetaData, Serializable, MetaData
    private Set<Capability> enabledCapabilities  = new HashSet<>();
    private Set<Capability> disabledCapabilities = new HashSet<>();
 
-   private CacheOf cacheOf;
+   private CacheOf                  cacheOf;
+   private QueryResultCacheMetaData queryResultCache;
 
    private Map<String, QSupplementalTableMetaData> supplementalMetaData;
 
@@ -1133,6 +1135,37 @@ public class QTableMetaData implements QAppChildMetaData, Serializable, MetaData
 
 
 
+   /*******************************************************************************
+    ** Getter for queryResultCache
+    *******************************************************************************/
+   public QueryResultCacheMetaData getQueryResultCache()
+   {
+      return (this.queryResultCache);
+   }
+
+
+
+   /*******************************************************************************
+    ** Setter for queryResultCache
+    *******************************************************************************/
+   public void setQueryResultCache(QueryResultCacheMetaData queryResultCache)
+   {
+      this.queryResultCache = queryResultCache;
+   }
+
+
+
+   /*******************************************************************************
+    ** Fluent setter for queryResultCache
+    *******************************************************************************/
+   public QTableMetaData withQueryResultCache(QueryResultCacheMetaData queryResultCache)
+   {
+      this.queryResultCache = queryResultCache;
+      return (this);
+   }
+
+
+
    /*******************************************************************************
     ** Test if a capability is enabled - checking both at the table level and
     ** at the backend level.
@@ -1735,6 +1768,11 @@ public class QTableMetaData implements QAppChildMetaData, Serializable, MetaData
             clone.setCacheOf(cacheOf.clone());
          }
 
+         if(queryResultCache != null)
+         {
+            clone.setQueryResultCache(queryResultCache.clone());
+         }
+
          if(supplementalMetaData != null)
          {
             Map<String, QSupplementalTableMetaData> clonedSupplementalMetaData = new HashMap<>();
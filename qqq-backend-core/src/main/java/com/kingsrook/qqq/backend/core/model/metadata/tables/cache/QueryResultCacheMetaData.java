@@ -0,0 +1,255 @@
+/*
+ * QQQ - Low-code Application Framework for Engineers.
+ * Copyright (C) 2021-2024.  Kingsrook, LLC
+ * 651 N Broad St Ste 205 # 6917 | Middletown DE 19709 | United States
+ * contact@kingsrook.com
+ * https://github.com/Kingsrook/
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.kingsrook.qqq.backend.core.model.metadata.tables.cache;
+
+
+import com.kingsrook.qqq.backend.core.model.metadata.QMetaDataObject;
+
+
+/*******************************************************************************
+ ** Meta data to turn on (and configure) caching of query, count and aggregate
+ ** results for a table (see QueryResultCache).  Results are cached by the
+ ** (normalized) filter, joins, selected fields & other options of the input,
+ ** along with the session's values for the security keys that lock the tables
+ ** involved - so users only share results they could each have queried.
+ **
+ ** A table's entries are dropped when records in it (or in tables joined to in
+ ** a cached query) are inserted, updated or deleted through the table actions.
+ ** Writes that bypass those actions (or whose transactions commit later) are
+ ** only seen once entries expire.
+ *******************************************************************************/
+public class QueryResultCacheMetaData implements QMetaDataObject, Cloneable
+{
+   private Integer timeToLiveMillis    = 60 * 1000;
+   private Integer maxEntries          = 1000;
+   private Integer maxRecordsPerResult = 1000;
+   private boolean cacheQueries        = true;
+   private boolean cacheCounts         = true;
+   private boolean cacheAggregates     = true;
+
+
+
+   /*******************************************************************************
+    **
+    *******************************************************************************/
+   @Override
+   public QueryResultCacheMetaData clone()
+   {
+      try
+      {
+         return ((QueryResultCacheMetaData) super.clone());
+      }
+      catch(CloneNotSupportedException e)
+      {
+         throw (new RuntimeException(e));
+      }
+   }
+
+
+
+   /*******************************************************************************
+    ** Getter for timeToLiveMillis
+    *******************************************************************************/
+   public Integer getTimeToLiveMillis()
+   {
+      return (this.timeToLiveMillis);
+   }
+
+
+
+   /*******************************************************************************
+    ** Setter for timeToLiveMillis - how long a cached result may be used for.
+    *******************************************************************************/
+   public void setTimeToLiveMillis(Integer timeToLiveMillis)
+   {
+      this.timeToLiveMillis = timeToLiveMillis;
+   }
+
+
+
+   /*******************************************************************************
+    ** Fluent setter for timeToLiveMillis
+    *******************************************************************************/
+   public QueryResultCacheMetaData withTimeToLiveMillis(Integer timeToLiveMillis)
+   {
+      this.timeToLiveMillis = timeToLiveMillis;
+      return (this);
+   }
+
+
+
+   /*******************************************************************************
+    ** Getter for maxEntries
+    *******************************************************************************/
+   public Integer getMaxEntries()
+   {
+      return (this.maxEntries);
+   }
+
+
+
+   /*******************************************************************************
+    ** Setter for maxEntries - how many results to cache for the table (across all
+    ** kinds of queries, filters & security scopes).
+    *******************************************************************************/
+   public void setMaxEntries(Integer maxEntries)
+   {
+      this.maxEntries = maxEntries;
+   }
+
+
+
+   /*******************************************************************************
+    ** Fluent setter for maxEntries
+    *******************************************************************************/
+   public QueryResultCacheMetaData withMaxEntries(Integer maxEntries)
+   {
+      this.maxEntries = maxEntries;
+      return (this);
+   }
+
+
+
+   /*******************************************************************************
+    ** Getter for maxRecordsPerResult
+    *******************************************************************************/
+   public Integer getMaxRecordsPerResult()
+   {
+      return (this.maxRecordsPerResult);
+   }
+
+
+
+   /*******************************************************************************
+    ** Setter for maxRecordsPerResult - query results with more records than this aren't
+    ** cached (counts & aggregates always are).
+    *******************************************************************************/
+   public void setMaxRecordsPerResult(Integer maxRecordsPerResult)
+   {
+      this.maxRecordsPerResult = maxRecordsPerResult;
+   }
+
+
+
+   /*******************************************************************************
+    ** Fluent setter for maxRecordsPerResult
+    *******************************************************************************/
+   public QueryResultCacheMetaData withMaxRecordsPerResult(Integer maxRecordsPerResult)
+   {
+      this.maxRecordsPerResult = maxRecordsPerResult;
+      return (this);
+   }
+
+
+
+   /*******************************************************************************
+    ** Getter for cacheQueries
+    *******************************************************************************/
+   public boolean getCacheQueries()
+   {
+      return (this.cacheQueries);
+   }
+
+
+
+   /*******************************************************************************
+    ** Setter for cacheQueries
+    *******************************************************************************/
+   public void setCacheQueries(boolean cacheQueries)
+   {
+      this.cacheQueries = cacheQueries;
+   }
+
+
+
+   /*******************************************************************************
+    ** Fluent setter for cacheQueries
+    *******************************************************************************/
+   public QueryResultCacheMetaData withCacheQueries(boolean cacheQueries)
+   {
+      this.cacheQueries = cacheQueries;
+      return (this);
+   }
+
+
+
+   /*******************************************************************************
+    ** Getter for cacheCounts
+    *******************************************************************************/
+   public boolean getCacheCounts()
+   {
+      return (this.cacheCounts);
+   }
+
+
+
+   /*******************************************************************************
+    ** Setter for cacheCounts
+    *******************************************************************************/
+   public void setCacheCounts(boolean cacheCounts)
+   {
+      this.cacheCounts = cacheCounts;
+   }
+
+
+
+   /*******************************************************************************
+    ** Fluent setter for cacheCounts
+    *******************************************************************************/
+   public QueryResultCacheMetaData withCacheCounts(boolean cacheCounts)
+   {
+      this.cacheCounts = cacheCounts;
+      return (this);
+   }
+
+
+
+   /*******************************************************************************
+    ** Getter for cacheAggregates
+    *******************************************************************************/
+   public boolean getCacheAggregates()
+   {
+      return (this.cacheAggregates);
+   }
+
+
+
+   /*******************************************************************************
+    ** Setter for cacheAggregates
+    *******************************************************************************/
+   public void setCacheAggregates(boolean cacheAggregates)
+   {
+      this.cacheAggregates = cacheAggregates;
+   }
+
+
+
+   /*******************************************************************************
+    ** Fluent setter for cacheAggregates
+    *******************************************************************************/
+   public QueryResultCacheMetaData withCacheAggregates(boolean cacheAggregates)
+   {
+      this.cacheAggregates = cacheAggregates;
+      return (this);
+   }
+
+}
@@ -71,6 +71,9 @@ public class QueryStatMetaDataProvider
 
       instance.addTable(defineStandardTable(QueryStatOrderByField.TABLE_NAME, QueryStatOrderByField.class, backendName, backendDetailEnricher));
 
+      instance.addTable(defineStandardTable(QueryStatSummary.TABLE_NAME, QueryStatSummary.class, backendName, backendDetailEnricher)
+         .withIcon(new QIcon().withName("query_stats")));
+
       instance.addPossibleValueSource(defineQueryStatPossibleValueSource());
    }
 
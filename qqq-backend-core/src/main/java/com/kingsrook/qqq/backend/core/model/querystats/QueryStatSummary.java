@@ -0,0 +1,474 @@
+/*
+ * QQQ - Low-code Application Framework for Engineers.
+ * Copyright (C) 2021-2024.  Kingsrook, LLC
+ * 651 N Broad St Ste 205 # 6917 | Middletown DE 19709 | United States
+ * contact@kingsrook.com
+ * https://github.com/Kingsrook/
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.kingsrook.qqq.backend.core.model.querystats;
+
+
+import java.time.Instant;
+import com.kingsrook.qqq.backend.core.model.data.QField;
+import com.kingsrook.qqq.backend.core.model.data.QRecord;
+import com.kingsrook.qqq.backend.core.model.data.QRecordEntity;
+import com.kingsrook.qqq.backend.core.model.metadata.fields.ValueTooLongBehavior;
+import com.kingsrook.qqq.backend.core.model.tables.QQQTable;
+
+
+/*******************************************************************************
+ ** QRecord Entity for QueryStatSummary table - one row per table & filter-shape,
+ ** per QueryStatManager job period, when the manager is set to aggregate stats
+ ** (rather than storing a QueryStat row for each query).
+ **
+ ** filterShape describes the filter without its values - e.g., the criteria
+ ** fields & operators, order-by fields, and join tables.  histogram is a list
+ ** of bucketUpperBoundMillis:count pairs (with a final "+" bucket for
+ ** anything slower than the largest bound).
+ *******************************************************************************/
+public class QueryStatSummary extends QRecordEntity
+{
+   public static final String TABLE_NAME = "queryStatSummary";
+
+   @QField(isEditable = false)
+   private Integer id;
+
+   @QField(label = "Table", possibleValueSourceName = QQQTable.TABLE_NAME)
+   private Integer qqqTableId;
+
+   @QField(maxLength = 1000, valueTooLongBehavior = ValueTooLongBehavior.TRUNCATE_ELLIPSIS)
+   private String filterShape;
+
+   @QField()
+   private Instant periodStartTimestamp;
+
+   @QField()
+   private Instant periodEndTimestamp;
+
+   @QField()
+   private Integer queryCount;
+
+   @QField()
+   private Long totalMillis;
+
+   @QField()
+   private Integer maxMillis;
+
+   @QField()
+   private Integer p50Millis;
+
+   @QField()
+   private Integer p90Millis;
+
+   @QField()
+   private Integer p99Millis;
+
+   @QField(maxLength = 1000, valueTooLongBehavior = ValueTooLongBehavior.TRUNCATE_ELLIPSIS)
+   private String histogram;
+
+
+
+   /*******************************************************************************
+    ** Default constructor
+    *******************************************************************************/
+   public QueryStatSummary()
+   {
+   }
+
+
+
+   /*******************************************************************************
+    ** Constructor that takes a QRecord
+    *******************************************************************************/
+   public QueryStatSummary(QRecord record)
+   {
+      populateFromQRecord(record);
+   }
+
+
+
+   /*******************************************************************************
+    ** Getter for id
+    *******************************************************************************/
+   public Integer getId()
+   {
+      return (this.id);
+   }
+
+
+
+   /*******************************************************************************
+    ** Setter for id
+    *******************************************************************************/
+   public void setId(Integer id)
+   {
+      this.id = id;
+   }
+
+
+
+   /*******************************************************************************
+    ** Fluent setter for id
+    *******************************************************************************/
+   public QueryStatSummary withId(Integer id)
+   {
+      this.id = id;
+      return (this);
+   }
+
+
+
+   /*******************************************************************************
+    ** Getter for qqqTableId
+    *******************************************************************************/
+   public Integer getQqqTableId()
+   {
+      return (this.qqqTableId);
+   }
+
+
+
+   /*******************************************************************************
+    ** Setter for qqqTableId
+    *******************************************************************************/
+   public void setQqqTableId(Integer qqqTableId)
+   {
+      this.qqqTableId = qqqTableId;
+   }
+
+
+
+   /*******************************************************************************
+    ** Fluent setter for qqqTableId
+    *******************************************************************************/
+   public QueryStatSummary withQqqTableId(Integer qqqTableId)
+   {
+      this.qqqTableId = qqqTableId;
+      return (this);
+   }
+
+
+
+   /*******************************************************************************
+    ** Getter for filterShape
+    *******************************************************************************/
+   public String getFilterShape()
+   {
+      return (this.filterShape);
+   }
+
+
+
+   /*******************************************************************************
+    ** Setter for filterShape
+    *******************************************************************************/
+   public void setFilterShape(String filterShape)
+   {
+      this.filterShape = filterShape;
+   }
+
+
+
+   /*******************************************************************************
+    ** Fluent setter for filterShape
+    *******************************************************************************/
+   public QueryStatSummary withFilterShape(String filterShape)
+   {
+      this.filterShape = filterShape;
+      return (this);
+   }
+
+
+
+   /*******************************************************************************
+    ** Getter for periodStartTimestamp
+    *******************************************************************************/
+   public Instant getPeriodStartTimestamp()
+   {
+      return (this.periodStartTimestamp);
+   }
+
+
+
+   /*******************************************************************************
+    ** Setter for periodStartTimestamp
+    *******************************************************************************/
+   public void setPeriodStartTimestamp(Instant periodStartTimestamp)
+   {
+      this.periodStartTimestamp = periodStartTimestamp;
+   }
+
+
+
+   /*******************************************************************************
+    ** Fluent setter for periodStartTimestamp
+    *******************************************************************************/
+   public QueryStatSummary withPeriodStartTimestamp(Instant periodStartTimestamp)
+   {
+      this.periodStartTimestamp = periodStartTimestamp;
+      return (this);
+   }
+
+
+
+   /*******************************************************************************
+    ** Getter for periodEndTimestamp
+    *******************************************************************************/
+   public Instant getPeriodEndTimestamp()
+   {
+      return (this.periodEndTimestamp);
+   }
+
+
+
+   /*******************************************************************************
+    ** Setter for periodEndTimestamp
+    *******************************************************************************/
+   public void setPeriodEndTimestamp(Instant periodEndTimestamp)
+   {
+      this.periodEndTimestamp = periodEndTimestamp;
+   }
+
+
+
+   /*******************************************************************************
+    ** Fluent setter for periodEndTimestamp
+    *******************************************************************************/
+   public QueryStatSummary withPeriodEndTimestamp(Instant periodEndTimestamp)
+   {
+      this.periodEndTimestamp = periodEndTimestamp;
+      return (this);
+   }
+
+
+
+   /*******************************************************************************
+    ** Getter for queryCount
+    *******************************************************************************/
+   public Integer getQueryCount()
+   {
+      return (this.queryCount);
+   }
+
+
+
+   /*******************************************************************************
+    ** Setter for queryCount
+    *******************************************************************************/
+   public void setQueryCount(Integer queryCount)
+   {
+      this.queryCount = queryCount;
+   }
+
+
+
+   /*******************************************************************************
+    ** Fluent setter for queryCount
+    *******************************************************************************/
+   public QueryStatSummary withQueryCount(Integer queryCount)
+   {
+      this.queryCount = queryCount;
+      return (this);
+   }
+
+
+
+   /*******************************************************************************
+    ** Getter for totalMillis
+    *******************************************************************************/
+   public Long getTotalMillis()
+   {
+      return (this.totalMillis);
+   }
+
+
+
+   /*******************************************************************************
+    ** Setter for totalMillis
+    *******************************************************************************/
+   public void setTotalMillis(Long totalMillis)
+   {
+      this.totalMillis = totalMillis;
+   }
+
+
+
+   /*******************************************************************************
+    ** Fluent setter for totalMillis
+    *******************************************************************************/
+   public QueryStatSummary withTotalMillis(Long totalMillis)
+   {
+      this.totalMillis = totalMillis;
+      return (this);
+   }
+
+
+
+   /*******************************************************************************
+    ** Getter for maxMillis
+    *******************************************************************************/
+   public Integer getMaxMillis()
+   {
+      return (this.maxMillis);
+   }
+
+
+
+   /*******************************************************************************
+    ** Setter for maxMillis
+    *******************************************************************************/
+   public void setMaxMillis(Integer maxMillis)
+   {
+      this.maxMillis = maxMillis;
+   }
+
+
+
+   /*******************************************************************************
+    ** Fluent setter for maxMillis
+    *******************************************************************************/
+   public QueryStatSummary withMaxMillis(Integer maxMillis)
+   {
+      this.maxMillis = maxMillis;
+      return (this);
+   }
+
+
+
+   /*******************************************************************************
+    ** Getter for p50Millis
+    *******************************************************************************/
+   public Integer getP50Millis()
+   {
+      return (this.p50Millis);
+   }
+
+
+
+   /*******************************************************************************
+    ** Setter for p50Millis
+    *******************************************************************************/
+   public void setP50Millis(Integer p50Millis)
+   {
+      this.p50Millis = p50Millis;
+   }
+
+
+
+   /*******************************************************************************
+    ** Fluent setter for p50Millis
+    *******************************************************************************/
+   public QueryStatSummary withP50Millis(Integer p50Millis)
+   {
+      this.p50Millis = p50Millis;
+      return (this);
+   }
+
+
+
+   /*******************************************************************************
+    ** Getter for p90Millis
+    *******************************************************************************/
+   public Integer getP90Millis()
+   {
+      return (this.p90Millis);
+   }
+
+
+
+   /*******************************************************************************
+    ** Setter for p90Millis
+    *******************************************************************************/
+   public void setP90Millis(Integer p90Millis)
+   {
+      this.p90Millis = p90Millis;
+   }
+
+
+
+   /*******************************************************************************
+    ** Fluent setter for p90Millis
+    *******************************************************************************/
+   public QueryStatSummary withP90Millis(Integer p90Millis)
+   {
+      this.p90Millis = p90Millis;
+      return (this);
+   }
+
+
+
+   /*******************************************************************************
+    ** Getter for p99Millis
+    *******************************************************************************/
+   public Integer getP99Millis()
+   {
+      return (this.p99Millis);
+   }
+
+
+
+   /*******************************************************************************
+    ** Setter for p99Millis
+    *******************************************************************************/
+   public void setP99Millis(Integer p99Millis)
+   {
+      this.p99Millis = p99Millis;
+   }
+
+
+
+   /*******************************************************************************
+    ** Fluent setter for p99Millis
+    *******************************************************************************/
+   public QueryStatSummary withP99Millis(Integer p99Millis)
+   {
+      this.p99Millis = p99Millis;
+      return (this);
+   }
+
+
+
+   /*******************************************************************************
+    ** Getter for histogram
+    *******************************************************************************/
+   public String getHistogram()
+   {
+      return (this.histogram);
+   }
+
+
+
+   /*******************************************************************************
+    ** Setter for histogram
+    *******************************************************************************/
+   public void setHistogram(String histogram)
+   {
+      this.histogram = histogram;
+   }
+
+
+
+   /*******************************************************************************
+    ** Fluent setter for histogram
+    *******************************************************************************/
+   public QueryStatSummary withHistogram(String histogram)
+   {
+      this.histogram = histogram;
+      return (this);
+   }
+
+}
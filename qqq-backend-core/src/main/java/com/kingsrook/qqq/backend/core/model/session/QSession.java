@@ -34,9 +34,9 @@ import java.util.Map;
 import java.util.Objects;
 import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
 import com.kingsrook.qqq.backend.core.model.metadata.fields.QFieldType;
 import com.kingsrook.qqq.backend.core.utils.ValueUtils;
-import com.kingsrook.qqq.backend.core.utils.collections.MutableMap;
 
 
 /*******************************************************************************
@@ -50,9 +50,20 @@ public class QSession implements Serializable, Cloneable
 
    private Set<String> permissions;
 
+   //////////////////////////////////////////////////////////////////////////////
+   // owned by the session - only changed through its mutators, and only given //
+   // out as unmodifiable views - so that the sets below can't go stale.       //
+   //////////////////////////////////////////////////////////////////////////////
    private Map<String, List<Serializable>> securityKeyValues;
    private Map<String, Serializable>       backendVariants;
 
+   ////////////////////////////////////////////////////////////////////////////////////
+   // security key values, converted to the field types they get checked as, in sets //
+   // (keyName > type > values).  built lazily, and cleared by every mutator of the  //
+   // security key values.  not serialized, nor shared with clones.                  //
+   ////////////////////////////////////////////////////////////////////////////////////
+   private transient Map<String, Map<QFieldType, TypedSecurityKeyValueSet>> typedSecurityKeyValueSets;
+
    ///////////////////////////////////////////
    // implementation-specific custom values //
    ///////////////////////////////////////////
@@ -68,6 +79,16 @@ public class QSession implements Serializable, Cloneable
 
 
 
+   /***************************************************************************
+    ** a set of security key values as a type - along with the list it was built
+    ** from, to know if that list has since been replaced.
+    ***************************************************************************/
+   private record TypedSecurityKeyValueSet(List<Serializable> sourceList, Set<Serializable> values)
+   {
+   }
+
+
+
    /*******************************************************************************
     **
     *******************************************************************************/
@@ -75,6 +96,7 @@ public class QSession implements Serializable, Cloneable
    public QSession clone() throws CloneNotSupportedException
    {
       QSession clone = (QSession) super.clone();
+      clone.typedSecurityKeyValueSets = null;
 
       if(user != null)
       {
@@ -274,17 +296,29 @@ public class QSession implements Serializable, Cloneable
 
 
    /*******************************************************************************
-    ** Getter for securityKeyValues
+    ** Getter for securityKeyValues - not modifiable (nor are its lists) - use
+    ** the setters, withSecurityKeyValue, or clearSecurityKeyValues to change them.
     *******************************************************************************/
    public Map<String, List<Serializable>> getSecurityKeyValues()
    {
-      return (this.securityKeyValues);
+      if(securityKeyValues == null)
+      {
+         return (null);
+      }
+
+      Map<String, List<Serializable>> rs = new HashMap<>();
+      for(Map.Entry<String, List<Serializable>> entry : securityKeyValues.entrySet())
+      {
+         rs.put(entry.getKey(), entry.getValue() == null ? null : Collections.unmodifiableList(entry.getValue()));
+      }
+      return (Collections.unmodifiableMap(rs));
    }
 
 
 
    /*******************************************************************************
-    ** Getter for securityKeyValues - the list under a given key - never null.
+    ** Getter for securityKeyValues - the list under a given key - never null;
+    ** not modifiable.
     *******************************************************************************/
    public List<Serializable> getSecurityKeyValues(String keyName)
    {
@@ -293,7 +327,8 @@ public class QSession implements Serializable, Cloneable
          return (new ArrayList<>());
       }
 
-      return (Objects.requireNonNullElseGet(securityKeyValues.get(keyName), ArrayList::new));
+      List<Serializable> values = securityKeyValues.get(keyName);
+      return (values == null ? Collections.emptyList() : Collections.unmodifiableList(values));
    }
 
 
@@ -360,8 +395,6 @@ public class QSession implements Serializable, Cloneable
          return (false);
       }
 
-      List<Serializable> values = securityKeyValues.get(keyName);
-
       Serializable valueAsType;
       try
       {
@@ -376,48 +409,106 @@ public class QSession implements Serializable, Cloneable
          return (false);
       }
 
-      for(Serializable keyValue : values)
+      return (valueAsType != null && getSecurityKeyValueSet(keyName, fieldType).contains(valueAsType));
+   }
+
+
+
+   /*******************************************************************************
+    ** Get the set of values under a given security key, as a given type - e.g.,
+    ** for checking many record values against them.  Values that can't be
+    ** converted to the type are omitted.  Never null; not modifiable.
+    *******************************************************************************/
+   public Set<Serializable> getSecurityKeyValueSet(String keyName, QFieldType fieldType)
+   {
+      List<Serializable> rawValues = securityKeyValues == null ? null : securityKeyValues.get(keyName);
+      if(rawValues == null)
+      {
+         return (Collections.emptySet());
+      }
+
+      if(fieldType == null)
+      {
+         return (buildSecurityKeyValueSet(rawValues, null).values());
+      }
+
+      Map<String, Map<QFieldType, TypedSecurityKeyValueSet>> setsByKeyName = typedSecurityKeyValueSets;
+      if(setsByKeyName == null)
+      {
+         setsByKeyName = new ConcurrentHashMap<>();
+         typedSecurityKeyValueSets = setsByKeyName;
+      }
+
+      Map<QFieldType, TypedSecurityKeyValueSet> setsByType = setsByKeyName.computeIfAbsent(keyName, k -> new ConcurrentHashMap<>());
+      TypedSecurityKeyValueSet                  set        = setsByType.get(fieldType);
+      if(set == null || set.sourceList() != rawValues)
+      {
+         set = buildSecurityKeyValueSet(rawValues, fieldType);
+         setsByType.put(fieldType, set);
+      }
+
+      return (set.values());
+   }
+
+
+
+   /*******************************************************************************
+    **
+    *******************************************************************************/
+   private static TypedSecurityKeyValueSet buildSecurityKeyValueSet(List<Serializable> rawValues, QFieldType fieldType)
+   {
+      Set<Serializable> values = new HashSet<>();
+      for(Serializable rawValue : rawValues)
       {
-         Serializable keyValueAsType = null;
          try
          {
-            keyValueAsType = ValueUtils.getValueAsFieldType(fieldType, keyValue);
+            Serializable valueAsType = ValueUtils.getValueAsFieldType(fieldType, rawValue);
+            if(valueAsType != null)
+            {
+               values.add(valueAsType);
+            }
          }
          catch(Exception e)
          {
-            ///////////////////////////////////////////////////////////////////////////////////////////////////////////////////
-            // an exception in getValueAsFieldType would indicate, e.g., a non-number string trying to come back as integer. //
-            // so - assume that any such mismatch means this key isn't a match.
-            ///////////////////////////////////////////////////////////////////////////////////////////////////////////////////
-         }
-
-         if(valueAsType != null && valueAsType.equals(keyValueAsType))
-         {
-            return (true);
+            ///////////////////////////////////////////////////////////////////////////////////////////////////
+            // a value that can't be converted to the type (e.g., a non-number string, for an integer) can't //
+            // match any value of that type - so just leave it out.                                          //
+            ///////////////////////////////////////////////////////////////////////////////////////////////////
          }
       }
 
-      return (false);
+      return (new TypedSecurityKeyValueSet(rawValues, Collections.unmodifiableSet(values)));
    }
 
 
 
    /*******************************************************************************
-    ** Setter for securityKeyValues
+    ** Setter for securityKeyValues - takes a copy of the map (and its lists), so
+    ** later changes to them aren't seen by the session.
     *******************************************************************************/
    public void setSecurityKeyValues(Map<String, List<Serializable>> securityKeyValues)
    {
-      this.securityKeyValues = new MutableMap<>(securityKeyValues);
+      Map<String, List<Serializable>> copy = new HashMap<>();
+      if(securityKeyValues != null)
+      {
+         for(Map.Entry<String, List<Serializable>> entry : securityKeyValues.entrySet())
+         {
+            copy.put(entry.getKey(), entry.getValue() == null ? null : new ArrayList<>(entry.getValue()));
+         }
+      }
+
+      this.securityKeyValues = copy;
+      this.typedSecurityKeyValueSets = null;
    }
 
 
 
    /*******************************************************************************
-    ** Fluent setter for securityKeyValues - replaces the map.
+    ** Fluent setter for securityKeyValues - replaces the map (with a copy).
     *******************************************************************************/
    public QSession withSecurityKeyValues(Map<String, List<Serializable>> securityKeyValues)
    {
-      this.securityKeyValues = new MutableMap<>(securityKeyValues);
+      setSecurityKeyValues(securityKeyValues);
       return (this);
    }
 
@@ -433,20 +524,8 @@ public class QSession implements Serializable, Cloneable
          securityKeyValues = new HashMap<>();
       }
 
-      securityKeyValues.computeIfAbsent(keyName, (k) -> new ArrayList<>());
-
-      try
-      {
-         securityKeyValues.get(keyName).add(value);
-      }
-      catch(UnsupportedOperationException uoe)
-      {
-         /////////////////////
-         // grr, List.of... //
-         /////////////////////
-         securityKeyValues.put(keyName, new ArrayList<>(securityKeyValues.get(keyName)));
-         securityKeyValues.get(keyName).add(value);
-      }
+      securityKeyValues.computeIfAbsent(keyName, (k) -> new ArrayList<>()).add(value);
+      typedSecurityKeyValueSets = null;
 
       return (this);
    }
@@ -462,6 +541,7 @@ public class QSession implements Serializable, Cloneable
       {
          securityKeyValues.clear();
       }
+      typedSecurityKeyValueSets = null;
    }
 
 
@@ -31,6 +31,7 @@ import com.kingsrook.qqq.backend.core.actions.interfaces.InsertInterface;
 import com.kingsrook.qqq.backend.core.actions.interfaces.QStorageInterface;
 import com.kingsrook.qqq.backend.core.actions.interfaces.QueryInterface;
 import com.kingsrook.qqq.backend.core.actions.interfaces.UpdateInterface;
+import com.kingsrook.qqq.backend.core.actions.interfaces.UpsertInterface;
 import com.kingsrook.qqq.backend.core.exceptions.QException;
 import com.kingsrook.qqq.backend.core.model.actions.AbstractTableActionInput;
 import com.kingsrook.qqq.backend.core.model.metadata.QBackendMetaData;
@@ -121,6 +122,15 @@ public interface QBackendModuleInterface
       return null;
    }
 
+   /*******************************************************************************
+    ** Optional - UpsertAction falls back to insert & update actions without it.
+    *******************************************************************************/
+   default UpsertInterface getUpsertInterface()
+   {
+      throwNotImplemented("Upsert");
+      return null;
+   }
+
    /*******************************************************************************
     **
     *******************************************************************************/
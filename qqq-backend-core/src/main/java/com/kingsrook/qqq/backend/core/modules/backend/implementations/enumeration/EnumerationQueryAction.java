@@ -24,6 +24,7 @@ package com.kingsrook.qqq.backend.core.modules.backend.implementations.enumerati
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.function.Predicate;
 import com.kingsrook.qqq.backend.core.actions.interfaces.QueryInterface;
 import com.kingsrook.qqq.backend.core.exceptions.QException;
 import com.kingsrook.qqq.backend.core.model.actions.tables.query.QueryInput;
@@ -57,11 +58,12 @@ public class EnumerationQueryAction implements QueryInterface
          // note - not good streaming behavior here. //
          //////////////////////////////////////////////
 
-         List<QRecord> recordList = new ArrayList<>();
+         List<QRecord>      recordList      = new ArrayList<>();
+         Predicate<QRecord> filterPredicate = BackendQueryFilterUtils.compileFilter(queryInput.getFilter(), null);
          for(QRecordEnum value : values)
          {
             QRecord record        = value.toQRecord();
-            boolean recordMatches = BackendQueryFilterUtils.doesRecordMatch(queryInput.getFilter(), record);
+            boolean recordMatches = filterPredicate.test(record);
             if(recordMatches)
             {
                recordList.add(record);
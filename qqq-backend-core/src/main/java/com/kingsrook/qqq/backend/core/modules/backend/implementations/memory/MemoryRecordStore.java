@@ -40,7 +40,9 @@ import java.util.Map;
 import java.util.Objects;
 import java.util.Optional;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.function.Function;
+import java.util.function.Predicate;
 import java.util.stream.Collectors;
 import com.kingsrook.qqq.backend.core.actions.dashboard.widgets.DateTimeGroupBy;
 import com.kingsrook.qqq.backend.core.actions.metadata.personalization.TableMetaDataPersonalizerAction;
@@ -102,9 +104,20 @@ public class MemoryRecordStore
    //////////////////////////////////////////////////////////
    private Map<BackendIdentifier, Map<String, Map<Serializable, QRecord>>> data;
    private Map<BackendIdentifier, Map<String, Integer>>                    nextSerials;
+   private Map<BackendIdentifier, Map<String, MemoryTableIndexes>>         indexes;
 
    private static boolean collectStatistics = false;
 
+   ///////////////////////////////////////////////////////////////////////////////////
+   // tables with fewer records than this are just scanned by queries - building an //
+   // index (after every write) costs more than scanning them would.                //
+   ///////////////////////////////////////////////////////////////////////////////////
+   public static final int DEFAULT_MIN_RECORDS_TO_USE_INDEXES = 1000;
+
+   private static int minRecordsToUseIndexes = DEFAULT_MIN_RECORDS_TO_USE_INDEXES;
+
+   private static final int SECURITY_VALIDATION_BATCH_SIZE = 1000;
+
    public static final String STAT_QUERIES_RAN = "queriesRan";
    public static final String STAT_INSERTS_RAN = "insertsRan";
 
@@ -121,6 +134,7 @@ public class MemoryRecordStore
    {
       data = new HashMap<>();
       nextSerials = new HashMap<>();
+      indexes = new ConcurrentHashMap<>();
    }
 
 
@@ -133,6 +147,7 @@ public class MemoryRecordStore
       getInstance().reset();
       resetStatistics();
       setCollectStatistics(false);
+      setMinRecordsToUseIndexes(DEFAULT_MIN_RECORDS_TO_USE_INDEXES);
    }
 
 
@@ -144,6 +159,7 @@ public class MemoryRecordStore
    {
       data.clear();
       nextSerials.clear();
+      indexes.clear();
    }
 
 
@@ -174,6 +190,40 @@ public class MemoryRecordStore
 
 
 
+   /*******************************************************************************
+    ** get the indexes for a table - built lazily, from the table's current data -
+    ** or null if the table is too small for them to be worth using.  Concurrent
+    ** maps are used, as queries may build indexes from multiple threads.
+    *******************************************************************************/
+   private MemoryTableIndexes getTableIndexes(QTableMetaData table) throws QException
+   {
+      Map<Serializable, QRecord> tableData = getTableData(table);
+      if(tableData.size() < minRecordsToUseIndexes)
+      {
+         return (null);
+      }
+
+      Map<String, MemoryTableIndexes> indexesForBackend = indexes.computeIfAbsent(getBackendIdentifier(table), k -> new ConcurrentHashMap<>());
+      return (indexesForBackend.computeIfAbsent(table.getName(), k -> new MemoryTableIndexes(table, tableData.values())));
+   }
+
+
+
+   /*******************************************************************************
+    ** discard a table's indexes - to be called AFTER its data changes (so that an
+    ** index built by a concurrent query, mid-write, doesn't survive the write).
+    *******************************************************************************/
+   private void invalidateTableIndexes(QTableMetaData table) throws QException
+   {
+      Map<String, MemoryTableIndexes> indexesForBackend = indexes.get(getBackendIdentifier(table));
+      if(indexesForBackend != null)
+      {
+         indexesForBackend.remove(table.getName());
+      }
+   }
+
+
+
    /***************************************************************************
     **
     ***************************************************************************/
@@ -201,8 +251,9 @@ public class MemoryRecordStore
    {
       incrementStatistic(input);
 
-      Collection<QRecord> tableData = getTableData(input.getTable()).values();
-      List<QRecord>       records   = new ArrayList<>();
+      Collection<QRecord> tableData            = getTableData(input.getTable()).values();
+      List<QRecord>       records              = new ArrayList<>();
+      Integer             stopAfterRecordCount = null;
 
       QQueryFilter filter       = clonedOrNewFilter(input.getFilter());
       JoinsContext joinsContext = new JoinsContext(QContext.getQInstance(), input.getTableName(), input.getQueryJoins(), filter);
@@ -210,6 +261,32 @@ public class MemoryRecordStore
       {
          tableData = buildJoinCrossProduct(input);
       }
+      else
+      {
+         MemoryTableIndexes tableIndexes = getTableIndexes(input.getTable());
+         if(tableIndexes != null)
+         {
+            /////////////////////////////////////////////////////////////////////////////////////
+            // if an index can narrow down the records that may match the filter, just look at //
+            // those.  else, if the query is ordered by one field, with a limit, then walk the //
+            // records in that order (from a sorted index), and stop once we have enough.      //
+            /////////////////////////////////////////////////////////////////////////////////////
+            List<QRecord> candidates = tableIndexes.getCandidates(input.getFilter());
+            if(candidates != null)
+            {
+               tableData = candidates;
+            }
+            else if(filter.getOrderBys() != null && filter.getOrderBys().size() == 1 && filter.getLimit() != null && filter.getLimit() >= 0)
+            {
+               List<QRecord> sortedRecords = tableIndexes.getRecordsSortedBy(filter.getOrderBys().get(0));
+               if(sortedRecords != null)
+               {
+                  tableData = sortedRecords;
+                  stopAfterRecordCount = Objects.requireNonNullElse(filter.getSkip(), 0) + filter.getLimit();
+               }
+            }
+         }
+      }
 
       ///////////////////////////////////////////////////////////////////////////////////////////////////////
       // in cae table personalization is being used, build a map of all join tables in the query and their //
@@ -224,44 +301,53 @@ public class MemoryRecordStore
          personalizedTables.put(joinTable.getName(), joinTable);
       }
 
+      /////////////////////////////////////////////////////////////////////////////////////////////
+      // validate security on matching records in batches, so lock checks can be done set-wise - //
+      // except for joins, where cross-product records share primary keys (which is how security //
+      // errors are tracked), so those must be checked one at a time.                            //
+      /////////////////////////////////////////////////////////////////////////////////////////////
+      boolean       hasJoins            = CollectionUtils.nullSafeHasContents(input.getQueryJoins());
+      List<QRecord> matchingRecordBatch = new ArrayList<>();
+
+      Predicate<QRecord> filterPredicate = BackendQueryFilterUtils.compileFilter(input.getFilter(), joinsContext);
       for(QRecord qRecord : tableData)
       {
          if(qRecord.getTableName() == null)
          {
             ///////////////////////////////////////////////////////////////////////////////////////////
-            // internally, doesRecordMatch likes to know table names on records, so, set if missing. //
+            // internally, filter matching likes to know table names on records, so, set if missing. //
             ///////////////////////////////////////////////////////////////////////////////////////////
             qRecord.setTableName(input.getTableName());
          }
 
-         boolean recordMatches = BackendQueryFilterUtils.doesRecordMatch(input.getFilter(), joinsContext, qRecord);
+         if(filterPredicate.test(qRecord))
+         {
+            matchingRecordBatch.add(qRecord);
+         }
 
-         if(recordMatches)
+         int batchSize = hasJoins ? 1 : SECURITY_VALIDATION_BATCH_SIZE;
+         if(stopAfterRecordCount != null)
          {
-            qRecord.setErrors(new ArrayList<>());
-            ValidateRecordSecurityLockHelper.validateSecurityFields(input.getTable(), List.of(qRecord), ValidateRecordSecurityLockHelper.Action.SELECT, null);
-            if(CollectionUtils.nullSafeHasContents(qRecord.getErrors()))
-            {
-               //////////////////////////////////////////////////////////////////////////////////////////////////////
-               // security error!  no record for you.  but remove the error, so future generations won't see it... //
-               //////////////////////////////////////////////////////////////////////////////////////////////////////
-               qRecord.setErrors(new ArrayList<>());
-               LOG.trace("Error selecting record (presumably security?): " + qRecord.getErrors());
-            }
-            else
-            {
-               //////////////////////////////////////////////////////////////////////////////////
-               // make sure we're not giving back records that are all full of associations... //
-               // or fields that the user isn't supposed to get (e.g., from personalization)   //
-               //////////////////////////////////////////////////////////////////////////////////
-               QRecord recordToReturn = new QRecord(qRecord);
-               stripUnrecognizedFieldsFromRecords(List.of(recordToReturn), personalizedTables, input.getTable());
-               recordToReturn.setAssociatedRecords(new HashMap<>());
-               records.add(recordToReturn);
-            }
+            batchSize = Math.min(batchSize, Math.max(1, stopAfterRecordCount - records.size()));
+         }
+
+         if(matchingRecordBatch.size() >= batchSize)
+         {
+            addRecordsPassingSecurity(input, matchingRecordBatch, personalizedTables, records);
+            matchingRecordBatch.clear();
+         }
+
+         if(stopAfterRecordCount != null && records.size() >= stopAfterRecordCount)
+         {
+            break;
          }
       }
 
+      if(!matchingRecordBatch.isEmpty())
+      {
+         addRecordsPassingSecurity(input, matchingRecordBatch, personalizedTables, records);
+      }
+
       BackendQueryFilterUtils.sortRecordList(input.getFilter(), records);
       records = BackendQueryFilterUtils.applySkipAndLimit(input.getFilter(), records);
 
@@ -270,6 +356,48 @@ public class MemoryRecordStore
 
 
 
+   /*******************************************************************************
+    ** validate security on a batch of records that matched a query's filter -
+    ** adding copies of the ones that pass to the output list.
+    *******************************************************************************/
+   private void addRecordsPassingSecurity(QueryInput input, List<QRecord> matchingRecords, Map<String, QTableMetaData> personalizedTables, List<QRecord> records) throws QException
+   {
+      for(QRecord qRecord : matchingRecords)
+      {
+         if(qRecord.hasErrors())
+         {
+            qRecord.setErrors(new ArrayList<>());
+         }
+      }
+
+      ValidateRecordSecurityLockHelper.validateSecurityFields(input.getTable(), matchingRecords, ValidateRecordSecurityLockHelper.Action.SELECT, null);
+
+      for(QRecord qRecord : matchingRecords)
+      {
+         if(qRecord.hasErrors())
+         {
+            //////////////////////////////////////////////////////////////////////////////////////////////////////
+            // security error!  no record for you.  but remove the error, so future generations won't see it... //
+            //////////////////////////////////////////////////////////////////////////////////////////////////////
+            LOG.trace("Error selecting record (presumably security?): " + qRecord.getErrors());
+            qRecord.setErrors(new ArrayList<>());
+         }
+         else
+         {
+            //////////////////////////////////////////////////////////////////////////////////
+            // make sure we're not giving back records that are all full of associations... //
+            // or fields that the user isn't supposed to get (e.g., from personalization)   //
+            //////////////////////////////////////////////////////////////////////////////////
+            QRecord recordToReturn = new QRecord(qRecord);
+            stripUnrecognizedFieldsFromRecords(List.of(recordToReturn), personalizedTables, input.getTable());
+            recordToReturn.setAssociatedRecords(new HashMap<>());
+            records.add(recordToReturn);
+         }
+      }
+   }
+
+
+
    /*******************************************************************************
     **
     *******************************************************************************/
@@ -292,22 +420,29 @@ public class MemoryRecordStore
          Collection<QRecord> nextTableRecords = getTableData(nextTable).values();
          QJoinMetaData       joinMetaData     = Objects.requireNonNull(queryJoin.getJoinMetaData(), () -> "Could not find a join between tables [" + leftTable + "][" + queryJoin.getJoinTable() + "]");
 
+         //////////////////////////////////////////////////////////////////////////////////////
+         // hash join:  group the next table's records by their values in the join's right   //
+         // fields, then look up the group for each product record's left values.  list keys //
+         // compare with Objects.equals element-by-element - so null values do match nulls.  //
+         //////////////////////////////////////////////////////////////////////////////////////
+         Map<List<Serializable>, List<QRecord>> nextTableRecordsByJoinValues = new HashMap<>();
+         for(QRecord nextTableRecord : nextTableRecords)
+         {
+            nextTableRecordsByJoinValues.computeIfAbsent(getRightJoinValues(nextTableRecord, joinMetaData), k -> new ArrayList<>()).add(nextTableRecord);
+         }
+
          List<QRecord> nextLevelProduct = new ArrayList<>();
          for(QRecord productRecord : crossProduct)
          {
-            boolean matchFound = false;
-            for(QRecord nextTableRecord : nextTableRecords)
+            List<QRecord> matchingRecords = nextTableRecordsByJoinValues.getOrDefault(getLeftJoinValues(productRecord, queryJoin, joinMetaData), Collections.emptyList());
+            for(QRecord nextTableRecord : matchingRecords)
             {
-               if(joinMatches(productRecord, nextTableRecord, queryJoin, joinMetaData))
-               {
-                  QRecord joinRecord = new QRecord(productRecord);
-                  addRecordToProduct(joinRecord, nextTableRecord, queryJoin.getJoinTableOrItsAlias());
-                  nextLevelProduct.add(joinRecord);
-                  matchFound = true;
-               }
+               QRecord joinRecord = new QRecord(productRecord);
+               addRecordToProduct(joinRecord, nextTableRecord, queryJoin.getJoinTableOrItsAlias());
+               nextLevelProduct.add(joinRecord);
             }
 
-            if(!matchFound)
+            if(matchingRecords.isEmpty())
             {
                // todo - Left & Right joins
             }
@@ -324,21 +459,32 @@ public class MemoryRecordStore
    /*******************************************************************************
     **
     *******************************************************************************/
-   private boolean joinMatches(QRecord productRecord, QRecord nextTableRecord, QueryJoin queryJoin, QJoinMetaData joinMetaData)
+   private List<Serializable> getLeftJoinValues(QRecord productRecord, QueryJoin queryJoin, QJoinMetaData joinMetaData)
    {
+      List<Serializable> rs = new ArrayList<>();
       for(JoinOn joinOn : joinMetaData.getJoinOns())
       {
          Serializable leftValue = productRecord.getValues().containsKey(queryJoin.getBaseTableOrAlias() + "." + joinOn.getLeftField())
             ? productRecord.getValue(queryJoin.getBaseTableOrAlias() + "." + joinOn.getLeftField())
             : productRecord.getValue(joinOn.getLeftField());
-         Serializable rightValue = nextTableRecord.getValue(joinOn.getRightField());
-         if(!Objects.equals(leftValue, rightValue))
-         {
-            return (false);
-         }
+         rs.add(leftValue);
       }
+      return (rs);
+   }
+
 
-      return (true);
+
+   /*******************************************************************************
+    **
+    *******************************************************************************/
+   private List<Serializable> getRightJoinValues(QRecord nextTableRecord, QJoinMetaData joinMetaData)
+   {
+      List<Serializable> rs = new ArrayList<>();
+      for(JoinOn joinOn : joinMetaData.getJoinOns())
+      {
+         rs.add(nextTableRecord.getValue(joinOn.getRightField()));
+      }
+      return (rs);
    }
 
 
@@ -491,6 +637,7 @@ public class MemoryRecordStore
          }
 
          tableData.put(recordToInsert.getValue(primaryKeyField.getName()), recordToInsert);
+         invalidateTableIndexes(table);
          if(returnInsertedRecords)
          {
             outputRecords.add(recordToInsert);
@@ -651,6 +798,7 @@ public class MemoryRecordStore
                   recordToUpdate.setValue(fieldName, valueEntry.getValue());
                }
             }
+            invalidateTableIndexes(table);
 
             if(returnUpdatedRecords)
             {
@@ -684,6 +832,7 @@ public class MemoryRecordStore
          if(tableData.containsKey(primaryKeyValue))
          {
             tableData.remove(primaryKeyValue);
+            invalidateTableIndexes(table);
             rowsDeleted++;
          }
       }
@@ -704,6 +853,17 @@ public class MemoryRecordStore
 
 
 
+   /*******************************************************************************
+    ** Setter for minRecordsToUseIndexes - the number of records a table must have,
+    ** for queries against it to use (and build) indexes.
+    *******************************************************************************/
+   public static void setMinRecordsToUseIndexes(int minRecordsToUseIndexes)
+   {
+      MemoryRecordStore.minRecordsToUseIndexes = minRecordsToUseIndexes;
+   }
+
+
+
    /*******************************************************************************
     ** Increment a statistic
     **
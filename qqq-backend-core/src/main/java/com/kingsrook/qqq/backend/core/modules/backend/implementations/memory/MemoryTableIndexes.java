@@ -0,0 +1,447 @@
+/*
+ * QQQ - Low-code Application Framework for Engineers.
+ * Copyright (C) 2021-2024.  Kingsrook, LLC
+ * 651 N Broad St Ste 205 # 6917 | Middletown DE 19709 | United States
+ * contact@kingsrook.com
+ * https://github.com/Kingsrook/
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+
+package com.kingsrook.qqq.backend.core.modules.backend.implementations.memory;
+
+
+import java.io.Serializable;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import com.kingsrook.qqq.backend.core.model.actions.tables.query.CriteriaOption;
+import com.kingsrook.qqq.backend.core.model.actions.tables.query.QFilterCriteria;
+import com.kingsrook.qqq.backend.core.model.actions.tables.query.QFilterOrderBy;
+import com.kingsrook.qqq.backend.core.model.actions.tables.query.QQueryFilter;
+import com.kingsrook.qqq.backend.core.model.actions.tables.query.expressions.AbstractFilterExpression;
+import com.kingsrook.qqq.backend.core.model.data.QRecord;
+import com.kingsrook.qqq.backend.core.model.metadata.tables.QTableMetaData;
+import com.kingsrook.qqq.backend.core.utils.CollectionUtils;
+import com.kingsrook.qqq.backend.core.utils.StringUtils;
+
+
+/*******************************************************************************
+ ** Secondary indexes over one table's records in the MemoryRecordStore - used
+ ** to narrow down the records that a query has to look at, instead of scanning
+ ** the whole table.
+ **
+ ** An instance is a snapshot of the table's records (in the order the store
+ ** iterates them) - so the store discards it on any insert, update or delete,
+ ** and a new one is built (lazily) by the next query.  Indexes within it are
+ ** also built on demand, the first time a query can use them:
+ ** - hash indexes (field value > records) for EQUALS and IN criteria.
+ ** - sorted indexes (TreeMap of field value > records) for range criteria
+ **   (GREATER_THAN, LESS_THAN, etc, BETWEEN), and for ORDER BY.
+ **
+ ** Index lookups only ever produce CANDIDATES - a superset of the records that
+ ** match a criterion - and the caller must still apply the full filter to them.
+ ** This keeps the rules for loose-typed matching (e.g., a String criteria value
+ ** equalling an Integer field value) in one place (BackendQueryFilterUtils).
+ **
+ ** Candidates are always returned in the table's original iteration order (or,
+ ** for getRecordsSortedBy, in the same order a stable sort would produce), so
+ ** using an index never changes the order of a query's results.
+ *******************************************************************************/
+class MemoryTableIndexes
+{
+   //////////////////////////////////////////////////////////////////////////////////
+   // types whose natural ordering matches BackendQueryFilterUtils.isGreaterThan - //
+   // which, e.g., compares Longs & BigDecimals as doubles, so those are excluded. //
+   //////////////////////////////////////////////////////////////////////////////////
+   private static final Set<Class<?>> SORTABLE_CLASSES = Set.of(Integer.class, String.class, LocalDate.class, Instant.class);
+
+   private final QTableMetaData table;
+   private final List<QRecord>  records;
+
+   ////////////////////////////////////////////////////////////////////////////
+   // built lazily, during queries - which may run concurrently on one store //
+   ////////////////////////////////////////////////////////////////////////////
+   private final Map<String, Map<String, List<Integer>>> hashIndexes   = new ConcurrentHashMap<>();
+   private final Map<String, SortedIndex>                sortedIndexes = new ConcurrentHashMap<>();
+
+
+
+   /*******************************************************************************
+    ** Constructor
+    **
+    *******************************************************************************/
+   MemoryTableIndexes(QTableMetaData table, Collection<QRecord> tableData)
+   {
+      this.table = table;
+      this.records = new ArrayList<>(tableData);
+   }
+
+
+
+   /*******************************************************************************
+    ** number of records in the snapshot this object indexes.
+    *******************************************************************************/
+   int size()
+   {
+      return (records.size());
+   }
+
+
+
+   /*******************************************************************************
+    ** Find the smallest list of candidate records for a filter, that can be
+    ** produced from an index - or null, if no index can be used for the filter.
+    **
+    ** Only top-level criteria that must all be true (e.g., an AND filter, or a
+    ** filter with just one criterion) are considered.
+    *******************************************************************************/
+   List<QRecord> getCandidates(QQueryFilter filter)
+   {
+      if(filter == null || CollectionUtils.nullSafeIsEmpty(filter.getCriteria()))
+      {
+         return (null);
+      }
+
+      int noOfTopLevelConditions = filter.getCriteria().size() + CollectionUtils.nonNullList(filter.getSubFilters()).size();
+      if(!QQueryFilter.BooleanOperator.AND.equals(filter.getBooleanOperator()) && noOfTopLevelConditions > 1)
+      {
+         return (null);
+      }
+
+      List<Integer> bestCandidates = null;
+      for(QFilterCriteria criterion : filter.getCriteria())
+      {
+         List<Integer> candidates = getCandidateOrdinals(criterion);
+         if(candidates != null && (bestCandidates == null || candidates.size() < bestCandidates.size()))
+         {
+            bestCandidates = candidates;
+         }
+      }
+
+      if(bestCandidates == null)
+      {
+         return (null);
+      }
+
+      Collections.sort(bestCandidates);
+      List<QRecord> rs = new ArrayList<>(bestCandidates.size());
+      for(Integer ordinal : bestCandidates)
+      {
+         rs.add(records.get(ordinal));
+      }
+      return (rs);
+   }
+
+
+
+   /*******************************************************************************
+    ** Get all records, sorted by a field, in the same order that sorting them by
+    ** BackendQueryFilterUtils.sortRecordList would - or null, if that can't be
+    ** done from an index (e.g., mixed or un-sortable value types, or null values).
+    *******************************************************************************/
+   List<QRecord> getRecordsSortedBy(QFilterOrderBy orderBy)
+   {
+      if(orderBy == null || !QFilterOrderBy.class.equals(orderBy.getClass()) || !isIndexableField(orderBy.getFieldName()))
+      {
+         return (null);
+      }
+
+      SortedIndex sortedIndex = getSortedIndex(orderBy.getFieldName());
+      if(sortedIndex.valueClass == null || !sortedIndex.nullOrdinals.isEmpty())
+      {
+         return (null);
+      }
+
+      return (orderBy.getIsAscending() ? sortedIndex.getAscendingRecords() : sortedIndex.getDescendingRecords());
+   }
+
+
+
+   /*******************************************************************************
+    ** get the (unsorted) ordinals of records that may match a criterion, from an
+    ** index - or null if an index can't be used for it.
+    *******************************************************************************/
+   private List<Integer> getCandidateOrdinals(QFilterCriteria criterion)
+   {
+      if(criterion == null || criterion.getOperator() == null || !isIndexableField(criterion.getFieldName()))
+      {
+         return (null);
+      }
+
+      if(StringUtils.hasContent(criterion.getOtherFieldName()) || criterion.hasOption(CriteriaOption.CASE_INSENSITIVE) || criterion.getValues() == null)
+      {
+         return (null);
+      }
+
+      List<Serializable> values = criterion.getValues();
+      for(Serializable value : values)
+      {
+         if(value instanceof AbstractFilterExpression<?>)
+         {
+            return (null);
+         }
+      }
+
+      return switch(criterion.getOperator())
+      {
+         case EQUALS -> values.isEmpty() || values.get(0) == null ? null : getHashCandidates(criterion.getFieldName(), values.subList(0, 1));
+         case IN -> getHashCandidates(criterion.getFieldName(), values);
+         case GREATER_THAN, GREATER_THAN_OR_EQUALS -> getRangeCandidates(criterion.getFieldName(), first(values), null, false);
+         case LESS_THAN, LESS_THAN_OR_EQUALS -> getRangeCandidates(criterion.getFieldName(), null, first(values), true);
+         case BETWEEN -> values.size() < 2 ? null : getRangeCandidates(criterion.getFieldName(), values.get(0), values.get(1), false);
+         default -> null;
+      };
+   }
+
+
+
+   /*******************************************************************************
+    ** Records whose value for the field, as a string, equals any of the values,
+    ** as strings.  Comparing as strings makes this a superset of what
+    ** EQUALS & IN match, given their String/Number conversions.
+    *******************************************************************************/
+   private List<Integer> getHashCandidates(String fieldName, List<Serializable> values)
+   {
+      Map<String, List<Integer>> hashIndex = hashIndexes.computeIfAbsent(fieldName, this::buildHashIndex);
+
+      List<Integer> rs = new ArrayList<>();
+      for(String key : values.stream().filter(v -> v != null).map(String::valueOf).distinct().toList())
+      {
+         rs.addAll(hashIndex.getOrDefault(key, Collections.emptyList()));
+      }
+      return (rs);
+   }
+
+
+
+   /*******************************************************************************
+    ** Records with values between the (inclusive, optional) bounds - plus records
+    ** with null values, if requested (as LESS_THAN and LESS_THAN_OR_EQUALS do
+    ** match nulls).  Null if the bounds' types don't match the field's values.
+    *******************************************************************************/
+   private List<Integer> getRangeCandidates(String fieldName, Serializable from, Serializable to, boolean includeNulls)
+   {
+      if(from == null && to == null)
+      {
+         return (null);
+      }
+
+      SortedIndex sortedIndex = getSortedIndex(fieldName);
+      if(sortedIndex.valueClass == null)
+      {
+         return (null);
+      }
+
+      if((from != null && !sortedIndex.valueClass.equals(from.getClass())) || (to != null && !sortedIndex.valueClass.equals(to.getClass())))
+      {
+         return (null);
+      }
+
+      List<Integer> rs = new ArrayList<>();
+      if(includeNulls)
+      {
+         rs.addAll(sortedIndex.nullOrdinals);
+      }
+
+      ////////////////////////////////////////////////////////////////////////////
+      // a BETWEEN with its bounds backwards matches nothing (but TreeMap would //
+      // throw if asked for such a sub-map).                                    //
+      ////////////////////////////////////////////////////////////////////////////
+      @SuppressWarnings("unchecked")
+      Comparable<Object> fromComparable = (Comparable<Object>) from;
+      if(from != null && to != null && fromComparable.compareTo(to) > 0)
+      {
+         return (rs);
+      }
+
+      NavigableMap<Comparable<?>, List<Integer>> range = sortedIndex.index;
+      if(from != null)
+      {
+         range = range.tailMap((Comparable<?>) from, true);
+      }
+      if(to != null)
+      {
+         range = range.headMap((Comparable<?>) to, true);
+      }
+
+      for(List<Integer> ordinals : range.values())
+      {
+         rs.addAll(ordinals);
+      }
+      return (rs);
+   }
+
+
+
+   /*******************************************************************************
+    **
+    *******************************************************************************/
+   private boolean isIndexableField(String fieldName)
+   {
+      return (fieldName != null && !fieldName.contains(".") && table.getFields().containsKey(fieldName));
+   }
+
+
+
+   /*******************************************************************************
+    **
+    *******************************************************************************/
+   private static Serializable first(List<Serializable> values)
+   {
+      return (values.isEmpty() ? null : values.get(0));
+   }
+
+
+
+   /*******************************************************************************
+    **
+    *******************************************************************************/
+   private Map<String, List<Integer>> buildHashIndex(String fieldName)
+   {
+      Map<String, List<Integer>> hashIndex = new HashMap<>();
+      for(int i = 0; i < records.size(); i++)
+      {
+         Serializable value = records.get(i).getValue(fieldName);
+         if(value != null)
+         {
+            hashIndex.computeIfAbsent(String.valueOf(value), k -> new ArrayList<>()).add(i);
+         }
+      }
+      return (hashIndex);
+   }
+
+
+
+   /*******************************************************************************
+    **
+    *******************************************************************************/
+   private SortedIndex getSortedIndex(String fieldName)
+   {
+      return (sortedIndexes.computeIfAbsent(fieldName, SortedIndex::new));
+   }
+
+
+
+   /*******************************************************************************
+    ** A field's values (of one sortable type), sorted, each mapped to the
+    ** ordinals of the records with that value (in ascending ordinal order).
+    ** If the field's non-null values aren't all the same sortable class, then
+    ** valueClass is null, and the index can't be used.
+    *******************************************************************************/
+   private class SortedIndex
+   {
+      private final TreeMap<Comparable<?>, List<Integer>> index        = new TreeMap<>();
+      private final List<Integer>                         nullOrdinals = new ArrayList<>();
+      private Class<?>                                    valueClass;
+
+      ////////////////////////////////////////////////////////////////////////
+      // built lazily - volatile, so that concurrent queries at worst build //
+      // the same (unmodified after construction) list twice.               //
+      ////////////////////////////////////////////////////////////////////////
+      private volatile List<QRecord> ascendingRecords;
+      private volatile List<QRecord> descendingRecords;
+
+
+
+      /*******************************************************************************
+       ** Constructor
+       **
+       *******************************************************************************/
+      SortedIndex(String fieldName)
+      {
+         for(int i = 0; i < records.size(); i++)
+         {
+            Serializable value = records.get(i).getValue(fieldName);
+            if(value == null)
+            {
+               nullOrdinals.add(i);
+               continue;
+            }
+
+            if(valueClass == null && SORTABLE_CLASSES.contains(value.getClass()))
+            {
+               valueClass = value.getClass();
+            }
+
+            if(!value.getClass().equals(valueClass))
+            {
+               valueClass = null;
+               index.clear();
+               return;
+            }
+
+            index.computeIfAbsent((Comparable<?>) value, k -> new ArrayList<>()).add(i);
+         }
+      }
+
+
+
+      /*******************************************************************************
+       **
+       *******************************************************************************/
+      List<QRecord> getAscendingRecords()
+      {
+         if(ascendingRecords == null)
+         {
+            ascendingRecords = toRecords(index.values());
+         }
+         return (ascendingRecords);
+      }
+
+
+
+      /*******************************************************************************
+       ** note - records with equal values stay in ascending ordinal order, as they
+       ** would in a stable sort.
+       *******************************************************************************/
+      List<QRecord> getDescendingRecords()
+      {
+         if(descendingRecords == null)
+         {
+            descendingRecords = toRecords(index.descendingMap().values());
+         }
+         return (descendingRecords);
+      }
+
+
+
+      /*******************************************************************************
+       **
+       *******************************************************************************/
+      private List<QRecord> toRecords(Collection<List<Integer>> ordinalLists)
+      {
+         List<QRecord> rs = new ArrayList<>(records.size());
+         for(List<Integer> ordinals : ordinalLists)
+         {
+            for(Integer ordinal : ordinals)
+            {
+               rs.add(records.get(ordinal));
+            }
+         }
+         return (Collections.unmodifiableList(rs));
+      }
+   }
+
+}
@@ -30,10 +30,10 @@ import java.util.ArrayList;
 import java.util.HashSet;
 import java.util.List;
 import java.util.ListIterator;
-import java.util.Map;
 import java.util.Objects;
 import java.util.Set;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Predicate;
 import com.kingsrook.qqq.backend.core.context.QContext;
 import com.kingsrook.qqq.backend.core.exceptions.QException;
 import com.kingsrook.qqq.backend.core.logging.QLogger;
@@ -84,6 +84,9 @@ public class BackendQueryFilterUtils
     ** the overload of this method that doesn't take one, and everything downstream
     ** /should/ be tolerant of that being absent...  You just might not have the
     ** benefit of things like knowing field-meta-data associated with criteria...
+    **
+    ** This evaluates the filter directly against the one record - to apply the
+    ** same filter to many records, use compileFilter instead.
     *******************************************************************************/
    public static boolean doesRecordMatch(QQueryFilter filter, JoinsContext joinsContext, QRecord qRecord)
    {
@@ -114,9 +117,8 @@ public class BackendQueryFilterUtils
             ///////////////////////////////////////////////////////////////////////////////////////////////////
             if(fieldName.contains("."))
             {
-               String[]                  parts  = fieldName.split("\\.");
-               Map<String, Serializable> values = qRecord.getValues();
-               if(values.keySet().stream().noneMatch(n -> n.contains(".")) || parts[0].equals(qRecord.getTableName()))
+               String[] parts = fieldName.split("\\.");
+               if(qRecord.getValueFieldNames().stream().noneMatch(n -> n.contains(".")) || parts[0].equals(qRecord.getTableName()))
                {
                   value = qRecord.getValue(parts[1]);
                }
@@ -186,6 +188,26 @@ public class BackendQueryFilterUtils
 
 
 
+   /*******************************************************************************
+    ** Compile a filter into a predicate that gives the same answer as
+    ** doesRecordMatch - but with all the per-filter work (field lookups, value
+    ** coercion, pattern compiling, etc) done once, up front.  Use this (rather
+    ** than doesRecordMatch) when applying one filter to many records.
+    **
+    ** joinsContext is optional - see doesRecordMatch.
+    *******************************************************************************/
+   public static Predicate<QRecord> compileFilter(QQueryFilter filter, JoinsContext joinsContext)
+   {
+      if(filter == null || !filter.hasAnyCriteria())
+      {
+         return (qRecord -> true);
+      }
+
+      return (new CompiledQueryFilter(filter, joinsContext));
+   }
+
+
+
    /***************************************************************************
     **
     ***************************************************************************/
@@ -200,7 +222,7 @@ public class BackendQueryFilterUtils
    /*******************************************************************************
     **
     *******************************************************************************/
-   private static boolean doesCriteriaMatch(QFilterCriteria criterion, QFieldMetaData field, Serializable value)
+   static boolean doesCriteriaMatch(QFilterCriteria criterion, QFieldMetaData field, Serializable value)
    {
       String fieldName = field == null ? "__unknownField" : field.getName();
 
@@ -366,7 +388,7 @@ public class BackendQueryFilterUtils
    /*******************************************************************************
     **
     *******************************************************************************/
-   private static boolean isGreaterThan(Serializable a, Serializable b)
+   static boolean isGreaterThan(Serializable a, Serializable b)
    {
       if(Objects.equals(a, b))
       {
@@ -584,7 +606,7 @@ public class BackendQueryFilterUtils
    /*******************************************************************************
     **
     *******************************************************************************/
-   private static String getFirstStringCriterionValue(QFilterCriteria criteria)
+   static String getFirstStringCriterionValue(QFilterCriteria criteria)
    {
       if(CollectionUtils.nullSafeIsEmpty(criteria.getValues()))
       {
@@ -609,7 +631,7 @@ public class BackendQueryFilterUtils
    /*******************************************************************************
     **
     *******************************************************************************/
-   private static String getStringFieldValue(Serializable value, String fieldName, QFilterCriteria criterion)
+   static String getStringFieldValue(Serializable value, String fieldName, QFilterCriteria criterion)
    {
       if(value == null)
       {
@@ -0,0 +1,655 @@
+/*
+ * QQQ - Low-code Application Framework for Engineers.
+ * Copyright (C) 2021-2024.  Kingsrook, LLC
+ * 651 N Broad St Ste 205 # 6917 | Middletown DE 19709 | United States
+ * contact@kingsrook.com
+ * https://github.com/Kingsrook/
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.kingsrook.qqq.backend.core.modules.backend.implementations.utils;
+
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.function.BiPredicate;
+import java.util.function.Predicate;
+import java.util.regex.Pattern;
+import com.kingsrook.qqq.backend.core.exceptions.QException;
+import com.kingsrook.qqq.backend.core.logging.QLogger;
+import com.kingsrook.qqq.backend.core.model.actions.tables.query.CriteriaOption;
+import com.kingsrook.qqq.backend.core.model.actions.tables.query.JoinsContext;
+import com.kingsrook.qqq.backend.core.model.actions.tables.query.QFilterCriteria;
+import com.kingsrook.qqq.backend.core.model.actions.tables.query.QQueryFilter;
+import com.kingsrook.qqq.backend.core.model.actions.tables.query.expressions.AbstractFilterExpression;
+import com.kingsrook.qqq.backend.core.model.data.QRecord;
+import com.kingsrook.qqq.backend.core.model.metadata.fields.QFieldMetaData;
+import com.kingsrook.qqq.backend.core.utils.CollectionUtils;
+import com.kingsrook.qqq.backend.core.utils.ValueUtils;
+import static com.kingsrook.qqq.backend.core.logging.LogUtils.logPair;
+
+
+/*******************************************************************************
+ ** A QQueryFilter, "compiled" into a Predicate over QRecords - for when the same
+ ** filter is applied to many records (e.g., in-memory or file-based backends).
+ **
+ ** All of the per-filter work that BackendQueryFilterUtils.doesRecordMatch used
+ ** to repeat for every record is done once, here, at construction:
+ ** - field meta data is looked up in the JoinsContext (if given)
+ ** - filter expressions (e.g., NOW) are evaluated
+ ** - IN lists become hash sets
+ ** - LIKE patterns are converted to compiled regular expressions
+ ** - string criteria values are extracted (and lower-cased, for case-insensitive)
+ **
+ ** The result of test(record) is exactly the same as doesRecordMatch's was - in
+ ** particular, any criterion that can't be prepared up front (e.g., missing
+ ** values, or an expression with no known field) falls back to the original
+ ** per-record evaluation, so that it fails (or not) just as it always did.
+ **
+ ** Instances are immutable, so can be shared between threads.
+ *******************************************************************************/
+public class CompiledQueryFilter implements Predicate<QRecord>
+{
+   private static final QLogger LOG = QLogger.getLogger(CompiledQueryFilter.class);
+
+   private final boolean                  isAnd;
+   private final List<Predicate<QRecord>> parts;
+
+
+
+   /*******************************************************************************
+    ** Constructor - generally, use BackendQueryFilterUtils.compileFilter instead.
+    **
+    ** @param joinsContext optional - used to find field meta data for criteria.
+    *******************************************************************************/
+   CompiledQueryFilter(QQueryFilter filter, JoinsContext joinsContext)
+   {
+      this.parts = new ArrayList<>();
+
+      if(filter == null || !filter.hasAnyCriteria())
+      {
+         this.isAnd = true;
+         return;
+      }
+
+      this.isAnd = filter.getBooleanOperator().equals(QQueryFilter.BooleanOperator.AND);
+
+      for(QFilterCriteria criterion : CollectionUtils.nonNullList(filter.getCriteria()))
+      {
+         parts.add(compileCriterion(criterion, joinsContext));
+      }
+
+      /////////////////////////////////////////////////////////////////////
+      // note - sub-filters have always been evaluated without the joins //
+      // context - so, keep doing the same here.                         //
+      /////////////////////////////////////////////////////////////////////
+      for(QQueryFilter subFilter : CollectionUtils.nonNullList(filter.getSubFilters()))
+      {
+         parts.add(new CompiledQueryFilter(subFilter, null));
+      }
+   }
+
+
+
+   /*******************************************************************************
+    ** Test if a record matches the filter.
+    *******************************************************************************/
+   @Override
+   public boolean test(QRecord qRecord)
+   {
+      //////////////////////////////////////////////////////////////////////
+      // short-circuit on the first false (for AND) or true (for OR) part //
+      //////////////////////////////////////////////////////////////////////
+      for(Predicate<QRecord> part : parts)
+      {
+         if(part.test(qRecord) != isAnd)
+         {
+            return (!isAnd);
+         }
+      }
+
+      return (isAnd);
+   }
+
+
+
+   /*******************************************************************************
+    **
+    *******************************************************************************/
+   private static Predicate<QRecord> compileCriterion(QFilterCriteria criterion, JoinsContext joinsContext)
+   {
+      String fieldName = criterion.getFieldName();
+
+      QFieldMetaData field = null;
+      if(joinsContext != null)
+      {
+         try
+         {
+            JoinsContext.FieldAndTableNameOrAlias fieldAndTableNameOrAlias = joinsContext.getFieldAndTableNameOrAlias(fieldName);
+            if(fieldAndTableNameOrAlias != null)
+            {
+               field = fieldAndTableNameOrAlias.field();
+            }
+         }
+         catch(Exception e)
+         {
+            LOG.debug("Exception getting field from joinsContext", e, logPair("fieldName", fieldName));
+         }
+      }
+
+      CriterionMatcher matcher = null;
+      try
+      {
+         matcher = compileMatcher(criterion, field);
+      }
+      catch(RuntimeException e)
+      {
+         /////////////////////////////////////////////////////////////////////
+         // leave matcher null, to fall back to the per-record path below - //
+         // which will throw this same exception, if/when it's reached.     //
+         /////////////////////////////////////////////////////////////////////
+      }
+
+      if(matcher == null)
+      {
+         QFieldMetaData finalField = field;
+         matcher = (value) -> finalField != null
+            ? BackendQueryFilterUtils.doesCriteriaMatch(criterion, finalField, value)
+            : BackendQueryFilterUtils.doesCriteriaMatch(criterion, fieldName, value);
+      }
+
+      RecordValueGetter valueGetter  = new RecordValueGetter(fieldName);
+      CriterionMatcher  finalMatcher = matcher;
+      return (qRecord -> finalMatcher.matches(valueGetter.getValue(qRecord)));
+   }
+
+
+
+   /*******************************************************************************
+    ** build the matcher for a criterion - or return null if it can't be prepared
+    ** up front (in which case the caller falls back to per-record evaluation).
+    *******************************************************************************/
+   private static CriterionMatcher compileMatcher(QFilterCriteria criterion, QFieldMetaData field)
+   {
+      if(criterion.getValues() == null)
+      {
+         return (null);
+      }
+
+      /////////////////////////////////////////////////////////////////////////
+      // evaluate any expressions - but only if we know the field (else, the //
+      // expression's result depends on types inferred from record values).  //
+      /////////////////////////////////////////////////////////////////////////
+      List<Serializable> values = new ArrayList<>(criterion.getValues());
+      for(int i = 0; i < values.size(); i++)
+      {
+         if(values.get(i) instanceof AbstractFilterExpression<?> expression)
+         {
+            if(field == null)
+            {
+               return (null);
+            }
+
+            try
+            {
+               values.set(i, expression.evaluate(field));
+            }
+            catch(QException qe)
+            {
+               return (null);
+            }
+         }
+      }
+
+      String  fieldName       = field == null ? criterion.getFieldName() : field.getName();
+      boolean caseInsensitive = criterion.hasOption(CriteriaOption.CASE_INSENSITIVE);
+
+      /////////////////////////////////////////////////////////////////////
+      // criteria rebuilt with the evaluated values, for use in messages //
+      // from shared helpers, so they read the same as before.           //
+      /////////////////////////////////////////////////////////////////////
+      QFilterCriteria evaluatedCriterion = new QFilterCriteria(criterion.getFieldName(), criterion.getOperator(), values);
+
+      return switch(criterion.getOperator())
+      {
+         case EQUALS -> firstValueEquals(values, caseInsensitive)::matches;
+         case NOT_EQUALS -> negate(firstValueEquals(values, caseInsensitive)::matches);
+         case NOT_EQUALS_OR_IS_NULL ->
+         {
+            EqualsMatcher equalsMatcher = firstValueEquals(values, caseInsensitive);
+            yield (value -> !equalsMatcher.matches(value) || isBlank(value));
+         }
+         case IN -> new InMatcher(values, caseInsensitive)::matches;
+         case NOT_IN -> negate(new InMatcher(values, caseInsensitive)::matches);
+         case IS_NULL_OR_IN ->
+         {
+            InMatcher inMatcher = new InMatcher(values, caseInsensitive);
+            yield (value -> isBlank(value) || inMatcher.matches(value));
+         }
+         case IS_BLANK -> CompiledQueryFilter::isBlank;
+         case IS_NOT_BLANK -> value -> !isBlank(value);
+         case CONTAINS -> new StringMatcher(evaluatedCriterion, fieldName, caseInsensitive, String::contains)::matches;
+         case NOT_CONTAINS -> negate(new StringMatcher(evaluatedCriterion, fieldName, caseInsensitive, String::contains)::matches);
+         case STARTS_WITH -> new StringMatcher(evaluatedCriterion, fieldName, caseInsensitive, String::startsWith)::matches;
+         case NOT_STARTS_WITH -> negate(new StringMatcher(evaluatedCriterion, fieldName, caseInsensitive, String::startsWith)::matches);
+         case ENDS_WITH -> new StringMatcher(evaluatedCriterion, fieldName, caseInsensitive, String::endsWith)::matches;
+         case NOT_ENDS_WITH -> negate(new StringMatcher(evaluatedCriterion, fieldName, caseInsensitive, String::endsWith)::matches);
+         case LIKE -> new LikeMatcher(evaluatedCriterion, fieldName, caseInsensitive)::matches;
+         case NOT_LIKE -> negate(new LikeMatcher(evaluatedCriterion, fieldName, caseInsensitive)::matches);
+         case GREATER_THAN ->
+         {
+            Serializable bound = getRequiredBound(values, 0);
+            yield (value -> isGreaterThan(bound, value));
+         }
+         case GREATER_THAN_OR_EQUALS ->
+         {
+            Serializable  bound         = getRequiredBound(values, 0);
+            EqualsMatcher equalsMatcher = new EqualsMatcher(bound, caseInsensitive);
+            yield (value -> isGreaterThan(bound, value) || equalsMatcher.matches(value));
+         }
+         case LESS_THAN ->
+         {
+            Serializable  bound         = getRequiredBound(values, 0);
+            EqualsMatcher equalsMatcher = new EqualsMatcher(bound, caseInsensitive);
+            yield (value -> !isGreaterThan(bound, value) && !equalsMatcher.matches(value));
+         }
+         case LESS_THAN_OR_EQUALS ->
+         {
+            Serializable bound = getRequiredBound(values, 0);
+            yield (value -> !isGreaterThan(bound, value));
+         }
+         case BETWEEN -> betweenMatcher(values);
+         case NOT_BETWEEN -> negate(betweenMatcher(values));
+         case TRUE -> value -> true;
+         case FALSE -> value -> false;
+      };
+   }
+
+
+
+   /*******************************************************************************
+    ** note - between has never applied the case-insensitive option, so, nor do we.
+    *******************************************************************************/
+   private static CriterionMatcher betweenMatcher(List<Serializable> values)
+   {
+      Serializable  lowerBound         = getRequiredBound(values, 0);
+      Serializable  upperBound         = getRequiredBound(values, 1);
+      EqualsMatcher lowerEqualsMatcher = new EqualsMatcher(lowerBound, false);
+      EqualsMatcher upperEqualsMatcher = new EqualsMatcher(upperBound, false);
+
+      return (value -> (isGreaterThan(lowerBound, value) || lowerEqualsMatcher.matches(value))
+         && (!isGreaterThan(upperBound, value) || upperEqualsMatcher.matches(value)));
+   }
+
+
+
+   /*******************************************************************************
+    **
+    *******************************************************************************/
+   private static Serializable getRequiredBound(List<Serializable> values, int index)
+   {
+      if(values.size() <= index || values.get(index) == null)
+      {
+         throw (new IllegalArgumentException("Missing criterion value in query"));
+      }
+      return (values.get(index));
+   }
+
+
+
+   /*******************************************************************************
+    ** a database would say 'false' for if a null column is > a value, so do the same.
+    *******************************************************************************/
+   private static boolean isGreaterThan(Serializable bound, Serializable value)
+   {
+      if(value == null)
+      {
+         return (false);
+      }
+      return (BackendQueryFilterUtils.isGreaterThan(bound, value));
+   }
+
+
+
+   /*******************************************************************************
+    **
+    *******************************************************************************/
+   private static boolean isBlank(Serializable value)
+   {
+      if(value == null)
+      {
+         return (true);
+      }
+
+      return ("".equals(ValueUtils.getValueAsString(value)));
+   }
+
+
+
+   /*******************************************************************************
+    **
+    *******************************************************************************/
+   private static EqualsMatcher firstValueEquals(List<Serializable> values, boolean caseInsensitive)
+   {
+      if(values.isEmpty())
+      {
+         throw (new IndexOutOfBoundsException("Missing criterion value"));
+      }
+      return (new EqualsMatcher(values.get(0), caseInsensitive));
+   }
+
+
+
+   /*******************************************************************************
+    **
+    *******************************************************************************/
+   private static CriterionMatcher negate(CriterionMatcher matcher)
+   {
+      return (value -> !matcher.matches(value));
+   }
+
+
+
+   /*******************************************************************************
+    ** test for a single criterion, given the (already looked-up) record value.
+    *******************************************************************************/
+   @FunctionalInterface
+   private interface CriterionMatcher
+   {
+      /*******************************************************************************
+       **
+       *******************************************************************************/
+      boolean matches(Serializable value);
+   }
+
+
+
+   /*******************************************************************************
+    ** get a criterion's field's value out of a record - including the fallback
+    ** for criteria named like table.fieldName, when the record's values are not
+    ** qualified that way.
+    *******************************************************************************/
+   private static class RecordValueGetter
+   {
+      private final String fieldName;
+      private final String tableNamePart;
+      private final String fieldNamePart;
+
+
+
+      /*******************************************************************************
+       **
+       *******************************************************************************/
+      RecordValueGetter(String fieldName)
+      {
+         this.fieldName = fieldName;
+
+         String[] parts = fieldName == null ? null : fieldName.split("\\.");
+         if(parts != null && parts.length > 1)
+         {
+            this.tableNamePart = parts[0];
+            this.fieldNamePart = parts[1];
+         }
+         else
+         {
+            this.tableNamePart = null;
+            this.fieldNamePart = null;
+         }
+      }
+
+
+
+      /*******************************************************************************
+       **
+       *******************************************************************************/
+      Serializable getValue(QRecord qRecord)
+      {
+         Serializable value = qRecord.getValue(fieldName);
+         if(value == null && fieldNamePart != null)
+         {
+            ////////////////////////////////////////////////////////////////////////////////////////////////
+            // if the value isn't in the record - and none of the field names in the record are fully     //
+            // qualified - OR - the table name portion of the field name matches the record's table name, //
+            // then just use the field-name portion...                                                    //
+            ////////////////////////////////////////////////////////////////////////////////////////////////
+            if(tableNamePart.equals(qRecord.getTableName()) || noneQualified(qRecord.getValueFieldNames()))
+            {
+               value = qRecord.getValue(fieldNamePart);
+            }
+         }
+         return (value);
+      }
+
+
+
+      /*******************************************************************************
+       **
+       *******************************************************************************/
+      private static boolean noneQualified(Collection<String> fieldNames)
+      {
+         for(String name : fieldNames)
+         {
+            if(name.contains("."))
+            {
+               return (false);
+            }
+         }
+         return (true);
+      }
+   }
+
+
+
+   /*******************************************************************************
+    ** equals, with the same string/number leniency as BackendQueryFilterUtils.
+    *******************************************************************************/
+   private static class EqualsMatcher
+   {
+      private final Serializable criteriaValue;
+      private final String       criteriaValueAsString;
+      private final boolean      caseInsensitive;
+
+
+
+      /*******************************************************************************
+       **
+       *******************************************************************************/
+      EqualsMatcher(Serializable criteriaValue, boolean caseInsensitive)
+      {
+         this.criteriaValue = criteriaValue;
+         this.criteriaValueAsString = criteriaValue instanceof Number ? String.valueOf(criteriaValue) : null;
+         this.caseInsensitive = caseInsensitive;
+      }
+
+
+
+      /*******************************************************************************
+       **
+       *******************************************************************************/
+      boolean matches(Serializable value)
+      {
+         if(value == null)
+         {
+            return (false);
+         }
+
+         Serializable compareTo = criteriaValue;
+         if(value instanceof String && criteriaValueAsString != null)
+         {
+            compareTo = criteriaValueAsString;
+         }
+         else if(criteriaValue instanceof String && value instanceof Number)
+         {
+            value = String.valueOf(value);
+         }
+
+         if(caseInsensitive && value instanceof String valueString && compareTo instanceof String compareToString && valueString.equalsIgnoreCase(compareToString))
+         {
+            return (true);
+         }
+
+         return (value.equals(compareTo));
+      }
+   }
+
+
+
+   /*******************************************************************************
+    ** IN - against a hash set of the criteria values.
+    *******************************************************************************/
+   private static class InMatcher
+   {
+      private final Set<Serializable> criteriaValues;
+      private final Set<String>       lowerCaseCriteriaValues;
+      private final boolean           firstValueIsString;
+
+
+
+      /*******************************************************************************
+       **
+       *******************************************************************************/
+      InMatcher(List<Serializable> values, boolean caseInsensitive)
+      {
+         this.criteriaValues = new HashSet<>(values);
+         this.firstValueIsString = !values.isEmpty() && values.get(0) instanceof String;
+
+         if(caseInsensitive && firstValueIsString)
+         {
+            this.lowerCaseCriteriaValues = new HashSet<>();
+            for(Serializable value : values)
+            {
+               if(value instanceof String s)
+               {
+                  lowerCaseCriteriaValues.add(s.toLowerCase());
+               }
+            }
+         }
+         else
+         {
+            this.lowerCaseCriteriaValues = null;
+         }
+      }
+
+
+
+      /*******************************************************************************
+       **
+       *******************************************************************************/
+      boolean matches(Serializable value)
+      {
+         if(firstValueIsString && value instanceof Number)
+         {
+            value = String.valueOf(value);
+         }
+
+         if(lowerCaseCriteriaValues != null && value instanceof String s && lowerCaseCriteriaValues.contains(s.toLowerCase()))
+         {
+            return (true);
+         }
+
+         return (value != null && criteriaValues.contains(value));
+      }
+   }
+
+
+
+   /*******************************************************************************
+    ** contains / starts-with / ends-with.
+    *******************************************************************************/
+   private static class StringMatcher
+   {
+      private final QFilterCriteria criterion;
+      private final String          fieldName;
+      private final String          criteriaValue;
+      private final String          lowerCaseCriteriaValue;
+
+      private final BiPredicate<String, String> test;
+
+
+
+      /*******************************************************************************
+       **
+       *******************************************************************************/
+      StringMatcher(QFilterCriteria criterion, String fieldName, boolean caseInsensitive, BiPredicate<String, String> test)
+      {
+         this.criterion = criterion;
+         this.fieldName = fieldName;
+         this.criteriaValue = BackendQueryFilterUtils.getFirstStringCriterionValue(criterion);
+         this.lowerCaseCriteriaValue = caseInsensitive ? criteriaValue.toLowerCase() : null;
+         this.test = test;
+      }
+
+
+
+      /*******************************************************************************
+       **
+       *******************************************************************************/
+      boolean matches(Serializable value)
+      {
+         String stringValue = BackendQueryFilterUtils.getStringFieldValue(value, fieldName, criterion);
+
+         if(lowerCaseCriteriaValue != null && test.test(stringValue.toLowerCase(), lowerCaseCriteriaValue))
+         {
+            return (true);
+         }
+
+         return (test.test(stringValue, criteriaValue));
+      }
+   }
+
+
+
+   /*******************************************************************************
+    ** LIKE - with the pattern compiled once.
+    *******************************************************************************/
+   private static class LikeMatcher
+   {
+      private final QFilterCriteria criterion;
+      private final String          fieldName;
+      private final Pattern         pattern;
+      private final boolean         caseInsensitive;
+
+
+
+      /*******************************************************************************
+       **
+       *******************************************************************************/
+      LikeMatcher(QFilterCriteria criterion, String fieldName, boolean caseInsensitive)
+      {
+         this.criterion = criterion;
+         this.fieldName = fieldName;
+         this.caseInsensitive = caseInsensitive;
+
+         String regex = BackendQueryFilterUtils.sqlLikeToRegex(BackendQueryFilterUtils.getFirstStringCriterionValue(criterion));
+         this.pattern = Pattern.compile(caseInsensitive ? regex.toLowerCase() : regex);
+      }
+
+
+
+      /*******************************************************************************
+       **
+       *******************************************************************************/
+      boolean matches(Serializable value)
+      {
+         String stringValue = BackendQueryFilterUtils.getStringFieldValue(value, fieldName, criterion);
+         return (pattern.matcher(caseInsensitive ? stringValue.toLowerCase() : stringValue).matches());
+      }
+   }
+
+}
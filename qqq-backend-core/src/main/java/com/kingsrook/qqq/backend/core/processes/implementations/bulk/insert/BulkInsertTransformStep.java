@@ -394,7 +394,7 @@ public class BulkInsertTransformStep extends AbstractTransformStep
          List<QErrorMessage> errorsFromAssociations = getErrorsFromAssociations(record);
          if(CollectionUtils.nullSafeHasContents(errorsFromAssociations))
          {
-            List<QErrorMessage> recordErrors = Objects.requireNonNullElseGet(record.getErrors(), () -> new ArrayList<>());
+            List<QErrorMessage> recordErrors = new ArrayList<>(CollectionUtils.nonNullList(record.getErrors()));
             recordErrors.addAll(errorsFromAssociations);
             record.setErrors(recordErrors);
          }
@@ -536,7 +536,7 @@ public class BulkInsertTransformStep extends AbstractTransformStep
          List<QErrorMessage> errorsFromAssociations = getErrorsFromAssociations(record);
          if(CollectionUtils.nullSafeHasContents(errorsFromAssociations))
          {
-            List<QErrorMessage> recordErrors = Objects.requireNonNullElseGet(record.getErrors(), () -> new ArrayList<>());
+            List<QErrorMessage> recordErrors = new ArrayList<>(CollectionUtils.nonNullList(record.getErrors()));
             recordErrors.addAll(errorsFromAssociations);
             record.setErrors(recordErrors);
          }
@@ -28,6 +28,7 @@ import java.util.Optional;
 import com.kingsrook.qqq.backend.core.actions.QBackendTransaction;
 import com.kingsrook.qqq.backend.core.actions.tables.InsertAction;
 import com.kingsrook.qqq.backend.core.actions.tables.UpdateAction;
+import com.kingsrook.qqq.backend.core.actions.tables.UpsertAction;
 import com.kingsrook.qqq.backend.core.context.QContext;
 import com.kingsrook.qqq.backend.core.exceptions.QException;
 import com.kingsrook.qqq.backend.core.model.actions.processes.RunBackendStepInput;
@@ -38,6 +39,8 @@ import com.kingsrook.qqq.backend.core.model.actions.tables.insert.InsertInput;
 import com.kingsrook.qqq.backend.core.model.actions.tables.insert.InsertOutput;
 import com.kingsrook.qqq.backend.core.model.actions.tables.update.UpdateInput;
 import com.kingsrook.qqq.backend.core.model.actions.tables.update.UpdateOutput;
+import com.kingsrook.qqq.backend.core.model.actions.tables.upsert.UpsertInput;
+import com.kingsrook.qqq.backend.core.model.actions.tables.upsert.UpsertOutput;
 import com.kingsrook.qqq.backend.core.model.data.QRecord;
 import com.kingsrook.qqq.backend.core.model.metadata.tables.QTableMetaData;
 import com.kingsrook.qqq.backend.core.utils.CollectionUtils;
@@ -51,8 +54,9 @@ import com.kingsrook.qqq.backend.core.utils.CollectionUtils;
  *******************************************************************************/
 public class LoadViaInsertOrUpdateStep extends AbstractLoadStep
 {
-   public static final String FIELD_DESTINATION_TABLE     = "destinationTable";
-   public static final String FIELD_SKIP_UNIQUE_KEY_CHECK = "skipUniqueKeyCheck";
+   public static final String FIELD_DESTINATION_TABLE        = "destinationTable";
+   public static final String FIELD_SKIP_UNIQUE_KEY_CHECK    = "skipUniqueKeyCheck";
+   public static final String FIELD_UPSERT_RECORDS_TO_INSERT = "upsertRecordsToInsert";
 
    protected List<QRecord> recordsToInsert = null;
    protected List<QRecord> recordsToUpdate = null;
@@ -89,6 +93,25 @@ public class LoadViaInsertOrUpdateStep extends AbstractLoadStep
    {
       QTableMetaData tableMetaData = QContext.getQInstance().getTable(runBackendStepInput.getValueString(FIELD_DESTINATION_TABLE));
 
+      if(CollectionUtils.nullSafeHasContents(recordsToInsert) && runBackendStepInput.getValuePrimitiveBoolean(FIELD_UPSERT_RECORDS_TO_INSERT))
+      {
+         //////////////////////////////////////////////////////////////////////////////
+         // if the step that built these records already looked them up (e.g., a     //
+         // table sync), and the backend can upsert them natively, do that - rather  //
+         // than having insert look up their unique keys again.                      //
+         //////////////////////////////////////////////////////////////////////////////
+         UpsertInput upsertInput = new UpsertInput(tableMetaData.getName()).withRecords(recordsToInsert);
+         upsertInput.setInputSource(getInputSource());
+         getTransaction().ifPresent(upsertInput::setTransaction);
+
+         if(UpsertAction.willUseBackendUpsert(upsertInput))
+         {
+            UpsertOutput upsertOutput = new UpsertAction().execute(upsertInput);
+            runBackendStepOutput.getRecords().addAll(upsertOutput.getRecords());
+            recordsToInsert = null;
+         }
+      }
+
       if(CollectionUtils.nullSafeHasContents(recordsToInsert))
       {
          InsertInput insertInput = new InsertInput();
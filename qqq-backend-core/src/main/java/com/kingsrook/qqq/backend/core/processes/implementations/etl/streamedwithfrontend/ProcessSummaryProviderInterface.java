@@ -23,6 +23,9 @@ package com.kingsrook.qqq.backend.core.processes.implementations.etl.streamedwit
 
 
 import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import com.kingsrook.qqq.backend.core.model.actions.processes.ProcessSummaryLine;
 import com.kingsrook.qqq.backend.core.model.actions.processes.ProcessSummaryLineInterface;
 import com.kingsrook.qqq.backend.core.model.actions.processes.RunBackendStepOutput;
 
@@ -60,4 +63,64 @@ public interface ProcessSummaryProviderInterface
       return (processSummary);
    }
 
+
+
+   /*******************************************************************************
+    ** Combine the process summaries from multiple instances of a provider (e.g.,
+    ** from the parallel consumers in a StreamedETLExecuteStep) into one summary.
+    **
+    ** ProcessSummaryLines that describe the same thing (see isMergeableWith) have
+    ** their counts & primary keys summed up; other types of lines (e.g., links)
+    ** are included once per distinct status & message.
+    *******************************************************************************/
+   static ArrayList<ProcessSummaryLineInterface> mergeProcessSummaries(List<? extends List<ProcessSummaryLineInterface>> processSummaries, boolean isForResultScreen)
+   {
+      ArrayList<ProcessSummaryLineInterface> rs = new ArrayList<>();
+      for(List<ProcessSummaryLineInterface> processSummary : processSummaries)
+      {
+         if(processSummary == null)
+         {
+            continue;
+         }
+
+         for(ProcessSummaryLineInterface line : processSummary)
+         {
+            if(line instanceof ProcessSummaryLine processSummaryLine)
+            {
+               ProcessSummaryLine mergedLine = rs.stream()
+                  .filter(l -> l instanceof ProcessSummaryLine psl && psl.isMergeableWith(processSummaryLine))
+                  .map(l -> (ProcessSummaryLine) l)
+                  .findFirst().orElse(null);
+
+               if(mergedLine == null)
+               {
+                  //////////////////////////////////////////////////////////////////
+                  // copy the line, rather than adding the original to the output //
+                  // list, as it will be mutated by subsequent merges             //
+                  //////////////////////////////////////////////////////////////////
+                  mergedLine = new ProcessSummaryLine(processSummaryLine.getStatus(), 0, processSummaryLine.getMessage())
+                     .withSingularFutureMessage(processSummaryLine.getSingularFutureMessage())
+                     .withPluralFutureMessage(processSummaryLine.getPluralFutureMessage())
+                     .withSingularPastMessage(processSummaryLine.getSingularPastMessage())
+                     .withPluralPastMessage(processSummaryLine.getPluralPastMessage())
+                     .withMessageSuffix(processSummaryLine.getMessageSuffix());
+                  rs.add(mergedLine);
+               }
+
+               mergedLine.mergeFrom(processSummaryLine, isForResultScreen);
+            }
+            else
+            {
+               boolean alreadyIncluded = rs.stream().anyMatch(l -> l.getClass().equals(line.getClass()) && l.getStatus() == line.getStatus() && Objects.equals(l.getMessage(), line.getMessage()));
+               if(!alreadyIncluded)
+               {
+                  rs.add(line);
+               }
+            }
+         }
+      }
+
+      return (rs);
+   }
+
 }
@@ -22,15 +22,28 @@
 package com.kingsrook.qqq.backend.core.processes.implementations.etl.streamedwithfrontend;
 
 
+import java.io.Serializable;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 import com.kingsrook.qqq.backend.core.actions.QBackendTransaction;
 import com.kingsrook.qqq.backend.core.actions.async.AsyncRecordPipeLoop;
 import com.kingsrook.qqq.backend.core.actions.audits.AuditAction;
 import com.kingsrook.qqq.backend.core.actions.processes.BackendStep;
 import com.kingsrook.qqq.backend.core.actions.processes.RunProcessAction;
 import com.kingsrook.qqq.backend.core.actions.reporting.RecordPipe;
+import com.kingsrook.qqq.backend.core.context.CapturedContext;
+import com.kingsrook.qqq.backend.core.context.QContext;
 import com.kingsrook.qqq.backend.core.exceptions.QException;
 import com.kingsrook.qqq.backend.core.logging.QLogger;
 import com.kingsrook.qqq.backend.core.model.actions.audits.AuditInput;
@@ -39,18 +52,41 @@ import com.kingsrook.qqq.backend.core.model.actions.processes.RunBackendStepInpu
 import com.kingsrook.qqq.backend.core.model.actions.processes.RunBackendStepOutput;
 import com.kingsrook.qqq.backend.core.model.data.QRecord;
 import com.kingsrook.qqq.backend.core.utils.CollectionUtils;
+import com.kingsrook.qqq.backend.core.utils.PrefixedDefaultThreadFactory;
+import static com.kingsrook.qqq.backend.core.logging.LogUtils.logPair;
 
 
 /*******************************************************************************
  ** Backend step to do the execute portion of a streamed ETL job.
  **
  ** Works within a transaction (per the backend module of the destination table).
+ **
+ ** If the process's consumerThreadCount input is greater than 1, then that many
+ ** consumer workers drain the record pipe in parallel, each with its own instances
+ ** of the transform & load steps, its own QContext, and (for process or page
+ ** level transactions) its own transaction.  In this mode:
+ ** - pages are transformed & loaded in no particular order.
+ ** - each worker's steps write to their own copy of the process values; after
+ **   all workers finish, any values they changed are merged back into the
+ **   process's values (with an arbitrary worker winning if several changed the
+ **   same value).
+ ** - with a process-level transaction, each worker's transaction is committed
+ **   (one after another) only after all workers have finished successfully, and
+ **   all are rolled back if any fails.  Note though, that these commits are NOT
+ **   atomic across workers - if one worker's commit fails after another's has
+ **   succeeded, that other worker's work is not undone.  Processes that need an
+ **   all-or-nothing process-level transaction should use a single consumer thread.
+ ** - process summaries from each worker's steps are merged at the end.
+ ** - transform & load steps must be safe to run as multiple concurrent instances
+ **   (e.g., not sharing mutable static state, and not relying on seeing all records).
  *******************************************************************************/
 public class StreamedETLExecuteStep extends BaseStreamedETLStep implements BackendStep
 {
    private static final QLogger LOG = QLogger.getLogger(StreamedETLExecuteStep.class);
 
-   private int currentRowCount = 1;
+   private static final int FLUSH_DEADLINE_MS = 1000;
+
+   private AtomicInteger currentRowCount = new AtomicInteger(1);
 
 
 
@@ -61,6 +97,7 @@ public class StreamedETLExecuteStep extends BaseStreamedETLStep implements Backe
    public void run(RunBackendStepInput runBackendStepInput, RunBackendStepOutput runBackendStepOutput) throws QException
    {
       Optional<QBackendTransaction> transaction = Optional.empty();
+      List<ConsumerWorker>          workers     = new ArrayList<>();
 
       try
       {
@@ -128,41 +165,68 @@ public class StreamedETLExecuteStep extends BaseStreamedETLStep implements Backe
             transformStep.setTransaction(transaction);
          }
 
-         List<QRecord>       loadedRecordList    = new ArrayList<>();
-         AsyncRecordPipeLoop asyncRecordPipeLoop = new AsyncRecordPipeLoop();
-         if(overrideRecordPipeCapacity != null && overrideRecordPipeCapacity < asyncRecordPipeLoop.getMinRecordsToConsume())
+         List<QRecord> loadedRecordList    = new ArrayList<>();
+         int           recordCount;
+         int           consumerThreadCount = Objects.requireNonNullElse(runBackendStepInput.getValueInteger(StreamedETLWithFrontendProcess.FIELD_CONSUMER_THREAD_COUNT), 1);
+         if(consumerThreadCount > 1)
          {
-            asyncRecordPipeLoop.setMinRecordsToConsume(overrideRecordPipeCapacity);
+            //////////////////////////////////////////////////////////////////////////
+            // set up the workers - each w/ their own transform, load, transaction, //
+            // & step output (so they aren't all writing to the same values map) -  //
+            // then run them all against the pipe, in parallel.                     //
+            //////////////////////////////////////////////////////////////////////////
+            Map<String, Serializable> valuesBeforeWorkers = new HashMap<>(runBackendStepOutput.getValues());
+            workers.add(new ConsumerWorker(transformStep, loadStep, transaction, buildWorkerStepOutput(valuesBeforeWorkers)));
+            for(int i = 1; i < consumerThreadCount; i++)
+            {
+               addConsumerWorker(workers, runBackendStepInput, runBackendStepOutput, doProcessLevelTransaction, valuesBeforeWorkers);
+            }
+
+            recordCount = runWithParallelConsumers(runBackendStepInput, runBackendStepOutput, extractStep, recordPipe, workers, loadedRecordList);
+            mergeWorkerValues(runBackendStepOutput, workers, valuesBeforeWorkers);
          }
+         else
+         {
+            workers.add(new ConsumerWorker(transformStep, loadStep, transaction, runBackendStepOutput));
 
-         int recordCount = asyncRecordPipeLoop.run("StreamedETLExecute>Extract>" + runBackendStepInput.getProcessName(), null, recordPipe, (status) ->
+            AsyncRecordPipeLoop asyncRecordPipeLoop = new AsyncRecordPipeLoop();
+            if(overrideRecordPipeCapacity != null && overrideRecordPipeCapacity < asyncRecordPipeLoop.getMinRecordsToConsume())
             {
-               extractStep.run(runBackendStepInput, runBackendStepOutput);
-               return (runBackendStepOutput);
-            },
-            () -> (consumeRecordsFromPipe(recordPipe, transformStep, loadStep, runBackendStepInput, runBackendStepOutput, loadedRecordList))
-         );
+               asyncRecordPipeLoop.setMinRecordsToConsume(overrideRecordPipeCapacity);
+            }
+
+            recordCount = asyncRecordPipeLoop.run("StreamedETLExecute>Extract>" + runBackendStepInput.getProcessName(), null, recordPipe, (status) ->
+               {
+                  extractStep.run(runBackendStepInput, runBackendStepOutput);
+                  return (runBackendStepOutput);
+               },
+               () -> (consumeRecords(recordPipe.consumeAvailableRecords(), transformStep, loadStep, runBackendStepInput, runBackendStepOutput, runBackendStepOutput, loadedRecordList))
+            );
+         }
 
          runBackendStepOutput.addValue(StreamedETLWithFrontendProcess.FIELD_RECORD_COUNT, recordCount);
 
          updateRecordsWithDisplayValuesAndPossibleValues(runBackendStepInput, loadedRecordList);
          runBackendStepOutput.setRecords(loadedRecordList);
 
-         /////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
-         // get the process summary from the load step, if it's a summary-provider -- else, use the transform step (which is always a provider) //
-         /////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
-         ArrayList<ProcessSummaryLineInterface> processSummaryLines = null;
-         if(loadStep instanceof ProcessSummaryProviderInterface provider)
+         ///////////////////////////////////////////////////////////////////////////////////
+         // get the process summary from each worker - merging them if there are multiple //
+         ///////////////////////////////////////////////////////////////////////////////////
+         ArrayList<ProcessSummaryLineInterface> processSummaryLines;
+         if(workers.size() == 1)
          {
-            processSummaryLines = provider.doGetProcessSummary(runBackendStepOutput, true);
-            runBackendStepOutput.addValue(StreamedETLWithFrontendProcess.FIELD_PROCESS_SUMMARY, processSummaryLines);
+            processSummaryLines = getProcessSummaryLines(transformStep, loadStep, runBackendStepOutput);
          }
-
-         if(CollectionUtils.nullSafeIsEmpty(processSummaryLines))
+         else
          {
-            processSummaryLines = transformStep.doGetProcessSummary(runBackendStepOutput, true);
-            runBackendStepOutput.addValue(StreamedETLWithFrontendProcess.FIELD_PROCESS_SUMMARY, processSummaryLines);
+            List<ArrayList<ProcessSummaryLineInterface>> workerProcessSummaries = new ArrayList<>();
+            for(ConsumerWorker worker : workers)
+            {
+               workerProcessSummaries.add(getProcessSummaryLines(worker.transformStep(), worker.loadStep(), runBackendStepOutput));
+            }
+            processSummaryLines = ProcessSummaryProviderInterface.mergeProcessSummaries(workerProcessSummaries, true);
          }
+         runBackendStepOutput.addValue(StreamedETLWithFrontendProcess.FIELD_PROCESS_SUMMARY, processSummaryLines);
 
          /////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
          // use a subclass of runBackendStepOutput that makes it clear you can't use the recordList, as it's a "preview/subset" record list //
@@ -170,8 +234,11 @@ public class StreamedETLExecuteStep extends BaseStreamedETLStep implements Backe
          /////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
          BackendStepPostRunOutput postRunOutput = new BackendStepPostRunOutput(runBackendStepOutput);
          BackendStepPostRunInput  postRunInput  = new BackendStepPostRunInput(runBackendStepInput);
-         transformStep.postRun(postRunInput, postRunOutput);
-         loadStep.postRun(postRunInput, postRunOutput);
+         for(ConsumerWorker worker : workers)
+         {
+            worker.transformStep().postRun(postRunInput, postRunOutput);
+            worker.loadStep().postRun(postRunInput, postRunOutput);
+         }
 
          //////////////////////////////////////////////////////////////////////
          // propagate data from inner-step state to process-level step state //
@@ -201,9 +268,19 @@ public class StreamedETLExecuteStep extends BaseStreamedETLStep implements Backe
          ////////////////////////////////////////////////////////
          // commit the work at the process level if applicable //
          ////////////////////////////////////////////////////////
-         if(doProcessLevelTransaction && transaction.isPresent())
+         if(doProcessLevelTransaction)
          {
-            transaction.get().commit();
+            ///////////////////////////////////////////////////////////////////////////////
+            // with parallel consumers, this commits each worker's transaction in turn - //
+            // which is not atomic across workers (see class-level comment).             //
+            ///////////////////////////////////////////////////////////////////////////////
+            for(ConsumerWorker worker : workers)
+            {
+               if(worker.transaction().isPresent())
+               {
+                  worker.transaction().get().commit();
+               }
+            }
          }
       }
       catch(Exception e)
@@ -220,6 +297,14 @@ public class StreamedETLExecuteStep extends BaseStreamedETLStep implements Backe
          {
             LOG.warn("Caught top-level process exception - would roll back transaction, but none is present", e);
          }
+
+         for(ConsumerWorker worker : workers)
+         {
+            if(worker.transaction().isPresent() && worker.transaction() != transaction)
+            {
+               worker.transaction().get().rollback();
+            }
+         }
          throw (e);
       }
       finally
@@ -231,15 +316,252 @@ public class StreamedETLExecuteStep extends BaseStreamedETLStep implements Backe
          {
             transaction.get().close();
          }
+
+         for(ConsumerWorker worker : workers)
+         {
+            if(worker.transaction().isPresent() && worker.transaction() != transaction)
+            {
+               worker.transaction().get().close();
+            }
+         }
       }
    }
 
 
 
    /*******************************************************************************
-    **
+    ** get the process summary from the load step, if it's a summary-provider (and
+    ** it gives a non-empty summary) -- else, use the transform step (which is
+    ** always a provider)
+    *******************************************************************************/
+   private ArrayList<ProcessSummaryLineInterface> getProcessSummaryLines(AbstractTransformStep transformStep, AbstractLoadStep loadStep, RunBackendStepOutput runBackendStepOutput)
+   {
+      ArrayList<ProcessSummaryLineInterface> processSummaryLines = null;
+      if(loadStep instanceof ProcessSummaryProviderInterface provider)
+      {
+         processSummaryLines = provider.doGetProcessSummary(runBackendStepOutput, true);
+      }
+
+      if(CollectionUtils.nullSafeIsEmpty(processSummaryLines))
+      {
+         processSummaryLines = transformStep.doGetProcessSummary(runBackendStepOutput, true);
+      }
+
+      return (processSummaryLines);
+   }
+
+
+
+   /*******************************************************************************
+    ** for running with multiple consumers - build an additional worker - e.g., new
+    ** instances of the transform & load steps, pre-ran, and with their own
+    ** transaction (if running with a process-level transaction), and add it to
+    ** the list of workers.
+    *******************************************************************************/
+   private void addConsumerWorker(List<ConsumerWorker> workers, RunBackendStepInput runBackendStepInput, RunBackendStepOutput runBackendStepOutput, boolean doProcessLevelTransaction, Map<String, Serializable> valuesBeforeWorkers) throws QException
+   {
+      AbstractTransformStep transformStep = getTransformStep(runBackendStepInput);
+      AbstractLoadStep      loadStep      = getLoadStep(runBackendStepInput);
+      loadStep.setTransformStep(transformStep);
+
+      transformStep.preRun(runBackendStepInput, runBackendStepOutput);
+      loadStep.preRun(runBackendStepInput, runBackendStepOutput);
+
+      Optional<QBackendTransaction> transaction = Optional.empty();
+      if(doProcessLevelTransaction)
+      {
+         transaction = loadStep.openTransaction(runBackendStepInput);
+         loadStep.setTransaction(transaction);
+         transformStep.setTransaction(transaction);
+      }
+
+      workers.add(new ConsumerWorker(transformStep, loadStep, transaction, buildWorkerStepOutput(valuesBeforeWorkers)));
+   }
+
+
+
+   /*******************************************************************************
+    ** for running with multiple consumers - build a step output for one worker,
+    ** with its own copy of the process values, so that workers don't concurrently
+    ** write to a single (non-thread-safe) values map.
+    *******************************************************************************/
+   private RunBackendStepOutput buildWorkerStepOutput(Map<String, Serializable> valuesBeforeWorkers)
+   {
+      RunBackendStepOutput workerStepOutput = new RunBackendStepOutput();
+      workerStepOutput.setValues(new HashMap<>(valuesBeforeWorkers));
+      return (workerStepOutput);
+   }
+
+
+
+   /*******************************************************************************
+    ** after parallel consumers have all finished - copy any values that the
+    ** workers' steps set or changed back into the process-level step output.
     *******************************************************************************/
-   private int consumeRecordsFromPipe(RecordPipe recordPipe, AbstractTransformStep transformStep, AbstractLoadStep loadStep, RunBackendStepInput runBackendStepInput, RunBackendStepOutput runBackendStepOutput, List<QRecord> loadedRecordList) throws QException
+   private void mergeWorkerValues(RunBackendStepOutput runBackendStepOutput, List<ConsumerWorker> workers, Map<String, Serializable> valuesBeforeWorkers)
+   {
+      for(ConsumerWorker worker : workers)
+      {
+         for(Map.Entry<String, Serializable> entry : worker.stepOutput().getValues().entrySet())
+         {
+            if(!valuesBeforeWorkers.containsKey(entry.getKey()) || !Objects.equals(valuesBeforeWorkers.get(entry.getKey()), entry.getValue()))
+            {
+               runBackendStepOutput.addValue(entry.getKey(), entry.getValue());
+            }
+         }
+      }
+   }
+
+
+
+   /*******************************************************************************
+    ** Run the extract step on one thread, writing into the record pipe, and each
+    ** of the workers on their own threads, consuming pages of records from the pipe.
+    *******************************************************************************/
+   private int runWithParallelConsumers(RunBackendStepInput runBackendStepInput, RunBackendStepOutput runBackendStepOutput, AbstractExtractStep extractStep, RecordPipe recordPipe, List<ConsumerWorker> workers, List<QRecord> loadedRecordList) throws QException
+   {
+      CapturedContext capturedContext = QContext.capture();
+      AtomicBoolean   anyWorkerFailed = new AtomicBoolean(false);
+      int             pageSize        = Math.max(1, recordPipe.getCapacity() / workers.size());
+
+      LOG.debug("Running streamed ETL execute with parallel consumers", logPair("processName", runBackendStepInput.getProcessName()), logPair("consumerThreadCount", workers.size()), logPair("pageSize", pageSize));
+
+      ExecutorService executorService = Executors.newFixedThreadPool(workers.size() + 1, new PrefixedDefaultThreadFactory(this));
+      try
+      {
+         Future<?> extractFuture = executorService.submit(() ->
+         {
+            QContext.init(capturedContext);
+            try
+            {
+               extractStep.run(runBackendStepInput, runBackendStepOutput);
+               return (null);
+            }
+            finally
+            {
+               recordPipe.signalProducerFinished();
+               QContext.clear();
+            }
+         });
+
+         List<Future<Integer>> workerFutures = new ArrayList<>();
+         for(ConsumerWorker worker : workers)
+         {
+            workerFutures.add(executorService.submit(() -> runConsumerWorker(worker, capturedContext, recordPipe, pageSize, anyWorkerFailed, runBackendStepInput, runBackendStepOutput, loadedRecordList)));
+         }
+
+         ///////////////////////////////////////////////////////////////////////////
+         // wait for all workers to finish - if any failed, make sure the extract //
+         // stops, then throw the (first) exception that a worker hit.            //
+         ///////////////////////////////////////////////////////////////////////////
+         int       recordCount    = 0;
+         Throwable firstException = null;
+         for(Future<Integer> workerFuture : workerFutures)
+         {
+            try
+            {
+               recordCount += workerFuture.get();
+            }
+            catch(ExecutionException e)
+            {
+               firstException = firstException == null ? e.getCause() : firstException;
+            }
+         }
+
+         if(firstException != null)
+         {
+            extractFuture.cancel(true);
+            throw (firstException instanceof QException qe ? qe : new QException("Error in streamed ETL consumer", firstException));
+         }
+
+         try
+         {
+            extractFuture.get();
+         }
+         catch(ExecutionException e)
+         {
+            throw (new QException("Job failed with an error", e.getCause()));
+         }
+
+         return (recordCount);
+      }
+      catch(InterruptedException e)
+      {
+         Thread.currentThread().interrupt();
+         throw (new QException("Interrupted while running streamed ETL consumers", e));
+      }
+      finally
+      {
+         executorService.shutdownNow();
+      }
+   }
+
+
+
+   /*******************************************************************************
+    ** Body of a consumer worker thread - repeatedly take a page of records from
+    ** the pipe and run them through the worker's transform & load steps, until
+    ** the producer is finished and the pipe is empty (or another worker fails).
+    *******************************************************************************/
+   private int runConsumerWorker(ConsumerWorker worker, CapturedContext capturedContext, RecordPipe recordPipe, int pageSize, AtomicBoolean anyWorkerFailed, RunBackendStepInput runBackendStepInput, RunBackendStepOutput runBackendStepOutput, List<QRecord> loadedRecordList) throws QException
+   {
+      //////////////////////////////////////////////////////////////////////////////
+      // each worker gets its own context - with its own transaction (if any) and //
+      // its own action stack (as the one from the main thread isn't thread-safe) //
+      //////////////////////////////////////////////////////////////////////////////
+      QContext.init(capturedContext.qInstance(), capturedContext.qSession(), worker.transaction().orElse(null), null);
+
+      try
+      {
+         int recordCount = 0;
+         while(!anyWorkerFailed.get())
+         {
+            recordPipe.awaitAvailableRecords(pageSize, FLUSH_DEADLINE_MS, TimeUnit.MILLISECONDS);
+
+            List<QRecord> records = recordPipe.consumeAvailableRecords(pageSize);
+            if(!records.isEmpty())
+            {
+               recordCount += consumeRecords(records, worker.transformStep(), worker.loadStep(), runBackendStepInput, worker.stepOutput(), runBackendStepOutput, loadedRecordList);
+            }
+            else if(recordPipe.isProducerFinished() && recordPipe.countAvailableRecords() == 0)
+            {
+               break;
+            }
+         }
+
+         return (recordCount);
+      }
+      catch(InterruptedException e)
+      {
+         anyWorkerFailed.set(true);
+         recordPipe.terminate();
+         Thread.currentThread().interrupt();
+         throw (new QException("Interrupted while waiting for records", e));
+      }
+      catch(Exception e)
+      {
+         /////////////////////////////////////////////////////////////////////////////
+         // tell the other workers to stop, and terminate the pipe, so the producer //
+         // doesn't block on it filling up                                          //
+         /////////////////////////////////////////////////////////////////////////////
+         anyWorkerFailed.set(true);
+         recordPipe.terminate();
+         throw (e);
+      }
+      finally
+      {
+         QContext.clear();
+      }
+   }
+
+
+
+   /*******************************************************************************
+    ** run a page of records through the transform & load steps.  workerStepOutput
+    ** is where the steps' values are read from & written to (e.g., the process-level
+    ** output if there's a single consumer, else the consumer worker's own output).
+    *******************************************************************************/
+   private int consumeRecords(List<QRecord> qRecords, AbstractTransformStep transformStep, AbstractLoadStep loadStep, RunBackendStepInput runBackendStepInput, RunBackendStepOutput workerStepOutput, RunBackendStepOutput runBackendStepOutput, List<QRecord> loadedRecordList) throws QException
    {
       /////////////////////////////////////////////////////////////////////////////
       // open a transaction for the whole process, if that's the requested level //
@@ -258,19 +580,14 @@ public class StreamedETLExecuteStep extends BaseStreamedETLStep implements Backe
          Integer totalRows = runBackendStepInput.getValueInteger(StreamedETLWithFrontendProcess.FIELD_RECORD_COUNT);
          if(totalRows != null)
          {
-            runBackendStepInput.getAsyncJobCallback().updateStatus(currentRowCount, totalRows);
+            runBackendStepInput.getAsyncJobCallback().updateStatus(currentRowCount.get(), totalRows);
          }
 
-         ///////////////////////////////////
-         // get the records from the pipe //
-         ///////////////////////////////////
-         List<QRecord> qRecords = recordPipe.consumeAvailableRecords();
-
          ///////////////////////////////////////////////////////////////////////
          // make streamed input & output objects from the run input & outputs //
          ///////////////////////////////////////////////////////////////////////
          StreamedBackendStepInput  streamedBackendStepInput  = new StreamedBackendStepInput(runBackendStepInput, qRecords);
-         StreamedBackendStepOutput streamedBackendStepOutput = new StreamedBackendStepOutput(runBackendStepOutput);
+         StreamedBackendStepOutput streamedBackendStepOutput = new StreamedBackendStepOutput(workerStepOutput);
 
          /////////////////////////////////////////////////////
          // pass the records through the transform function //
@@ -281,17 +598,13 @@ public class StreamedETLExecuteStep extends BaseStreamedETLStep implements Backe
          //////////////////////////////////////////////////////////////////////
          // propagate data from inner-step state to process-level step state //
          //////////////////////////////////////////////////////////////////////
-         if(streamedBackendStepOutput.getProcessMetaDataAdjustment() != null)
-         {
-            runBackendStepOutput.getProcessState().setStepList(streamedBackendStepOutput.getProcessState().getStepList());
-            runBackendStepOutput.getProcessState().setProcessMetaDataAdjustment(streamedBackendStepOutput.getProcessMetaDataAdjustment());
-         }
+         propagateProcessMetaDataAdjustment(streamedBackendStepOutput, runBackendStepOutput);
 
          ////////////////////////////////////////////////
          // pass the records through the load function //
          ////////////////////////////////////////////////
          streamedBackendStepInput = new StreamedBackendStepInput(runBackendStepInput, streamedBackendStepOutput.getRecords());
-         streamedBackendStepOutput = new StreamedBackendStepOutput(runBackendStepOutput);
+         streamedBackendStepOutput = new StreamedBackendStepOutput(workerStepOutput);
 
          loadStep.runOnePage(streamedBackendStepInput, streamedBackendStepOutput);
          List<AuditInput> auditInputListFromLoad = streamedBackendStepOutput.getAuditInputList();
@@ -299,19 +612,18 @@ public class StreamedETLExecuteStep extends BaseStreamedETLStep implements Backe
          //////////////////////////////////////////////////////////////////////
          // propagate data from inner-step state to process-level step state //
          //////////////////////////////////////////////////////////////////////
-         if(streamedBackendStepOutput.getProcessMetaDataAdjustment() != null)
-         {
-            runBackendStepOutput.getProcessState().setStepList(streamedBackendStepOutput.getProcessState().getStepList());
-            runBackendStepOutput.getProcessState().setProcessMetaDataAdjustment(streamedBackendStepOutput.getProcessMetaDataAdjustment());
-         }
+         propagateProcessMetaDataAdjustment(streamedBackendStepOutput, runBackendStepOutput);
 
          ///////////////////////////////////////////////////////
          // copy a small number of records to the output list //
          ///////////////////////////////////////////////////////
-         int i = 0;
-         while(loadedRecordList.size() < PROCESS_OUTPUT_RECORD_LIST_LIMIT && i < streamedBackendStepOutput.getRecords().size())
+         synchronized(loadedRecordList)
          {
-            loadedRecordList.add(streamedBackendStepOutput.getRecords().get(i++));
+            int i = 0;
+            while(loadedRecordList.size() < PROCESS_OUTPUT_RECORD_LIST_LIMIT && i < streamedBackendStepOutput.getRecords().size())
+            {
+               loadedRecordList.add(streamedBackendStepOutput.getRecords().get(i++));
+            }
          }
 
          //////////////////////////////////////////////////////
@@ -326,14 +638,14 @@ public class StreamedETLExecuteStep extends BaseStreamedETLStep implements Backe
                auditAction.execute(auditInput);
             }
          }
-         runBackendStepOutput.setAuditInputList(null);
+         workerStepOutput.setAuditInputList(null);
 
          if(doPageLevelTransaction && transaction.isPresent())
          {
             transaction.get().commit();
          }
 
-         currentRowCount += qRecords.size();
+         currentRowCount.addAndGet(qRecords.size());
          return (qRecords.size());
       }
       catch(Exception e)
@@ -354,4 +666,33 @@ public class StreamedETLExecuteStep extends BaseStreamedETLStep implements Backe
       }
    }
 
+
+
+   /*******************************************************************************
+    ** propagate data from inner-step state to process-level step state.
+    ** synchronized on the process-level output, in case of parallel consumers.
+    *******************************************************************************/
+   private void propagateProcessMetaDataAdjustment(StreamedBackendStepOutput streamedBackendStepOutput, RunBackendStepOutput runBackendStepOutput)
+   {
+      if(streamedBackendStepOutput.getProcessMetaDataAdjustment() != null)
+      {
+         synchronized(runBackendStepOutput)
+         {
+            runBackendStepOutput.getProcessState().setStepList(streamedBackendStepOutput.getProcessState().getStepList());
+            runBackendStepOutput.getProcessState().setProcessMetaDataAdjustment(streamedBackendStepOutput.getProcessMetaDataAdjustment());
+         }
+      }
+   }
+
+
+
+   /*******************************************************************************
+    ** A consumer of records from the pipe - its transform & load steps, its
+    ** transaction (if it has one for the whole process), and the step output
+    ** that its steps write values into.
+    *******************************************************************************/
+   private record ConsumerWorker(AbstractTransformStep transformStep, AbstractLoadStep loadStep, Optional<QBackendTransaction> transaction, RunBackendStepOutput stepOutput)
+   {
+   }
+
 }
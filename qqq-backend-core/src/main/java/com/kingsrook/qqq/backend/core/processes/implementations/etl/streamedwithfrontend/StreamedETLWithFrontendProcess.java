@@ -109,6 +109,13 @@ public class StreamedETLWithFrontendProcess
    public static final String TRANSACTION_LEVEL_PAGE        = "page";
    public static final String TRANSACTION_LEVEL_PROCESS     = "process";
 
+   ///////////////////////////////////////////////////////////////////////////////
+   // number of threads to run the transform & load steps on, in the execute    //
+   // step (default 1).  with more than 1, pages of records are processed in no //
+   // particular order - see StreamedETLExecuteStep for details.                //
+   ///////////////////////////////////////////////////////////////////////////////
+   public static final String FIELD_CONSUMER_THREAD_COUNT = "consumerThreadCount"; // Integer
+
 
 
    /*******************************************************************************
@@ -181,7 +188,8 @@ public class StreamedETLWithFrontendProcess
          .withCode(new QCodeReference(StreamedETLExecuteStep.class))
          .withInputData(new QFunctionInputMetaData()
             .withField(new QFieldMetaData(FIELD_LOAD_CODE, QFieldType.STRING).withDefaultValue(loadStepClass == null ? null : new QCodeReference(loadStepClass)))
-            .withField(new QFieldMetaData(FIELD_LOAD_CODE + "_expectedType", QFieldType.STRING).withDefaultValue(AbstractLoadStep.class.getName())))
+            .withField(new QFieldMetaData(FIELD_LOAD_CODE + "_expectedType", QFieldType.STRING).withDefaultValue(AbstractLoadStep.class.getName()))
+            .withField(new QFieldMetaData(FIELD_CONSUMER_THREAD_COUNT, QFieldType.INTEGER).withDefaultValue(defaultFieldValues.get(FIELD_CONSUMER_THREAD_COUNT))))
          .withOutputMetaData(new QFunctionOutputMetaData()
             .withField(new QFieldMetaData(FIELD_PROCESS_SUMMARY, QFieldType.STRING))
          );
@@ -357,6 +365,19 @@ public class StreamedETLWithFrontendProcess
 
 
 
+      /*******************************************************************************
+       ** Fluent setter for the number of threads to run transform & load on, in
+       ** the execute step.
+       **
+       *******************************************************************************/
+      public Builder withConsumerThreadCount(Integer consumerThreadCount)
+      {
+         setInputFieldDefaultValue(FIELD_CONSUMER_THREAD_COUNT, consumerThreadCount);
+         return (this);
+      }
+
+
+
       /*******************************************************************************
        ** Fluent setter for doFullValidation
        **
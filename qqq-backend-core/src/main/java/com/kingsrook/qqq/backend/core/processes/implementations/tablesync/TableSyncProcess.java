@@ -66,7 +66,13 @@ public class TableSyncProcess
          Collections.emptyMap()))
          .withFields(List.of(
             new QFieldMetaData(FIELD_SOURCE_TABLE_KEY_FIELD, QFieldType.STRING),
-            new QFieldMetaData(FIELD_DESTINATION_TABLE_FOREIGN_KEY, QFieldType.STRING)
+            new QFieldMetaData(FIELD_DESTINATION_TABLE_FOREIGN_KEY, QFieldType.STRING),
+
+            //////////////////////////////////////////////////////////////////////
+            // the transform step looks up existing destination records - so    //
+            // the records it builds as inserts can be upserted, where possible //
+            //////////////////////////////////////////////////////////////////////
+            new QFieldMetaData(LoadViaInsertOrUpdateStep.FIELD_UPSERT_RECORDS_TO_INSERT, QFieldType.BOOLEAN).withDefaultValue(true)
          ))
          .withPreviewMessage(StreamedETLWithFrontendProcess.DEFAULT_PREVIEW_MESSAGE_FOR_INSERT_OR_UPDATE);
    }
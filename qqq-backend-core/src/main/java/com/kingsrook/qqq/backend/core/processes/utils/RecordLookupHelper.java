@@ -119,6 +119,31 @@ public class RecordLookupHelper implements Serializable
 
 
 
+   /*******************************************************************************
+    ** Optimization - to pre-load the records for many unique keys with a batch get
+    ** (see GetAction.executeBatch), so that subsequent calls to getRecordByUniqueKey
+    ** for them don't each do a get.  Keys whose records aren't found are cached
+    ** as null (just as getRecordByUniqueKey would).
+    *******************************************************************************/
+   public void preloadRecordsByUniqueKeys(String tableName, List<Map<String, Serializable>> uniqueKeys) throws QException
+   {
+      if(CollectionUtils.nullSafeIsEmpty(uniqueKeys))
+      {
+         return;
+      }
+
+      String                                  mapKey    = tableName + "." + uniqueKeys.get(0).keySet().stream().sorted().collect(Collectors.joining(","));
+      Map<Map<String, Serializable>, QRecord> recordMap = uniqueKeyMaps.computeIfAbsent(mapKey, (k) -> useSynchronizedCollections ? Collections.synchronizedMap(new HashMap<>()) : new HashMap<>());
+
+      List<QRecord> records = new GetAction().executeForRecords(new GetInput(tableName).withUniqueKeys(uniqueKeys));
+      for(int i = 0; i < uniqueKeys.size(); i++)
+      {
+         recordMap.put(uniqueKeys.get(i), records.get(i));
+      }
+   }
+
+
+
    /*******************************************************************************
     ** Fetch a record from a table by a key field (doesn't have to be its primary key).
     *******************************************************************************/
@@ -0,0 +1,422 @@
+/*
+ * QQQ - Low-code Application Framework for Engineers.
+ * Copyright (C) 2021-2024.  Kingsrook, LLC
+ * 651 N Broad St Ste 205 # 6917 | Middletown DE 19709 | United States
+ * contact@kingsrook.com
+ * https://github.com/Kingsrook/
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+
+package com.kingsrook.qqq.backend.core.state;
+
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.Serializable;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import com.kingsrook.qqq.backend.core.model.data.QRecord;
+import com.kingsrook.qqq.backend.core.utils.CollectionUtils;
+
+
+/*******************************************************************************
+ ** Compact binary encoding for lists of QRecords - as are commonly found in
+ ** process state, between steps.  Field names are written once per list (as a
+ ** dictionary), and values are written with a one-byte type tag instead of
+ ** java serialization's per-object class descriptors.
+ **
+ ** Only "plain" records can be encoded:  ones whose values are all of the types
+ ** listed below, and that have no errors, warnings, backend details or
+ ** associated records - see canEncode.  Callers should fall back to java
+ ** serialization for anything else - including lists with any subclass of
+ ** QRecord in them.
+ *******************************************************************************/
+class CompactRecordListEncoding
+{
+   private static final byte TYPE_NULL        = 0;
+   private static final byte TYPE_STRING      = 1;
+   private static final byte TYPE_INTEGER     = 2;
+   private static final byte TYPE_LONG        = 3;
+   private static final byte TYPE_BIG_DECIMAL = 4;
+   private static final byte TYPE_BOOLEAN     = 5;
+   private static final byte TYPE_LOCAL_DATE  = 6;
+   private static final byte TYPE_LOCAL_TIME  = 7;
+   private static final byte TYPE_INSTANT     = 8;
+   private static final byte TYPE_BYTE_ARRAY  = 9;
+
+
+
+   /*******************************************************************************
+    ** Private constructor - static methods only.
+    *******************************************************************************/
+   private CompactRecordListEncoding()
+   {
+   }
+
+
+
+   /*******************************************************************************
+    ** Check if every record in a list can be encoded by this class.
+    *******************************************************************************/
+   static boolean canEncode(List<?> list)
+   {
+      for(Object object : list)
+      {
+         ////////////////////////////////////////////////////////////////////////
+         // exactly QRecord - as a subclass may carry state that isn't encoded //
+         // (and would decode as a plain QRecord).                             //
+         ////////////////////////////////////////////////////////////////////////
+         if(object == null || object.getClass() != QRecord.class)
+         {
+            return (false);
+         }
+
+         QRecord record = (QRecord) object;
+
+         if(CollectionUtils.nullSafeHasContents(record.getErrors())
+            || CollectionUtils.nullSafeHasContents(record.getWarnings())
+            || CollectionUtils.nullSafeHasContents(record.getBackendDetails())
+            || CollectionUtils.nullSafeHasContents(record.getAssociatedRecords()))
+         {
+            return (false);
+         }
+
+         for(Serializable value : record.getValues().values())
+         {
+            if(getTypeTag(value) < 0)
+            {
+               return (false);
+            }
+         }
+      }
+
+      return (true);
+   }
+
+
+
+   /*******************************************************************************
+    ** Write a list of records (which must have passed canEncode).
+    *******************************************************************************/
+   static void encode(List<QRecord> records, DataOutputStream out) throws IOException
+   {
+      ///////////////////////////////////////////////////////////////////
+      // build & write the dictionary of field names used in the list. //
+      ///////////////////////////////////////////////////////////////////
+      Map<String, Integer> fieldIndexes = new LinkedHashMap<>();
+      for(QRecord record : records)
+      {
+         record.getValues().keySet().forEach(name -> fieldIndexes.putIfAbsent(name, fieldIndexes.size()));
+         if(record.getDisplayValues() != null)
+         {
+            record.getDisplayValues().keySet().forEach(name -> fieldIndexes.putIfAbsent(name, fieldIndexes.size()));
+         }
+      }
+
+      out.writeInt(fieldIndexes.size());
+      for(String fieldName : fieldIndexes.keySet())
+      {
+         out.writeUTF(fieldName);
+      }
+
+      ////////////////////////////////////////////////////////////////////
+      // table names are usually all the same - so dictionary them too. //
+      ////////////////////////////////////////////////////////////////////
+      Map<String, Integer> tableNameIndexes = new HashMap<>();
+
+      out.writeInt(records.size());
+      for(QRecord record : records)
+      {
+         String tableName = record.getTableName();
+         if(tableName == null)
+         {
+            out.writeInt(-1);
+         }
+         else if(tableNameIndexes.containsKey(tableName))
+         {
+            out.writeInt(tableNameIndexes.get(tableName));
+         }
+         else
+         {
+            out.writeInt(-2);
+            out.writeUTF(tableName);
+            tableNameIndexes.put(tableName, tableNameIndexes.size());
+         }
+
+         writeNullableString(out, record.getRecordLabel());
+
+         out.writeInt(record.getValues().size());
+         for(Map.Entry<String, Serializable> entry : record.getValues().entrySet())
+         {
+            out.writeInt(fieldIndexes.get(entry.getKey()));
+            writeValue(out, entry.getValue());
+         }
+
+         Map<String, String> displayValues = record.getDisplayValues() == null ? Map.of() : record.getDisplayValues();
+         out.writeInt(displayValues.size());
+         for(Map.Entry<String, String> entry : displayValues.entrySet())
+         {
+            out.writeInt(fieldIndexes.get(entry.getKey()));
+            writeNullableString(out, entry.getValue());
+         }
+      }
+   }
+
+
+
+   /*******************************************************************************
+    ** Read a list of records written by encode.
+    *******************************************************************************/
+   static List<QRecord> decode(DataInputStream in) throws IOException
+   {
+      int      fieldCount = in.readInt();
+      String[] fieldNames = new String[fieldCount];
+      for(int i = 0; i < fieldCount; i++)
+      {
+         fieldNames[i] = in.readUTF();
+      }
+
+      List<String> tableNames  = new ArrayList<>();
+      int          recordCount = in.readInt();
+      List<QRecord> records    = new ArrayList<>(recordCount);
+      for(int i = 0; i < recordCount; i++)
+      {
+         QRecord record = new QRecord();
+
+         int tableNameIndex = in.readInt();
+         if(tableNameIndex == -2)
+         {
+            tableNames.add(in.readUTF());
+            record.setTableName(tableNames.get(tableNames.size() - 1));
+         }
+         else if(tableNameIndex >= 0)
+         {
+            record.setTableName(tableNames.get(tableNameIndex));
+         }
+
+         record.setRecordLabel(readNullableString(in));
+
+         int valueCount = in.readInt();
+         for(int j = 0; j < valueCount; j++)
+         {
+            String fieldName = fieldNames[in.readInt()];
+            record.setValue(fieldName, readValue(in));
+         }
+
+         int displayValueCount = in.readInt();
+         for(int j = 0; j < displayValueCount; j++)
+         {
+            String fieldName = fieldNames[in.readInt()];
+            record.setDisplayValue(fieldName, readNullableString(in));
+         }
+
+         records.add(record);
+      }
+
+      return (records);
+   }
+
+
+
+   /*******************************************************************************
+    ** Get the type tag for a value - or -1 if it isn't a supported type.
+    *******************************************************************************/
+   private static byte getTypeTag(Serializable value)
+   {
+      if(value == null)
+      {
+         return (TYPE_NULL);
+      }
+
+      if(value instanceof String)
+      {
+         return (TYPE_STRING);
+      }
+      else if(value instanceof Integer)
+      {
+         return (TYPE_INTEGER);
+      }
+      else if(value instanceof Long)
+      {
+         return (TYPE_LONG);
+      }
+      else if(value instanceof BigDecimal)
+      {
+         return (TYPE_BIG_DECIMAL);
+      }
+      else if(value instanceof Boolean)
+      {
+         return (TYPE_BOOLEAN);
+      }
+      else if(value instanceof LocalDate)
+      {
+         return (TYPE_LOCAL_DATE);
+      }
+      else if(value instanceof LocalTime)
+      {
+         return (TYPE_LOCAL_TIME);
+      }
+      else if(value instanceof Instant)
+      {
+         return (TYPE_INSTANT);
+      }
+      else if(value instanceof byte[])
+      {
+         return (TYPE_BYTE_ARRAY);
+      }
+
+      return (-1);
+   }
+
+
+
+   /*******************************************************************************
+    **
+    *******************************************************************************/
+   private static void writeValue(DataOutputStream out, Serializable value) throws IOException
+   {
+      byte typeTag = getTypeTag(value);
+      out.writeByte(typeTag);
+      switch(typeTag)
+      {
+         case TYPE_NULL ->
+         {
+         }
+         case TYPE_STRING -> writeLongString(out, (String) value);
+         case TYPE_INTEGER -> out.writeInt((Integer) value);
+         case TYPE_LONG -> out.writeLong((Long) value);
+         case TYPE_BIG_DECIMAL ->
+         {
+            BigDecimal bigDecimal = (BigDecimal) value;
+            byte[]     unscaled   = bigDecimal.unscaledValue().toByteArray();
+            out.writeInt(bigDecimal.scale());
+            out.writeInt(unscaled.length);
+            out.write(unscaled);
+         }
+         case TYPE_BOOLEAN -> out.writeBoolean((Boolean) value);
+         case TYPE_LOCAL_DATE -> out.writeLong(((LocalDate) value).toEpochDay());
+         case TYPE_LOCAL_TIME -> out.writeLong(((LocalTime) value).toNanoOfDay());
+         case TYPE_INSTANT ->
+         {
+            Instant instant = (Instant) value;
+            out.writeLong(instant.getEpochSecond());
+            out.writeInt(instant.getNano());
+         }
+         case TYPE_BYTE_ARRAY ->
+         {
+            byte[] bytes = (byte[]) value;
+            out.writeInt(bytes.length);
+            out.write(bytes);
+         }
+         default -> throw (new IOException("Unsupported value type: " + value.getClass().getName()));
+      }
+   }
+
+
+
+   /*******************************************************************************
+    **
+    *******************************************************************************/
+   private static Serializable readValue(DataInputStream in) throws IOException
+   {
+      byte typeTag = in.readByte();
+      return switch(typeTag)
+      {
+         case TYPE_NULL -> null;
+         case TYPE_STRING -> readLongString(in);
+         case TYPE_INTEGER -> in.readInt();
+         case TYPE_LONG -> in.readLong();
+         case TYPE_BIG_DECIMAL ->
+         {
+            int    scale    = in.readInt();
+            byte[] unscaled = new byte[in.readInt()];
+            in.readFully(unscaled);
+            yield (new BigDecimal(new BigInteger(unscaled), scale));
+         }
+         case TYPE_BOOLEAN -> in.readBoolean();
+         case TYPE_LOCAL_DATE -> LocalDate.ofEpochDay(in.readLong());
+         case TYPE_LOCAL_TIME -> LocalTime.ofNanoOfDay(in.readLong());
+         case TYPE_INSTANT -> Instant.ofEpochSecond(in.readLong(), in.readInt());
+         case TYPE_BYTE_ARRAY ->
+         {
+            byte[] bytes = new byte[in.readInt()];
+            in.readFully(bytes);
+            yield (bytes);
+         }
+         default -> throw (new IOException("Unrecognized value type tag: " + typeTag));
+      };
+   }
+
+
+
+   /*******************************************************************************
+    ** writeUTF is limited to 64K bytes - so values (which may be long, e.g., text
+    ** blobs) are written with an int length instead.
+    *******************************************************************************/
+   private static void writeLongString(DataOutputStream out, String value) throws IOException
+   {
+      byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+      out.writeInt(bytes.length);
+      out.write(bytes);
+   }
+
+
+
+   /*******************************************************************************
+    **
+    *******************************************************************************/
+   private static String readLongString(DataInputStream in) throws IOException
+   {
+      byte[] bytes = new byte[in.readInt()];
+      in.readFully(bytes);
+      return (new String(bytes, StandardCharsets.UTF_8));
+   }
+
+
+
+   /*******************************************************************************
+    **
+    *******************************************************************************/
+   private static void writeNullableString(DataOutputStream out, String value) throws IOException
+   {
+      out.writeBoolean(value != null);
+      if(value != null)
+      {
+         writeLongString(out, value);
+      }
+   }
+
+
+
+   /*******************************************************************************
+    **
+    *******************************************************************************/
+   private static String readNullableString(DataInputStream in) throws IOException
+   {
+      return (in.readBoolean() ? readLongString(in) : null);
+   }
+
+}
@@ -54,6 +54,16 @@ public interface StateProviderInterface
     *******************************************************************************/
    <T extends Serializable> Optional<T> get(Class<? extends T> type, AbstractStateKey key);
 
+   /*******************************************************************************
+    ** Get a block of data, under a key, from the state store - bypassing any
+    ** cache the implementation may keep in front of it (e.g., to see a value that
+    ** was just written by another server).
+    *******************************************************************************/
+   default <T extends Serializable> Optional<T> getUncached(Class<? extends T> type, AbstractStateKey key)
+   {
+      return (get(type, key));
+   }
+
    /*******************************************************************************
     ** Remove a block of data, under a key, from the state store.
     *******************************************************************************/
@@ -0,0 +1,580 @@
+/*
+ * QQQ - Low-code Application Framework for Engineers.
+ * Copyright (C) 2021-2024.  Kingsrook, LLC
+ * 651 N Broad St Ste 205 # 6917 | Middletown DE 19709 | United States
+ * contact@kingsrook.com
+ * https://github.com/Kingsrook/
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+
+package com.kingsrook.qqq.backend.core.state;
+
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.OutputStream;
+import java.io.Serializable;
+import java.lang.ref.WeakReference;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Stack;
+import java.util.WeakHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+import com.kingsrook.qqq.backend.core.actions.tables.DeleteAction;
+import com.kingsrook.qqq.backend.core.actions.tables.GetAction;
+import com.kingsrook.qqq.backend.core.actions.tables.InsertAction;
+import com.kingsrook.qqq.backend.core.actions.tables.QueryAction;
+import com.kingsrook.qqq.backend.core.actions.tables.UpdateAction;
+import com.kingsrook.qqq.backend.core.context.CapturedContext;
+import com.kingsrook.qqq.backend.core.context.QContext;
+import com.kingsrook.qqq.backend.core.exceptions.QException;
+import com.kingsrook.qqq.backend.core.logging.QLogger;
+import com.kingsrook.qqq.backend.core.model.actions.tables.delete.DeleteInput;
+import com.kingsrook.qqq.backend.core.model.actions.tables.get.GetInput;
+import com.kingsrook.qqq.backend.core.model.actions.tables.insert.InsertInput;
+import com.kingsrook.qqq.backend.core.model.actions.tables.insert.InsertOutput;
+import com.kingsrook.qqq.backend.core.model.actions.tables.query.QCriteriaOperator;
+import com.kingsrook.qqq.backend.core.model.actions.tables.query.QQueryFilter;
+import com.kingsrook.qqq.backend.core.model.actions.tables.query.QueryInput;
+import com.kingsrook.qqq.backend.core.model.actions.tables.update.UpdateInput;
+import com.kingsrook.qqq.backend.core.model.actions.tables.update.UpdateOutput;
+import com.kingsrook.qqq.backend.core.model.data.QRecord;
+import com.kingsrook.qqq.backend.core.model.metadata.QInstance;
+import com.kingsrook.qqq.backend.core.model.metadata.audits.AuditLevel;
+import com.kingsrook.qqq.backend.core.model.metadata.audits.QAuditRules;
+import com.kingsrook.qqq.backend.core.model.metadata.fields.QFieldMetaData;
+import com.kingsrook.qqq.backend.core.model.metadata.fields.QFieldType;
+import com.kingsrook.qqq.backend.core.model.metadata.state.TableBasedStateProviderMetaData;
+import com.kingsrook.qqq.backend.core.model.metadata.tables.QTableMetaData;
+import com.kingsrook.qqq.backend.core.model.session.QSystemUserSession;
+import com.kingsrook.qqq.backend.core.utils.CollectionUtils;
+import com.kingsrook.qqq.backend.core.utils.PrefixedDefaultThreadFactory;
+import com.kingsrook.qqq.backend.core.utils.lambdas.UnsafeSupplier;
+import com.kingsrook.qqq.backend.core.utils.memoization.Memoization;
+import static com.kingsrook.qqq.backend.core.logging.LogUtils.logPair;
+
+
+/*******************************************************************************
+ ** State provider that stores state in a table (e.g., in an RDBMS backend), so
+ ** that state written by one server can be read by any other server in the same
+ ** cluster (e.g., a process whose steps are handled by different nodes behind a
+ ** load balancer).
+ **
+ ** Values are java-serialized (gzipped, if they're large) into a BLOB field.
+ ** Each provider keeps a small near-cache of values it has read or written, for
+ ** up to nearCacheMillis - so a node may see a value that is stale by up to that
+ ** long, if another node writes the same key.  Entries older than cleanAfterHours
+ ** are deleted periodically, in batches of cleanBatchSize records.
+ **
+ ** Turned on by putting a TableBasedStateProviderMetaData in the QInstance, and
+ ** defining its table (see defineStateTable).
+ *******************************************************************************/
+public class TableBasedStateProvider implements StateProviderInterface
+{
+   private static final QLogger LOG = QLogger.getLogger(TableBasedStateProvider.class);
+
+   public static final String FIELD_ID         = "id";
+   public static final String FIELD_START_TIME = "startTime";
+   public static final String FIELD_DATA       = "data";
+
+   private static final Map<QInstance, TableBasedStateProvider> instances = Collections.synchronizedMap(new WeakHashMap<>());
+
+   /////////////////////////////////////////////////////////////////////////////
+   // first byte of every stored data value - tells how the rest was written. //
+   /////////////////////////////////////////////////////////////////////////////
+   private static final byte FORMAT_SERIALIZED         = 0;
+   private static final byte FORMAT_GZIPPED_SERIALIZED = 1;
+   private static final int  GZIP_THRESHOLD_BYTES      = 1024;
+
+   private final WeakReference<QInstance>        qInstanceReference;
+   private final TableBasedStateProviderMetaData metaData;
+   private final Memoization<String, Serializable> nearCache;
+
+
+
+   /*******************************************************************************
+    ** Get the provider for a QInstance (which must have TableBasedStateProviderMetaData).
+    *******************************************************************************/
+   public static TableBasedStateProvider getInstance(QInstance qInstance)
+   {
+      synchronized(instances)
+      {
+         return (instances.computeIfAbsent(qInstance, TableBasedStateProvider::new));
+      }
+   }
+
+
+
+   /*******************************************************************************
+    ** Private constructor - use getInstance.
+    *******************************************************************************/
+   private TableBasedStateProvider(QInstance qInstance)
+   {
+      this.qInstanceReference = new WeakReference<>(qInstance);
+      this.metaData = qInstance.getTableBasedStateProviderMetaData();
+      if(this.metaData == null)
+      {
+         throw (new IllegalStateException("QInstance does not have a TableBasedStateProviderMetaData"));
+      }
+
+      this.nearCache = new Memoization<String, Serializable>()
+         .withTimeout(Duration.ofMillis(metaData.getNearCacheMillis()))
+         .withMaxSize(metaData.getNearCacheMaxSize())
+         .withMayStoreNullValues(false);
+
+      if(metaData.getCleanIntervalMinutes() != null && metaData.getCleanIntervalMinutes() > 0)
+      {
+         ///////////////////////////////////////////////////////////
+         // Start a single thread executor to handle the cleaning //
+         ///////////////////////////////////////////////////////////
+         ScheduledExecutorService executorService = Executors.newSingleThreadScheduledExecutor(new PrefixedDefaultThreadFactory(this));
+         executorService.scheduleAtFixedRate(new TableBasedStateProviderCleanJob(this, executorService), metaData.getCleanIntervalMinutes(), metaData.getCleanIntervalMinutes(), TimeUnit.MINUTES);
+      }
+   }
+
+
+
+   /*******************************************************************************
+    ** Define the table used to store state, for a given backend.  Its name comes
+    ** from the TableBasedStateProviderMetaData (or its default).
+    *******************************************************************************/
+   public static QTableMetaData defineStateTable(String tableName, String backendName, Consumer<QTableMetaData> backendDetailEnricher)
+   {
+      QTableMetaData table = new QTableMetaData()
+         .withName(tableName)
+         .withBackendName(backendName)
+         .withAuditRules(new QAuditRules().withAuditLevel(AuditLevel.NONE))
+         .withPrimaryKeyField(FIELD_ID)
+         .withField(new QFieldMetaData(FIELD_ID, QFieldType.STRING).withMaxLength(100))
+         .withField(new QFieldMetaData(FIELD_START_TIME, QFieldType.DATE_TIME))
+         .withField(new QFieldMetaData(FIELD_DATA, QFieldType.BLOB).withIsHeavy(true));
+
+      if(backendDetailEnricher != null)
+      {
+         backendDetailEnricher.accept(table);
+      }
+
+      return (table);
+   }
+
+
+
+   /*******************************************************************************
+    ** Runnable that gets scheduled to periodically clean the table - shuts its
+    ** executor down once the QInstance it was cleaning for has gone away.
+    *******************************************************************************/
+   private static class TableBasedStateProviderCleanJob implements Runnable
+   {
+      private final TableBasedStateProvider  provider;
+      private final ScheduledExecutorService executorService;
+
+
+
+      /*******************************************************************************
+       ** Constructor
+       *******************************************************************************/
+      private TableBasedStateProviderCleanJob(TableBasedStateProvider provider, ScheduledExecutorService executorService)
+      {
+         this.provider = provider;
+         this.executorService = executorService;
+      }
+
+
+
+      /*******************************************************************************
+       ** run
+       *******************************************************************************/
+      @Override
+      public void run()
+      {
+         if(provider.qInstanceReference.get() == null)
+         {
+            executorService.shutdown();
+            return;
+         }
+
+         try
+         {
+            Instant cleanTime = Instant.now().minus(provider.metaData.getCleanAfterHours(), ChronoUnit.HOURS);
+            provider.clean(cleanTime);
+         }
+         catch(Exception e)
+         {
+            LOG.warn("Error cleaning TableBasedStateProvider entries.", e);
+         }
+      }
+   }
+
+
+
+   /*******************************************************************************
+    ** Put a block of data, under a key, into the state store.
+    *******************************************************************************/
+   @Override
+   public <T extends Serializable> void put(AbstractStateKey key, T data)
+   {
+      String id    = getStateId(key);
+      byte[] bytes = serialize(data);
+
+      runInContext("Error storing state", () ->
+      {
+         QRecord record = new QRecord()
+            .withValue(FIELD_ID, id)
+            .withValue(FIELD_START_TIME, key.getStartTime())
+            .withValue(FIELD_DATA, bytes);
+
+         ////////////////////////////////////////////////////////////////////////////////
+         // store as an upsert:  if we've seen this key recently, it exists, so just   //
+         // update it.  else try to insert it - and if the insert fails (e.g., another //
+         // thread or node inserted the same key between our check and our insert,     //
+         // giving a duplicate-key error - reported either as a record error or as an  //
+         // exception, depending on the backend), then fall back to an update.         //
+         ////////////////////////////////////////////////////////////////////////////////
+         boolean exists = nearCache.getMemoizedResult(id).isPresent()
+            || new GetAction().executeForRecord(new GetInput(metaData.getTableName()).withPrimaryKey(id)) != null;
+
+         if(!exists)
+         {
+            try
+            {
+               InsertOutput  insertOutput    = new InsertAction().execute(new InsertInput(metaData.getTableName()).withRecord(record));
+               List<QRecord> insertedRecords = insertOutput.getRecords();
+               exists = CollectionUtils.nullSafeHasContents(insertedRecords) && CollectionUtils.nullSafeHasContents(insertedRecords.get(0).getErrors());
+            }
+            catch(QException e)
+            {
+               LOG.debug("Insert of state failed - will try as an update", e, logPair("id", id));
+               exists = true;
+            }
+         }
+
+         if(exists)
+         {
+            UpdateOutput  updateOutput   = new UpdateAction().execute(new UpdateInput(metaData.getTableName()).withRecord(record));
+            List<QRecord> updatedRecords = updateOutput.getRecords();
+            if(CollectionUtils.nullSafeHasContents(updatedRecords) && CollectionUtils.nullSafeHasContents(updatedRecords.get(0).getErrors()))
+            {
+               throw (new QException("Error updating state: " + updatedRecords.get(0).getErrors()));
+            }
+         }
+
+         return (null);
+      });
+
+      nearCache.storeResult(id, data);
+   }
+
+
+
+   /*******************************************************************************
+    ** Get a block of data, under a key, from the state store.
+    *******************************************************************************/
+   @Override
+   public <T extends Serializable> Optional<T> get(Class<? extends T> type, AbstractStateKey key)
+   {
+      String id = getStateId(key);
+
+      Optional<Serializable> value = nearCache.getResultThrowing(id, this::readFromTable);
+      return (castValue(type, value));
+   }
+
+
+
+   /*******************************************************************************
+    ** Get a block of data, under a key, from the state store - reading it from
+    ** the table, even if it's in the near-cache (so a value written by another
+    ** node is seen right away).  The near-cache is refreshed with what's read.
+    *******************************************************************************/
+   @Override
+   public <T extends Serializable> Optional<T> getUncached(Class<? extends T> type, AbstractStateKey key)
+   {
+      String id = getStateId(key);
+
+      Serializable value = readFromTable(id);
+      if(value == null)
+      {
+         nearCache.clearKey(id);
+      }
+      else
+      {
+         nearCache.storeResult(id, value);
+      }
+
+      return (castValue(type, Optional.ofNullable(value)));
+   }
+
+
+
+   /*******************************************************************************
+    ** Read & deserialize the value stored under an id - or null if there isn't one.
+    *******************************************************************************/
+   private Serializable readFromTable(String id)
+   {
+      return (runInContext("Error retrieving state", () ->
+      {
+         QRecord record = new GetAction().executeForRecord(new GetInput(metaData.getTableName()).withPrimaryKey(id).withShouldFetchHeavyFields(true));
+         return (record == null ? null : deserialize(record.getValueByteArray(FIELD_DATA)));
+      }));
+   }
+
+
+
+   /*******************************************************************************
+    **
+    *******************************************************************************/
+   private static <T extends Serializable> Optional<T> castValue(Class<? extends T> type, Optional<Serializable> value)
+   {
+      try
+      {
+         return (value.map(type::cast));
+      }
+      catch(ClassCastException cce)
+      {
+         throw new RuntimeException("Stored state value could not be cast to desired type", cce);
+      }
+   }
+
+
+
+   /*******************************************************************************
+    ** Remove a block of data, under a key, from the state store.
+    *******************************************************************************/
+   @Override
+   public void remove(AbstractStateKey key)
+   {
+      String id = getStateId(key);
+
+      runInContext("Error removing state", () ->
+         new DeleteAction().execute(new DeleteInput(metaData.getTableName()).withPrimaryKey(id)));
+
+      nearCache.clearKey(id);
+   }
+
+
+
+   /*******************************************************************************
+    ** Get the current status
+    *******************************************************************************/
+   @Override
+   public String status()
+   {
+      return ("TableBasedStateProvider table: " + metaData.getTableName()
+         + ", near-cache size: " + nearCache.getSize()
+         + ", hits: " + nearCache.getHitCount()
+         + ", misses: " + nearCache.getMissCount());
+   }
+
+
+
+   /*******************************************************************************
+    ** Clean entries that started before the given Instant - deleting them in
+    ** batches, so a big backlog doesn't turn into one enormous delete.
+    *******************************************************************************/
+   @Override
+   public void clean(Instant cleanBeforeInstant)
+   {
+      long jobStartTime  = System.currentTimeMillis();
+      int  amountCleaned = 0;
+      LOG.info("Starting clean for TableBasedStateProvider.", logPair("tableName", metaData.getTableName()), logPair("cleanBeforeInstant", cleanBeforeInstant));
+
+      int batchSize = metaData.getCleanBatchSize();
+      while(true)
+      {
+         List<Serializable> ids = runInContext("Error cleaning state", () ->
+         {
+            QueryInput queryInput = new QueryInput(metaData.getTableName());
+            queryInput.setFilter(new QQueryFilter()
+               .withCriteria(FIELD_START_TIME, QCriteriaOperator.LESS_THAN, cleanBeforeInstant)
+               .withLimit(batchSize));
+
+            List<Serializable> batchIds = new QueryAction().execute(queryInput).getRecords().stream()
+               .map(r -> r.getValue(FIELD_ID))
+               .toList();
+
+            if(!batchIds.isEmpty())
+            {
+               new DeleteAction().execute(new DeleteInput(metaData.getTableName()).withPrimaryKeys(batchIds));
+            }
+
+            return (batchIds);
+         });
+
+         amountCleaned += ids.size();
+         if(ids.size() < batchSize)
+         {
+            break;
+         }
+      }
+
+      //////////////////////////////////////////////////////////////////////
+      // anything we just deleted may be in the near-cache - so clear it. //
+      //////////////////////////////////////////////////////////////////////
+      if(amountCleaned > 0)
+      {
+         nearCache.clear();
+      }
+
+      long endTime = System.currentTimeMillis();
+      LOG.info("Completed clean for TableBasedStateProvider.", logPair("tableName", metaData.getTableName()), logPair("amountCleaned", amountCleaned), logPair("runTimeMillis", (endTime - jobStartTime)));
+   }
+
+
+
+   /*******************************************************************************
+    ** Build the primary key for a state key.  UUIDAndTypeStateKey's unique
+    ** identifier is just its uuid (which may be shared by different state types),
+    ** so include its type.
+    *******************************************************************************/
+   static String getStateId(AbstractStateKey key)
+   {
+      if(key instanceof UUIDAndTypeStateKey uuidAndTypeStateKey)
+      {
+         return (uuidAndTypeStateKey.getStateType() + ":" + uuidAndTypeStateKey.getUuid());
+      }
+
+      return (key.getClass().getSimpleName() + ":" + key.getUniqueIdentifier());
+   }
+
+
+
+   /*******************************************************************************
+    ** Serialize a value - gzipping it if it's big enough to be worth it.
+    *******************************************************************************/
+   static byte[] serialize(Serializable data)
+   {
+      try
+      {
+         ByteArrayOutputStream raw = new ByteArrayOutputStream();
+         writeObject(raw, data);
+         if(raw.size() < GZIP_THRESHOLD_BYTES)
+         {
+            return (prefix(FORMAT_SERIALIZED, raw));
+         }
+
+         ByteArrayOutputStream gzipped = new ByteArrayOutputStream();
+         try(GZIPOutputStream gzipOutputStream = new GZIPOutputStream(gzipped))
+         {
+            raw.writeTo(gzipOutputStream);
+         }
+         return (prefix(FORMAT_GZIPPED_SERIALIZED, gzipped));
+      }
+      catch(IOException e)
+      {
+         throw (new RuntimeException("Error serializing state value", e));
+      }
+   }
+
+
+
+   /*******************************************************************************
+    ** Deserialize a value written by serialize.
+    *******************************************************************************/
+   static Serializable deserialize(byte[] bytes)
+   {
+      if(bytes == null || bytes.length == 0)
+      {
+         return (null);
+      }
+
+      try
+      {
+         ByteArrayInputStream inputStream = new ByteArrayInputStream(bytes, 1, bytes.length - 1);
+         try(ObjectInputStream objectInputStream = new ObjectInputStream(bytes[0] == FORMAT_GZIPPED_SERIALIZED ? new GZIPInputStream(inputStream) : inputStream))
+         {
+            return ((Serializable) objectInputStream.readObject());
+         }
+      }
+      catch(IOException | ClassNotFoundException e)
+      {
+         throw (new RuntimeException("Error deserializing state value", e));
+      }
+   }
+
+
+
+   /*******************************************************************************
+    **
+    *******************************************************************************/
+   private static void writeObject(OutputStream outputStream, Serializable data) throws IOException
+   {
+      try(ObjectOutputStream objectOutputStream = new ObjectOutputStream(outputStream))
+      {
+         objectOutputStream.writeObject(data);
+      }
+   }
+
+
+
+   /*******************************************************************************
+    **
+    *******************************************************************************/
+   private static byte[] prefix(byte format, ByteArrayOutputStream body)
+   {
+      byte[] bytes = new byte[body.size() + 1];
+      bytes[0] = format;
+      System.arraycopy(body.toByteArray(), 0, bytes, 1, body.size());
+      return (bytes);
+   }
+
+
+
+   /*******************************************************************************
+    ** Run table actions as the system user, against this provider's QInstance -
+    ** outside of any transaction the calling thread may have open - restoring
+    ** the caller's context afterward.
+    *******************************************************************************/
+   private <T> T runInContext(String errorMessage, UnsafeSupplier<T, QException> supplier)
+   {
+      QInstance qInstance = qInstanceReference.get();
+      if(qInstance == null)
+      {
+         throw (new IllegalStateException("QInstance for TableBasedStateProvider is no longer available"));
+      }
+
+      CapturedContext capturedContext = QContext.capture();
+      try
+      {
+         QContext.init(new CapturedContext(qInstance, new QSystemUserSession(), null, new Stack<>()));
+         return (supplier.get());
+      }
+      catch(QException e)
+      {
+         throw (new RuntimeException(errorMessage, e));
+      }
+      finally
+      {
+         QContext.clear();
+         if(capturedContext.qInstance() != null)
+         {
+            QContext.init(capturedContext);
+         }
+      }
+   }
+
+}
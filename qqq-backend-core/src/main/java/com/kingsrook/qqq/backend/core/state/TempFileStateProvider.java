@@ -22,22 +22,55 @@
 package com.kingsrook.qqq.backend.core.state;
 
 
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
 import java.io.File;
-import java.io.FileNotFoundException;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
 import java.io.Serializable;
-import java.nio.charset.StandardCharsets;
-import java.nio.file.NoSuchFileException;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
 import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
 import com.kingsrook.qqq.backend.core.logging.QLogger;
-import com.kingsrook.qqq.backend.core.utils.JsonUtils;
-import org.apache.commons.io.FileUtils;
+import com.kingsrook.qqq.backend.core.model.actions.processes.ProcessState;
+import com.kingsrook.qqq.backend.core.model.data.QRecord;
+import com.kingsrook.qqq.backend.core.utils.lambdas.UnsafeConsumer;
 import static com.kingsrook.qqq.backend.core.logging.LogUtils.logPair;
 
 
 /*******************************************************************************
- ** State provider that uses files in the /tmp/ directory.
+ ** State provider that keeps state in memory-mapped segment files, in a
+ ** temp directory - for state that's too big to keep on the heap.
+ **
+ ** Values are appended to the active segment (written straight into its mapped
+ ** buffer), and an in-memory index maps each key to its value's location.  Reads
+ ** deserialize straight from the mapped buffer.  Overwritten, removed and cleaned
+ ** values leave dead space behind in their segments - and once a sealed segment
+ ** is mostly dead, its live values are copied forward into the active segment,
+ ** and its file is deleted (compaction).
+ **
+ ** Values are java-serialized - except that lists of plain QRecords (and the
+ ** records in a ProcessState) are written with CompactRecordListEncoding, unless
+ ** that's turned off via setUseCompactRecordEncoding.
+ **
+ ** Note that state here does not survive a restart (the index is only in memory).
  *******************************************************************************/
 public class TempFileStateProvider implements StateProviderInterface
 {
@@ -45,6 +78,114 @@ public class TempFileStateProvider implements StateProviderInterface
 
    private static TempFileStateProvider instance;
 
+   private static final int DEFAULT_SEGMENT_SIZE_BYTES = 64 * 1024 * 1024;
+
+   private static final byte FORMAT_SERIALIZED    = 0;
+   private static final byte FORMAT_RECORD_LIST   = 1;
+   private static final byte FORMAT_PROCESS_STATE = 2;
+
+   private final File directory;
+   private final int  segmentSizeBytes;
+
+   private final ReadWriteLock                   lock     = new ReentrantReadWriteLock();
+   private final Map<AbstractStateKey, Location> index    = new HashMap<>();
+   private final List<Segment>                   segments = new ArrayList<>();
+   private       Segment                         activeSegment;
+   private       int                             nextSegmentNo = 0;
+
+   private boolean useCompactRecordEncoding = true;
+
+
+
+   /*******************************************************************************
+    ** Location of one value - in a segment.
+    *******************************************************************************/
+   private record Location(Segment segment, int offset, int length, byte format, Instant startTime)
+   {
+   }
+
+
+
+   /*******************************************************************************
+    ** One memory-mapped segment file.  Values are appended at writePosition.
+    *******************************************************************************/
+   private static class Segment
+   {
+      private final File             file;
+      private final MappedByteBuffer buffer;
+      private int                    writePosition = 0;
+      private long                   liveBytes     = 0;
+
+
+
+      /*******************************************************************************
+       ** Constructor - creates & maps the file.
+       *******************************************************************************/
+      private Segment(File file, int capacity) throws IOException
+      {
+         this.file = file;
+         try(RandomAccessFile randomAccessFile = new RandomAccessFile(file, "rw"))
+         {
+            /////////////////////////////////////////////////////////////////////////
+            // the mapping stays valid after the file is closed - and the file is  //
+            // only allocated on disk as it's written to (it's sparse until then). //
+            /////////////////////////////////////////////////////////////////////////
+            this.buffer = randomAccessFile.getChannel().map(FileChannel.MapMode.READ_WRITE, 0, capacity);
+         }
+      }
+
+
+
+      /*******************************************************************************
+       ** Get a view of a range of this segment's buffer.
+       *******************************************************************************/
+      private ByteBuffer slice(int offset, int length)
+      {
+         return (buffer.duplicate().position(offset).limit(offset + length));
+      }
+
+
+
+      /*******************************************************************************
+       ** Unmap the buffer and delete the file.  Must only be called under the
+       ** provider's write lock, when nothing else can be using the buffer.
+       *******************************************************************************/
+      private void delete()
+      {
+         unmap(buffer);
+
+         if(!file.delete())
+         {
+            LOG.warn("Error deleting state-providing segment file", logPair("file", file.getAbsolutePath()));
+         }
+      }
+   }
+
+
+
+   /*******************************************************************************
+    ** Release a mapped buffer's memory & file mapping now, rather than whenever
+    ** the buffer happens to be GC'ed (which may be never, for a buffer that has
+    ** made it to the old generation) - via the JDK's Unsafe.invokeCleaner, as
+    ** there's no public API for this.  If that isn't available, we leave the
+    ** buffer to the GC.
+    *******************************************************************************/
+   private static void unmap(MappedByteBuffer buffer)
+   {
+      try
+      {
+         Class<?> unsafeClass = Class.forName("sun.misc.Unsafe");
+         Field    unsafeField = unsafeClass.getDeclaredField("theUnsafe");
+         unsafeField.setAccessible(true);
+         Method invokeCleaner = unsafeClass.getMethod("invokeCleaner", ByteBuffer.class);
+         invokeCleaner.invoke(unsafeField.get(null), buffer);
+      }
+      catch(Exception e)
+      {
+         LOG.debug("Could not unmap state-providing segment buffer - leaving it for GC", e);
+      }
+   }
+
 
 
    /*******************************************************************************
@@ -52,6 +193,36 @@ public class TempFileStateProvider implements StateProviderInterface
     *******************************************************************************/
    private TempFileStateProvider()
    {
+      this(new File(System.getProperty("java.io.tmpdir"), "qqq-state-" + ProcessHandle.current().pid()), DEFAULT_SEGMENT_SIZE_BYTES);
+   }
+
+
+
+   /*******************************************************************************
+    ** Constructor with a directory & segment size - for tests.  Any files already
+    ** in the directory are deleted (state doesn't survive a restart anyway).
+    *******************************************************************************/
+   TempFileStateProvider(File directory, int segmentSizeBytes)
+   {
+      this.directory = directory;
+      this.segmentSizeBytes = segmentSizeBytes;
+
+      if(!directory.isDirectory() && !directory.mkdirs())
+      {
+         throw (new RuntimeException("Could not create state directory: " + directory.getAbsolutePath()));
+      }
+
+      File[] leftoverFiles = directory.listFiles();
+      if(leftoverFiles != null)
+      {
+         for(File leftoverFile : leftoverFiles)
+         {
+            if(!leftoverFile.delete())
+            {
+               LOG.warn("Error deleting leftover state-providing file", logPair("file", leftoverFile.getAbsolutePath()));
+            }
+         }
+      }
    }
 
 
@@ -59,7 +230,7 @@ public class TempFileStateProvider implements StateProviderInterface
    /*******************************************************************************
     ** Singleton accessor
     *******************************************************************************/
-   public static TempFileStateProvider getInstance()
+   public static synchronized TempFileStateProvider getInstance()
    {
       if(instance == null)
       {
@@ -76,16 +247,27 @@ public class TempFileStateProvider implements StateProviderInterface
    @Override
    public <T extends Serializable> void put(AbstractStateKey key, T data)
    {
+      lock.writeLock().lock();
       try
       {
-         String json = JsonUtils.toJson(data);
-         FileUtils.writeStringToFile(getFile(key), json, StandardCharsets.UTF_8);
+         Location location = write(key.getStartTime(), data);
+         release(index.put(key, location));
+
+         ///////////////////////////////////////////////////////////////////////
+         // values (e.g., process state) are mostly re-put under the same key //
+         // rather than removed - so this is where most dead space comes from //
+         ///////////////////////////////////////////////////////////////////////
+         compact();
       }
       catch(IOException e)
       {
          LOG.error("Error putting state into file", e);
          throw (new RuntimeException("Error storing state", e));
       }
+      finally
+      {
+         lock.writeLock().unlock();
+      }
    }
 
 
@@ -96,20 +278,37 @@ public class TempFileStateProvider implements StateProviderInterface
    @Override
    public <T extends Serializable> Optional<T> get(Class<? extends T> type, AbstractStateKey key)
    {
+      Serializable value;
+
+      lock.readLock().lock();
       try
       {
-         String json = FileUtils.readFileToString(getFile(key), StandardCharsets.UTF_8);
-         return (Optional.of(JsonUtils.toObject(json, type)));
-      }
-      catch(FileNotFoundException | NoSuchFileException fnfe)
-      {
-         return (Optional.empty());
+         Location location = index.get(key);
+         if(location == null)
+         {
+            return (Optional.empty());
+         }
+
+         value = read(location);
       }
-      catch(IOException e)
+      catch(IOException | ClassNotFoundException e)
       {
          LOG.error("Error getting state from file", e);
          throw (new RuntimeException("Error retrieving state", e));
       }
+      finally
+      {
+         lock.readLock().unlock();
+      }
+
+      try
+      {
+         return (Optional.ofNullable(type.cast(value)));
+      }
+      catch(ClassCastException cce)
+      {
+         throw new RuntimeException("Stored state value could not be cast to desired type", cce);
+      }
    }
 
 
@@ -120,10 +319,15 @@ public class TempFileStateProvider implements StateProviderInterface
    @Override
    public void remove(AbstractStateKey key)
    {
-      File file = getFile(key);
-      if(!file.delete())
+      lock.writeLock().lock();
+      try
+      {
+         release(index.remove(key));
+         compact();
+      }
+      finally
       {
-         LOG.warn("Error deleting state-providing tempFile", logPair("file", file.getAbsolutePath()));
+         lock.writeLock().unlock();
       }
    }
 
@@ -136,7 +340,17 @@ public class TempFileStateProvider implements StateProviderInterface
    @Override
    public String status()
    {
-      return ("TempFileStateProvider status not supported");
+      lock.readLock().lock();
+      try
+      {
+         long writtenBytes = segments.stream().mapToLong(s -> s.writePosition).sum();
+         long liveBytes    = segments.stream().mapToLong(s -> s.liveBytes).sum();
+         return ("TempFileStateProvider entries: " + index.size() + ", segments: " + segments.size() + ", writtenBytes: " + writtenBytes + ", liveBytes: " + liveBytes);
+      }
+      finally
+      {
+         lock.readLock().unlock();
+      }
    }
 
 
@@ -147,19 +361,429 @@ public class TempFileStateProvider implements StateProviderInterface
    @Override
    public void clean(Instant startTime)
    {
-      ////////////////////////////////
-      // Not supported at this time //
-      ////////////////////////////////
+      long jobStartTime = System.currentTimeMillis();
+
+      lock.writeLock().lock();
+      try
+      {
+         int beforeSize = index.size();
+
+         Iterator<Location> iterator = index.values().iterator();
+         while(iterator.hasNext())
+         {
+            Location location = iterator.next();
+            if(location.startTime().isBefore(startTime))
+            {
+               release(location);
+               iterator.remove();
+            }
+         }
+
+         compact();
+
+         int afterSize = index.size();
+         LOG.info("Completed clean for TempFileStateProvider.", logPair("beforeSize", beforeSize), logPair("afterSize", afterSize), logPair("amountCleaned", (beforeSize - afterSize)), logPair("segments", segments.size()), logPair("runTimeMillis", (System.currentTimeMillis() - jobStartTime)));
+      }
+      finally
+      {
+         lock.writeLock().unlock();
+      }
+   }
+
+
+
+   /*******************************************************************************
+    ** Serialize a value into the active segment (rolling to a new segment if it
+    ** doesn't fit), returning where it was written.
+    *******************************************************************************/
+   private Location write(Instant startTime, Serializable data) throws IOException
+   {
+      byte                                      format = getFormat(data);
+      UnsafeConsumer<OutputStream, IOException> writer = outputStream -> serialize(outputStream, format, data);
+
+      ////////////////////////////////////////////////////////////////////////////
+      // try to write straight into the active segment's mapped buffer - and if //
+      // it overflows, once more into a fresh segment (unless the active one    //
+      // was empty - in which case, a fresh one wouldn't fit it either).        //
+      ////////////////////////////////////////////////////////////////////////////
+      for(int attempt = 0; attempt < 2; attempt++)
+      {
+         if(activeSegment == null)
+         {
+            rollSegment(segmentSizeBytes);
+         }
+         else if(attempt > 0)
+         {
+            if(activeSegment.writePosition == 0)
+            {
+               break;
+            }
+            rollSegment(segmentSizeBytes);
+         }
+
+         ByteBuffer buffer = activeSegment.buffer.duplicate().position(activeSegment.writePosition);
+         try
+         {
+            writer.run(new ByteBufferOutputStream(buffer));
+            return (appended(startTime, format, buffer.position() - activeSegment.writePosition));
+         }
+         catch(BufferOverflowException e)
+         {
+            /////////////////////////////////////////////////////
+            // fall through to the next attempt (or the below) //
+            /////////////////////////////////////////////////////
+         }
+      }
+
+      //////////////////////////////////////////////////////////////////////
+      // value is bigger than a segment - so give it a segment of its own //
+      //////////////////////////////////////////////////////////////////////
+      ByteArrayOutputStream byteArrayOutputStream = new ByteArrayOutputStream();
+      writer.run(byteArrayOutputStream);
+      rollSegment(byteArrayOutputStream.size());
+      activeSegment.buffer.duplicate().put(byteArrayOutputStream.toByteArray());
+      return (appended(startTime, format, byteArrayOutputStream.size()));
+   }
+
+
+
+   /*******************************************************************************
+    ** Record that length bytes were appended to the active segment.
+    *******************************************************************************/
+   private Location appended(Instant startTime, byte format, int length)
+   {
+      Location location = new Location(activeSegment, activeSegment.writePosition, length, format, startTime);
+      activeSegment.writePosition += length;
+      activeSegment.liveBytes += length;
+      return (location);
+   }
+
+
+
+   /*******************************************************************************
+    ** Seal the active segment (if any - or drop it, if nothing was written to
+    ** it), and start a new one.
+    *******************************************************************************/
+   private void rollSegment(int capacity) throws IOException
+   {
+      if(activeSegment != null && activeSegment.writePosition == 0)
+      {
+         segments.remove(activeSegment);
+         activeSegment.delete();
+      }
+
+      activeSegment = new Segment(new File(directory, "segment-" + (nextSegmentNo++) + ".dat"), Math.max(capacity, segmentSizeBytes));
+      segments.add(activeSegment);
+   }
+
+
+
+   /*******************************************************************************
+    ** Mark a location's bytes as dead (e.g., after it was replaced or removed).
+    *******************************************************************************/
+   private void release(Location location)
+   {
+      if(location != null)
+      {
+         location.segment().liveBytes -= location.length();
+      }
    }
 
 
 
    /*******************************************************************************
-    ** Get the file referenced by a key
+    ** Delete sealed segments that are at least half dead - first copying any live
+    ** values from them into the active segment.
     *******************************************************************************/
-   private File getFile(AbstractStateKey key)
+   private void compact()
    {
-      return new File("/tmp/" + key.getUniqueIdentifier());
+      List<Segment> segmentsToDrop = new ArrayList<>();
+      for(Segment segment : segments)
+      {
+         if(segment != activeSegment && segment.liveBytes * 2 <= segment.writePosition)
+         {
+            segmentsToDrop.add(segment);
+         }
+      }
+
+      if(segmentsToDrop.isEmpty())
+      {
+         return;
+      }
+
+      try
+      {
+         for(Map.Entry<AbstractStateKey, Location> entry : index.entrySet())
+         {
+            Location location = entry.getValue();
+            if(segmentsToDrop.contains(location.segment()))
+            {
+               if(activeSegment == null || activeSegment.buffer.capacity() - activeSegment.writePosition < location.length())
+               {
+                  rollSegment(location.length());
+               }
+
+               activeSegment.buffer.duplicate().position(activeSegment.writePosition).put(location.segment().slice(location.offset(), location.length()));
+               entry.setValue(appended(location.startTime(), location.format(), location.length()));
+            }
+         }
+      }
+      catch(IOException e)
+      {
+         ///////////////////////////////////////////////////////////////////////
+         // if we couldn't make a new segment, leave the old ones - we'll try //
+         // again next time (entries copied so far just point at new spots).  //
+         ///////////////////////////////////////////////////////////////////////
+         LOG.warn("Error compacting TempFileStateProvider segments", e);
+         return;
+      }
+
+      for(Segment segment : segmentsToDrop)
+      {
+         segments.remove(segment);
+         segment.delete();
+      }
+   }
+
+
+
+   /*******************************************************************************
+    ** Decide how to encode a value.
+    *******************************************************************************/
+   private byte getFormat(Serializable data)
+   {
+      if(useCompactRecordEncoding)
+      {
+         if(data instanceof List<?> list && CompactRecordListEncoding.canEncode(list))
+         {
+            return (FORMAT_RECORD_LIST);
+         }
+
+         if(data instanceof ProcessState processState && processState.getRecords() != null && CompactRecordListEncoding.canEncode(processState.getRecords()))
+         {
+            return (FORMAT_PROCESS_STATE);
+         }
+      }
+
+      return (FORMAT_SERIALIZED);
+   }
+
+
+
+   /*******************************************************************************
+    ** Write a value to a stream, in the given format.
+    *******************************************************************************/
+   @SuppressWarnings("unchecked")
+   private static void serialize(OutputStream outputStream, byte format, Serializable data) throws IOException
+   {
+      switch(format)
+      {
+         case FORMAT_RECORD_LIST -> CompactRecordListEncoding.encode((List<QRecord>) data, new DataOutputStream(outputStream));
+         case FORMAT_PROCESS_STATE ->
+         {
+            /////////////////////////////////////////////////////////////////////////
+            // write the records compactly, then the rest of the state (via a copy //
+            // without records - never touching the caller's object, which another //
+            // thread may be using) with java serialization.                       //
+            /////////////////////////////////////////////////////////////////////////
+            ProcessState processState = (ProcessState) data;
+            CompactRecordListEncoding.encode(processState.getRecords(), new DataOutputStream(outputStream));
+            writeObject(outputStream, copyWithoutRecords(processState));
+         }
+         default -> writeObject(outputStream, data);
+      }
+   }
+
+
+
+   /*******************************************************************************
+    ** Make a shallow copy of a ProcessState, with an empty records list.
+    *******************************************************************************/
+   private static ProcessState copyWithoutRecords(ProcessState processState)
+   {
+      ProcessState copy = new ProcessState();
+      copy.setValues(processState.getValues());
+      copy.setStepList(processState.getStepList());
+      processState.getNextStepName().ifPresent(copy::setNextStepName);
+      processState.getBackStepName().ifPresent(copy::setBackStepName);
+      copy.setIsStepBack(processState.getIsStepBack());
+      copy.setProcessMetaDataAdjustment(processState.getProcessMetaDataAdjustment());
+      return (copy);
+   }
+
+
+
+   /*******************************************************************************
+    ** Read a value from its location.
+    *******************************************************************************/
+   private static Serializable read(Location location) throws IOException, ClassNotFoundException
+   {
+      InputStream inputStream = new ByteBufferInputStream(location.segment().slice(location.offset(), location.length()));
+      switch(location.format())
+      {
+         case FORMAT_RECORD_LIST ->
+         {
+            return (new ArrayList<>(CompactRecordListEncoding.decode(new DataInputStream(inputStream))));
+         }
+         case FORMAT_PROCESS_STATE ->
+         {
+            List<QRecord> records      = CompactRecordListEncoding.decode(new DataInputStream(inputStream));
+            ProcessState  processState = (ProcessState) readObject(inputStream);
+            processState.setRecords(records);
+            return (processState);
+         }
+         default ->
+         {
+            return (readObject(inputStream));
+         }
+      }
+   }
+
+
+
+   /*******************************************************************************
+    **
+    *******************************************************************************/
+   private static void writeObject(OutputStream outputStream, Serializable data) throws IOException
+   {
+      ObjectOutputStream objectOutputStream = new ObjectOutputStream(outputStream);
+      objectOutputStream.writeObject(data);
+      objectOutputStream.flush();
+   }
+
+
+
+   /*******************************************************************************
+    **
+    *******************************************************************************/
+   private static Serializable readObject(InputStream inputStream) throws IOException, ClassNotFoundException
+   {
+      return ((Serializable) new ObjectInputStream(inputStream).readObject());
+   }
+
+
+
+   /*******************************************************************************
+    ** Getter for useCompactRecordEncoding
+    *******************************************************************************/
+   public boolean getUseCompactRecordEncoding()
+   {
+      return (this.useCompactRecordEncoding);
+   }
+
+
+
+   /*******************************************************************************
+    ** Setter for useCompactRecordEncoding - whether lists of plain QRecords (and
+    ** the records in ProcessStates) are written with CompactRecordListEncoding
+    ** (else, everything is just java-serialized).
+    *******************************************************************************/
+   public void setUseCompactRecordEncoding(boolean useCompactRecordEncoding)
+   {
+      this.useCompactRecordEncoding = useCompactRecordEncoding;
+   }
+
+
+
+   /*******************************************************************************
+    ** OutputStream that writes into a ByteBuffer - throwing BufferOverflowException
+    ** if it fills up.
+    *******************************************************************************/
+   private static class ByteBufferOutputStream extends OutputStream
+   {
+      private final ByteBuffer buffer;
+
+
+
+      /*******************************************************************************
+       ** Constructor
+       *******************************************************************************/
+      private ByteBufferOutputStream(ByteBuffer buffer)
+      {
+         this.buffer = buffer;
+      }
+
+
+
+      /*******************************************************************************
+       **
+       *******************************************************************************/
+      @Override
+      public void write(int b)
+      {
+         buffer.put((byte) b);
+      }
+
+
+
+      /*******************************************************************************
+       **
+       *******************************************************************************/
+      @Override
+      public void write(byte[] bytes, int offset, int length)
+      {
+         buffer.put(bytes, offset, length);
+      }
+   }
+
+
+
+   /*******************************************************************************
+    ** InputStream that reads from a ByteBuffer (without copying it first).
+    *******************************************************************************/
+   private static class ByteBufferInputStream extends InputStream
+   {
+      private final ByteBuffer buffer;
+
+
+
+      /*******************************************************************************
+       ** Constructor
+       *******************************************************************************/
+      private ByteBufferInputStream(ByteBuffer buffer)
+      {
+         this.buffer = buffer;
+      }
+
+
+
+      /*******************************************************************************
+       **
+       *******************************************************************************/
+      @Override
+      public int read()
+      {
+         return (buffer.hasRemaining() ? (buffer.get() & 0xFF) : -1);
+      }
+
+
+
+      /*******************************************************************************
+       **
+       *******************************************************************************/
+      @Override
+      public int read(byte[] bytes, int offset, int length)
+      {
+         if(!buffer.hasRemaining())
+         {
+            return (-1);
+         }
+
+         int count = Math.min(length, buffer.remaining());
+         buffer.get(bytes, offset, count);
+         return (count);
+      }
+
+
+
+      /*******************************************************************************
+       **
+       *******************************************************************************/
+      @Override
+      public int available()
+      {
+         return (buffer.remaining());
+      }
    }
 
 }
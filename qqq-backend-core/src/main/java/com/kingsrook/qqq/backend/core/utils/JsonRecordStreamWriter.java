@@ -0,0 +1,288 @@
+/*
+ * QQQ - Low-code Application Framework for Engineers.
+ * Copyright (C) 2021-2024.  Kingsrook, LLC
+ * 651 N Broad St Ste 205 # 6917 | Middletown DE 19709 | United States
+ * contact@kingsrook.com
+ * https://github.com/Kingsrook/
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.kingsrook.qqq.backend.core.utils;
+
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.Serializable;
+import java.util.List;
+import java.util.Map;
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.kingsrook.qqq.backend.core.model.data.QRecord;
+
+
+/*******************************************************************************
+ ** Write QRecords as JSON to an output stream, one at a time, through a single
+ ** jackson JsonGenerator (with the same configuration as JsonUtils.toJson) -
+ ** rather than building a String per record (or for a whole list of records).
+ **
+ ** Records can be written as:
+ ** - a JSON array:  [{...},{...}]
+ ** - a JSON array inside an object, e.g., {"records":[{...},{...}]} (see
+ **   withEnclosingObjectFieldName) - which allows additional fields to be
+ **   written after the records, by finish.
+ ** - newline-delimited JSON (NDJSON):  one record object per line.
+ **
+ ** Opening tokens are written lazily (on the first write, or on finish), and the
+ ** underlying output stream is flushed but NOT closed by finish/close.
+ *******************************************************************************/
+public class JsonRecordStreamWriter implements AutoCloseable
+{
+   private final JsonGenerator jsonGenerator;
+   private final ObjectWriter  objectWriter;
+   private final boolean       newlineDelimited;
+
+   private String  enclosingObjectFieldName;
+   private boolean started  = false;
+   private boolean finished = false;
+
+
+
+   /*******************************************************************************
+    ** Constructor
+    **
+    ** @param newlineDelimited true for NDJSON, false for a JSON array.
+    *******************************************************************************/
+   public JsonRecordStreamWriter(OutputStream outputStream, boolean newlineDelimited) throws IOException
+   {
+      ObjectMapper objectMapper = JsonUtils.getDefaultObjectMapper();
+      this.objectWriter = objectMapper.writer().without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+      this.newlineDelimited = newlineDelimited;
+
+      this.jsonGenerator = objectMapper.getFactory().createGenerator(outputStream, JsonEncoding.UTF8);
+      this.jsonGenerator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+      if(newlineDelimited)
+      {
+         ////////////////////////////////////////////////////////////////////////
+         // by default, the generator puts a space between root-level values - //
+         // instead, we'll write a newline after each one.                     //
+         ////////////////////////////////////////////////////////////////////////
+         this.jsonGenerator.setRootValueSeparator(null);
+      }
+   }
+
+
+
+   /*******************************************************************************
+    ** Write one record.
+    *******************************************************************************/
+   public void writeRecord(QRecord record) throws IOException
+   {
+      writeObject(record);
+   }
+
+
+
+   /*******************************************************************************
+    ** Write one object in the place of a record - e.g., for a caller that maps
+    ** records to a different shape (such as a versioned API's record schema).
+    *******************************************************************************/
+   public void writeObject(Object object) throws IOException
+   {
+      start();
+      objectWriter.writeValue(jsonGenerator, object);
+
+      if(newlineDelimited)
+      {
+         jsonGenerator.writeRaw('\n');
+      }
+   }
+
+
+
+   /*******************************************************************************
+    ** Write a list of records.
+    *******************************************************************************/
+   public void writeRecords(List<QRecord> records) throws IOException
+   {
+      for(QRecord record : records)
+      {
+         writeRecord(record);
+      }
+   }
+
+
+
+   /*******************************************************************************
+    ** Flush the generator (and the underlying output stream) - e.g., to send a
+    ** chunk of records on to a client.
+    *******************************************************************************/
+   public void flush() throws IOException
+   {
+      jsonGenerator.flush();
+   }
+
+
+
+   /*******************************************************************************
+    ** End the output (closing the array, etc), and flush.
+    *******************************************************************************/
+   public void finish() throws IOException
+   {
+      finish(null);
+   }
+
+
+
+   /*******************************************************************************
+    ** End the output, with optional additional fields - which are written after
+    ** the records in the enclosing object (if one is being used), or as a final
+    ** line, for NDJSON.  (Not supported for a plain JSON array.)
+    *******************************************************************************/
+   public void finish(Map<String, ? extends Serializable> additionalFields) throws IOException
+   {
+      if(finished)
+      {
+         return;
+      }
+
+      boolean hasAdditionalFields = CollectionUtils.nullSafeHasContents(additionalFields);
+      if(hasAdditionalFields && !newlineDelimited && enclosingObjectFieldName == null)
+      {
+         throw (new IllegalStateException("Additional fields cannot be written after a plain JSON array of records."));
+      }
+
+      start();
+      finished = true;
+
+      if(newlineDelimited)
+      {
+         if(hasAdditionalFields)
+         {
+            objectWriter.writeValue(jsonGenerator, additionalFields);
+            jsonGenerator.writeRaw('\n');
+         }
+      }
+      else
+      {
+         jsonGenerator.writeEndArray();
+
+         if(enclosingObjectFieldName != null)
+         {
+            if(hasAdditionalFields)
+            {
+               for(Map.Entry<String, ? extends Serializable> entry : additionalFields.entrySet())
+               {
+                  jsonGenerator.writeFieldName(entry.getKey());
+                  objectWriter.writeValue(jsonGenerator, entry.getValue());
+               }
+            }
+            jsonGenerator.writeEndObject();
+         }
+      }
+
+      jsonGenerator.flush();
+   }
+
+
+
+   /*******************************************************************************
+    ** write opening tokens, if needed, and if not yet written.
+    *******************************************************************************/
+   private void start() throws IOException
+   {
+      if(finished)
+      {
+         throw (new IllegalStateException("Writer has already been finished."));
+      }
+
+      if(!started)
+      {
+         started = true;
+         if(!newlineDelimited)
+         {
+            if(enclosingObjectFieldName != null)
+            {
+               jsonGenerator.writeStartObject();
+               jsonGenerator.writeFieldName(enclosingObjectFieldName);
+            }
+            jsonGenerator.writeStartArray();
+         }
+      }
+   }
+
+
+
+   /*******************************************************************************
+    ** Check if anything has been written yet.
+    *******************************************************************************/
+   public boolean getHasStarted()
+   {
+      return (started);
+   }
+
+
+
+   /*******************************************************************************
+    ** Finish (if not already), and close the generator - but not the underlying
+    ** output stream.
+    *******************************************************************************/
+   @Override
+   public void close() throws IOException
+   {
+      finish();
+      jsonGenerator.close();
+   }
+
+
+
+   /*******************************************************************************
+    ** Getter for enclosingObjectFieldName
+    *******************************************************************************/
+   public String getEnclosingObjectFieldName()
+   {
+      return (this.enclosingObjectFieldName);
+   }
+
+
+
+   /*******************************************************************************
+    ** Setter for enclosingObjectFieldName - name of a field in an object, to put
+    ** the array of records in (not used for NDJSON).  Must be set before anything
+    ** is written.
+    *******************************************************************************/
+   public void setEnclosingObjectFieldName(String enclosingObjectFieldName)
+   {
+      if(started)
+      {
+         throw (new IllegalStateException("Cannot set enclosingObjectFieldName after writing has started."));
+      }
+      this.enclosingObjectFieldName = enclosingObjectFieldName;
+   }
+
+
+
+   /*******************************************************************************
+    ** Fluent setter for enclosingObjectFieldName
+    *******************************************************************************/
+   public JsonRecordStreamWriter withEnclosingObjectFieldName(String enclosingObjectFieldName)
+   {
+      setEnclosingObjectFieldName(enclosingObjectFieldName);
+      return (this);
+   }
+
+}
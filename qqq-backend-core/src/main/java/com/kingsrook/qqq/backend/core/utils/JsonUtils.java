@@ -23,17 +23,21 @@ package com.kingsrook.qqq.backend.core.utils;
 
 
 import java.io.IOException;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
 import java.time.Instant;
 import java.time.LocalDate;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.function.Consumer;
 import com.fasterxml.jackson.annotation.JsonInclude;
 import com.fasterxml.jackson.core.JsonGenerator;
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.core.type.TypeReference;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
 import com.fasterxml.jackson.databind.ObjectWriter;
 import com.fasterxml.jackson.databind.SerializationFeature;
 import com.fasterxml.jackson.databind.SerializerProvider;
@@ -53,6 +57,14 @@ import org.json.JSONObject;
  **
  ** See: https://www.baeldung.com/jackson-vs-gson
  **
+ ** Jackson mappers are expensive to build (each one has its own serializer and
+ ** deserializer caches), but are thread-safe once configured - so this class
+ ** shares a default one (and readers/writers from it) across all calls.  Mappers
+ ** from the customizer overloads are also shared, keyed by the customizer's
+ ** class - but only when that class has no instance fields (e.g., a lambda that
+ ** doesn't capture any variables) - as otherwise, different instances of the
+ ** customizer could produce differently-configured mappers.
+ **
  *******************************************************************************/
 public class JsonUtils
 {
@@ -63,6 +75,31 @@ public class JsonUtils
    //////////////////////////////////////////////////////////////////////
    public static NullKeyToEmptyStringSerializer nullKeyToEmptyStringSerializer = new NullKeyToEmptyStringSerializer();
 
+   private static final ObjectMapper DEFAULT_OBJECT_MAPPER = newObjectMapper();
+   private static final ObjectReader DEFAULT_OBJECT_READER = DEFAULT_OBJECT_MAPPER.reader();
+   private static final ObjectWriter DEFAULT_OBJECT_WRITER = DEFAULT_OBJECT_MAPPER.writer();
+   private static final ObjectWriter PRETTY_OBJECT_WRITER  = DEFAULT_OBJECT_MAPPER.writerWithDefaultPrettyPrinter();
+   private static final ObjectMapper DEFAULT_JSON_MAPPER   = newJsonMapperBuilder().build();
+
+   private static final Map<Class<?>, ObjectMapper> customizedObjectMappers = new ConcurrentHashMap<>();
+   private static final Map<Class<?>, ObjectMapper> customizedJsonMappers   = new ConcurrentHashMap<>();
+
+   private static final ClassValue<Boolean> isStatelessCustomizerClass = new ClassValue<>()
+   {
+      @Override
+      protected Boolean computeValue(Class<?> c)
+      {
+         for(Field field : c.getDeclaredFields())
+         {
+            if(!Modifier.isStatic(field.getModifiers()))
+            {
+               return (false);
+            }
+         }
+         return (c.getSuperclass() == null || c.getSuperclass().equals(Object.class));
+      }
+   };
+
 
 
    /*******************************************************************************
@@ -90,12 +127,8 @@ public class JsonUtils
    {
       try
       {
-         ObjectMapper mapper = newObjectMapper();
-         if(objectMapperCustomizer != null)
-         {
-            objectMapperCustomizer.accept(mapper);
-         }
-         String jsonResult = mapper.writeValueAsString(object);
+         ObjectWriter writer     = objectMapperCustomizer == null ? DEFAULT_OBJECT_WRITER : getCustomizedObjectMapper(objectMapperCustomizer).writer();
+         String       jsonResult = writer.writeValueAsString(object);
          return (jsonResult);
       }
       catch(JsonProcessingException e)
@@ -118,12 +151,21 @@ public class JsonUtils
    {
       try
       {
-         JsonMapper.Builder jsonMapperBuilder = newJsonMapperBuilder();
-         if(jsonMapperCustomizer != null)
+         ObjectMapper mapper;
+         if(jsonMapperCustomizer == null)
          {
-            jsonMapperCustomizer.accept(jsonMapperBuilder);
+            mapper = DEFAULT_JSON_MAPPER;
          }
-         String jsonResult = jsonMapperBuilder.build().writeValueAsString(object);
+         else if(isStatelessCustomizerClass.get(jsonMapperCustomizer.getClass()))
+         {
+            mapper = customizedJsonMappers.computeIfAbsent(jsonMapperCustomizer.getClass(), c -> buildCustomizedJsonMapper(jsonMapperCustomizer));
+         }
+         else
+         {
+            mapper = buildCustomizedJsonMapper(jsonMapperCustomizer);
+         }
+
+         String jsonResult = mapper.writeValueAsString(object);
          return (jsonResult);
       }
       catch(JsonProcessingException e)
@@ -145,9 +187,7 @@ public class JsonUtils
    {
       try
       {
-         ObjectMapper mapper       = newObjectMapper();
-         ObjectWriter objectWriter = mapper.writerWithDefaultPrettyPrinter();
-         String       jsonResult   = objectWriter.writeValueAsString(object);
+         String jsonResult = PRETTY_OBJECT_WRITER.writeValueAsString(object);
          return (jsonResult);
       }
       catch(JsonProcessingException e)
@@ -167,10 +207,8 @@ public class JsonUtils
    {
       try
       {
-         ObjectMapper mapper       = newObjectMapper();
-         Object       object       = mapper.reader().readValue(json, Map.class);
-         ObjectWriter objectWriter = mapper.writerWithDefaultPrettyPrinter();
-         String       jsonResult   = objectWriter.writeValueAsString(object);
+         Object object     = DEFAULT_OBJECT_READER.readValue(json, Map.class);
+         String jsonResult = PRETTY_OBJECT_WRITER.writeValueAsString(object);
          return (jsonResult);
       }
       catch(Exception e)
@@ -204,12 +242,8 @@ public class JsonUtils
     *******************************************************************************/
    public static <T> T toObject(String json, Class<T> targetClass, Consumer<ObjectMapper> objectMapperCustomizer) throws IOException
    {
-      ObjectMapper objectMapper = newObjectMapper();
-      if(objectMapperCustomizer != null)
-      {
-         objectMapperCustomizer.accept(objectMapper);
-      }
-      return objectMapper.reader().readValue(json, targetClass);
+      ObjectReader reader = objectMapperCustomizer == null ? DEFAULT_OBJECT_READER : getCustomizedObjectMapper(objectMapperCustomizer).reader();
+      return reader.readValue(json, targetClass);
    }
 
 
@@ -222,8 +256,7 @@ public class JsonUtils
     *******************************************************************************/
    public static <T> T toObject(String json, TypeReference<T> typeReference) throws IOException
    {
-      ObjectMapper objectMapper = newObjectMapper();
-      return objectMapper.readValue(json, typeReference);
+      return DEFAULT_OBJECT_MAPPER.readValue(json, typeReference);
    }
 
 
@@ -237,11 +270,7 @@ public class JsonUtils
     *******************************************************************************/
    public static <T> T toObject(String json, TypeReference<T> typeReference, Consumer<ObjectMapper> objectMapperCustomizer) throws IOException
    {
-      ObjectMapper objectMapper = newObjectMapper();
-      if(objectMapperCustomizer != null)
-      {
-         objectMapperCustomizer.accept(objectMapper);
-      }
+      ObjectMapper objectMapper = objectMapperCustomizer == null ? DEFAULT_OBJECT_MAPPER : getCustomizedObjectMapper(objectMapperCustomizer);
       return objectMapper.readValue(json, typeReference);
    }
 
@@ -271,6 +300,57 @@ public class JsonUtils
 
 
 
+   /*******************************************************************************
+    ** Get the (shared) default ObjectMapper - e.g., for JsonRecordStreamWriter.
+    ** Callers must not re-configure it!
+    *******************************************************************************/
+   static ObjectMapper getDefaultObjectMapper()
+   {
+      return (DEFAULT_OBJECT_MAPPER);
+   }
+
+
+
+   /*******************************************************************************
+    ** Get an ObjectMapper with a customizer applied - either a shared one (if the
+    ** customizer is stateless - see class-level comment), or else a new one.
+    *******************************************************************************/
+   private static ObjectMapper getCustomizedObjectMapper(Consumer<ObjectMapper> objectMapperCustomizer)
+   {
+      if(isStatelessCustomizerClass.get(objectMapperCustomizer.getClass()))
+      {
+         return (customizedObjectMappers.computeIfAbsent(objectMapperCustomizer.getClass(), c -> buildCustomizedObjectMapper(objectMapperCustomizer)));
+      }
+
+      return (buildCustomizedObjectMapper(objectMapperCustomizer));
+   }
+
+
+
+   /*******************************************************************************
+    **
+    *******************************************************************************/
+   private static ObjectMapper buildCustomizedObjectMapper(Consumer<ObjectMapper> objectMapperCustomizer)
+   {
+      ObjectMapper mapper = newObjectMapper();
+      objectMapperCustomizer.accept(mapper);
+      return (mapper);
+   }
+
+
+
+   /*******************************************************************************
+    **
+    *******************************************************************************/
+   private static ObjectMapper buildCustomizedJsonMapper(Consumer<JsonMapper.Builder> jsonMapperCustomizer)
+   {
+      JsonMapper.Builder jsonMapperBuilder = newJsonMapperBuilder();
+      jsonMapperCustomizer.accept(jsonMapperBuilder);
+      return (jsonMapperBuilder.build());
+   }
+
+
+
    /*******************************************************************************
     ** Standard private method to build jackson JsonMapperBuilder with standard features.
     **
@@ -23,29 +23,214 @@ package com.kingsrook.qqq.backend.core.utils.memoization;
 
 
 import java.time.Duration;
-import java.time.Instant;
-import java.util.Collections;
-import java.util.Iterator;
-import java.util.LinkedHashMap;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+import com.kingsrook.qqq.backend.core.context.QContext;
 import com.kingsrook.qqq.backend.core.logging.QLogger;
+import com.kingsrook.qqq.backend.core.model.metadata.QInstance;
+import com.kingsrook.qqq.backend.core.model.session.QSession;
+import com.kingsrook.qqq.backend.core.utils.PrefixedDefaultThreadFactory;
 import com.kingsrook.qqq.backend.core.utils.lambdas.UnsafeFunction;
+import static com.kingsrook.qqq.backend.core.logging.LogUtils.logPair;
 
 
 /*******************************************************************************
  ** Basic memoization functionality - with result timeouts (only when doing a get -
  ** there's no cleanup thread), and max-size.
+ **
+ ** Safe for use by many threads at once:
+ ** - results are kept in a ConcurrentHashMap, so gets don't lock.
+ ** - when several threads miss on the same key at once, only one of them runs
+ **   the lookup function - the others wait for (and share) its result (unless
+ **   it throws, or takes longer than inFlightLookupWaitTimeout - e.g., because
+ **   it's waiting on a lookup for another key, that's waiting on it - in which
+ **   case they each run the lookup themselves).
+ ** - when over maxSize, the evictionPolicy picks which results to drop (see
+ **   EvictionPolicy), without locking or sorting the whole map.
+ ** - optionally (see refreshAfter), results older than refreshAfter (but not
+ **   yet timed-out) are re-looked-up in the background, while the current
+ **   result keeps being returned - so hot keys don't all expire at once.
+ **   Refreshes for all memoizations run on one shared, bounded pool of daemon
+ **   threads (refreshes beyond its size are skipped) - which an application can
+ **   stop with shutdownRefreshExecutor (it's re-created if needed again).
+ **
+ ** Counts of hits, misses, loads, etc are kept, for monitoring.
  *******************************************************************************/
 public class Memoization<K, V>
 {
    private static final QLogger LOG = QLogger.getLogger(Memoization.class);
 
-   private final Map<K, MemoizedResult<V>> map = Collections.synchronizedMap(new LinkedHashMap<>());
+   /////////////////////////////////////////////////////////////////////////////
+   // ConcurrentHashMap doesn't allow null keys - but a Memoization does - so //
+   // a null key is stored in the map under this object instead.              //
+   /////////////////////////////////////////////////////////////////////////////
+   private static final Object NULL_KEY = new Object();
 
-   private Duration timeout            = Duration.ofSeconds(600);
-   private Integer  maxSize            = 1000;
-   private boolean  mayStoreNullValues = true;
+   private static final int FREQUENCY_SAMPLE_SIZE = 5;
+   private static final int MAX_FREQUENCY         = 255;
+
+   private static final int REFRESH_EXECUTOR_MAX_THREADS = Math.max(2, Runtime.getRuntime().availableProcessors());
+
+   private static ExecutorService refreshExecutor = null;
+
+   private final Map<Object, Node<V>>           map               = new ConcurrentHashMap<>();
+   private final Map<Object, InFlightLookup<V>> inFlightLookups   = new ConcurrentHashMap<>();
+   private final Queue<Node<V>>                 evictionQueue     = new ConcurrentLinkedQueue<>();
+   private final AtomicInteger                  evictionQueueSize = new AtomicInteger();
+   private final ReentrantLock                  evictionLock      = new ReentrantLock();
+
+   private final LongAdder hitCount         = new LongAdder();
+   private final LongAdder missCount        = new LongAdder();
+   private final LongAdder loadCount        = new LongAdder();
+   private final LongAdder loadFailureCount = new LongAdder();
+   private final LongAdder refreshCount     = new LongAdder();
+   private final LongAdder evictionCount    = new LongAdder();
+
+   private Duration       timeout            = Duration.ofSeconds(600);
+   private Integer        maxSize            = 1000;
+   private boolean        mayStoreNullValues = true;
+   private EvictionPolicy evictionPolicy     = EvictionPolicy.INSERTION_ORDER;
+   private Duration       refreshAfter       = null;
+
+   private Duration inFlightLookupWaitTimeout = Duration.ofSeconds(30);
+
+
+
+   /*******************************************************************************
+    ** how to pick results to drop, when a memoization is over its maxSize.
+    *******************************************************************************/
+   public enum EvictionPolicy
+   {
+      /////////////////////////////////////////////////////////////////
+      // drop the oldest-stored results first (the original policy). //
+      /////////////////////////////////////////////////////////////////
+      INSERTION_ORDER,
+
+      //////////////////////////////////////////////////////////////////////////////
+      // look at a few of the oldest-stored results, and drop the one that's been //
+      // used the least - the others get their use-counts halved (so results that //
+      // were once popular eventually age out), and go to the back of the line.   //
+      //////////////////////////////////////////////////////////////////////////////
+      FREQUENCY
+   }
+
+
+
+   /*******************************************************************************
+    ** a memoized result in the map - along with what's needed to expire & evict it.
+    *******************************************************************************/
+   private static class Node<V>
+   {
+      private final Object mapKey;
+
+      private volatile MemoizedResult<V> memoizedResult;
+      private volatile long              storedAtMillis;
+
+      //////////////////////////////////////////////////////////////////////////////
+      // only used by the FREQUENCY policy.  not atomic - an approximate count is //
+      // fine, and is cheaper for many threads reading the same key.              //
+      //////////////////////////////////////////////////////////////////////////////
+      private int frequency = 0;
+
+
+
+      /*******************************************************************************
+       **
+       *******************************************************************************/
+      Node(Object mapKey, MemoizedResult<V> memoizedResult)
+      {
+         this.mapKey = mapKey;
+         setMemoizedResult(memoizedResult);
+      }
+
+
+
+      /*******************************************************************************
+       **
+       *******************************************************************************/
+      Node<V> setMemoizedResult(MemoizedResult<V> memoizedResult)
+      {
+         this.memoizedResult = memoizedResult;
+         this.storedAtMillis = memoizedResult.getTime().toEpochMilli();
+         return (this);
+      }
+   }
+
+
+
+   /*******************************************************************************
+    ** a lookup that one thread is running, that other threads can wait for.
+    *******************************************************************************/
+   private static class InFlightLookup<V>
+   {
+      private final Thread         thread;
+      private final CountDownLatch latch = new CountDownLatch(1);
+
+      private volatile boolean succeeded = false;
+      private volatile V       value;
+
+
+
+      /*******************************************************************************
+       **
+       *******************************************************************************/
+      InFlightLookup(Thread thread)
+      {
+         this.thread = thread;
+      }
+
+
+
+      /*******************************************************************************
+       **
+       *******************************************************************************/
+      void complete(boolean succeeded, V value)
+      {
+         this.value = value;
+         this.succeeded = succeeded;
+         latch.countDown();
+      }
+
+
+
+      /*******************************************************************************
+       ** wait (up to a timeout) for the lookup to finish - returning whether or
+       ** not it succeeded (false if it timed out).
+       *******************************************************************************/
+      boolean await(Duration waitTimeout)
+      {
+         try
+         {
+            if(!latch.await(waitTimeout.toMillis(), TimeUnit.MILLISECONDS))
+            {
+               LOG.debug("Timed out waiting for another thread's memoization lookup - will look up directly", logPair("waitTimeoutMillis", waitTimeout.toMillis()));
+               return (false);
+            }
+            return (succeeded);
+         }
+         catch(InterruptedException e)
+         {
+            Thread.currentThread().interrupt();
+            return (false);
+         }
+      }
+   }
 
 
 
@@ -103,17 +288,20 @@ public class Memoization<K, V>
     *******************************************************************************/
    public <E extends Exception> Optional<V> getResultThrowing(K key, UnsafeFunction<K, V, E> lookupFunction) throws E
    {
-      MemoizedResult<V> result = map.get(key);
-      if(result != null)
+      Object  mapKey = toMapKey(key);
+      Node<V> node   = getFreshNode(mapKey);
+      if(node != null)
       {
-         if(result.getTime().isAfter(Instant.now().minus(timeout)))
+         //////////////////////////////////////////////////////////////////////////////
+         // ok, we have a memoized value, and it's not expired, so we can return it. //
+         // of course, it might be a memoized null, so we use .ofNullable.           //
+         //////////////////////////////////////////////////////////////////////////////
+         if(refreshAfter != null && System.currentTimeMillis() - node.storedAtMillis >= refreshAfter.toMillis())
          {
-            //////////////////////////////////////////////////////////////////////////////
-            // ok, we have a memoized value, and it's not expired, so we can return it. //
-            // of course, it might be a memoized null, so we use .ofNullable.           //
-            //////////////////////////////////////////////////////////////////////////////
-            return (Optional.ofNullable(result.getResult()));
+            refreshInBackground(key, mapKey, lookupFunction);
          }
+
+         return (Optional.ofNullable(node.memoizedResult.getResult()));
       }
 
       /////////////////////////////////////////////////////////////////////////////////////////////
@@ -121,9 +309,7 @@ public class Memoization<K, V>
       // store the result, and then return the value (in an Optional.ofNullable)                 //
       // and if the lookup function throws - then we let it throw.                               //
       /////////////////////////////////////////////////////////////////////////////////////////////
-      V value = lookupFunction.apply(key);
-      storeResult(key, value);
-      return (Optional.ofNullable(value));
+      return (Optional.ofNullable(load(key, mapKey, lookupFunction)));
    }
 
 
@@ -169,13 +355,10 @@ public class Memoization<K, V>
     *******************************************************************************/
    public Optional<MemoizedResult<V>> getMemoizedResult(K key)
    {
-      MemoizedResult<V> result = map.get(key);
-      if(result != null)
+      Node<V> node = getFreshNode(toMapKey(key));
+      if(node != null)
       {
-         if(result.getTime().isAfter(Instant.now().minus(timeout)))
-         {
-            return (Optional.of(result));
-         }
+         return (Optional.of(node.memoizedResult));
       }
 
       return (Optional.empty());
@@ -196,38 +379,27 @@ public class Memoization<K, V>
          return;
       }
 
-      map.put(key, new MemoizedResult<>(value));
+      //////////////////////////////////////////////////////////////////////////////////
+      // re-storing a key keeps its place in line for eviction (as a LinkedHashMap in //
+      // insertion-order would) - only brand-new keys go on the end of the queue.     //
+      //////////////////////////////////////////////////////////////////////////////////
+      MemoizedResult<V> memoizedResult = new MemoizedResult<>(value);
+      Object            mapKey         = toMapKey(key);
+      Node<V>           newNode        = new Node<>(mapKey, memoizedResult);
+      Node<V>           node           = map.compute(mapKey, (k, existingNode) -> existingNode == null ? newNode : existingNode.setMemoizedResult(memoizedResult));
+      if(node == newNode)
+      {
+         evictionQueue.add(newNode);
+         evictionQueueSize.incrementAndGet();
+      }
 
-      //////////////////////////////////////
-      // make sure map didn't get too big //
-      // do this thread safely, please    //
-      //////////////////////////////////////
+      ///////////////////////////////////////////////////////////
+      // make sure map didn't get too big, thread safely, but  //
+      // without making other threads wait on the evicting one //
+      ///////////////////////////////////////////////////////////
       try
       {
-         if(map.size() > maxSize)
-         {
-            synchronized(map)
-            {
-               Iterator<Map.Entry<K, MemoizedResult<V>>> iterator = null;
-               while(map.size() > maxSize)
-               {
-                  if(iterator == null)
-                  {
-                     iterator = map.entrySet().iterator();
-                  }
-
-                  if(iterator.hasNext())
-                  {
-                     iterator.next();
-                     iterator.remove();
-                  }
-                  else
-                  {
-                     break;
-                  }
-               }
-            }
-         }
+         evictIfNeeded();
       }
       catch(Exception e)
       {
@@ -243,6 +415,8 @@ public class Memoization<K, V>
    public void clear()
    {
       this.map.clear();
+      this.evictionQueue.clear();
+      this.evictionQueueSize.set(0);
    }
 
 
@@ -252,7 +426,313 @@ public class Memoization<K, V>
     *******************************************************************************/
    public void clearKey(K key)
    {
-      this.map.remove(key);
+      this.map.remove(toMapKey(key));
+   }
+
+
+
+   /*******************************************************************************
+    ** get the node for a key, if it's present and not expired (counting a hit or a
+    ** miss).  expired nodes are removed.
+    *******************************************************************************/
+   private Node<V> getFreshNode(Object mapKey)
+   {
+      Node<V> node = map.get(mapKey);
+      if(node != null)
+      {
+         if(System.currentTimeMillis() - node.storedAtMillis < timeout.toMillis())
+         {
+            hitCount.increment();
+            if(evictionPolicy == EvictionPolicy.FREQUENCY && node.frequency < MAX_FREQUENCY)
+            {
+               node.frequency++;
+            }
+            return (node);
+         }
+
+         map.remove(mapKey, node);
+      }
+
+      missCount.increment();
+      return (null);
+   }
+
+
+
+   /*******************************************************************************
+    ** run the lookup function for a key, and store its result - unless another
+    ** thread is already doing so, in which case, wait for and use its result.
+    *******************************************************************************/
+   private <E extends Exception> V load(K key, Object mapKey, UnsafeFunction<K, V, E> lookupFunction) throws E
+   {
+      InFlightLookup<V> inFlightLookup         = new InFlightLookup<>(Thread.currentThread());
+      InFlightLookup<V> existingInFlightLookup = inFlightLookups.putIfAbsent(mapKey, inFlightLookup);
+      if(existingInFlightLookup != null)
+      {
+         ///////////////////////////////////////////////////////////////////////////////////////
+         // wait for the other thread (unless it's this thread - e.g., a lookup function that //
+         // re-enters for its own key).  if that lookup failed, then do our own, so we throw  //
+         // (or not) just as we would have without the other thread.  ditto if it takes too   //
+         // long - e.g., lookups for two keys that each (in different threads) need the       //
+         // other's result would otherwise wait on each other forever.                        //
+         ///////////////////////////////////////////////////////////////////////////////////////
+         if(existingInFlightLookup.thread != Thread.currentThread() && existingInFlightLookup.await(inFlightLookupWaitTimeout))
+         {
+            return (existingInFlightLookup.value);
+         }
+
+         return (lookupAndStore(key, lookupFunction));
+      }
+
+      V       value     = null;
+      boolean succeeded = false;
+      try
+      {
+         value = lookupAndStore(key, lookupFunction);
+         succeeded = true;
+         return (value);
+      }
+      finally
+      {
+         inFlightLookups.remove(mapKey, inFlightLookup);
+         inFlightLookup.complete(succeeded, value);
+      }
+   }
+
+
+
+   /*******************************************************************************
+    **
+    *******************************************************************************/
+   private <E extends Exception> V lookupAndStore(K key, UnsafeFunction<K, V, E> lookupFunction) throws E
+   {
+      loadCount.increment();
+      V value;
+      try
+      {
+         value = lookupFunction.apply(key);
+      }
+      catch(Exception e)
+      {
+         loadFailureCount.increment();
+         throw (e);
+      }
+
+      storeResult(key, value);
+      return (value);
+   }
+
+
+
+   /*******************************************************************************
+    ** start a lookup for a key on a background thread (unless one is already
+    ** running for it), with the calling thread's QInstance & QSession.
+    *******************************************************************************/
+   private <E extends Exception> void refreshInBackground(K key, Object mapKey, UnsafeFunction<K, V, E> lookupFunction)
+   {
+      InFlightLookup<V> inFlightLookup = new InFlightLookup<>(null);
+      if(inFlightLookups.putIfAbsent(mapKey, inFlightLookup) != null)
+      {
+         return;
+      }
+
+      QInstance qInstance = QContext.getQInstance();
+      QSession  qSession  = QContext.getQSession();
+
+      try
+      {
+         getRefreshExecutor().execute(() ->
+         {
+            V       value     = null;
+            boolean succeeded = false;
+            try
+            {
+               QContext.init(qInstance, qSession);
+               value = lookupAndStore(key, lookupFunction);
+               succeeded = true;
+               refreshCount.increment();
+            }
+            catch(Exception e)
+            {
+               LOG.info("Error refreshing a memoized result in the background (the current result will be used until it times out)", e);
+            }
+            finally
+            {
+               inFlightLookups.remove(mapKey, inFlightLookup);
+               inFlightLookup.complete(succeeded, value);
+               QContext.clear();
+            }
+         });
+      }
+      catch(RejectedExecutionException e)
+      {
+         inFlightLookups.remove(mapKey, inFlightLookup);
+         inFlightLookup.complete(false, null);
+      }
+   }
+
+
+
+   /*******************************************************************************
+    ** get the shared executor for background refreshes - bounded (with no queue,
+    ** so extra refreshes are rejected, and skipped), with daemon threads that end
+    ** when idle - creating it, if needed.
+    *******************************************************************************/
+   private static synchronized ExecutorService getRefreshExecutor()
+   {
+      if(refreshExecutor == null || refreshExecutor.isShutdown())
+      {
+         ThreadFactory threadFactory = new PrefixedDefaultThreadFactory(Memoization.class);
+         refreshExecutor = new ThreadPoolExecutor(0, REFRESH_EXECUTOR_MAX_THREADS, 60, TimeUnit.SECONDS, new SynchronousQueue<>(), runnable ->
+         {
+            Thread thread = threadFactory.newThread(runnable);
+            thread.setDaemon(true);
+            return (thread);
+         });
+      }
+      return (refreshExecutor);
+   }
+
+
+
+   /*******************************************************************************
+    ** Shut down the executor used for background refreshes (e.g., when an
+    ** application is stopping).  Running refreshes are allowed to finish.  If a
+    ** refresh is needed later, a new executor is started.
+    *******************************************************************************/
+   public static synchronized void shutdownRefreshExecutor()
+   {
+      if(refreshExecutor != null)
+      {
+         refreshExecutor.shutdown();
+         refreshExecutor = null;
+      }
+   }
+
+
+
+   /*******************************************************************************
+    ** if the map is over its max size, drop results (per the evictionPolicy) -
+    ** unless another thread is already doing so.
+    *******************************************************************************/
+   private void evictIfNeeded()
+   {
+      Integer maxSize = this.maxSize;
+      boolean overMax = maxSize != null && map.size() > maxSize;
+
+      /////////////////////////////////////////////////////////////////////////////////
+      // the queue can hold nodes that were since removed from the map (by clearKey, //
+      // or expiring) - if there are a lot of those, clean them out.                 //
+      /////////////////////////////////////////////////////////////////////////////////
+      boolean queueNeedsPurged = evictionQueueSize.get() > 2 * map.size() + 100;
+
+      if((!overMax && !queueNeedsPurged) || !evictionLock.tryLock())
+      {
+         return;
+      }
+
+      try
+      {
+         if(queueNeedsPurged)
+         {
+            evictionQueue.removeIf(node -> !isLive(node));
+            evictionQueueSize.set(evictionQueue.size());
+         }
+
+         while(maxSize != null && map.size() > maxSize)
+         {
+            Node<V> victim = evictionPolicy == EvictionPolicy.FREQUENCY ? pollLeastFrequentNode() : pollLiveNode();
+            if(victim == null)
+            {
+               break;
+            }
+
+            if(map.remove(victim.mapKey, victim))
+            {
+               evictionCount.increment();
+            }
+         }
+      }
+      finally
+      {
+         evictionLock.unlock();
+      }
+   }
+
+
+
+   /*******************************************************************************
+    ** take the oldest node from the queue that's still in the map.
+    *******************************************************************************/
+   private Node<V> pollLiveNode()
+   {
+      Node<V> node;
+      while((node = evictionQueue.poll()) != null)
+      {
+         evictionQueueSize.decrementAndGet();
+         if(isLive(node))
+         {
+            return (node);
+         }
+      }
+      return (null);
+   }
+
+
+
+   /*******************************************************************************
+    ** of the few oldest nodes in the queue, take the least-used one - putting the
+    ** others at the back of the queue, with their use-counts halved.
+    *******************************************************************************/
+   private Node<V> pollLeastFrequentNode()
+   {
+      List<Node<V>> sample = new ArrayList<>(FREQUENCY_SAMPLE_SIZE);
+      Node<V>       node;
+      while(sample.size() < FREQUENCY_SAMPLE_SIZE && (node = pollLiveNode()) != null)
+      {
+         sample.add(node);
+      }
+
+      Node<V> victim = null;
+      for(Node<V> candidate : sample)
+      {
+         if(victim == null || candidate.frequency < victim.frequency)
+         {
+            victim = candidate;
+         }
+      }
+
+      for(Node<V> candidate : sample)
+      {
+         if(candidate != victim)
+         {
+            candidate.frequency = candidate.frequency / 2;
+            evictionQueue.add(candidate);
+            evictionQueueSize.incrementAndGet();
+         }
+      }
+
+      return (victim);
+   }
+
+
+
+   /*******************************************************************************
+    **
+    *******************************************************************************/
+   private boolean isLive(Node<V> node)
+   {
+      return (map.get(node.mapKey) == node);
+   }
+
+
+
+   /*******************************************************************************
+    **
+    *******************************************************************************/
+   private static Object toMapKey(Object key)
+   {
+      return (key == null ? NULL_KEY : key);
    }
 
 
@@ -280,12 +760,18 @@ public class Memoization<K, V>
 
 
    /*******************************************************************************
-    ** package-private - for tests to look at the map.
+    ** package-private - for tests to look at (a copy of) the map.
     **
     *******************************************************************************/
+   @SuppressWarnings("unchecked")
    Map<K, MemoizedResult<V>> getMap()
    {
-      return map;
+      Map<K, MemoizedResult<V>> rs = new HashMap<>();
+      for(Map.Entry<Object, Node<V>> entry : map.entrySet())
+      {
+         rs.put(entry.getKey() == NULL_KEY ? null : (K) entry.getKey(), entry.getValue().memoizedResult);
+      }
+      return (rs);
    }
 
 
@@ -361,4 +847,172 @@ public class Memoization<K, V>
       return (this);
    }
 
+
+
+   /*******************************************************************************
+    ** Getter for evictionPolicy
+    *******************************************************************************/
+   public EvictionPolicy getEvictionPolicy()
+   {
+      return (this.evictionPolicy);
+   }
+
+
+
+   /*******************************************************************************
+    ** Setter for evictionPolicy
+    *******************************************************************************/
+   public void setEvictionPolicy(EvictionPolicy evictionPolicy)
+   {
+      this.evictionPolicy = evictionPolicy;
+   }
+
+
+
+   /*******************************************************************************
+    ** Fluent setter for evictionPolicy
+    *******************************************************************************/
+   public Memoization<K, V> withEvictionPolicy(EvictionPolicy evictionPolicy)
+   {
+      this.evictionPolicy = evictionPolicy;
+      return (this);
+   }
+
+
+
+   /*******************************************************************************
+    ** Getter for refreshAfter
+    *******************************************************************************/
+   public Duration getRefreshAfter()
+   {
+      return (this.refreshAfter);
+   }
+
+
+
+   /*******************************************************************************
+    ** Setter for refreshAfter - age after which a result that's read (but hasn't
+    ** yet timed out) is re-looked-up, in the background.  null (the default)
+    ** means never.  Only applies to getResult & getResultThrowing.
+    *******************************************************************************/
+   public void setRefreshAfter(Duration refreshAfter)
+   {
+      this.refreshAfter = refreshAfter;
+   }
+
+
+
+   /*******************************************************************************
+    ** Fluent setter for refreshAfter
+    *******************************************************************************/
+   public Memoization<K, V> withRefreshAfter(Duration refreshAfter)
+   {
+      this.refreshAfter = refreshAfter;
+      return (this);
+   }
+
+
+
+   /*******************************************************************************
+    ** Getter for inFlightLookupWaitTimeout
+    *******************************************************************************/
+   public Duration getInFlightLookupWaitTimeout()
+   {
+      return (this.inFlightLookupWaitTimeout);
+   }
+
+
+
+   /*******************************************************************************
+    ** Setter for inFlightLookupWaitTimeout - how long a thread that misses on a
+    ** key waits for another thread's lookup of that key, before running the
+    ** lookup itself.  Default 30 seconds.
+    *******************************************************************************/
+   public void setInFlightLookupWaitTimeout(Duration inFlightLookupWaitTimeout)
+   {
+      this.inFlightLookupWaitTimeout = inFlightLookupWaitTimeout;
+   }
+
+
+
+   /*******************************************************************************
+    ** Fluent setter for inFlightLookupWaitTimeout
+    *******************************************************************************/
+   public Memoization<K, V> withInFlightLookupWaitTimeout(Duration inFlightLookupWaitTimeout)
+   {
+      this.inFlightLookupWaitTimeout = inFlightLookupWaitTimeout;
+      return (this);
+   }
+
+
+
+   /*******************************************************************************
+    ** Get the number of results currently memoized (including any that have
+    ** expired, but not yet been removed).
+    *******************************************************************************/
+   public int getSize()
+   {
+      return (map.size());
+   }
+
+
+
+   /*******************************************************************************
+    ** Getter for hitCount - number of gets that found a memoized result.
+    *******************************************************************************/
+   public long getHitCount()
+   {
+      return (hitCount.sum());
+   }
+
+
+
+   /*******************************************************************************
+    ** Getter for missCount - number of gets that did not find a memoized result.
+    *******************************************************************************/
+   public long getMissCount()
+   {
+      return (missCount.sum());
+   }
+
+
+
+   /*******************************************************************************
+    ** Getter for loadCount - number of times a lookup function was ran.
+    *******************************************************************************/
+   public long getLoadCount()
+   {
+      return (loadCount.sum());
+   }
+
+
+
+   /*******************************************************************************
+    ** Getter for loadFailureCount - number of times a lookup function threw.
+    *******************************************************************************/
+   public long getLoadFailureCount()
+   {
+      return (loadFailureCount.sum());
+   }
+
+
+
+   /*******************************************************************************
+    ** Getter for refreshCount - number of successful background refreshes.
+    *******************************************************************************/
+   public long getRefreshCount()
+   {
+      return (refreshCount.sum());
+   }
+
+
+
+   /*******************************************************************************
+    ** Getter for evictionCount - number of results dropped for being over maxSize.
+    *******************************************************************************/
+   public long getEvictionCount()
+   {
+      return (evictionCount.sum());
+   }
+
 }
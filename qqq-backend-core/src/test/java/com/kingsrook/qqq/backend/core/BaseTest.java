@@ -24,6 +24,7 @@ package com.kingsrook.qqq.backend.core;
 
 import java.time.ZoneId;
 import java.util.TimeZone;
+import com.kingsrook.qqq.backend.core.actions.audits.AuditAction;
 import com.kingsrook.qqq.backend.core.actions.metadata.personalization.ExamplePersonalizer;
 import com.kingsrook.qqq.backend.core.context.QContext;
 import com.kingsrook.qqq.backend.core.logging.QLogger;
@@ -108,6 +109,11 @@ public class BaseTest
       MemoryRecordStore.getInstance().reset();
       MemoryRecordStore.resetStatistics();
       MemoryRecordStore.setCollectStatistics(false);
+
+      ///////////////////////////////////////////////////////////////////////
+      // the audit table & user records whose ids it caches are gone now.  //
+      ///////////////////////////////////////////////////////////////////////
+      AuditAction.clearCachedIds();
    }
 
 
@@ -22,14 +22,26 @@
 package com.kingsrook.qqq.backend.core.actions.async;
 
 
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 import com.kingsrook.qqq.backend.core.BaseTest;
+import com.kingsrook.qqq.backend.core.context.QContext;
 import com.kingsrook.qqq.backend.core.exceptions.QException;
+import com.kingsrook.qqq.backend.core.model.metadata.AsyncJobExecutorMetaData;
 import org.junit.jupiter.api.Test;
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
 import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.junit.jupiter.api.Assertions.fail;
 
 
@@ -164,4 +176,242 @@ class AsyncJobManagerTest extends BaseTest
       }
    }
 
-}
\ No newline at end of file
+
+
+   /*******************************************************************************
+    **
+    *******************************************************************************/
+   @Test
+   public void testMaxConcurrentJobsByType() throws QException, InterruptedException
+   {
+      QContext.getQInstance().setAsyncJobExecutorMetaData(new AsyncJobExecutorMetaData()
+         .withMaxConcurrentJobsForType("Limited", 2));
+
+      AtomicInteger   running         = new AtomicInteger(0);
+      AtomicInteger   maxRunning      = new AtomicInteger(0);
+      AtomicInteger   hadQInstance    = new AtomicInteger(0);
+      List<String>    jobUUIDs        = new ArrayList<>();
+      AsyncJobManager asyncJobManager = new AsyncJobManager();
+      for(int i = 0; i < 6; i++)
+      {
+         jobUUIDs.add(asyncJobManager.startJob("Limited-" + i, (callback) ->
+         {
+            if(QContext.getQInstance() != null)
+            {
+               hadQInstance.incrementAndGet();
+            }
+
+            maxRunning.accumulateAndGet(running.incrementAndGet(), Math::max);
+            Thread.sleep(50);
+            running.decrementAndGet();
+            return (ANSWER);
+         }));
+      }
+
+      for(String jobUUID : jobUUIDs)
+      {
+         for(int i = 0; i < 100 && asyncJobManager.getJobStatus(jobUUID).get().getState().equals(AsyncJobState.RUNNING); i++)
+         {
+            Thread.sleep(20);
+         }
+         assertEquals(AsyncJobState.COMPLETE, asyncJobManager.getJobStatus(jobUUID).get().getState());
+      }
+
+      assertEquals(2, maxRunning.get());
+      assertEquals(6, hadQInstance.get());
+   }
+
+
+
+   /*******************************************************************************
+    **
+    *******************************************************************************/
+   @Test
+   void testJobTypeLimitLongestPrefixMatch()
+   {
+      DefaultAsyncJobExecutorStrategy strategy = new DefaultAsyncJobExecutorStrategy();
+      strategy.initialize(new AsyncJobExecutorMetaData()
+         .withMaxConcurrentJobsForType("RunProcess", 5)
+         .withMaxConcurrentJobsForType("RunProcess>bigReport", 1));
+
+      assertNull(strategy.getJobTypeLimit("Anonymous"));
+      assertEquals(5, strategy.getJobTypeLimit("RunProcess>other").getMaxConcurrentJobs());
+      assertEquals(1, strategy.getJobTypeLimit("RunProcess>bigReport>step").getMaxConcurrentJobs());
+   }
+
+
+
+   /*******************************************************************************
+    **
+    *******************************************************************************/
+   @Test
+   void testPlatformPoolRejectsPastMaxThreads() throws Exception
+   {
+      DefaultAsyncJobExecutorStrategy strategy = new DefaultAsyncJobExecutorStrategy();
+      strategy.initialize(new AsyncJobExecutorMetaData()
+         .withUseVirtualThreads(false)
+         .withCoreThreads(1)
+         .withMaxThreads(1));
+
+      try
+      {
+         //////////////////////////////////////////////////////////////////////////
+         // while one job is running, a second one should be rejected by the     //
+         // platform pool - then accepted once the first is done.                //
+         //////////////////////////////////////////////////////////////////////////
+         CountDownLatch            latch     = new CountDownLatch(1);
+         CompletableFuture<String> firstJob  = strategy.submit("first", () ->
+         {
+            try
+            {
+               latch.await();
+            }
+            catch(InterruptedException e)
+            {
+               Thread.currentThread().interrupt();
+            }
+            return ("first");
+         });
+
+         assertThrows(RejectedExecutionException.class, () -> strategy.submit("second", () -> "second"));
+
+         latch.countDown();
+         assertEquals("first", firstJob.get(5, TimeUnit.SECONDS));
+
+         CompletableFuture<String> thirdJob = null;
+         for(int i = 0; i < 100 && thirdJob == null; i++)
+         {
+            try
+            {
+               thirdJob = strategy.submit("third", () -> "third");
+            }
+            catch(RejectedExecutionException e)
+            {
+               /////////////////////////////////////////////////////////////
+               // the first job's thread may not be released quite yet... //
+               /////////////////////////////////////////////////////////////
+               Thread.sleep(10);
+            }
+         }
+         assertNotNull(thirdJob);
+         assertEquals("third", thirdJob.get(5, TimeUnit.SECONDS));
+      }
+      finally
+      {
+         strategy.shutdown();
+      }
+
+      assertTrue(strategy.getExecutorService().isShutdown());
+   }
+
+
+
+
+   /*******************************************************************************
+    **
+    *******************************************************************************/
+   @Test
+   void testVirtualThreadsWaitPastMaxThreads() throws Exception
+   {
+      DefaultAsyncJobExecutorStrategy strategy = new DefaultAsyncJobExecutorStrategy();
+      strategy.initialize(new AsyncJobExecutorMetaData()
+         .withCoreThreads(1)
+         .withMaxThreads(1));
+
+      try
+      {
+         if(strategy.getExecutorService() instanceof ThreadPoolExecutor)
+         {
+            //////////////////////////////////////////////////////////////
+            // nothing to test on a JVM without virtual threads (< 21). //
+            //////////////////////////////////////////////////////////////
+            return;
+         }
+
+         /////////////////////////////////////////////////////////////////////////////
+         // on virtual threads, a job past maxThreads should be accepted, and wait  //
+         // to run until the running job finishes - not be rejected.               //
+         /////////////////////////////////////////////////////////////////////////////
+         CountDownLatch            latch     = new CountDownLatch(1);
+         CompletableFuture<String> firstJob  = strategy.submit("first", () -> awaitLatch(latch, "first"));
+         CompletableFuture<String> secondJob = strategy.submit("second", () -> "second");
+
+         Thread.sleep(50);
+         assertFalse(secondJob.isDone());
+
+         latch.countDown();
+         assertEquals("first", firstJob.get(5, TimeUnit.SECONDS));
+         assertEquals("second", secondJob.get(5, TimeUnit.SECONDS));
+      }
+      finally
+      {
+         strategy.shutdown();
+      }
+   }
+
+
+
+   /*******************************************************************************
+    **
+    *******************************************************************************/
+   @Test
+   void testJobsWaitingForTypeLimitDoNotHoldPoolThreads() throws Exception
+   {
+      DefaultAsyncJobExecutorStrategy strategy = new DefaultAsyncJobExecutorStrategy();
+      strategy.initialize(new AsyncJobExecutorMetaData()
+         .withUseVirtualThreads(false)
+         .withCoreThreads(1)
+         .withMaxThreads(2)
+         .withMaxConcurrentJobsForType("Limited", 1));
+
+      try
+      {
+         //////////////////////////////////////////////////////////////////////////////
+         // with one limited job running, a second one should be queued - not wait   //
+         // on a pool thread - so the pool's other thread is free for another job.   //
+         //////////////////////////////////////////////////////////////////////////////
+         CountDownLatch            latch        = new CountDownLatch(1);
+         CompletableFuture<String> firstJob     = strategy.submit("Limited-1", () -> awaitLatch(latch, "Limited-1"));
+         CompletableFuture<String> secondJob    = strategy.submit("Limited-2", () -> "Limited-2");
+         CompletableFuture<String> unlimitedJob = strategy.submit("Other", () -> "Other");
+
+         assertEquals("Other", unlimitedJob.get(5, TimeUnit.SECONDS));
+         assertFalse(secondJob.isDone());
+         assertEquals(1, strategy.getJobTypeLimit("Limited-2").getQueueLength());
+
+         latch.countDown();
+         assertEquals("Limited-1", firstJob.get(5, TimeUnit.SECONDS));
+         assertEquals("Limited-2", secondJob.get(5, TimeUnit.SECONDS));
+
+         for(int i = 0; i < 100 && strategy.getJobTypeLimit("Limited").getRunningJobs() > 0; i++)
+         {
+            Thread.sleep(10);
+         }
+         assertEquals(0, strategy.getJobTypeLimit("Limited").getRunningJobs());
+         assertEquals(0, strategy.getJobTypeLimit("Limited").getQueueLength());
+      }
+      finally
+      {
+         strategy.shutdown();
+      }
+   }
+
+
+
+   /*******************************************************************************
+    **
+    *******************************************************************************/
+   private static String awaitLatch(CountDownLatch latch, String result)
+   {
+      try
+      {
+         latch.await();
+      }
+      catch(InterruptedException e)
+      {
+         Thread.currentThread().interrupt();
+      }
+      return (result);
+   }
+
+}
@@ -0,0 +1,249 @@
+/*
+ * QQQ - Low-code Application Framework for Engineers.
+ * Copyright (C) 2021-2024.  Kingsrook, LLC
+ * 651 N Broad St Ste 205 # 6917 | Middletown DE 19709 | United States
+ * contact@kingsrook.com
+ * https://github.com/Kingsrook/
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+
+package com.kingsrook.qqq.backend.core.actions.audits;
+
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Stream;
+import com.kingsrook.qqq.backend.core.BaseTest;
+import com.kingsrook.qqq.backend.core.actions.tables.InsertAction;
+import com.kingsrook.qqq.backend.core.context.QContext;
+import com.kingsrook.qqq.backend.core.exceptions.QException;
+import com.kingsrook.qqq.backend.core.model.actions.audits.AuditInput;
+import com.kingsrook.qqq.backend.core.model.actions.audits.AuditSingleInput;
+import com.kingsrook.qqq.backend.core.model.actions.tables.insert.InsertInput;
+import com.kingsrook.qqq.backend.core.model.audits.AuditsMetaDataProvider;
+import com.kingsrook.qqq.backend.core.model.data.QRecord;
+import com.kingsrook.qqq.backend.core.model.metadata.QInstance;
+import com.kingsrook.qqq.backend.core.model.metadata.audits.AuditJournalMetaData;
+import com.kingsrook.qqq.backend.core.model.metadata.audits.AuditLevel;
+import com.kingsrook.qqq.backend.core.model.metadata.audits.QAuditRules;
+import com.kingsrook.qqq.backend.core.model.session.QSession;
+import com.kingsrook.qqq.backend.core.model.session.QUser;
+import com.kingsrook.qqq.backend.core.modules.backend.implementations.memory.MemoryRecordStore;
+import com.kingsrook.qqq.backend.core.processes.utils.GeneralProcessUtils;
+import com.kingsrook.qqq.backend.core.utils.JsonUtils;
+import com.kingsrook.qqq.backend.core.utils.TestUtils;
+import org.json.JSONObject;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+
+/*******************************************************************************
+ ** Unit test for AuditJournal
+ *******************************************************************************/
+class AuditJournalTest extends BaseTest
+{
+
+   /*******************************************************************************
+    **
+    *******************************************************************************/
+   @AfterEach
+   void afterEach()
+   {
+      AuditJournal.flushAll(5000);
+   }
+
+
+
+   /*******************************************************************************
+    **
+    *******************************************************************************/
+   @Test
+   void testDMLAuditsAreJournaled() throws QException
+   {
+      QInstance qInstance = QContext.getQInstance();
+      new AuditsMetaDataProvider().defineAll(qInstance, TestUtils.MEMORY_BACKEND_NAME, null);
+      qInstance.getTable(TestUtils.TABLE_NAME_PERSON_MEMORY).setAuditRules(new QAuditRules().withAuditLevel(AuditLevel.RECORD));
+      qInstance.setAuditJournalMetaData(new AuditJournalMetaData().withFlushIntervalMillis(10));
+
+      new InsertAction().execute(new InsertInput(TestUtils.TABLE_NAME_PERSON_MEMORY).withRecords(List.of(
+         new QRecord().withValue("firstName", "Darin"),
+         new QRecord().withValue("firstName", "Tim"),
+         new QRecord().withValue("firstName", "James"))));
+
+      assertTrue(AuditJournal.getJournal(qInstance).flush(5000));
+
+      List<QRecord> auditList = TestUtils.queryTable("audit");
+      assertEquals(3, auditList.size());
+      assertTrue(auditList.stream().allMatch(r -> "Record was Inserted".equals(r.getValueString("message"))));
+      assertTrue(auditList.stream().allMatch(r -> r.getValue("timestamp") != null));
+
+      ////////////////////////////////////////////////////////////
+      // user name should be from the session that did the DML //
+      ////////////////////////////////////////////////////////////
+      GeneralProcessUtils.getRecordByFieldOrElseThrow("auditUser", "name", "Anonymous");
+   }
+
+
+
+   /*******************************************************************************
+    **
+    *******************************************************************************/
+   @Test
+   void testNoJournalWithoutMetaData()
+   {
+      assertNull(AuditJournal.getJournal(QContext.getQInstance()));
+   }
+
+
+
+   /*******************************************************************************
+    **
+    *******************************************************************************/
+   @Test
+   void testSpillToDisk() throws Exception
+   {
+      Path spillDirectory = Files.createTempDirectory(getClass().getSimpleName());
+
+      QInstance qInstance = QContext.getQInstance();
+      new AuditsMetaDataProvider().defineAll(qInstance, TestUtils.MEMORY_BACKEND_NAME, null);
+      qInstance.setAuditJournalMetaData(new AuditJournalMetaData()
+         .withQueueCapacity(1)
+         .withFlushIntervalMillis(10)
+         .withOverflowPolicy(AuditJournalMetaData.OverflowPolicy.SPILL_TO_DISK)
+         .withSpillDirectory(spillDirectory.toString()));
+
+      List<AuditSingleInput> auditSingleInputs = new ArrayList<>();
+      for(int i = 1; i <= 20; i++)
+      {
+         auditSingleInputs.add(new AuditSingleInput()
+            .withAuditTableName(TestUtils.TABLE_NAME_PERSON_MEMORY)
+            .withRecordId(i)
+            .withMessage("Audit " + i)
+            .withDetailMessages(List.of("Detail " + i)));
+      }
+
+      AuditJournal journal = AuditJournal.getJournal(qInstance);
+      journal.submit(new AuditInput().withAuditSingleInputList(auditSingleInputs));
+      assertTrue(journal.flush(5000));
+
+      assertEquals(20, TestUtils.queryTable("audit").size());
+      assertEquals(20, TestUtils.queryTable("auditDetail").size());
+
+      try(Stream<Path> files = Files.list(spillDirectory))
+      {
+         assertEquals(0, files.count());
+      }
+   }
+
+
+
+   /*******************************************************************************
+    **
+    *******************************************************************************/
+   @Test
+   void testSpillJson() throws Exception
+   {
+      Instant  timestamp = Instant.parse("2024-01-01T12:34:56Z");
+      QSession session   = new QSession().withUser(new QUser().withFullName("Darin")).withSecurityKeyValue("clientId", 1);
+
+      String json = AuditJournal.toSpillJson(session, List.of(new AuditSingleInput()
+         .withAuditTableName(TestUtils.TABLE_NAME_PERSON_MEMORY)
+         .withAuditUserName("Darin")
+         .withTimestamp(timestamp)
+         .withRecordId(17)
+         .withMessage("Record was Edited")
+         .withSecurityKeyValues(Map.of("clientId", 1))
+         .withDetailMessages(List.of("Set First Name to Tim"))));
+
+      /////////////////////////////////////////////////////////////////
+      // only the user's name should be stored - not, e.g., its keys //
+      /////////////////////////////////////////////////////////////////
+      JSONObject spillJson = JsonUtils.toJSONObject(json);
+      assertEquals(Set.of("userName", "audits"), spillJson.keySet());
+      assertEquals("Darin", spillJson.getString("userName"));
+
+      List<AuditSingleInput> auditSingleInputs = AuditJournal.fromSpillJson(spillJson);
+      assertEquals(1, auditSingleInputs.size());
+      AuditSingleInput auditSingleInput = auditSingleInputs.get(0);
+      assertEquals(TestUtils.TABLE_NAME_PERSON_MEMORY, auditSingleInput.getAuditTableName());
+      assertEquals("Darin", auditSingleInput.getAuditUserName());
+      assertEquals(timestamp, auditSingleInput.getTimestamp());
+      assertEquals(17, auditSingleInput.getRecordId());
+      assertEquals("Record was Edited", auditSingleInput.getMessage());
+      assertEquals(Map.of("clientId", 1), auditSingleInput.getSecurityKeyValues());
+      assertEquals("Set First Name to Tim", auditSingleInput.getDetails().get(0).getValueString("message"));
+   }
+
+
+
+   /*******************************************************************************
+    **
+    *******************************************************************************/
+   @Test
+   void testFailedBatchIsRetriedPerAudit() throws QException
+   {
+      QInstance qInstance = QContext.getQInstance();
+      new AuditsMetaDataProvider().defineAll(qInstance, TestUtils.MEMORY_BACKEND_NAME, null);
+      qInstance.setAuditJournalMetaData(new AuditJournalMetaData().withFlushIntervalMillis(10));
+
+      ///////////////////////////////////////////////////////////////////////////
+      // an audit for an unknown table fails its batch - but the others in the //
+      // batch should still be written, with just the bad one counted failed.  //
+      ///////////////////////////////////////////////////////////////////////////
+      AuditJournal journal = AuditJournal.getJournal(qInstance);
+      journal.submit(new AuditInput().withAuditSingleInputList(List.of(
+         new AuditSingleInput().withAuditTableName(TestUtils.TABLE_NAME_PERSON_MEMORY).withRecordId(1).withMessage("Good 1"),
+         new AuditSingleInput().withAuditTableName("notATable").withRecordId(2).withMessage("Bad"),
+         new AuditSingleInput().withAuditTableName(TestUtils.TABLE_NAME_PERSON_MEMORY).withRecordId(3).withMessage("Good 2"))));
+      assertTrue(journal.flush(5000));
+
+      List<QRecord> auditList = TestUtils.queryTable("audit");
+      assertEquals(2, auditList.size());
+      assertEquals(1, journal.getFailedCount());
+   }
+
+
+
+   /*******************************************************************************
+    **
+    *******************************************************************************/
+   @Test
+   void testIdsForNamesAreCachedAcrossAuditActions() throws QException
+   {
+      QInstance qInstance = QContext.getQInstance();
+      new AuditsMetaDataProvider().defineAll(qInstance, TestUtils.MEMORY_BACKEND_NAME, null);
+      MemoryRecordStore.setCollectStatistics(true);
+
+      AuditAction.execute(TestUtils.TABLE_NAME_PERSON_MEMORY, 1, Map.of(), "First");
+      int queriesForFirstAudit = MemoryRecordStore.getStatistics().getOrDefault(MemoryRecordStore.STAT_QUERIES_RAN, 0);
+
+      MemoryRecordStore.resetStatistics();
+      AuditAction.execute(TestUtils.TABLE_NAME_PERSON_MEMORY, 2, Map.of(), "Second");
+      int queriesForSecondAudit = MemoryRecordStore.getStatistics().getOrDefault(MemoryRecordStore.STAT_QUERIES_RAN, 0);
+
+      assertThat(queriesForSecondAudit).isLessThan(queriesForFirstAudit);
+   }
+
+}
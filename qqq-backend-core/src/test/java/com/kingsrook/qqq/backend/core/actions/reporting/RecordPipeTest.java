@@ -0,0 +1,151 @@
+/*
+ * QQQ - Low-code Application Framework for Engineers.
+ * Copyright (C) 2021-2025.  Kingsrook, LLC
+ * 651 N Broad St Ste 205 # 6917 | Middletown DE 19709 | United States
+ * contact@kingsrook.com
+ * https://github.com/Kingsrook/
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+
+package com.kingsrook.qqq.backend.core.actions.reporting;
+
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import com.kingsrook.qqq.backend.core.BaseTest;
+import com.kingsrook.qqq.backend.core.model.data.QRecord;
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+
+/*******************************************************************************
+ ** Unit test for RecordPipe
+ *******************************************************************************/
+class RecordPipeTest extends BaseTest
+{
+
+   /*******************************************************************************
+    **
+    *******************************************************************************/
+   @Test
+   void testAwaitTimesOutWhenTooFewRecords() throws Exception
+   {
+      RecordPipe pipe = new RecordPipe();
+      pipe.addRecord(new QRecord().withValue("id", 1));
+
+      assertFalse(pipe.awaitAvailableRecords(5, 10, TimeUnit.MILLISECONDS));
+      assertTrue(pipe.awaitAvailableRecords(1, 10, TimeUnit.MILLISECONDS));
+      assertEquals(1, pipe.countAvailableRecords());
+   }
+
+
+
+   /*******************************************************************************
+    **
+    *******************************************************************************/
+   @Test
+   void testAwaitWakesWhenProducerFinishes() throws Exception
+   {
+      RecordPipe pipe = new RecordPipe();
+      CompletableFuture.runAsync(() ->
+      {
+         pipe.signalProducerFinished();
+      });
+
+      //////////////////////////////////////////////////////////////////////
+      // with a very long timeout - we'd hang here if we weren't signaled //
+      //////////////////////////////////////////////////////////////////////
+      assertTrue(pipe.awaitAvailableRecords(5, 1, TimeUnit.MINUTES));
+      assertEquals(0, pipe.countAvailableRecords());
+   }
+
+
+
+   /*******************************************************************************
+    ** make sure that a producer blocked on a full pipe gets woken up as the
+    ** consumer drains it, and that all records make it through.
+    *******************************************************************************/
+   @Test
+   void testBlockingHandOffWithSmallCapacity() throws Exception
+   {
+      RecordPipe pipe = new RecordPipe(5);
+
+      CompletableFuture<Void> producer = CompletableFuture.runAsync(() ->
+      {
+         try
+         {
+            for(int i = 0; i < 1000; i++)
+            {
+               pipe.addRecord(new QRecord().withValue("id", i));
+            }
+         }
+         catch(Exception e)
+         {
+            throw (new RuntimeException(e));
+         }
+         finally
+         {
+            pipe.signalProducerFinished();
+         }
+      });
+
+      List<QRecord> consumed = new ArrayList<>();
+      while(!producer.isDone() || pipe.countAvailableRecords() > 0)
+      {
+         pipe.awaitAvailableRecords(5, 100, TimeUnit.MILLISECONDS);
+         consumed.addAll(pipe.consumeAvailableRecords());
+      }
+      producer.get();
+
+      assertEquals(1000, consumed.size());
+      assertEquals(0, consumed.get(0).getValueInteger("id"));
+      assertEquals(999, consumed.get(999).getValueInteger("id"));
+   }
+
+
+
+   /*******************************************************************************
+    **
+    *******************************************************************************/
+   @Test
+   void testTerminateReleasesBlockedProducer() throws Exception
+   {
+      RecordPipe pipe = new RecordPipe(1);
+      pipe.addRecord(new QRecord().withValue("id", 1));
+
+      CompletableFuture<Void> producer = CompletableFuture.runAsync(() ->
+      {
+         try
+         {
+            pipe.addRecord(new QRecord().withValue("id", 2));
+         }
+         catch(Exception e)
+         {
+            throw (new RuntimeException(e));
+         }
+      });
+
+      pipe.terminate();
+      producer.get(1, TimeUnit.MINUTES);
+      assertEquals(0, pipe.countAvailableRecords());
+      assertTrue(pipe.awaitAvailableRecords(1, 1, TimeUnit.MINUTES));
+   }
+
+}
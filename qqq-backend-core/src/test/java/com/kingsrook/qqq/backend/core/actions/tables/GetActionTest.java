@@ -22,6 +22,7 @@
 package com.kingsrook.qqq.backend.core.actions.tables;
 
 
+import java.util.Arrays;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
@@ -33,6 +34,7 @@ import com.kingsrook.qqq.backend.core.model.actions.tables.QInputSource;
 import com.kingsrook.qqq.backend.core.model.actions.tables.get.GetInput;
 import com.kingsrook.qqq.backend.core.model.actions.tables.get.GetOutput;
 import com.kingsrook.qqq.backend.core.model.actions.tables.insert.InsertInput;
+import com.kingsrook.qqq.backend.core.model.actions.tables.query.QueryInput;
 import com.kingsrook.qqq.backend.core.model.data.QRecord;
 import com.kingsrook.qqq.backend.core.model.metadata.QInstance;
 import com.kingsrook.qqq.backend.core.model.metadata.fields.CaseChangeBehavior;
@@ -46,6 +48,7 @@ import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
 import static org.junit.jupiter.api.Assertions.assertNull;
 
 
@@ -147,4 +150,74 @@ class GetActionTest extends BaseTest
       assertEquals("DARIN", new GetAction().executeForRecord(new GetInput(TestUtils.TABLE_NAME_PERSON_MEMORY).withPrimaryKey(1).withInputSource(QInputSource.USER)).getValueString("firstName"));
    }
 
+
+
+   /*******************************************************************************
+    **
+    *******************************************************************************/
+   @Test
+   void testBatchByPrimaryKeys() throws QException
+   {
+      TestUtils.insertDefaultShapes(QContext.getQInstance());
+      MemoryRecordStore.setCollectStatistics(true);
+
+      int originalBatchPageSize = GetAction.getBatchPageSize();
+      try
+      {
+         GetAction.setBatchPageSize(2);
+
+         ////////////////////////////////////////////////////////////////////////////
+         // 3 distinct keys (one as a string), one repeated, one missing, one null //
+         ////////////////////////////////////////////////////////////////////////////
+         List<QRecord> records = new GetAction().executeForRecords(new GetInput(TestUtils.TABLE_NAME_SHAPE).withPrimaryKeys(Arrays.asList(3, 99, "1", 3, null)));
+         assertEquals(5, records.size());
+         assertEquals("Circle", records.get(0).getValueString("name"));
+         assertNull(records.get(1));
+         assertEquals("Triangle", records.get(2).getValueString("name"));
+         assertEquals("Circle", records.get(3).getValueString("name"));
+         assertNotSame(records.get(0), records.get(3));
+         assertNull(records.get(4));
+
+         ////////////////////////////////////////////////////////////
+         // 3 distinct keys, 2 per page - so 2 queries, not 3 gets //
+         ////////////////////////////////////////////////////////////
+         assertEquals(2, MemoryRecordStore.getStatistics().get(MemoryRecordStore.STAT_QUERIES_RAN));
+      }
+      finally
+      {
+         GetAction.setBatchPageSize(originalBatchPageSize);
+         MemoryRecordStore.setCollectStatistics(false);
+      }
+   }
+
+
+
+   /*******************************************************************************
+    **
+    *******************************************************************************/
+   @Test
+   void testBatchByUniqueKeysFillsCacheTable() throws QException
+   {
+      new InsertAction().execute(new InsertInput(TestUtils.TABLE_NAME_PERSON_MEMORY).withRecords(List.of(
+         new QRecord().withValue("firstName", "Darin").withValue("lastName", "Kelkhoff"),
+         new QRecord().withValue("firstName", "Tim").withValue("lastName", "Chamberlain")
+      )));
+
+      List<QRecord> records = new GetAction().executeForRecords(new GetInput(TestUtils.TABLE_NAME_PERSON_MEMORY_CACHE).withUniqueKeys(List.of(
+         Map.of("firstName", "Tim", "lastName", "Chamberlain"),
+         Map.of("firstName", "James", "lastName", "Maes"),
+         Map.of("firstName", "Darin", "lastName", "Kelkhoff")
+      )));
+
+      assertEquals(3, records.size());
+      assertEquals("Chamberlain", records.get(0).getValueString("lastName"));
+      assertNull(records.get(1));
+      assertEquals("Kelkhoff", records.get(2).getValueString("lastName"));
+
+      //////////////////////////////////////////////////////////////
+      // both found records should now be in the cache table, too //
+      //////////////////////////////////////////////////////////////
+      assertEquals(2, new QueryAction().execute(new QueryInput(TestUtils.TABLE_NAME_PERSON_MEMORY_CACHE)).getRecords().size());
+   }
+
 }
@@ -52,6 +52,7 @@ import com.kingsrook.qqq.backend.core.model.metadata.tables.Capability;
 import com.kingsrook.qqq.backend.core.model.metadata.tables.QTableMetaData;
 import com.kingsrook.qqq.backend.core.model.querystats.QueryStat;
 import com.kingsrook.qqq.backend.core.model.querystats.QueryStatMetaDataProvider;
+import com.kingsrook.qqq.backend.core.model.querystats.QueryStatSummary;
 import com.kingsrook.qqq.backend.core.model.session.QSession;
 import com.kingsrook.qqq.backend.core.model.tables.QQQTablesMetaDataProvider;
 import com.kingsrook.qqq.backend.core.modules.backend.implementations.mock.MockQueryAction;
@@ -463,6 +464,57 @@ class QueryActionTest extends BaseTest
 
 
 
+   /*******************************************************************************
+    **
+    *******************************************************************************/
+   @Test
+   void testQueryManagerAggregated() throws QException
+   {
+      QInstance qInstance = QContext.getQInstance();
+      qInstance.getBackend(TestUtils.MEMORY_BACKEND_NAME).withCapability(Capability.QUERY_STATS);
+      new QQQTablesMetaDataProvider().defineAll(qInstance, TestUtils.MEMORY_BACKEND_NAME, TestUtils.MEMORY_BACKEND_NAME, null);
+      new QueryStatMetaDataProvider().defineAll(qInstance, TestUtils.MEMORY_BACKEND_NAME, null);
+      QueryStatManager.getInstance().setAggregate(true);
+      QueryStatManager.getInstance().start(QContext.getQInstance(), QSession::new);
+
+      try
+      {
+         ////////////////////////////////////////////////////////////////////
+         // run the same shape of query a few times, with different values //
+         ////////////////////////////////////////////////////////////////////
+         for(int i = 0; i < 3; i++)
+         {
+            QueryInput queryInput = new QueryInput(TestUtils.TABLE_NAME_ORDER);
+            queryInput.setFilter(new QQueryFilter(new QFilterCriteria("id", QCriteriaOperator.EQUALS, i)).withOrderBy(new QFilterOrderBy("id")));
+            QContext.pushAction(queryInput);
+            new QueryAction().execute(queryInput);
+         }
+
+         QueryStatManager.getInstance().storeStatsNow();
+         QContext.init(qInstance, new QSession());
+
+         //////////////////////////////////////////////////////////////////////
+         // should be one summary for those 3 queries, and no QueryStat rows //
+         //////////////////////////////////////////////////////////////////////
+         List<QRecord> summaries = new QueryAction().execute(new QueryInput(QueryStatSummary.TABLE_NAME)).getRecords().stream()
+            .filter(r -> r.getValueString("filterShape").contains("id EQUALS") && r.getValueString("filterShape").endsWith("ORDER BY id"))
+            .toList();
+         assertEquals(1, summaries.size());
+         assertEquals(3, summaries.get(0).getValueInteger("queryCount"));
+         assertNotNull(summaries.get(0).getValueString("histogram"));
+         assertNotNull(summaries.get(0).getValue("p99Millis"));
+
+         assertEquals(0, new QueryAction().execute(new QueryInput(QueryStat.TABLE_NAME)).getRecords().size());
+      }
+      finally
+      {
+         QueryStatManager.getInstance().setAggregate(false);
+         QueryStatManager.getInstance().stop();
+      }
+   }
+
+
+
    /*******************************************************************************
     **
     *******************************************************************************/
@@ -0,0 +1,181 @@
+/*
+ * QQQ - Low-code Application Framework for Engineers.
+ * Copyright (C) 2021-2024.  Kingsrook, LLC
+ * 651 N Broad St Ste 205 # 6917 | Middletown DE 19709 | United States
+ * contact@kingsrook.com
+ * https://github.com/Kingsrook/
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+
+package com.kingsrook.qqq.backend.core.actions.tables;
+
+
+import java.util.List;
+import java.util.Set;
+import com.kingsrook.qqq.backend.core.BaseTest;
+import com.kingsrook.qqq.backend.core.context.QContext;
+import com.kingsrook.qqq.backend.core.exceptions.QException;
+import com.kingsrook.qqq.backend.core.model.actions.tables.insert.InsertInput;
+import com.kingsrook.qqq.backend.core.model.actions.tables.upsert.UpsertInput;
+import com.kingsrook.qqq.backend.core.model.actions.tables.upsert.UpsertOutput;
+import com.kingsrook.qqq.backend.core.model.data.QRecord;
+import com.kingsrook.qqq.backend.core.model.metadata.QInstance;
+import com.kingsrook.qqq.backend.core.model.metadata.tables.QTableMetaData;
+import com.kingsrook.qqq.backend.core.model.metadata.tables.UniqueKey;
+import com.kingsrook.qqq.backend.core.modules.backend.implementations.memory.MemoryRecordStore;
+import com.kingsrook.qqq.backend.core.utils.TestUtils;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+
+/*******************************************************************************
+ ** Unit test for UpsertAction
+ *******************************************************************************/
+class UpsertActionTest extends BaseTest
+{
+
+   /*******************************************************************************
+    **
+    *******************************************************************************/
+   @BeforeEach
+   @AfterEach
+   void beforeAndAfterEach()
+   {
+      MemoryRecordStore.getInstance().reset();
+   }
+
+
+
+   /*******************************************************************************
+    **
+    *******************************************************************************/
+   @Test
+   void testInsertsAndUpdates() throws QException
+   {
+      QInstance qInstance = QContext.getQInstance();
+      insertPerson("Darin", "Kelkhoff", "darin@kingsrook.com");
+
+      UpsertOutput upsertOutput = new UpsertAction().execute(new UpsertInput(TestUtils.TABLE_NAME_PERSON_MEMORY).withRecords(List.of(
+         new QRecord().withValue("firstName", "Darin").withValue("lastName", "Kelkhoff").withValue("email", "dk@kingsrook.com"),
+         new QRecord().withValue("firstName", "Tim").withValue("lastName", "Chamberlain").withValue("email", "tim@kingsrook.com"),
+         new QRecord().withValue("firstName", "Tim").withValue("lastName", "Chamberlain").withValue("email", "tc@kingsrook.com")
+      )));
+
+      assertEquals(3, upsertOutput.getRecords().size());
+      assertEquals(1, upsertOutput.getInsertOutput().getRecords().size());
+      assertEquals(1, upsertOutput.getUpdateOutput().getRecords().size());
+      assertThat(upsertOutput.getRecords()).filteredOn(r -> !r.getErrors().isEmpty())
+         .hasSize(1)
+         .allMatch(r -> r.getErrors().get(0).getMessage().contains("Another record already exists with this First Name and Last Name"));
+
+      ///////////////////////////////////////////////////////////////
+      // output records are in the same order as the input records //
+      ///////////////////////////////////////////////////////////////
+      assertEquals(1, upsertOutput.getRecords().get(0).getValueInteger("id"));
+      assertEquals("tim@kingsrook.com", upsertOutput.getRecords().get(1).getValueString("email"));
+      assertTrue(upsertOutput.getRecords().get(1).getErrors().isEmpty());
+      assertEquals("tc@kingsrook.com", upsertOutput.getRecords().get(2).getValueString("email"));
+      assertFalse(upsertOutput.getRecords().get(2).getErrors().isEmpty());
+
+      List<QRecord> people = TestUtils.queryTable(qInstance, TestUtils.TABLE_NAME_PERSON_MEMORY);
+      assertEquals(2, people.size());
+      assertThat(people).anyMatch(r -> r.getValueInteger("id").equals(1) && r.getValueString("email").equals("dk@kingsrook.com"));
+      assertThat(people).anyMatch(r -> r.getValueString("firstName").equals("Tim") && r.getValueString("email").equals("tim@kingsrook.com"));
+   }
+
+
+
+   /*******************************************************************************
+    **
+    *******************************************************************************/
+   @Test
+   void testFieldNamesToUpdate() throws QException
+   {
+      QInstance qInstance = QContext.getQInstance();
+      insertPerson("Darin", "Kelkhoff", "darin@kingsrook.com");
+
+      new UpsertAction().execute(new UpsertInput(TestUtils.TABLE_NAME_PERSON_MEMORY)
+         .withFieldNamesToUpdate(Set.of("noOfShoes"))
+         .withRecords(List.of(
+            new QRecord().withValue("firstName", "Darin").withValue("lastName", "Kelkhoff").withValue("email", "dk@kingsrook.com").withValue("noOfShoes", 2),
+            new QRecord().withValue("firstName", "James").withValue("lastName", "Maes").withValue("email", "jm@kingsrook.com").withValue("noOfShoes", 3)
+         )));
+
+      List<QRecord> people = TestUtils.queryTable(qInstance, TestUtils.TABLE_NAME_PERSON_MEMORY);
+      assertEquals(2, people.size());
+      assertThat(people).anyMatch(r -> r.getValueString("firstName").equals("Darin") && r.getValueString("email").equals("darin@kingsrook.com") && r.getValueInteger("noOfShoes").equals(2));
+      assertThat(people).anyMatch(r -> r.getValueString("firstName").equals("James") && r.getValueString("email").equals("jm@kingsrook.com") && r.getValueInteger("noOfShoes").equals(3));
+   }
+
+
+
+   /*******************************************************************************
+    **
+    *******************************************************************************/
+   @Test
+   void testKeyRequiredWithoutSingleUniqueKey()
+   {
+      assertThatThrownBy(() -> new UpsertAction().execute(new UpsertInput(TestUtils.TABLE_NAME_SHAPE).withRecords(List.of(new QRecord().withValue("name", "Circle")))))
+         .isInstanceOf(QException.class)
+         .hasMessageContaining("A key must be given");
+   }
+
+
+
+   /*******************************************************************************
+    **
+    *******************************************************************************/
+   @Test
+   void testMayUseBackendUpsert()
+   {
+      QTableMetaData table       = QContext.getQInstance().getTable(TestUtils.TABLE_NAME_PERSON_MEMORY);
+      UniqueKey      uniqueKey   = table.getUniqueKeys().get(0);
+      UpsertInput    upsertInput = new UpsertInput(TestUtils.TABLE_NAME_PERSON_MEMORY).withRecords(List.of(new QRecord().withValue("firstName", "Darin")));
+
+      //////////////////////////////////////////////////////////////////
+      // automations need to know if records were inserted or updated //
+      //////////////////////////////////////////////////////////////////
+      assertFalse(UpsertAction.mayUseBackendUpsert(upsertInput, table, uniqueKey));
+
+      table.setAutomationDetails(null);
+      assertTrue(UpsertAction.mayUseBackendUpsert(upsertInput, table, uniqueKey));
+
+      //////////////////////////////////////////////////////////////////////////////
+      // records with primary keys (which native upserts would conflict on) can't //
+      //////////////////////////////////////////////////////////////////////////////
+      upsertInput.setRecords(List.of(new QRecord().withValue("id", 1).withValue("firstName", "Darin")));
+      assertFalse(UpsertAction.mayUseBackendUpsert(upsertInput, table, uniqueKey));
+   }
+
+
+
+   /*******************************************************************************
+    **
+    *******************************************************************************/
+   private void insertPerson(String firstName, String lastName, String email) throws QException
+   {
+      InsertInput insertInput = new InsertInput(TestUtils.TABLE_NAME_PERSON_MEMORY);
+      insertInput.setRecords(List.of(new QRecord().withValue("firstName", firstName).withValue("lastName", lastName).withValue("email", email)));
+      new InsertAction().execute(insertInput);
+   }
+
+}
@@ -0,0 +1,214 @@
+/*
+ * QQQ - Low-code Application Framework for Engineers.
+ * Copyright (C) 2021-2024.  Kingsrook, LLC
+ * 651 N Broad St Ste 205 # 6917 | Middletown DE 19709 | United States
+ * contact@kingsrook.com
+ * https://github.com/Kingsrook/
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+
+package com.kingsrook.qqq.backend.core.actions.tables.helpers;
+
+
+import java.util.List;
+import com.kingsrook.qqq.backend.core.BaseTest;
+import com.kingsrook.qqq.backend.core.actions.QBackendTransaction;
+import com.kingsrook.qqq.backend.core.actions.tables.CountAction;
+import com.kingsrook.qqq.backend.core.actions.tables.InsertAction;
+import com.kingsrook.qqq.backend.core.actions.tables.QueryAction;
+import com.kingsrook.qqq.backend.core.context.QContext;
+import com.kingsrook.qqq.backend.core.exceptions.QException;
+import com.kingsrook.qqq.backend.core.model.actions.tables.count.CountInput;
+import com.kingsrook.qqq.backend.core.model.actions.tables.insert.InsertInput;
+import com.kingsrook.qqq.backend.core.model.actions.tables.query.QCriteriaOperator;
+import com.kingsrook.qqq.backend.core.model.actions.tables.query.QFilterCriteria;
+import com.kingsrook.qqq.backend.core.model.actions.tables.query.QQueryFilter;
+import com.kingsrook.qqq.backend.core.model.actions.tables.query.QueryInput;
+import com.kingsrook.qqq.backend.core.model.data.QRecord;
+import com.kingsrook.qqq.backend.core.model.metadata.QInstance;
+import com.kingsrook.qqq.backend.core.model.metadata.tables.cache.QueryResultCacheMetaData;
+import com.kingsrook.qqq.backend.core.modules.backend.implementations.memory.MemoryRecordStore;
+import com.kingsrook.qqq.backend.core.utils.TestUtils;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+
+/*******************************************************************************
+ ** Unit test for QueryResultCache
+ *******************************************************************************/
+class QueryResultCacheTest extends BaseTest
+{
+
+   /*******************************************************************************
+    **
+    *******************************************************************************/
+   @BeforeEach
+   void beforeEach() throws QException
+   {
+      QInstance qInstance = QContext.getQInstance();
+      qInstance.getTable(TestUtils.TABLE_NAME_SHAPE).setQueryResultCache(new QueryResultCacheMetaData());
+      TestUtils.insertDefaultShapes(qInstance);
+
+      MemoryRecordStore.resetStatistics();
+      MemoryRecordStore.setCollectStatistics(true);
+   }
+
+
+
+   /*******************************************************************************
+    **
+    *******************************************************************************/
+   @AfterEach
+   void afterEach()
+   {
+      MemoryRecordStore.setCollectStatistics(false);
+      MemoryRecordStore.fullReset();
+   }
+
+
+
+   /*******************************************************************************
+    **
+    *******************************************************************************/
+   @Test
+   void testCountIsCachedUntilInsert() throws QException
+   {
+      QQueryFilter filter = new QQueryFilter(new QFilterCriteria("id", QCriteriaOperator.GREATER_THAN, 0));
+
+      assertEquals(3, CountAction.execute(TestUtils.TABLE_NAME_SHAPE, filter));
+      assertEquals(3, CountAction.execute(TestUtils.TABLE_NAME_SHAPE, filter));
+      assertEquals(1, getQueriesRan());
+
+      ///////////////////////////////////////////////////////////////
+      // a different filter is a different key - so it should miss //
+      ///////////////////////////////////////////////////////////////
+      assertEquals(2, CountAction.execute(TestUtils.TABLE_NAME_SHAPE, new QQueryFilter(new QFilterCriteria("id", QCriteriaOperator.GREATER_THAN, 1))));
+      assertEquals(2, getQueriesRan());
+
+      ////////////////////////////////////////////////////////////////
+      // an insert into the table should drop its cached results... //
+      ////////////////////////////////////////////////////////////////
+      new InsertAction().execute(new InsertInput(TestUtils.TABLE_NAME_SHAPE).withRecord(new QRecord().withValue("name", "Pentagon")));
+      assertEquals(0, QueryResultCache.getCache(QContext.getQInstance()).getSize());
+
+      assertEquals(4, CountAction.execute(TestUtils.TABLE_NAME_SHAPE, filter));
+      assertEquals(3, getQueriesRan());
+   }
+
+
+
+   /*******************************************************************************
+    **
+    *******************************************************************************/
+   @Test
+   void testQueryResultsAreCopies() throws QException
+   {
+      QueryInput    queryInput = new QueryInput(TestUtils.TABLE_NAME_SHAPE).withFilter(new QQueryFilter(new QFilterCriteria("id", QCriteriaOperator.EQUALS, 1)));
+      List<QRecord> records    = new QueryAction().execute(queryInput).getRecords();
+      assertEquals(1, records.size());
+      records.get(0).setValue("name", "Changed");
+
+      QueryInput    queryInputAgain = new QueryInput(TestUtils.TABLE_NAME_SHAPE).withFilter(new QQueryFilter(new QFilterCriteria("id", QCriteriaOperator.EQUALS, 1)));
+      List<QRecord> recordsAgain    = new QueryAction().execute(queryInputAgain).getRecords();
+      assertEquals(1, getQueriesRan());
+      assertEquals("Triangle", recordsAgain.get(0).getValueString("name"));
+      assertNotSame(records.get(0), recordsAgain.get(0));
+      assertEquals(1, QueryResultCache.getCache(QContext.getQInstance()).getHitCount());
+   }
+
+
+
+   /*******************************************************************************
+    **
+    *******************************************************************************/
+   @Test
+   void testPostRecordActionsRunOnEachHit() throws QException
+   {
+      QQueryFilter filter = new QQueryFilter(new QFilterCriteria("id", QCriteriaOperator.EQUALS, 1));
+
+      /////////////////////////////////////////////////////////////////////////
+      // display values are made after the backend records are cached - so a //
+      // hit for an input that doesn't want them doesn't get them, and vice  //
+      // versa - all from one backend query.                                 //
+      /////////////////////////////////////////////////////////////////////////
+      List<QRecord> withDisplayValues = new QueryAction().execute(new QueryInput(TestUtils.TABLE_NAME_SHAPE).withFilter(filter).withShouldGenerateDisplayValues(true)).getRecords();
+      assertNotNull(withDisplayValues.get(0).getDisplayValue("name"));
+
+      List<QRecord> withoutDisplayValues = new QueryAction().execute(new QueryInput(TestUtils.TABLE_NAME_SHAPE).withFilter(filter)).getRecords();
+      assertNull(withoutDisplayValues.get(0).getDisplayValue("name"));
+
+      List<QRecord> withDisplayValuesAgain = new QueryAction().execute(new QueryInput(TestUtils.TABLE_NAME_SHAPE).withFilter(filter).withShouldGenerateDisplayValues(true)).getRecords();
+      assertNotNull(withDisplayValuesAgain.get(0).getDisplayValue("name"));
+
+      assertEquals(1, getQueriesRan());
+   }
+
+
+
+   /*******************************************************************************
+    **
+    *******************************************************************************/
+   @Test
+   void testInvalidatedAgainAfterCommit() throws QException
+   {
+      QQueryFilter     filter = new QQueryFilter(new QFilterCriteria("id", QCriteriaOperator.GREATER_THAN, 0));
+      QueryResultCache cache  = QueryResultCache.getCache(QContext.getQInstance());
+
+      ////////////////////////////////////////////////////////////////////////////
+      // a result cached between a write in a transaction and its commit (e.g., //
+      // by another thread, which would still see the old records) must be      //
+      // dropped when the transaction commits.                                  //
+      ////////////////////////////////////////////////////////////////////////////
+      QBackendTransaction transaction = new QBackendTransaction();
+      new InsertAction().execute(new InsertInput(TestUtils.TABLE_NAME_SHAPE).withRecord(new QRecord().withValue("name", "Pentagon")).withTransaction(transaction));
+      CountAction.execute(TestUtils.TABLE_NAME_SHAPE, filter);
+      assertEquals(1, cache.getSize());
+
+      transaction.commit();
+      assertEquals(0, cache.getSize());
+   }
+
+
+
+   /*******************************************************************************
+    **
+    *******************************************************************************/
+   @Test
+   void testTablesWithoutMetaDataAreNotCached() throws QException
+   {
+      QContext.getQInstance().getTable(TestUtils.TABLE_NAME_SHAPE).setQueryResultCache(null);
+
+      new QueryAction().execute(new QueryInput(TestUtils.TABLE_NAME_SHAPE));
+      new QueryAction().execute(new QueryInput(TestUtils.TABLE_NAME_SHAPE));
+      assertEquals(2, getQueriesRan());
+   }
+
+
+
+   /*******************************************************************************
+    **
+    *******************************************************************************/
+   private int getQueriesRan()
+   {
+      return (MemoryRecordStore.getStatistics().getOrDefault(MemoryRecordStore.STAT_QUERIES_RAN, 0));
+   }
+
+}
@@ -27,15 +27,20 @@ import java.util.Collections;
 import java.util.List;
 import java.util.Set;
 import com.kingsrook.qqq.backend.core.BaseTest;
+import com.kingsrook.qqq.backend.core.actions.QBackendTransaction;
+import com.kingsrook.qqq.backend.core.actions.tables.UpdateAction;
 import com.kingsrook.qqq.backend.core.context.QContext;
 import com.kingsrook.qqq.backend.core.exceptions.QException;
+import com.kingsrook.qqq.backend.core.model.actions.tables.update.UpdateInput;
 import com.kingsrook.qqq.backend.core.model.data.QRecord;
 import com.kingsrook.qqq.backend.core.model.metadata.QInstance;
 import com.kingsrook.qqq.backend.core.model.metadata.fields.QFieldMetaData;
 import com.kingsrook.qqq.backend.core.model.metadata.fields.QFieldType;
 import com.kingsrook.qqq.backend.core.model.metadata.possiblevalues.PVSValueFormatAndFields;
+import com.kingsrook.qqq.backend.core.model.metadata.possiblevalues.PossibleValueTranslationCacheMetaData;
 import com.kingsrook.qqq.backend.core.model.metadata.possiblevalues.QPossibleValueSource;
 import com.kingsrook.qqq.backend.core.model.metadata.possiblevalues.QPossibleValueSourceType;
+import com.kingsrook.qqq.backend.core.model.metadata.security.RecordSecurityLock;
 import com.kingsrook.qqq.backend.core.model.metadata.tables.QTableMetaData;
 import com.kingsrook.qqq.backend.core.model.session.QSession;
 import com.kingsrook.qqq.backend.core.modules.backend.implementations.memory.MemoryRecordStore;
@@ -43,7 +48,9 @@ import com.kingsrook.qqq.backend.core.utils.TestUtils;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import static org.assertj.core.api.Assertions.assertThat;
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
 import static org.junit.jupiter.api.Assertions.assertNull;
 
 
@@ -528,4 +535,178 @@ public class QPossibleValueTranslatorTest extends BaseTest
       assertEquals(2, MemoryRecordStore.getStatistics().get(MemoryRecordStore.STAT_QUERIES_RAN), "Should have ran 2 more queries");
    }
 
+
+
+   /*******************************************************************************
+    **
+    *******************************************************************************/
+   @Test
+   void testSharedTranslationCache() throws QException
+   {
+      QInstance qInstance = QContext.getQInstance();
+      qInstance.setPossibleValueTranslationCacheMetaData(new PossibleValueTranslationCacheMetaData());
+      QFieldMetaData shapeField = qInstance.getTable(TestUtils.TABLE_NAME_PERSON).getField("favoriteShapeId");
+      TestUtils.insertDefaultShapes(qInstance);
+
+      PossibleValueTranslationCache sharedCache = PossibleValueTranslationCache.getCache(qInstance);
+      MemoryRecordStore.setCollectStatistics(true);
+      MemoryRecordStore.resetStatistics();
+
+      assertEquals("Triangle", new QPossibleValueTranslator(qInstance, new QSession()).translatePossibleValue(shapeField, 1));
+      assertEquals(1, MemoryRecordStore.getStatistics().get(MemoryRecordStore.STAT_QUERIES_RAN), "Should have ran 1 query");
+
+      ////////////////////////////////////////////////////////////////////////////////////
+      // a new translator (e.g., for another request) should get the label from the     //
+      // shared cache - including for a value that wasn't found (that's cached as null) //
+      ////////////////////////////////////////////////////////////////////////////////////
+      assertNull(new QPossibleValueTranslator(qInstance, new QSession()).translatePossibleValue(shapeField, -1));
+      assertEquals("Triangle", new QPossibleValueTranslator(qInstance, new QSession()).translatePossibleValue(shapeField, 1));
+      assertNull(new QPossibleValueTranslator(qInstance, new QSession()).translatePossibleValue(shapeField, -1));
+      assertEquals(2, MemoryRecordStore.getStatistics().get(MemoryRecordStore.STAT_QUERIES_RAN), "Should have ran 1 more query");
+      assertEquals(2, sharedCache.getHitCount());
+      assertEquals(2, sharedCache.getSize());
+
+      ////////////////////////////////////////////////////////////////////////
+      // updating a record in the PVS's table should drop its cached labels //
+      ////////////////////////////////////////////////////////////////////////
+      new UpdateAction().execute(new UpdateInput(TestUtils.TABLE_NAME_SHAPE).withRecord(new QRecord().withValue("id", 1).withValue("name", "Pyramid")));
+      assertEquals(0, sharedCache.getSize());
+      assertEquals(1, sharedCache.getInvalidationCount());
+
+      MemoryRecordStore.resetStatistics();
+      assertEquals("Pyramid", new QPossibleValueTranslator(qInstance, new QSession()).translatePossibleValue(shapeField, 1));
+      assertEquals("Pyramid", new QPossibleValueTranslator(qInstance, new QSession()).translatePossibleValue(shapeField, 1));
+      assertEquals(1, MemoryRecordStore.getStatistics().get(MemoryRecordStore.STAT_QUERIES_RAN), "Should have ran 1 query");
+
+      ///////////////////////////////////////////////////////////////
+      // priming a translator should also use the shared cache too //
+      ///////////////////////////////////////////////////////////////
+      QTableMetaData personTable = qInstance.getTable(TestUtils.TABLE_NAME_PERSON);
+      List<QRecord> personRecords = List.of(
+         new QRecord().withTableName(TestUtils.TABLE_NAME_PERSON).withValue("favoriteShapeId", 1),
+         new QRecord().withTableName(TestUtils.TABLE_NAME_PERSON).withValue("favoriteShapeId", 2));
+      new QPossibleValueTranslator(qInstance, new QSession()).primePvsCache(personTable, personRecords, null, null);
+      assertEquals(2, MemoryRecordStore.getStatistics().get(MemoryRecordStore.STAT_QUERIES_RAN), "Should have ran 1 more query (for id 2)");
+
+      QPossibleValueTranslator possibleValueTranslator = new QPossibleValueTranslator(qInstance, new QSession());
+      possibleValueTranslator.primePvsCache(personTable, personRecords, null, null);
+      assertEquals(2, MemoryRecordStore.getStatistics().get(MemoryRecordStore.STAT_QUERIES_RAN), "Should not have ran another query");
+      assertEquals("Square", possibleValueTranslator.translatePossibleValue(shapeField, 2));
+   }
+
+
+
+   /*******************************************************************************
+    **
+    *******************************************************************************/
+   @Test
+   void testSharedTranslationCacheInvalidatedAfterCommit() throws QException
+   {
+      QInstance qInstance = QContext.getQInstance();
+      qInstance.setPossibleValueTranslationCacheMetaData(new PossibleValueTranslationCacheMetaData());
+      QFieldMetaData shapeField = qInstance.getTable(TestUtils.TABLE_NAME_PERSON).getField("favoriteShapeId");
+      TestUtils.insertDefaultShapes(qInstance);
+
+      PossibleValueTranslationCache sharedCache = PossibleValueTranslationCache.getCache(qInstance);
+
+      //////////////////////////////////////////////////////////////////////////////
+      // a label cached between a write in a transaction and its commit (e.g., by //
+      // another thread, which would still see the old record) must be dropped    //
+      // when the transaction commits.                                            //
+      //////////////////////////////////////////////////////////////////////////////
+      QBackendTransaction transaction = new QBackendTransaction();
+      new UpdateAction().execute(new UpdateInput(TestUtils.TABLE_NAME_SHAPE).withRecord(new QRecord().withValue("id", 1).withValue("name", "Pyramid")).withTransaction(transaction));
+      new QPossibleValueTranslator(qInstance, new QSession()).translatePossibleValue(shapeField, 1);
+      assertEquals(1, sharedCache.getSize());
+
+      transaction.commit();
+      assertEquals(0, sharedCache.getSize());
+
+      ///////////////////////////////////////////////////////
+      // but a rollback shouldn't run the post-commit drop //
+      ///////////////////////////////////////////////////////
+      transaction = new QBackendTransaction();
+      new UpdateAction().execute(new UpdateInput(TestUtils.TABLE_NAME_SHAPE).withRecord(new QRecord().withValue("id", 1).withValue("name", "Cone")).withTransaction(transaction));
+      new QPossibleValueTranslator(qInstance, new QSession()).translatePossibleValue(shapeField, 1);
+      assertEquals(1, sharedCache.getSize());
+
+      transaction.rollback();
+      assertEquals(1, sharedCache.getSize());
+   }
+
+
+
+   /*******************************************************************************
+    ** a PVS whose labels include labels from another (locked) table must be cached
+    ** per-scope for that table's locks - and dropped when that table is written.
+    *******************************************************************************/
+   @Test
+   void testSharedTranslationCacheWithLabelsFromOtherTable() throws QException
+   {
+      QInstance qInstance = QContext.getQInstance();
+      qInstance.setPossibleValueTranslationCacheMetaData(new PossibleValueTranslationCacheMetaData());
+
+      qInstance.addTable(new QTableMetaData()
+         .withName("region")
+         .withBackendName(TestUtils.MEMORY_BACKEND_NAME)
+         .withPrimaryKeyField("id")
+         .withRecordLabelFormat("%s of %s")
+         .withRecordLabelFields("name", "countryId")
+         .withField(new QFieldMetaData("id", QFieldType.INTEGER))
+         .withField(new QFieldMetaData("name", QFieldType.STRING))
+         .withField(new QFieldMetaData("countryId", QFieldType.INTEGER).withPossibleValueSourceName("country")));
+
+      qInstance.addTable(new QTableMetaData()
+         .withName("country")
+         .withBackendName(TestUtils.MEMORY_BACKEND_NAME)
+         .withPrimaryKeyField("id")
+         .withRecordLabelFormat("%s")
+         .withRecordLabelFields("name")
+         .withRecordSecurityLock(new RecordSecurityLock()
+            .withSecurityKeyType(TestUtils.SECURITY_KEY_TYPE_STORE)
+            .withFieldName("storeId"))
+         .withField(new QFieldMetaData("id", QFieldType.INTEGER))
+         .withField(new QFieldMetaData("name", QFieldType.STRING))
+         .withField(new QFieldMetaData("storeId", QFieldType.INTEGER)));
+
+      qInstance.addPossibleValueSource(new QPossibleValueSource()
+         .withName("region")
+         .withType(QPossibleValueSourceType.TABLE)
+         .withTableName("region")
+         .withValueFormatAndFields(PVSValueFormatAndFields.LABEL_ONLY));
+
+      qInstance.addPossibleValueSource(new QPossibleValueSource()
+         .withName("country")
+         .withType(QPossibleValueSourceType.TABLE)
+         .withTableName("country")
+         .withValueFormatAndFields(PVSValueFormatAndFields.LABEL_ONLY));
+
+      QFieldMetaData regionField     = new QFieldMetaData("regionId", QFieldType.INTEGER).withPossibleValueSourceName("region");
+      QSession       storeOneSession = new QSession().withSecurityKeyValue(TestUtils.SECURITY_KEY_TYPE_STORE, 1);
+      QSession       storeTwoSession = new QSession().withSecurityKeyValue(TestUtils.SECURITY_KEY_TYPE_STORE, 2);
+
+      QContext.setQSession(storeOneSession);
+      TestUtils.insertRecords(qInstance.getTable("region"), List.of(new QRecord().withValue("id", 11).withValue("name", "Missouri").withValue("countryId", 111)));
+      TestUtils.insertRecords(qInstance.getTable("country"), List.of(new QRecord().withValue("id", 111).withValue("name", "U.S.A").withValue("storeId", 1)));
+
+      ///////////////////////////////////////////////////////////////////////////////////
+      // the region table isn't locked - but its labels come from the (locked) country //
+      // table too, so a user who can't see the country mustn't get its name.          //
+      ///////////////////////////////////////////////////////////////////////////////////
+      String storeOneScope = PossibleValueTranslationCache.getSecurityScope("region");
+      assertEquals("Missouri of U.S.A", new QPossibleValueTranslator(qInstance, storeOneSession).translatePossibleValue(regionField, 11));
+
+      QContext.setQSession(storeTwoSession);
+      assertNotEquals(storeOneScope, PossibleValueTranslationCache.getSecurityScope("region"));
+      assertThat(new QPossibleValueTranslator(qInstance, storeTwoSession).translatePossibleValue(regionField, 11)).doesNotContain("U.S.A");
+
+      ////////////////////////////////////////////////////////////////////////
+      // writing the country table should drop the region PVS's labels too. //
+      ////////////////////////////////////////////////////////////////////////
+      QContext.setQSession(storeOneSession);
+      assertEquals("Missouri of U.S.A", new QPossibleValueTranslator(qInstance, storeOneSession).translatePossibleValue(regionField, 11));
+      new UpdateAction().execute(new UpdateInput("country").withRecord(new QRecord().withValue("id", 111).withValue("name", "America")));
+      assertEquals("Missouri of America", new QPossibleValueTranslator(qInstance, storeOneSession).translatePossibleValue(regionField, 11));
+   }
+
 }
@@ -0,0 +1,170 @@
+/*
+ * QQQ - Low-code Application Framework for Engineers.
+ * Copyright (C) 2021-2023.  Kingsrook, LLC
+ * 651 N Broad St Ste 205 # 6917 | Middletown DE 19709 | United States
+ * contact@kingsrook.com
+ * https://github.com/Kingsrook/
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.kingsrook.qqq.backend.core.model.data;
+
+
+import java.util.List;
+import com.kingsrook.qqq.backend.core.BaseTest;
+import com.kingsrook.qqq.backend.core.actions.values.QValueFormatter;
+import com.kingsrook.qqq.backend.core.model.metadata.fields.QFieldMetaData;
+import com.kingsrook.qqq.backend.core.model.metadata.fields.QFieldType;
+import com.kingsrook.qqq.backend.core.model.metadata.tables.QTableMetaData;
+import org.junit.jupiter.api.Test;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+
+/*******************************************************************************
+ ** Unit test for QRecordBatch
+ *******************************************************************************/
+class QRecordBatchTest extends BaseTest
+{
+
+   /*******************************************************************************
+    **
+    *******************************************************************************/
+   private QRecordBatchLayout makeLayout()
+   {
+      return (new QRecordBatchLayout(List.of(
+         new QFieldMetaData("id", QFieldType.INTEGER),
+         new QFieldMetaData("name", QFieldType.STRING),
+         new QFieldMetaData("isActive", QFieldType.BOOLEAN))));
+   }
+
+
+
+   /*******************************************************************************
+    **
+    *******************************************************************************/
+   @Test
+   void testValues()
+   {
+      QRecordBatch batch = new QRecordBatch(makeLayout(), "person", 3);
+
+      int row = batch.addRow();
+      batch.setValue(row, "id", 1);
+      batch.setValue(row, "name", "Darin");
+      batch.setValue(row, "isActive", true);
+
+      row = batch.addRow();
+      batch.setValue(row, "id", null);
+
+      assertEquals(2, batch.getRowCount());
+      assertFalse(batch.isFull());
+
+      assertEquals(1, batch.getValue(0, "id"));
+      assertEquals("Darin", batch.getValue(0, "name"));
+      assertEquals(true, batch.getValue(0, "isActive"));
+
+      assertTrue(batch.hasValue(1, "id"));
+      assertNull(batch.getValue(1, "id"));
+      assertFalse(batch.hasValue(1, "name"));
+      assertNull(batch.getValue(1, "notAField"));
+
+      ///////////////////////////////////////////////////////////////////
+      // materialized values should only include values that were set //
+      ///////////////////////////////////////////////////////////////////
+      assertThat(batch.materializeValues(1)).containsOnlyKeys("id");
+
+      batch.addRow();
+      assertTrue(batch.isFull());
+   }
+
+
+
+   /*******************************************************************************
+    **
+    *******************************************************************************/
+   @Test
+   void testTypeMismatchDemotesColumn()
+   {
+      QRecordBatch batch = new QRecordBatch(makeLayout(), "person", 10);
+      batch.setValue(batch.addRow(), "id", 1);
+      batch.setValue(batch.addRow(), "id", "two");
+
+      assertEquals(1, batch.getValue(0, "id"));
+      assertEquals("two", batch.getValue(1, "id"));
+   }
+
+
+
+   /*******************************************************************************
+    **
+    *******************************************************************************/
+   @Test
+   void testRecords()
+   {
+      QRecordBatch batch = QRecordBatch.fromRecords(makeLayout(), "person", List.of(
+         new QRecord().withValue("id", 1).withValue("name", "Darin"),
+         new QRecord().withValue("id", 2).withValue("name", "Tim")));
+
+      List<QRecord> records = batch.getRecords();
+      assertEquals(2, records.size());
+
+      ColumnarQRecord record = (ColumnarQRecord) records.get(1);
+      assertEquals("person", record.getTableName());
+      assertEquals(2, record.getValueInteger("id"));
+      assertFalse(record.isMaterialized());
+
+      //////////////////////////////////////////////////////////////////
+      // a copy is a plain QRecord, w/ its own values, as is a record //
+      // that has been written to (which must not affect the batch)   //
+      //////////////////////////////////////////////////////////////////
+      QRecord copy = new QRecord(record);
+      assertEquals("Tim", copy.getValueString("name"));
+      assertFalse(record.isMaterialized());
+
+      record.setValue("name", "Timothy");
+      assertTrue(record.isMaterialized());
+      assertEquals("Timothy", record.getValueString("name"));
+      assertEquals("Tim", batch.getValue(1, "name"));
+      assertEquals("Tim", copy.getValueString("name"));
+   }
+
+
+
+   /*******************************************************************************
+    **
+    *******************************************************************************/
+   @Test
+   void testDisplayValuesDoNotMaterialize()
+   {
+      QRecordBatch batch = QRecordBatch.fromRecords(makeLayout(), "person", List.of(
+         new QRecord().withValue("id", 1).withValue("isActive", true)));
+
+      QTableMetaData table = new QTableMetaData().withName("person")
+         .withField(new QFieldMetaData("id", QFieldType.INTEGER))
+         .withField(new QFieldMetaData("name", QFieldType.STRING))
+         .withField(new QFieldMetaData("isActive", QFieldType.BOOLEAN));
+
+      ColumnarQRecord record = (ColumnarQRecord) batch.getRecords().get(0);
+      assertThat(record.getValueFieldNames()).containsExactly("id", "isActive");
+
+      QValueFormatter.setDisplayValuesInRecords(table, List.of(record));
+      assertEquals("Yes", record.getDisplayValue("isActive"));
+      assertFalse(record.isMaterialized());
+   }
+
+}
@@ -22,6 +22,7 @@
 package com.kingsrook.qqq.backend.core.model.data;
 
 
+import java.io.Serializable;
 import java.math.BigDecimal;
 import java.util.ArrayList;
 import java.util.HashMap;
@@ -40,6 +41,7 @@ import org.junit.jupiter.api.Test;
 import static com.kingsrook.qqq.backend.core.model.data.QRecord.BACKEND_DETAILS_TYPE_HEAVY_FIELD_LENGTHS;
 import static com.kingsrook.qqq.backend.core.model.data.QRecord.BACKEND_DETAILS_TYPE_JSON_SOURCE_OBJECT;
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
 import static org.junit.jupiter.api.Assertions.assertArrayEquals;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
@@ -47,6 +49,7 @@ import static org.junit.jupiter.api.Assertions.assertNotEquals;
 import static org.junit.jupiter.api.Assertions.assertNotSame;
 import static org.junit.jupiter.api.Assertions.assertNull;
 import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 
 
 /*******************************************************************************
@@ -311,4 +314,79 @@ class QRecordTest extends BaseTest
       assertEquals("Be Careful", order.getValue("orderInstructions.instructions"));
    }
 
+
+
+   /*******************************************************************************
+    **
+    *******************************************************************************/
+   @Test
+   void testCopiedStructuresAreIndependent()
+   {
+      QRecord original = new QRecord()
+         .withValue("id", 1)
+         .withDisplayValue("id", "One")
+         .withBackendDetail(BACKEND_DETAILS_TYPE_HEAVY_FIELD_LENGTHS, new HashMap<>(Map.of("a", 1)))
+         .withError(new BadInputStatusMessage("Bad Input"))
+         .withAssociatedRecord("child", new QRecord().withValue("id", "child1"));
+
+      QRecord clone = new QRecord(original);
+      assertTrue(clone.hasErrors());
+      assertFalse(clone.hasWarnings());
+
+      //////////////////////////////////////////////////////////////////////////////
+      // structures with contents are copied, and getters give views (not copies) //
+      //////////////////////////////////////////////////////////////////////////////
+      assertNotSame(original.getErrors(), clone.getErrors());
+      Map<String, String> cloneDisplayValues = clone.getDisplayValues();
+      clone.setDisplayValue("id", "Uno");
+      assertEquals("Uno", cloneDisplayValues.get("id"));
+
+      //////////////////////////////////////////////////////////////////////////
+      // writes to either the clone or the original must not affect the other //
+      //////////////////////////////////////////////////////////////////////////
+      clone.setDisplayValue("id", "Uno");
+      clone.withError(new BadInputStatusMessage("Another"));
+      clone.withAssociatedRecord("child", new QRecord().withValue("id", "child2"));
+      original.withWarning(new QWarningMessage("Careful"));
+      original.removeValue("id");
+
+      assertEquals("Uno", clone.getDisplayValue("id"));
+      assertNull(original.getDisplayValue("id"));
+      assertEquals(2, clone.getErrors().size());
+      assertEquals(1, original.getErrors().size());
+      assertEquals(2, clone.getAssociatedRecords().get("child").size());
+      assertEquals(1, original.getAssociatedRecords().get("child").size());
+      assertFalse(clone.hasWarnings());
+      assertTrue(original.hasWarnings());
+
+      ////////////////////////////////////////////////////////////////////
+      // including writes to mutable objects held inside backendDetails //
+      ////////////////////////////////////////////////////////////////////
+      @SuppressWarnings("unchecked")
+      Map<String, Serializable> cloneFieldLengths = (Map<String, Serializable>) clone.getBackendDetail(BACKEND_DETAILS_TYPE_HEAVY_FIELD_LENGTHS);
+      cloneFieldLengths.put("b", 2);
+      assertEquals(Map.of("a", 1), original.getBackendDetail(BACKEND_DETAILS_TYPE_HEAVY_FIELD_LENGTHS));
+
+      ///////////////////////////////////////////////////////////////////////////
+      // getters don't allocate structures that were never written to - and    //
+      // hand out read-only views, so writes have to go through the mutators   //
+      ///////////////////////////////////////////////////////////////////////////
+      QRecord emptyRecord = new QRecord();
+      assertSame(emptyRecord.getErrors(), new QRecord().getErrors());
+      assertSame(emptyRecord.getDisplayValues(), new QRecord().getDisplayValues());
+      assertThatThrownBy(() -> emptyRecord.getErrors().add(new BadInputStatusMessage("Added through getter"))).isInstanceOf(UnsupportedOperationException.class);
+      emptyRecord.addError(new BadInputStatusMessage("Added through mutator"));
+      emptyRecord.setDisplayValue("id", "One");
+      assertTrue(emptyRecord.hasErrors());
+      assertEquals("One", emptyRecord.getDisplayValues().get("id"));
+      assertThatThrownBy(() -> emptyRecord.getDisplayValues().put("id", "Two")).isInstanceOf(UnsupportedOperationException.class);
+
+      ///////////////////////////////////////////////////////////////////////
+      // a structure that was allocated, but is empty, isn't copied either //
+      ///////////////////////////////////////////////////////////////////////
+      QRecord recordWithEmptyErrors = new QRecord().withError(new BadInputStatusMessage("Cleared"));
+      recordWithEmptyErrors.setErrors(new ArrayList<>());
+      assertSame(new QRecord(recordWithEmptyErrors).getErrors(), new QRecord().getErrors());
+   }
+
 }
\ No newline at end of file
@@ -22,13 +22,18 @@
 package com.kingsrook.qqq.backend.core.model.session;
 
 
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import com.kingsrook.qqq.backend.core.BaseTest;
 import com.kingsrook.qqq.backend.core.model.metadata.fields.QFieldType;
 import org.junit.jupiter.api.Test;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
 
@@ -123,4 +128,79 @@ class QSessionTest extends BaseTest
       assertEquals(List.of(), session.getSecurityKeyValues("other"));
    }
 
-}
\ No newline at end of file
+
+
+   /*******************************************************************************
+    **
+    *******************************************************************************/
+   @Test
+   void testSecurityKeyValueSets() throws CloneNotSupportedException
+   {
+      List<Serializable> storeIds = new ArrayList<>(List.of("100", 200, "three-hundred"));
+      QSession           session  = new QSession().withSecurityKeyValues(new HashMap<>(Map.of("storeId", storeIds)));
+
+      assertEquals(Set.of(100, 200), session.getSecurityKeyValueSet("storeId", QFieldType.INTEGER));
+      assertEquals(Set.of("100", "200", "three-hundred"), session.getSecurityKeyValueSet("storeId", QFieldType.STRING));
+      assertEquals(Set.of(), session.getSecurityKeyValueSet("clientId", QFieldType.INTEGER));
+
+      /////////////////////////////////////////////////////////////////////
+      // adding a value (to the same list) should be seen in the sets... //
+      /////////////////////////////////////////////////////////////////////
+      assertFalse(session.hasSecurityKeyValue("storeId", 400, QFieldType.INTEGER));
+      session.withSecurityKeyValue("storeId", 400);
+      assertTrue(session.hasSecurityKeyValue("storeId", 400, QFieldType.INTEGER));
+      assertTrue(session.hasSecurityKeyValue("storeId", "400", QFieldType.STRING));
+
+      //////////////////////////////////////////////
+      // as should replacing the list for the key //
+      //////////////////////////////////////////////
+      session.setSecurityKeyValues(Map.of("storeId", List.of(500)));
+      assertFalse(session.hasSecurityKeyValue("storeId", 100, QFieldType.INTEGER));
+      assertTrue(session.hasSecurityKeyValue("storeId", 500, QFieldType.INTEGER));
+
+      ///////////////////////////////////////////////////////
+      // a clone should have its own (not-yet-built) sets. //
+      ///////////////////////////////////////////////////////
+      QSession clone = session.clone();
+      assertEquals(Set.of(500), clone.getSecurityKeyValueSet("storeId", QFieldType.INTEGER));
+   }
+
+
+
+   /*******************************************************************************
+    ** a revoked key value must not still pass, after a same-size change to the
+    ** list of values - whether that's tried in place, or by replacing the list.
+    *******************************************************************************/
+   @Test
+   void testSameSizeChangeToSecurityKeyValuesRevokesAccess()
+   {
+      List<Serializable> clientIds = new ArrayList<>(List.of(1, 2));
+      QSession           session   = new QSession().withSecurityKeyValues(new HashMap<>(Map.of("clientId", clientIds)));
+      assertTrue(session.hasSecurityKeyValue("clientId", 2, QFieldType.INTEGER));
+
+      ////////////////////////////////////////////////////////////////////////////
+      // the session's lists can't be changed in place (which would have kept a //
+      // stale set)...                                                          //
+      ////////////////////////////////////////////////////////////////////////////
+      assertThrows(UnsupportedOperationException.class, () -> session.getSecurityKeyValues("clientId").set(1, 3));
+      assertThrows(UnsupportedOperationException.class, () -> session.getSecurityKeyValues().get("clientId").set(1, 3));
+      assertThrows(UnsupportedOperationException.class, () -> session.getSecurityKeyValues().put("clientId", List.of(1, 3)));
+
+      ///////////////////////////////////////////////////////////////////
+      // and changing the list it was given doesn't change the session //
+      ///////////////////////////////////////////////////////////////////
+      clientIds.set(1, 3);
+      assertTrue(session.hasSecurityKeyValue("clientId", 2, QFieldType.INTEGER));
+      assertFalse(session.hasSecurityKeyValue("clientId", 3, QFieldType.INTEGER));
+
+      ///////////////////////////////////////////////////////////////////////
+      // so, revoking a value means setting a new (here, same-size) list - //
+      // after which, the revoked value must be denied.                    //
+      ///////////////////////////////////////////////////////////////////////
+      session.setSecurityKeyValues(Map.of("clientId", clientIds));
+      assertFalse(session.hasSecurityKeyValue("clientId", 2, QFieldType.INTEGER));
+      assertFalse(session.hasSecurityKeyValue("clientId", "2", QFieldType.STRING));
+      assertTrue(session.hasSecurityKeyValue("clientId", 3, QFieldType.INTEGER));
+   }
+
+}
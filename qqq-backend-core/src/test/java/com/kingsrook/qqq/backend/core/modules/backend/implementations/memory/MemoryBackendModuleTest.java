@@ -25,6 +25,7 @@ package com.kingsrook.qqq.backend.core.modules.backend.implementations.memory;
 import java.math.BigDecimal;
 import java.time.LocalDate;
 import java.time.Month;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
 import com.kingsrook.qqq.backend.core.BaseTest;
@@ -52,6 +53,7 @@ import com.kingsrook.qqq.backend.core.model.actions.tables.delete.DeleteInput;
 import com.kingsrook.qqq.backend.core.model.actions.tables.delete.DeleteOutput;
 import com.kingsrook.qqq.backend.core.model.actions.tables.insert.InsertInput;
 import com.kingsrook.qqq.backend.core.model.actions.tables.insert.InsertOutput;
+import com.kingsrook.qqq.backend.core.model.actions.tables.query.CriteriaOption;
 import com.kingsrook.qqq.backend.core.model.actions.tables.query.QCriteriaOperator;
 import com.kingsrook.qqq.backend.core.model.actions.tables.query.QFilterCriteria;
 import com.kingsrook.qqq.backend.core.model.actions.tables.query.QFilterOrderBy;
@@ -260,9 +262,9 @@ class MemoryBackendModuleTest extends BaseTest
       QContext.getQSession().setBackendVariants(Map.of(TestUtils.TABLE_NAME_MEMORY_VARIANT_OPTIONS, "1"));
       assertEquals(1, new CountAction().execute(new CountInput(TestUtils.TABLE_NAME_MEMORY_VARIANT_DATA)).getCount());
 
-      /////////////////////////////////////////////
+      //////////////////////////////////////////////
       // assert we fail if trying unknown variant //
-      /////////////////////////////////////////////
+      //////////////////////////////////////////////
       QContext.getQSession().setBackendVariants(Map.of(TestUtils.TABLE_NAME_MEMORY_VARIANT_OPTIONS, 4));
       assertThatThrownBy(() -> new InsertAction().execute(new InsertInput(TestUtils.TABLE_NAME_MEMORY_VARIANT_DATA).withRecords(List.of(
          new QRecord().withValue("id", 1).withValue("name", "England")
@@ -460,6 +462,89 @@ class MemoryBackendModuleTest extends BaseTest
 
 
 
+   /*******************************************************************************
+    ** make sure that queries which use indexes get the same results (in the same
+    ** order) as queries which scan the whole table - including after updates.
+    *******************************************************************************/
+   @Test
+   void testIndexesGiveSameResultsAsScans() throws QException
+   {
+      List<QRecord> records = new ArrayList<>();
+      for(int i = 1; i <= 200; i++)
+      {
+         records.add(new QRecord()
+            .withValue("id", i)
+            .withValue("name", "Shape" + (i % 7))
+            .withValue("type", i % 3 == 0 ? null : "T" + (i % 4))
+            .withValue("noOfSides", i % 11 == 0 ? null : i % 10));
+      }
+      new InsertAction().execute(new InsertInput(TestUtils.TABLE_NAME_SHAPE).withRecords(records));
+
+      List<QQueryFilter> filters = List.of(
+         new QQueryFilter(new QFilterCriteria("id", QCriteriaOperator.EQUALS, 17)),
+         new QQueryFilter(new QFilterCriteria("id", QCriteriaOperator.EQUALS, "17")),
+         new QQueryFilter(new QFilterCriteria("id", QCriteriaOperator.IN, 3, 1, 2, 999)),
+         new QQueryFilter(new QFilterCriteria("id", QCriteriaOperator.IN, List.of())),
+         new QQueryFilter(new QFilterCriteria("name", QCriteriaOperator.EQUALS, "Shape3")),
+         new QQueryFilter(new QFilterCriteria("name", QCriteriaOperator.EQUALS, "shape3").withOption(CriteriaOption.CASE_INSENSITIVE)),
+         new QQueryFilter(new QFilterCriteria("type", QCriteriaOperator.IN, "T1", "T2")),
+         new QQueryFilter(new QFilterCriteria("noOfSides", QCriteriaOperator.GREATER_THAN, 5)),
+         new QQueryFilter(new QFilterCriteria("noOfSides", QCriteriaOperator.GREATER_THAN_OR_EQUALS, 5)),
+         new QQueryFilter(new QFilterCriteria("noOfSides", QCriteriaOperator.LESS_THAN, 3)),
+         new QQueryFilter(new QFilterCriteria("noOfSides", QCriteriaOperator.LESS_THAN_OR_EQUALS, 3)),
+         new QQueryFilter(new QFilterCriteria("noOfSides", QCriteriaOperator.BETWEEN, 2, 4)),
+         new QQueryFilter(new QFilterCriteria("noOfSides", QCriteriaOperator.BETWEEN, 4, 2)),
+         new QQueryFilter(new QFilterCriteria("name", QCriteriaOperator.GREATER_THAN, "Shape4")),
+         new QQueryFilter(new QFilterCriteria("name", QCriteriaOperator.EQUALS, "Shape1"), new QFilterCriteria("noOfSides", QCriteriaOperator.LESS_THAN, 5)),
+         new QQueryFilter(new QFilterCriteria("name", QCriteriaOperator.EQUALS, "Shape1"), new QFilterCriteria("noOfSides", QCriteriaOperator.EQUALS, 1)).withBooleanOperator(QQueryFilter.BooleanOperator.OR),
+         new QQueryFilter(new QFilterCriteria("name", QCriteriaOperator.EQUALS, "Shape2")).withOrderBy(new QFilterOrderBy("id", false)),
+         new QQueryFilter(new QFilterCriteria("name", QCriteriaOperator.STARTS_WITH, "Shape")).withOrderBy(new QFilterOrderBy("name")).withSkip(10).withLimit(20),
+         new QQueryFilter(new QFilterCriteria("type", QCriteriaOperator.IS_NOT_BLANK)).withOrderBy(new QFilterOrderBy("name", false)).withLimit(15),
+         new QQueryFilter().withOrderBy(new QFilterOrderBy("id", false)).withLimit(5),
+         new QQueryFilter().withOrderBy(new QFilterOrderBy("name")).withLimit(5)
+      );
+
+      assertIndexedQueriesMatchScans(filters);
+
+      //////////////////////////////////////////////////////////////////////////
+      // update some values - make sure indexes built before that aren't used //
+      //////////////////////////////////////////////////////////////////////////
+      new UpdateAction().execute(new UpdateInput(TestUtils.TABLE_NAME_SHAPE).withRecords(List.of(
+         new QRecord().withValue("id", 17).withValue("name", "Shape3").withValue("noOfSides", 100),
+         new QRecord().withValue("id", 18).withValue("type", "T1"))));
+      new DeleteAction().execute(new DeleteInput(TestUtils.TABLE_NAME_SHAPE).withPrimaryKeys(List.of(1, 2)));
+
+      assertIndexedQueriesMatchScans(filters);
+   }
+
+
+
+   /*******************************************************************************
+    **
+    *******************************************************************************/
+   private void assertIndexedQueriesMatchScans(List<QQueryFilter> filters) throws QException
+   {
+      try
+      {
+         for(QQueryFilter filter : filters)
+         {
+            MemoryRecordStore.setMinRecordsToUseIndexes(Integer.MAX_VALUE);
+            List<Integer> scannedIds = new QueryAction().execute(new QueryInput(TestUtils.TABLE_NAME_SHAPE).withFilter(filter.clone())).getRecords().stream().map(r -> r.getValueInteger("id")).toList();
+
+            MemoryRecordStore.setMinRecordsToUseIndexes(0);
+            List<Integer> indexedIds = new QueryAction().execute(new QueryInput(TestUtils.TABLE_NAME_SHAPE).withFilter(filter.clone())).getRecords().stream().map(r -> r.getValueInteger("id")).toList();
+
+            assertEquals(scannedIds, indexedIds, "Results for filter: " + filter);
+         }
+      }
+      finally
+      {
+         MemoryRecordStore.setMinRecordsToUseIndexes(MemoryRecordStore.DEFAULT_MIN_RECORDS_TO_USE_INDEXES);
+      }
+   }
+
+
+
    /*******************************************************************************
     **
     *******************************************************************************/
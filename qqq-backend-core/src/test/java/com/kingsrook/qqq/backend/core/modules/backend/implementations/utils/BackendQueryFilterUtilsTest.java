@@ -23,9 +23,14 @@ package com.kingsrook.qqq.backend.core.modules.backend.implementations.utils;
 
 
 import java.io.Serializable;
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.Arrays;
 import java.util.List;
 import java.util.Set;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
 import com.kingsrook.qqq.backend.core.BaseTest;
 import com.kingsrook.qqq.backend.core.exceptions.QException;
 import com.kingsrook.qqq.backend.core.model.actions.tables.query.CriteriaOption;
@@ -501,10 +506,10 @@ class BackendQueryFilterUtilsTest extends BaseTest
          assertTrue(accumulator.getPlain());
       }
       {
-         //////////////////////////////////////////////////////////////////////////////////////
-         // old value was true; new value is false.                                          //
+         /////////////////////////////////////////////////////////////////////////////////////
+         // old value was true; new value is false.                                         //
          // result should be true, and we should be short-circuited (return value not-null) //
-         //////////////////////////////////////////////////////////////////////////////////////
+         /////////////////////////////////////////////////////////////////////////////////////
          AtomicBoolean accumulator = new AtomicBoolean(true);
          assertEquals(Boolean.TRUE, BackendQueryFilterUtils.applyBooleanOperator(accumulator, false, QQueryFilter.BooleanOperator.OR));
          assertTrue(accumulator.getPlain());
@@ -565,4 +570,92 @@ class BackendQueryFilterUtilsTest extends BaseTest
 
    }
 
+
+
+   /*******************************************************************************
+    ** a compiled filter (and doesRecordMatch) should give the same answer as the
+    ** per-criterion check, for every operator, over a variety of criteria and
+    ** record values.
+    *******************************************************************************/
+   @Test
+   void testCompiledFilterMatchesCriteriaEvaluation()
+   {
+      List<List<Serializable>> criteriaValueLists = List.of(
+         List.of(1), List.of("1"), List.of(1, 3), List.of("a", "B"), List.of("T%"), List.of("t_st"),
+         List.of(LocalDate.of(2024, 1, 1), LocalDate.of(2024, 12, 31)), List.of(new BigDecimal("2.5"), new BigDecimal("10")));
+
+      List<Serializable> recordValues = Arrays.asList(null, "", 1, 2, 3L, "1", "2", "a", "b", "Test", "test", new BigDecimal("2.5"), LocalDate.of(2024, 6, 1), LocalDate.of(2025, 1, 1));
+
+      int noOfComparisons = 0;
+      for(QCriteriaOperator operator : QCriteriaOperator.values())
+      {
+         for(List<Serializable> criteriaValues : criteriaValueLists)
+         {
+            for(boolean caseInsensitive : List.of(false, true))
+            {
+               QFilterCriteria criteria = new QFilterCriteria("f", operator, criteriaValues);
+               if(caseInsensitive)
+               {
+                  criteria.withOption(CriteriaOption.CASE_INSENSITIVE);
+               }
+
+               Predicate<QRecord> compiled = BackendQueryFilterUtils.compileFilter(new QQueryFilter(criteria), null);
+               for(Serializable recordValue : recordValues)
+               {
+                  String expected = evaluateOrException(() -> BackendQueryFilterUtils.doesCriteriaMatch(criteria, "f", recordValue));
+                  String actual   = evaluateOrException(() -> compiled.test(new QRecord().withValue("f", recordValue)));
+                  String direct   = evaluateOrException(() -> BackendQueryFilterUtils.doesRecordMatch(new QQueryFilter(criteria), new QRecord().withValue("f", recordValue)));
+                  assertEquals(expected, actual, "Mismatch for " + operator + " " + criteriaValues + (caseInsensitive ? " (case-insensitive)" : "") + " on value [" + recordValue + "]");
+                  assertEquals(expected, direct, "Mismatch (doesRecordMatch) for " + operator + " " + criteriaValues + (caseInsensitive ? " (case-insensitive)" : "") + " on value [" + recordValue + "]");
+                  noOfComparisons++;
+               }
+            }
+         }
+      }
+
+      assertTrue(noOfComparisons > 1000);
+   }
+
+
+
+   /*******************************************************************************
+    **
+    *******************************************************************************/
+   private String evaluateOrException(Supplier<Boolean> supplier)
+   {
+      try
+      {
+         return (String.valueOf(supplier.get()));
+      }
+      catch(Exception e)
+      {
+         return (e.getClass().getSimpleName());
+      }
+   }
+
+
+
+   /*******************************************************************************
+    **
+    *******************************************************************************/
+   @Test
+   void testCompiledFilterReuse()
+   {
+      Predicate<QRecord> predicate = BackendQueryFilterUtils.compileFilter(new QQueryFilter()
+         .withBooleanOperator(QQueryFilter.BooleanOperator.OR)
+         .withCriteria(new QFilterCriteria("a", QCriteriaOperator.IN, 1, 2, 3))
+         .withSubFilter(new QQueryFilter()
+            .withCriteria(new QFilterCriteria("b", QCriteriaOperator.LIKE, "x%").withOption(CriteriaOption.CASE_INSENSITIVE))
+            .withCriteria(new QFilterCriteria("c", QCriteriaOperator.IS_NOT_BLANK))), null);
+
+      assertTrue(predicate.test(new QRecord().withValue("a", 2)));
+      assertFalse(predicate.test(new QRecord().withValue("a", 4)));
+      assertTrue(predicate.test(new QRecord().withValue("a", 4).withValue("b", "XYZ").withValue("c", "c")));
+      assertFalse(predicate.test(new QRecord().withValue("a", 4).withValue("b", "XYZ")));
+      assertFalse(predicate.test(new QRecord().withValue("b", "yXZ").withValue("c", "c")));
+
+      assertTrue(BackendQueryFilterUtils.compileFilter(null, null).test(new QRecord()));
+      assertTrue(BackendQueryFilterUtils.compileFilter(new QQueryFilter(), null).test(new QRecord()));
+   }
+
 }
\ No newline at end of file
@@ -82,4 +82,30 @@ class LoadViaInsertOrUpdateStepTest extends BaseTest
       assertEquals(2, qRecords.size());
    }
 
+
+
+   /*******************************************************************************
+    ** the memory backend can't upsert natively - so records to insert still get
+    ** inserted (with insert's unique key check), even if upserting is allowed.
+    *******************************************************************************/
+   @Test
+   void testUpsertRecordsToInsertWithoutBackendUpsert() throws QException
+   {
+      QInstance qInstance = QContext.getQInstance();
+      TestUtils.insertRecords(qInstance.getTable(TestUtils.TABLE_NAME_PERSON_MEMORY), List.of(new QRecord().withValue("firstName", "Tom").withValue("lastName", "Smith")));
+
+      RunBackendStepInput input = new RunBackendStepInput();
+      input.setRecords(List.of(
+         new QRecord().withValue("firstName", "Tom").withValue("lastName", "Smith"),
+         new QRecord().withValue("firstName", "John").withValue("lastName", "Smith")
+      ));
+      input.addValue(LoadViaInsertOrUpdateStep.FIELD_DESTINATION_TABLE, TestUtils.TABLE_NAME_PERSON_MEMORY);
+      input.addValue(LoadViaInsertOrUpdateStep.FIELD_UPSERT_RECORDS_TO_INSERT, true);
+      RunBackendStepOutput output = new RunBackendStepOutput();
+      new LoadViaInsertOrUpdateStep().runOnePage(input, output);
+
+      assertEquals(1, output.getRecords().stream().filter(r -> !r.getErrors().isEmpty()).count());
+      assertEquals(2, TestUtils.queryTable(qInstance, TestUtils.TABLE_NAME_PERSON_MEMORY).size());
+   }
+
 }
\ No newline at end of file
@@ -367,6 +367,99 @@ public class StreamedETLWithFrontendProcessTest extends BaseTest
 
 
 
+   /*******************************************************************************
+    **
+    *******************************************************************************/
+   @Test
+   void testParallelConsumers() throws QException
+   {
+      QInstance instance = QContext.getQInstance();
+
+      QProcessMetaData process = StreamedETLWithFrontendProcess.defineProcessMetaData(
+         TestUtils.TABLE_NAME_PERSON,
+         TestUtils.TABLE_NAME_PERSON,
+         ExtractViaQueryWithCustomLimitStep.class,
+         TestTransformCountingStep.class,
+         LoadViaInsertStep.class);
+      process.setName("test");
+      process.setTableName(TestUtils.TABLE_NAME_SHAPE);
+      instance.addProcess(process);
+
+      ////////////////////////////////////////////////////////////////////////////
+      // run w/ 4 consumers, and a small pipe, so that many pages are processed //
+      ////////////////////////////////////////////////////////////////////////////
+      RunProcessOutput output = runProcess(instance, process, Map.of(
+         StreamedETLWithFrontendProcess.FIELD_CONSUMER_THREAD_COUNT, 4,
+         StreamedETLWithFrontendProcess.FIELD_TRANSACTION_LEVEL, StreamedETLWithFrontendProcess.TRANSACTION_LEVEL_PAGE,
+         "recordPipeCapacity", 100), new Callback());
+
+      int limit = new ExtractViaQueryWithCustomLimitStep().getLimit();
+      assertEquals(limit, output.getValues().get(StreamedETLProcess.FIELD_RECORD_COUNT));
+
+      ////////////////////////////////////////////////////////////////////////////////
+      // make sure the summaries from each worker's transform step were merged into //
+      // a single line, with the full count, and its plural message re-picked       //
+      ////////////////////////////////////////////////////////////////////////////////
+      @SuppressWarnings("unchecked")
+      List<ProcessSummaryLineInterface> processSummary = (List<ProcessSummaryLineInterface>) output.getValues().get(StreamedETLWithFrontendProcess.FIELD_PROCESS_SUMMARY);
+      assertEquals(1, processSummary.size());
+      ProcessSummaryLine okLine = (ProcessSummaryLine) processSummary.get(0);
+      assertEquals(limit, okLine.getCount());
+      assertEquals("were counted", okLine.getMessage());
+   }
+
+
+
+   /*******************************************************************************
+    **
+    *******************************************************************************/
+   @Test
+   void testParallelConsumersWithProcessLevelTransaction() throws QException
+   {
+      QInstance instance = QContext.getQInstance();
+
+      ////////////////////////////////////////////////////////
+      // define the process - an ELT from Shapes to Persons //
+      ////////////////////////////////////////////////////////
+      QProcessMetaData process = StreamedETLWithFrontendProcess.defineProcessMetaData(
+         TestUtils.TABLE_NAME_SHAPE,
+         TestUtils.TABLE_NAME_PERSON_MEMORY,
+         ExtractViaQueryStep.class,
+         TestTransformShapeToPersonSettingValueStep.class,
+         LoadViaInsertStep.class);
+      process.setName("test");
+      process.setTableName(TestUtils.TABLE_NAME_SHAPE);
+      instance.addProcess(process);
+
+      TestUtils.insertDefaultShapes(instance);
+
+      //////////////////////////////////////////////////////////////////////////
+      // run w/ 3 consumers, each with its own process-level transaction, and //
+      // a pipe of 1 record, so that pages are spread across the workers      //
+      //////////////////////////////////////////////////////////////////////////
+      RunProcessOutput output = runProcess(instance, process, Map.of(
+         StreamedETLWithFrontendProcess.FIELD_CONSUMER_THREAD_COUNT, 3,
+         StreamedETLWithFrontendProcess.FIELD_TRANSACTION_LEVEL, StreamedETLWithFrontendProcess.TRANSACTION_LEVEL_PROCESS,
+         "recordPipeCapacity", 1), new Callback());
+
+      assertEquals(3, output.getValues().get(StreamedETLProcess.FIELD_RECORD_COUNT));
+
+      /////////////////////////////////////////////////////////////////////////
+      // make sure every worker's transaction was committed, and that values //
+      // set by the workers' steps were merged back into the process values  //
+      /////////////////////////////////////////////////////////////////////////
+      List<QRecord> postList = TestUtils.queryTable(instance, TestUtils.TABLE_NAME_PERSON_MEMORY);
+      assertThat(postList)
+         .hasSize(3)
+         .as("Should have inserted Circle").anyMatch(qr -> qr.getValue("lastName").equals("Circle"))
+         .as("Should have inserted Triangle").anyMatch(qr -> qr.getValue("lastName").equals("Triangle"))
+         .as("Should have inserted Square").anyMatch(qr -> qr.getValue("lastName").equals("Square"));
+
+      assertThat(output.getValues().get(TestTransformShapeToPersonSettingValueStep.FIELD_LAST_SHAPE_NAME)).isIn("Circle", "Triangle", "Square");
+   }
+
+
+
    /*******************************************************************************
     **
     *******************************************************************************/
@@ -442,6 +535,73 @@ public class StreamedETLWithFrontendProcessTest extends BaseTest
 
 
 
+   /*******************************************************************************
+    ** version of the shape-to-person transform that also sets a process value.
+    *******************************************************************************/
+   public static class TestTransformShapeToPersonSettingValueStep extends TestTransformShapeToPersonStep
+   {
+      public static final String FIELD_LAST_SHAPE_NAME = "lastShapeName";
+
+
+
+      /*******************************************************************************
+       **
+       *******************************************************************************/
+      @Override
+      public void runOnePage(RunBackendStepInput runBackendStepInput, RunBackendStepOutput runBackendStepOutput) throws QException
+      {
+         super.runOnePage(runBackendStepInput, runBackendStepOutput);
+         for(QRecord qRecord : runBackendStepInput.getRecords())
+         {
+            runBackendStepOutput.addValue(FIELD_LAST_SHAPE_NAME, qRecord.getValueString("name"));
+         }
+      }
+   }
+
+
+
+   /*******************************************************************************
+    ** transform step that passes records through, counting them in a summary line.
+    *******************************************************************************/
+   public static class TestTransformCountingStep extends AbstractTransformStep
+   {
+      private ProcessSummaryLine okSummary = new ProcessSummaryLine(Status.OK)
+         .withSingularFutureMessage("will be counted")
+         .withPluralFutureMessage("will be counted")
+         .withSingularPastMessage("was counted")
+         .withPluralPastMessage("were counted");
+
+
+
+      /*******************************************************************************
+       **
+       *******************************************************************************/
+      @Override
+      public void runOnePage(RunBackendStepInput runBackendStepInput, RunBackendStepOutput runBackendStepOutput) throws QException
+      {
+         for(QRecord qRecord : runBackendStepInput.getRecords())
+         {
+            okSummary.incrementCount();
+            runBackendStepOutput.getRecords().add(new QRecord(qRecord));
+         }
+      }
+
+
+
+      /*******************************************************************************
+       **
+       *******************************************************************************/
+      @Override
+      public ArrayList<ProcessSummaryLineInterface> getProcessSummary(RunBackendStepOutput runBackendStepOutput, boolean isForResultScreen)
+      {
+         ArrayList<ProcessSummaryLineInterface> rs = new ArrayList<>();
+         okSummary.addSelfToListIfAnyCount(rs);
+         return (rs);
+      }
+   }
+
+
+
    /*******************************************************************************
     **
     *******************************************************************************/
@@ -0,0 +1,338 @@
+/*
+ * QQQ - Low-code Application Framework for Engineers.
+ * Copyright (C) 2021-2024.  Kingsrook, LLC
+ * 651 N Broad St Ste 205 # 6917 | Middletown DE 19709 | United States
+ * contact@kingsrook.com
+ * https://github.com/Kingsrook/
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+
+package com.kingsrook.qqq.backend.core.state;
+
+
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import com.kingsrook.qqq.backend.core.BaseTest;
+import com.kingsrook.qqq.backend.core.actions.async.AsyncJobCallback;
+import com.kingsrook.qqq.backend.core.actions.async.AsyncJobManager;
+import com.kingsrook.qqq.backend.core.actions.async.AsyncJobStatus;
+import com.kingsrook.qqq.backend.core.actions.tables.GetAction;
+import com.kingsrook.qqq.backend.core.actions.tables.QueryAction;
+import com.kingsrook.qqq.backend.core.context.QContext;
+import com.kingsrook.qqq.backend.core.exceptions.QException;
+import com.kingsrook.qqq.backend.core.model.actions.processes.ProcessMetaDataAdjustment;
+import com.kingsrook.qqq.backend.core.model.actions.processes.ProcessState;
+import com.kingsrook.qqq.backend.core.model.actions.tables.query.QueryInput;
+import com.kingsrook.qqq.backend.core.model.data.QRecord;
+import com.kingsrook.qqq.backend.core.model.metadata.QInstance;
+import com.kingsrook.qqq.backend.core.model.metadata.fields.QFieldMetaData;
+import com.kingsrook.qqq.backend.core.model.metadata.fields.QFieldType;
+import com.kingsrook.qqq.backend.core.model.metadata.state.TableBasedStateProviderMetaData;
+import com.kingsrook.qqq.backend.core.utils.SleepUtils;
+import com.kingsrook.qqq.backend.core.utils.TestUtils;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+
+/*******************************************************************************
+ ** Unit test for TableBasedStateProvider
+ *******************************************************************************/
+class TableBasedStateProviderTest extends BaseTest
+{
+   private static final String TABLE_NAME = "qqqState";
+
+
+
+   /*******************************************************************************
+    **
+    *******************************************************************************/
+   @BeforeEach
+   void beforeEach()
+   {
+      QInstance qInstance = TestUtils.defineInstance();
+      qInstance.setTableBasedStateProviderMetaData(new TableBasedStateProviderMetaData()
+         .withTableName(TABLE_NAME)
+         .withNearCacheMillis(0)
+         .withCleanIntervalMinutes(0)
+         .withCleanBatchSize(2));
+      qInstance.addTable(TableBasedStateProvider.defineStateTable(TABLE_NAME, TestUtils.MEMORY_BACKEND_NAME, null));
+      reInitInstanceInContext(qInstance);
+   }
+
+
+
+   /*******************************************************************************
+    **
+    *******************************************************************************/
+   @Test
+   void testPutGetRemove() throws QException
+   {
+      TableBasedStateProvider stateProvider = TableBasedStateProvider.getInstance(QContext.getQInstance());
+      UUIDAndTypeStateKey     key           = new UUIDAndTypeStateKey(StateType.PROCESS_STATUS);
+
+      assertTrue(stateProvider.get(QRecord.class, key).isEmpty());
+
+      stateProvider.put(key, new QRecord().withValue("name", "first"));
+      assertEquals("first", stateProvider.get(QRecord.class, key).get().getValueString("name"));
+
+      ////////////////////////////////////////////////////////
+      // put again - should update the same row, not insert //
+      ////////////////////////////////////////////////////////
+      stateProvider.put(key, new QRecord().withValue("name", "second"));
+      assertEquals("second", stateProvider.get(QRecord.class, key).get().getValueString("name"));
+      assertEquals(1, new QueryAction().execute(new QueryInput(TABLE_NAME)).getRecords().size());
+      assertNotNull(GetAction.execute(TABLE_NAME, TableBasedStateProvider.getStateId(key)));
+
+      assertThrows(RuntimeException.class, () -> stateProvider.get(String.class, key));
+
+      stateProvider.remove(key);
+      assertTrue(stateProvider.get(QRecord.class, key).isEmpty());
+      assertEquals(0, new QueryAction().execute(new QueryInput(TABLE_NAME)).getRecords().size());
+   }
+
+
+
+   /*******************************************************************************
+    **
+    *******************************************************************************/
+   @Test
+   void testSameUuidDifferentTypes()
+   {
+      TableBasedStateProvider stateProvider = TableBasedStateProvider.getInstance(QContext.getQInstance());
+      UUID                    uuid          = UUID.randomUUID();
+
+      stateProvider.put(new UUIDAndTypeStateKey(uuid, StateType.PROCESS_STATUS), "process");
+      stateProvider.put(new UUIDAndTypeStateKey(uuid, StateType.ASYNC_JOB_STATUS), "job");
+
+      assertEquals("process", stateProvider.get(String.class, new UUIDAndTypeStateKey(uuid, StateType.PROCESS_STATUS)).get());
+      assertEquals("job", stateProvider.get(String.class, new UUIDAndTypeStateKey(uuid, StateType.ASYNC_JOB_STATUS)).get());
+   }
+
+
+
+   /*******************************************************************************
+    **
+    *******************************************************************************/
+   @Test
+   void testProcessState()
+   {
+      ProcessState processState = new ProcessState();
+      processState.setRecords(List.of(new QRecord().withValue("id", 1)));
+      processState.getValues().put("count", 1);
+      processState.setNextStepName("review");
+      processState.setProcessMetaDataAdjustment(new ProcessMetaDataAdjustment().withUpdatedField(new QFieldMetaData("name", QFieldType.STRING)));
+
+      ProcessState roundTripped = (ProcessState) TableBasedStateProvider.deserialize(TableBasedStateProvider.serialize(processState));
+      assertEquals(1, roundTripped.getRecords().get(0).getValueInteger("id"));
+      assertEquals(1, roundTripped.getValues().get("count"));
+      assertEquals(Optional.of("review"), roundTripped.getNextStepName());
+      assertTrue(roundTripped.getBackStepName().isEmpty());
+      assertNotNull(roundTripped.getProcessMetaDataAdjustment());
+   }
+
+
+
+   /*******************************************************************************
+    **
+    *******************************************************************************/
+   @Test
+   void testSerializationRoundTrip()
+   {
+      ArrayList<String> small = new ArrayList<>();
+      small.add("a");
+      assertEquals(small, TableBasedStateProvider.deserialize(TableBasedStateProvider.serialize(small)));
+
+      //////////////////////////////////////////////////////
+      // big enough to be gzipped - and it should shrink. //
+      //////////////////////////////////////////////////////
+      ArrayList<String> large = new ArrayList<>();
+      for(int i = 0; i < 10_000; i++)
+      {
+         large.add("value-" + (i % 10));
+      }
+      byte[] bytes = TableBasedStateProvider.serialize(large);
+      assertEquals(1, bytes[0]);
+      assertEquals(large, TableBasedStateProvider.deserialize(bytes));
+
+      TableBasedStateProvider stateProvider = TableBasedStateProvider.getInstance(QContext.getQInstance());
+      UUIDAndTypeStateKey     key           = new UUIDAndTypeStateKey(StateType.PROCESS_STATUS);
+      stateProvider.put(key, large);
+      assertEquals(large, stateProvider.get(ArrayList.class, key).get());
+   }
+
+
+
+   /*******************************************************************************
+    **
+    *******************************************************************************/
+   @Test
+   void testClean() throws QException
+   {
+      TableBasedStateProvider stateProvider = TableBasedStateProvider.getInstance(QContext.getQInstance());
+      Instant                 old           = Instant.now().minus(10, ChronoUnit.HOURS);
+
+      for(int i = 0; i < 5; i++)
+      {
+         stateProvider.put(new UUIDAndTypeStateKey(UUID.randomUUID(), StateType.PROCESS_STATUS, old), "old-" + i);
+      }
+
+      UUIDAndTypeStateKey newKey = new UUIDAndTypeStateKey(StateType.PROCESS_STATUS);
+      stateProvider.put(newKey, "new");
+
+      ////////////////////////////////////////////////////////////////
+      // batch size is 2 - so this takes multiple passes to finish. //
+      ////////////////////////////////////////////////////////////////
+      stateProvider.clean(Instant.now().minus(5, ChronoUnit.HOURS));
+
+      assertEquals(1, new QueryAction().execute(new QueryInput(TABLE_NAME)).getRecords().size());
+      assertEquals("new", stateProvider.get(String.class, newKey).get());
+      assertThat(stateProvider.status()).contains(TABLE_NAME);
+   }
+
+
+
+   /*******************************************************************************
+    **
+    *******************************************************************************/
+   @Test
+   void testAsyncJobCancelAndThrottledStatus()
+   {
+      TableBasedStateProvider stateProvider = TableBasedStateProvider.getInstance(QContext.getQInstance());
+      UUID                    jobUUID       = UUID.randomUUID();
+      UUIDAndTypeStateKey     key           = new UUIDAndTypeStateKey(jobUUID, StateType.ASYNC_JOB_STATUS);
+
+      ////////////////////////////////////////////////////////////////////////////
+      // the job's callback holds its own status object (as if on another node) //
+      ////////////////////////////////////////////////////////////////////////////
+      AsyncJobStatus jobStatus = new AsyncJobStatus();
+      stateProvider.put(key, jobStatus);
+      AsyncJobCallback callback = new AsyncJobCallback(jobUUID, jobStatus);
+
+      /////////////////////////////////////////////////////////////////////
+      // first update is stored - the next, within the interval, is not. //
+      /////////////////////////////////////////////////////////////////////
+      callback.updateStatus(1, 10);
+      callback.incrementCurrent();
+      assertEquals(2, jobStatus.getCurrent());
+      assertEquals(1, stateProvider.get(AsyncJobStatus.class, key).get().getCurrent());
+
+      //////////////////////////////////////////////////////////////////////////
+      // cancel must be written back to the store, and seen by the callback - //
+      // and not overwritten by the callback's next store.                    //
+      //////////////////////////////////////////////////////////////////////////
+      new AsyncJobManager().cancelJob(jobUUID.toString());
+      assertTrue(stateProvider.get(AsyncJobStatus.class, key).get().getCancelRequested());
+
+      callback.setMinMillisBetweenStores(0);
+      callback.incrementCurrent();
+      assertTrue(stateProvider.get(AsyncJobStatus.class, key).get().getCancelRequested());
+      assertEquals(3, stateProvider.get(AsyncJobStatus.class, key).get().getCurrent());
+      assertTrue(callback.wasCancelRequested());
+   }
+
+
+
+   /*******************************************************************************
+    ** with the near-cache on, the job's node has its own status object cached (from
+    ** its own put) - but must still see a cancel written by another node.
+    *******************************************************************************/
+   @Test
+   void testAsyncJobCancelFromAnotherNodeWithNearCache()
+   {
+      QContext.getQInstance().setTableBasedStateProviderMetaData(new TableBasedStateProviderMetaData()
+         .withTableName(TABLE_NAME)
+         .withCleanIntervalMinutes(0));
+      reInitInstanceInContext(QContext.getQInstance());
+
+      ///////////////////////////////////////////////////////////////////////
+      // another instance, over the same table, is the provider for node 2 //
+      ///////////////////////////////////////////////////////////////////////
+      QInstance otherInstance = TestUtils.defineInstance();
+      otherInstance.setTableBasedStateProviderMetaData(new TableBasedStateProviderMetaData()
+         .withTableName(TABLE_NAME)
+         .withCleanIntervalMinutes(0));
+      otherInstance.addTable(TableBasedStateProvider.defineStateTable(TABLE_NAME, TestUtils.MEMORY_BACKEND_NAME, null));
+
+      TableBasedStateProvider stateProvider      = TableBasedStateProvider.getInstance(QContext.getQInstance());
+      TableBasedStateProvider otherStateProvider = TableBasedStateProvider.getInstance(otherInstance);
+      assertNotSame(stateProvider, otherStateProvider);
+
+      UUID                jobUUID   = UUID.randomUUID();
+      UUIDAndTypeStateKey key       = new UUIDAndTypeStateKey(jobUUID, StateType.ASYNC_JOB_STATUS);
+      AsyncJobStatus      jobStatus = new AsyncJobStatus();
+      stateProvider.put(key, jobStatus);
+      AsyncJobCallback callback = new AsyncJobCallback(jobUUID, jobStatus).withMinMillisBetweenStores(0);
+      assertFalse(callback.wasCancelRequested());
+
+      AsyncJobStatus otherNodeStatus = otherStateProvider.get(AsyncJobStatus.class, key).get();
+      assertNotSame(jobStatus, otherNodeStatus);
+      otherNodeStatus.setCancelRequested(true);
+      otherStateProvider.put(key, otherNodeStatus);
+
+      assertTrue(callback.wasCancelRequested());
+
+      /////////////////////////////////////////////////////////
+      // and the job's next store doesn't clear the request. //
+      /////////////////////////////////////////////////////////
+      callback.updateStatus(1, 10);
+      assertTrue(otherStateProvider.getUncached(AsyncJobStatus.class, key).get().getCancelRequested());
+      assertEquals(1, otherStateProvider.getUncached(AsyncJobStatus.class, key).get().getCurrent());
+   }
+
+
+
+   /*******************************************************************************
+    ** an update that's skipped (as it came too soon after the previous store) is
+    ** stored later, even if no other update comes in.
+    *******************************************************************************/
+   @Test
+   void testAsyncJobThrottledStatusIsStoredLater()
+   {
+      TableBasedStateProvider stateProvider = TableBasedStateProvider.getInstance(QContext.getQInstance());
+      UUID                    jobUUID       = UUID.randomUUID();
+      UUIDAndTypeStateKey     key           = new UUIDAndTypeStateKey(jobUUID, StateType.ASYNC_JOB_STATUS);
+
+      AsyncJobStatus jobStatus = new AsyncJobStatus();
+      stateProvider.put(key, jobStatus);
+      AsyncJobCallback callback = new AsyncJobCallback(jobUUID, jobStatus).withMinMillisBetweenStores(250);
+
+      callback.updateStatus("Working", 1, 10);
+      callback.updateStatus("Still working", 2, 10);
+      assertEquals(1, stateProvider.get(AsyncJobStatus.class, key).get().getCurrent());
+
+      for(int i = 0; i < 100 && stateProvider.get(AsyncJobStatus.class, key).get().getCurrent() == 1; i++)
+      {
+         SleepUtils.sleep(50, TimeUnit.MILLISECONDS);
+      }
+
+      AsyncJobStatus storedStatus = stateProvider.get(AsyncJobStatus.class, key).get();
+      assertEquals(2, storedStatus.getCurrent());
+      assertEquals("Still working", storedStatus.getMessage());
+   }
+
+}
@@ -22,10 +22,22 @@
 package com.kingsrook.qqq.backend.core.state;
 
 
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.UUID;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
 import com.kingsrook.qqq.backend.core.BaseTest;
+import com.kingsrook.qqq.backend.core.model.actions.processes.ProcessState;
 import com.kingsrook.qqq.backend.core.model.data.QRecord;
 import com.kingsrook.qqq.backend.core.model.metadata.tables.QTableMetaData;
+import com.kingsrook.qqq.backend.core.model.statusmessages.BadInputStatusMessage;
 import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.Test;
 
@@ -88,4 +100,183 @@ public class TempFileStateProviderTest extends BaseTest
       });
    }
 
-}
\ No newline at end of file
+
+
+   /*******************************************************************************
+    **
+    *******************************************************************************/
+   @Test
+   public void testSegmentRollingAndCompaction() throws IOException
+   {
+      TempFileStateProvider     stateProvider = new TempFileStateProvider(Files.createTempDirectory("qqqStateTest").toFile(), 4096);
+      List<UUIDAndTypeStateKey> keys          = new ArrayList<>();
+      for(int i = 0; i < 50; i++)
+      {
+         UUIDAndTypeStateKey key = new UUIDAndTypeStateKey(StateType.PROCESS_STATUS);
+         keys.add(key);
+         stateProvider.put(key, "value-" + i + "-" + "x".repeat(500));
+      }
+
+      for(int i = 0; i < 50; i++)
+      {
+         Assertions.assertTrue(stateProvider.get(String.class, keys.get(i)).get().startsWith("value-" + i + "-"));
+      }
+      Assertions.assertTrue(getStatusCount(stateProvider, "segments") > 1);
+
+      ///////////////////////////////////////////////////////////////////////////
+      // remove most of the entries - the emptied segments should get dropped, //
+      // and what's left should still be readable.                             //
+      ///////////////////////////////////////////////////////////////////////////
+      int segmentsBefore = getStatusCount(stateProvider, "segments");
+      for(int i = 0; i < 50; i++)
+      {
+         if(i % 10 != 0)
+         {
+            stateProvider.remove(keys.get(i));
+         }
+      }
+
+      Assertions.assertTrue(getStatusCount(stateProvider, "segments") < segmentsBefore);
+      Assertions.assertEquals(5, getStatusCount(stateProvider, "entries"));
+      for(int i = 0; i < 50; i++)
+      {
+         Assertions.assertEquals(i % 10 == 0, stateProvider.get(String.class, keys.get(i)).isPresent());
+      }
+
+      ///////////////////////////////////////////////
+      // a value bigger than a segment still works //
+      ///////////////////////////////////////////////
+      UUIDAndTypeStateKey bigKey = new UUIDAndTypeStateKey(StateType.PROCESS_STATUS);
+      stateProvider.put(bigKey, "y".repeat(20_000));
+      Assertions.assertEquals(20_000, stateProvider.get(String.class, bigKey).get().length());
+   }
+
+
+
+   /*******************************************************************************
+    **
+    *******************************************************************************/
+   @Test
+   public void testRePutsDoNotPileUpSegments() throws IOException
+   {
+      //////////////////////////////////////////////////////////////////////////
+      // re-putting under the same key (as process state does, at every step) //
+      // leaves dead values behind - which should get compacted away.         //
+      //////////////////////////////////////////////////////////////////////////
+      TempFileStateProvider stateProvider = new TempFileStateProvider(Files.createTempDirectory("qqqStateTest").toFile(), 4096);
+      UUIDAndTypeStateKey   key           = new UUIDAndTypeStateKey(StateType.PROCESS_STATUS);
+      for(int i = 0; i < 100; i++)
+      {
+         stateProvider.put(key, "value-" + i + "-" + "x".repeat(500));
+      }
+
+      Assertions.assertTrue(stateProvider.get(String.class, key).get().startsWith("value-99-"));
+      Assertions.assertTrue(getStatusCount(stateProvider, "segments") <= 2);
+
+      ///////////////////////////////////////////////////////////////////////
+      // a value bigger than a segment, into an empty provider, shouldn't //
+      // leave an extra (empty) segment behind.                            //
+      ///////////////////////////////////////////////////////////////////////
+      TempFileStateProvider emptyStateProvider = new TempFileStateProvider(Files.createTempDirectory("qqqStateTest").toFile(), 4096);
+      emptyStateProvider.put(key, "y".repeat(20_000));
+      Assertions.assertEquals(20_000, emptyStateProvider.get(String.class, key).get().length());
+      Assertions.assertEquals(1, getStatusCount(emptyStateProvider, "segments"));
+   }
+
+
+
+   /*******************************************************************************
+    **
+    *******************************************************************************/
+   @Test
+   public void testCompactRecordEncoding() throws IOException
+   {
+      TempFileStateProvider stateProvider = new TempFileStateProvider(Files.createTempDirectory("qqqStateTest").toFile(), 64 * 1024);
+
+      List<QRecord> records = List.of(
+         new QRecord().withTableName("person").withValue("id", 1).withValue("name", "Darin").withValue("cost", new BigDecimal("3.50"))
+            .withValue("birthDate", LocalDate.of(1980, 1, 1)).withValue("createDate", Instant.parse("2024-01-01T01:01:01.5Z"))
+            .withValue("isActive", true).withValue("bigId", 1L << 40).withValue("noValue", null).withDisplayValue("name", "Mr. Darin"),
+         new QRecord().withTableName("person").withValue("id", 2).withValue("name", "James"));
+
+      ProcessState processState = new ProcessState();
+      processState.setRecords(new ArrayList<>(records));
+      processState.getValues().put("count", 2);
+      processState.setNextStepName("review");
+
+      UUIDAndTypeStateKey key = new UUIDAndTypeStateKey(StateType.PROCESS_STATUS);
+      stateProvider.put(key, processState);
+
+      ProcessState fromState = stateProvider.get(ProcessState.class, key).get();
+      Assertions.assertEquals(2, fromState.getRecords().size());
+      Assertions.assertEquals(records.get(0).getValues(), fromState.getRecords().get(0).getValues());
+      Assertions.assertEquals("Mr. Darin", fromState.getRecords().get(0).getDisplayValue("name"));
+      Assertions.assertEquals("person", fromState.getRecords().get(1).getTableName());
+      Assertions.assertEquals(2, fromState.getValues().get("count"));
+      Assertions.assertEquals("review", fromState.getNextStepName().get());
+      Assertions.assertEquals(2, processState.getRecords().size(), "Caller's state should keep its records");
+      Assertions.assertEquals("review", processState.getNextStepName().get());
+
+      //////////////////////////////////////////////////////////////////////
+      // a plain list of records, and one that can't be compactly encoded //
+      //////////////////////////////////////////////////////////////////////
+      stateProvider.put(key, new ArrayList<>(records));
+      QRecord listRecord = (QRecord) stateProvider.get(ArrayList.class, key).get().get(1);
+      Assertions.assertEquals(records.get(1).getValues(), listRecord.getValues());
+
+      ArrayList<QRecord> withError = new ArrayList<>(List.of(new QRecord().withValue("id", 3).withError(new BadInputStatusMessage("bad"))));
+      stateProvider.put(key, withError);
+      QRecord errorRecord = (QRecord) stateProvider.get(ArrayList.class, key).get().get(0);
+      Assertions.assertEquals("bad", errorRecord.getErrors().get(0).getMessage());
+
+      ///////////////////////////////////////////////////////////////////
+      // subclasses of QRecord aren't compactly encoded - so they come //
+      // back as the same class.                                       //
+      ///////////////////////////////////////////////////////////////////
+      ArrayList<QRecord> subclassed = new ArrayList<>(List.of(new SubclassedQRecord()));
+      Assertions.assertFalse(CompactRecordListEncoding.canEncode(subclassed));
+      stateProvider.put(key, subclassed);
+      Assertions.assertInstanceOf(SubclassedQRecord.class, stateProvider.get(ArrayList.class, key).get().get(0));
+   }
+
+
+
+   /*******************************************************************************
+    ** QRecord subclass, for testing that it isn't compactly encoded.
+    *******************************************************************************/
+   private static class SubclassedQRecord extends QRecord
+   {
+   }
+
+
+
+   /*******************************************************************************
+    **
+    *******************************************************************************/
+   @Test
+   public void testClean() throws IOException
+   {
+      TempFileStateProvider stateProvider = new TempFileStateProvider(Files.createTempDirectory("qqqStateTest").toFile(), 4096);
+      UUIDAndTypeStateKey   oldKey        = new UUIDAndTypeStateKey(UUID.randomUUID(), StateType.PROCESS_STATUS, Instant.now().minus(10, ChronoUnit.HOURS));
+      UUIDAndTypeStateKey   newKey        = new UUIDAndTypeStateKey(StateType.PROCESS_STATUS);
+      stateProvider.put(oldKey, "old");
+      stateProvider.put(newKey, "new");
+
+      stateProvider.clean(Instant.now().minus(5, ChronoUnit.HOURS));
+      Assertions.assertTrue(stateProvider.get(String.class, oldKey).isEmpty());
+      Assertions.assertEquals("new", stateProvider.get(String.class, newKey).get());
+   }
+
+
+
+   /*******************************************************************************
+    ** pull a count out of the provider's status string
+    *******************************************************************************/
+   private int getStatusCount(TempFileStateProvider stateProvider, String name)
+   {
+      Matcher matcher = Pattern.compile(name + ": (\\d+)").matcher(stateProvider.status());
+      Assertions.assertTrue(matcher.find());
+      return (Integer.parseInt(matcher.group(1)));
+   }
+
+}
@@ -0,0 +1,124 @@
+/*
+ * QQQ - Low-code Application Framework for Engineers.
+ * Copyright (C) 2021-2024.  Kingsrook, LLC
+ * 651 N Broad St Ste 205 # 6917 | Middletown DE 19709 | United States
+ * contact@kingsrook.com
+ * https://github.com/Kingsrook/
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.kingsrook.qqq.backend.core.utils;
+
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+import com.kingsrook.qqq.backend.core.BaseTest;
+import com.kingsrook.qqq.backend.core.model.data.QRecord;
+import org.json.JSONObject;
+import org.junit.jupiter.api.Test;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+
+/*******************************************************************************
+ ** Unit test for JsonRecordStreamWriter
+ *******************************************************************************/
+class JsonRecordStreamWriterTest extends BaseTest
+{
+
+   /*******************************************************************************
+    **
+    *******************************************************************************/
+   private List<QRecord> makeRecords()
+   {
+      return (List.of(
+         new QRecord().withTableName("person").withValue("id", 1),
+         new QRecord().withTableName("person").withValue("id", 2)));
+   }
+
+
+
+   /*******************************************************************************
+    **
+    *******************************************************************************/
+   @Test
+   void testArray() throws IOException
+   {
+      ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+      try(JsonRecordStreamWriter writer = new JsonRecordStreamWriter(outputStream, false))
+      {
+         writer.writeRecords(makeRecords());
+      }
+
+      String json = outputStream.toString(StandardCharsets.UTF_8);
+      assertEquals("[" + JsonUtils.toJson(makeRecords().get(0)) + "," + JsonUtils.toJson(makeRecords().get(1)) + "]", json);
+
+      ////////////////////////////////////////////////////////
+      // an empty array, and no additional fields after one //
+      ////////////////////////////////////////////////////////
+      outputStream = new ByteArrayOutputStream();
+      JsonRecordStreamWriter writer = new JsonRecordStreamWriter(outputStream, false);
+      assertThatThrownBy(() -> writer.finish(Map.of("error", "oops"))).isInstanceOf(IllegalStateException.class);
+      writer.finish();
+      assertEquals("[]", outputStream.toString(StandardCharsets.UTF_8));
+   }
+
+
+
+   /*******************************************************************************
+    **
+    *******************************************************************************/
+   @Test
+   void testEnclosingObject() throws IOException
+   {
+      ByteArrayOutputStream  outputStream = new ByteArrayOutputStream();
+      JsonRecordStreamWriter writer       = new JsonRecordStreamWriter(outputStream, false).withEnclosingObjectFieldName("records");
+      writer.writeRecord(makeRecords().get(0));
+      writer.finish(Map.of("error", "oops"));
+
+      JSONObject jsonObject = JsonUtils.toJSONObject(outputStream.toString(StandardCharsets.UTF_8));
+      assertEquals(1, jsonObject.getJSONArray("records").length());
+      assertEquals(1, jsonObject.getJSONArray("records").getJSONObject(0).getJSONObject("values").getInt("id"));
+      assertEquals("oops", jsonObject.getString("error"));
+
+      assertThatThrownBy(() -> writer.writeRecord(makeRecords().get(1))).isInstanceOf(IllegalStateException.class);
+   }
+
+
+
+   /*******************************************************************************
+    **
+    *******************************************************************************/
+   @Test
+   void testNewlineDelimited() throws IOException
+   {
+      ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+      try(JsonRecordStreamWriter writer = new JsonRecordStreamWriter(outputStream, true))
+      {
+         writer.writeRecords(makeRecords());
+         writer.finish(Map.of("error", "oops"));
+      }
+
+      String[] lines = outputStream.toString(StandardCharsets.UTF_8).split("\n");
+      assertEquals(3, lines.length);
+      assertEquals(JsonUtils.toJson(makeRecords().get(0)), lines[0]);
+      assertEquals(2, JsonUtils.toJSONObject(lines[1]).getJSONObject("values").getInt("id"));
+      assertEquals("oops", JsonUtils.toJSONObject(lines[2]).getString("error"));
+   }
+
+}
@@ -343,4 +343,30 @@ class JsonUtilsTest extends BaseTest
          {"":"foo"}""", JsonUtils.toJson(mapWithNullKey, mapper -> mapper.getSerializerProvider().setNullKeySerializer(JsonUtils.nullKeyToEmptyStringSerializer)));
    }
 
+
+   /*******************************************************************************
+    ** customizers that capture state must each get their own mapper (vs. ones
+    ** that don't, which share a mapper per customizer class).
+    *******************************************************************************/
+   @Test
+   void testCustomizersWithAndWithoutState()
+   {
+      Map<String, Serializable> map = new LinkedHashMap<>();
+      map.put("a", null);
+
+      for(JsonInclude.Include include : List.of(JsonInclude.Include.ALWAYS, JsonInclude.Include.NON_NULL, JsonInclude.Include.ALWAYS))
+      {
+         String json = JsonUtils.toJson(map, mapper -> mapper.setSerializationInclusion(include));
+         assertEquals(include == JsonInclude.Include.ALWAYS ? """
+            {"a":null}""" : "{}", json);
+      }
+
+      for(int i = 0; i < 2; i++)
+      {
+         assertEquals("""
+            {"a":null}""", JsonUtils.toJson(map, mapper -> mapper.setSerializationInclusion(JsonInclude.Include.ALWAYS)));
+         assertEquals("{}", JsonUtils.toJson(map));
+      }
+   }
+
 }
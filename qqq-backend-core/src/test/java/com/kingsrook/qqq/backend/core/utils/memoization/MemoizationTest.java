@@ -27,6 +27,7 @@ import java.util.ArrayList;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Optional;
+import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
@@ -288,4 +289,185 @@ class MemoizationTest extends BaseTest
       System.out.println("All Done");
    }
 
-}
\ No newline at end of file
+
+
+   /*******************************************************************************
+    **
+    *******************************************************************************/
+   @Test
+   void testConcurrentMissesOnlyLookUpOnce() throws Exception
+   {
+      Memoization<String, Integer> memoization     = new Memoization<>();
+      AtomicInteger                callCounter     = new AtomicInteger(0);
+      int                          noOfThreads     = 10;
+      CountDownLatch               allThreadsReady = new CountDownLatch(noOfThreads);
+      ExecutorService              executorService = Executors.newFixedThreadPool(noOfThreads);
+
+      UnsafeFunction<String, Integer, Exception> lookupFunction = key ->
+      {
+         callCounter.getAndIncrement();
+         allThreadsReady.await(5, TimeUnit.SECONDS);
+         SleepUtils.sleep(100, TimeUnit.MILLISECONDS);
+         return (47);
+      };
+
+      try
+      {
+         List<Future<Optional<Integer>>> futures = new ArrayList<>();
+         for(int i = 0; i < noOfThreads; i++)
+         {
+            futures.add(executorService.submit(() ->
+            {
+               allThreadsReady.countDown();
+               return (memoization.getResult("key", lookupFunction));
+            }));
+         }
+
+         for(Future<Optional<Integer>> future : futures)
+         {
+            assertEquals(Optional.of(47), future.get());
+         }
+      }
+      finally
+      {
+         executorService.shutdown();
+      }
+
+      assertEquals(1, callCounter.get());
+      assertEquals(1, memoization.getLoadCount());
+   }
+
+
+
+   /*******************************************************************************
+    **
+    *******************************************************************************/
+   @Test
+   void testFrequencyEvictionPolicy()
+   {
+      Memoization<String, Integer> memoization = new Memoization<String, Integer>()
+         .withMaxSize(3)
+         .withEvictionPolicy(Memoization.EvictionPolicy.FREQUENCY);
+
+      memoization.storeResult("one", 1);
+      memoization.storeResult("two", 2);
+      memoization.storeResult("three", 3);
+      for(int i = 0; i < 3; i++)
+      {
+         memoization.getMemoizedResult("one");
+         memoization.getMemoizedResult("three");
+      }
+
+      ////////////////////////////////////////////////////////////////////////////
+      // "one" is the oldest, but it's been used more than "two" - so two goes. //
+      ////////////////////////////////////////////////////////////////////////////
+      memoization.storeResult("four", 4);
+      assertThat(memoization.getMemoizedResult("two")).isEmpty();
+      assertThat(memoization.getMemoizedResult("one")).isPresent().get().extracting("result").isEqualTo(1);
+      assertThat(memoization.getMemoizedResult("three")).isPresent().get().extracting("result").isEqualTo(3);
+      assertThat(memoization.getMemoizedResult("four")).isPresent().get().extracting("result").isEqualTo(4);
+      assertEquals(1, memoization.getEvictionCount());
+      assertEquals(3, memoization.getSize());
+   }
+
+
+
+   /*******************************************************************************
+    **
+    *******************************************************************************/
+   @Test
+   void testRefreshAfter()
+   {
+      AtomicInteger callCounter = new AtomicInteger(0);
+      Memoization<String, Integer> memoization = new Memoization<String, Integer>()
+         .withRefreshAfter(Duration.ofMillis(50));
+
+      UnsafeFunction<String, Integer, Exception> lookupFunction = key -> callCounter.incrementAndGet();
+
+      assertEquals(Optional.of(1), memoization.getResult("key", lookupFunction));
+      assertEquals(Optional.of(1), memoization.getResult("key", lookupFunction));
+      assertEquals(1, callCounter.get());
+
+      //////////////////////////////////////////////////////////////////////////////////
+      // after refreshAfter, the current value is still returned - but it gets looked //
+      // up again in the background, for later gets.                                  //
+      //////////////////////////////////////////////////////////////////////////////////
+      SleepUtils.sleep(100, TimeUnit.MILLISECONDS);
+      assertEquals(Optional.of(1), memoization.getResult("key", lookupFunction));
+
+      for(int i = 0; i < 200 && memoization.getRefreshCount() == 0; i++)
+      {
+         SleepUtils.sleep(10, TimeUnit.MILLISECONDS);
+      }
+
+      assertEquals(1, memoization.getRefreshCount());
+      assertEquals(Optional.of(2), memoization.getResult("key", lookupFunction));
+      assertEquals(3, memoization.getHitCount());
+      assertEquals(1, memoization.getMissCount());
+
+      //////////////////////////////////////////////////////////////////////////
+      // after the refresh executor is shut down, a new one should be started //
+      // for the next refresh.                                                //
+      //////////////////////////////////////////////////////////////////////////
+      Memoization.shutdownRefreshExecutor();
+      SleepUtils.sleep(100, TimeUnit.MILLISECONDS);
+      assertEquals(Optional.of(2), memoization.getResult("key", lookupFunction));
+
+      for(int i = 0; i < 200 && memoization.getRefreshCount() == 1; i++)
+      {
+         SleepUtils.sleep(10, TimeUnit.MILLISECONDS);
+      }
+
+      assertEquals(2, memoization.getRefreshCount());
+   }
+
+
+
+   /*******************************************************************************
+    ** lookups for two keys, in two threads, that each need the other key's result,
+    ** must not wait on each other forever.
+    *******************************************************************************/
+   @Test
+   void testCrossKeyLookupsDoNotDeadlock() throws Exception
+   {
+      Memoization<String, Integer> memoization = new Memoization<String, Integer>()
+         .withInFlightLookupWaitTimeout(Duration.ofMillis(100));
+
+      CountDownLatch  bothStarted     = new CountDownLatch(2);
+      ExecutorService executorService = Executors.newFixedThreadPool(2);
+
+      UnsafeFunction<String, Integer, Exception> lookupA = key ->
+      {
+         bothStarted.countDown();
+         bothStarted.await(5, TimeUnit.SECONDS);
+         memoization.getResult("b", k -> 2);
+         return (1);
+      };
+
+      UnsafeFunction<String, Integer, Exception> lookupB = key ->
+      {
+         bothStarted.countDown();
+         bothStarted.await(5, TimeUnit.SECONDS);
+         memoization.getResult("a", k -> 1);
+         return (2);
+      };
+
+      try
+      {
+         Future<Optional<Integer>> futureA = executorService.submit(() -> memoization.getResult("a", lookupA));
+         Future<Optional<Integer>> futureB = executorService.submit(() -> memoization.getResult("b", lookupB));
+
+         //////////////////////////////////////////////////////////////////////
+         // which thread gives up waiting on the other first is a race - so  //
+         // the lookups' values don't depend on it; just that both complete. //
+         //////////////////////////////////////////////////////////////////////
+         assertEquals(Optional.of(1), futureA.get(5, TimeUnit.SECONDS));
+         assertEquals(Optional.of(2), futureB.get(5, TimeUnit.SECONDS));
+      }
+      finally
+      {
+         executorService.shutdown();
+      }
+   }
+
+}
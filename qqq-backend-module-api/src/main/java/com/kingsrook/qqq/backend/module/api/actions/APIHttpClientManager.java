@@ -0,0 +1,157 @@
+/*
+ * QQQ - Low-code Application Framework for Engineers.
+ * Copyright (C) 2021-2024.  Kingsrook, LLC
+ * 651 N Broad St Ste 205 # 6917 | Middletown DE 19709 | United States
+ * contact@kingsrook.com
+ * https://github.com/Kingsrook/
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.kingsrook.qqq.backend.module.api.actions;
+
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+import com.kingsrook.qqq.backend.core.logging.QLogger;
+import org.apache.http.impl.client.CloseableHttpClient;
+import static com.kingsrook.qqq.backend.core.logging.LogUtils.logPair;
+
+
+/*******************************************************************************
+ ** Keeps long-lived HttpClients (each with its pool of keep-alive connections)
+ ** for API backends - so that each request made by BaseAPIActionUtil can re-use
+ ** an open connection, rather than paying for a new TCP (and TLS) handshake.
+ **
+ ** Clients are kept per backend, and within a backend, per client key - which
+ ** BaseAPIActionUtil makes from its class (and the backend variant, if any), as
+ ** different action utils (or variants) may build differently-configured
+ ** clients.
+ **
+ ** Clients are built (by the action util) on first use, and closed at JVM
+ ** shutdown, or by closeClients / closeAllClients.
+ *******************************************************************************/
+public class APIHttpClientManager
+{
+   private static final QLogger LOG = QLogger.getLogger(APIHttpClientManager.class);
+
+   ///////////////////////////////////////////////
+   // map of backendName => clientKey => client //
+   ///////////////////////////////////////////////
+   private static final Map<String, Map<String, CloseableHttpClient>> clientMap = new ConcurrentHashMap<>();
+
+   private static boolean addedShutdownHook = false;
+
+
+
+   /*******************************************************************************
+    ** Get the shared client for a backend & client key - using the clientBuilder
+    ** to create it on first use.
+    *******************************************************************************/
+   public static CloseableHttpClient getHttpClient(String backendName, String clientKey, Supplier<CloseableHttpClient> clientBuilder)
+   {
+      CloseableHttpClient httpClient = clientMap.getOrDefault(backendName, Collections.emptyMap()).get(clientKey);
+      if(httpClient == null)
+      {
+         synchronized(clientMap)
+         {
+            Map<String, CloseableHttpClient> backendClients = clientMap.computeIfAbsent(backendName, k -> new ConcurrentHashMap<>());
+            httpClient = backendClients.get(clientKey);
+            if(httpClient == null)
+            {
+               LOG.info("Creating pooled HttpClient for backend", logPair("backendName", backendName), logPair("clientKey", clientKey));
+               httpClient = clientBuilder.get();
+               backendClients.put(clientKey, httpClient);
+               addShutdownHookIfNeeded();
+            }
+         }
+      }
+
+      return (httpClient);
+   }
+
+
+
+   /*******************************************************************************
+    ** Close (and forget) all clients for a backend - e.g., if its connection
+    ** settings are being changed.  The next request to it will build new clients.
+    *******************************************************************************/
+   public static void closeClients(String backendName)
+   {
+      synchronized(clientMap)
+      {
+         closeClients(backendName, clientMap.remove(backendName));
+      }
+   }
+
+
+
+   /*******************************************************************************
+    ** Close (and forget) all clients.
+    *******************************************************************************/
+   public static void closeAllClients()
+   {
+      synchronized(clientMap)
+      {
+         for(String backendName : new ArrayList<>(clientMap.keySet()))
+         {
+            closeClients(backendName, clientMap.remove(backendName));
+         }
+      }
+   }
+
+
+
+   /*******************************************************************************
+    **
+    *******************************************************************************/
+   private static void closeClients(String backendName, Map<String, CloseableHttpClient> backendClients)
+   {
+      if(backendClients == null)
+      {
+         return;
+      }
+
+      for(Map.Entry<String, CloseableHttpClient> entry : backendClients.entrySet())
+      {
+         try
+         {
+            LOG.info("Closing pooled HttpClient", logPair("backendName", backendName), logPair("clientKey", entry.getKey()));
+            entry.getValue().close();
+         }
+         catch(Exception e)
+         {
+            LOG.warn("Error closing pooled HttpClient", e, logPair("backendName", backendName), logPair("clientKey", entry.getKey()));
+         }
+      }
+   }
+
+
+
+   /*******************************************************************************
+    **
+    *******************************************************************************/
+   private static void addShutdownHookIfNeeded()
+   {
+      if(!addedShutdownHook)
+      {
+         Runtime.getRuntime().addShutdownHook(new Thread(APIHttpClientManager::closeAllClients, "qqq-api-http-client-manager-shutdown"));
+         addedShutdownHook = true;
+      }
+   }
+
+}
@@ -0,0 +1,460 @@
+/*
+ * QQQ - Low-code Application Framework for Engineers.
+ * Copyright (C) 2021-2024.  Kingsrook, LLC
+ * 651 N Broad St Ste 205 # 6917 | Middletown DE 19709 | United States
+ * contact@kingsrook.com
+ * https://github.com/Kingsrook/
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.kingsrook.qqq.backend.module.api.actions;
+
+
+import java.time.Instant;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import com.kingsrook.qqq.backend.core.logging.QLogger;
+import com.kingsrook.qqq.backend.core.utils.SleepUtils;
+import com.kingsrook.qqq.backend.core.utils.StringUtils;
+import com.kingsrook.qqq.backend.module.api.model.metadata.APIRateLimiterSettings;
+import org.apache.http.Header;
+import org.apache.http.HttpStatus;
+import static com.kingsrook.qqq.backend.core.logging.LogUtils.logPair;
+
+
+/*******************************************************************************
+ ** Token-bucket rate limiter for requests to an API backend - one instance per
+ ** backend (and variant) key, shared by all threads in the JVM, so that
+ ** concurrent jobs calling the same API space their requests out, rather than
+ ** all running into 429's and then backing off in lockstep.
+ **
+ ** Callers reserve a token via acquire (which sleeps as needed - waiters are
+ ** spaced 1/rate apart, in the order they arrived), then pass the response to
+ ** observeResponse, so the limiter can adapt:
+ ** - a 429 always pauses the bucket for the Retry-After time (or the caller's
+ **   backoff, if no header) - and (unless not adapting to responses) cuts the
+ **   rate in half (down to the settings' minimum) - at most once per pause, as
+ **   other 429's during it are for requests sent before the rate was cut.
+ ** - successful responses let the rate recover, a bit at a time, back to the
+ **   configured rate.
+ ** - X-RateLimit-Remaining / X-RateLimit-Reset headers cap the available tokens
+ **   to what the server says is left (which includes other processes' usage),
+ **   pausing until the reset time when none are left.
+ **
+ ** Counters (acquired, throttled, time spent throttled, 429's) are kept per
+ ** limiter, for logging or metrics - see getRateLimiters.
+ *******************************************************************************/
+public class APIRateLimiter
+{
+   private static final QLogger LOG = QLogger.getLogger(APIRateLimiter.class);
+
+   private static final Map<String, APIRateLimiter> rateLimiterMap = new ConcurrentHashMap<>();
+
+   ///////////////////////////////////////////////////////////////////////////
+   // after a 429, the rate is multiplied by this; each successful response //
+   // then adds this fraction of the configured rate back.                  //
+   ///////////////////////////////////////////////////////////////////////////
+   private static final double RATE_DECREASE_FACTOR   = 0.5;
+   private static final double RATE_RECOVERY_FRACTION = 0.02;
+
+   private final String  key;
+   private final double  configuredRequestsPerSecond;
+   private final double  minRequestsPerSecond;
+   private final double  burstSize;
+   private final boolean adaptToResponseHeaders;
+
+   private double requestsPerSecond;
+   private double availableTokens;
+   private long   lastRefillNanos;
+   private Long   rateDecreasePauseEndNanos;
+
+   private final AtomicLong acquiredCount          = new AtomicLong(0);
+   private final AtomicLong throttledCount         = new AtomicLong(0);
+   private final AtomicLong throttledMillis        = new AtomicLong(0);
+   private final AtomicLong rateLimitResponseCount = new AtomicLong(0);
+
+
+
+   /*******************************************************************************
+    ** Constructor
+    **
+    *******************************************************************************/
+   public APIRateLimiter(String key, APIRateLimiterSettings settings)
+   {
+      ////////////////////////////////////////////////////////////////////////////
+      // QInstanceValidator checks these too - but a null would NPE, and a zero //
+      // rate would have acquire wait forever, so fail clearly here as well.    //
+      ////////////////////////////////////////////////////////////////////////////
+      if(settings.getRequestsPerSecond() == null || settings.getRequestsPerSecond() <= 0)
+      {
+         throw (new IllegalArgumentException("requestsPerSecond must be greater than 0 for rate limiter: " + key));
+      }
+
+      if(settings.getMinRequestsPerSecond() != null && settings.getMinRequestsPerSecond() <= 0)
+      {
+         throw (new IllegalArgumentException("minRequestsPerSecond must be greater than 0 for rate limiter: " + key));
+      }
+
+      this.key = key;
+      this.configuredRequestsPerSecond = settings.getRequestsPerSecond();
+      this.minRequestsPerSecond = Math.min(configuredRequestsPerSecond, Objects.requireNonNullElse(settings.getMinRequestsPerSecond(), configuredRequestsPerSecond / 10));
+      this.burstSize = settings.getBurstSize() != null ? settings.getBurstSize() : Math.max(1, Math.floor(configuredRequestsPerSecond));
+      this.adaptToResponseHeaders = !Boolean.FALSE.equals(settings.getAdaptToResponseHeaders());
+
+      this.requestsPerSecond = configuredRequestsPerSecond;
+      this.availableTokens = burstSize;
+      this.lastRefillNanos = System.nanoTime();
+   }
+
+
+
+   /*******************************************************************************
+    ** Get the shared limiter for a key (e.g., backend name, plus variant id) -
+    ** creating it from the settings on first use.
+    *******************************************************************************/
+   public static APIRateLimiter getRateLimiter(String key, APIRateLimiterSettings settings)
+   {
+      return (rateLimiterMap.computeIfAbsent(key, k -> new APIRateLimiter(k, settings)));
+   }
+
+
+
+   /*******************************************************************************
+    ** Get all of the limiters in use (e.g., to report their counters as metrics).
+    *******************************************************************************/
+   public static Map<String, APIRateLimiter> getRateLimiters()
+   {
+      return (Map.copyOf(rateLimiterMap));
+   }
+
+
+
+   /*******************************************************************************
+    ** Forget all limiters (e.g., if backend settings are changed) - new ones
+    ** will be created on next use.
+    *******************************************************************************/
+   public static void clearRateLimiters()
+   {
+      rateLimiterMap.clear();
+   }
+
+
+
+   /*******************************************************************************
+    ** Reserve a token for one request - sleeping until it's available.
+    **
+    ** @return the number of millis spent waiting.
+    *******************************************************************************/
+   public long acquire()
+   {
+      long waitMillis;
+      synchronized(this)
+      {
+         long now = System.nanoTime();
+         refill(now);
+
+         ///////////////////////////////////////////////////////////////////////
+         // take the token now, even if that leaves the bucket in debt - then //
+         // the next caller's wait includes the time to pay back that debt.   //
+         ///////////////////////////////////////////////////////////////////////
+         availableTokens -= 1;
+         double waitNanos = Math.max(0, lastRefillNanos - now);
+         if(availableTokens < 0)
+         {
+            waitNanos += (-availableTokens / requestsPerSecond) * 1_000_000_000;
+         }
+         waitMillis = (long) Math.ceil(waitNanos / 1_000_000);
+      }
+
+      acquiredCount.incrementAndGet();
+      if(waitMillis > 0)
+      {
+         throttledCount.incrementAndGet();
+         throttledMillis.addAndGet(waitMillis);
+         LOG.debug("Throttling API request", logPair("rateLimiter", key), logPair("waitMillis", waitMillis), logPair("requestsPerSecond", requestsPerSecond));
+         SleepUtils.sleep(waitMillis, TimeUnit.MILLISECONDS);
+      }
+
+      return (waitMillis);
+   }
+
+
+
+   /*******************************************************************************
+    ** Adapt the limiter to a response from the API.
+    **
+    ** @param fallbackBackoffMillis how long to pause after a 429 that doesn't
+    ** include a Retry-After header.
+    *******************************************************************************/
+   public void observeResponse(QHttpResponse response, long fallbackBackoffMillis)
+   {
+      if(response == null)
+      {
+         return;
+      }
+
+      boolean wasRateLimited = Objects.equals(response.getStatusCode(), HttpStatus.SC_TOO_MANY_REQUESTS);
+      if(wasRateLimited)
+      {
+         rateLimitResponseCount.incrementAndGet();
+      }
+
+      synchronized(this)
+      {
+         long now = System.nanoTime();
+         refill(now);
+
+         if(wasRateLimited)
+         {
+            /////////////////////////////////////////////////////////////////////////
+            // always back off after a 429 - even if not adapting the rate - since //
+            // the retry (and other threads) would otherwise just get more 429's.  //
+            /////////////////////////////////////////////////////////////////////////
+            Long retryAfterMillis = parseRetryAfterMillis(getHeaderValue(response, "Retry-After"));
+            long pauseEndNanos    = now + TimeUnit.MILLISECONDS.toNanos(retryAfterMillis != null ? retryAfterMillis : fallbackBackoffMillis);
+            pauseUntil(pauseEndNanos);
+
+            ///////////////////////////////////////////////////////////////////////////////
+            // cut the rate only once per pause - other 429's that arrive before it ends //
+            // are for requests sent before the cut, so they don't mean to cut it again. //
+            ///////////////////////////////////////////////////////////////////////////////
+            if(adaptToResponseHeaders && (rateDecreasePauseEndNanos == null || now - rateDecreasePauseEndNanos >= 0))
+            {
+               double previousRate = requestsPerSecond;
+               requestsPerSecond = Math.max(minRequestsPerSecond, requestsPerSecond * RATE_DECREASE_FACTOR);
+               rateDecreasePauseEndNanos = pauseEndNanos;
+
+               LOG.info("API rate limit response - slowing down", logPair("rateLimiter", key), logPair("previousRequestsPerSecond", previousRate), logPair("requestsPerSecond", requestsPerSecond), logPair("retryAfterMillis", retryAfterMillis));
+            }
+         }
+         else if(adaptToResponseHeaders && requestsPerSecond < configuredRequestsPerSecond)
+         {
+            requestsPerSecond = Math.min(configuredRequestsPerSecond, requestsPerSecond + configuredRequestsPerSecond * RATE_RECOVERY_FRACTION);
+         }
+
+         if(!adaptToResponseHeaders)
+         {
+            return;
+         }
+
+         ////////////////////////////////////////////////////////////////////////////////
+         // if the server says how many requests are left in its window, don't plan to //
+         // use more than that - and if there are none left, wait for the reset.       //
+         ////////////////////////////////////////////////////////////////////////////////
+         Long remaining = parseLong(getHeaderValue(response, "X-RateLimit-Remaining"));
+         if(remaining != null)
+         {
+            availableTokens = Math.min(availableTokens, remaining);
+            if(remaining <= 0)
+            {
+               Long resetMillis = parseRateLimitResetMillis(getHeaderValue(response, "X-RateLimit-Reset"));
+               if(resetMillis != null)
+               {
+                  pauseUntil(now + TimeUnit.MILLISECONDS.toNanos(resetMillis));
+               }
+            }
+         }
+      }
+   }
+
+
+
+   /*******************************************************************************
+    ** add tokens for the time since the last refill (which may be in the future,
+    ** while paused).
+    *******************************************************************************/
+   private void refill(long now)
+   {
+      if(now > lastRefillNanos)
+      {
+         availableTokens = Math.min(burstSize, availableTokens + ((now - lastRefillNanos) / 1_000_000_000.0) * requestsPerSecond);
+         lastRefillNanos = now;
+      }
+   }
+
+
+
+   /*******************************************************************************
+    ** stop handing out tokens until the given time - any tokens in the bucket are
+    ** dropped (any debt is kept), and refilling starts from then.
+    *******************************************************************************/
+   private void pauseUntil(long untilNanos)
+   {
+      if(untilNanos > lastRefillNanos)
+      {
+         availableTokens = Math.min(availableTokens, 0);
+         lastRefillNanos = untilNanos;
+      }
+   }
+
+
+
+   /*******************************************************************************
+    **
+    *******************************************************************************/
+   private static String getHeaderValue(QHttpResponse response, String headerName)
+   {
+      if(response.getHeaderList() != null)
+      {
+         for(Header header : response.getHeaderList())
+         {
+            if(headerName.equalsIgnoreCase(header.getName()))
+            {
+               return (header.getValue());
+            }
+         }
+      }
+      return (null);
+   }
+
+
+
+   /*******************************************************************************
+    ** Retry-After is either a number of seconds, or an HTTP date.
+    *******************************************************************************/
+   static Long parseRetryAfterMillis(String value)
+   {
+      Long seconds = parseLong(value);
+      if(seconds != null)
+      {
+         return (Math.max(0, seconds) * 1000);
+      }
+
+      if(StringUtils.hasContent(value))
+      {
+         try
+         {
+            Instant retryAt = ZonedDateTime.parse(value.trim(), DateTimeFormatter.RFC_1123_DATE_TIME).toInstant();
+            return (Math.max(0, retryAt.toEpochMilli() - System.currentTimeMillis()));
+         }
+         catch(Exception e)
+         {
+            LOG.debug("Unparseable Retry-After header", logPair("value", value));
+         }
+      }
+
+      return (null);
+   }
+
+
+
+   /*******************************************************************************
+    ** X-RateLimit-Reset varies by API - some give seconds until the reset, others
+    ** the epoch-seconds time of the reset.  Treat big numbers as the latter.
+    *******************************************************************************/
+   static Long parseRateLimitResetMillis(String value)
+   {
+      Long reset = parseLong(value);
+      if(reset == null)
+      {
+         return (null);
+      }
+
+      if(reset > 1_000_000_000L)
+      {
+         return (Math.max(0, reset * 1000 - System.currentTimeMillis()));
+      }
+
+      return (Math.max(0, reset) * 1000);
+   }
+
+
+
+   /*******************************************************************************
+    **
+    *******************************************************************************/
+   private static Long parseLong(String value)
+   {
+      if(!StringUtils.hasContent(value))
+      {
+         return (null);
+      }
+
+      try
+      {
+         return (Long.parseLong(value.trim()));
+      }
+      catch(NumberFormatException e)
+      {
+         return (null);
+      }
+   }
+
+
+
+   /*******************************************************************************
+    ** Getter for key
+    *******************************************************************************/
+   public String getKey()
+   {
+      return (this.key);
+   }
+
+
+
+   /*******************************************************************************
+    ** Getter for the current (possibly adapted) requestsPerSecond
+    *******************************************************************************/
+   public synchronized double getRequestsPerSecond()
+   {
+      return (this.requestsPerSecond);
+   }
+
+
+
+   /*******************************************************************************
+    ** Getter for the number of tokens acquired
+    *******************************************************************************/
+   public long getAcquiredCount()
+   {
+      return (this.acquiredCount.get());
+   }
+
+
+
+   /*******************************************************************************
+    ** Getter for the number of acquires that had to wait
+    *******************************************************************************/
+   public long getThrottledCount()
+   {
+      return (this.throttledCount.get());
+   }
+
+
+
+   /*******************************************************************************
+    ** Getter for the total millis that acquires spent waiting
+    *******************************************************************************/
+   public long getThrottledMillis()
+   {
+      return (this.throttledMillis.get());
+   }
+
+
+
+   /*******************************************************************************
+    ** Getter for the number of 429 responses observed
+    *******************************************************************************/
+   public long getRateLimitResponseCount()
+   {
+      return (this.rateLimitResponseCount.get());
+   }
+
+}
@@ -30,13 +30,22 @@ import java.net.URLEncoder;
 import java.nio.charset.Charset;
 import java.nio.charset.StandardCharsets;
 import java.time.Instant;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.Base64;
+import java.util.Deque;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.concurrent.TimeUnit;
 import java.util.function.Supplier;
 import com.kingsrook.qqq.backend.core.actions.tables.InsertAction;
+import com.kingsrook.qqq.backend.core.context.CapturedContext;
 import com.kingsrook.qqq.backend.core.context.QContext;
 import com.kingsrook.qqq.backend.core.exceptions.QException;
 import com.kingsrook.qqq.backend.core.exceptions.QNotFoundException;
@@ -69,6 +78,7 @@ import com.kingsrook.qqq.backend.core.model.statusmessages.SystemErrorStatusMess
 import com.kingsrook.qqq.backend.core.utils.CollectionUtils;
 import com.kingsrook.qqq.backend.core.utils.JsonUtils;
 import com.kingsrook.qqq.backend.core.utils.Pair;
+import com.kingsrook.qqq.backend.core.utils.PrefixedDefaultThreadFactory;
 import com.kingsrook.qqq.backend.core.utils.SleepUtils;
 import com.kingsrook.qqq.backend.core.utils.StringUtils;
 import com.kingsrook.qqq.backend.core.utils.ValueUtils;
@@ -81,9 +91,11 @@ import com.kingsrook.qqq.backend.module.api.model.AuthorizationType;
 import com.kingsrook.qqq.backend.module.api.model.OutboundAPILog;
 import com.kingsrook.qqq.backend.module.api.model.metadata.APIBackendMetaData;
 import com.kingsrook.qqq.backend.module.api.model.metadata.APIBackendVariantSetting;
+import com.kingsrook.qqq.backend.module.api.model.metadata.APIConnectionPoolSettings;
 import com.kingsrook.qqq.backend.module.api.model.metadata.APITableBackendDetails;
 import org.apache.commons.io.IOUtils;
 import org.apache.commons.lang.BooleanUtils;
+import org.apache.http.Header;
 import org.apache.http.HttpEntity;
 import org.apache.http.HttpEntityEnclosingRequest;
 import org.apache.http.HttpResponse;
@@ -97,11 +109,12 @@ import org.apache.http.client.methods.HttpPatch;
 import org.apache.http.client.methods.HttpPost;
 import org.apache.http.client.methods.HttpPut;
 import org.apache.http.client.methods.HttpRequestBase;
+import org.apache.http.conn.ConnectionKeepAliveStrategy;
 import org.apache.http.entity.AbstractHttpEntity;
 import org.apache.http.entity.StringEntity;
 import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.impl.client.DefaultConnectionKeepAliveStrategy;
 import org.apache.http.impl.client.HttpClientBuilder;
-import org.apache.http.impl.client.HttpClients;
 import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
 import org.apache.http.util.EntityUtils;
 import org.apache.logging.log4j.Level;
@@ -118,6 +131,8 @@ public class BaseAPIActionUtil
 {
    private final QLogger LOG = QLogger.getLogger(BaseAPIActionUtil.class);
 
+   private static final Map<String, Object> oauth2TokenLocks = new ConcurrentHashMap<>();
+
    protected APIBackendMetaData       backendMetaData;
    protected AbstractTableActionInput actionInput;
 
@@ -259,7 +274,7 @@ public class BaseAPIActionUtil
                insertOutput.addRecord(record);
             }
 
-            if(insertInput.getRecords().size() > 1 && getMillisToSleepAfterEveryCall() > 0)
+            if(insertInput.getRecords().size() > 1 && getMillisToSleepAfterEveryCall() > 0 && backendMetaData.getRateLimiterSettings() == null)
             {
                SleepUtils.sleep(getMillisToSleepAfterEveryCall(), TimeUnit.MILLISECONDS);
             }
@@ -305,6 +320,16 @@ public class BaseAPIActionUtil
          limit = getApiStandardLimit();
       }
 
+      /////////////////////////////////////////////////////////////////////////////
+      // with a caller-given limit, we ask for that many records in one request, //
+      // so only prefetch pages when paging through the whole result.            //
+      /////////////////////////////////////////////////////////////////////////////
+      int pagesToPrefetch = getQueryPagesToPrefetch();
+      if(originalLimit == null && limit != null && pagesToPrefetch > 0)
+      {
+         return (doQueryWithPagePrefetch(table, queryInput, queryOutput, limit, skip, pagesToPrefetch));
+      }
+
       int totalCount = 0;
       while(true)
       {
@@ -362,6 +387,101 @@ public class BaseAPIActionUtil
 
 
 
+   /*******************************************************************************
+    ** Version of doQuery for APIs that page by offset - where the skip for each
+    ** page is known up front (N * limit) - so the next pagesToPrefetch pages can be
+    ** requested concurrently while the current one is processed.  Pages are still
+    ** processed (e.g., put into the queryOutput's record pipe) in order.
+    *******************************************************************************/
+   private QueryOutput doQueryWithPagePrefetch(QTableMetaData table, QueryInput queryInput, QueryOutput queryOutput, Integer limit, Integer skip, int pagesToPrefetch) throws QException
+   {
+      QQueryFilter    filter          = queryInput.getFilter();
+      CapturedContext capturedContext = QContext.capture();
+      int             nextSkip        = skip == null ? 0 : skip;
+      int             pagesProcessed  = 0;
+
+      Deque<Future<QHttpResponse>> pendingPages    = new ArrayDeque<>();
+      ExecutorService              executorService = Executors.newFixedThreadPool(pagesToPrefetch + 1, new PrefixedDefaultThreadFactory(this));
+      try
+      {
+         while(true)
+         {
+            ///////////////////////////////////////////////////////////////////////////
+            // fetch the first page by itself (it may be the only one, and it'll get //
+            // any oauth token that's needed) - after that, keep pagesToPrefetch     //
+            // pages in flight beyond the one we're waiting on.                      //
+            ///////////////////////////////////////////////////////////////////////////
+            int pagesInFlight = (pagesProcessed == 0) ? 1 : pagesToPrefetch + 1;
+            while(pendingPages.size() < pagesInFlight)
+            {
+               int pageSkip = nextSkip;
+               pendingPages.add(executorService.submit(() -> fetchQueryPage(capturedContext, table, filter, limit, pageSkip)));
+               nextSkip += limit;
+            }
+
+            QHttpResponse response = pendingPages.removeFirst().get();
+            int           count    = processGetResponse(table, response, queryOutput);
+            pagesProcessed++;
+
+            ////////////////////////////////////////////////////////////////////////////////////
+            // if we got back less than a full page this time, then we must be done, so break //
+            ////////////////////////////////////////////////////////////////////////////////////
+            if(count == 0 || count < limit)
+            {
+               return (queryOutput);
+            }
+
+            ///////////////////////////////////////////////////////////////////
+            // if there's an async callback that says we're cancelled, break //
+            ///////////////////////////////////////////////////////////////////
+            if(queryInput.getAsyncJobCallback().wasCancelRequested())
+            {
+               LOG.info("Breaking query job, as requested.");
+               return (queryOutput);
+            }
+         }
+      }
+      catch(Exception e)
+      {
+         Throwable cause = (e instanceof ExecutionException && e.getCause() != null) ? e.getCause() : e;
+         LOG.error("Error in API Query", cause, logPair("pagesProcessed", pagesProcessed));
+         throw new QException("Error executing query: " + cause.getMessage(), cause);
+      }
+      finally
+      {
+         //////////////////////////////////////////////////////////////////////
+         // any pages still in flight are past the end (or no longer wanted) //
+         //////////////////////////////////////////////////////////////////////
+         pendingPages.forEach(future -> future.cancel(true));
+         executorService.shutdownNow();
+      }
+   }
+
+
+
+   /*******************************************************************************
+    ** Request one page of a query - run on a prefetch thread, so it sets up the
+    ** calling thread's context first.
+    *******************************************************************************/
+   private QHttpResponse fetchQueryPage(CapturedContext capturedContext, QTableMetaData table, QQueryFilter filter, Integer limit, Integer skip) throws QException
+   {
+      QContext.init(capturedContext);
+      try
+      {
+         String  paramString = buildQueryStringForGet(filter, limit, skip, table.getFields());
+         String  url         = buildTableUrl(table) + paramString;
+         HttpGet request     = new HttpGet(url);
+
+         return (makeRequest(table, request));
+      }
+      finally
+      {
+         QContext.clear();
+      }
+   }
+
+
+
    /*******************************************************************************
     **
     *******************************************************************************/
@@ -410,7 +530,7 @@ public class BaseAPIActionUtil
             {
                updateOutput.addRecord(qRecord);
             }
-            if(recordList.size() == 20 && getMillisToSleepAfterEveryCall() > 0)
+            if(recordList.size() == 20 && getMillisToSleepAfterEveryCall() > 0 && backendMetaData.getRateLimiterSettings() == null)
             {
                SleepUtils.sleep(getMillisToSleepAfterEveryCall(), TimeUnit.MILLISECONDS);
             }
@@ -862,14 +982,28 @@ public class BaseAPIActionUtil
       // it as a "cheap & easy" way to "cache" the token within our process's memory...                             //
       ////////////////////////////////////////////////////////////////////////////////////////////////////////////////
       String accessToken = ValueUtils.getValueAsString(backendMetaData.getCustomValue(accessTokenKey));
+      if(StringUtils.hasContent(accessToken))
+      {
+         return (accessToken);
+      }
 
-      if(!StringUtils.hasContent(accessToken))
+      //////////////////////////////////////////////////////////////////////////////////
+      // only let one thread (e.g., of several fetching pages concurrently) request a //
+      // new token - others wait for it, then find it stashed in the meta data.       //
+      //////////////////////////////////////////////////////////////////////////////////
+      synchronized(getOAuth2TokenLock())
       {
-         try(CloseableHttpClient client = HttpClients.custom().setConnectionManager(new PoolingHttpClientConnectionManager()).build())
+         accessToken = ValueUtils.getValueAsString(backendMetaData.getCustomValue(accessTokenKey));
+         if(StringUtils.hasContent(accessToken))
+         {
+            return (accessToken);
+         }
+
+         try
          {
             HttpRequestBase request = createOAuth2TokenRequest();
 
-            HttpResponse response     = executeOAuthTokenRequest(client, request);
+            HttpResponse response     = executeOAuthTokenRequest(getHttpClient(), request);
             int          statusCode   = response.getStatusLine().getStatusCode();
             HttpEntity   entity       = response.getEntity();
             String       resultString = EntityUtils.toString(entity);
@@ -904,6 +1038,39 @@ public class BaseAPIActionUtil
 
 
 
+   /*******************************************************************************
+    ** Forget the stashed OAuth2 token, after a request that used it found it to be
+    ** expired - unless another thread already replaced it with a new one (in which
+    ** case, the retry will just use that new one).
+    *******************************************************************************/
+   protected void clearExpiredOAuth2Token(HttpRequestBase request) throws QException
+   {
+      String accessTokenKey = getOAuth2AccessTokenKey();
+      synchronized(getOAuth2TokenLock())
+      {
+         String accessToken         = ValueUtils.getValueAsString(backendMetaData.getCustomValue(accessTokenKey));
+         Header authorizationHeader = request.getFirstHeader("Authorization");
+         if(authorizationHeader == null || accessToken == null || authorizationHeader.getValue().equals("Bearer " + accessToken))
+         {
+            backendMetaData.withCustomValue(accessTokenKey, null);
+         }
+      }
+   }
+
+
+
+   /*******************************************************************************
+    ** lock object for fetching (or clearing) a backend's tokens - one per backend
+    ** (rather than per variant), since all of its variants' tokens are stashed in
+    ** the same (not thread-safe) customValues map.
+    *******************************************************************************/
+   private Object getOAuth2TokenLock()
+   {
+      return (oauth2TokenLocks.computeIfAbsent(backendMetaData.getName(), k -> new Object()));
+   }
+
+
+
    /***************************************************************************
     ** For doing OAuth2 authentication, create a request for a token.
     ***************************************************************************/
@@ -1140,7 +1307,7 @@ public class BaseAPIActionUtil
       try
       {
          QRecord record = JsonUtils.parseQRecord(jsonObject, fields, true);
-         record.getBackendDetails().put(QRecord.BACKEND_DETAILS_TYPE_JSON_SOURCE_OBJECT, jsonObject.toString());
+         record.addBackendDetail(QRecord.BACKEND_DETAILS_TYPE_JSON_SOURCE_OBJECT, jsonObject.toString());
          return (record);
       }
       catch(Exception e)
@@ -1199,13 +1366,27 @@ public class BaseAPIActionUtil
       int     serverErrorsCaught        = 0;
       boolean caughtAnOAuthExpiredToken = false;
 
+      APIRateLimiter rateLimiter = getRateLimiter();
+
       while(true)
       {
-         //////////////////////////////////////////////////////
-         // make sure to use closeable client to avoid leaks //
-         //////////////////////////////////////////////////////
-         try(CloseableHttpClient httpClient = buildHttpClient())
+         try
          {
+            ////////////////////////////////////////////////////////////////////////////
+            // the client is shared & pooled, so it isn't closed here - but make sure //
+            // to close the response, which releases its connection back to the pool. //
+            ////////////////////////////////////////////////////////////////////////////
+            CloseableHttpClient httpClient = getHttpClient();
+
+            //////////////////////////////////////////////////////////////////////
+            // timeouts go on each request (unless the caller already set some) //
+            // since the shared client may have been built by another instance  //
+            //////////////////////////////////////////////////////////////////////
+            if(request.getConfig() == null)
+            {
+               request.setConfig(buildRequestConfig());
+            }
+
             ////////////////////////////////////////////////////////////
             // call utility methods that populate data in the request //
             ////////////////////////////////////////////////////////////
@@ -1219,12 +1400,22 @@ public class BaseAPIActionUtil
                LOG.info("POST contents [" + ((HttpPost) request).getEntity().toString() + "]");
             }
 
+            if(rateLimiter != null)
+            {
+               rateLimiter.acquire();
+            }
+
             try(CloseableHttpResponse response = executeHttpRequest(request, httpClient))
             {
                QHttpResponse qResponse = getQHttpResponse(response);
 
                logOutboundApiCall(request, qResponse);
 
+               if(rateLimiter != null)
+               {
+                  rateLimiter.observeResponse(qResponse, rateLimitSleepMillis);
+               }
+
                int statusCode = qResponse.getStatusCode();
                if(statusCode == HttpStatus.SC_TOO_MANY_REQUESTS)
                {
@@ -1256,8 +1447,7 @@ public class BaseAPIActionUtil
             if(!caughtAnOAuthExpiredToken)
             {
                LOG.info("OAuth Expired token for [" + table.getName() + "] - retrying");
-               String accessTokenKey = getOAuth2AccessTokenKey();
-               backendMetaData.withCustomValue(accessTokenKey, null);
+               clearExpiredOAuth2Token(request);
                caughtAnOAuthExpiredToken = true;
             }
             else
@@ -1275,8 +1465,19 @@ public class BaseAPIActionUtil
                throw (new QException(rle));
             }
 
-            LOG.info("Caught RateLimitException", logPair("rateLimitsCaught", rateLimitsCaught), logPair("uri", request.getURI()), logPair("table", table.getName()), logPair("sleeping", rateLimitSleepMillis));
-            SleepUtils.sleep(rateLimitSleepMillis, TimeUnit.MILLISECONDS);
+            if(rateLimiter != null)
+            {
+               /////////////////////////////////////////////////////////////////////////////
+               // the rate limiter has already paused (for all threads) per the response, //
+               // so the retry's acquire does the waiting.                                //
+               /////////////////////////////////////////////////////////////////////////////
+               LOG.info("Caught RateLimitException", logPair("rateLimitsCaught", rateLimitsCaught), logPair("uri", request.getURI()), logPair("table", table.getName()), logPair("rateLimiter", rateLimiter.getKey()));
+            }
+            else
+            {
+               LOG.info("Caught RateLimitException", logPair("rateLimitsCaught", rateLimitsCaught), logPair("uri", request.getURI()), logPair("table", table.getName()), logPair("sleeping", rateLimitSleepMillis));
+               SleepUtils.sleep(rateLimitSleepMillis, TimeUnit.MILLISECONDS);
+            }
             rateLimitSleepMillis *= 2;
          }
          catch(RetryableServerErrorException see)
@@ -1311,20 +1512,144 @@ public class BaseAPIActionUtil
 
 
    /*******************************************************************************
-    ** Build the default HttpClient used by the makeRequest method
+    ** Get the (shared, JVM-wide) rate limiter for this backend (and variant), if
+    ** the backend has rateLimiterSettings - else null.
+    *******************************************************************************/
+   protected APIRateLimiter getRateLimiter() throws QException
+   {
+      if(backendMetaData.getRateLimiterSettings() == null)
+      {
+         return (null);
+      }
+
+      return (APIRateLimiter.getRateLimiter(getRateLimiterKey(), backendMetaData.getRateLimiterSettings()));
+   }
+
+
+
+   /*******************************************************************************
+    ** key for this backend's rate limiter - for variant-backends, each variant
+    ** (e.g., each partner account) gets its own.
+    *******************************************************************************/
+   protected String getRateLimiterKey() throws QException
+   {
+      String rateLimiterKey = backendMetaData.getName();
+      if(backendMetaData.getUsesVariants())
+      {
+         Serializable variantId = BackendVariantsUtil.getVariantId(backendMetaData);
+         rateLimiterKey = rateLimiterKey + ":" + variantId;
+      }
+      return (rateLimiterKey);
+   }
+
+
+
+   /*******************************************************************************
+    ** Get the HttpClient used by the makeRequest method - a long-lived one, shared
+    ** by all requests (and threads) with the same backend and client key (see
+    ** getHttpClientKey), which is built by buildHttpClient the first time it's
+    ** needed.  Callers must not close it.
+    *******************************************************************************/
+   protected CloseableHttpClient getHttpClient() throws QException
+   {
+      return (APIHttpClientManager.getHttpClient(backendMetaData.getName(), getHttpClientKey(), this::buildHttpClient));
+   }
+
+
+
+   /*******************************************************************************
+    ** key for this util's shared HttpClient, within its backend - the util class
+    ** (since subclasses may build their clients differently), plus, for
+    ** variant-backends, the variant id.  Subclasses whose buildHttpClient depends
+    ** on anything else (e.g., other per-request state) must add it to this key.
+    *******************************************************************************/
+   protected String getHttpClientKey() throws QException
+   {
+      String httpClientKey = getClass().getName();
+      if(backendMetaData.getUsesVariants())
+      {
+         Serializable variantId = BackendVariantsUtil.getVariantId(backendMetaData);
+         httpClientKey = httpClientKey + ":" + variantId;
+      }
+      return (httpClientKey);
+   }
+
+
+
+   /*******************************************************************************
+    ** Build the default HttpClient used by the makeRequest method.  Since this
+    ** client is shared (see getHttpClient), it uses a pooling connection manager,
+    ** with keep-alive, per-route limits and idle-connection eviction from the
+    ** backend's connectionPoolSettings (or their defaults).
+    **
+    ** Overrides must build a client that depends only on the backend, the util
+    ** class and the variant (see getHttpClientKey), as it is built once & re-used
+    ** by other instances (and threads).
     *******************************************************************************/
    protected CloseableHttpClient buildHttpClient()
    {
-      ///////////////////////////////////////////////////////////////////////////////////////
-      // do we want this?? .setConnectionManager(new PoolingHttpClientConnectionManager()) //
-      // needs some good scrutiny.                                                         //
-      ///////////////////////////////////////////////////////////////////////////////////////
-      return HttpClientBuilder.create()
-         .setDefaultRequestConfig(RequestConfig.custom()
-            .setConnectTimeout(getConnectionTimeoutMillis())
-            .setConnectionRequestTimeout(getConnectionRequestTimeoutMillis())
-            .setSocketTimeout(getSocketTimeoutMillis()).build())
-         .build();
+      APIConnectionPoolSettings poolSettings = Objects.requireNonNullElseGet(backendMetaData.getConnectionPoolSettings(), APIConnectionPoolSettings::new);
+
+      PoolingHttpClientConnectionManager connectionManager = poolSettings.getConnectionTimeToLiveSeconds() == null
+         ? new PoolingHttpClientConnectionManager()
+         : new PoolingHttpClientConnectionManager(poolSettings.getConnectionTimeToLiveSeconds(), TimeUnit.SECONDS);
+
+      if(poolSettings.getMaxConnectionsTotal() != null)
+      {
+         connectionManager.setMaxTotal(poolSettings.getMaxConnectionsTotal());
+      }
+
+      if(poolSettings.getMaxConnectionsPerRoute() != null)
+      {
+         connectionManager.setDefaultMaxPerRoute(poolSettings.getMaxConnectionsPerRoute());
+      }
+
+      if(poolSettings.getValidateAfterInactivityMillis() != null)
+      {
+         connectionManager.setValidateAfterInactivity(poolSettings.getValidateAfterInactivityMillis());
+      }
+
+      ///////////////////////////////////////////////////////////////////////////
+      // use the server's Keep-Alive timeout if it gives one, else our default //
+      ///////////////////////////////////////////////////////////////////////////
+      ConnectionKeepAliveStrategy keepAliveStrategy = (response, context) ->
+      {
+         long keepAliveMillis = DefaultConnectionKeepAliveStrategy.INSTANCE.getKeepAliveDuration(response, context);
+         if(keepAliveMillis < 0 && poolSettings.getDefaultKeepAliveSeconds() != null)
+         {
+            keepAliveMillis = poolSettings.getDefaultKeepAliveSeconds() * 1000L;
+         }
+         return (keepAliveMillis);
+      };
+
+      HttpClientBuilder httpClientBuilder = HttpClientBuilder.create()
+         .setConnectionManager(connectionManager)
+         .setKeepAliveStrategy(keepAliveStrategy)
+         .setDefaultRequestConfig(buildRequestConfig());
+
+      if(poolSettings.getMaxIdleTimeSeconds() != null)
+      {
+         ///////////////////////////////////////////////////////////////////////////
+         // this starts a background thread (per client) that closes expired and  //
+         // idle connections, so the pool doesn't hand out ones the server closed //
+         ///////////////////////////////////////////////////////////////////////////
+         httpClientBuilder.evictExpiredConnections().evictIdleConnections(poolSettings.getMaxIdleTimeSeconds().longValue(), TimeUnit.SECONDS);
+      }
+
+      return (httpClientBuilder.build());
+   }
+
+
+
+   /*******************************************************************************
+    ** Build the RequestConfig (timeouts) used by the makeRequest method.
+    *******************************************************************************/
+   protected RequestConfig buildRequestConfig()
+   {
+      return (RequestConfig.custom()
+         .setConnectTimeout(getConnectionTimeoutMillis())
+         .setConnectionRequestTimeout(getConnectionRequestTimeoutMillis())
+         .setSocketTimeout(getSocketTimeoutMillis()).build());
    }
 
 
@@ -1602,6 +1927,19 @@ public class BaseAPIActionUtil
 
 
 
+   /*******************************************************************************
+    ** How many pages beyond the one being processed should doQuery fetch
+    ** concurrently.  Only correct for APIs that page by offset (where each page's
+    ** skip is N * limit), so it's 0 (sequential paging) unless the backend sets
+    ** queryPagesToPrefetch (or a subclass overrides this method).
+    *******************************************************************************/
+   protected int getQueryPagesToPrefetch()
+   {
+      return (Objects.requireNonNullElse(backendMetaData.getQueryPagesToPrefetch(), 0));
+   }
+
+
+
    /*******************************************************************************
     **
     *******************************************************************************/
@@ -52,6 +52,17 @@ public class APIBackendMetaData extends QBackendMetaData
 
    private HashMap<String, Serializable> customValues = new HashMap<>();
 
+   private APIConnectionPoolSettings connectionPoolSettings;
+   private APIRateLimiterSettings    rateLimiterSettings;
+
+   ///////////////////////////////////////////////////////////////////////////
+   // for APIs that page by offset (limit & skip) - how many pages past the //
+   // one being processed to fetch concurrently during a query.  null or 0  //
+   // means pages are fetched one at a time, using the count of records     //
+   // actually returned to find the next page's skip.                       //
+   ///////////////////////////////////////////////////////////////////////////
+   private Integer queryPagesToPrefetch;
+
 
 
    /*******************************************************************************
@@ -471,6 +482,18 @@ public class APIBackendMetaData extends QBackendMetaData
       {
          qInstanceValidator.assertCondition(!StringUtils.hasContent(apiKeyQueryParamName), "Unexpected apiKeyQueryParamName for API backend: " + getName() + " (only allowed when using AuthorizationType=API_KEY_QUERY_PARAM))");
       }
+
+      if(queryPagesToPrefetch != null)
+      {
+         qInstanceValidator.assertCondition(queryPagesToPrefetch >= 0, "queryPagesToPrefetch may not be negative for API backend: " + getName());
+      }
+
+      if(rateLimiterSettings != null)
+      {
+         qInstanceValidator.assertCondition(rateLimiterSettings.getRequestsPerSecond() != null && rateLimiterSettings.getRequestsPerSecond() > 0, "rateLimiterSettings.requestsPerSecond must be greater than 0 for API backend: " + getName());
+         qInstanceValidator.assertCondition(rateLimiterSettings.getBurstSize() == null || rateLimiterSettings.getBurstSize() > 0, "rateLimiterSettings.burstSize must be greater than 0 for API backend: " + getName());
+         qInstanceValidator.assertCondition(rateLimiterSettings.getMinRequestsPerSecond() == null || rateLimiterSettings.getMinRequestsPerSecond() > 0, "rateLimiterSettings.minRequestsPerSecond must be greater than 0 for API backend: " + getName());
+      }
    }
 
 
@@ -515,4 +538,99 @@ public class APIBackendMetaData extends QBackendMetaData
       return (this);
    }
 
+
+
+
+   /*******************************************************************************
+    ** Getter for connectionPoolSettings
+    *******************************************************************************/
+   public APIConnectionPoolSettings getConnectionPoolSettings()
+   {
+      return (this.connectionPoolSettings);
+   }
+
+
+
+   /*******************************************************************************
+    ** Setter for connectionPoolSettings
+    *******************************************************************************/
+   public void setConnectionPoolSettings(APIConnectionPoolSettings connectionPoolSettings)
+   {
+      this.connectionPoolSettings = connectionPoolSettings;
+   }
+
+
+
+   /*******************************************************************************
+    ** Fluent setter for connectionPoolSettings
+    *******************************************************************************/
+   public APIBackendMetaData withConnectionPoolSettings(APIConnectionPoolSettings connectionPoolSettings)
+   {
+      this.connectionPoolSettings = connectionPoolSettings;
+      return (this);
+   }
+
+
+
+   /*******************************************************************************
+    ** Getter for queryPagesToPrefetch
+    *******************************************************************************/
+   public Integer getQueryPagesToPrefetch()
+   {
+      return (this.queryPagesToPrefetch);
+   }
+
+
+
+   /*******************************************************************************
+    ** Setter for queryPagesToPrefetch
+    *******************************************************************************/
+   public void setQueryPagesToPrefetch(Integer queryPagesToPrefetch)
+   {
+      this.queryPagesToPrefetch = queryPagesToPrefetch;
+   }
+
+
+
+   /*******************************************************************************
+    ** Fluent setter for queryPagesToPrefetch
+    *******************************************************************************/
+   public APIBackendMetaData withQueryPagesToPrefetch(Integer queryPagesToPrefetch)
+   {
+      this.queryPagesToPrefetch = queryPagesToPrefetch;
+      return (this);
+   }
+
+
+
+
+   /*******************************************************************************
+    ** Getter for rateLimiterSettings
+    *******************************************************************************/
+   public APIRateLimiterSettings getRateLimiterSettings()
+   {
+      return (this.rateLimiterSettings);
+   }
+
+
+
+   /*******************************************************************************
+    ** Setter for rateLimiterSettings
+    *******************************************************************************/
+   public void setRateLimiterSettings(APIRateLimiterSettings rateLimiterSettings)
+   {
+      this.rateLimiterSettings = rateLimiterSettings;
+   }
+
+
+
+   /*******************************************************************************
+    ** Fluent setter for rateLimiterSettings
+    *******************************************************************************/
+   public APIBackendMetaData withRateLimiterSettings(APIRateLimiterSettings rateLimiterSettings)
+   {
+      this.rateLimiterSettings = rateLimiterSettings;
+      return (this);
+   }
+
 }
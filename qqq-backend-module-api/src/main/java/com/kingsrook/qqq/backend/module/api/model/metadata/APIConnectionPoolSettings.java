@@ -0,0 +1,240 @@
+/*
+ * QQQ - Low-code Application Framework for Engineers.
+ * Copyright (C) 2021-2024.  Kingsrook, LLC
+ * 651 N Broad St Ste 205 # 6917 | Middletown DE 19709 | United States
+ * contact@kingsrook.com
+ * https://github.com/Kingsrook/
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.kingsrook.qqq.backend.module.api.model.metadata;
+
+
+/*******************************************************************************
+ ** Settings for the pooled (long-lived, shared) HttpClient that
+ ** APIHttpClientManager keeps for a backend - see
+ ** https://hc.apache.org/httpcomponents-client-4.5.x/current/tutorial/html/connmgmt.html
+ **
+ ** The defaults here apply if a backend doesn't set its own settings object.
+ ** Fields set to null fall back to HttpClient's own behavior (e.g., no time-to-
+ ** live limit, or no idle eviction).
+ *******************************************************************************/
+public class APIConnectionPoolSettings
+{
+   private Integer maxConnectionsTotal         = 50;
+   private Integer maxConnectionsPerRoute      = 20;
+   private Integer connectionTimeToLiveSeconds = null;
+   private Integer maxIdleTimeSeconds          = 60;
+
+   ///////////////////////////////////////////////////////////////////////////
+   // how long to keep a connection alive, if the server's response doesn't //
+   // give a Keep-Alive timeout (HttpClient's default is "forever").        //
+   ///////////////////////////////////////////////////////////////////////////
+   private Integer defaultKeepAliveSeconds = 30;
+
+   ////////////////////////////////////////////////////////////////////////
+   // re-check a pooled connection that's been idle for this long before //
+   // re-using it (this is HttpClient's default value).                  //
+   ////////////////////////////////////////////////////////////////////////
+   private Integer validateAfterInactivityMillis = 2000;
+
+
+
+
+   /*******************************************************************************
+    ** Getter for maxConnectionsTotal
+    *******************************************************************************/
+   public Integer getMaxConnectionsTotal()
+   {
+      return (this.maxConnectionsTotal);
+   }
+
+
+
+   /*******************************************************************************
+    ** Setter for maxConnectionsTotal
+    *******************************************************************************/
+   public void setMaxConnectionsTotal(Integer maxConnectionsTotal)
+   {
+      this.maxConnectionsTotal = maxConnectionsTotal;
+   }
+
+
+
+   /*******************************************************************************
+    ** Fluent setter for maxConnectionsTotal
+    *******************************************************************************/
+   public APIConnectionPoolSettings withMaxConnectionsTotal(Integer maxConnectionsTotal)
+   {
+      this.maxConnectionsTotal = maxConnectionsTotal;
+      return (this);
+   }
+
+
+
+   /*******************************************************************************
+    ** Getter for maxConnectionsPerRoute
+    *******************************************************************************/
+   public Integer getMaxConnectionsPerRoute()
+   {
+      return (this.maxConnectionsPerRoute);
+   }
+
+
+
+   /*******************************************************************************
+    ** Setter for maxConnectionsPerRoute
+    *******************************************************************************/
+   public void setMaxConnectionsPerRoute(Integer maxConnectionsPerRoute)
+   {
+      this.maxConnectionsPerRoute = maxConnectionsPerRoute;
+   }
+
+
+
+   /*******************************************************************************
+    ** Fluent setter for maxConnectionsPerRoute
+    *******************************************************************************/
+   public APIConnectionPoolSettings withMaxConnectionsPerRoute(Integer maxConnectionsPerRoute)
+   {
+      this.maxConnectionsPerRoute = maxConnectionsPerRoute;
+      return (this);
+   }
+
+
+
+   /*******************************************************************************
+    ** Getter for connectionTimeToLiveSeconds
+    *******************************************************************************/
+   public Integer getConnectionTimeToLiveSeconds()
+   {
+      return (this.connectionTimeToLiveSeconds);
+   }
+
+
+
+   /*******************************************************************************
+    ** Setter for connectionTimeToLiveSeconds
+    *******************************************************************************/
+   public void setConnectionTimeToLiveSeconds(Integer connectionTimeToLiveSeconds)
+   {
+      this.connectionTimeToLiveSeconds = connectionTimeToLiveSeconds;
+   }
+
+
+
+   /*******************************************************************************
+    ** Fluent setter for connectionTimeToLiveSeconds
+    *******************************************************************************/
+   public APIConnectionPoolSettings withConnectionTimeToLiveSeconds(Integer connectionTimeToLiveSeconds)
+   {
+      this.connectionTimeToLiveSeconds = connectionTimeToLiveSeconds;
+      return (this);
+   }
+
+
+
+   /*******************************************************************************
+    ** Getter for maxIdleTimeSeconds
+    *******************************************************************************/
+   public Integer getMaxIdleTimeSeconds()
+   {
+      return (this.maxIdleTimeSeconds);
+   }
+
+
+
+   /*******************************************************************************
+    ** Setter for maxIdleTimeSeconds
+    *******************************************************************************/
+   public void setMaxIdleTimeSeconds(Integer maxIdleTimeSeconds)
+   {
+      this.maxIdleTimeSeconds = maxIdleTimeSeconds;
+   }
+
+
+
+   /*******************************************************************************
+    ** Fluent setter for maxIdleTimeSeconds
+    *******************************************************************************/
+   public APIConnectionPoolSettings withMaxIdleTimeSeconds(Integer maxIdleTimeSeconds)
+   {
+      this.maxIdleTimeSeconds = maxIdleTimeSeconds;
+      return (this);
+   }
+
+
+
+   /*******************************************************************************
+    ** Getter for defaultKeepAliveSeconds
+    *******************************************************************************/
+   public Integer getDefaultKeepAliveSeconds()
+   {
+      return (this.defaultKeepAliveSeconds);
+   }
+
+
+
+   /*******************************************************************************
+    ** Setter for defaultKeepAliveSeconds
+    *******************************************************************************/
+   public void setDefaultKeepAliveSeconds(Integer defaultKeepAliveSeconds)
+   {
+      this.defaultKeepAliveSeconds = defaultKeepAliveSeconds;
+   }
+
+
+
+   /*******************************************************************************
+    ** Fluent setter for defaultKeepAliveSeconds
+    *******************************************************************************/
+   public APIConnectionPoolSettings withDefaultKeepAliveSeconds(Integer defaultKeepAliveSeconds)
+   {
+      this.defaultKeepAliveSeconds = defaultKeepAliveSeconds;
+      return (this);
+   }
+
+
+
+   /*******************************************************************************
+    ** Getter for validateAfterInactivityMillis
+    *******************************************************************************/
+   public Integer getValidateAfterInactivityMillis()
+   {
+      return (this.validateAfterInactivityMillis);
+   }
+
+
+
+   /*******************************************************************************
+    ** Setter for validateAfterInactivityMillis
+    *******************************************************************************/
+   public void setValidateAfterInactivityMillis(Integer validateAfterInactivityMillis)
+   {
+      this.validateAfterInactivityMillis = validateAfterInactivityMillis;
+   }
+
+
+
+   /*******************************************************************************
+    ** Fluent setter for validateAfterInactivityMillis
+    *******************************************************************************/
+   public APIConnectionPoolSettings withValidateAfterInactivityMillis(Integer validateAfterInactivityMillis)
+   {
+      this.validateAfterInactivityMillis = validateAfterInactivityMillis;
+      return (this);
+   }
+
+}
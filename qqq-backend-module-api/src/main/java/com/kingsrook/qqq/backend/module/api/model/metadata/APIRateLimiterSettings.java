@@ -0,0 +1,170 @@
+/*
+ * QQQ - Low-code Application Framework for Engineers.
+ * Copyright (C) 2021-2024.  Kingsrook, LLC
+ * 651 N Broad St Ste 205 # 6917 | Middletown DE 19709 | United States
+ * contact@kingsrook.com
+ * https://github.com/Kingsrook/
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.kingsrook.qqq.backend.module.api.model.metadata;
+
+
+/*******************************************************************************
+ ** Settings for the token-bucket rate limiter (APIRateLimiter) that
+ ** BaseAPIActionUtil can apply to all requests to a backend (per variant), from
+ ** all threads in the JVM.
+ **
+ ** Tokens refill at requestsPerSecond, up to burstSize (default: 1 second's
+ ** worth).  A 429 from the API always pauses the limiter (for its Retry-After
+ ** time, else the caller's backoff).  If adaptToResponseHeaders is true (the
+ ** default), a 429 also cuts the rate (down to minRequestsPerSecond - default,
+ ** 1/10 of the configured rate), which recovers on successful responses; and
+ ** X-RateLimit-Remaining / X-RateLimit-Reset headers pause the limiter - which
+ ** is how it learns about the API's budget being used by other processes.
+ *******************************************************************************/
+public class APIRateLimiterSettings
+{
+   private Double  requestsPerSecond;
+   private Integer burstSize;
+   private Double  minRequestsPerSecond;
+   private Boolean adaptToResponseHeaders = true;
+
+
+
+
+   /*******************************************************************************
+    ** Getter for requestsPerSecond
+    *******************************************************************************/
+   public Double getRequestsPerSecond()
+   {
+      return (this.requestsPerSecond);
+   }
+
+
+
+   /*******************************************************************************
+    ** Setter for requestsPerSecond
+    *******************************************************************************/
+   public void setRequestsPerSecond(Double requestsPerSecond)
+   {
+      this.requestsPerSecond = requestsPerSecond;
+   }
+
+
+
+   /*******************************************************************************
+    ** Fluent setter for requestsPerSecond
+    *******************************************************************************/
+   public APIRateLimiterSettings withRequestsPerSecond(Double requestsPerSecond)
+   {
+      this.requestsPerSecond = requestsPerSecond;
+      return (this);
+   }
+
+
+
+   /*******************************************************************************
+    ** Getter for burstSize
+    *******************************************************************************/
+   public Integer getBurstSize()
+   {
+      return (this.burstSize);
+   }
+
+
+
+   /*******************************************************************************
+    ** Setter for burstSize
+    *******************************************************************************/
+   public void setBurstSize(Integer burstSize)
+   {
+      this.burstSize = burstSize;
+   }
+
+
+
+   /*******************************************************************************
+    ** Fluent setter for burstSize
+    *******************************************************************************/
+   public APIRateLimiterSettings withBurstSize(Integer burstSize)
+   {
+      this.burstSize = burstSize;
+      return (this);
+   }
+
+
+
+   /*******************************************************************************
+    ** Getter for minRequestsPerSecond
+    *******************************************************************************/
+   public Double getMinRequestsPerSecond()
+   {
+      return (this.minRequestsPerSecond);
+   }
+
+
+
+   /*******************************************************************************
+    ** Setter for minRequestsPerSecond
+    *******************************************************************************/
+   public void setMinRequestsPerSecond(Double minRequestsPerSecond)
+   {
+      this.minRequestsPerSecond = minRequestsPerSecond;
+   }
+
+
+
+   /*******************************************************************************
+    ** Fluent setter for minRequestsPerSecond
+    *******************************************************************************/
+   public APIRateLimiterSettings withMinRequestsPerSecond(Double minRequestsPerSecond)
+   {
+      this.minRequestsPerSecond = minRequestsPerSecond;
+      return (this);
+   }
+
+
+
+   /*******************************************************************************
+    ** Getter for adaptToResponseHeaders
+    *******************************************************************************/
+   public Boolean getAdaptToResponseHeaders()
+   {
+      return (this.adaptToResponseHeaders);
+   }
+
+
+
+   /*******************************************************************************
+    ** Setter for adaptToResponseHeaders
+    *******************************************************************************/
+   public void setAdaptToResponseHeaders(Boolean adaptToResponseHeaders)
+   {
+      this.adaptToResponseHeaders = adaptToResponseHeaders;
+   }
+
+
+
+   /*******************************************************************************
+    ** Fluent setter for adaptToResponseHeaders
+    *******************************************************************************/
+   public APIRateLimiterSettings withAdaptToResponseHeaders(Boolean adaptToResponseHeaders)
+   {
+      this.adaptToResponseHeaders = adaptToResponseHeaders;
+      return (this);
+   }
+
+}
@@ -0,0 +1,232 @@
+/*
+ * QQQ - Low-code Application Framework for Engineers.
+ * Copyright (C) 2021-2024.  Kingsrook, LLC
+ * 651 N Broad St Ste 205 # 6917 | Middletown DE 19709 | United States
+ * contact@kingsrook.com
+ * https://github.com/Kingsrook/
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.kingsrook.qqq.backend.module.api.actions;
+
+
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.List;
+import com.kingsrook.qqq.backend.module.api.BaseTest;
+import com.kingsrook.qqq.backend.module.api.model.metadata.APIRateLimiterSettings;
+import org.apache.http.message.BasicHeader;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+
+/*******************************************************************************
+ ** Unit test for APIRateLimiter
+ *******************************************************************************/
+class APIRateLimiterTest extends BaseTest
+{
+
+   /*******************************************************************************
+    **
+    *******************************************************************************/
+   @AfterEach
+   void afterEach()
+   {
+      APIRateLimiter.clearRateLimiters();
+   }
+
+
+
+   /*******************************************************************************
+    **
+    *******************************************************************************/
+   @Test
+   void testSharedByKey()
+   {
+      APIRateLimiterSettings settings = new APIRateLimiterSettings().withRequestsPerSecond(10.0);
+      assertSame(APIRateLimiter.getRateLimiter("a", settings), APIRateLimiter.getRateLimiter("a", settings));
+      assertThat(APIRateLimiter.getRateLimiter("b", settings)).isNotSameAs(APIRateLimiter.getRateLimiter("a", settings));
+      assertEquals(2, APIRateLimiter.getRateLimiters().size());
+   }
+
+
+
+   /*******************************************************************************
+    **
+    *******************************************************************************/
+   @Test
+   void testRequestsAreSpacedOut()
+   {
+      APIRateLimiter rateLimiter = new APIRateLimiter("test", new APIRateLimiterSettings().withRequestsPerSecond(20.0).withBurstSize(1));
+
+      /////////////////////////////////////////////////////////////////////
+      // first token is in the bucket - the next 10 each wait ~50 millis //
+      /////////////////////////////////////////////////////////////////////
+      long start = System.currentTimeMillis();
+      for(int i = 0; i < 11; i++)
+      {
+         rateLimiter.acquire();
+      }
+      assertThat(System.currentTimeMillis() - start).isGreaterThanOrEqualTo(400);
+
+      assertEquals(11, rateLimiter.getAcquiredCount());
+      assertThat(rateLimiter.getThrottledCount()).isGreaterThanOrEqualTo(9);
+      assertThat(rateLimiter.getThrottledMillis()).isGreaterThanOrEqualTo(400);
+   }
+
+
+
+   /*******************************************************************************
+    **
+    *******************************************************************************/
+   @Test
+   void testRetryAfterOn429()
+   {
+      APIRateLimiter rateLimiter = new APIRateLimiter("test", new APIRateLimiterSettings().withRequestsPerSecond(100.0).withBurstSize(100));
+      rateLimiter.observeResponse(new QHttpResponse().withStatusCode(429).withHeaderList(List.of(new BasicHeader("Retry-After", "1"))), 10);
+
+      assertEquals(1, rateLimiter.getRateLimitResponseCount());
+      assertEquals(50.0, rateLimiter.getRequestsPerSecond(), 0.001);
+      assertThat(rateLimiter.acquire()).isGreaterThanOrEqualTo(900);
+   }
+
+
+
+   /*******************************************************************************
+    **
+    *******************************************************************************/
+   @Test
+   void testRateRecoversAfter429()
+   {
+      APIRateLimiter rateLimiter = new APIRateLimiter("test", new APIRateLimiterSettings().withRequestsPerSecond(100.0).withMinRequestsPerSecond(40.0));
+      for(int i = 0; i < 3; i++)
+      {
+         rateLimiter.observeResponse(new QHttpResponse().withStatusCode(429), 0);
+      }
+      assertEquals(40.0, rateLimiter.getRequestsPerSecond(), 0.001);
+
+      for(int i = 0; i < 100; i++)
+      {
+         rateLimiter.observeResponse(new QHttpResponse().withStatusCode(200), 0);
+      }
+      assertEquals(100.0, rateLimiter.getRequestsPerSecond(), 0.001);
+   }
+
+
+
+   /*******************************************************************************
+    **
+    *******************************************************************************/
+   @Test
+   void testRateLimitRemainingAndReset()
+   {
+      APIRateLimiter rateLimiter = new APIRateLimiter("test", new APIRateLimiterSettings().withRequestsPerSecond(1000.0).withBurstSize(100));
+      rateLimiter.observeResponse(new QHttpResponse().withStatusCode(200).withHeaderList(List.of(
+         new BasicHeader("X-RateLimit-Remaining", "0"),
+         new BasicHeader("X-RateLimit-Reset", "1"))), 0);
+
+      assertEquals(0, rateLimiter.getRateLimitResponseCount());
+      assertThat(rateLimiter.acquire()).isGreaterThanOrEqualTo(900);
+   }
+
+
+
+   /*******************************************************************************
+    **
+    *******************************************************************************/
+   @Test
+   void testNotAdaptingToResponseHeaders()
+   {
+      APIRateLimiter rateLimiter = new APIRateLimiter("test", new APIRateLimiterSettings().withRequestsPerSecond(100.0).withBurstSize(100).withAdaptToResponseHeaders(false));
+
+      /////////////////////////////////////////////////////////////////////
+      // a 429 still pauses (per Retry-After) - but doesn't cut the rate //
+      /////////////////////////////////////////////////////////////////////
+      rateLimiter.observeResponse(new QHttpResponse().withStatusCode(429).withHeaderList(List.of(new BasicHeader("Retry-After", "1"))), 10);
+      assertEquals(1, rateLimiter.getRateLimitResponseCount());
+      assertEquals(100.0, rateLimiter.getRequestsPerSecond(), 0.001);
+      assertThat(rateLimiter.acquire()).isGreaterThanOrEqualTo(900);
+
+      ///////////////////////////////////////////////
+      // X-RateLimit headers are ignored, however. //
+      ///////////////////////////////////////////////
+      rateLimiter.observeResponse(new QHttpResponse().withStatusCode(200).withHeaderList(List.of(
+         new BasicHeader("X-RateLimit-Remaining", "0"),
+         new BasicHeader("X-RateLimit-Reset", "60"))), 0);
+      assertThat(rateLimiter.acquire()).isLessThan(1000);
+   }
+
+
+
+   /*******************************************************************************
+    **
+    *******************************************************************************/
+   @Test
+   void testRateCutOncePerPause()
+   {
+      APIRateLimiter rateLimiter = new APIRateLimiter("test", new APIRateLimiterSettings().withRequestsPerSecond(100.0).withMinRequestsPerSecond(1.0));
+
+      ///////////////////////////////////////////////////////////////////////////////
+      // several 429's arriving during the same pause (e.g., from requests that    //
+      // were in-flight concurrently) only cut the rate once - but all are counted //
+      ///////////////////////////////////////////////////////////////////////////////
+      for(int i = 0; i < 3; i++)
+      {
+         rateLimiter.observeResponse(new QHttpResponse().withStatusCode(429).withHeaderList(List.of(new BasicHeader("Retry-After", "1"))), 0);
+      }
+      assertEquals(3, rateLimiter.getRateLimitResponseCount());
+      assertEquals(50.0, rateLimiter.getRequestsPerSecond(), 0.001);
+   }
+
+
+
+   /*******************************************************************************
+    **
+    *******************************************************************************/
+   @Test
+   void testInvalidSettings()
+   {
+      assertThatThrownBy(() -> new APIRateLimiter("test", new APIRateLimiterSettings())).isInstanceOf(IllegalArgumentException.class);
+      assertThatThrownBy(() -> new APIRateLimiter("test", new APIRateLimiterSettings().withRequestsPerSecond(0.0))).isInstanceOf(IllegalArgumentException.class);
+      assertThatThrownBy(() -> new APIRateLimiter("test", new APIRateLimiterSettings().withRequestsPerSecond(10.0).withMinRequestsPerSecond(0.0))).isInstanceOf(IllegalArgumentException.class);
+   }
+
+
+
+   /*******************************************************************************
+    **
+    *******************************************************************************/
+   @Test
+   void testParseHeaders()
+   {
+      assertEquals(2000L, APIRateLimiter.parseRetryAfterMillis("2"));
+      assertEquals(0L, APIRateLimiter.parseRetryAfterMillis("-1"));
+      assertNull(APIRateLimiter.parseRetryAfterMillis("soon"));
+      assertNull(APIRateLimiter.parseRetryAfterMillis(null));
+
+      String inAMinute = DateTimeFormatter.RFC_1123_DATE_TIME.format(ZonedDateTime.now().plusMinutes(1));
+      assertThat(APIRateLimiter.parseRetryAfterMillis(inAMinute)).isBetween(55_000L, 60_000L);
+
+      assertEquals(30_000L, APIRateLimiter.parseRateLimitResetMillis("30"));
+      assertThat(APIRateLimiter.parseRateLimitResetMillis(String.valueOf(System.currentTimeMillis() / 1000 + 30))).isBetween(28_000L, 30_000L);
+      assertNull(APIRateLimiter.parseRateLimitResetMillis(""));
+   }
+
+}
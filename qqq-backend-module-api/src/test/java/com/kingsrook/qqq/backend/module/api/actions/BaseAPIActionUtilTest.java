@@ -23,18 +23,28 @@ package com.kingsrook.qqq.backend.module.api.actions;
 
 
 import java.io.BufferedReader;
+import java.io.IOException;
 import java.io.InputStreamReader;
+import java.io.OutputStream;
 import java.io.PrintWriter;
 import java.io.Serializable;
+import java.net.InetSocketAddress;
 import java.net.ServerSocket;
 import java.net.Socket;
 import java.net.SocketTimeoutException;
 import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
 import java.util.Base64;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 import com.kingsrook.qqq.backend.core.actions.tables.CountAction;
 import com.kingsrook.qqq.backend.core.actions.tables.DeleteAction;
 import com.kingsrook.qqq.backend.core.actions.tables.GetAction;
@@ -52,12 +62,17 @@ import com.kingsrook.qqq.backend.core.model.actions.tables.get.GetInput;
 import com.kingsrook.qqq.backend.core.model.actions.tables.get.GetOutput;
 import com.kingsrook.qqq.backend.core.model.actions.tables.insert.InsertInput;
 import com.kingsrook.qqq.backend.core.model.actions.tables.insert.InsertOutput;
+import com.kingsrook.qqq.backend.core.model.actions.tables.query.QQueryFilter;
 import com.kingsrook.qqq.backend.core.model.actions.tables.query.QueryInput;
 import com.kingsrook.qqq.backend.core.model.actions.tables.query.QueryOutput;
 import com.kingsrook.qqq.backend.core.model.actions.tables.update.UpdateInput;
 import com.kingsrook.qqq.backend.core.model.actions.tables.update.UpdateOutput;
 import com.kingsrook.qqq.backend.core.model.data.QRecord;
 import com.kingsrook.qqq.backend.core.model.metadata.QInstance;
+import com.kingsrook.qqq.backend.core.model.metadata.code.QCodeReference;
+import com.kingsrook.qqq.backend.core.model.metadata.fields.QFieldMetaData;
+import com.kingsrook.qqq.backend.core.model.metadata.fields.QFieldType;
+import com.kingsrook.qqq.backend.core.model.metadata.tables.QTableMetaData;
 import com.kingsrook.qqq.backend.core.model.metadata.tables.UniqueKey;
 import com.kingsrook.qqq.backend.core.model.metadata.variants.BackendVariantsConfig;
 import com.kingsrook.qqq.backend.core.utils.CollectionUtils;
@@ -73,11 +88,16 @@ import com.kingsrook.qqq.backend.module.api.model.OutboundAPILog;
 import com.kingsrook.qqq.backend.module.api.model.OutboundAPILogMetaDataProvider;
 import com.kingsrook.qqq.backend.module.api.model.metadata.APIBackendMetaData;
 import com.kingsrook.qqq.backend.module.api.model.metadata.APIBackendVariantSetting;
+import com.kingsrook.qqq.backend.module.api.model.metadata.APIRateLimiterSettings;
+import com.kingsrook.qqq.backend.module.api.model.metadata.APITableBackendDetails;
+import com.sun.net.httpserver.HttpServer;
 import org.apache.http.Header;
 import org.apache.http.HttpEntity;
+import org.apache.http.client.methods.CloseableHttpResponse;
 import org.apache.http.client.methods.HttpEntityEnclosingRequestBase;
 import org.apache.http.client.methods.HttpGet;
 import org.apache.http.client.methods.HttpRequestBase;
+import org.apache.http.impl.client.CloseableHttpClient;
 import org.json.JSONArray;
 import org.json.JSONObject;
 import org.junit.jupiter.api.BeforeEach;
@@ -579,6 +599,40 @@ class BaseAPIActionUtilTest extends BaseTest
 
 
 
+   /*******************************************************************************
+    ** a 429 then 200, through a backend with a rate limiter
+    *******************************************************************************/
+   @Test
+   void test429Then200WithRateLimiter() throws QException
+   {
+      APIRateLimiter.clearRateLimiters();
+      APIBackendMetaData backend = (APIBackendMetaData) QContext.getQInstance().getBackend(TestUtils.MOCK_BACKEND_NAME);
+      backend.setRateLimiterSettings(new APIRateLimiterSettings().withRequestsPerSecond(1000.0));
+
+      mockApiUtilsHelper.setUseMock(false);
+      mockApiUtilsHelper.enqueueMockResponse(new QHttpResponse().withStatusCode(429).withContent("Try again"));
+      mockApiUtilsHelper.enqueueMockResponse("""
+         {"id": 3, "name": "Bart"},
+         """);
+
+      try
+      {
+         GetOutput getOutput = runSimpleGetAction();
+         assertEquals("Bart", getOutput.getRecord().getValueString("name"));
+
+         APIRateLimiter rateLimiter = APIRateLimiter.getRateLimiters().get(TestUtils.MOCK_BACKEND_NAME);
+         assertEquals(2, rateLimiter.getAcquiredCount());
+         assertEquals(1, rateLimiter.getRateLimitResponseCount());
+         assertThat(rateLimiter.getRequestsPerSecond()).isLessThan(1000.0);
+      }
+      finally
+      {
+         APIRateLimiter.clearRateLimiters();
+      }
+   }
+
+
+
    /*******************************************************************************
     **
     *******************************************************************************/
@@ -838,6 +892,57 @@ class BaseAPIActionUtilTest extends BaseTest
 
 
 
+   /*******************************************************************************
+    ** threads that all find no token should only make one token request.
+    *******************************************************************************/
+   @Test
+   void testOAuth2TokenFetchedOnceByConcurrentThreads() throws Exception
+   {
+      APIBackendMetaData backend = (APIBackendMetaData) QContext.getQInstance().getBackend(TestUtils.MOCK_BACKEND_NAME);
+      backend.setAuthorizationType(AuthorizationType.OAUTH2);
+      mockApiUtilsHelper.enqueueMockResponse("""
+         {"access_token": "myNewToken"}
+         """);
+
+      AtomicInteger   tokenRequestCount = new AtomicInteger(0);
+      ExecutorService executorService   = Executors.newFixedThreadPool(4);
+      try
+      {
+         List<Future<String>> futures = new ArrayList<>();
+         for(int i = 0; i < 4; i++)
+         {
+            futures.add(executorService.submit(() ->
+            {
+               MockApiActionUtils actionUtil = new MockApiActionUtils()
+               {
+                  @Override
+                  protected CloseableHttpResponse executeOAuthTokenRequest(CloseableHttpClient client, HttpRequestBase request) throws IOException
+                  {
+                     tokenRequestCount.incrementAndGet();
+                     SleepUtils.sleep(50, TimeUnit.MILLISECONDS);
+                     return (super.executeOAuthTokenRequest(client, request));
+                  }
+               };
+               actionUtil.setBackendMetaData(backend);
+               return (actionUtil.getOAuth2Token());
+            }));
+         }
+
+         for(Future<String> future : futures)
+         {
+            assertEquals("myNewToken", future.get());
+         }
+         assertEquals(1, tokenRequestCount.get());
+      }
+      finally
+      {
+         executorService.shutdownNow();
+         APIHttpClientManager.closeClients(TestUtils.MOCK_BACKEND_NAME);
+      }
+   }
+
+
+
    /*******************************************************************************
     **
     *******************************************************************************/
@@ -940,6 +1045,99 @@ class BaseAPIActionUtilTest extends BaseTest
 
 
 
+   /*******************************************************************************
+    ** run a query against a local stub http server - through the pooled client,
+    ** with pages prefetched concurrently.
+    *******************************************************************************/
+   @Test
+   void testQueryPagePrefetchAgainstStubServer() throws Exception
+   {
+      Set<Integer>  clientPorts  = ConcurrentHashMap.newKeySet();
+      AtomicInteger requestCount = new AtomicInteger(0);
+
+      ExecutorService serverExecutor = Executors.newFixedThreadPool(4);
+      HttpServer      server         = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+      server.setExecutor(serverExecutor);
+      server.createContext("/stub", exchange ->
+      {
+         requestCount.incrementAndGet();
+         clientPorts.add(exchange.getRemoteAddress().getPort());
+
+         Map<String, Integer> params = new HashMap<>();
+         for(String pair : exchange.getRequestURI().getQuery().split("&"))
+         {
+            String[] parts = pair.split("=");
+            params.put(parts[0], Integer.parseInt(parts[1]));
+         }
+
+         //////////////////////////////////////////////////
+         // serve 95 people, paged by the limit and skip //
+         //////////////////////////////////////////////////
+         JSONArray people = new JSONArray();
+         for(int i = params.get("skip"); i < Math.min(params.get("skip") + params.get("limit"), 95); i++)
+         {
+            people.put(new JSONObject().put("id", i).put("name", "Person " + i));
+         }
+
+         byte[] body = new JSONObject().put("people", people).toString().getBytes(StandardCharsets.UTF_8);
+         exchange.getResponseHeaders().set("Content-Type", "application/json");
+         exchange.sendResponseHeaders(200, body.length);
+         try(OutputStream outputStream = exchange.getResponseBody())
+         {
+            outputStream.write(body);
+         }
+      });
+      server.start();
+
+      try
+      {
+         QInstance qInstance = QContext.getQInstance();
+         qInstance.addBackend(new APIBackendMetaData()
+            .withName("stubServer")
+            .withAuthorizationType(AuthorizationType.NONE)
+            .withBaseUrl("http://localhost:" + server.getAddress().getPort() + "/")
+            .withContentType("application/json")
+            .withQueryPagesToPrefetch(3)
+            .withActionUtil(new QCodeReference(OffsetPagingActionUtil.class)));
+         qInstance.addTable(new QTableMetaData()
+            .withName("stubPerson")
+            .withBackendName("stubServer")
+            .withField(new QFieldMetaData("id", QFieldType.INTEGER))
+            .withField(new QFieldMetaData("name", QFieldType.STRING))
+            .withPrimaryKeyField("id")
+            .withBackendDetails(new APITableBackendDetails()
+               .withTablePath("stub")
+               .withTableWrapperObjectName("people")));
+
+         QueryInput queryInput = new QueryInput();
+         queryInput.setTableName("stubPerson");
+         QueryOutput queryOutput = new QueryAction().execute(queryInput);
+
+         /////////////////////////////////////////////////////////////////////////
+         // all records, in order - even though pages were fetched concurrently //
+         /////////////////////////////////////////////////////////////////////////
+         assertEquals(95, queryOutput.getRecords().size());
+         for(int i = 0; i < 95; i++)
+         {
+            assertEquals(i, queryOutput.getRecords().get(i).getValueInteger("id"));
+         }
+
+         /////////////////////////////////////////////////////////////////////////////
+         // at least one request per page - but over fewer (kept-alive) connections //
+         /////////////////////////////////////////////////////////////////////////////
+         assertThat(requestCount.get()).isGreaterThanOrEqualTo(5);
+         assertThat(clientPorts.size()).isLessThan(requestCount.get());
+      }
+      finally
+      {
+         APIHttpClientManager.closeClients("stubServer");
+         server.stop(0);
+         serverExecutor.shutdownNow();
+      }
+   }
+
+
+
    /*******************************************************************************
     **
     *******************************************************************************/
@@ -1006,6 +1204,23 @@ class BaseAPIActionUtilTest extends BaseTest
 
 
 
+   /*******************************************************************************
+    ** action util for an api that pages by limit & skip query params.
+    *******************************************************************************/
+   public static class OffsetPagingActionUtil extends BaseAPIActionUtil
+   {
+      /*******************************************************************************
+       **
+       *******************************************************************************/
+      @Override
+      protected String buildQueryStringForGet(QQueryFilter filter, Integer limit, Integer skip, Map<String, QFieldMetaData> fields)
+      {
+         return ("?limit=" + limit + "&skip=" + (skip == null ? 0 : skip));
+      }
+   }
+
+
+
    /*******************************************************************************
     **
     *******************************************************************************/
@@ -91,4 +91,32 @@ class APIBackendMetaDataTest extends BaseTest
 
    }
 
-}
\ No newline at end of file
+
+
+   /*******************************************************************************
+    **
+    *******************************************************************************/
+   @Test
+   void testRateLimiterSettings()
+   {
+      APIBackendMetaData apiBackendMetaData = new APIBackendMetaData()
+         .withBaseUrl("http://localhost:8000/")
+         .withName("test")
+         .withRateLimiterSettings(new APIRateLimiterSettings());
+      QInstanceValidator qInstanceValidator = new QInstanceValidator();
+      apiBackendMetaData.performValidation(qInstanceValidator);
+      assertEquals(1, qInstanceValidator.getErrors().size());
+      assertThat(qInstanceValidator.getErrors()).anyMatch(e -> e.contains("requestsPerSecond must be greater than 0"));
+
+      apiBackendMetaData.withRateLimiterSettings(new APIRateLimiterSettings().withRequestsPerSecond(0.0).withMinRequestsPerSecond(0.0).withBurstSize(0));
+      qInstanceValidator = new QInstanceValidator();
+      apiBackendMetaData.performValidation(qInstanceValidator);
+      assertEquals(3, qInstanceValidator.getErrors().size());
+
+      apiBackendMetaData.withRateLimiterSettings(new APIRateLimiterSettings().withRequestsPerSecond(10.0));
+      qInstanceValidator = new QInstanceValidator();
+      apiBackendMetaData.performValidation(qInstanceValidator);
+      assertEquals(0, qInstanceValidator.getErrors().size());
+   }
+
+}
@@ -33,6 +33,7 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.function.Predicate;
 import com.kingsrook.qqq.backend.core.actions.customizers.QCodeLoader;
 import com.kingsrook.qqq.backend.core.adapters.CsvToQRecordAdapter;
 import com.kingsrook.qqq.backend.core.adapters.JsonToQRecordAdapter;
@@ -366,6 +367,19 @@ public abstract class AbstractBaseFilesystemAction<FILE>
       int           recordCount = 0;
       List<QRecord> records     = new ArrayList<>();
 
+      //////////////////////////////////////////////////////////////////////////////////////////////////////////
+      // the listFiles method may have used a "path" criteria.                                                //
+      // if so, remove that criteria here, so that its presence doesn't cause all records to be filtered away //
+      //////////////////////////////////////////////////////////////////////////////////////////////////////////
+      QQueryFilter filterForRecords = queryInput.getFilter();
+      // if(filterForRecords != null)
+      // {
+      //    filterForRecords = filterForRecords.clone();
+      //    CollectionUtils.nonNullList(filterForRecords.getCriteria())
+      //       .removeIf(AbstractBaseFilesystemAction::isPathEqualsCriteria);
+      // }
+      Predicate<QRecord> filterPredicate = BackendQueryFilterUtils.compileFilter(filterForRecords, null);
+
       for(FILE file : files)
       {
          ////////////////////////////////////////////////////////////////////////////////
@@ -411,19 +425,7 @@ public abstract class AbstractBaseFilesystemAction<FILE>
             }
          }
 
-         //////////////////////////////////////////////////////////////////////////////////////////////////////////
-         // the listFiles method may have used a "path" criteria.                                                //
-         // if so, remove that criteria here, so that its presence doesn't cause all records to be filtered away //
-         //////////////////////////////////////////////////////////////////////////////////////////////////////////
-         QQueryFilter filterForRecords = queryInput.getFilter();
-         // if(filterForRecords != null)
-         // {
-         //    filterForRecords = filterForRecords.clone();
-         //    CollectionUtils.nonNullList(filterForRecords.getCriteria())
-         //       .removeIf(AbstractBaseFilesystemAction::isPathEqualsCriteria);
-         // }
-
-         if(BackendQueryFilterUtils.doesRecordMatch(filterForRecords, null, record))
+         if(filterPredicate.test(record))
          {
             records.add(record);
          }
@@ -29,13 +29,13 @@ import com.kingsrook.qqq.backend.core.actions.interfaces.DeleteInterface;
 import com.kingsrook.qqq.backend.core.actions.interfaces.InsertInterface;
 import com.kingsrook.qqq.backend.core.actions.interfaces.QueryInterface;
 import com.kingsrook.qqq.backend.core.actions.interfaces.UpdateInterface;
+import com.kingsrook.qqq.backend.core.actions.interfaces.UpsertInterface;
 import com.kingsrook.qqq.backend.core.model.actions.AbstractTableActionInput;
 import com.kingsrook.qqq.backend.core.model.metadata.QBackendMetaData;
 import com.kingsrook.qqq.backend.core.model.metadata.tables.QTableBackendDetails;
 import com.kingsrook.qqq.backend.core.modules.backend.QBackendModuleDispatcher;
 import com.kingsrook.qqq.backend.core.modules.backend.QBackendModuleInterface;
-import com.kingsrook.qqq.backend.module.mongodb.actions.AbstractMongoDBAction;
-import com.kingsrook.qqq.backend.module.mongodb.actions.MongoClientContainer;
+import com.kingsrook.qqq.backend.module.mongodb.actions.MongoClientManager;
 import com.kingsrook.qqq.backend.module.mongodb.actions.MongoDBAggregateAction;
 import com.kingsrook.qqq.backend.module.mongodb.actions.MongoDBCountAction;
 import com.kingsrook.qqq.backend.module.mongodb.actions.MongoDBDeleteAction;
@@ -43,6 +43,7 @@ import com.kingsrook.qqq.backend.module.mongodb.actions.MongoDBInsertAction;
 import com.kingsrook.qqq.backend.module.mongodb.actions.MongoDBQueryAction;
 import com.kingsrook.qqq.backend.module.mongodb.actions.MongoDBTransaction;
 import com.kingsrook.qqq.backend.module.mongodb.actions.MongoDBUpdateAction;
+import com.kingsrook.qqq.backend.module.mongodb.actions.MongoDBUpsertAction;
 import com.kingsrook.qqq.backend.module.mongodb.model.metadata.MongoDBBackendMetaData;
 import com.kingsrook.qqq.backend.module.mongodb.model.metadata.MongoDBTableBackendDetails;
 
@@ -144,6 +145,17 @@ public class MongoDBBackendModule implements QBackendModuleInterface
 
 
 
+   /*******************************************************************************
+    **
+    *******************************************************************************/
+   @Override
+   public UpsertInterface getUpsertInterface()
+   {
+      return (new MongoDBUpsertAction());
+   }
+
+
+
    /*******************************************************************************
     **
     *******************************************************************************/
@@ -161,8 +173,7 @@ public class MongoDBBackendModule implements QBackendModuleInterface
    @Override
    public QBackendTransaction openTransaction(AbstractTableActionInput input)
    {
-      MongoDBBackendMetaData backend              = (MongoDBBackendMetaData) input.getBackend();
-      MongoClientContainer   mongoClientContainer = new AbstractMongoDBAction().openClient(backend, null);
-      return (new MongoDBTransaction(backend, mongoClientContainer.getMongoClient()));
+      MongoDBBackendMetaData backend = (MongoDBBackendMetaData) input.getBackend();
+      return (new MongoDBTransaction(backend, MongoClientManager.getMongoClient(backend)));
    }
 }
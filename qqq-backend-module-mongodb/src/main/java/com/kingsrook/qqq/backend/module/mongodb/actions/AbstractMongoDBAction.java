@@ -36,6 +36,7 @@ import com.kingsrook.qqq.backend.core.actions.QBackendTransaction;
 import com.kingsrook.qqq.backend.core.actions.values.QValueFormatter;
 import com.kingsrook.qqq.backend.core.context.QContext;
 import com.kingsrook.qqq.backend.core.exceptions.QException;
+import com.kingsrook.qqq.backend.core.instances.QMetaDataVariableInterpreter;
 import com.kingsrook.qqq.backend.core.logging.QLogger;
 import com.kingsrook.qqq.backend.core.model.actions.tables.query.JoinsContext;
 import com.kingsrook.qqq.backend.core.model.actions.tables.query.QCriteriaOperator;
@@ -60,11 +61,7 @@ import com.kingsrook.qqq.backend.core.utils.StringUtils;
 import com.kingsrook.qqq.backend.core.utils.ValueUtils;
 import com.kingsrook.qqq.backend.module.mongodb.model.metadata.MongoDBBackendMetaData;
 import com.kingsrook.qqq.backend.module.mongodb.model.metadata.MongoDBTableBackendDetails;
-import com.mongodb.ConnectionString;
-import com.mongodb.MongoClientSettings;
-import com.mongodb.MongoCredential;
 import com.mongodb.client.MongoClient;
-import com.mongodb.client.MongoClients;
 import com.mongodb.client.model.Filters;
 import org.bson.Document;
 import org.bson.conversions.Bson;
@@ -81,11 +78,25 @@ public class AbstractMongoDBAction
 
    protected QueryStat queryStat;
 
+   private static int largeResultBatchSize = 1000;
+
+   static
+   {
+      try
+      {
+         largeResultBatchSize = new QMetaDataVariableInterpreter().getIntegerFromPropertyOrEnvironment("qqq.mongodb.largeResultBatchSize", "QQQ_MONGODB_LARGE_RESULT_BATCH_SIZE", 1000);
+      }
+      catch(Exception e)
+      {
+         LOG.warn("Error reading property/env for mongodb largeResultBatchSize", e);
+      }
+   }
+
 
 
    /*******************************************************************************
     ** Open a MongoDB Client / session -- re-using the one in the input transaction
-    ** if it is present.
+    ** if it is present - else, a new session on the backend's shared client.
     *******************************************************************************/
    public MongoClientContainer openClient(MongoDBBackendMetaData backend, QBackendTransaction transaction)
    {
@@ -97,27 +108,11 @@ public class AbstractMongoDBAction
          return (new MongoClientContainer(mongoDBTransaction.getMongoClient(), mongoDBTransaction.getClientSession(), false));
       }
 
-      String           suffix           = StringUtils.hasContent(backend.getUrlSuffix()) ? "?" + backend.getUrlSuffix() : "";
-      ConnectionString connectionString = new ConnectionString("mongodb://" + backend.getHost() + ":" + backend.getPort() + "/" + suffix);
-
-      MongoCredential credential = MongoCredential.createCredential(backend.getUsername(), backend.getAuthSourceDatabase(), backend.getPassword().toCharArray());
-
-      MongoClientSettings settings = MongoClientSettings.builder()
-
-         ////////////////////////////////////////////////
-         // is this needed, what, for a cluster maybe? //
-         ////////////////////////////////////////////////
-         // .applyToClusterSettings(builder -> builder.hosts(seeds))
-
-         .applyConnectionString(connectionString)
-         .credential(credential)
-         .build();
-
-      MongoClient mongoClient = MongoClients.create(settings);
-
-      ////////////////////////////////////////////////////////////////////////////
-      // indicate that this connection was newly opened via the true param here //
-      ////////////////////////////////////////////////////////////////////////////
+      //////////////////////////////////////////////////////////////////////////////////
+      // use the backend's shared (pooled) client, with a new session for this action //
+      // (indicating, via the true param here, that the session needs closed)         //
+      //////////////////////////////////////////////////////////////////////////////////
+      MongoClient mongoClient = MongoClientManager.getMongoClient(backend);
       return (new MongoClientContainer(mongoClient, mongoClient.startSession(), true));
    }
 
@@ -174,6 +169,51 @@ public class AbstractMongoDBAction
 
 
 
+   /*******************************************************************************
+    ** number of write models to send per bulkWrite call - mongo's maxWriteBatchSize
+    ** (the driver further splits a call if it exceeds the server's message size).
+    *******************************************************************************/
+   protected int getBulkWriteChunkSize()
+   {
+      return (100_000);
+   }
+
+
+
+   /*******************************************************************************
+    ** cursor batch size for queries & aggregates that may return many results (or
+    ** that stream into a record pipe) - also the number of records given to a
+    ** record pipe at a time.
+    *******************************************************************************/
+   protected static int getLargeResultBatchSize()
+   {
+      return (largeResultBatchSize);
+   }
+
+
+
+   /*******************************************************************************
+    ** override the large-result batch size read from the property/env var at
+    ** startup (e.g., for tests that want to cross batch boundaries).
+    *******************************************************************************/
+   public static void setLargeResultBatchSize(int largeResultBatchSize)
+   {
+      AbstractMongoDBAction.largeResultBatchSize = Math.max(1, largeResultBatchSize);
+   }
+
+
+
+   /*******************************************************************************
+    ** number of records in the first batch given to a record pipe - a tenth of a
+    ** regular batch, so its consumer can start working before a full one is built.
+    *******************************************************************************/
+   protected static int getFirstPipeBatchSize()
+   {
+      return (Math.max(1, getLargeResultBatchSize() / 10));
+   }
+
+
+
    /*******************************************************************************
     ** Convert a mongodb document to a QRecord.
     *******************************************************************************/
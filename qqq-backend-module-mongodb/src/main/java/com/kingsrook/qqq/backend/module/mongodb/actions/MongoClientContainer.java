@@ -145,14 +145,20 @@ public class MongoClientContainer
 
 
    /*******************************************************************************
-    **
+    ** close the session (if we opened it) - and give the client back, if it's one
+    ** of MongoClientManager's shared clients, else close it too.  Only does this
+    ** once, even if called again.
     *******************************************************************************/
-   public void closeIfNeeded()
+   public synchronized void closeIfNeeded()
    {
       if(needToClose)
       {
+         needToClose = false;
          mongoSession.close();
-         mongoClient.close();
+         if(!MongoClientManager.releaseMongoClient(mongoClient))
+         {
+            mongoClient.close();
+         }
       }
    }
 }
@@ -0,0 +1,477 @@
+/*
+ * QQQ - Low-code Application Framework for Engineers.
+ * Copyright (C) 2021-2024.  Kingsrook, LLC
+ * 651 N Broad St Ste 205 # 6917 | Middletown DE 19709 | United States
+ * contact@kingsrook.com
+ * https://github.com/Kingsrook/
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+
+package com.kingsrook.qqq.backend.module.mongodb.actions;
+
+
+import java.util.ArrayList;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import com.kingsrook.qqq.backend.core.logging.QLogger;
+import com.kingsrook.qqq.backend.core.utils.StringUtils;
+import com.kingsrook.qqq.backend.module.mongodb.model.metadata.MongoDBBackendMetaData;
+import com.kingsrook.qqq.backend.module.mongodb.model.metadata.MongoDBConnectionPoolSettings;
+import com.mongodb.ConnectionString;
+import com.mongodb.MongoClientSettings;
+import com.mongodb.MongoCredential;
+import com.mongodb.client.MongoClient;
+import com.mongodb.client.MongoClients;
+import static com.kingsrook.qqq.backend.core.logging.LogUtils.logPair;
+
+
+/*******************************************************************************
+ ** Keeps long-lived MongoClients (each of which is itself a connection pool,
+ ** with its own server monitoring) - one per distinct set of connection details
+ ** (so, per backend - and per variant of a backend, if its variants connect
+ ** differently) - so actions only need to start a session, rather than pay for
+ ** new connections, auth and cluster discovery.
+ **
+ ** Callers take a client with getMongoClient, and must give it back with
+ ** releaseMongoClient when they're done with it (MongoClientContainer and
+ ** MongoDBTransaction do this when they're closed).  A client is only closed
+ ** once nothing is using it.  So, when a backend's connection details change
+ ** (e.g., rotated credentials), the client for the old details is left for its
+ ** in-flight users (e.g., open transactions) to finish with - and is closed once
+ ** it has sat unused for MAX_IDLE_MILLIS (checked, at most every
+ ** IDLE_CHECK_INTERVAL_MILLIS, as clients are taken).  closeClients and
+ ** closeAllClients (which also runs at JVM shutdown) retire clients right away
+ ** - closing each one as soon as its last user releases it.
+ *******************************************************************************/
+public class MongoClientManager
+{
+   private static final QLogger LOG = QLogger.getLogger(MongoClientManager.class);
+
+   private static final long MAX_IDLE_MILLIS            = TimeUnit.MINUTES.toMillis(10);
+   private static final long IDLE_CHECK_INTERVAL_MILLIS = TimeUnit.MINUTES.toMillis(1);
+
+   ///////////////////////////////////////////////////////////////////////////////////
+   // clientMap has the clients that can be taken; managedClientsByMongoClient also //
+   // has retired ones that are still in use - until they're released and closed.   //
+   ///////////////////////////////////////////////////////////////////////////////////
+   private static final Map<ClientKey, ManagedClient>   clientMap                   = new ConcurrentHashMap<>();
+   private static final Map<MongoClient, ManagedClient> managedClientsByMongoClient = new ConcurrentHashMap<>();
+
+   private static volatile long lastIdleCheckAt = System.currentTimeMillis();
+
+   private static boolean addedShutdownHook = false;
+
+
+
+   /*******************************************************************************
+    ** connection details that make one client different from another.
+    *******************************************************************************/
+   private record ClientKey(String backendName, String host, Integer port, String username, String password, String authSourceDatabase, String urlSuffix)
+   {
+      /*******************************************************************************
+       **
+       *******************************************************************************/
+      static ClientKey of(MongoDBBackendMetaData backend)
+      {
+         return (new ClientKey(backend.getName(), backend.getHost(), backend.getPort(), backend.getUsername(), backend.getPassword(), backend.getAuthSourceDatabase(), backend.getUrlSuffix()));
+      }
+
+
+
+      /*******************************************************************************
+       ** (not the default record toString - as that would include the password)
+       *******************************************************************************/
+      @Override
+      public String toString()
+      {
+         return (backendName + "[" + username + "@" + host + ":" + port + "]");
+      }
+   }
+
+
+
+   /*******************************************************************************
+    ** a client, the connection details it was built from, and how many users it
+    ** has - so it's only closed once retired and unused.
+    *******************************************************************************/
+   private static class ManagedClient
+   {
+      private final ClientKey   key;
+      private final MongoClient mongoClient;
+
+      private int     users          = 0;
+      private long    lastReleasedAt = System.currentTimeMillis();
+      private boolean retired        = false;
+      private boolean closed         = false;
+
+
+
+      /*******************************************************************************
+       ** Constructor
+       **
+       *******************************************************************************/
+      ManagedClient(ClientKey key, MongoClient mongoClient)
+      {
+         this.key = key;
+         this.mongoClient = mongoClient;
+      }
+
+
+
+      /*******************************************************************************
+       ** add a user - unless the client has been retired (returning false).
+       *******************************************************************************/
+      synchronized boolean tryAcquire()
+      {
+         if(retired)
+         {
+            return (false);
+         }
+
+         users++;
+         return (true);
+      }
+
+
+
+      /*******************************************************************************
+       ** remove a user - returning true if the caller should now close the client.
+       *******************************************************************************/
+      synchronized boolean release()
+      {
+         users--;
+         lastReleasedAt = System.currentTimeMillis();
+         return (markClosedIfRetiredAndUnused());
+      }
+
+
+
+      /*******************************************************************************
+       ** stop handing the client out - returning true if the caller should now
+       ** close it (else, its last user's release will).
+       *******************************************************************************/
+      synchronized boolean retire()
+      {
+         retired = true;
+         return (markClosedIfRetiredAndUnused());
+      }
+
+
+
+      /*******************************************************************************
+       ** retire the client if it's been unused for longer than maxIdleMillis -
+       ** returning true if the caller should now close it.
+       *******************************************************************************/
+      synchronized boolean retireIfIdle(long maxIdleMillis)
+      {
+         if(users <= 0 && System.currentTimeMillis() - lastReleasedAt >= maxIdleMillis)
+         {
+            return (retire());
+         }
+         return (false);
+      }
+
+
+
+      /*******************************************************************************
+       **
+       *******************************************************************************/
+      private boolean markClosedIfRetiredAndUnused()
+      {
+         if(retired && users <= 0 && !closed)
+         {
+            closed = true;
+            return (true);
+         }
+         return (false);
+      }
+   }
+
+
+
+   /*******************************************************************************
+    ** Take the shared client for a backend's connection details - creating it on
+    ** first use.  Give it back, via releaseMongoClient, when done with it.
+    *******************************************************************************/
+   public static MongoClient getMongoClient(MongoDBBackendMetaData backend)
+   {
+      closeIdleClientsIfDue();
+
+      ClientKey key = ClientKey.of(backend);
+      while(true)
+      {
+         ManagedClient managedClient = clientMap.get(key);
+         if(managedClient == null)
+         {
+            synchronized(clientMap)
+            {
+               managedClient = clientMap.get(key);
+               if(managedClient == null)
+               {
+                  LOG.info("Creating pooled MongoClient for backend", logPair("backendName", backend.getName()), logPair("client", key.toString()));
+                  managedClient = new ManagedClient(key, MongoClients.create(buildSettings(backend)));
+                  clientMap.put(key, managedClient);
+                  managedClientsByMongoClient.put(managedClient.mongoClient, managedClient);
+                  addShutdownHookIfNeeded();
+               }
+            }
+         }
+
+         if(managedClient.tryAcquire())
+         {
+            return (managedClient.mongoClient);
+         }
+
+         ///////////////////////////////////////////////////////////////////////
+         // it was retired since we looked it up - so forget it, and go again //
+         ///////////////////////////////////////////////////////////////////////
+         clientMap.remove(key, managedClient);
+      }
+   }
+
+
+
+   /*******************************************************************************
+    ** Give back a client taken from getMongoClient - closing it, if it has been
+    ** retired, and this was its last user.  Returns false if the client isn't one
+    ** of the shared ones (in which case, the caller should close it themselves).
+    *******************************************************************************/
+   public static boolean releaseMongoClient(MongoClient mongoClient)
+   {
+      ManagedClient managedClient = mongoClient == null ? null : managedClientsByMongoClient.get(mongoClient);
+      if(managedClient == null)
+      {
+         return (false);
+      }
+
+      if(managedClient.release())
+      {
+         closeClient(managedClient);
+      }
+      return (true);
+   }
+
+
+
+   /*******************************************************************************
+    ** Is the given client one of the shared ones (e.g., so callers release it,
+    ** rather than closing it).
+    *******************************************************************************/
+   public static boolean isManagedClient(MongoClient mongoClient)
+   {
+      return (mongoClient != null && managedClientsByMongoClient.containsKey(mongoClient));
+   }
+
+
+
+   /*******************************************************************************
+    ** Build the settings for a backend's client - connection string, credential,
+    ** and any connection pool settings.
+    *******************************************************************************/
+   public static MongoClientSettings buildSettings(MongoDBBackendMetaData backend)
+   {
+      String           suffix           = StringUtils.hasContent(backend.getUrlSuffix()) ? "?" + backend.getUrlSuffix() : "";
+      ConnectionString connectionString = new ConnectionString("mongodb://" + backend.getHost() + ":" + backend.getPort() + "/" + suffix);
+
+      MongoCredential credential = MongoCredential.createCredential(backend.getUsername(), backend.getAuthSourceDatabase(), backend.getPassword().toCharArray());
+
+      MongoClientSettings.Builder builder = MongoClientSettings.builder()
+
+         ////////////////////////////////////////////////
+         // is this needed, what, for a cluster maybe? //
+         ////////////////////////////////////////////////
+         // .applyToClusterSettings(builder -> builder.hosts(seeds))
+
+         .applyConnectionString(connectionString)
+         .credential(credential);
+
+      MongoDBConnectionPoolSettings poolSettings = backend.getConnectionPoolSettings();
+      if(poolSettings != null)
+      {
+         builder.applyToConnectionPoolSettings(pool ->
+         {
+            if(poolSettings.getMinPoolSize() != null)
+            {
+               pool.minSize(poolSettings.getMinPoolSize());
+            }
+
+            if(poolSettings.getMaxPoolSize() != null)
+            {
+               pool.maxSize(poolSettings.getMaxPoolSize());
+            }
+
+            if(poolSettings.getMaxConnecting() != null)
+            {
+               pool.maxConnecting(poolSettings.getMaxConnecting());
+            }
+
+            if(poolSettings.getMaxWaitTimeSeconds() != null)
+            {
+               pool.maxWaitTime(poolSettings.getMaxWaitTimeSeconds(), TimeUnit.SECONDS);
+            }
+
+            if(poolSettings.getMaxIdleTimeSeconds() != null)
+            {
+               pool.maxConnectionIdleTime(poolSettings.getMaxIdleTimeSeconds(), TimeUnit.SECONDS);
+            }
+
+            if(poolSettings.getMaxConnectionLifeTimeSeconds() != null)
+            {
+               pool.maxConnectionLifeTime(poolSettings.getMaxConnectionLifeTimeSeconds(), TimeUnit.SECONDS);
+            }
+
+            if(poolSettings.getMaintenanceFrequencySeconds() != null)
+            {
+               pool.maintenanceFrequency(poolSettings.getMaintenanceFrequencySeconds(), TimeUnit.SECONDS);
+            }
+         });
+
+         if(poolSettings.getHeartbeatFrequencySeconds() != null)
+         {
+            builder.applyToServerSettings(server -> server.heartbeatFrequency(poolSettings.getHeartbeatFrequencySeconds(), TimeUnit.SECONDS));
+         }
+      }
+
+      return (builder.build());
+   }
+
+
+
+   /*******************************************************************************
+    ** Retire (and forget) the clients for a backend - each is closed as soon as
+    ** nothing is using it.  The next action on the backend will open a new client.
+    *******************************************************************************/
+   public static void closeClients(String backendName)
+   {
+      synchronized(clientMap)
+      {
+         for(ManagedClient managedClient : new ArrayList<>(clientMap.values()))
+         {
+            if(managedClient.key.backendName().equals(backendName))
+            {
+               retireClient(managedClient);
+            }
+         }
+      }
+   }
+
+
+
+   /*******************************************************************************
+    ** Retire (and forget) all clients - each is closed as soon as nothing is
+    ** using it.
+    *******************************************************************************/
+   public static void closeAllClients()
+   {
+      synchronized(clientMap)
+      {
+         for(ManagedClient managedClient : new ArrayList<>(clientMap.values()))
+         {
+            retireClient(managedClient);
+         }
+      }
+   }
+
+
+
+   /*******************************************************************************
+    ** Retire (and close) any clients that have gone unused for at least
+    ** maxIdleMillis - e.g., ones for a backend's old connection details.
+    *******************************************************************************/
+   static void closeIdleClients(long maxIdleMillis)
+   {
+      synchronized(clientMap)
+      {
+         for(ManagedClient managedClient : new ArrayList<>(clientMap.values()))
+         {
+            if(managedClient.retireIfIdle(maxIdleMillis))
+            {
+               clientMap.remove(managedClient.key, managedClient);
+               closeClient(managedClient);
+            }
+         }
+      }
+   }
+
+
+
+   /*******************************************************************************
+    **
+    *******************************************************************************/
+   private static void closeIdleClientsIfDue()
+   {
+      long now = System.currentTimeMillis();
+      if(now - lastIdleCheckAt >= IDLE_CHECK_INTERVAL_MILLIS)
+      {
+         lastIdleCheckAt = now;
+         closeIdleClients(MAX_IDLE_MILLIS);
+      }
+   }
+
+
+
+   /*******************************************************************************
+    ** (must be called while synchronized on clientMap)
+    *******************************************************************************/
+   private static void retireClient(ManagedClient managedClient)
+   {
+      clientMap.remove(managedClient.key, managedClient);
+      if(managedClient.retire())
+      {
+         closeClient(managedClient);
+      }
+      else
+      {
+         LOG.info("Pooled MongoClient is still in use - it will be closed when released", logPair("client", managedClient.key.toString()));
+      }
+   }
+
+
+
+   /*******************************************************************************
+    **
+    *******************************************************************************/
+   private static void closeClient(ManagedClient managedClient)
+   {
+      managedClientsByMongoClient.remove(managedClient.mongoClient);
+
+      try
+      {
+         LOG.info("Closing pooled MongoClient", logPair("client", managedClient.key.toString()));
+         managedClient.mongoClient.close();
+      }
+      catch(Exception e)
+      {
+         LOG.warn("Error closing pooled MongoClient", e, logPair("client", managedClient.key.toString()));
+      }
+   }
+
+
+
+   /*******************************************************************************
+    **
+    *******************************************************************************/
+   private static void addShutdownHookIfNeeded()
+   {
+      if(!addedShutdownHook)
+      {
+         Runtime.getRuntime().addShutdownHook(new Thread(MongoClientManager::closeAllClients, "qqq-mongo-client-manager-shutdown"));
+         addedShutdownHook = true;
+      }
+   }
+
+}
@@ -30,6 +30,7 @@ import com.kingsrook.qqq.backend.core.actions.tables.helpers.ActionTimeoutHelper
 import com.kingsrook.qqq.backend.core.exceptions.QException;
 import com.kingsrook.qqq.backend.core.exceptions.QUserFacingException;
 import com.kingsrook.qqq.backend.core.logging.QLogger;
+import com.kingsrook.qqq.backend.core.model.actions.tables.QueryHint;
 import com.kingsrook.qqq.backend.core.model.actions.tables.aggregate.Aggregate;
 import com.kingsrook.qqq.backend.core.model.actions.tables.aggregate.AggregateInput;
 import com.kingsrook.qqq.backend.core.model.actions.tables.aggregate.AggregateOperator;
@@ -48,6 +49,7 @@ import com.kingsrook.qqq.backend.core.utils.ValueUtils;
 import com.kingsrook.qqq.backend.module.mongodb.model.metadata.MongoDBBackendMetaData;
 import com.mongodb.client.AggregateIterable;
 import com.mongodb.client.MongoCollection;
+import com.mongodb.client.MongoCursor;
 import com.mongodb.client.MongoDatabase;
 import com.mongodb.client.model.Accumulators;
 import com.mongodb.client.model.Aggregates;
@@ -188,51 +190,76 @@ public class MongoDBAggregateAction extends AbstractMongoDBAction implements Agg
          ///////////////////////////
          AggregateIterable<Document> aggregates = collection.aggregate(mongoClientContainer.getMongoSession(), bsonList);
 
+         ////////////////////////////////////////////////////////////////////////////////////
+         // have the server stop at the timeout too - as the timeout canceller can't close //
+         // the (shared, pooled) client out from under an in-flight operation              //
+         ////////////////////////////////////////////////////////////////////////////////////
+         if(aggregateInput.getTimeoutSeconds() != null && aggregateInput.getTimeoutSeconds() > 0)
+         {
+            aggregates.maxTime(aggregateInput.getTimeoutSeconds(), TimeUnit.SECONDS);
+         }
+
+         ///////////////////////////////////////////////////////////////////////////////////
+         // for potentially large aggregates (e.g., many groups), let the $group & $sort  //
+         // stages spill to disk, rather than fail at mongo's per-stage memory limit, and //
+         // fetch the results in fixed-size batches.                                      //
+         ///////////////////////////////////////////////////////////////////////////////////
+         if(aggregateInput.hasQueryHint(QueryHint.POTENTIALLY_LARGE_NUMBER_OF_RESULTS))
+         {
+            aggregates.allowDiskUse(true);
+            aggregates.batchSize(getLargeResultBatchSize());
+         }
+
          List<AggregateResult> results = new ArrayList<>();
          aggregateOutput.setResults(results);
 
          /////////////////////
          // process results //
          /////////////////////
-         for(Document document : aggregates)
+         try(MongoCursor<Document> mongoCursor = aggregates.iterator())
          {
-            /////////////////////////////////////////////////////////////////////////
-            // once we've started getting results, go ahead and cancel the timeout //
-            /////////////////////////////////////////////////////////////////////////
-            actionTimeoutHelper.cancel();
-            setQueryStatFirstResultTime();
+            while(mongoCursor.hasNext())
+            {
+               Document document = mongoCursor.next();
 
-            AggregateResult result = new AggregateResult();
-            results.add(result);
+               /////////////////////////////////////////////////////////////////////////
+               // once we've started getting results, go ahead and cancel the timeout //
+               /////////////////////////////////////////////////////////////////////////
+               actionTimeoutHelper.cancel();
+               setQueryStatFirstResultTime();
 
-            ////////////////////////////////////////////////////////////////
-            // get group by values (if there are any) out of the document //
-            ////////////////////////////////////////////////////////////////
-            for(GroupBy groupBy : CollectionUtils.nonNullList(aggregateInput.getGroupBys()))
-            {
-               Document idDocument = (Document) document.get("_id");
-               Object   value      = idDocument.get(groupBy.getFieldName());
-               result.withGroupByValue(groupBy, ValueUtils.getValueAsFieldType(groupBy.getType(), value));
-            }
+               AggregateResult result = new AggregateResult();
+               results.add(result);
 
-            //////////////////////////////////////////
-            // get aggregate values out of document //
-            //////////////////////////////////////////
-            for(Aggregate aggregate : aggregateInput.getAggregates())
-            {
-               QFieldMetaData field     = table.getField(aggregate.getFieldName());
-               QFieldType     fieldType = aggregate.getFieldType();
-               if(fieldType == null)
+               ////////////////////////////////////////////////////////////////
+               // get group by values (if there are any) out of the document //
+               ////////////////////////////////////////////////////////////////
+               for(GroupBy groupBy : CollectionUtils.nonNullList(aggregateInput.getGroupBys()))
                {
-                  fieldType = field.getType();
+                  Document idDocument = (Document) document.get("_id");
+                  Object   value      = idDocument.get(groupBy.getFieldName());
+                  result.withGroupByValue(groupBy, ValueUtils.getValueAsFieldType(groupBy.getType(), value));
                }
-               if(fieldType.equals(QFieldType.INTEGER) && (aggregate.getOperator().equals(AggregateOperator.AVG)))
+
+               //////////////////////////////////////////
+               // get aggregate values out of document //
+               //////////////////////////////////////////
+               for(Aggregate aggregate : aggregateInput.getAggregates())
                {
-                  fieldType = QFieldType.DECIMAL;
+                  QFieldMetaData field     = table.getField(aggregate.getFieldName());
+                  QFieldType     fieldType = aggregate.getFieldType();
+                  if(fieldType == null)
+                  {
+                     fieldType = field.getType();
+                  }
+                  if(fieldType.equals(QFieldType.INTEGER) && (aggregate.getOperator().equals(AggregateOperator.AVG)))
+                  {
+                     fieldType = QFieldType.DECIMAL;
+                  }
+
+                  Object value = document.get(aggregate.getFieldName() + "_" + aggregate.getOperator().toString().toLowerCase());
+                  result.withAggregateValue(aggregate, ValueUtils.getValueAsFieldType(fieldType, value));
                }
-
-               Object value = document.get(aggregate.getFieldName() + "_" + aggregate.getOperator().toString().toLowerCase());
-               result.withAggregateValue(aggregate, ValueUtils.getValueAsFieldType(fieldType, value));
             }
          }
 
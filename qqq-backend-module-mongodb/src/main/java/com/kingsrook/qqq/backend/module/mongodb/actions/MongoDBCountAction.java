@@ -93,6 +93,15 @@ public class MongoDBCountAction extends AbstractMongoDBAction implements CountIn
 
          AggregateIterable<Document> aggregate = collection.aggregate(mongoClientContainer.getMongoSession(), bsonList);
 
+         ////////////////////////////////////////////////////////////////////////////////////
+         // have the server stop at the timeout too - as the timeout canceller can't close //
+         // the (shared, pooled) client out from under an in-flight operation              //
+         ////////////////////////////////////////////////////////////////////////////////////
+         if(countInput.getTimeoutSeconds() != null && countInput.getTimeoutSeconds() > 0)
+         {
+            aggregate.maxTime(countInput.getTimeoutSeconds(), TimeUnit.SECONDS);
+         }
+
          Document document = aggregate.first();
          countOutput.setCount(document == null ? 0 : document.get("count", Integer.class));
 
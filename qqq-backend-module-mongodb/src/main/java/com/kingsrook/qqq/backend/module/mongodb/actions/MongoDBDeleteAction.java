@@ -22,6 +22,7 @@
 package com.kingsrook.qqq.backend.module.mongodb.actions;
 
 
+import java.io.Serializable;
 import java.util.ArrayList;
 import java.util.List;
 import com.kingsrook.qqq.backend.core.actions.interfaces.DeleteInterface;
@@ -30,13 +31,21 @@ import com.kingsrook.qqq.backend.core.logging.QLogger;
 import com.kingsrook.qqq.backend.core.model.actions.tables.delete.DeleteInput;
 import com.kingsrook.qqq.backend.core.model.actions.tables.delete.DeleteOutput;
 import com.kingsrook.qqq.backend.core.model.actions.tables.query.QQueryFilter;
+import com.kingsrook.qqq.backend.core.model.data.QRecord;
 import com.kingsrook.qqq.backend.core.model.metadata.tables.QTableMetaData;
+import com.kingsrook.qqq.backend.core.model.statusmessages.SystemErrorStatusMessage;
 import com.kingsrook.qqq.backend.core.utils.CollectionUtils;
 import com.kingsrook.qqq.backend.core.utils.ValueUtils;
 import com.kingsrook.qqq.backend.module.mongodb.model.metadata.MongoDBBackendMetaData;
+import com.mongodb.MongoBulkWriteException;
+import com.mongodb.bulk.BulkWriteError;
+import com.mongodb.bulk.BulkWriteResult;
 import com.mongodb.client.MongoCollection;
 import com.mongodb.client.MongoDatabase;
+import com.mongodb.client.model.BulkWriteOptions;
+import com.mongodb.client.model.DeleteOneModel;
 import com.mongodb.client.model.Filters;
+import com.mongodb.client.model.WriteModel;
 import com.mongodb.client.result.DeleteResult;
 import org.bson.Document;
 import org.bson.conversions.Bson;
@@ -85,13 +94,19 @@ public class MongoDBDeleteAction extends AbstractMongoDBAction implements Delete
          MongoDatabase             database   = mongoClientContainer.getMongoClient().getDatabase(backend.getDatabaseName());
          MongoCollection<Document> collection = database.getCollection(backendTableName);
 
-         QQueryFilter queryFilter = deleteInput.getQueryFilter();
-         Bson         searchQuery;
+         /////////////////////////////////////////////////////////////////////////////////
+         // delete by primary keys as bulk writes of deleteOne's - so errors (including //
+         // for ids that aren't valid ObjectIds) can be reported per-record             //
+         /////////////////////////////////////////////////////////////////////////////////
          if(CollectionUtils.nullSafeHasContents(deleteInput.getPrimaryKeys()))
          {
-            searchQuery = Filters.in("_id", deleteInput.getPrimaryKeys().stream().map(id -> new ObjectId(ValueUtils.getValueAsString(id))).toList());
+            bulkDeleteByPrimaryKeys(mongoClientContainer, collection, table, deleteInput.getPrimaryKeys(), deleteOutput, queryToLog);
+            return (deleteOutput);
          }
-         else if(queryFilter != null && queryFilter.hasAnyCriteria())
+
+         QQueryFilter queryFilter = deleteInput.getQueryFilter();
+         Bson         searchQuery;
+         if(queryFilter != null && queryFilter.hasAnyCriteria())
          {
             QQueryFilter filter = queryFilter;
             searchQuery = makeSearchQueryDocument(table, filter);
@@ -134,4 +149,59 @@ public class MongoDBDeleteAction extends AbstractMongoDBAction implements Delete
       }
    }
 
+
+
+
+   /*******************************************************************************
+    ** one deleteOne per primary key, sent in chunks of unordered bulkWrites.  any
+    ** per-record write errors from mongo go into the output's recordsWithErrors.
+    *******************************************************************************/
+   private void bulkDeleteByPrimaryKeys(MongoClientContainer mongoClientContainer, MongoCollection<Document> collection, QTableMetaData table, List<Serializable> primaryKeys, DeleteOutput deleteOutput, List<Bson> queryToLog)
+   {
+      for(List<Serializable> chunk : CollectionUtils.getPages(primaryKeys, getBulkWriteChunkSize()))
+      {
+         List<Serializable>         chunkPrimaryKeys = new ArrayList<>();
+         List<WriteModel<Document>> writeModels      = new ArrayList<>();
+         for(Serializable primaryKey : chunk)
+         {
+            try
+            {
+               writeModels.add(new DeleteOneModel<>(Filters.eq("_id", new ObjectId(ValueUtils.getValueAsString(primaryKey)))));
+               chunkPrimaryKeys.add(primaryKey);
+            }
+            catch(IllegalArgumentException iae)
+            {
+               deleteOutput.addRecordWithError(new QRecord(table, primaryKey).withError(new SystemErrorStatusMessage("Record was not deleted: " + iae.getMessage())));
+            }
+         }
+
+         if(writeModels.isEmpty())
+         {
+            continue;
+         }
+
+         queryToLog.add(new Document("bulkDeleteOne", writeModels.size()));
+
+         try
+         {
+            BulkWriteResult bulkWriteResult = collection.bulkWrite(mongoClientContainer.getMongoSession(), writeModels, new BulkWriteOptions().ordered(false));
+            deleteOutput.addToDeletedRecordCount(bulkWriteResult.getDeletedCount());
+         }
+         catch(MongoBulkWriteException bwe)
+         {
+            if(bwe.getWriteErrors().isEmpty())
+            {
+               throw (bwe);
+            }
+
+            deleteOutput.addToDeletedRecordCount(bwe.getWriteResult().getDeletedCount());
+            for(BulkWriteError writeError : bwe.getWriteErrors())
+            {
+               Serializable primaryKey = chunkPrimaryKeys.get(writeError.getIndex());
+               deleteOutput.addRecordWithError(new QRecord(table, primaryKey).withError(new SystemErrorStatusMessage("Record was not deleted: " + writeError.getMessage())));
+            }
+         }
+      }
+   }
+
 }
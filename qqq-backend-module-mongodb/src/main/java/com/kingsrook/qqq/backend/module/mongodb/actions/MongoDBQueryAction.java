@@ -30,6 +30,7 @@ import com.kingsrook.qqq.backend.core.actions.tables.helpers.ActionTimeoutHelper
 import com.kingsrook.qqq.backend.core.exceptions.QException;
 import com.kingsrook.qqq.backend.core.exceptions.QUserFacingException;
 import com.kingsrook.qqq.backend.core.logging.QLogger;
+import com.kingsrook.qqq.backend.core.model.actions.tables.QueryHint;
 import com.kingsrook.qqq.backend.core.model.actions.tables.query.QFilterOrderBy;
 import com.kingsrook.qqq.backend.core.model.actions.tables.query.QQueryFilter;
 import com.kingsrook.qqq.backend.core.model.actions.tables.query.QueryInput;
@@ -40,6 +41,7 @@ import com.kingsrook.qqq.backend.core.utils.CollectionUtils;
 import com.kingsrook.qqq.backend.module.mongodb.model.metadata.MongoDBBackendMetaData;
 import com.mongodb.client.FindIterable;
 import com.mongodb.client.MongoCollection;
+import com.mongodb.client.MongoCursor;
 import com.mongodb.client.MongoDatabase;
 import com.mongodb.client.model.Projections;
 import org.bson.Document;
@@ -137,27 +139,84 @@ public class MongoDBQueryAction extends AbstractMongoDBAction implements QueryIn
             }
          }
 
-         ////////////////////////////////////////////
-         // iterate over results, building records //
-         ////////////////////////////////////////////
-         for(Document document : cursor)
+         //////////////////////////////////////////////////////////////////////////////////////
+         // for potentially large results (or when streaming into a record pipe), fetch in   //
+         // fixed-size batches, and don't let the server time the cursor out while a slow    //
+         // pipe consumer holds us up (the try-with-resources below makes sure it's closed). //
+         // else, if there's a limit, try to get it all in one batch.                        //
+         //////////////////////////////////////////////////////////////////////////////////////
+         boolean isStreaming = queryInput.getRecordPipe() != null || queryInput.hasQueryHint(QueryHint.POTENTIALLY_LARGE_NUMBER_OF_RESULTS);
+         if(isStreaming)
          {
-            /////////////////////////////////////////////////////////////////////////
-            // once we've started getting results, go ahead and cancel the timeout //
-            /////////////////////////////////////////////////////////////////////////
-            actionTimeoutHelper.cancel();
-            setQueryStatFirstResultTime();
+            cursor.batchSize(getLargeResultBatchSize());
+            cursor.noCursorTimeout(true);
+         }
+         else if(filter != null && filter.getLimit() != null && filter.getLimit() > 0)
+         {
+            cursor.batchSize(Math.min(filter.getLimit(), getLargeResultBatchSize()));
+         }
 
-            QRecord record = documentToRecord(queryInput, document);
-            queryOutput.addRecord(record);
+         //////////////////////////////////////////////////////////////////////////////////////
+         // have the server stop at the timeout too - as the timeout canceller can't close   //
+         // the (shared, pooled) client out from under an in-flight operation.  but not when //
+         // streaming - as maxTime caps the cursor's total server time, across all of its    //
+         // batches, where the timeout is only meant to cover the time to the first result.  //
+         //////////////////////////////////////////////////////////////////////////////////////
+         if(!isStreaming && queryInput.getTimeoutSeconds() != null && queryInput.getTimeoutSeconds() > 0)
+         {
+            cursor.maxTime(queryInput.getTimeoutSeconds(), TimeUnit.SECONDS);
+         }
 
-            if(queryInput.getAsyncJobCallback().wasCancelRequested())
+         ////////////////////////////////////////////////////////////////////////////////////
+         // iterate over results, building records.  records for a record pipe are added a //
+         // batch at a time - so its post-record actions run per-batch, not per-record     //
+         // (and its add blocks while it's full - so we only ever hold about one batch).   //
+         // the first batch handed off is smaller, so the pipe's consumer can get started  //
+         // without waiting for a whole batch to be built.                                 //
+         ////////////////////////////////////////////////////////////////////////////////////
+         List<QRecord> pipeBatch          = new ArrayList<>();
+         int           pipeBatchThreshold = getFirstPipeBatchSize();
+         try(MongoCursor<Document> mongoCursor = cursor.iterator())
+         {
+            while(mongoCursor.hasNext())
             {
-               LOG.info("Breaking query job, as requested.");
-               break;
+               Document document = mongoCursor.next();
+
+               /////////////////////////////////////////////////////////////////////////
+               // once we've started getting results, go ahead and cancel the timeout //
+               /////////////////////////////////////////////////////////////////////////
+               actionTimeoutHelper.cancel();
+               setQueryStatFirstResultTime();
+
+               QRecord record = documentToRecord(queryInput, document);
+               if(queryInput.getRecordPipe() != null)
+               {
+                  pipeBatch.add(record);
+                  if(pipeBatch.size() >= pipeBatchThreshold)
+                  {
+                     queryOutput.addRecords(pipeBatch);
+                     pipeBatch = new ArrayList<>();
+                     pipeBatchThreshold = getLargeResultBatchSize();
+                  }
+               }
+               else
+               {
+                  queryOutput.addRecord(record);
+               }
+
+               if(queryInput.getAsyncJobCallback().wasCancelRequested())
+               {
+                  LOG.info("Breaking query job, as requested.");
+                  break;
+               }
             }
          }
 
+         if(!pipeBatch.isEmpty())
+         {
+            queryOutput.addRecords(pipeBatch);
+         }
+
          return (queryOutput);
       }
       catch(Exception e)
@@ -53,6 +53,7 @@ public class MongoDBTransaction extends QBackendTransaction
 
    private Instant openedAt                  = Instant.now();
    private Integer logSlowTransactionSeconds = null;
+   private boolean closed                    = false;
 
 
 
@@ -114,6 +115,8 @@ public class MongoDBTransaction extends QBackendTransaction
          {
             LOG.debug("Request to commit, but transactions not supported in this mongodb backend");
          }
+
+         runPostCommitActions();
       }
       catch(Exception e)
       {
@@ -153,6 +156,8 @@ public class MongoDBTransaction extends QBackendTransaction
          {
             LOG.debug("Request to rollback, but transactions not supported in this mongodb backend");
          }
+
+         discardPostCommitActions();
       }
       catch(Exception e)
       {
@@ -180,10 +185,19 @@ public class MongoDBTransaction extends QBackendTransaction
    @Override
    public void close()
    {
+      if(closed)
+      {
+         return;
+      }
+
       try
       {
+         closed = true;
          this.clientSession.close();
-         this.mongoClient.close();
+         if(!MongoClientManager.releaseMongoClient(this.mongoClient))
+         {
+            this.mongoClient.close();
+         }
       }
       catch(Exception e)
       {
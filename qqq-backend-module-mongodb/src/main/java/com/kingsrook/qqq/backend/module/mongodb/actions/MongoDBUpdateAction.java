@@ -23,6 +23,7 @@ package com.kingsrook.qqq.backend.module.mongodb.actions;
 
 
 import java.util.ArrayList;
+import java.util.IdentityHashMap;
 import java.util.List;
 import java.util.Map;
 import com.kingsrook.qqq.backend.core.actions.interfaces.UpdateInterface;
@@ -34,12 +35,19 @@ import com.kingsrook.qqq.backend.core.model.actions.tables.update.UpdateOutput;
 import com.kingsrook.qqq.backend.core.model.data.QRecord;
 import com.kingsrook.qqq.backend.core.model.metadata.fields.QFieldMetaData;
 import com.kingsrook.qqq.backend.core.model.metadata.tables.QTableMetaData;
+import com.kingsrook.qqq.backend.core.model.statusmessages.SystemErrorStatusMessage;
+import com.kingsrook.qqq.backend.core.utils.CollectionUtils;
 import com.kingsrook.qqq.backend.core.utils.ListingHash;
 import com.kingsrook.qqq.backend.module.mongodb.model.metadata.MongoDBBackendMetaData;
+import com.mongodb.MongoBulkWriteException;
+import com.mongodb.bulk.BulkWriteError;
 import com.mongodb.client.MongoCollection;
 import com.mongodb.client.MongoDatabase;
+import com.mongodb.client.model.BulkWriteOptions;
 import com.mongodb.client.model.Filters;
+import com.mongodb.client.model.UpdateOneModel;
 import com.mongodb.client.model.Updates;
+import com.mongodb.client.model.WriteModel;
 import com.mongodb.client.result.UpdateResult;
 import org.bson.Document;
 import org.bson.conversions.Bson;
@@ -87,9 +95,10 @@ public class MongoDBUpdateAction extends AbstractMongoDBAction implements Update
          // process each distinct list of fields being updated (e.g., each different SQL statement) //
          /////////////////////////////////////////////////////////////////////////////////////////////
          ListingHash<List<String>, QRecord> recordsByFieldBeingUpdated = updateActionRecordSplitHelper.getRecordsByFieldBeingUpdated();
+         Map<QRecord, QRecord>              outputRecordsByInputRecord = getOutputRecordsByInputRecord(updateInput, updateActionRecordSplitHelper);
          for(Map.Entry<List<String>, List<QRecord>> entry : recordsByFieldBeingUpdated.entrySet())
          {
-            updateRecordsWithMatchingListOfFields(updateInput, mongoClientContainer, collection, table, entry.getValue(), entry.getKey());
+            updateRecordsWithMatchingListOfFields(updateInput, mongoClientContainer, collection, table, entry.getValue(), entry.getKey(), outputRecordsByInputRecord);
          }
       }
       catch(Exception e)
@@ -109,10 +118,27 @@ public class MongoDBUpdateAction extends AbstractMongoDBAction implements Update
 
 
 
+   /*******************************************************************************
+    ** the split helper's output records are copies of the input records, in the
+    ** same order - map from each input record to its output record, so errors
+    ** can be put on the output records.
+    *******************************************************************************/
+   private Map<QRecord, QRecord> getOutputRecordsByInputRecord(UpdateInput updateInput, UpdateActionRecordSplitHelper updateActionRecordSplitHelper)
+   {
+      Map<QRecord, QRecord> rs = new IdentityHashMap<>();
+      for(int i = 0; i < updateInput.getRecords().size(); i++)
+      {
+         rs.put(updateInput.getRecords().get(i), updateActionRecordSplitHelper.getOutputRecords().get(i));
+      }
+      return (rs);
+   }
+
+
+
    /*******************************************************************************
     **
     *******************************************************************************/
-   private void updateRecordsWithMatchingListOfFields(UpdateInput updateInput, MongoClientContainer mongoClientContainer, MongoCollection<Document> collection, QTableMetaData table, List<QRecord> recordList, List<String> fieldsBeingUpdated)
+   private void updateRecordsWithMatchingListOfFields(UpdateInput updateInput, MongoClientContainer mongoClientContainer, MongoCollection<Document> collection, QTableMetaData table, List<QRecord> recordList, List<String> fieldsBeingUpdated, Map<QRecord, QRecord> outputRecordsByInputRecord)
    {
       boolean allAreTheSame = UpdateActionRecordSplitHelper.areAllValuesBeingUpdatedTheSame(updateInput, recordList, fieldsBeingUpdated);
       if(allAreTheSame)
@@ -124,14 +150,95 @@ public class MongoDBUpdateAction extends AbstractMongoDBAction implements Update
       }
       else
       {
-         /////////////////////////////////////////////////////////////////////////
-         // else, if not all are being updated the same, then update one-by-one //
-         /////////////////////////////////////////////////////////////////////////
-         for(QRecord record : recordList)
+         ////////////////////////////////////////////////////////////////////////////////////
+         // else, if not all are being updated the same, then send an updateOne per record //
+         // - but all together, in (unordered) bulk writes, rather than one-by-one         //
+         ////////////////////////////////////////////////////////////////////////////////////
+         bulkUpdateRecords(mongoClientContainer, collection, table, recordList, fieldsBeingUpdated, outputRecordsByInputRecord);
+      }
+   }
+
+
+
+   /*******************************************************************************
+    ** one updateOne per (error-free) record, sent in chunks of unordered bulkWrites.
+    ** any per-record errors (an id that isn't a valid ObjectId, or write errors
+    ** from mongo) go onto that record's output record.
+    *******************************************************************************/
+   private void bulkUpdateRecords(MongoClientContainer mongoClientContainer, MongoCollection<Document> collection, QTableMetaData table, List<QRecord> recordList, List<String> fieldsBeingUpdated, Map<QRecord, QRecord> outputRecordsByInputRecord)
+   {
+      Long       queryStartTime = System.currentTimeMillis();
+      List<Bson> queryToLog     = new ArrayList<>();
+
+      List<QRecord> recordsWithoutErrors = recordList.stream().filter(r -> CollectionUtils.nullSafeIsEmpty(r.getErrors())).toList();
+      for(List<QRecord> chunk : CollectionUtils.getPages(recordsWithoutErrors, getBulkWriteChunkSize()))
+      {
+         List<QRecord>              chunkRecords = new ArrayList<>();
+         List<WriteModel<Document>> writeModels  = new ArrayList<>();
+         for(QRecord record : chunk)
+         {
+            Bson filter;
+            try
+            {
+               filter = Filters.eq("_id", new ObjectId(record.getValueString("id")));
+            }
+            catch(IllegalArgumentException iae)
+            {
+               addErrorToOutputRecord(outputRecordsByInputRecord, record, "Record was not updated: " + iae.getMessage());
+               continue;
+            }
+
+            List<Bson> updates = new ArrayList<>();
+            for(String fieldName : fieldsBeingUpdated)
+            {
+               QFieldMetaData field = table.getField(fieldName);
+               updates.add(Updates.set(getFieldBackendName(field), record.getValue(fieldName)));
+            }
+
+            writeModels.add(new UpdateOneModel<>(filter, Updates.combine(updates)));
+            chunkRecords.add(record);
+         }
+
+         if(writeModels.isEmpty())
+         {
+            continue;
+         }
+
+         queryToLog.add(new Document("bulkUpdateOne", writeModels.size()).append("fields", fieldsBeingUpdated));
+
+         try
+         {
+            collection.bulkWrite(mongoClientContainer.getMongoSession(), writeModels, new BulkWriteOptions().ordered(false));
+         }
+         catch(MongoBulkWriteException bwe)
          {
-            updateRecordsWithMatchingValuesAndFields(mongoClientContainer, collection, table, List.of(record), fieldsBeingUpdated);
+            if(bwe.getWriteErrors().isEmpty())
+            {
+               throw (bwe);
+            }
+
+            for(BulkWriteError writeError : bwe.getWriteErrors())
+            {
+               addErrorToOutputRecord(outputRecordsByInputRecord, chunkRecords.get(writeError.getIndex()), "Record was not updated: " + writeError.getMessage());
+            }
          }
       }
+
+      logQuery(getBackendTableName(table), "update", queryToLog, queryStartTime);
+   }
+
+
+
+   /*******************************************************************************
+    **
+    *******************************************************************************/
+   private void addErrorToOutputRecord(Map<QRecord, QRecord> outputRecordsByInputRecord, QRecord inputRecord, String message)
+   {
+      QRecord outputRecord = outputRecordsByInputRecord.get(inputRecord);
+      if(outputRecord != null)
+      {
+         outputRecord.addError(new SystemErrorStatusMessage(message));
+      }
    }
 
 
@@ -0,0 +1,199 @@
+/*
+ * QQQ - Low-code Application Framework for Engineers.
+ * Copyright (C) 2021-2024.  Kingsrook, LLC
+ * 651 N Broad St Ste 205 # 6917 | Middletown DE 19709 | United States
+ * contact@kingsrook.com
+ * https://github.com/Kingsrook/
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+
+package com.kingsrook.qqq.backend.module.mongodb.actions;
+
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import com.kingsrook.qqq.backend.core.actions.interfaces.UpsertInterface;
+import com.kingsrook.qqq.backend.core.exceptions.QException;
+import com.kingsrook.qqq.backend.core.logging.QLogger;
+import com.kingsrook.qqq.backend.core.model.actions.tables.upsert.UpsertInput;
+import com.kingsrook.qqq.backend.core.model.actions.tables.upsert.UpsertOutput;
+import com.kingsrook.qqq.backend.core.model.data.QRecord;
+import com.kingsrook.qqq.backend.core.model.metadata.fields.QFieldMetaData;
+import com.kingsrook.qqq.backend.core.model.metadata.tables.QTableMetaData;
+import com.kingsrook.qqq.backend.core.utils.CollectionUtils;
+import com.kingsrook.qqq.backend.module.mongodb.model.metadata.MongoDBBackendMetaData;
+import com.mongodb.client.MongoCollection;
+import com.mongodb.client.MongoDatabase;
+import com.mongodb.client.model.BulkWriteOptions;
+import com.mongodb.client.model.Filters;
+import com.mongodb.client.model.UpdateOneModel;
+import com.mongodb.client.model.UpdateOptions;
+import com.mongodb.client.model.Updates;
+import com.mongodb.client.model.WriteModel;
+import org.bson.Document;
+import org.bson.conversions.Bson;
+
+
+/*******************************************************************************
+ ** Upsert via a bulkWrite of updateOne's (with upsert=true) per page - each
+ ** filtered on the unique key, $set'ing the fields to update, and
+ ** $setOnInsert'ing the rest of the record's fields.
+ *******************************************************************************/
+public class MongoDBUpsertAction extends AbstractMongoDBAction implements UpsertInterface
+{
+   private static final QLogger LOG = QLogger.getLogger(MongoDBUpsertAction.class);
+
+
+
+   /*******************************************************************************
+    **
+    *******************************************************************************/
+   public UpsertOutput execute(UpsertInput upsertInput) throws QException
+   {
+      MongoClientContainer mongoClientContainer = null;
+      UpsertOutput         rs                   = new UpsertOutput();
+      List<QRecord>        outputRecords        = new ArrayList<>();
+      rs.setRecords(outputRecords);
+
+      Long       queryStartTime = System.currentTimeMillis();
+      List<Bson> queryToLog     = new ArrayList<>();
+
+      try
+      {
+         QTableMetaData         table            = upsertInput.getTable();
+         String                 backendTableName = getBackendTableName(table);
+         MongoDBBackendMetaData backend          = (MongoDBBackendMetaData) upsertInput.getBackend();
+
+         mongoClientContainer = openClient(backend, upsertInput.getTransaction());
+         MongoDatabase             database   = mongoClientContainer.getMongoClient().getDatabase(backend.getDatabaseName());
+         MongoCollection<Document> collection = database.getCollection(backendTableName);
+
+         for(List<QRecord> page : CollectionUtils.getPages(upsertInput.getRecords(), getPageSize()))
+         {
+            List<WriteModel<Document>> writeModels = new ArrayList<>();
+            for(QRecord record : page)
+            {
+               outputRecords.add(new QRecord(record));
+
+               if(CollectionUtils.nullSafeHasContents(record.getErrors()))
+               {
+                  continue;
+               }
+
+               UpdateOneModel<Document> updateOneModel = buildUpdateOneModel(upsertInput, table, record);
+               writeModels.add(updateOneModel);
+               queryToLog.add(updateOneModel.getFilter());
+               queryToLog.add(updateOneModel.getUpdate());
+            }
+
+            /////////////////////////////////////
+            // skip pages that were all errors //
+            /////////////////////////////////////
+            if(writeModels.isEmpty())
+            {
+               continue;
+            }
+
+            collection.bulkWrite(mongoClientContainer.getMongoSession(), writeModels, new BulkWriteOptions().ordered(true));
+         }
+      }
+      catch(Exception e)
+      {
+         throw new QException("Error executing upsert: " + e.getMessage(), e);
+      }
+      finally
+      {
+         logQuery(getBackendTableName(upsertInput.getTable()), "upsert", queryToLog, queryStartTime);
+
+         if(mongoClientContainer != null)
+         {
+            mongoClientContainer.closeIfNeeded();
+         }
+      }
+
+      return (rs);
+   }
+
+
+
+   /*******************************************************************************
+    ** key fields go in the filter (so mongo puts them in the document on insert);
+    ** fields to update are $set; all other values are only set on insert.
+    *******************************************************************************/
+   private UpdateOneModel<Document> buildUpdateOneModel(UpsertInput upsertInput, QTableMetaData table, QRecord record)
+   {
+      Set<String> keyFieldNames      = new HashSet<>(upsertInput.getKey().getFieldNames());
+      Set<String> fieldNamesToUpdate = upsertInput.getFieldNamesToUpdate() == null ? Set.of() : upsertInput.getFieldNamesToUpdate();
+
+      List<Bson> keyFilters      = new ArrayList<>();
+      List<Bson> keySetOnInserts = new ArrayList<>();
+      List<Bson> updates         = new ArrayList<>();
+      for(Map.Entry<String, Serializable> entry : record.getValues().entrySet())
+      {
+         String         fieldName = entry.getKey();
+         QFieldMetaData field     = table.getFields().get(fieldName);
+         if(fieldName.equals(table.getPrimaryKeyField()))
+         {
+            continue;
+         }
+
+         String backendName = field == null ? fieldName : getFieldBackendName(field);
+         if(keyFieldNames.contains(fieldName))
+         {
+            keyFilters.add(Filters.eq(backendName, entry.getValue()));
+            keySetOnInserts.add(Updates.setOnInsert(backendName, entry.getValue()));
+         }
+         else if(fieldNamesToUpdate.contains(fieldName))
+         {
+            updates.add(Updates.set(backendName, entry.getValue()));
+         }
+         else
+         {
+            updates.add(Updates.setOnInsert(backendName, entry.getValue()));
+         }
+      }
+
+      ///////////////////////////////////////////////////////////////////////////
+      // a key field missing from the record is matched (and inserted) as null //
+      ///////////////////////////////////////////////////////////////////////////
+      for(String keyFieldName : keyFieldNames)
+      {
+         if(!record.getValues().containsKey(keyFieldName))
+         {
+            keyFilters.add(Filters.eq(getFieldBackendName(table.getField(keyFieldName)), null));
+            keySetOnInserts.add(Updates.setOnInsert(getFieldBackendName(table.getField(keyFieldName)), null));
+         }
+      }
+
+      /////////////////////////////////////////////////////////////////////////
+      // a record with only key fields would have an empty update - which    //
+      // mongo rejects - so just set the key fields on insert (which is what //
+      // the filter would have put in the document anyway).                  //
+      /////////////////////////////////////////////////////////////////////////
+      if(updates.isEmpty())
+      {
+         updates.addAll(keySetOnInserts);
+      }
+
+      Bson filter = keyFilters.size() == 1 ? keyFilters.get(0) : Filters.and(keyFilters);
+      return (new UpdateOneModel<>(filter, Updates.combine(updates), new UpdateOptions().upsert(true)));
+   }
+
+}
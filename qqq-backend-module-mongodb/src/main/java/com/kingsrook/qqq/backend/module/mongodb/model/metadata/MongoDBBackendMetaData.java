@@ -42,6 +42,8 @@ public class MongoDBBackendMetaData extends QBackendMetaData
 
    private boolean transactionsSupported = true;
 
+   private MongoDBConnectionPoolSettings connectionPoolSettings;
+
 
 
    /*******************************************************************************
@@ -340,4 +342,35 @@ public class MongoDBBackendMetaData extends QBackendMetaData
       return (this);
    }
 
+
+
+   /*******************************************************************************
+    ** Getter for connectionPoolSettings
+    *******************************************************************************/
+   public MongoDBConnectionPoolSettings getConnectionPoolSettings()
+   {
+      return (this.connectionPoolSettings);
+   }
+
+
+
+   /*******************************************************************************
+    ** Setter for connectionPoolSettings
+    *******************************************************************************/
+   public void setConnectionPoolSettings(MongoDBConnectionPoolSettings connectionPoolSettings)
+   {
+      this.connectionPoolSettings = connectionPoolSettings;
+   }
+
+
+
+   /*******************************************************************************
+    ** Fluent setter for connectionPoolSettings
+    *******************************************************************************/
+   public MongoDBBackendMetaData withConnectionPoolSettings(MongoDBConnectionPoolSettings connectionPoolSettings)
+   {
+      this.connectionPoolSettings = connectionPoolSettings;
+      return (this);
+   }
+
 }
@@ -0,0 +1,297 @@
+/*
+ * QQQ - Low-code Application Framework for Engineers.
+ * Copyright (C) 2021-2024.  Kingsrook, LLC
+ * 651 N Broad St Ste 205 # 6917 | Middletown DE 19709 | United States
+ * contact@kingsrook.com
+ * https://github.com/Kingsrook/
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+
+package com.kingsrook.qqq.backend.module.mongodb.model.metadata;
+
+
+/*******************************************************************************
+ ** Settings for the connection pool inside the (long-lived, shared) MongoClient
+ ** that MongoClientManager keeps for a backend - see
+ ** https://www.mongodb.com/docs/drivers/java/sync/current/fundamentals/connection/connection-options/
+ **
+ ** Any settings left null use the driver's defaults (or whatever is given in
+ ** the backend's urlSuffix, e.g., maxPoolSize=50).
+ *******************************************************************************/
+public class MongoDBConnectionPoolSettings
+{
+   private Integer minPoolSize;
+   private Integer maxPoolSize;
+   private Integer maxConnecting;
+   private Integer maxWaitTimeSeconds;
+   private Integer maxIdleTimeSeconds;
+   private Integer maxConnectionLifeTimeSeconds;
+   private Integer maintenanceFrequencySeconds;
+
+   ////////////////////////////////////////////////////////////////
+   // how often the client's monitor checks each server's health //
+   ////////////////////////////////////////////////////////////////
+   private Integer heartbeatFrequencySeconds;
+
+
+
+   /*******************************************************************************
+    ** Getter for minPoolSize
+    *******************************************************************************/
+   public Integer getMinPoolSize()
+   {
+      return (this.minPoolSize);
+   }
+
+
+
+   /*******************************************************************************
+    ** Setter for minPoolSize
+    *******************************************************************************/
+   public void setMinPoolSize(Integer minPoolSize)
+   {
+      this.minPoolSize = minPoolSize;
+   }
+
+
+
+   /*******************************************************************************
+    ** Fluent setter for minPoolSize
+    *******************************************************************************/
+   public MongoDBConnectionPoolSettings withMinPoolSize(Integer minPoolSize)
+   {
+      this.minPoolSize = minPoolSize;
+      return (this);
+   }
+
+
+
+   /*******************************************************************************
+    ** Getter for maxPoolSize
+    *******************************************************************************/
+   public Integer getMaxPoolSize()
+   {
+      return (this.maxPoolSize);
+   }
+
+
+
+   /*******************************************************************************
+    ** Setter for maxPoolSize
+    *******************************************************************************/
+   public void setMaxPoolSize(Integer maxPoolSize)
+   {
+      this.maxPoolSize = maxPoolSize;
+   }
+
+
+
+   /*******************************************************************************
+    ** Fluent setter for maxPoolSize
+    *******************************************************************************/
+   public MongoDBConnectionPoolSettings withMaxPoolSize(Integer maxPoolSize)
+   {
+      this.maxPoolSize = maxPoolSize;
+      return (this);
+   }
+
+
+
+   /*******************************************************************************
+    ** Getter for maxConnecting
+    *******************************************************************************/
+   public Integer getMaxConnecting()
+   {
+      return (this.maxConnecting);
+   }
+
+
+
+   /*******************************************************************************
+    ** Setter for maxConnecting
+    *******************************************************************************/
+   public void setMaxConnecting(Integer maxConnecting)
+   {
+      this.maxConnecting = maxConnecting;
+   }
+
+
+
+   /*******************************************************************************
+    ** Fluent setter for maxConnecting
+    *******************************************************************************/
+   public MongoDBConnectionPoolSettings withMaxConnecting(Integer maxConnecting)
+   {
+      this.maxConnecting = maxConnecting;
+      return (this);
+   }
+
+
+
+   /*******************************************************************************
+    ** Getter for maxWaitTimeSeconds
+    *******************************************************************************/
+   public Integer getMaxWaitTimeSeconds()
+   {
+      return (this.maxWaitTimeSeconds);
+   }
+
+
+
+   /*******************************************************************************
+    ** Setter for maxWaitTimeSeconds
+    *******************************************************************************/
+   public void setMaxWaitTimeSeconds(Integer maxWaitTimeSeconds)
+   {
+      this.maxWaitTimeSeconds = maxWaitTimeSeconds;
+   }
+
+
+
+   /*******************************************************************************
+    ** Fluent setter for maxWaitTimeSeconds
+    *******************************************************************************/
+   public MongoDBConnectionPoolSettings withMaxWaitTimeSeconds(Integer maxWaitTimeSeconds)
+   {
+      this.maxWaitTimeSeconds = maxWaitTimeSeconds;
+      return (this);
+   }
+
+
+
+   /*******************************************************************************
+    ** Getter for maxIdleTimeSeconds
+    *******************************************************************************/
+   public Integer getMaxIdleTimeSeconds()
+   {
+      return (this.maxIdleTimeSeconds);
+   }
+
+
+
+   /*******************************************************************************
+    ** Setter for maxIdleTimeSeconds
+    *******************************************************************************/
+   public void setMaxIdleTimeSeconds(Integer maxIdleTimeSeconds)
+   {
+      this.maxIdleTimeSeconds = maxIdleTimeSeconds;
+   }
+
+
+
+   /*******************************************************************************
+    ** Fluent setter for maxIdleTimeSeconds
+    *******************************************************************************/
+   public MongoDBConnectionPoolSettings withMaxIdleTimeSeconds(Integer maxIdleTimeSeconds)
+   {
+      this.maxIdleTimeSeconds = maxIdleTimeSeconds;
+      return (this);
+   }
+
+
+
+   /*******************************************************************************
+    ** Getter for maxConnectionLifeTimeSeconds
+    *******************************************************************************/
+   public Integer getMaxConnectionLifeTimeSeconds()
+   {
+      return (this.maxConnectionLifeTimeSeconds);
+   }
+
+
+
+   /*******************************************************************************
+    ** Setter for maxConnectionLifeTimeSeconds
+    *******************************************************************************/
+   public void setMaxConnectionLifeTimeSeconds(Integer maxConnectionLifeTimeSeconds)
+   {
+      this.maxConnectionLifeTimeSeconds = maxConnectionLifeTimeSeconds;
+   }
+
+
+
+   /*******************************************************************************
+    ** Fluent setter for maxConnectionLifeTimeSeconds
+    *******************************************************************************/
+   public MongoDBConnectionPoolSettings withMaxConnectionLifeTimeSeconds(Integer maxConnectionLifeTimeSeconds)
+   {
+      this.maxConnectionLifeTimeSeconds = maxConnectionLifeTimeSeconds;
+      return (this);
+   }
+
+
+
+   /*******************************************************************************
+    ** Getter for maintenanceFrequencySeconds
+    *******************************************************************************/
+   public Integer getMaintenanceFrequencySeconds()
+   {
+      return (this.maintenanceFrequencySeconds);
+   }
+
+
+
+   /*******************************************************************************
+    ** Setter for maintenanceFrequencySeconds
+    *******************************************************************************/
+   public void setMaintenanceFrequencySeconds(Integer maintenanceFrequencySeconds)
+   {
+      this.maintenanceFrequencySeconds = maintenanceFrequencySeconds;
+   }
+
+
+
+   /*******************************************************************************
+    ** Fluent setter for maintenanceFrequencySeconds
+    *******************************************************************************/
+   public MongoDBConnectionPoolSettings withMaintenanceFrequencySeconds(Integer maintenanceFrequencySeconds)
+   {
+      this.maintenanceFrequencySeconds = maintenanceFrequencySeconds;
+      return (this);
+   }
+
+
+
+   /*******************************************************************************
+    ** Getter for heartbeatFrequencySeconds
+    *******************************************************************************/
+   public Integer getHeartbeatFrequencySeconds()
+   {
+      return (this.heartbeatFrequencySeconds);
+   }
+
+
+
+   /*******************************************************************************
+    ** Setter for heartbeatFrequencySeconds
+    *******************************************************************************/
+   public void setHeartbeatFrequencySeconds(Integer heartbeatFrequencySeconds)
+   {
+      this.heartbeatFrequencySeconds = heartbeatFrequencySeconds;
+   }
+
+
+
+   /*******************************************************************************
+    ** Fluent setter for heartbeatFrequencySeconds
+    *******************************************************************************/
+   public MongoDBConnectionPoolSettings withHeartbeatFrequencySeconds(Integer heartbeatFrequencySeconds)
+   {
+      this.heartbeatFrequencySeconds = heartbeatFrequencySeconds;
+      return (this);
+   }
+
+}
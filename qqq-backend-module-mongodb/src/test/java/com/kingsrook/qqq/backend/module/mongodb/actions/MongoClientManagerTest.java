@@ -0,0 +1,168 @@
+/*
+ * QQQ - Low-code Application Framework for Engineers.
+ * Copyright (C) 2021-2024.  Kingsrook, LLC
+ * 651 N Broad St Ste 205 # 6917 | Middletown DE 19709 | United States
+ * contact@kingsrook.com
+ * https://github.com/Kingsrook/
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+
+package com.kingsrook.qqq.backend.module.mongodb.actions;
+
+
+import java.util.concurrent.TimeUnit;
+import com.kingsrook.qqq.backend.core.context.QContext;
+import com.kingsrook.qqq.backend.module.mongodb.BaseTest;
+import com.kingsrook.qqq.backend.module.mongodb.TestUtils;
+import com.kingsrook.qqq.backend.module.mongodb.model.metadata.MongoDBBackendMetaData;
+import com.kingsrook.qqq.backend.module.mongodb.model.metadata.MongoDBConnectionPoolSettings;
+import com.mongodb.MongoClientSettings;
+import com.mongodb.client.MongoClient;
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+
+/*******************************************************************************
+ ** Unit test for MongoClientManager
+ *******************************************************************************/
+class MongoClientManagerTest extends BaseTest
+{
+
+   /*******************************************************************************
+    **
+    *******************************************************************************/
+   @Test
+   void testClientIsSharedAcrossActions()
+   {
+      MongoDBBackendMetaData backend = (MongoDBBackendMetaData) QContext.getQInstance().getBackend(TestUtils.DEFAULT_BACKEND_NAME);
+
+      MongoClientContainer container1 = new AbstractMongoDBAction().openClient(backend, null);
+      MongoClientContainer container2 = new AbstractMongoDBAction().openClient(backend, null);
+      assertSame(container1.getMongoClient(), container2.getMongoClient());
+      assertNotSame(container1.getMongoSession(), container2.getMongoSession());
+      assertTrue(MongoClientManager.isManagedClient(container1.getMongoClient()));
+
+      ///////////////////////////////////////////////////////////////////////
+      // closing an action's container must leave the shared client usable //
+      ///////////////////////////////////////////////////////////////////////
+      container1.closeIfNeeded();
+      container2.closeIfNeeded();
+      MongoClient mongoClient = MongoClientManager.getMongoClient(backend);
+      assertSame(container1.getMongoClient(), mongoClient);
+      mongoClient.getDatabase(TestUtils.MONGO_DATABASE).listCollectionNames().first();
+      assertTrue(MongoClientManager.releaseMongoClient(mongoClient));
+
+      //////////////////////////////////////////////////////////////////
+      // after closeClients, the next use makes (and keeps) a new one //
+      //////////////////////////////////////////////////////////////////
+      MongoClientManager.closeClients(backend.getName());
+      assertFalse(MongoClientManager.isManagedClient(mongoClient));
+      MongoClient newClient = MongoClientManager.getMongoClient(backend);
+      assertNotSame(mongoClient, newClient);
+      MongoClientManager.releaseMongoClient(newClient);
+   }
+
+
+
+   /*******************************************************************************
+    **
+    *******************************************************************************/
+   @Test
+   void testChangedConnectionDetailsGetNewClient()
+   {
+      MongoDBBackendMetaData backend = new MongoDBBackendMetaData()
+         .withName("rotatingTest")
+         .withHost("localhost")
+         .withPort(27017)
+         .withUsername("user")
+         .withPassword("pass")
+         .withAuthSourceDatabase("admin");
+
+      MongoClient firstClient = MongoClientManager.getMongoClient(backend);
+      assertSame(firstClient, MongoClientManager.getMongoClient(backend));
+      MongoClientManager.releaseMongoClient(firstClient);
+
+      ////////////////////////////////////////////////////////////////////////
+      // new credentials for the same backend make a new client - but the   //
+      // old one is left open while it's still in use (e.g., by an open     //
+      // transaction) - even past the idle limit.                           //
+      ////////////////////////////////////////////////////////////////////////
+      backend.setPassword("rotated");
+      MongoClient secondClient = MongoClientManager.getMongoClient(backend);
+      assertNotSame(firstClient, secondClient);
+      assertTrue(MongoClientManager.isManagedClient(firstClient));
+      assertTrue(MongoClientManager.isManagedClient(secondClient));
+
+      MongoClientManager.closeIdleClients(0);
+      assertTrue(MongoClientManager.isManagedClient(firstClient));
+
+      ////////////////////////////////////////////////////////////////////
+      // once the old client is released, it's closed as idle - and the //
+      // new one, still in use, is kept.                                //
+      ////////////////////////////////////////////////////////////////////
+      MongoClientManager.releaseMongoClient(firstClient);
+      MongoClientManager.closeIdleClients(0);
+      assertFalse(MongoClientManager.isManagedClient(firstClient));
+      assertTrue(MongoClientManager.isManagedClient(secondClient));
+
+      //////////////////////////////////////////////////////////////////////
+      // closeClients retires the in-use client - closing it on release. //
+      //////////////////////////////////////////////////////////////////////
+      MongoClientManager.closeClients(backend.getName());
+      assertTrue(MongoClientManager.isManagedClient(secondClient));
+      MongoClient thirdClient = MongoClientManager.getMongoClient(backend);
+      assertNotSame(secondClient, thirdClient);
+      assertTrue(MongoClientManager.releaseMongoClient(secondClient));
+      assertFalse(MongoClientManager.isManagedClient(secondClient));
+
+      MongoClientManager.releaseMongoClient(thirdClient);
+      MongoClientManager.closeClients(backend.getName());
+      assertFalse(MongoClientManager.isManagedClient(thirdClient));
+   }
+
+
+
+   /*******************************************************************************
+    **
+    *******************************************************************************/
+   @Test
+   void testPoolSettings()
+   {
+      MongoDBBackendMetaData backend = new MongoDBBackendMetaData()
+         .withName("poolTest")
+         .withHost("localhost")
+         .withPort(27017)
+         .withUsername("user")
+         .withPassword("pass")
+         .withAuthSourceDatabase("admin")
+         .withConnectionPoolSettings(new MongoDBConnectionPoolSettings()
+            .withMinPoolSize(2)
+            .withMaxPoolSize(20)
+            .withMaxIdleTimeSeconds(60)
+            .withHeartbeatFrequencySeconds(5));
+
+      MongoClientSettings settings = MongoClientManager.buildSettings(backend);
+      assertEquals(2, settings.getConnectionPoolSettings().getMinSize());
+      assertEquals(20, settings.getConnectionPoolSettings().getMaxSize());
+      assertEquals(60, settings.getConnectionPoolSettings().getMaxConnectionIdleTime(TimeUnit.SECONDS));
+      assertEquals(5, settings.getServerSettings().getHeartbeatFrequency(TimeUnit.SECONDS));
+   }
+
+}
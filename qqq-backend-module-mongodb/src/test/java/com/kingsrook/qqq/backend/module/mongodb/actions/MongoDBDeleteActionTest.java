@@ -22,23 +22,29 @@
 package com.kingsrook.qqq.backend.module.mongodb.actions;
 
 
+import java.io.Serializable;
+import java.util.ArrayList;
 import java.util.List;
 import com.kingsrook.qqq.backend.core.actions.tables.DeleteAction;
 import com.kingsrook.qqq.backend.core.actions.tables.QueryAction;
 import com.kingsrook.qqq.backend.core.exceptions.QException;
 import com.kingsrook.qqq.backend.core.model.actions.tables.delete.DeleteInput;
+import com.kingsrook.qqq.backend.core.model.actions.tables.delete.DeleteOutput;
 import com.kingsrook.qqq.backend.core.model.actions.tables.query.QCriteriaOperator;
 import com.kingsrook.qqq.backend.core.model.actions.tables.query.QFilterCriteria;
 import com.kingsrook.qqq.backend.core.model.actions.tables.query.QQueryFilter;
 import com.kingsrook.qqq.backend.core.model.actions.tables.query.QueryInput;
 import com.kingsrook.qqq.backend.core.model.actions.tables.query.QueryOutput;
+import com.kingsrook.qqq.backend.core.utils.CollectionUtils;
 import com.kingsrook.qqq.backend.module.mongodb.BaseTest;
 import com.kingsrook.qqq.backend.module.mongodb.TestUtils;
 import com.mongodb.client.MongoCollection;
 import com.mongodb.client.MongoDatabase;
+import com.mongodb.client.result.InsertManyResult;
 import org.bson.Document;
 import org.junit.jupiter.api.Test;
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 
 
 /*******************************************************************************
@@ -99,4 +105,42 @@ class MongoDBDeleteActionTest extends BaseTest
       assertEquals(1, collection.countDocuments());
    }
 
-}
\ No newline at end of file
+
+
+
+   /*******************************************************************************
+    ** delete several records by primary key, in one bulk write
+    *******************************************************************************/
+   @Test
+   void testDeleteManyByPrimaryKeys() throws QException
+   {
+      MongoDatabase             database         = getMongoClient().getDatabase(TestUtils.MONGO_DATABASE);
+      MongoCollection<Document> collection       = database.getCollection(TestUtils.TABLE_NAME_PERSON);
+      InsertManyResult          insertManyResult = collection.insertMany(List.of(
+         Document.parse("""
+            {"firstName": "Darin", "lastName": "Kelkhoff"}"""),
+         Document.parse("""
+            {"firstName": "James", "lastName": "Maes"}"""),
+         Document.parse("""
+            {"firstName": "Tim", "lastName": "Chamberlain"}""")
+      ));
+      assertEquals(3, collection.countDocuments());
+
+      List<Serializable> primaryKeys = new ArrayList<>();
+      for(int i = 0; i < 2; i++)
+      {
+         primaryKeys.add(insertManyResult.getInsertedIds().get(i).asObjectId().getValue().toString());
+      }
+
+      DeleteInput deleteInput = new DeleteInput();
+      deleteInput.setTableName(TestUtils.TABLE_NAME_PERSON);
+      deleteInput.setPrimaryKeys(primaryKeys);
+      DeleteOutput deleteOutput = new DeleteAction().execute(deleteInput);
+      assertEquals(2, deleteOutput.getDeletedRecordCount());
+      assertTrue(CollectionUtils.nullSafeIsEmpty(deleteOutput.getRecordsWithErrors()));
+
+      assertEquals(1, collection.countDocuments());
+      assertEquals("Tim", collection.find().first().get("firstName"));
+   }
+
+}
@@ -25,19 +25,23 @@ package com.kingsrook.qqq.backend.module.mongodb.actions;
 import java.time.Instant;
 import java.time.LocalDate;
 import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
 import java.util.Set;
+import com.kingsrook.qqq.backend.core.actions.reporting.RecordPipe;
 import com.kingsrook.qqq.backend.core.actions.tables.InsertAction;
 import com.kingsrook.qqq.backend.core.actions.tables.QueryAction;
 import com.kingsrook.qqq.backend.core.context.QContext;
 import com.kingsrook.qqq.backend.core.exceptions.QException;
+import com.kingsrook.qqq.backend.core.model.actions.tables.QueryHint;
 import com.kingsrook.qqq.backend.core.model.actions.tables.insert.InsertInput;
 import com.kingsrook.qqq.backend.core.model.actions.tables.insert.InsertOutput;
 import com.kingsrook.qqq.backend.core.model.actions.tables.query.QCriteriaOperator;
 import com.kingsrook.qqq.backend.core.model.actions.tables.query.QFilterCriteria;
+import com.kingsrook.qqq.backend.core.model.actions.tables.query.QFilterOrderBy;
 import com.kingsrook.qqq.backend.core.model.actions.tables.query.QQueryFilter;
 import com.kingsrook.qqq.backend.core.model.actions.tables.query.QueryInput;
 import com.kingsrook.qqq.backend.core.model.actions.tables.query.QueryOutput;
@@ -216,6 +220,52 @@ class MongoDBQueryActionTest extends BaseTest
    }
 
 
+
+   /*******************************************************************************
+    **
+    *******************************************************************************/
+   @Test
+   public void testStreamingIntoRecordPipe() throws QException
+   {
+      ///////////////////////////////////////////////////////////////////////////////
+      // use a tiny batch size, so the 5 rows cross several batches - first one of //
+      // 1 record (a tenth of a batch, at least 1), then batches of 2.             //
+      ///////////////////////////////////////////////////////////////////////////////
+      int originalBatchSize = AbstractMongoDBAction.getLargeResultBatchSize();
+      try
+      {
+         AbstractMongoDBAction.setLargeResultBatchSize(2);
+
+         List<Integer> addedBatchSizes = new ArrayList<>();
+         RecordPipe recordPipe = new RecordPipe()
+         {
+            @Override
+            public void addRecords(List<QRecord> records) throws QException
+            {
+               addedBatchSizes.add(records.size());
+               super.addRecords(records);
+            }
+         };
+
+         QueryInput queryInput = initQueryRequest();
+         queryInput.setRecordPipe(recordPipe);
+         queryInput.withQueryHint(QueryHint.POTENTIALLY_LARGE_NUMBER_OF_RESULTS);
+         queryInput.setFilter(new QQueryFilter().withOrderBy(new QFilterOrderBy("seqNo")));
+         new MongoDBQueryAction().execute(queryInput);
+
+         assertEquals(List.of(1, 2, 2), addedBatchSizes);
+
+         List<QRecord> records = recordPipe.consumeAvailableRecords();
+         assertEquals(5, records.size());
+         assertEquals(List.of(1, 2, 3, 4, 5), records.stream().map(r -> r.getValueInteger("seqNo")).toList());
+      }
+      finally
+      {
+         AbstractMongoDBAction.setLargeResultBatchSize(originalBatchSize);
+      }
+   }
+
+
    /*******************************************************************************
     **
     *******************************************************************************/
@@ -23,6 +23,7 @@ package com.kingsrook.qqq.backend.module.mongodb.actions;
 
 
 import java.time.Instant;
+import java.util.ArrayList;
 import java.util.List;
 import com.kingsrook.qqq.backend.core.actions.tables.UpdateAction;
 import com.kingsrook.qqq.backend.core.exceptions.QException;
@@ -33,13 +34,17 @@ import com.kingsrook.qqq.backend.module.mongodb.BaseTest;
 import com.kingsrook.qqq.backend.module.mongodb.TestUtils;
 import com.mongodb.client.MongoCollection;
 import com.mongodb.client.MongoDatabase;
+import com.mongodb.client.model.IndexOptions;
+import com.mongodb.client.model.Indexes;
 import com.mongodb.client.result.InsertManyResult;
 import org.bson.BsonValue;
 import org.bson.Document;
 import org.junit.jupiter.api.Test;
+import static org.assertj.core.api.Assertions.assertThat;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertNotEquals;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 
 
 /*******************************************************************************
@@ -84,4 +89,86 @@ class MongoDBUpdateActionTest extends BaseTest
       assertNotEquals(Instant.parse("2023-01-09T04:04:04.123Z"), ((Document) document.get("metaData")).get("modifyDate"));
    }
 
-}
\ No newline at end of file
+
+
+
+   /*******************************************************************************
+    ** records with different values go through the bulkWrite path
+    *******************************************************************************/
+   @Test
+   void testDifferentValuesPerRecord() throws QException
+   {
+      MongoDatabase             database         = getMongoClient().getDatabase(TestUtils.MONGO_DATABASE);
+      MongoCollection<Document> collection       = database.getCollection(TestUtils.TABLE_NAME_PERSON);
+      InsertManyResult          insertManyResult = collection.insertMany(List.of(
+         Document.parse("""
+            {"firstName": "Darin", "lastName": "Kelkhoff"}"""),
+         Document.parse("""
+            {"firstName": "James", "lastName": "Maes"}"""),
+         Document.parse("""
+            {"firstName": "Tim", "lastName": "Chamberlain"}""")
+      ));
+
+      List<QRecord> records = new ArrayList<>();
+      for(int i = 0; i < 3; i++)
+      {
+         String id = insertManyResult.getInsertedIds().get(i).asObjectId().getValue().toString();
+         records.add(new QRecord().withValue("id", id).withValue("lastName", "Last" + i));
+      }
+
+      UpdateInput updateInput = new UpdateInput();
+      updateInput.setTableName(TestUtils.TABLE_NAME_PERSON);
+      updateInput.setRecords(records);
+      UpdateOutput updateOutput = new UpdateAction().execute(updateInput);
+      assertEquals(3, updateOutput.getRecords().size());
+      assertTrue(updateOutput.getRecords().stream().allMatch(r -> r.getErrors().isEmpty()));
+
+      assertEquals("Last0", collection.find(new Document("firstName", "Darin")).first().get("lastName"));
+      assertEquals("Last1", collection.find(new Document("firstName", "James")).first().get("lastName"));
+      assertEquals("Last2", collection.find(new Document("firstName", "Tim")).first().get("lastName"));
+   }
+
+
+
+
+   /*******************************************************************************
+    ** in the bulkWrite path, an invalid id, or a write error from mongo (here, a
+    ** unique index violation), goes onto just that record's output record.
+    *******************************************************************************/
+   @Test
+   void testPerRecordErrorsInBulkWrite() throws QException
+   {
+      MongoDatabase             database   = getMongoClient().getDatabase(TestUtils.MONGO_DATABASE);
+      MongoCollection<Document> collection = database.getCollection(TestUtils.TABLE_NAME_PERSON);
+      collection.createIndex(Indexes.ascending("email"), new IndexOptions().unique(true));
+
+      InsertManyResult insertManyResult = collection.insertMany(List.of(
+         Document.parse("""
+            {"firstName": "Darin", "email": "darin@kingsrook.com"}"""),
+         Document.parse("""
+            {"firstName": "James", "email": "james@kingsrook.com"}""")
+      ));
+      String darinId = insertManyResult.getInsertedIds().get(0).asObjectId().getValue().toString();
+      String jamesId = insertManyResult.getInsertedIds().get(1).asObjectId().getValue().toString();
+
+      UpdateInput updateInput = new UpdateInput();
+      updateInput.setTableName(TestUtils.TABLE_NAME_PERSON);
+      updateInput.setRecords(List.of(
+         new QRecord().withValue("id", darinId).withValue("email", "james@kingsrook.com"),
+         new QRecord().withValue("id", "not-an-object-id").withValue("email", "nobody@kingsrook.com"),
+         new QRecord().withValue("id", jamesId).withValue("email", "jdm@kingsrook.com")
+      ));
+      UpdateOutput updateOutput = new MongoDBUpdateAction().execute(updateInput);
+
+      assertEquals(3, updateOutput.getRecords().size());
+      assertThat(updateOutput.getRecords().get(0).getErrors()).hasSize(1);
+      assertThat(updateOutput.getRecords().get(0).getErrors().get(0).getMessage()).contains("Record was not updated").contains("duplicate key");
+      assertThat(updateOutput.getRecords().get(1).getErrors()).hasSize(1);
+      assertThat(updateOutput.getRecords().get(1).getErrors().get(0).getMessage()).contains("Record was not updated");
+      assertThat(updateOutput.getRecords().get(2).getErrors()).isEmpty();
+
+      assertEquals("darin@kingsrook.com", collection.find(new Document("firstName", "Darin")).first().get("email"));
+      assertEquals("jdm@kingsrook.com", collection.find(new Document("firstName", "James")).first().get("email"));
+   }
+
+}
@@ -0,0 +1,136 @@
+/*
+ * QQQ - Low-code Application Framework for Engineers.
+ * Copyright (C) 2021-2024.  Kingsrook, LLC
+ * 651 N Broad St Ste 205 # 6917 | Middletown DE 19709 | United States
+ * contact@kingsrook.com
+ * https://github.com/Kingsrook/
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+
+package com.kingsrook.qqq.backend.module.mongodb.actions;
+
+
+import java.util.List;
+import java.util.Set;
+import com.kingsrook.qqq.backend.core.actions.tables.InsertAction;
+import com.kingsrook.qqq.backend.core.actions.tables.UpsertAction;
+import com.kingsrook.qqq.backend.core.context.QContext;
+import com.kingsrook.qqq.backend.core.exceptions.QException;
+import com.kingsrook.qqq.backend.core.model.actions.tables.insert.InsertInput;
+import com.kingsrook.qqq.backend.core.model.actions.tables.upsert.UpsertInput;
+import com.kingsrook.qqq.backend.core.model.actions.tables.upsert.UpsertOutput;
+import com.kingsrook.qqq.backend.core.model.data.QRecord;
+import com.kingsrook.qqq.backend.core.model.metadata.tables.UniqueKey;
+import com.kingsrook.qqq.backend.module.mongodb.BaseTest;
+import com.kingsrook.qqq.backend.module.mongodb.TestUtils;
+import com.mongodb.client.MongoCollection;
+import org.bson.Document;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+
+
+/*******************************************************************************
+ ** Unit test for MongoDBUpsertAction
+ *******************************************************************************/
+class MongoDBUpsertActionTest extends BaseTest
+{
+
+   /*******************************************************************************
+    **
+    *******************************************************************************/
+   @BeforeEach
+   void beforeEach() throws QException
+   {
+      QContext.getQInstance().getTable(TestUtils.TABLE_NAME_PERSON).withUniqueKey(new UniqueKey("email"));
+
+      new InsertAction().execute(new InsertInput(TestUtils.TABLE_NAME_PERSON).withRecords(List.of(
+         new QRecord().withValue("firstName", "Darin").withValue("lastName", "Kelkhoff").withValue("email", "darin@kingsrook.com").withValue("homeTown", "Chester"))));
+   }
+
+
+
+   /*******************************************************************************
+    **
+    *******************************************************************************/
+   @Test
+   void testInsertsAndUpdates() throws QException
+   {
+      UpsertOutput upsertOutput = new UpsertAction().execute(new UpsertInput(TestUtils.TABLE_NAME_PERSON).withRecords(List.of(
+         new QRecord().withValue("firstName", "Darin").withValue("lastName", "Kelkhoff").withValue("email", "darin@kingsrook.com").withValue("homeTown", "Rome"),
+         new QRecord().withValue("firstName", "Tim").withValue("lastName", "Chamberlain").withValue("email", "tim@kingsrook.com").withValue("homeTown", "Decatur")
+      )));
+      assertEquals(2, upsertOutput.getRecords().size());
+
+      MongoCollection<Document> collection = getCollection();
+      assertEquals(2, collection.countDocuments());
+      assertEquals("Rome", collection.find(new Document("email", "darin@kingsrook.com")).first().get("homeTown"));
+      assertEquals("Decatur", collection.find(new Document("email", "tim@kingsrook.com")).first().get("homeTown"));
+   }
+
+
+
+   /*******************************************************************************
+    **
+    *******************************************************************************/
+   @Test
+   void testFieldNamesToUpdate() throws QException
+   {
+      new UpsertAction().execute(new UpsertInput(TestUtils.TABLE_NAME_PERSON)
+         .withFieldNamesToUpdate(Set.of("homeTown"))
+         .withRecords(List.of(new QRecord().withValue("firstName", "Changed").withValue("email", "darin@kingsrook.com").withValue("homeTown", "Rome"))));
+
+      Document document = getCollection().find(new Document("email", "darin@kingsrook.com")).first();
+      assertNotNull(document);
+      assertEquals("Rome", document.get("homeTown"));
+      assertEquals("Darin", document.get("firstName"));
+   }
+
+
+
+   /*******************************************************************************
+    ** a record with only key fields has nothing to $set - make sure mongo doesn't
+    ** reject the (otherwise empty) update, and that it inserts a new key.
+    *******************************************************************************/
+   @Test
+   void testRecordsWithOnlyKeyFields() throws QException
+   {
+      UpsertInput upsertInput = new UpsertInput(TestUtils.TABLE_NAME_PERSON)
+         .withKey(new UniqueKey("email"))
+         .withFieldNamesToUpdate(Set.of())
+         .withRecords(List.of(
+            new QRecord().withValue("email", "darin@kingsrook.com"),
+            new QRecord().withValue("email", "james@kingsrook.com")));
+      new MongoDBUpsertAction().execute(upsertInput);
+
+      MongoCollection<Document> collection = getCollection();
+      assertEquals(2, collection.countDocuments());
+      assertEquals("Darin", collection.find(new Document("email", "darin@kingsrook.com")).first().get("firstName"));
+      assertNotNull(collection.find(new Document("email", "james@kingsrook.com")).first());
+   }
+
+
+
+   /*******************************************************************************
+    **
+    *******************************************************************************/
+   private MongoCollection<Document> getCollection()
+   {
+      return (getMongoClient().getDatabase(TestUtils.MONGO_DATABASE).getCollection(TestUtils.TABLE_NAME_PERSON));
+   }
+
+}
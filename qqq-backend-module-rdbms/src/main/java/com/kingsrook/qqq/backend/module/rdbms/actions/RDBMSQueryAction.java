@@ -53,6 +53,8 @@ import com.kingsrook.qqq.backend.core.model.actions.tables.query.QueryInput;
 import com.kingsrook.qqq.backend.core.model.actions.tables.query.QueryJoin;
 import com.kingsrook.qqq.backend.core.model.actions.tables.query.QueryOutput;
 import com.kingsrook.qqq.backend.core.model.data.QRecord;
+import com.kingsrook.qqq.backend.core.model.data.QRecordBatch;
+import com.kingsrook.qqq.backend.core.model.data.QRecordBatchLayout;
 import com.kingsrook.qqq.backend.core.model.metadata.QInstance;
 import com.kingsrook.qqq.backend.core.model.metadata.fields.QFieldMetaData;
 import com.kingsrook.qqq.backend.core.model.metadata.fields.QFieldType;
@@ -70,6 +72,8 @@ public class RDBMSQueryAction extends AbstractRDBMSAction implements QueryInterf
 {
    private static final QLogger LOG = QLogger.getLogger(RDBMSQueryAction.class);
 
+   private static final int COLUMNAR_BATCH_SIZE = 1000;
+
    private ActionTimeoutHelper actionTimeoutHelper;
 
    private static boolean mysqlResultSetOptimizationEnabled = false;
@@ -150,6 +154,17 @@ public class RDBMSQueryAction extends AbstractRDBMSAction implements QueryInterf
                actionTimeoutHelper.cancel();
 
                ResultSetMetaData metaData = resultSet.getMetaData();
+
+               ////////////////////////////////////////////////////////////////////////////
+               // if requested, build records in columnar batches (vs. a map per record) //
+               ////////////////////////////////////////////////////////////////////////////
+               if(queryInput.hasQueryHint(QueryHint.COLUMNAR_RECORD_BATCHES))
+               {
+                  readResultSetIntoRecordBatches(resultSet, metaData, queryInput, selection, table, queryOutput);
+                  setQueryStatFirstResultTime();
+                  return;
+               }
+
                while(resultSet.next())
                {
                   setQueryStatFirstResultTime();
@@ -483,6 +498,81 @@ public class RDBMSQueryAction extends AbstractRDBMSAction implements QueryInterf
 
 
 
+   /*******************************************************************************
+    ** Columnar version of reading the result set - where, instead of a QRecord
+    ** with its own values map per row, rows are written into QRecordBatch
+    ** columns, and the batch's (light-weight) records are passed to the output,
+    ** a batch at a time.
+    *******************************************************************************/
+   private void readResultSetIntoRecordBatches(ResultSet resultSet, ResultSetMetaData metaData, QueryInput queryInput, Selection selection, QTableMetaData table, QueryOutput queryOutput) throws SQLException, QException
+   {
+      //////////////////////////////////////////////////////////////////////////////
+      // the layout has one column per fetched field (e.g., not heavy fields that //
+      // we only fetched the length of) - map result set columns to its indexes   //
+      //////////////////////////////////////////////////////////////////////////////
+      List<QFieldMetaData> layoutFields       = new ArrayList<>();
+      int[]                layoutIndexByColumn = new int[metaData.getColumnCount() + 1];
+      for(int i = 1; i <= metaData.getColumnCount(); i++)
+      {
+         QFieldMetaData field = selection.fields().get(i - 1);
+         if(!queryInput.getShouldFetchHeavyFields() && field.getIsHeavy())
+         {
+            layoutIndexByColumn[i] = -1;
+         }
+         else
+         {
+            layoutIndexByColumn[i] = layoutFields.size();
+            layoutFields.add(field);
+         }
+      }
+      QRecordBatchLayout layout = new QRecordBatchLayout(layoutFields);
+
+      QRecordBatch batch = null;
+      while(resultSet.next())
+      {
+         setQueryStatFirstResultTime();
+
+         if(batch == null)
+         {
+            batch = new QRecordBatch(layout, table.getName(), COLUMNAR_BATCH_SIZE);
+         }
+         int row = batch.addRow();
+
+         for(int i = 1; i <= metaData.getColumnCount(); i++)
+         {
+            QFieldMetaData field = selection.fields().get(i - 1);
+            if(layoutIndexByColumn[i] < 0)
+            {
+               Serializable fieldLength = getFieldValueFromResultSet(QFieldType.INTEGER, resultSet, i);
+               setHeavyFieldLengthInRecordBackendDetails(batch.getRecord(row), field, fieldLength);
+            }
+            else
+            {
+               batch.setValue(row, layoutIndexByColumn[i], getFieldValueFromResultSet(field, resultSet, i));
+            }
+         }
+
+         if(batch.isFull())
+         {
+            queryOutput.addRecords(batch.getRecords());
+            batch = null;
+         }
+
+         if(queryInput.getAsyncJobCallback().wasCancelRequested())
+         {
+            LOG.info("Breaking query job, as requested.");
+            break;
+         }
+      }
+
+      if(batch != null && batch.getRowCount() > 0)
+      {
+         queryOutput.addRecords(batch.getRecords());
+      }
+   }
+
+
+
    /*******************************************************************************
     **
     *******************************************************************************/
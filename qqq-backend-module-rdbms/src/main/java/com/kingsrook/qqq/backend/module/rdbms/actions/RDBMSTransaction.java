@@ -103,6 +103,8 @@ public class RDBMSTransaction extends QBackendTransaction
 
          connection.commit();
          LOG.debug("Commit complete");
+
+         runPostCommitActions();
       }
       catch(Exception e)
       {
@@ -131,6 +133,8 @@ public class RDBMSTransaction extends QBackendTransaction
          LOG.info("Rolling back transaction");
          connection.rollback();
          LOG.info("Rollback complete");
+
+         discardPostCommitActions();
       }
       catch(Exception e)
       {
@@ -0,0 +1,178 @@
+/*
+ * QQQ - Low-code Application Framework for Engineers.
+ * Copyright (C) 2021-2024.  Kingsrook, LLC
+ * 651 N Broad St Ste 205 # 6917 | Middletown DE 19709 | United States
+ * contact@kingsrook.com
+ * https://github.com/Kingsrook/
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+
+package com.kingsrook.qqq.backend.module.rdbms.actions;
+
+
+import java.io.Serializable;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+import com.kingsrook.qqq.backend.core.actions.interfaces.UpsertInterface;
+import com.kingsrook.qqq.backend.core.exceptions.QException;
+import com.kingsrook.qqq.backend.core.logging.QLogger;
+import com.kingsrook.qqq.backend.core.model.actions.tables.upsert.UpsertInput;
+import com.kingsrook.qqq.backend.core.model.actions.tables.upsert.UpsertOutput;
+import com.kingsrook.qqq.backend.core.model.data.QRecord;
+import com.kingsrook.qqq.backend.core.model.metadata.fields.QFieldMetaData;
+import com.kingsrook.qqq.backend.core.model.metadata.tables.QTableMetaData;
+import com.kingsrook.qqq.backend.core.utils.CollectionUtils;
+import com.kingsrook.qqq.backend.core.utils.StringUtils;
+
+
+/*******************************************************************************
+ ** multi-row INSERT, with the action strategy's upsert clause (e.g., mysql's
+ ** ON DUPLICATE KEY UPDATE) appended - so each page is one statement, and there
+ ** are no lookups of existing keys.
+ *******************************************************************************/
+public class RDBMSUpsertAction extends AbstractRDBMSAction implements UpsertInterface
+{
+   private static final QLogger LOG = QLogger.getLogger(RDBMSUpsertAction.class);
+
+
+
+   /*******************************************************************************
+    **
+    *******************************************************************************/
+   public UpsertOutput execute(UpsertInput upsertInput) throws QException
+   {
+      UpsertOutput   rs    = new UpsertOutput();
+      QTableMetaData table = upsertInput.getTable();
+      setBackendMetaData(upsertInput.getBackend());
+
+      Connection connection            = null;
+      boolean    needToCloseConnection = false;
+
+      StringBuilder sql    = null;
+      List<Object>  params = null;
+      Long          mark   = null;
+
+      try
+      {
+         List<QFieldMetaData> insertableFields = table.getFields().values().stream()
+            .filter(field -> !field.getName().equals("id")) // same as RDBMSInsertAction
+            .toList();
+
+         Set<String> fieldNamesToUpdate = upsertInput.getFieldNamesToUpdate() == null ? Set.of() : upsertInput.getFieldNamesToUpdate();
+         List<String> keyColumns = upsertInput.getKey().getFieldNames().stream()
+            .map(fieldName -> escapeIdentifier(getColumnName(table.getField(fieldName))))
+            .toList();
+         List<String> updateColumns = insertableFields.stream()
+            .filter(f -> fieldNamesToUpdate.contains(f.getName()))
+            .map(f -> escapeIdentifier(getColumnName(f)))
+            .toList();
+
+         String columns = insertableFields.stream()
+            .map(f -> escapeIdentifier(getColumnName(f)))
+            .collect(Collectors.joining(", "));
+         String questionMarks = insertableFields.stream()
+            .map(x -> "?")
+            .collect(Collectors.joining(", "));
+         String upsertClause = getActionStrategy().getUpsertClause(keyColumns, updateColumns);
+
+         List<QRecord> outputRecords = new ArrayList<>();
+         rs.setRecords(outputRecords);
+
+         if(upsertInput.getTransaction() != null && upsertInput.getTransaction() instanceof RDBMSTransaction rdbmsTransaction)
+         {
+            connection = rdbmsTransaction.getConnection();
+         }
+         else
+         {
+            connection = getConnection(upsertInput);
+            needToCloseConnection = true;
+         }
+
+         for(List<QRecord> page : CollectionUtils.getPages(upsertInput.getRecords(), getActionStrategy().getPageSize(upsertInput)))
+         {
+            String backendTableName = escapeIdentifier(getTableName(table));
+            sql = new StringBuilder("INSERT INTO ").append(backendTableName).append("(").append(columns).append(") VALUES");
+            params = new ArrayList<>();
+            int recordIndex = 0;
+
+            for(QRecord record : page)
+            {
+               QRecord outputRecord = new QRecord(record);
+               if(!StringUtils.hasContent(outputRecord.getTableName()))
+               {
+                  outputRecord.setTableName(table.getName());
+               }
+               outputRecords.add(outputRecord);
+
+               if(CollectionUtils.nullSafeHasContents(record.getErrors()))
+               {
+                  continue;
+               }
+
+               if(recordIndex++ > 0)
+               {
+                  sql.append(",");
+               }
+               sql.append("(").append(questionMarks).append(")");
+
+               for(QFieldMetaData field : insertableFields)
+               {
+                  Serializable value = record.getValue(field.getName());
+                  value = scrubValue(field, value);
+                  params.add(value);
+               }
+            }
+
+            if(recordIndex == 0)
+            {
+               continue;
+            }
+
+            sql.append(upsertClause);
+
+            mark = System.currentTimeMillis();
+            getActionStrategy().executeUpdate(connection, sql.toString(), params);
+            logSQL(sql, params, mark);
+         }
+
+         return rs;
+      }
+      catch(Exception e)
+      {
+         logSQL(sql, params, mark);
+         throw new QException("Error executing upsert: " + e.getMessage(), e);
+      }
+      finally
+      {
+         if(needToCloseConnection && connection != null)
+         {
+            try
+            {
+               connection.close();
+            }
+            catch(SQLException se)
+            {
+               LOG.error("Error closing database connection", se);
+            }
+         }
+      }
+   }
+
+}
@@ -430,6 +430,25 @@ public class BaseRDBMSActionStrategy implements RDBMSActionStrategyInterface
 
 
 
+   /***************************************************************************
+    ** mysql (and h2, in its MODE=MySQL) syntax.  with no columns to update, the
+    ** first key column is set to itself, so existing rows are left as-is.
+    ***************************************************************************/
+   @Override
+   public String getUpsertClause(List<String> keyColumns, List<String> updateColumns)
+   {
+      if(updateColumns.isEmpty())
+      {
+         return (" ON DUPLICATE KEY UPDATE " + keyColumns.get(0) + " = " + keyColumns.get(0));
+      }
+
+      return (" ON DUPLICATE KEY UPDATE " + updateColumns.stream()
+         .map(c -> c + " = VALUES(" + c + ")")
+         .collect(Collectors.joining(", ")));
+   }
+
+
+
    /*******************************************************************************
     **
     *******************************************************************************/
@@ -88,6 +88,12 @@ public interface RDBMSActionStrategyInterface
     ***************************************************************************/
    Integer getPageSize(AbstractActionInput actionInput);
 
+   /***************************************************************************
+    ** clause to append to a multi-row INSERT, to make it update the given
+    ** (already escaped) columns of rows whose unique key already exists.
+    ***************************************************************************/
+   String getUpsertClause(List<String> keyColumns, List<String> updateColumns);
+
 
    /*******************************************************************************
     **
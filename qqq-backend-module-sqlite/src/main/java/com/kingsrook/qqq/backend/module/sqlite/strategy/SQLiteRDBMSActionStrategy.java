@@ -34,6 +34,7 @@ import java.time.ZoneId;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.function.Function;
+import java.util.stream.Collectors;
 import com.kingsrook.qqq.backend.core.model.metadata.fields.QFieldMetaData;
 import com.kingsrook.qqq.backend.core.model.metadata.fields.QFieldType;
 import com.kingsrook.qqq.backend.core.utils.ValueUtils;
@@ -151,4 +152,24 @@ public class SQLiteRDBMSActionStrategy extends BaseRDBMSActionStrategy
       }
    }
 
+
+
+   /***************************************************************************
+    ** sqlite uses postgres-style ON CONFLICT (rather than mysql's ON DUPLICATE
+    ** KEY), which needs the key's columns named.
+    ***************************************************************************/
+   @Override
+   public String getUpsertClause(List<String> keyColumns, List<String> updateColumns)
+   {
+      String conflict = " ON CONFLICT (" + String.join(", ", keyColumns) + ")";
+      if(updateColumns.isEmpty())
+      {
+         return (conflict + " DO NOTHING");
+      }
+
+      return (conflict + " DO UPDATE SET " + updateColumns.stream()
+         .map(c -> c + " = excluded." + c)
+         .collect(Collectors.joining(", ")));
+   }
+
 }
@@ -0,0 +1,149 @@
+/*
+ * QQQ - Low-code Application Framework for Engineers.
+ * Copyright (C) 2021-2024.  Kingsrook, LLC
+ * 651 N Broad St Ste 205 # 6917 | Middletown DE 19709 | United States
+ * contact@kingsrook.com
+ * https://github.com/Kingsrook/
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+
+package com.kingsrook.qqq.backend.module.sqlite.actions;
+
+
+import java.util.List;
+import java.util.Set;
+import com.kingsrook.qqq.backend.core.actions.tables.GetAction;
+import com.kingsrook.qqq.backend.core.actions.tables.QueryAction;
+import com.kingsrook.qqq.backend.core.actions.tables.UpsertAction;
+import com.kingsrook.qqq.backend.core.context.QContext;
+import com.kingsrook.qqq.backend.core.model.actions.processes.RunBackendStepInput;
+import com.kingsrook.qqq.backend.core.model.actions.processes.RunBackendStepOutput;
+import com.kingsrook.qqq.backend.core.model.actions.tables.query.QCriteriaOperator;
+import com.kingsrook.qqq.backend.core.model.actions.tables.query.QFilterCriteria;
+import com.kingsrook.qqq.backend.core.model.actions.tables.query.QQueryFilter;
+import com.kingsrook.qqq.backend.core.model.actions.tables.query.QueryInput;
+import com.kingsrook.qqq.backend.core.model.actions.tables.upsert.UpsertInput;
+import com.kingsrook.qqq.backend.core.model.actions.tables.upsert.UpsertOutput;
+import com.kingsrook.qqq.backend.core.model.data.QRecord;
+import com.kingsrook.qqq.backend.core.model.metadata.tables.UniqueKey;
+import com.kingsrook.qqq.backend.core.processes.implementations.etl.streamedwithfrontend.LoadViaInsertOrUpdateStep;
+import com.kingsrook.qqq.backend.module.rdbms.strategy.BaseRDBMSActionStrategy;
+import com.kingsrook.qqq.backend.module.sqlite.BaseTest;
+import com.kingsrook.qqq.backend.module.sqlite.TestUtils;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+
+/*******************************************************************************
+ ** Unit test for upserts in sqlite (ON CONFLICT ... DO UPDATE), for a table whose
+ ** only unique key is backed by a unique index.
+ *******************************************************************************/
+public class SQLiteUpsertActionTest extends BaseTest
+{
+
+   /*******************************************************************************
+    **
+    *******************************************************************************/
+   @BeforeEach
+   public void beforeEach() throws Exception
+   {
+      runTestSql("CREATE UNIQUE INDEX IF NOT EXISTS person_email ON person (email)", null);
+      QContext.getQInstance().getTable(TestUtils.TABLE_NAME_PERSON).withUniqueKey(new UniqueKey("email"));
+
+      getBaseRDBMSActionStrategyAndActivateCollectingStatistics();
+   }
+
+
+
+   /*******************************************************************************
+    **
+    *******************************************************************************/
+   @Test
+   public void testInsertsAndUpdatesInOneStatement() throws Exception
+   {
+      UpsertOutput upsertOutput = new UpsertAction().execute(new UpsertInput(TestUtils.TABLE_NAME_PERSON).withRecords(List.of(
+         new QRecord().withValue("firstName", "Darin").withValue("lastName", "Kelkhoff").withValue("email", "darin.kelkhoff@gmail.com").withValue("homeTown", "Rome"),
+         new QRecord().withValue("firstName", "Jean-Luc").withValue("lastName", "Picard").withValue("email", "jl@starfleet.net").withValue("homeTown", "La Barre")
+      )));
+
+      assertEquals(2, upsertOutput.getRecords().size());
+      assertEquals(1, getBaseRDBMSActionStrategy().getStatistics().get(BaseRDBMSActionStrategy.STAT_QUERIES_RAN), "Should be one statement, with no lookup of existing keys");
+
+      assertEquals(6, new QueryAction().execute(new QueryInput(TestUtils.TABLE_NAME_PERSON)).getRecords().size());
+      assertEquals("Rome", GetAction.execute(TestUtils.TABLE_NAME_PERSON, 1).getValueString("homeTown"));
+      assertEquals("La Barre", queryByEmail("jl@starfleet.net").getValueString("homeTown"));
+   }
+
+
+
+   /*******************************************************************************
+    **
+    *******************************************************************************/
+   @Test
+   public void testFieldNamesToUpdate() throws Exception
+   {
+      new UpsertAction().execute(new UpsertInput(TestUtils.TABLE_NAME_PERSON)
+         .withFieldNamesToUpdate(Set.of("homeTown"))
+         .withRecords(List.of(new QRecord().withValue("firstName", "Changed").withValue("lastName", "Kelkhoff").withValue("email", "darin.kelkhoff@gmail.com").withValue("homeTown", "Rome"))));
+
+      QRecord darin = GetAction.execute(TestUtils.TABLE_NAME_PERSON, 1);
+      assertEquals("Rome", darin.getValueString("homeTown"));
+      assertEquals("Darin", darin.getValueString("firstName"));
+   }
+
+
+
+   /*******************************************************************************
+    **
+    *******************************************************************************/
+   @Test
+   public void testLoadStepUpsertsRecordsToInsert() throws Exception
+   {
+      UpsertInput upsertInput = new UpsertInput(TestUtils.TABLE_NAME_PERSON).withRecords(List.of(new QRecord().withValue("email", "jl@starfleet.net")));
+      assertTrue(UpsertAction.willUseBackendUpsert(upsertInput));
+
+      upsertInput.setRecords(List.of(new QRecord().withValue("id", 1).withValue("email", "jl@starfleet.net")));
+      assertFalse(UpsertAction.willUseBackendUpsert(upsertInput));
+
+      RunBackendStepInput input = new RunBackendStepInput();
+      input.setRecords(List.of(
+         new QRecord().withValue("firstName", "Jean-Luc").withValue("lastName", "Picard").withValue("email", "jl@starfleet.net").withValue("homeTown", "La Barre"),
+         new QRecord().withValue("firstName", "William").withValue("lastName", "Riker").withValue("email", "wr@starfleet.net").withValue("homeTown", "Valdez")
+      ));
+      input.addValue(LoadViaInsertOrUpdateStep.FIELD_DESTINATION_TABLE, TestUtils.TABLE_NAME_PERSON);
+      input.addValue(LoadViaInsertOrUpdateStep.FIELD_UPSERT_RECORDS_TO_INSERT, true);
+      RunBackendStepOutput output = new RunBackendStepOutput();
+      new LoadViaInsertOrUpdateStep().runOnePage(input, output);
+
+      assertEquals(2, output.getRecords().size());
+      assertEquals(1, getBaseRDBMSActionStrategy().getStatistics().get(BaseRDBMSActionStrategy.STAT_QUERIES_RAN), "Should be one statement, with no lookup of existing keys");
+      assertEquals("Valdez", queryByEmail("wr@starfleet.net").getValueString("homeTown"));
+   }
+
+
+
+   /*******************************************************************************
+    **
+    *******************************************************************************/
+   private QRecord queryByEmail(String email) throws Exception
+   {
+      return (new QueryAction().execute(new QueryInput(TestUtils.TABLE_NAME_PERSON).withFilter(new QQueryFilter(new QFilterCriteria("email", QCriteriaOperator.EQUALS, email)))).getRecords().get(0));
+   }
+
+}
@@ -0,0 +1,23 @@
+#!/bin/bash
+
+############################################################################
+## run-benchmarks.sh
+## Run the qqq JMH benchmarks (always re-building the jar first, so that the
+## current source is what gets measured), writing JMH's JSON results to the
+## given file.  Any additional args are passed through to JMH (e.g., a
+## benchmark name regex, or -wi / -i counts).
+############################################################################
+
+if [ -z "$1" ]; then
+   echo "Usage: $0 resultFile.json [jmh args...]"
+   exit 1
+fi
+
+RESULT_FILE=$1
+shift
+
+cd "$(dirname "$0")/.." || exit 1
+
+mvn -B -q -pl qqq-benchmarks -am package -DskipTests || exit 1
+
+java -jar qqq-benchmarks/target/benchmarks.jar -rf json -rff "$RESULT_FILE" "$@"
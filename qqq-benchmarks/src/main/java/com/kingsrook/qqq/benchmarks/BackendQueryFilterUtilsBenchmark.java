@@ -0,0 +1,156 @@
+/*
+ * QQQ - Low-code Application Framework for Engineers.
+ * Copyright (C) 2021-2024.  Kingsrook, LLC
+ * 651 N Broad St Ste 205 # 6917 | Middletown DE 19709 | United States
+ * contact@kingsrook.com
+ * https://github.com/Kingsrook/
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.kingsrook.qqq.benchmarks;
+
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Predicate;
+import com.kingsrook.qqq.backend.core.model.actions.tables.query.QCriteriaOperator;
+import com.kingsrook.qqq.backend.core.model.actions.tables.query.QFilterCriteria;
+import com.kingsrook.qqq.backend.core.model.actions.tables.query.QQueryFilter;
+import com.kingsrook.qqq.backend.core.model.data.QRecord;
+import com.kingsrook.qqq.backend.core.modules.backend.implementations.utils.BackendQueryFilterUtils;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+
+/*******************************************************************************
+ ** Benchmarks for BackendQueryFilterUtils.doesRecordMatch - the in-memory
+ ** filter evaluation used by the memory backend, filesystem backends, and
+ ** various post-query filtering.  Each invocation evaluates a filter against
+ ** a batch of records.
+ *******************************************************************************/
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class BackendQueryFilterUtilsBenchmark
+{
+   private List<QRecord> records;
+
+   private QQueryFilter simpleEqualsFilter;
+   private QQueryFilter multiCriteriaAndFilter;
+   private QQueryFilter nestedOrFilter;
+
+
+
+   /*******************************************************************************
+    **
+    *******************************************************************************/
+   @Setup
+   public void setup()
+   {
+      BenchmarkInstance.initContext();
+      records = BenchmarkInstance.buildOrders(1000);
+
+      simpleEqualsFilter = new QQueryFilter(new QFilterCriteria("storeId", QCriteriaOperator.EQUALS, 7));
+
+      multiCriteriaAndFilter = new QQueryFilter()
+         .withCriteria(new QFilterCriteria("statusId", QCriteriaOperator.IN, 1, 2))
+         .withCriteria(new QFilterCriteria("total", QCriteriaOperator.GREATER_THAN, new BigDecimal("100")))
+         .withCriteria(new QFilterCriteria("orderDate", QCriteriaOperator.BETWEEN, LocalDate.of(2024, 3, 1), LocalDate.of(2024, 9, 1)))
+         .withCriteria(new QFilterCriteria("shipToName", QCriteriaOperator.STARTS_WITH, "Customer 1"));
+
+      nestedOrFilter = new QQueryFilter()
+         .withBooleanOperator(QQueryFilter.BooleanOperator.OR)
+         .withSubFilter(new QQueryFilter(new QFilterCriteria("storeId", QCriteriaOperator.IN, 1, 3, 5, 7, 9)).withCriteria(new QFilterCriteria("statusId", QCriteriaOperator.EQUALS, 2)))
+         .withSubFilter(new QQueryFilter(new QFilterCriteria("orderNo", QCriteriaOperator.CONTAINS, "99")))
+         .withSubFilter(new QQueryFilter(new QFilterCriteria("total", QCriteriaOperator.IS_BLANK)));
+   }
+
+
+
+   /*******************************************************************************
+    **
+    *******************************************************************************/
+   @Benchmark
+   public void simpleEquals(Blackhole blackhole)
+   {
+      evaluate(simpleEqualsFilter, blackhole);
+   }
+
+
+
+   /*******************************************************************************
+    **
+    *******************************************************************************/
+   @Benchmark
+   public void multiCriteriaAnd(Blackhole blackhole)
+   {
+      evaluate(multiCriteriaAndFilter, blackhole);
+   }
+
+
+
+   /*******************************************************************************
+    **
+    *******************************************************************************/
+   @Benchmark
+   public void nestedOr(Blackhole blackhole)
+   {
+      evaluate(nestedOrFilter, blackhole);
+   }
+
+
+
+   /*******************************************************************************
+    ** the same filter as multiCriteriaAnd - compiled once per invocation, then
+    ** applied to each record.
+    *******************************************************************************/
+   @Benchmark
+   public void multiCriteriaAndCompiled(Blackhole blackhole)
+   {
+      Predicate<QRecord> predicate = BackendQueryFilterUtils.compileFilter(multiCriteriaAndFilter, null);
+      for(QRecord record : records)
+      {
+         blackhole.consume(predicate.test(record));
+      }
+   }
+
+
+
+   /*******************************************************************************
+    **
+    *******************************************************************************/
+   private void evaluate(QQueryFilter filter, Blackhole blackhole)
+   {
+      for(QRecord record : records)
+      {
+         blackhole.consume(BackendQueryFilterUtils.doesRecordMatch(filter, record));
+      }
+   }
+
+}
@@ -0,0 +1,247 @@
+/*
+ * QQQ - Low-code Application Framework for Engineers.
+ * Copyright (C) 2021-2024.  Kingsrook, LLC
+ * 651 N Broad St Ste 205 # 6917 | Middletown DE 19709 | United States
+ * contact@kingsrook.com
+ * https://github.com/Kingsrook/
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.kingsrook.qqq.benchmarks;
+
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import com.kingsrook.qqq.backend.core.actions.tables.InsertAction;
+import com.kingsrook.qqq.backend.core.context.QContext;
+import com.kingsrook.qqq.backend.core.exceptions.QException;
+import com.kingsrook.qqq.backend.core.instances.QInstanceEnricher;
+import com.kingsrook.qqq.backend.core.model.actions.tables.insert.InsertInput;
+import com.kingsrook.qqq.backend.core.model.actions.tables.query.QFilterOrderBy;
+import com.kingsrook.qqq.backend.core.model.data.QRecord;
+import com.kingsrook.qqq.backend.core.model.metadata.QAuthenticationType;
+import com.kingsrook.qqq.backend.core.model.metadata.QBackendMetaData;
+import com.kingsrook.qqq.backend.core.model.metadata.QInstance;
+import com.kingsrook.qqq.backend.core.model.metadata.authentication.QAuthenticationMetaData;
+import com.kingsrook.qqq.backend.core.model.metadata.fields.DisplayFormat;
+import com.kingsrook.qqq.backend.core.model.metadata.fields.QFieldMetaData;
+import com.kingsrook.qqq.backend.core.model.metadata.fields.QFieldType;
+import com.kingsrook.qqq.backend.core.model.metadata.joins.JoinOn;
+import com.kingsrook.qqq.backend.core.model.metadata.joins.JoinType;
+import com.kingsrook.qqq.backend.core.model.metadata.joins.QJoinMetaData;
+import com.kingsrook.qqq.backend.core.model.metadata.possiblevalues.QPossibleValue;
+import com.kingsrook.qqq.backend.core.model.metadata.possiblevalues.QPossibleValueSource;
+import com.kingsrook.qqq.backend.core.model.metadata.possiblevalues.QPossibleValueSourceType;
+import com.kingsrook.qqq.backend.core.model.metadata.tables.QTableMetaData;
+import com.kingsrook.qqq.backend.core.model.session.QSession;
+import com.kingsrook.qqq.backend.core.modules.backend.implementations.memory.MemoryBackendModule;
+import com.kingsrook.qqq.backend.core.modules.backend.implementations.memory.MemoryRecordStore;
+
+
+/*******************************************************************************
+ ** Meta data and data shared by the benchmarks - a small instance, with a
+ ** memory backend, an order table and a lineItem table (joined one-to-many),
+ ** a store table, and possible value sources of both ENUM and TABLE types.
+ **
+ ** Kept deliberately close to the shape of the core module's TestUtils
+ ** instance, so numbers here are comparable to what tests exercise.
+ *******************************************************************************/
+public class BenchmarkInstance
+{
+   public static final String MEMORY_BACKEND_NAME = "memory";
+
+   public static final String TABLE_NAME_ORDER     = "order";
+   public static final String TABLE_NAME_LINE_ITEM = "lineItem";
+   public static final String TABLE_NAME_STORE     = "store";
+
+   public static final String JOIN_NAME_ORDER_LINE_ITEM = "orderLineItem";
+
+   public static final String PVS_STORE        = "store";
+   public static final String PVS_ORDER_STATUS = "orderStatus";
+
+   public static final int NO_OF_STORES = 20;
+
+
+
+   /*******************************************************************************
+    ** Build the instance (enriched), and init the QContext with it.
+    *******************************************************************************/
+   public static QInstance initContext()
+   {
+      QInstance qInstance = defineInstance();
+      QContext.init(qInstance, new QSession());
+      return (qInstance);
+   }
+
+
+
+   /*******************************************************************************
+    **
+    *******************************************************************************/
+   public static QInstance defineInstance()
+   {
+      QInstance qInstance = new QInstance();
+
+      qInstance.setAuthentication(new QAuthenticationMetaData()
+         .withName("mock")
+         .withType(QAuthenticationType.MOCK));
+
+      qInstance.addBackend(new QBackendMetaData()
+         .withName(MEMORY_BACKEND_NAME)
+         .withBackendType(MemoryBackendModule.class));
+
+      qInstance.addTable(new QTableMetaData()
+         .withName(TABLE_NAME_STORE)
+         .withBackendName(MEMORY_BACKEND_NAME)
+         .withPrimaryKeyField("id")
+         .withRecordLabelFormatAndFields("%s", "name")
+         .withField(new QFieldMetaData("id", QFieldType.INTEGER))
+         .withField(new QFieldMetaData("name", QFieldType.STRING)));
+
+      qInstance.addTable(defineOrderTable());
+
+      qInstance.addTable(new QTableMetaData()
+         .withName(TABLE_NAME_LINE_ITEM)
+         .withBackendName(MEMORY_BACKEND_NAME)
+         .withPrimaryKeyField("id")
+         .withField(new QFieldMetaData("id", QFieldType.INTEGER))
+         .withField(new QFieldMetaData("orderId", QFieldType.INTEGER))
+         .withField(new QFieldMetaData("lineNumber", QFieldType.INTEGER))
+         .withField(new QFieldMetaData("sku", QFieldType.STRING))
+         .withField(new QFieldMetaData("quantity", QFieldType.INTEGER).withDisplayFormat(DisplayFormat.COMMAS)));
+
+      qInstance.addJoin(new QJoinMetaData()
+         .withName(JOIN_NAME_ORDER_LINE_ITEM)
+         .withType(JoinType.ONE_TO_MANY)
+         .withLeftTable(TABLE_NAME_ORDER)
+         .withRightTable(TABLE_NAME_LINE_ITEM)
+         .withJoinOn(new JoinOn("id", "orderId"))
+         .withOrderBy(new QFilterOrderBy("lineNumber")));
+
+      qInstance.addPossibleValueSource(new QPossibleValueSource()
+         .withName(PVS_STORE)
+         .withType(QPossibleValueSourceType.TABLE)
+         .withTableName(TABLE_NAME_STORE));
+
+      qInstance.addPossibleValueSource(new QPossibleValueSource()
+         .withName(PVS_ORDER_STATUS)
+         .withType(QPossibleValueSourceType.ENUM)
+         .withEnumValues(List.of(new QPossibleValue<>(1, "Open"), new QPossibleValue<>(2, "Shipped"), new QPossibleValue<>(3, "Cancelled"))));
+
+      new QInstanceEnricher(qInstance).enrich();
+      return (qInstance);
+   }
+
+
+
+   /*******************************************************************************
+    **
+    *******************************************************************************/
+   public static QTableMetaData defineOrderTable()
+   {
+      return (new QTableMetaData()
+         .withName(TABLE_NAME_ORDER)
+         .withBackendName(MEMORY_BACKEND_NAME)
+         .withPrimaryKeyField("id")
+         .withRecordLabelFormatAndFields("Order %s", "orderNo")
+         .withField(new QFieldMetaData("id", QFieldType.INTEGER))
+         .withField(new QFieldMetaData("orderNo", QFieldType.STRING))
+         .withField(new QFieldMetaData("shipToName", QFieldType.STRING))
+         .withField(new QFieldMetaData("orderDate", QFieldType.DATE))
+         .withField(new QFieldMetaData("createDate", QFieldType.DATE_TIME))
+         .withField(new QFieldMetaData("storeId", QFieldType.INTEGER).withPossibleValueSourceName(PVS_STORE))
+         .withField(new QFieldMetaData("statusId", QFieldType.INTEGER).withPossibleValueSourceName(PVS_ORDER_STATUS))
+         .withField(new QFieldMetaData("total", QFieldType.DECIMAL).withDisplayFormat(DisplayFormat.CURRENCY)));
+   }
+
+
+
+   /*******************************************************************************
+    ** Build (but don't store) a list of order records.
+    *******************************************************************************/
+   public static List<QRecord> buildOrders(int count)
+   {
+      List<QRecord> orders = new ArrayList<>();
+      for(int i = 1; i <= count; i++)
+      {
+         orders.add(buildOrder(i));
+      }
+      return (orders);
+   }
+
+
+
+   /*******************************************************************************
+    **
+    *******************************************************************************/
+   public static QRecord buildOrder(int id)
+   {
+      return (new QRecord()
+         .withValue("id", id)
+         .withValue("orderNo", "ORD-" + id)
+         .withValue("shipToName", "Customer " + (id % 100))
+         .withValue("orderDate", LocalDate.of(2024, 1, 1).plusDays(id % 365))
+         .withValue("createDate", Instant.parse("2024-01-01T00:00:00Z").plusSeconds(id * 60L))
+         .withValue("storeId", (id % NO_OF_STORES) + 1)
+         .withValue("statusId", (id % 3) + 1)
+         .withValue("total", new BigDecimal(id).multiply(new BigDecimal("1.25"))));
+   }
+
+
+
+   /*******************************************************************************
+    ** Reset the memory backend, then insert stores, orders, and (linesPerOrder)
+    ** line items per order into it (or just the stores, if noOfOrders is 0).
+    ** Requires the QContext to be initialized.
+    *******************************************************************************/
+   public static void populateMemoryBackend(int noOfOrders, int linesPerOrder) throws QException
+   {
+      MemoryRecordStore.fullReset();
+
+      List<QRecord> stores = new ArrayList<>();
+      for(int i = 1; i <= NO_OF_STORES; i++)
+      {
+         stores.add(new QRecord().withValue("id", i).withValue("name", "Store " + i));
+      }
+      new InsertAction().execute(new InsertInput(TABLE_NAME_STORE).withRecords(stores));
+
+      if(noOfOrders == 0)
+      {
+         return;
+      }
+
+      new InsertAction().execute(new InsertInput(TABLE_NAME_ORDER).withRecords(buildOrders(noOfOrders)));
+
+      List<QRecord> lineItems = new ArrayList<>();
+      int           id        = 1;
+      for(int orderId = 1; orderId <= noOfOrders; orderId++)
+      {
+         for(int lineNumber = 1; lineNumber <= linesPerOrder; lineNumber++)
+         {
+            lineItems.add(new QRecord()
+               .withValue("id", id++)
+               .withValue("orderId", orderId)
+               .withValue("lineNumber", lineNumber)
+               .withValue("sku", "SKU-" + (id % 500))
+               .withValue("quantity", (id % 7) + 1));
+         }
+      }
+      new InsertAction().execute(new InsertInput(TABLE_NAME_LINE_ITEM).withRecords(lineItems));
+   }
+
+}
@@ -0,0 +1,118 @@
+/*
+ * QQQ - Low-code Application Framework for Engineers.
+ * Copyright (C) 2021-2024.  Kingsrook, LLC
+ * 651 N Broad St Ste 205 # 6917 | Middletown DE 19709 | United States
+ * contact@kingsrook.com
+ * https://github.com/Kingsrook/
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.kingsrook.qqq.benchmarks;
+
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.kingsrook.qqq.backend.core.model.data.QRecord;
+import com.kingsrook.qqq.backend.core.model.metadata.QInstance;
+import com.kingsrook.qqq.backend.core.model.metadata.fields.QFieldMetaData;
+import com.kingsrook.qqq.backend.core.utils.JsonUtils;
+import org.json.JSONArray;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+
+/*******************************************************************************
+ ** Benchmarks for JsonUtils - serializing records (as every API/UI response
+ ** does), and parsing them back in (as record-posting endpoints do).
+ *******************************************************************************/
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class JsonUtilsBenchmark
+{
+   private List<QRecord>               records;
+   private String                      recordsJson;
+   private String                      mapJson;
+   private Map<String, QFieldMetaData> fields;
+
+
+
+   /*******************************************************************************
+    **
+    *******************************************************************************/
+   @Setup
+   public void setup()
+   {
+      QInstance qInstance = BenchmarkInstance.initContext();
+      fields = qInstance.getTable(BenchmarkInstance.TABLE_NAME_ORDER).getFields();
+      records = BenchmarkInstance.buildOrders(100);
+      recordsJson = JsonUtils.toJson(records);
+      mapJson = JsonUtils.toJson(records.get(0).getValues());
+   }
+
+
+
+   /*******************************************************************************
+    **
+    *******************************************************************************/
+   @Benchmark
+   public String recordsToJson()
+   {
+      return (JsonUtils.toJson(records));
+   }
+
+
+
+   /*******************************************************************************
+    **
+    *******************************************************************************/
+   @Benchmark
+   public void recordsFromJson(Blackhole blackhole)
+   {
+      JSONArray jsonArray = JsonUtils.toJSONArray(recordsJson);
+      for(int i = 0; i < jsonArray.length(); i++)
+      {
+         blackhole.consume(JsonUtils.parseQRecord(jsonArray.getJSONObject(i).getJSONObject("values"), fields, false));
+      }
+   }
+
+
+
+   /*******************************************************************************
+    **
+    *******************************************************************************/
+   @Benchmark
+   public String mapRoundTrip() throws IOException
+   {
+      Map<String, Object> map = JsonUtils.toObject(mapJson, new TypeReference<>() {});
+      return (JsonUtils.toJson(map));
+   }
+
+}
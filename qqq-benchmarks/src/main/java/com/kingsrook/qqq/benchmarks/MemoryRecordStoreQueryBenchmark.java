@@ -0,0 +1,117 @@
+/*
+ * QQQ - Low-code Application Framework for Engineers.
+ * Copyright (C) 2021-2024.  Kingsrook, LLC
+ * 651 N Broad St Ste 205 # 6917 | Middletown DE 19709 | United States
+ * contact@kingsrook.com
+ * https://github.com/Kingsrook/
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.kingsrook.qqq.benchmarks;
+
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import com.kingsrook.qqq.backend.core.exceptions.QException;
+import com.kingsrook.qqq.backend.core.model.actions.tables.query.QCriteriaOperator;
+import com.kingsrook.qqq.backend.core.model.actions.tables.query.QFilterCriteria;
+import com.kingsrook.qqq.backend.core.model.actions.tables.query.QQueryFilter;
+import com.kingsrook.qqq.backend.core.model.actions.tables.query.QueryInput;
+import com.kingsrook.qqq.backend.core.model.actions.tables.query.QueryJoin;
+import com.kingsrook.qqq.backend.core.model.data.QRecord;
+import com.kingsrook.qqq.backend.core.modules.backend.implementations.memory.MemoryRecordStore;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+
+/*******************************************************************************
+ ** Benchmarks for MemoryRecordStore.query - which backs most unit tests in
+ ** qqq and in applications, so its speed is, in effect, test-suite speed.
+ ** Covers a primary-key lookup, a filtered scan, and a one-to-many join with a
+ ** filter on the joined table.
+ *******************************************************************************/
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class MemoryRecordStoreQueryBenchmark
+{
+   @Param({ "1000", "10000" })
+   private int noOfOrders;
+
+   private static final int LINES_PER_ORDER = 3;
+
+
+
+   /*******************************************************************************
+    **
+    *******************************************************************************/
+   @Setup
+   public void setup() throws QException
+   {
+      BenchmarkInstance.initContext();
+      BenchmarkInstance.populateMemoryBackend(noOfOrders, LINES_PER_ORDER);
+   }
+
+
+
+   /*******************************************************************************
+    **
+    *******************************************************************************/
+   @Benchmark
+   public List<QRecord> queryByPrimaryKey() throws QException
+   {
+      return (MemoryRecordStore.getInstance().query(new QueryInput(BenchmarkInstance.TABLE_NAME_ORDER)
+         .withFilter(new QQueryFilter(new QFilterCriteria("id", QCriteriaOperator.EQUALS, noOfOrders / 2)))));
+   }
+
+
+
+   /*******************************************************************************
+    **
+    *******************************************************************************/
+   @Benchmark
+   public List<QRecord> queryWithFilter() throws QException
+   {
+      return (MemoryRecordStore.getInstance().query(new QueryInput(BenchmarkInstance.TABLE_NAME_ORDER)
+         .withFilter(new QQueryFilter(new QFilterCriteria("storeId", QCriteriaOperator.EQUALS, 3))
+            .withCriteria(new QFilterCriteria("statusId", QCriteriaOperator.IN, 1, 2)))));
+   }
+
+
+
+   /*******************************************************************************
+    **
+    *******************************************************************************/
+   @Benchmark
+   public List<QRecord> queryWithJoin() throws QException
+   {
+      return (MemoryRecordStore.getInstance().query(new QueryInput(BenchmarkInstance.TABLE_NAME_ORDER)
+         .withQueryJoin(new QueryJoin(BenchmarkInstance.TABLE_NAME_LINE_ITEM).withSelect(true))
+         .withFilter(new QQueryFilter(new QFilterCriteria(BenchmarkInstance.TABLE_NAME_LINE_ITEM + ".sku", QCriteriaOperator.EQUALS, "SKU-42")))));
+   }
+
+}
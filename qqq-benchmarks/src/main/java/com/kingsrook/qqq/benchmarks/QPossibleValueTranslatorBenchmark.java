@@ -0,0 +1,107 @@
+/*
+ * QQQ - Low-code Application Framework for Engineers.
+ * Copyright (C) 2021-2024.  Kingsrook, LLC
+ * 651 N Broad St Ste 205 # 6917 | Middletown DE 19709 | United States
+ * contact@kingsrook.com
+ * https://github.com/Kingsrook/
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.kingsrook.qqq.benchmarks;
+
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import com.kingsrook.qqq.backend.core.actions.values.QPossibleValueTranslator;
+import com.kingsrook.qqq.backend.core.context.QContext;
+import com.kingsrook.qqq.backend.core.exceptions.QException;
+import com.kingsrook.qqq.backend.core.model.data.QRecord;
+import com.kingsrook.qqq.backend.core.model.metadata.QInstance;
+import com.kingsrook.qqq.backend.core.model.metadata.tables.QTableMetaData;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+
+/*******************************************************************************
+ ** Benchmarks for QPossibleValueTranslator - translating possible value ids to
+ ** labels, for an ENUM and a TABLE possible value source (the latter running
+ ** queries against the memory backend).
+ **
+ ** The "newTranslator" case starts from an empty cache each invocation (as each
+ ** query request does today); "reusedTranslator" runs against a warm cache.
+ *******************************************************************************/
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class QPossibleValueTranslatorBenchmark
+{
+   private QInstance                qInstance;
+   private QTableMetaData           table;
+   private List<QRecord>            records;
+   private QPossibleValueTranslator reusedTranslator;
+
+
+
+   /*******************************************************************************
+    **
+    *******************************************************************************/
+   @Setup
+   public void setup() throws QException
+   {
+      qInstance = BenchmarkInstance.initContext();
+      BenchmarkInstance.populateMemoryBackend(0, 0);
+
+      table = qInstance.getTable(BenchmarkInstance.TABLE_NAME_ORDER);
+      records = BenchmarkInstance.buildOrders(1000);
+      reusedTranslator = new QPossibleValueTranslator(qInstance, QContext.getQSession());
+   }
+
+
+
+   /*******************************************************************************
+    **
+    *******************************************************************************/
+   @Benchmark
+   public void newTranslator(Blackhole blackhole)
+   {
+      new QPossibleValueTranslator(qInstance, QContext.getQSession()).translatePossibleValuesInRecords(table, records);
+      blackhole.consume(records);
+   }
+
+
+
+   /*******************************************************************************
+    **
+    *******************************************************************************/
+   @Benchmark
+   public void reusedTranslator(Blackhole blackhole)
+   {
+      reusedTranslator.translatePossibleValuesInRecords(table, records);
+      blackhole.consume(records);
+   }
+
+}
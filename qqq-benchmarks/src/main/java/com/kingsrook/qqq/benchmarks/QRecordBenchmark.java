@@ -0,0 +1,124 @@
+/*
+ * QQQ - Low-code Application Framework for Engineers.
+ * Copyright (C) 2021-2024.  Kingsrook, LLC
+ * 651 N Broad St Ste 205 # 6917 | Middletown DE 19709 | United States
+ * contact@kingsrook.com
+ * https://github.com/Kingsrook/
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.kingsrook.qqq.benchmarks;
+
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import com.kingsrook.qqq.backend.core.model.data.QRecord;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+
+/*******************************************************************************
+ ** Benchmarks for building and copying QRecords - which happens for every row
+ ** of every query, and again in many transform steps and customizers.
+ *******************************************************************************/
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class QRecordBenchmark
+{
+   private QRecord       record;
+   private QRecord       recordWithSideStructures;
+   private List<QRecord> records;
+
+
+
+   /*******************************************************************************
+    **
+    *******************************************************************************/
+   @Setup
+   public void setup()
+   {
+      record = BenchmarkInstance.buildOrder(42);
+
+      recordWithSideStructures = BenchmarkInstance.buildOrder(43);
+      recordWithSideStructures.setDisplayValue("storeId", "Store 4");
+      recordWithSideStructures.setDisplayValue("total", "$53.75");
+      recordWithSideStructures.addBackendDetail("rowNo", 43);
+
+      records = BenchmarkInstance.buildOrders(100);
+   }
+
+
+
+   /*******************************************************************************
+    **
+    *******************************************************************************/
+   @Benchmark
+   public QRecord construct()
+   {
+      return (BenchmarkInstance.buildOrder(7));
+   }
+
+
+
+   /*******************************************************************************
+    **
+    *******************************************************************************/
+   @Benchmark
+   public QRecord copy()
+   {
+      return (new QRecord(record));
+   }
+
+
+
+   /*******************************************************************************
+    **
+    *******************************************************************************/
+   @Benchmark
+   public QRecord copyWithSideStructures()
+   {
+      return (new QRecord(recordWithSideStructures));
+   }
+
+
+
+   /*******************************************************************************
+    **
+    *******************************************************************************/
+   @Benchmark
+   public void copyAndModifyList(Blackhole blackhole)
+   {
+      for(QRecord original : records)
+      {
+         QRecord copy = new QRecord(original);
+         copy.setValue("shipToName", "Changed");
+         blackhole.consume(copy);
+      }
+   }
+
+}
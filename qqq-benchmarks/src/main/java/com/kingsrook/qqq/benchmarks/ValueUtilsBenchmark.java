@@ -0,0 +1,149 @@
+/*
+ * QQQ - Low-code Application Framework for Engineers.
+ * Copyright (C) 2021-2024.  Kingsrook, LLC
+ * 651 N Broad St Ste 205 # 6917 | Middletown DE 19709 | United States
+ * contact@kingsrook.com
+ * https://github.com/Kingsrook/
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.kingsrook.qqq.benchmarks;
+
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.concurrent.TimeUnit;
+import com.kingsrook.qqq.backend.core.model.metadata.fields.QFieldType;
+import com.kingsrook.qqq.backend.core.utils.ValueUtils;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+
+/*******************************************************************************
+ ** Benchmarks for ValueUtils type conversions - run on nearly every value read
+ ** from a backend, or received from a client.
+ *******************************************************************************/
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class ValueUtilsBenchmark
+{
+   private String     integerString;
+   private String     decimalString;
+   private String     dateString;
+   private String     instantString;
+   private BigDecimal bigDecimal;
+   private Long       longValue;
+
+
+
+   /*******************************************************************************
+    **
+    *******************************************************************************/
+   @Setup
+   public void setup()
+   {
+      BenchmarkInstance.initContext();
+      integerString = "1,234,567";
+      decimalString = "1234.5678";
+      dateString = "2024-07-04";
+      instantString = "2024-07-04T12:34:56Z";
+      bigDecimal = new BigDecimal("47");
+      longValue = 1_000_000L;
+   }
+
+
+
+   /*******************************************************************************
+    **
+    *******************************************************************************/
+   @Benchmark
+   public Integer stringToInteger()
+   {
+      return (ValueUtils.getValueAsInteger(integerString));
+   }
+
+
+
+   /*******************************************************************************
+    **
+    *******************************************************************************/
+   @Benchmark
+   public Integer bigDecimalToInteger()
+   {
+      return (ValueUtils.getValueAsInteger(bigDecimal));
+   }
+
+
+
+   /*******************************************************************************
+    **
+    *******************************************************************************/
+   @Benchmark
+   public BigDecimal stringToBigDecimal()
+   {
+      return (ValueUtils.getValueAsBigDecimal(decimalString));
+   }
+
+
+
+   /*******************************************************************************
+    **
+    *******************************************************************************/
+   @Benchmark
+   public LocalDate stringToLocalDate()
+   {
+      return (ValueUtils.getValueAsLocalDate(dateString));
+   }
+
+
+
+   /*******************************************************************************
+    **
+    *******************************************************************************/
+   @Benchmark
+   public Instant stringToInstant()
+   {
+      return (ValueUtils.getValueAsInstant(instantString));
+   }
+
+
+
+   /*******************************************************************************
+    **
+    *******************************************************************************/
+   @Benchmark
+   public void getValueAsFieldType(Blackhole blackhole)
+   {
+      blackhole.consume(ValueUtils.getValueAsFieldType(QFieldType.INTEGER, longValue));
+      blackhole.consume(ValueUtils.getValueAsFieldType(QFieldType.DECIMAL, decimalString));
+      blackhole.consume(ValueUtils.getValueAsFieldType(QFieldType.STRING, bigDecimal));
+      blackhole.consume(ValueUtils.getValueAsFieldType(QFieldType.DATE_TIME, instantString));
+   }
+
+}
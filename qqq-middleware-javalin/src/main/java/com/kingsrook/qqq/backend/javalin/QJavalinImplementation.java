@@ -1341,6 +1341,10 @@ public class QJavalinImplementation
     *    }
     * </pre>
     * Additional field names in the JSONObjects there are: baseTableOrAlias, alias, joinName.
+    *
+    * streamFormat parameter (ndjson or json) - or an Accept header of
+    * application/x-ndjson - requests that records be streamed in the response as
+    * they are read from the backend (see QJavalinStreamedQueryWriter).
     *******************************************************************************/
    static void dataQuery(Context context)
    {
@@ -1389,6 +1393,21 @@ public class QJavalinImplementation
          List<QueryJoin> queryJoins = processQueryJoinsParam(context);
          queryInput.setQueryJoins(queryJoins);
 
+         /////////////////////////////////////////////////////////////////////////
+         // if the client asked for a streamed response, write records to it as //
+         // they come out of the backend, instead of building a full output     //
+         /////////////////////////////////////////////////////////////////////////
+         Optional<QJavalinStreamedQueryWriter.Format> streamFormat = QJavalinStreamedQueryWriter.getRequestedFormat(context);
+         if(streamFormat.isPresent())
+         {
+            int recordCount = new QJavalinStreamedQueryWriter(context, streamFormat.get())
+               .withRecordsCustomizer(records -> QValueFormatter.setBlobValuesToDownloadUrls(QContext.getQInstance().getTable(table), records))
+               .execute(queryInput);
+
+            QJavalinAccessLogger.logEndSuccess(logPair("recordCount", recordCount), logPair("streamFormat", streamFormat.get()), logPairIfSlow("filter", filter, SLOW_LOG_THRESHOLD_MS), logPairIfSlow("joins", queryJoins, SLOW_LOG_THRESHOLD_MS));
+            return;
+         }
+
          QueryAction queryAction = new QueryAction();
          QueryOutput queryOutput = queryAction.execute(queryInput);
 
@@ -0,0 +1,367 @@
+/*
+ * QQQ - Low-code Application Framework for Engineers.
+ * Copyright (C) 2021-2024.  Kingsrook, LLC
+ * 651 N Broad St Ste 205 # 6917 | Middletown DE 19709 | United States
+ * contact@kingsrook.com
+ * https://github.com/Kingsrook/
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.kingsrook.qqq.backend.javalin;
+
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.function.Function;
+import com.kingsrook.qqq.backend.core.actions.async.AsyncRecordPipeLoop;
+import com.kingsrook.qqq.backend.core.actions.reporting.RecordPipe;
+import com.kingsrook.qqq.backend.core.actions.tables.QueryAction;
+import com.kingsrook.qqq.backend.core.exceptions.QBadRequestException;
+import com.kingsrook.qqq.backend.core.exceptions.QException;
+import com.kingsrook.qqq.backend.core.exceptions.QUserFacingException;
+import com.kingsrook.qqq.backend.core.logging.QLogger;
+import com.kingsrook.qqq.backend.core.model.actions.tables.query.QueryInput;
+import com.kingsrook.qqq.backend.core.model.data.QRecord;
+import com.kingsrook.qqq.backend.core.utils.ExceptionUtils;
+import com.kingsrook.qqq.backend.core.utils.JsonRecordStreamWriter;
+import com.kingsrook.qqq.backend.core.utils.StringUtils;
+import com.kingsrook.qqq.backend.core.utils.lambdas.UnsafeConsumer;
+import io.javalin.http.Context;
+import static com.kingsrook.qqq.backend.core.logging.LogUtils.logPair;
+
+
+/*******************************************************************************
+ ** Write the results of a query to an http response as they come out of the
+ ** backend, rather than building a full QueryOutput in memory and serializing
+ ** it at the end.  The query runs as an async job, writing into a RecordPipe,
+ ** which is drained by the request thread - so memory use is bounded by the
+ ** pipe's capacity, not the size of the result set.
+ **
+ ** Two formats are supported:
+ ** - NDJSON: one record object per line (application/x-ndjson).
+ ** - JSON: the same shape as a non-streamed query response, e.g.,
+ **   {"records":[...]} (application/json).
+ **
+ ** Clients request streaming either with a `streamFormat` query/form param
+ ** (`ndjson` or `json`), or by sending an Accept header of application/x-ndjson.
+ **
+ ** Since the http status is committed once the first bytes are written, an
+ ** error that happens after that point is reported in the body - as a final
+ ** {"error":"..."} line for NDJSON, or an "error" key after the records for JSON.
+ ** Errors before anything is written are thrown, for normal handling.
+ *******************************************************************************/
+public class QJavalinStreamedQueryWriter
+{
+   private static final QLogger LOG = QLogger.getLogger(QJavalinStreamedQueryWriter.class);
+
+   public static final String STREAM_FORMAT_PARAM = "streamFormat";
+
+   private static final String STARTED_RESPONSE_CONTEXT_ATTRIBUTE = QJavalinStreamedQueryWriter.class.getName() + ".startedResponse";
+
+   private final Context context;
+   private final Format  format;
+
+   private UnsafeConsumer<List<QRecord>, QException> recordsCustomizer;
+   private Function<QRecord, ?>                       recordMapper;
+
+   private JsonRecordStreamWriter recordStreamWriter;
+   private int                    recordCount = 0;
+
+
+
+   /*******************************************************************************
+    ** formats that query results can be streamed in.
+    *******************************************************************************/
+   public enum Format
+   {
+      NDJSON("application/x-ndjson"),
+      JSON("application/json");
+
+      private final String mimeType;
+
+
+
+      /*******************************************************************************
+       **
+       *******************************************************************************/
+      Format(String mimeType)
+      {
+         this.mimeType = mimeType;
+      }
+
+
+
+      /*******************************************************************************
+       ** Getter for mimeType
+       *******************************************************************************/
+      public String getMimeType()
+      {
+         return (mimeType);
+      }
+   }
+
+
+
+   /*******************************************************************************
+    ** Constructor
+    **
+    *******************************************************************************/
+   public QJavalinStreamedQueryWriter(Context context, Format format)
+   {
+      this.context = context;
+      this.format = format;
+   }
+
+
+
+   /*******************************************************************************
+    ** Look at a request, to see if the client asked for a streamed response - and
+    ** if so, in what format.
+    *******************************************************************************/
+   public static Optional<Format> getRequestedFormat(Context context) throws QBadRequestException
+   {
+      String streamFormat = QJavalinUtils.getQueryParamOrFormParam(context, STREAM_FORMAT_PARAM);
+      if(StringUtils.hasContent(streamFormat))
+      {
+         try
+         {
+            return (Optional.of(Format.valueOf(streamFormat.toUpperCase(Locale.ROOT))));
+         }
+         catch(IllegalArgumentException e)
+         {
+            throw (new QBadRequestException("Unsupported " + STREAM_FORMAT_PARAM + ": " + streamFormat + " (supported values are: ndjson, json)."));
+         }
+      }
+
+      String accept = context.header("Accept");
+      if(accept != null && accept.contains(Format.NDJSON.getMimeType()))
+      {
+         return (Optional.of(Format.NDJSON));
+      }
+
+      return (Optional.empty());
+   }
+
+
+
+   /*******************************************************************************
+    ** Check if a streamed response was (at least started to be) written to a
+    ** request's context - e.g., so that callers know not to set a result on it.
+    *******************************************************************************/
+   public static boolean wasResponseStreamed(Context context)
+   {
+      return (Boolean.TRUE.equals(context.attribute(STARTED_RESPONSE_CONTEXT_ATTRIBUTE)));
+   }
+
+
+
+   /*******************************************************************************
+    ** Run the query, writing its records to the response as they arrive.
+    **
+    ** @return the number of records written.
+    *******************************************************************************/
+   public int execute(QueryInput queryInput) throws QException
+   {
+      RecordPipe recordPipe = new RecordPipe();
+      queryInput.setRecordPipe(recordPipe);
+
+      try
+      {
+         new AsyncRecordPipeLoop().run("Javalin>StreamedQuery>" + queryInput.getTableName(), null, recordPipe, (callback) ->
+         {
+            queryInput.setAsyncJobCallback(callback);
+            return (new QueryAction().execute(queryInput));
+         }, () -> writeRecords(recordPipe.consumeAvailableRecords()));
+
+         writeEnd(null);
+      }
+      catch(QException e)
+      {
+         ///////////////////////////////////////////////////////////////////////////////////
+         // make sure the query job doesn't keep running (and blocking on a full pipe) if //
+         // we stopped consuming - e.g., if the client disconnected.                      //
+         ///////////////////////////////////////////////////////////////////////////////////
+         recordPipe.terminate();
+
+         if(recordStreamWriter == null)
+         {
+            throw (e);
+         }
+
+         LOG.warn("Error streaming query results, after response was started", e, logPair("tableName", queryInput.getTableName()), logPair("recordCount", recordCount));
+         QUserFacingException userFacingException = ExceptionUtils.findClassInRootChain(e, QUserFacingException.class);
+         writeEnd(userFacingException != null ? userFacingException.getMessage() : "Error streaming query results");
+      }
+
+      return (recordCount);
+   }
+
+
+
+   /*******************************************************************************
+    ** write a batch of records (starting the response if this is the first batch)
+    *******************************************************************************/
+   private int writeRecords(List<QRecord> records) throws QException
+   {
+      if(recordsCustomizer != null)
+      {
+         recordsCustomizer.run(records);
+      }
+
+      try
+      {
+         startResponse();
+         if(recordMapper == null)
+         {
+            recordStreamWriter.writeRecords(records);
+         }
+         else
+         {
+            for(QRecord record : records)
+            {
+               recordStreamWriter.writeObject(recordMapper.apply(record));
+            }
+         }
+         recordCount += records.size();
+
+         /////////////////////////////////////////////////////////
+         // flush each batch, so the client gets it as a chunk. //
+         /////////////////////////////////////////////////////////
+         recordStreamWriter.flush();
+         return (records.size());
+      }
+      catch(IOException e)
+      {
+         throw (new QException("Error writing query results to response", e));
+      }
+   }
+
+
+
+   /*******************************************************************************
+    **
+    *******************************************************************************/
+   private void startResponse() throws IOException
+   {
+      if(recordStreamWriter == null)
+      {
+         context.attribute(STARTED_RESPONSE_CONTEXT_ATTRIBUTE, true);
+         context.contentType(format.getMimeType());
+
+         recordStreamWriter = new JsonRecordStreamWriter(context.outputStream(), format == Format.NDJSON);
+         if(format == Format.JSON)
+         {
+            recordStreamWriter.setEnclosingObjectFieldName("records");
+         }
+      }
+   }
+
+
+
+   /*******************************************************************************
+    ** finish the response - with an error message, if one is given.
+    *******************************************************************************/
+   private void writeEnd(String errorMessage) throws QException
+   {
+      try
+      {
+         startResponse();
+         recordStreamWriter.finish(errorMessage == null ? null : Map.of("error", errorMessage));
+      }
+      catch(IOException e)
+      {
+         throw (new QException("Error writing end of query results to response", e));
+      }
+   }
+
+
+
+   /*******************************************************************************
+    ** Getter for recordCount
+    *******************************************************************************/
+   public int getRecordCount()
+   {
+      return (this.recordCount);
+   }
+
+
+
+   /*******************************************************************************
+    ** Getter for recordsCustomizer
+    *******************************************************************************/
+   public UnsafeConsumer<List<QRecord>, QException> getRecordsCustomizer()
+   {
+      return (this.recordsCustomizer);
+   }
+
+
+
+   /*******************************************************************************
+    ** Setter for recordsCustomizer - optional lambda, run on each batch of records
+    ** before it is written (e.g., to set blob values to download urls).
+    *******************************************************************************/
+   public void setRecordsCustomizer(UnsafeConsumer<List<QRecord>, QException> recordsCustomizer)
+   {
+      this.recordsCustomizer = recordsCustomizer;
+   }
+
+
+
+   /*******************************************************************************
+    ** Fluent setter for recordsCustomizer
+    *******************************************************************************/
+   public QJavalinStreamedQueryWriter withRecordsCustomizer(UnsafeConsumer<List<QRecord>, QException> recordsCustomizer)
+   {
+      this.recordsCustomizer = recordsCustomizer;
+      return (this);
+   }
+
+
+
+   /*******************************************************************************
+    ** Getter for recordMapper
+    *******************************************************************************/
+   public Function<QRecord, ?> getRecordMapper()
+   {
+      return (this.recordMapper);
+   }
+
+
+
+   /*******************************************************************************
+    ** Setter for recordMapper - optional function, to map each record to the
+    ** object that is written in its place (e.g., a versioned API's record schema),
+    ** so that a streamed response has the same shape as a non-streamed one.
+    *******************************************************************************/
+   public void setRecordMapper(Function<QRecord, ?> recordMapper)
+   {
+      this.recordMapper = recordMapper;
+   }
+
+
+
+   /*******************************************************************************
+    ** Fluent setter for recordMapper
+    *******************************************************************************/
+   public QJavalinStreamedQueryWriter withRecordMapper(Function<QRecord, ?> recordMapper)
+   {
+      this.recordMapper = recordMapper;
+      return (this);
+   }
+
+}
@@ -86,6 +86,12 @@ public class TableQueryExecutor extends AbstractMiddlewareExecutor<TableQueryInp
             QJavalinUtils.handleQueryNullLimit(QJavalinMetaData.of(QContext.getQInstance()), queryInput, null);
          }
 
+         if(input.getStreamedQueryWriter() != null)
+         {
+            input.getStreamedQueryWriter().execute(queryInput);
+            return;
+         }
+
          QueryOutput queryOutput = new QueryAction().execute(queryInput);
 
          // todo not sure QValueFormatter.setBlobValuesToDownloadUrls(QContext.getQInstance().getTable(input.getTableName()), queryOutput.getRecords());
@@ -22,10 +22,49 @@
 package com.kingsrook.qqq.middleware.javalin.executors.io;
 
 
+import com.kingsrook.qqq.backend.javalin.QJavalinStreamedQueryWriter;
+
+
 /*******************************************************************************
  **
  *******************************************************************************/
 public class TableQueryInput extends TableQueryOrCountInput
 {
+   ////////////////////////////////////////////////////////////////////////////
+   // if set, records are written to the response by this writer, as they're //
+   // read from the backend, rather than being set in the output object      //
+   ////////////////////////////////////////////////////////////////////////////
+   private QJavalinStreamedQueryWriter streamedQueryWriter;
+
+
+
+   /*******************************************************************************
+    ** Getter for streamedQueryWriter
+    *******************************************************************************/
+   public QJavalinStreamedQueryWriter getStreamedQueryWriter()
+   {
+      return (this.streamedQueryWriter);
+   }
+
+
+
+   /*******************************************************************************
+    ** Setter for streamedQueryWriter
+    *******************************************************************************/
+   public void setStreamedQueryWriter(QJavalinStreamedQueryWriter streamedQueryWriter)
+   {
+      this.streamedQueryWriter = streamedQueryWriter;
+   }
+
+
+
+   /*******************************************************************************
+    ** Fluent setter for streamedQueryWriter
+    *******************************************************************************/
+   public TableQueryInput withStreamedQueryWriter(QJavalinStreamedQueryWriter streamedQueryWriter)
+   {
+      this.streamedQueryWriter = streamedQueryWriter;
+      return (this);
+   }
 
 }
@@ -25,16 +25,19 @@ package com.kingsrook.qqq.middleware.javalin.specs.v1;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Optional;
 import com.fasterxml.jackson.annotation.JsonInclude;
 import com.kingsrook.qqq.backend.core.model.data.QRecord;
 import com.kingsrook.qqq.backend.core.utils.CollectionUtils;
 import com.kingsrook.qqq.backend.core.utils.JsonUtils;
+import com.kingsrook.qqq.backend.javalin.QJavalinStreamedQueryWriter;
 import com.kingsrook.qqq.middleware.javalin.executors.TableQueryExecutor;
 import com.kingsrook.qqq.middleware.javalin.executors.io.TableQueryInput;
 import com.kingsrook.qqq.middleware.javalin.specs.AbstractEndpointSpec;
 import com.kingsrook.qqq.middleware.javalin.specs.BasicOperation;
 import com.kingsrook.qqq.middleware.javalin.specs.BasicResponse;
 import com.kingsrook.qqq.middleware.javalin.specs.v1.responses.TableQueryResponseV1;
+import com.kingsrook.qqq.middleware.javalin.specs.v1.responses.components.OutputRecord;
 import com.kingsrook.qqq.middleware.javalin.specs.v1.utils.QuerySpecUtils;
 import com.kingsrook.qqq.middleware.javalin.specs.v1.utils.TagsV1;
 import com.kingsrook.qqq.openapi.model.Example;
@@ -118,6 +121,13 @@ public class TableQuerySpecV1 extends AbstractEndpointSpec<TableQueryInput, Tabl
          input.setTableVariant(QuerySpecUtils.getTableVariantFromRequestBody(requestBody));
       }
 
+      //////////////////////////////////////////////////////////////////////////
+      // if streaming, write records in the same (OutputRecord) shape as this //
+      // endpoint's non-streamed response, rather than as raw QRecords        //
+      //////////////////////////////////////////////////////////////////////////
+      Optional<QJavalinStreamedQueryWriter.Format> streamFormat = QJavalinStreamedQueryWriter.getRequestedFormat(context);
+      streamFormat.ifPresent(format -> input.setStreamedQueryWriter(new QJavalinStreamedQueryWriter(context, format).withRecordMapper(OutputRecord::new)));
+
       return (input);
    }
 
@@ -164,6 +174,14 @@ public class TableQuerySpecV1 extends AbstractEndpointSpec<TableQueryInput, Tabl
    @Override
    public void handleOutput(Context context, TableQueryResponseV1 tableQueryResponseV1) throws Exception
    {
+      if(QJavalinStreamedQueryWriter.wasResponseStreamed(context))
+      {
+         //////////////////////////////////////////////////////////////
+         // records were already written to the response as a stream //
+         //////////////////////////////////////////////////////////////
+         return;
+      }
+
       if(CollectionUtils.nullSafeIsEmpty(tableQueryResponseV1.getRecords()))
       {
          ////////////////////////////////////////////////////////////////////////////////////
@@ -477,6 +477,46 @@ class QJavalinImplementationTest extends QJavalinTestBase
 
 
 
+   /*******************************************************************************
+    ** test a table query with results streamed in each of the stream formats.
+    **
+    *******************************************************************************/
+   @Test
+   public void test_dataQueryStreamed()
+   {
+      HttpResponse<String> response = Unirest.get(BASE_URL + "/data/person?streamFormat=ndjson").asString();
+      assertEquals(200, response.getStatus());
+      assertThat(response.getHeaders().getFirst("Content-Type")).startsWith("application/x-ndjson");
+      String[] lines = response.getBody().split("\n");
+      assertEquals(6, lines.length);
+      for(String line : lines)
+      {
+         JSONObject record = JsonUtils.toJSONObject(line);
+         assertEquals("person", record.getString("tableName"));
+         assertTrue(record.getJSONObject("values").has("id"));
+      }
+
+      response = Unirest.get(BASE_URL + "/data/person").header("Accept", "application/x-ndjson").asString();
+      assertEquals(200, response.getStatus());
+      assertEquals(6, response.getBody().split("\n").length);
+
+      response = Unirest.get(BASE_URL + "/data/person?streamFormat=json").asString();
+      assertEquals(200, response.getStatus());
+      JSONArray records = JsonUtils.toJSONObject(response.getBody()).getJSONArray("records");
+      assertEquals(6, records.length());
+      assertEquals("person", records.getJSONObject(0).getString("tableName"));
+
+      String filterJson = getFirstNameEqualsFilterJSON("Nobody");
+      response = Unirest.get(BASE_URL + "/data/person?streamFormat=json&filter=" + URLEncoder.encode(filterJson, StandardCharsets.UTF_8)).asString();
+      assertEquals(200, response.getStatus());
+      assertEquals(0, JsonUtils.toJSONObject(response.getBody()).getJSONArray("records").length());
+
+      response = Unirest.get(BASE_URL + "/data/person?streamFormat=xml").asString();
+      assertEquals(400, response.getStatus());
+   }
+
+
+
    /*******************************************************************************
     ** test a table query using an actual filter.
     **
@@ -106,6 +106,37 @@ class TableQuerySpecV1Test extends SpecTestBase
 
 
 
+   /*******************************************************************************
+    **
+    *******************************************************************************/
+   @Test
+   void testStreamed()
+   {
+      HttpResponse<String> response = Unirest.post(getBaseUrlAndPath() + "/table/person/query?streamFormat=ndjson")
+         .contentType(ContentType.APPLICATION_JSON.getMimeType())
+         .body(JsonUtils.toJson(Map.of("filter", new QQueryFilter(new QFilterCriteria("lastName", QCriteriaOperator.EQUALS, "Kelkhoff")))))
+         .asString();
+
+      assertEquals(200, response.getStatus());
+      assertThat(response.getHeaders().getFirst("Content-Type")).contains("application/x-ndjson");
+
+      String[] lines = response.getBody().split("\n");
+      assertThat(lines.length).isGreaterThanOrEqualTo(1);
+
+      /////////////////////////////////////////////////////////////////////////////
+      // records should be in the same shape as the non-streamed response (e.g., //
+      // OutputRecord) - not raw QRecords (with errors, backendDetails, etc).    //
+      /////////////////////////////////////////////////////////////////////////////
+      JSONObject record = JsonUtils.toJSONObject(lines[0]);
+      assertThat(record.keySet()).containsExactlyInAnyOrder("tableName", "recordLabel", "values", "displayValues");
+      assertThat(record.getString("recordLabel")).contains("Kelkhoff");
+      assertThat(record.getString("tableName")).isEqualTo("person");
+      assertThat(record.getJSONObject("values").getString("lastName")).isEqualTo("Kelkhoff");
+      assertThat(record.getJSONObject("displayValues").getString("lastName")).isEqualTo("Kelkhoff");
+   }
+
+
+
    /*******************************************************************************
     **
     *******************************************************************************/